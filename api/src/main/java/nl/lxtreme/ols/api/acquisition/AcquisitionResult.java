@@ -21,6 +21,9 @@
 package nl.lxtreme.ols.api.acquisition;
 
 
+import nl.lxtreme.ols.api.data.*;
+
+
 /**
  * Denotes a concrete result of a single acquisition.
  */
@@ -61,6 +64,26 @@ public interface AcquisitionResult
    */
   public abstract int getSampleIndex( final long aTimeValue );
 
+  /**
+   * Returns the sample index from the given absolute time value, starting the
+   * search at a given sample index.
+   * <p>
+   * This method returns the same as {@link #getSampleIndex(long)}, but is
+   * considerably faster if the given hint lies close to the searched sample
+   * index, as is typically the case when sample indices are looked up in
+   * increasing (or decreasing) order, for example, while decoding or
+   * scrolling.
+   * </p>
+   * 
+   * @param aTimeValue
+   *          the (absolute) time value to convert to a sample index;
+   * @param aHintIndex
+   *          the sample index to start searching from, for example, the result
+   *          of a previous call to this method. Invalid indices are ignored.
+   * @return the sample number <em>before</b> the selected absolute time.
+   */
+  public abstract int getSampleIndex( final long aTimeValue, final int aHintIndex );
+
   /**
    * Returns the sample rate in which this data was captured.
    * 
@@ -68,6 +91,21 @@ public interface AcquisitionResult
    */
   public abstract int getSampleRate();
 
+  /**
+   * Returns the time stamp of a single sample.
+   * <p>
+   * Use this method in favour of {@link #getTimestamps()}, as the latter
+   * might need to decode all time stamps in case they are kept in a compacted
+   * form.
+   * </p>
+   * 
+   * @param aIndex
+   *          the index of the sample, &gt;= 0 &amp;&amp; &lt; the number of
+   *          samples.
+   * @return the time stamp of the sample.
+   */
+  public abstract long getTimestamp( final int aIndex );
+
   /**
    * Returns the time stamps of the individual samples.
    * <p>
@@ -79,12 +117,32 @@ public interface AcquisitionResult
    * NOTE: the length of this array <b>must</b> be equal to the length of the
    * array returned by {@link #getValues()}!
    * </p>
+   * <p>
+   * Time stamps kept in a compacted form are decoded into an array that is
+   * only kept as long as memory permits, and decoded again after it has been
+   * reclaimed. Use {@link #getTimestamp(int)} or {@link #getSampleIndex(long)}
+   * instead where possible.
+   * </p>
    * 
    * @return the time stamps, as array of long values.
    * @see #getValues()
    */
   public abstract long[] getTimestamps();
 
+  /**
+   * Returns the index of all transitions of a single channel, allowing edge
+   * counts and high times of any interval to be determined in logarithmic time.
+   * <p>
+   * Implementations are expected to create this index once and cache it.
+   * </p>
+   * 
+   * @param aChannelIdx
+   *          the index of the channel to return the transition index for, >= 0
+   *          && < {@link #getChannels()}.
+   * @return the transition index of the given channel, never <code>null</code>.
+   */
+  public abstract TransitionIndex getTransitionIndex( final int aChannelIdx );
+
   /**
    * Returns the trigger position, as (absolute) time-value.
    * 
@@ -21,14 +21,21 @@
 package nl.lxtreme.ols.api.data;
 
 
+import java.io.*;
+
+
 /**
  * Provides a base data implementation.
  * 
  * @param <TYPE>
  *          the actual content type of this base data entity.
  */
-public abstract class BaseData<TYPE extends Comparable<? super TYPE>> implements Comparable<TYPE>
+public abstract class BaseData<TYPE extends Comparable<? super TYPE>> implements Comparable<TYPE>, Serializable
 {
+  // CONSTANTS
+
+  private static final long serialVersionUID = 1L;
+
   // VARIABLES
 
   private final int idx;
@@ -21,6 +21,7 @@
 package nl.lxtreme.ols.api.data;
 
 
+import java.io.*;
 import java.util.*;
 
 import nl.lxtreme.ols.api.acquisition.*;
@@ -32,8 +33,12 @@ import nl.lxtreme.ols.api.acquisition.*;
  * @param <DATA>
  *          the actual data entity of this base data set.
  */
-public class BaseDataSet<DATA extends BaseData<DATA>>
+public class BaseDataSet<DATA extends BaseData<DATA>> implements Serializable
 {
+  // CONSTANTS
+
+  private static final long serialVersionUID = 1L;
+
   // VARIABLES
 
   private final List<DATA> data;
@@ -43,7 +48,8 @@ public class BaseDataSet<DATA extends BaseData<DATA>>
   private final int sampleRate;
   private final boolean triggerDataPresent;
   private final long triggerPosition;
-  private final long[] timestamps;
+  /** not serialized, see {@link #attach(AcquisitionResult)}. */
+  private transient long[] timestamps;
 
   // CONSTRUCTORS
 
@@ -75,6 +81,23 @@ public class BaseDataSet<DATA extends BaseData<DATA>>
 
   // METHODS
 
+  /**
+   * Attaches this data set to the acquisition results it is decoded from.
+   * <p>
+   * The timestamps of the acquisition results are not serialized along with
+   * this data set, and need to be attached again after deserialization before
+   * {@link #getTime(int)} can be used.
+   * </p>
+   * 
+   * @param aData
+   *          the acquisition results this data set is decoded from, cannot be
+   *          <code>null</code>.
+   */
+  public final void attach( final AcquisitionResult aData )
+  {
+    this.timestamps = aData.getTimestamps();
+  }
+
   /**
    * Returns the (decoded) data in this data set.
    * 
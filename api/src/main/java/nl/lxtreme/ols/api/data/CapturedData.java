@@ -21,6 +21,7 @@
 package nl.lxtreme.ols.api.data;
 
 
+import java.lang.ref.*;
 import java.util.*;
 
 import nl.lxtreme.ols.api.*;
@@ -39,14 +40,28 @@ import nl.lxtreme.ols.api.acquisition.*;
  */
 public class CapturedData implements AcquisitionResult
 {
+  // CONSTANTS
+
+  /** the number of timestamps per block of the block index, as power of two */
+  private static final int BLOCK_SHIFT = 6;
+  /** the minimal number of timestamps for which a block index is created */
+  private static final int BLOCK_INDEX_THRESHOLD = 1 << 16;
+  /** the minimal number of timestamps for which compaction is considered */
+  private static final int COMPACT_THRESHOLD = 1 << 16;
+  /** the system property to enable compaction of large timestamp series */
+  private static final String PROPERTY_COMPACT_TIMESTAMPS = "nl.lxtreme.ols.compact.timestamps";
+
   // VARIABLES
 
   /** captured values */
   private final int[] values;
 
-  /** timestamp values in samples count from start */
+  /** timestamp values in samples count from start, if not compacted */
   private final long[] timestamps;
 
+  /** compacted timestamp values, or <code>null</code> if not compacted */
+  private final CompactTimestamps compactTimestamps;
+
   /** position of trigger as time value */
   private final long triggerPosition;
 
@@ -62,6 +77,15 @@ public class CapturedData implements AcquisitionResult
   /** absolute sample length */
   private final long absoluteLength;
 
+  /** lazily created transition indices, one per channel */
+  private final TransitionIndex[] transitionIndices = new TransitionIndex[Ols.MAX_CHANNELS];
+
+  /** lazily created copy of every 2^BLOCK_SHIFT-th timestamp, for large data */
+  private volatile long[] blockIndex;
+
+  /** lazily decoded compacted timestamps, reclaimed when memory runs low */
+  private volatile SoftReference<long[]> decodedTimestamps;
+
   // CONSTRUCTORS
 
   /**
@@ -98,9 +122,9 @@ public class CapturedData implements AcquisitionResult
       tmp = value;
     }
 
-    this.timestamps = new long[count];
+    final long[] timestamps = new long[count];
     this.values = new int[count];
-    this.timestamps[0] = 0;
+    timestamps[0] = 0;
     this.values[0] = values[0];
 
     tmp = values[0];
@@ -110,20 +134,23 @@ public class CapturedData implements AcquisitionResult
       if ( tmp != values[i] )
       {
         // store only transitions
-        this.timestamps[count] = i;
+        timestamps[count] = i;
         this.values[count] = values[i];
         count++;
       }
       tmp = values[i];
     }
 
-    long absLength = this.timestamps[this.timestamps.length - 1];
+    long absLength = timestamps[timestamps.length - 1];
     if ( values.length > 1 )
     {
-      absLength -= this.timestamps[0];
+      absLength -= timestamps[0];
     }
 
     this.absoluteLength = absLength;
+
+    this.compactTimestamps = compact( timestamps );
+    this.timestamps = ( this.compactTimestamps == null ) ? timestamps : null;
   }
 
   // METHODS
@@ -165,6 +192,7 @@ public class CapturedData implements AcquisitionResult
       absLength = Math.max( aAbsLen, aTimestamps[aTimestamps.length - 1] );
     }
 
+    final long[] timestamps;
     if ( aValues.length > 0 )
     {
       // 1: calculate the number of unique transitions...
@@ -191,10 +219,10 @@ public class CapturedData implements AcquisitionResult
 
       // 2: copy *only* the unique transitions...
       this.values = new int[count];
-      this.timestamps = new long[count];
+      timestamps = new long[count];
 
       this.values[0] = aValues[0];
-      this.timestamps[0] = aTimestamps[0];
+      timestamps[0] = aTimestamps[0];
 
       oldValue = aValues[0];
       for ( int i = 1, j = 1; i < aValues.length; i++ )
@@ -202,7 +230,7 @@ public class CapturedData implements AcquisitionResult
         if ( aValues[i] != oldValue )
         {
           this.values[j] = aValues[i];
-          this.timestamps[j] = aTimestamps[i];
+          timestamps[j] = aTimestamps[i];
           j++;
         }
         oldValue = aValues[i];
@@ -212,13 +240,13 @@ public class CapturedData implements AcquisitionResult
       if ( addExtraSample )
       {
         this.values[count - 1] = aValues[aValues.length - 1];
-        this.timestamps[count - 1] = absLength;
+        timestamps[count - 1] = absLength;
       }
     }
     else
     {
       this.values = new int[0];
-      this.timestamps = new long[0];
+      timestamps = new long[0];
     }
 
     this.triggerPosition = aTriggerPosition;
@@ -226,6 +254,9 @@ public class CapturedData implements AcquisitionResult
     this.channels = aChannels;
     this.enabledChannels = aEnabledChannels;
     this.absoluteLength = absLength;
+
+    this.compactTimestamps = compact( timestamps );
+    this.timestamps = ( this.compactTimestamps == null ) ? timestamps : null;
   }
 
   /**
@@ -265,6 +296,7 @@ public class CapturedData implements AcquisitionResult
       absLength = Math.max( aAbsoluteLength, aTimestamps.get( aTimestamps.size() - 1 ).longValue() );
     }
 
+    final long[] timestamps;
     if ( !aValues.isEmpty() )
     {
       final int size = aValues.size();
@@ -294,10 +326,10 @@ public class CapturedData implements AcquisitionResult
 
       // 2: copy *only* the unique transitions...
       this.values = new int[count];
-      this.timestamps = new long[count];
+      timestamps = new long[count];
 
       this.values[0] = aValues.get( 0 ).intValue();
-      this.timestamps[0] = aTimestamps.get( 0 ).longValue();
+      timestamps[0] = aTimestamps.get( 0 ).longValue();
 
       oldValue = aValues.get( 0 );
       for ( int i = 1, j = 1; i < size; i++ )
@@ -307,7 +339,7 @@ public class CapturedData implements AcquisitionResult
         if ( value.compareTo( oldValue ) != 0 )
         {
           this.values[j] = value.intValue();
-          this.timestamps[j] = timestamp.longValue();
+          timestamps[j] = timestamp.longValue();
           j++;
         }
         oldValue = value;
@@ -317,13 +349,13 @@ public class CapturedData implements AcquisitionResult
       if ( addExtraSample )
       {
         this.values[count - 1] = aValues.get( size - 1 ).intValue();
-        this.timestamps[count - 1] = absLength;
+        timestamps[count - 1] = absLength;
       }
     }
     else
     {
       this.values = new int[0];
-      this.timestamps = new long[0];
+      timestamps = new long[0];
     }
 
     this.triggerPosition = aTriggerPosition;
@@ -331,15 +363,13 @@ public class CapturedData implements AcquisitionResult
     this.channels = aChannels;
     this.enabledChannels = aEnabledChannels;
     this.absoluteLength = aAbsoluteLength;
+
+    this.compactTimestamps = compact( timestamps );
+    this.timestamps = ( this.compactTimestamps == null ) ? timestamps : null;
   }
 
   /**
    * Provides a binary search for arrays of long-values.
-   * <p>
-   * This implementation is directly copied from the JDK
-   * {@link Arrays#binarySearch(long[], long)} implementation, slightly modified
-   * to only perform a single comparison-action.
-   * </p>
    * 
    * @param aArray
    *          the array of long values to search in;
@@ -349,53 +379,147 @@ public class CapturedData implements AcquisitionResult
    *          the to index to search up and until;
    * @param aKey
    *          the value to search for.
-   * @return the index of the given key, which is either the greatest index of
-   *         the value less or equal to the given key.
+   * @return the index of the given key, or if not found, the index of the
+   *         first value greater than the given key, limited to the last index
+   *         of the given range.
    * @see Arrays#binarySearch(long[], long)
    */
-  static final int binarySearch( final long[] aArray, final int aFromIndex, final int aToIndex, final Long aKey )
+  static final int binarySearch( final long[] aArray, final int aFromIndex, final int aToIndex, final long aKey )
   {
-    int mid = -1;
-    int low = aFromIndex;
-    int high = aToIndex - 1;
+    return limit( lowerBound( aArray, aFromIndex, aToIndex, aKey ), aFromIndex, aToIndex );
+  }
+
+  /**
+   * Provides an exponential ("galloping") search for arrays of long-values,
+   * starting at a given index.
+   * <p>
+   * This search takes O(log d) steps, with d the distance between the given
+   * hint and the searched index, making it nearly O(1) for sequential
+   * look-ups.
+   * </p>
+   * 
+   * @param aArray
+   *          the array of long values to search in;
+   * @param aFromIndex
+   *          the from index to search from;
+   * @param aToIndex
+   *          the to index to search up and until;
+   * @param aKey
+   *          the value to search for;
+   * @param aHintIndex
+   *          the index to start the search at, will be clipped to the given
+   *          range.
+   * @return the same as {@link #binarySearch(long[], int, int, long)}.
+   */
+  static final int gallopingSearch( final long[] aArray, final int aFromIndex, final int aToIndex, final long aKey,
+      final int aHintIndex )
+  {
+    return limit( gallop( aArray, aFromIndex, aToIndex, aKey, aHintIndex ), aFromIndex, aToIndex );
+  }
 
-    while ( low <= high )
+  /**
+   * Returns the index of the first value that is greater than or equal to the
+   * given key, or the given to index if there is no such value, using an
+   * exponential search starting at the given (clipped) hint index.
+   */
+  static int gallop( final long[] aArray, final int aFromIndex, final int aToIndex, final long aKey,
+      final int aHintIndex )
+  {
+    if ( aFromIndex >= aToIndex )
     {
-      mid = ( low + high ) >>> 1;
-      final Long midVal = Long.valueOf( aArray[mid] );
+      return aFromIndex;
+    }
 
-      final int c = aKey.compareTo( midVal );
-      if ( c > 0 )
+    final int hint = Math.max( aFromIndex, Math.min( aToIndex - 1, aHintIndex ) );
+
+    int low = hint;
+    int high = hint;
+    int step = 1;
+    if ( aArray[hint] < aKey )
+    {
+      // Gallop to the right; the lower bound lies in (low, high]...
+      while ( true )
       {
-        low = mid + 1;
+        high = ( ( aToIndex - low ) > step ) ? ( low + step ) : aToIndex;
+        if ( ( high == aToIndex ) || ( aArray[high] >= aKey ) )
+        {
+          break;
+        }
+        low = high;
+        step <<= 1;
       }
-      else if ( c < 0 )
+      low++;
+    }
+    else
+    {
+      // Gallop to the left; the lower bound lies in (low, high]...
+      while ( true )
       {
-        high = mid - 1;
+        low = ( ( high - aFromIndex ) > step ) ? ( high - step ) : aFromIndex;
+        if ( ( low == aFromIndex ) || ( aArray[low] < aKey ) )
+        {
+          break;
+        }
+        high = low;
+        step <<= 1;
       }
-      else
+      if ( aArray[low] < aKey )
       {
-        return mid; // key found
+        low++;
       }
     }
 
-    if ( mid < 0 )
-    {
-      return low;
-    }
+    return lowerBound( aArray, low, high, aKey );
+  }
 
-    // Determine the insertion point, avoid crossing the array boundaries...
-    if ( mid < ( aToIndex - 1 ) )
+  /**
+   * Returns the index of the first value that is greater than or equal to the
+   * given key, or the given to index if there is no such value.
+   */
+  static int lowerBound( final long[] aArray, final int aFromIndex, final int aToIndex, final long aKey )
+  {
+    int low = aFromIndex;
+    int high = aToIndex;
+    while ( low < high )
     {
-      // If the searched value is greater than the value of the found index,
-      // insert it after this value, otherwise before it (= the last return)...
-      if ( aKey.longValue() > aArray[mid] )
+      final int mid = ( low + high ) >>> 1;
+      if ( aArray[mid] < aKey )
+      {
+        low = mid + 1;
+      }
+      else
       {
-        return mid + 1;
+        high = mid;
       }
     }
+    return low;
+  }
+
+  /**
+   * Compacts the given timestamps, if enabled and worthwhile.
+   * 
+   * @param aTimestamps
+   *          the timestamps to compact, cannot be <code>null</code>.
+   * @return the compacted timestamps, or <code>null</code> if the timestamps
+   *         are not to be compacted.
+   */
+  private static CompactTimestamps compact( final long[] aTimestamps )
+  {
+    if ( ( aTimestamps.length < COMPACT_THRESHOLD )
+        || !Boolean.parseBoolean( System.getProperty( PROPERTY_COMPACT_TIMESTAMPS, "false" ) ) )
+    {
+      return null;
+    }
+    return CompactTimestamps.encode( aTimestamps );
+  }
 
-    return mid;
+  /**
+   * Limits a lower bound to the last index of the given range, as keys beyond
+   * the last value should yield the last index.
+   */
+  private static int limit( final int aIndex, final int aFromIndex, final int aToIndex )
+  {
+    return ( ( aIndex == aToIndex ) && ( aIndex > aFromIndex ) ) ? ( aIndex - 1 ) : aIndex;
   }
 
   /**
@@ -431,7 +555,82 @@ public class CapturedData implements AcquisitionResult
   @Override
   public final int getSampleIndex( final long abs )
   {
-    return binarySearch( this.timestamps, 0, this.timestamps.length, Long.valueOf( abs ) );
+    if ( this.compactTimestamps != null )
+    {
+      // The bases of the compacted timestamps already form a block index...
+      return limit( this.compactTimestamps.lowerBound( abs ), 0, this.compactTimestamps.size() );
+    }
+
+    final long[] blocks = getBlockIndex();
+    if ( blocks == null )
+    {
+      return binarySearch( this.timestamps, 0, this.timestamps.length, abs );
+    }
+
+    // Search the (small) block index first, which is likely to be cached, and
+    // then only the block in which the timestamp should reside...
+    final int block = lowerBound( blocks, 0, blocks.length, abs );
+    final int fromIndex = ( block == 0 ) ? 0 : ( ( ( block - 1 ) << BLOCK_SHIFT ) + 1 );
+    final int toIndex = Math.min( block << BLOCK_SHIFT, this.timestamps.length );
+
+    return limit( lowerBound( this.timestamps, fromIndex, toIndex, abs ), 0, this.timestamps.length );
+  }
+
+  /**
+   * @see nl.lxtreme.ols.api.acquisition.AcquisitionResult#getSampleIndex(long,
+   *      int)
+   */
+  @Override
+  public final int getSampleIndex( final long abs, final int aHintIndex )
+  {
+    if ( ( aHintIndex < 0 ) || ( aHintIndex >= this.values.length ) )
+    {
+      return getSampleIndex( abs );
+    }
+    if ( this.compactTimestamps != null )
+    {
+      return limit( this.compactTimestamps.lowerBound( abs, aHintIndex ), 0, this.compactTimestamps.size() );
+    }
+    return gallopingSearch( this.timestamps, 0, this.timestamps.length, abs, aHintIndex );
+  }
+
+  /**
+   * Returns the compacted timestamps.
+   * 
+   * @return the compacted timestamps, or <code>null</code> if the timestamps
+   *         are not compacted.
+   */
+  final CompactTimestamps getCompactTimestamps()
+  {
+    return this.compactTimestamps;
+  }
+
+  /**
+   * Returns the block index, consisting of every 2^{@link #BLOCK_SHIFT}-th
+   * timestamp, creating it if necessary.
+   * 
+   * @return the block index, or <code>null</code> if the timestamps are too
+   *         few to benefit from a block index.
+   */
+  private long[] getBlockIndex()
+  {
+    if ( this.timestamps.length < BLOCK_INDEX_THRESHOLD )
+    {
+      return null;
+    }
+
+    long[] result = this.blockIndex;
+    if ( result == null )
+    {
+      // Creating it more than once in case of contention is harmless...
+      result = new long[( ( this.timestamps.length - 1 ) >> BLOCK_SHIFT ) + 1];
+      for ( int i = 0; i < result.length; i++ )
+      {
+        result[i] = this.timestamps[i << BLOCK_SHIFT];
+      }
+      this.blockIndex = result;
+    }
+    return result;
   }
 
   /**
@@ -449,7 +648,58 @@ public class CapturedData implements AcquisitionResult
   @Override
   public final long[] getTimestamps()
   {
-    return this.timestamps;
+    if ( this.timestamps != null )
+    {
+      return this.timestamps;
+    }
+    // Only kept as long as memory permits, to retain the benefit of the
+    // compaction...
+    final SoftReference<long[]> ref = this.decodedTimestamps;
+    long[] result = ( ref == null ) ? null : ref.get();
+    if ( result == null )
+    {
+      // Decoding them more than once in case of contention is harmless...
+      result = this.compactTimestamps.toArray();
+      this.decodedTimestamps = new SoftReference<long[]>( result );
+    }
+    return result;
+  }
+
+  /**
+   * @see nl.lxtreme.ols.api.acquisition.AcquisitionResult#getTimestamp(int)
+   */
+  @Override
+  public final long getTimestamp( final int aIndex )
+  {
+    if ( this.timestamps != null )
+    {
+      return this.timestamps[aIndex];
+    }
+    return this.compactTimestamps.get( aIndex );
+  }
+
+  /**
+   * @see nl.lxtreme.ols.api.acquisition.AcquisitionResult#getTransitionIndex(int)
+   */
+  @Override
+  public final TransitionIndex getTransitionIndex( final int aChannelIdx )
+  {
+    if ( ( aChannelIdx < 0 ) || ( aChannelIdx >= Ols.MAX_CHANNELS ) )
+    {
+      throw new IllegalArgumentException( "Invalid channel index: " + aChannelIdx );
+    }
+
+    synchronized ( this.transitionIndices )
+    {
+      TransitionIndex result = this.transitionIndices[aChannelIdx];
+      if ( result == null )
+      {
+        result = new TransitionIndex( this.values, this.timestamps, this.compactTimestamps, 1 << aChannelIdx,
+            this.absoluteLength );
+        this.transitionIndices[aChannelIdx] = result;
+      }
+      return result;
+    }
   }
 
   /**
@@ -0,0 +1,315 @@
+/*
+ * OpenBench LogicSniffer / SUMP project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ *
+ * Copyright (C) 2010-2011 - J.W. Janssen, http://www.lxtreme.nl
+ */
+package nl.lxtreme.ols.api.data;
+
+
+import nl.lxtreme.ols.api.*;
+import nl.lxtreme.ols.api.acquisition.*;
+
+
+/**
+ * Provides a view on an acquisition result as state data, sampled by one of
+ * its channels acting as clock.
+ * <p>
+ * A state is sampled on each transition of the clock channel <em>away</em>
+ * from the given level, that is, on each rising edge if the level is low (0),
+ * and on each falling edge if the level is high (1). The value of each state
+ * is the value just before the clock transition. The transitions are obtained
+ * from the {@link TransitionIndex} of the clock channel, so only the samples
+ * around the clock transitions are visited. The resulting state data has no
+ * timing information; each state lasts exactly one "sample".
+ * </p>
+ * <p>
+ * The states are only sampled upon their first access, after which they are
+ * retained. Only the states themselves are stored, which are typically far
+ * less than the samples of the source result.
+ * </p>
+ */
+public final class ClockedStateView implements AcquisitionResult
+{
+  // VARIABLES
+
+  private final AcquisitionResult source;
+  private final int clockChannel;
+  private final int level;
+
+  private volatile CapturedData data;
+
+  // CONSTRUCTORS
+
+  /**
+   * Creates a new {@link ClockedStateView} instance.
+   * 
+   * @param aSource
+   *          the acquisition result to sample, cannot be <code>null</code>;
+   * @param aClockChannel
+   *          the index of the channel to use as clock, >= 0 && < 32;
+   * @param aLevel
+   *          the level of the clock to sample the data after, 0 or 1.
+   */
+  public ClockedStateView( final AcquisitionResult aSource, final int aClockChannel, final int aLevel )
+  {
+    if ( aSource == null )
+    {
+      throw new IllegalArgumentException( "Source cannot be null!" );
+    }
+    if ( ( aClockChannel < 0 ) || ( aClockChannel >= Ols.MAX_CHANNELS ) )
+    {
+      throw new IllegalArgumentException( "Invalid clock channel: " + aClockChannel );
+    }
+
+    this.source = aSource;
+    this.clockChannel = aClockChannel;
+    this.level = aLevel;
+  }
+
+  // METHODS
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public long getAbsoluteLength()
+  {
+    return getData().getAbsoluteLength();
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public int getChannels()
+  {
+    return this.source.getChannels();
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public int getEnabledChannels()
+  {
+    return this.source.getEnabledChannels();
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public int getSampleIndex( final long aTimeValue )
+  {
+    return getData().getSampleIndex( aTimeValue );
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public int getSampleIndex( final long aTimeValue, final int aHintIndex )
+  {
+    return getData().getSampleIndex( aTimeValue, aHintIndex );
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public int getSampleRate()
+  {
+    return Ols.NOT_AVAILABLE;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public long getTimestamp( final int aIndex )
+  {
+    return getData().getTimestamp( aIndex );
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public long[] getTimestamps()
+  {
+    return getData().getTimestamps();
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public TransitionIndex getTransitionIndex( final int aChannelIdx )
+  {
+    return getData().getTransitionIndex( aChannelIdx );
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public long getTriggerPosition()
+  {
+    return getData().getTriggerPosition();
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public int[] getValues()
+  {
+    return getData().getValues();
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public boolean hasTimingData()
+  {
+    return getSampleRate() != Ols.NOT_AVAILABLE;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public boolean hasTriggerData()
+  {
+    return getTriggerPosition() != Ols.NOT_AVAILABLE;
+  }
+
+  /**
+   * Returns whether the states of this view are already sampled.
+   * 
+   * @return <code>true</code> if the states are sampled, <code>false</code>
+   *         otherwise.
+   */
+  public boolean isComputed()
+  {
+    return this.data != null;
+  }
+
+  /**
+   * Returns the number of states in this view, without sampling them.
+   * 
+   * @return a state count, >= 0.
+   */
+  public int getStateCount()
+  {
+    final AcquisitionResult source = this.source;
+    if ( source.getValues().length == 0 )
+    {
+      return 0;
+    }
+
+    final TransitionIndex index = source.getTransitionIndex( this.clockChannel );
+    final long start = source.getTimestamp( 0 );
+    final long end = Math.max( start, source.getAbsoluteLength() ) + 1L;
+    if ( this.level == 0 )
+    {
+      return index.getRisingEdgeCount( start, end );
+    }
+    return index.getFallingEdgeCount( start, end );
+  }
+
+  /**
+   * Returns the states of this view, sampling them if necessary.
+   * 
+   * @return the sampled states, never <code>null</code>.
+   * @throws IllegalStateException
+   *           in case the source contains no states at all.
+   */
+  private CapturedData getData()
+  {
+    CapturedData result = this.data;
+    if ( result == null )
+    {
+      synchronized ( this )
+      {
+        result = this.data;
+        if ( result == null )
+        {
+          result = sampleStates();
+          this.data = result;
+        }
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Samples the states of the source result on the edges of the clock
+   * channel.
+   * 
+   * @return the sampled states, never <code>null</code>.
+   * @throws IllegalStateException
+   *           in case the source contains no states at all.
+   */
+  private CapturedData sampleStates()
+  {
+    final int count = getStateCount();
+    if ( count <= 0 )
+    {
+      throw new IllegalStateException( "No state changes found!" );
+    }
+
+    final AcquisitionResult source = this.source;
+    final TransitionIndex index = source.getTransitionIndex( this.clockChannel );
+    final int[] values = source.getValues();
+    final int mask = 1 << this.clockChannel;
+    final boolean rising = ( this.level == 0 );
+
+    final boolean hasTrigger = source.hasTriggerData();
+    final long triggerPos = source.getTriggerPosition();
+    int trigger = Ols.NOT_AVAILABLE;
+
+    final int[] states = new int[count];
+    int pos = 0;
+    int sampleIdx = 0;
+    for ( int i = 0, edges = index.getEdgeCount(); i < edges; i++ )
+    {
+      final long time = index.getEdge( i );
+      // Edges are always at a sample, and are visited in increasing order...
+      sampleIdx = source.getSampleIndex( time, sampleIdx );
+
+      final boolean high = ( values[sampleIdx] & mask ) != 0;
+      if ( high == rising )
+      {
+        if ( hasTrigger && ( trigger == Ols.NOT_AVAILABLE ) && ( time > triggerPos ) )
+        {
+          trigger = pos;
+        }
+        states[pos++] = values[sampleIdx - 1];
+      }
+    }
+
+    if ( hasTrigger && ( trigger == Ols.NOT_AVAILABLE ) )
+    {
+      trigger = pos;
+    }
+
+    return new CapturedData( states, trigger, Ols.NOT_AVAILABLE, source.getChannels(), source.getEnabledChannels() );
+  }
+}
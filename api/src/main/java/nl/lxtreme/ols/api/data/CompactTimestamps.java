@@ -0,0 +1,240 @@
+/*
+ * OpenBench LogicSniffer / SUMP project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ *
+ * Copyright (C) 2010-2011 - J.W. Janssen, http://www.lxtreme.nl
+ */
+package nl.lxtreme.ols.api.data;
+
+
+/**
+ * Provides a compact, read-only, representation of an increasing series of
+ * timestamps.
+ * <p>
+ * The timestamps are divided in blocks of 2^{@link #BLOCK_SHIFT} timestamps.
+ * For each block, its first timestamp is kept as 64-bit base value, while all
+ * timestamps of that block are kept as unsigned 32-bit offsets relative to
+ * this base. This roughly halves the memory needed for the timestamps, while
+ * retaining O(1) random access. Moreover, the base values form a small index
+ * that allows timestamps to be searched efficiently. Instances of this class
+ * are immutable, and thus thread-safe.
+ * </p>
+ */
+public final class CompactTimestamps
+{
+  // CONSTANTS
+
+  /** the number of timestamps per block, as power of two */
+  static final int BLOCK_SHIFT = 7;
+
+  private static final int BLOCK_MASK = ( 1 << BLOCK_SHIFT ) - 1;
+  private static final long MAX_OFFSET = 0xFFFFFFFFL;
+
+  // VARIABLES
+
+  /** the first timestamp of each block */
+  private final long[] bases;
+  /** the offsets of all timestamps relative to the base of their block */
+  private final int[] offsets;
+
+  // CONSTRUCTORS
+
+  /**
+   * Creates a new {@link CompactTimestamps} instance.
+   */
+  private CompactTimestamps( final long[] aBases, final int[] aOffsets )
+  {
+    this.bases = aBases;
+    this.offsets = aOffsets;
+  }
+
+  // METHODS
+
+  /**
+   * Encodes the given timestamps in a compact form.
+   * 
+   * @param aTimestamps
+   *          the timestamps to encode, in increasing order, cannot be
+   *          <code>null</code>.
+   * @return the compacted timestamps, or <code>null</code> if the given
+   *         timestamps cannot be compacted, for example, because they are not
+   *         in increasing order or span too long a time.
+   */
+  public static CompactTimestamps encode( final long[] aTimestamps )
+  {
+    final int size = aTimestamps.length;
+
+    final long[] bases = new long[( size + BLOCK_MASK ) >> BLOCK_SHIFT];
+    final int[] offsets = new int[size];
+
+    long base = 0L;
+    for ( int i = 0; i < size; i++ )
+    {
+      if ( ( i > 0 ) && ( aTimestamps[i] < aTimestamps[i - 1] ) )
+      {
+        return null;
+      }
+      if ( ( i & BLOCK_MASK ) == 0 )
+      {
+        base = aTimestamps[i];
+        bases[i >> BLOCK_SHIFT] = base;
+      }
+
+      final long offset = aTimestamps[i] - base;
+      if ( ( offset < 0L ) || ( offset > MAX_OFFSET ) )
+      {
+        return null;
+      }
+      offsets[i] = ( int )offset;
+    }
+
+    return new CompactTimestamps( bases, offsets );
+  }
+
+  /**
+   * Copies a range of timestamps into a given array, decoding a block at a
+   * time.
+   * 
+   * @param aFromIndex
+   *          the index of the first timestamp to copy, >= 0;
+   * @param aDest
+   *          the array to copy the timestamps to, cannot be <code>null</code>;
+   * @param aDestPos
+   *          the position in the given array to copy the first timestamp to;
+   * @param aLength
+   *          the number of timestamps to copy, >= 0.
+   */
+  public void copyTo( final int aFromIndex, final long[] aDest, final int aDestPos, final int aLength )
+  {
+    if ( ( aFromIndex < 0 ) || ( aLength < 0 ) || ( ( aFromIndex + aLength ) > this.offsets.length ) )
+    {
+      throw new IndexOutOfBoundsException();
+    }
+
+    int i = aFromIndex;
+    int j = aDestPos;
+    final int end = aFromIndex + aLength;
+    while ( i < end )
+    {
+      // Decode a block at a time, avoiding a base look up per timestamp...
+      final long base = this.bases[i >> BLOCK_SHIFT];
+      final int blockEnd = Math.min( end, ( i | BLOCK_MASK ) + 1 );
+      for ( ; i < blockEnd; i++, j++ )
+      {
+        aDest[j] = base + ( this.offsets[i] & MAX_OFFSET );
+      }
+    }
+  }
+
+  /**
+   * Returns a single timestamp.
+   * 
+   * @param aIndex
+   *          the index of the timestamp to return, >= 0 && < {@link #size()}.
+   * @return the timestamp.
+   */
+  public long get( final int aIndex )
+  {
+    return this.bases[aIndex >> BLOCK_SHIFT] + ( this.offsets[aIndex] & MAX_OFFSET );
+  }
+
+  /**
+   * Returns the index of the first timestamp that is greater than or equal to
+   * the given time.
+   * 
+   * @param aTime
+   *          the time to search for.
+   * @return an index, >= 0 && <= {@link #size()}.
+   */
+  public int lowerBound( final long aTime )
+  {
+    final int block = CapturedData.lowerBound( this.bases, 0, this.bases.length, aTime );
+    return searchBlock( block, aTime );
+  }
+
+  /**
+   * Returns the index of the first timestamp that is greater than or equal to
+   * the given time, starting the search at a given index.
+   * 
+   * @param aTime
+   *          the time to search for;
+   * @param aHintIndex
+   *          the index to start the search at, >= 0 && < {@link #size()}.
+   * @return an index, >= 0 && <= {@link #size()}.
+   */
+  public int lowerBound( final long aTime, final int aHintIndex )
+  {
+    final int block = CapturedData.gallop( this.bases, 0, this.bases.length, aTime, aHintIndex >> BLOCK_SHIFT );
+    return searchBlock( block, aTime );
+  }
+
+  /**
+   * Returns the number of timestamps.
+   * 
+   * @return a size, >= 0.
+   */
+  public int size()
+  {
+    return this.offsets.length;
+  }
+
+  /**
+   * Returns all timestamps as array.
+   * 
+   * @return a new array with all timestamps, never <code>null</code>.
+   */
+  public long[] toArray()
+  {
+    final long[] result = new long[this.offsets.length];
+    copyTo( 0, result, 0, result.length );
+    return result;
+  }
+
+  /**
+   * Searches the first timestamp greater than or equal to the given time in
+   * the block preceding the given block, which is the first block whose base
+   * is greater than or equal to the given time.
+   */
+  private int searchBlock( final int aBlock, final long aTime )
+  {
+    if ( aBlock == 0 )
+    {
+      return 0;
+    }
+
+    final int fromIndex = ( ( aBlock - 1 ) << BLOCK_SHIFT ) + 1;
+    final int toIndex = Math.min( aBlock << BLOCK_SHIFT, this.offsets.length );
+    // Search the offsets, which are relative to the base of the block...
+    final long offset = aTime - this.bases[aBlock - 1];
+
+    int low = fromIndex;
+    int high = toIndex;
+    while ( low < high )
+    {
+      final int mid = ( low + high ) >>> 1;
+      if ( ( this.offsets[mid] & MAX_OFFSET ) < offset )
+      {
+        low = mid + 1;
+      }
+      else
+      {
+        high = mid;
+      }
+    }
+    return low;
+  }
+}
@@ -112,7 +112,7 @@ public final class DataContainer implements AcquisitionResult
    */
   public double calculateTime( final int aSampleIndex )
   {
-    double timestamp = calculateTimeOffset( getTimestamps()[aSampleIndex] );
+    double timestamp = calculateTimeOffset( getTimestamp( aSampleIndex ) );
     return ( timestamp / getSampleRate() );
   }
 
@@ -350,6 +350,16 @@ public final class DataContainer implements AcquisitionResult
     return hasCapturedData() ? getAcquisitionData().getSampleIndex( aAbs ) : Ols.NOT_AVAILABLE;
   }
 
+  /**
+   * @see nl.lxtreme.ols.api.acquisition.AcquisitionResult#getSampleIndex(long,
+   *      int)
+   */
+  @Override
+  public int getSampleIndex( final long aAbs, final int aHintIndex )
+  {
+    return hasCapturedData() ? getAcquisitionData().getSampleIndex( aAbs, aHintIndex ) : Ols.NOT_AVAILABLE;
+  }
+
   /**
    * @see nl.lxtreme.ols.api.data.CapturedData#getSampleRate()
    */
@@ -359,6 +369,15 @@ public final class DataContainer implements AcquisitionResult
     return hasCapturedData() ? getAcquisitionData().getSampleRate() : Ols.NOT_AVAILABLE;
   }
 
+  /**
+   * @see nl.lxtreme.ols.api.acquisition.AcquisitionResult#getTimestamp(int)
+   */
+  @Override
+  public long getTimestamp( final int aIndex )
+  {
+    return hasCapturedData() ? getAcquisitionData().getTimestamp( aIndex ) : Ols.NOT_AVAILABLE;
+  }
+
   /**
    * @see nl.lxtreme.ols.api.data.CapturedData#getTimestamps()
    */
@@ -368,6 +387,19 @@ public final class DataContainer implements AcquisitionResult
     return hasCapturedData() ? getAcquisitionData().getTimestamps() : new long[0];
   }
 
+  /**
+   * @see nl.lxtreme.ols.api.acquisition.AcquisitionResult#getTransitionIndex(int)
+   */
+  @Override
+  public TransitionIndex getTransitionIndex( final int aChannelIdx )
+  {
+    if ( hasCapturedData() )
+    {
+      return getAcquisitionData().getTransitionIndex( aChannelIdx );
+    }
+    return new TransitionIndex( new int[0], new long[0], 1 << aChannelIdx, 0L );
+  }
+
   /**
    * @see nl.lxtreme.ols.api.data.CapturedData#getTriggerPosition()
    */
@@ -0,0 +1,698 @@
+/*
+ * OpenBench LogicSniffer / SUMP project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ *
+ * Copyright (C) 2010-2011 - J.W. Janssen, http://www.lxtreme.nl
+ */
+package nl.lxtreme.ols.api.data;
+
+
+/**
+ * Provides an index of all transitions (edges) of a single channel, together
+ * with the cumulative time the channel is high at each transition.
+ * <p>
+ * This allows the number of edges and the time a channel is high to be
+ * determined for any interval using two binary searches, instead of walking
+ * all samples in that interval. The number and total width of the complete
+ * pulses in any interval follow from the same cumulative high times, and their
+ * minimum and maximum widths are determined in logarithmic time as well, using
+ * a pyramid of pulse widths that is created upon first use. The signal is considered to
+ * start at the first timestamp and to end at the absolute length of the
+ * captured data; all given times are clipped to this range. Instances of this
+ * class are immutable, and thus thread-safe.
+ * </p>
+ */
+public final class TransitionIndex
+{
+  // INNER TYPES
+
+  /**
+   * Provides the minimum and maximum widths of either the odd or the even
+   * pulses in blocks of 2^(n + {@link #BASE_SHIFT}) pulses, for increasing n.
+   * Pulse <em>j</em> is the pulse that ends with transition <em>j</em>, for
+   * <em>j</em> > 0.
+   */
+  static final class PulseWidths
+  {
+    // CONSTANTS
+
+    /** The 2-log of the number of pulses in the blocks of the lowest level. */
+    private static final int BASE_SHIFT = 5;
+    private static final int BASE_MASK = ( 1 << BASE_SHIFT ) - 1;
+
+    // VARIABLES
+
+    private final long[] edges;
+    private final int parity;
+    /** [level][block] */
+    private final long[][] minimums;
+    private final long[][] maximums;
+
+    // CONSTRUCTORS
+
+    /**
+     * Creates a new {@link PulseWidths} instance.
+     *
+     * @param aEdges
+     *          the timestamps of all transitions;
+     * @param aParity
+     *          the parity of the pulses to consider, 0 or 1.
+     */
+    PulseWidths( final long[] aEdges, final int aParity )
+    {
+      this.edges = aEdges;
+      this.parity = aParity;
+
+      int levels = 0;
+      for ( int size = aEdges.length >> BASE_SHIFT; size > 0; size >>= 1 )
+      {
+        levels++;
+      }
+
+      this.minimums = new long[levels][];
+      this.maximums = new long[levels][];
+      if ( levels == 0 )
+      {
+        return;
+      }
+
+      final int size = aEdges.length >> BASE_SHIFT;
+      this.minimums[0] = new long[size];
+      this.maximums[0] = new long[size];
+      for ( int block = 0; block < size; block++ )
+      {
+        final long[] extremes = { Long.MAX_VALUE, Long.MIN_VALUE };
+        final int start = block << BASE_SHIFT;
+        for ( int j = start; j < ( start + BASE_MASK + 1 ); j++ )
+        {
+          add( j, extremes );
+        }
+        this.minimums[0][block] = extremes[0];
+        this.maximums[0][block] = extremes[1];
+      }
+
+      for ( int level = 1; level < levels; level++ )
+      {
+        final long[] min = this.minimums[level - 1];
+        final long[] max = this.maximums[level - 1];
+
+        final int levelSize = min.length >> 1;
+        this.minimums[level] = new long[levelSize];
+        this.maximums[level] = new long[levelSize];
+        for ( int block = 0; block < levelSize; block++ )
+        {
+          final int i = block << 1;
+          this.minimums[level][block] = Math.min( min[i], min[i + 1] );
+          this.maximums[level][block] = Math.max( max[i], max[i + 1] );
+        }
+      }
+    }
+
+    // METHODS
+
+    /**
+     * Determines the minimum and maximum width of the pulses in [aFrom, aTo).
+     *
+     * @param aFrom
+     *          the first pulse to consider (inclusive);
+     * @param aTo
+     *          the last pulse to consider (exclusive);
+     * @param aExtremes
+     *          the array to store the minimum and maximum width in, which
+     *          are {@link Long#MAX_VALUE} and {@link Long#MIN_VALUE} if there
+     *          are no pulses to consider.
+     */
+    void query( final int aFrom, final int aTo, final long[] aExtremes )
+    {
+      aExtremes[0] = Long.MAX_VALUE;
+      aExtremes[1] = Long.MIN_VALUE;
+
+      int from = aFrom;
+      int to = aTo;
+
+      final int blockCount = ( this.minimums.length == 0 ) ? 0 : this.minimums[0].length;
+
+      // Take the pulses outside complete blocks one by one...
+      while ( ( from < to ) && ( ( ( from & BASE_MASK ) != 0 ) || ( ( from >> BASE_SHIFT ) >= blockCount ) ) )
+      {
+        add( from++, aExtremes );
+      }
+      while ( ( from < to ) && ( ( to & BASE_MASK ) != 0 ) )
+      {
+        add( --to, aExtremes );
+      }
+
+      // Take the largest blocks that fit in the remaining range...
+      int lo = from >> BASE_SHIFT;
+      int hi = to >> BASE_SHIFT;
+      for ( int level = 0; lo < hi; level++ )
+      {
+        if ( ( lo & 1 ) != 0 )
+        {
+          addBlock( level, lo++, aExtremes );
+        }
+        if ( ( hi & 1 ) != 0 )
+        {
+          addBlock( level, --hi, aExtremes );
+        }
+        if ( ( level + 1 ) >= this.minimums.length )
+        {
+          // Top level reached; take the remaining blocks one by one...
+          for ( ; lo < hi; lo++ )
+          {
+            addBlock( level, lo, aExtremes );
+          }
+          break;
+        }
+        lo >>= 1;
+        hi >>= 1;
+      }
+    }
+
+    /**
+     * Adds the width of a single pulse to the given extremes, if it has the
+     * parity of this pyramid.
+     */
+    private void add( final int aPulse, final long[] aExtremes )
+    {
+      if ( ( aPulse > 0 ) && ( ( aPulse & 1 ) == this.parity ) )
+      {
+        final long width = this.edges[aPulse] - this.edges[aPulse - 1];
+        aExtremes[0] = Math.min( aExtremes[0], width );
+        aExtremes[1] = Math.max( aExtremes[1], width );
+      }
+    }
+
+    /**
+     * Adds the extremes of a single block to the given extremes.
+     */
+    private void addBlock( final int aLevel, final int aBlock, final long[] aExtremes )
+    {
+      aExtremes[0] = Math.min( aExtremes[0], this.minimums[aLevel][aBlock] );
+      aExtremes[1] = Math.max( aExtremes[1], this.maximums[aLevel][aBlock] );
+    }
+  }
+
+  // VARIABLES
+
+  private final long startTime;
+  private final long endTime;
+  private final boolean initialLevel;
+  /** the timestamps of all transitions, in increasing order. */
+  private final long[] edges;
+  /** the time the channel is high before each transition. */
+  private final long[] highTimes;
+  /** lazily created pulse widths of the high and low pulses (in that order) */
+  private volatile PulseWidths[] pulseWidths;
+
+  // CONSTRUCTORS
+
+  /**
+   * Creates a new {@link TransitionIndex} instance.
+   *
+   * @param aValues
+   *          the sample values, cannot be <code>null</code>;
+   * @param aTimestamps
+   *          the timestamps of the sample values, cannot be <code>null</code>;
+   * @param aMask
+   *          the bitmask of the channel to index;
+   * @param aAbsoluteLength
+   *          the absolute length of the sample data.
+   */
+  public TransitionIndex( final int[] aValues, final long[] aTimestamps, final int aMask, final long aAbsoluteLength )
+  {
+    this( aValues, aTimestamps, null, aMask, aAbsoluteLength );
+  }
+
+  /**
+   * Creates a new {@link TransitionIndex} instance for timestamps that are
+   * either given as plain array or in compacted form. Only the timestamps of
+   * the transitions are decoded.
+   *
+   * @param aValues
+   *          the sample values, cannot be <code>null</code>;
+   * @param aTimestamps
+   *          the timestamps of the sample values, or <code>null</code> if the
+   *          compacted timestamps are given;
+   * @param aCompactTimestamps
+   *          the compacted timestamps of the sample values, only used if the
+   *          plain timestamps are <code>null</code>;
+   * @param aMask
+   *          the bitmask of the channel to index;
+   * @param aAbsoluteLength
+   *          the absolute length of the sample data.
+   */
+  TransitionIndex( final int[] aValues, final long[] aTimestamps, final CompactTimestamps aCompactTimestamps,
+      final int aMask, final long aAbsoluteLength )
+  {
+    final int size = aValues.length;
+    if ( size != ( ( aTimestamps != null ) ? aTimestamps.length : aCompactTimestamps.size() ) )
+    {
+      throw new IllegalArgumentException( "Values and timestamps size mismatch!" );
+    }
+
+    int count = 0;
+    for ( int i = 1; i < size; i++ )
+    {
+      if ( ( ( aValues[i - 1] ^ aValues[i] ) & aMask ) != 0 )
+      {
+        count++;
+      }
+    }
+
+    final long firstTime = ( size > 0 ) ? getTimestamp( aTimestamps, aCompactTimestamps, 0 ) : 0L;
+    final long lastTime = ( size > 0 ) ? getTimestamp( aTimestamps, aCompactTimestamps, size - 1 ) : 0L;
+
+    this.startTime = firstTime;
+    this.endTime = Math.max( this.startTime, Math.max( aAbsoluteLength, lastTime ) );
+    this.initialLevel = ( size > 0 ) && ( ( aValues[0] & aMask ) != 0 );
+    this.edges = new long[count];
+    this.highTimes = new long[count];
+
+    boolean level = this.initialLevel;
+    long edgeTime = this.startTime;
+    long highTime = 0L;
+    for ( int i = 1, j = 0; i < size; i++ )
+    {
+      if ( ( ( aValues[i - 1] ^ aValues[i] ) & aMask ) != 0 )
+      {
+        final long time = getTimestamp( aTimestamps, aCompactTimestamps, i );
+        if ( level )
+        {
+          highTime += time - edgeTime;
+        }
+        this.edges[j] = time;
+        this.highTimes[j] = highTime;
+        j++;
+
+        edgeTime = time;
+        level = !level;
+      }
+    }
+  }
+
+  // METHODS
+
+  /**
+   * Returns a single timestamp from either the plain or compacted timestamps.
+   */
+  private static long getTimestamp( final long[] aTimestamps, final CompactTimestamps aCompactTimestamps,
+      final int aIndex )
+  {
+    return ( aTimestamps != null ) ? aTimestamps[aIndex] : aCompactTimestamps.get( aIndex );
+  }
+
+  /**
+   * Returns the timestamp of a single transition.
+   *
+   * @param aEdgeIndex
+   *          the index of the transition, >= 0 && < {@link #getEdgeCount()}.
+   * @return the timestamp of the transition.
+   */
+  public long getEdge( final int aEdgeIndex )
+  {
+    return this.edges[aEdgeIndex];
+  }
+
+  /**
+   * Returns the total number of transitions.
+   *
+   * @return an edge count, >= 0.
+   */
+  public int getEdgeCount()
+  {
+    return this.edges.length;
+  }
+
+  /**
+   * Returns the number of transitions in the interval [t1, t2).
+   *
+   * @param aStartTime
+   *          the start of the interval (inclusive);
+   * @param aEndTime
+   *          the end of the interval (exclusive).
+   * @return an edge count, >= 0.
+   */
+  public int getEdgeCount( final long aStartTime, final long aEndTime )
+  {
+    if ( aEndTime <= aStartTime )
+    {
+      return 0;
+    }
+    return countEdgesBefore( aEndTime ) - countEdgesBefore( aStartTime );
+  }
+
+  /**
+   * Returns the number of transitions at or before a given time, which is also
+   * the index of the first transition after that time.
+   *
+   * @param aTime
+   *          the time to search for.
+   * @return an edge index, >= 0 && <= {@link #getEdgeCount()}.
+   */
+  public int getEdgeIndex( final long aTime )
+  {
+    // Find the first edge strictly after the given time...
+    int low = 0;
+    int high = this.edges.length;
+    while ( low < high )
+    {
+      final int mid = ( low + high ) >>> 1;
+      if ( this.edges[mid] <= aTime )
+      {
+        low = mid + 1;
+      }
+      else
+      {
+        high = mid;
+      }
+    }
+    return low;
+  }
+
+  /**
+   * Returns the number of falling transitions in the interval [t1, t2).
+   *
+   * @param aStartTime
+   *          the start of the interval (inclusive);
+   * @param aEndTime
+   *          the end of the interval (exclusive).
+   * @return an edge count, >= 0.
+   */
+  public int getFallingEdgeCount( final long aStartTime, final long aEndTime )
+  {
+    return getEdgeCount( aStartTime, aEndTime ) - getRisingEdgeCount( aStartTime, aEndTime );
+  }
+
+  /**
+   * Returns the time the channel is high in the interval [t1, t2).
+   *
+   * @param aStartTime
+   *          the start of the interval (inclusive);
+   * @param aEndTime
+   *          the end of the interval (exclusive).
+   * @return the high time, in samples, >= 0.
+   */
+  public long getHighTime( final long aStartTime, final long aEndTime )
+  {
+    if ( aEndTime <= aStartTime )
+    {
+      return 0L;
+    }
+    return getCumulativeHighTime( aEndTime ) - getCumulativeHighTime( aStartTime );
+  }
+
+  /**
+   * Returns the minimum and maximum width of the high pulses in the interval
+   * [t1, t2). Only complete pulses are considered, that is, pulses that both
+   * start and end with a transition in the given interval.
+   *
+   * @param aStartTime
+   *          the start of the interval (inclusive);
+   * @param aEndTime
+   *          the end of the interval (exclusive);
+   * @param aExtremes
+   *          the array to store the minimum and maximum width (in that order)
+   *          in, which are {@link Long#MAX_VALUE} and {@link Long#MIN_VALUE}
+   *          if there are no complete pulses in the given interval.
+   */
+  public void getHighPulseWidths( final long aStartTime, final long aEndTime, final long[] aExtremes )
+  {
+    getPulseWidths( 0, aStartTime, aEndTime, aExtremes );
+  }
+
+  /**
+   * Returns the number of complete high pulses in the interval [t1, t2), that
+   * is, high pulses that both start and end with a transition in the given
+   * interval.
+   *
+   * @param aStartTime
+   *          the start of the interval (inclusive);
+   * @param aEndTime
+   *          the end of the interval (exclusive).
+   * @return a pulse count, >= 0.
+   */
+  public int getHighPulseCount( final long aStartTime, final long aEndTime )
+  {
+    return getPulseCount( getHighParity(), aStartTime, aEndTime );
+  }
+
+  /**
+   * Returns the number of complete low pulses in the interval [t1, t2), that
+   * is, low pulses that both start and end with a transition in the given
+   * interval.
+   *
+   * @param aStartTime
+   *          the start of the interval (inclusive);
+   * @param aEndTime
+   *          the end of the interval (exclusive).
+   * @return a pulse count, >= 0.
+   */
+  public int getLowPulseCount( final long aStartTime, final long aEndTime )
+  {
+    return getPulseCount( 1 - getHighParity(), aStartTime, aEndTime );
+  }
+
+  /**
+   * Returns the minimum and maximum width of the low pulses in the interval
+   * [t1, t2). Only complete pulses are considered, that is, pulses that both
+   * start and end with a transition in the given interval.
+   *
+   * @param aStartTime
+   *          the start of the interval (inclusive);
+   * @param aEndTime
+   *          the end of the interval (exclusive);
+   * @param aExtremes
+   *          the array to store the minimum and maximum width (in that order)
+   *          in, which are {@link Long#MAX_VALUE} and {@link Long#MIN_VALUE}
+   *          if there are no complete pulses in the given interval.
+   */
+  public void getLowPulseWidths( final long aStartTime, final long aEndTime, final long[] aExtremes )
+  {
+    getPulseWidths( 1, aStartTime, aEndTime, aExtremes );
+  }
+
+  /**
+   * Returns the time the channel is low in the interval [t1, t2).
+   *
+   * @param aStartTime
+   *          the start of the interval (inclusive);
+   * @param aEndTime
+   *          the end of the interval (exclusive).
+   * @return the low time, in samples, >= 0.
+   */
+  public long getLowTime( final long aStartTime, final long aEndTime )
+  {
+    if ( aEndTime <= aStartTime )
+    {
+      return 0L;
+    }
+    return ( clip( aEndTime ) - clip( aStartTime ) ) - getHighTime( aStartTime, aEndTime );
+  }
+
+  /**
+   * Returns the number of rising transitions in the interval [t1, t2).
+   *
+   * @param aStartTime
+   *          the start of the interval (inclusive);
+   * @param aEndTime
+   *          the end of the interval (exclusive).
+   * @return an edge count, >= 0.
+   */
+  public int getRisingEdgeCount( final long aStartTime, final long aEndTime )
+  {
+    if ( aEndTime <= aStartTime )
+    {
+      return 0;
+    }
+    return countRisingEdges( countEdgesBefore( aEndTime ) ) - countRisingEdges( countEdgesBefore( aStartTime ) );
+  }
+
+  /**
+   * Returns the total width of the complete high pulses in the interval [t1,
+   * t2), see {@link #getHighPulseCount(long, long)}.
+   *
+   * @param aStartTime
+   *          the start of the interval (inclusive);
+   * @param aEndTime
+   *          the end of the interval (exclusive).
+   * @return the total width, in samples, >= 0.
+   */
+  public long getTotalHighPulseWidth( final long aStartTime, final long aEndTime )
+  {
+    final int from = getFirstPulse( aStartTime );
+    final int to = getPulseEnd( from, aStartTime, aEndTime );
+    if ( to <= from )
+    {
+      return 0L;
+    }
+    return this.highTimes[to - 1] - this.highTimes[from - 1];
+  }
+
+  /**
+   * Returns the total width of the complete low pulses in the interval [t1,
+   * t2), see {@link #getLowPulseCount(long, long)}.
+   *
+   * @param aStartTime
+   *          the start of the interval (inclusive);
+   * @param aEndTime
+   *          the end of the interval (exclusive).
+   * @return the total width, in samples, >= 0.
+   */
+  public long getTotalLowPulseWidth( final long aStartTime, final long aEndTime )
+  {
+    final int from = getFirstPulse( aStartTime );
+    final int to = getPulseEnd( from, aStartTime, aEndTime );
+    if ( to <= from )
+    {
+      return 0L;
+    }
+    return ( this.edges[to - 1] - this.edges[from - 1] ) - getTotalHighPulseWidth( aStartTime, aEndTime );
+  }
+
+  /**
+   * Returns whether the channel is high at the given time.
+   *
+   * @param aTime
+   *          the time to return the level for.
+   * @return <code>true</code> if the channel is high, <code>false</code> if it
+   *         is low.
+   */
+  public boolean isHigh( final long aTime )
+  {
+    return getLevelAfter( getEdgeIndex( aTime ) );
+  }
+
+  /**
+   * Clips a given time to the range of the signal.
+   */
+  private long clip( final long aTime )
+  {
+    return Math.max( this.startTime, Math.min( this.endTime, aTime ) );
+  }
+
+  /**
+   * Returns the number of transitions strictly before the given time.
+   */
+  private int countEdgesBefore( final long aTime )
+  {
+    return getEdgeIndex( aTime - 1L );
+  }
+
+  /**
+   * Returns the number of rising transitions among the first transitions.
+   *
+   * @param aCount
+   *          the number of transitions to consider.
+   */
+  private int countRisingEdges( final int aCount )
+  {
+    // Rising and falling transitions alternate...
+    return this.initialLevel ? ( aCount >> 1 ) : ( ( aCount + 1 ) >> 1 );
+  }
+
+  /**
+   * Returns the time the channel is high from the start of the signal up to
+   * the given time.
+   */
+  private long getCumulativeHighTime( final long aTime )
+  {
+    final long time = clip( aTime );
+    final int count = countEdgesBefore( time );
+    if ( count == 0 )
+    {
+      return this.initialLevel ? ( time - this.startTime ) : 0L;
+    }
+    final long edge = this.edges[count - 1];
+    return this.highTimes[count - 1] + ( getLevelAfter( count ) ? ( time - edge ) : 0L );
+  }
+
+  /**
+   * Returns the first complete pulse at or after the given time. Pulse
+   * <em>j</em> starts with transition <em>j</em> - 1 and ends with transition
+   * <em>j</em>.
+   */
+  private int getFirstPulse( final long aStartTime )
+  {
+    return countEdgesBefore( aStartTime ) + 1;
+  }
+
+  /**
+   * Returns the parity of the high pulses.
+   */
+  private int getHighParity()
+  {
+    // Pulse j is high if the level after j - 1 transitions is high...
+    return this.initialLevel ? 0 : 1;
+  }
+
+  /**
+   * Returns the level of the channel after a number of transitions.
+   */
+  private boolean getLevelAfter( final int aCount )
+  {
+    return this.initialLevel ^ ( ( aCount & 1 ) != 0 );
+  }
+
+  /**
+   * Returns the number of complete pulses of the given parity in the interval
+   * [t1, t2).
+   */
+  private int getPulseCount( final int aParity, final long aStartTime, final long aEndTime )
+  {
+    final int from = getFirstPulse( aStartTime );
+    final int to = getPulseEnd( from, aStartTime, aEndTime );
+    if ( to <= from )
+    {
+      return 0;
+    }
+    // The number of pulses j < n with the given parity is (n + 1 - parity) / 2...
+    return ( ( to + 1 - aParity ) >> 1 ) - ( ( from + 1 - aParity ) >> 1 );
+  }
+
+  /**
+   * Returns the pulse after the last complete pulse in the interval [t1, t2).
+   */
+  private int getPulseEnd( final int aFirstPulse, final long aStartTime, final long aEndTime )
+  {
+    return ( aEndTime <= aStartTime ) ? aFirstPulse : countEdgesBefore( aEndTime );
+  }
+
+  /**
+   * Determines the minimum and maximum width of either the high or the low
+   * pulses in the interval [t1, t2), creating the pulse widths if necessary.
+   */
+  private void getPulseWidths( final int aIndex, final long aStartTime, final long aEndTime,
+      final long[] aExtremes )
+  {
+    PulseWidths[] widths = this.pulseWidths;
+    if ( widths == null )
+    {
+      final int highParity = getHighParity();
+
+      // Creating them more than once in case of contention is harmless...
+      widths = new PulseWidths[] { new PulseWidths( this.edges, highParity ),
+          new PulseWidths( this.edges, 1 - highParity ) };
+      this.pulseWidths = widths;
+    }
+
+    final int from = getFirstPulse( aStartTime );
+    final int to = getPulseEnd( from, aStartTime, aEndTime );
+
+    widths[aIndex].query( from, to, aExtremes );
+  }
+}
@@ -37,6 +37,15 @@ public interface Project
 {
   // METHODS
 
+  /**
+   * Returns the number of acquisition results retained in the capture history
+   * of this project.
+   * 
+   * @return a capture count, >= 0.
+   * @see #selectCapture(int)
+   */
+  int getCaptureCount();
+
   /**
    * Returns the current data set for this project.
    * 
@@ -44,6 +53,17 @@ public interface Project
    */
   DataSet getDataSet();
 
+  /**
+   * Returns a (serialized) decode result that is stored in this project.
+   * 
+   * @param aKey
+   *          the key of the decode result, cannot be <code>null</code>.
+   * @return the serialized decode result, or <code>null</code> if no such
+   *         result is stored in this project.
+   * @see #putDecodeResult(String, byte[])
+   */
+  byte[] getDecodeResult( String aKey );
+
   /**
    * Returns the path to the project file.
    * 
@@ -68,6 +88,15 @@ public interface Project
    */
   String getName();
 
+  /**
+   * Returns the index of the acquisition result in the capture history that is
+   * currently shown.
+   * 
+   * @return a capture index, 0 being the most recent capture, or -1 if the
+   *         current data is not part of the capture history.
+   */
+  int getSelectedCapture();
+
   /**
    * Returns the other user settings, like UI-settings, and such.
    * 
@@ -93,6 +122,23 @@ public interface Project
    */
   boolean isChanged();
 
+  /**
+   * Stores a (serialized) decode result in this project, allowing it to be
+   * restored without decoding the captured data again.
+   * <p>
+   * Decode results are a cache: storing them does not mark this project as
+   * changed, and only a limited number of the most recently used results are
+   * retained.
+   * </p>
+   * 
+   * @param aKey
+   *          the key of the decode result, which identifies both the captured
+   *          data and the decoder configuration, cannot be <code>null</code>;
+   * @param aResult
+   *          the serialized decode result, cannot be <code>null</code>.
+   */
+  void putDecodeResult( String aKey, byte[] aResult );
+
   /**
    * Allows data to be read from a given reader, any current data in this
    * project will be overwritten!
@@ -109,6 +155,18 @@ public interface Project
    */
   void readData( Reader aReader ) throws IOException;
 
+  /**
+   * Replaces the current captured data of this project with the acquisition
+   * result at the given index of the capture history.
+   * 
+   * @param aIndex
+   *          the index of the capture to select, 0 being the most recent
+   *          capture, >= 0 && < {@link #getCaptureCount()}.
+   * @throws IndexOutOfBoundsException
+   *           in case the given index is invalid.
+   */
+  void selectCapture( final int aIndex );
+
   /**
    * Sets the captured data of this project.
    * 
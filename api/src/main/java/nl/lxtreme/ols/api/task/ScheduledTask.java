@@ -0,0 +1,54 @@
+/*
+ * OpenBench LogicSniffer / SUMP project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ *
+ * Copyright (C) 2010-2011 - J.W. Janssen, http://www.lxtreme.nl
+ */
+package nl.lxtreme.ols.api.task;
+
+
+/**
+ * Denotes a task that indicates how it should be scheduled by a
+ * {@link TaskExecutionService}.
+ * <p>
+ * Tasks that do not implement this interface are scheduled with a priority
+ * depending on their type, and do not belong to any group.
+ * </p>
+ */
+public interface ScheduledTask<RESULT_TYPE> extends Task<RESULT_TYPE>
+{
+  // METHODS
+
+  /**
+   * Returns the group this task belongs to, allowing all tasks of a single
+   * group to be cancelled at once.
+   * 
+   * @return a group, can be <code>null</code> if this task does not belong to
+   *         any group.
+   * @see TaskExecutionService#cancelGroup(Object)
+   */
+  Object getGroup();
+
+  /**
+   * Returns the priority class of this task.
+   * 
+   * @return a priority class, never <code>null</code>.
+   */
+  TaskPriority getPriority();
+}
+
+/* EOF */
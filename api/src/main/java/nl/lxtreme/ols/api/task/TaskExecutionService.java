@@ -31,6 +31,16 @@ public interface TaskExecutionService
 {
   // METHODS
 
+  /**
+   * Cancels all tasks of the given group that are not yet completed.
+   * 
+   * @param aGroup
+   *          the group of the tasks to cancel, cannot be <code>null</code>.
+   * @return the number of cancelled tasks, >= 0.
+   * @see ScheduledTask#getGroup()
+   */
+  int cancelGroup( Object aGroup );
+
   /**
    * Executes the given task.
    * 
@@ -0,0 +1,47 @@
+/*
+ * OpenBench LogicSniffer / SUMP project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ *
+ * Copyright (C) 2010-2011 - J.W. Janssen, http://www.lxtreme.nl
+ */
+package nl.lxtreme.ols.api.task;
+
+
+/**
+ * Callback interface to listen for state changes of tasks, including the time
+ * it took to execute them.
+ */
+public interface TaskMetricsListener extends TaskStatusListener
+{
+  // METHODS
+
+  /**
+   * Called when a task is ended, either normally or by failure, after
+   * {@link #taskEnded(Task, Object)} or
+   * {@link #taskFailed(Task, Exception)} is called.
+   * 
+   * @param aTask
+   *          the task that is ended, never <code>null</code>;
+   * @param aQueueWaitTime
+   *          the time, in nanoseconds, the task waited before it was started;
+   * @param aRunTime
+   *          the time, in nanoseconds, the task was running.
+   */
+  <RT> void taskMetricsAvailable( Task<RT> aTask, long aQueueWaitTime, long aRunTime );
+}
+
+/* EOF */
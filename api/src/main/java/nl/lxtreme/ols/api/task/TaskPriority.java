@@ -0,0 +1,42 @@
+/*
+ * OpenBench LogicSniffer / SUMP project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ *
+ * Copyright (C) 2010-2011 - J.W. Janssen, http://www.lxtreme.nl
+ */
+package nl.lxtreme.ols.api.task;
+
+
+/**
+ * Denotes the priority class of a task, in order of decreasing priority.
+ * <p>
+ * Queued tasks of a higher priority class are started before any queued task
+ * of a lower priority class. Tasks that are already running are not
+ * preempted.
+ * </p>
+ */
+public enum TaskPriority
+{
+  /** Acquiring data from a device, or processing acquired data. */
+  ACQUISITION,
+  /** Tasks the user is actively waiting for, such as measurements. */
+  INTERACTIVE,
+  /** Long running tasks, such as decoding captured data by a tool. */
+  BATCH;
+}
+
+/* EOF */
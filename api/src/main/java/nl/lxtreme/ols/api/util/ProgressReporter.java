@@ -0,0 +1,297 @@
+/*
+ * OpenBench LogicSniffer / SUMP project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ *
+ * Copyright (C) 2010-2011 - J.W. Janssen, http://www.lxtreme.nl
+ */
+package nl.lxtreme.ols.api.util;
+
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+import java.util.logging.*;
+
+import nl.lxtreme.ols.api.acquisition.*;
+import nl.lxtreme.ols.api.tools.*;
+
+
+/**
+ * Provides a rate-limited progress reporter for tools and devices.
+ * <p>
+ * Instead of calling a progress listener for each processed sample, hot loops
+ * only update a cheap counter by means of {@link #update(long)}. All started
+ * reporters are sampled by a single background thread at a fixed cadence, and
+ * only actual changes in percentage are passed on to the progress listener.
+ * Note that this implies that the progress listener is called from this
+ * background thread, not from the thread doing the actual work.
+ * </p>
+ * <p>
+ * A reporter should always be closed after use, preferably in a
+ * <tt>finally</tt> block, as it otherwise remains sampled.
+ * </p>
+ */
+public final class ProgressReporter
+{
+  // INNER TYPES
+
+  /**
+   * Samples all started progress reporters.
+   */
+  static final class Sampler implements Runnable
+  {
+    // METHODS
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void run()
+    {
+      for ( ProgressReporter reporter : reporters )
+      {
+        try
+        {
+          reporter.sample();
+        }
+        catch ( RuntimeException exception )
+        {
+          // Make sure we do not stop sampling all other reporters...
+          LOG.log( Level.WARNING, "Progress listener failed!", exception );
+        }
+      }
+    }
+  }
+
+  // CONSTANTS
+
+  /** The interval at which all reporters are sampled, in milliseconds. */
+  public static final long SAMPLE_INTERVAL = 100L;
+
+  private static final Logger LOG = Logger.getLogger( ProgressReporter.class.getName() );
+
+  private static final CopyOnWriteArrayList<ProgressReporter> reporters = new CopyOnWriteArrayList<ProgressReporter>();
+
+  private static ScheduledExecutorService executor;
+  private static ScheduledFuture<?> samplerFuture;
+
+  // VARIABLES
+
+  private final ToolProgressListener toolProgressListener;
+  private final AcquisitionProgressListener acquisitionProgressListener;
+  private final AtomicLong position;
+
+  private long startPosition;
+  private long endPosition;
+  private int lastPercentage;
+  private boolean started;
+
+  // CONSTRUCTORS
+
+  /**
+   * Creates a new {@link ProgressReporter} instance.
+   */
+  private ProgressReporter( final ToolProgressListener aToolProgressListener,
+      final AcquisitionProgressListener aAcquisitionProgressListener )
+  {
+    this.toolProgressListener = aToolProgressListener;
+    this.acquisitionProgressListener = aAcquisitionProgressListener;
+    this.position = new AtomicLong();
+    this.lastPercentage = -1;
+  }
+
+  // METHODS
+
+  /**
+   * Creates a new progress reporter for the given acquisition progress
+   * listener.
+   *
+   * @param aListener
+   *          the acquisition progress listener to report to, may be
+   *          <code>null</code> in which case no progress is reported at all.
+   * @return a new progress reporter, never <code>null</code>.
+   */
+  public static ProgressReporter forAcquisition( final AcquisitionProgressListener aListener )
+  {
+    return new ProgressReporter( null, aListener );
+  }
+
+  /**
+   * Creates a new progress reporter for the given tool progress listener.
+   *
+   * @param aListener
+   *          the tool progress listener to report to, may be <code>null</code>
+   *          in which case no progress is reported at all.
+   * @return a new progress reporter, never <code>null</code>.
+   */
+  public static ProgressReporter forTool( final ToolProgressListener aListener )
+  {
+    return new ProgressReporter( aListener, null );
+  }
+
+  /**
+   * Returns the number of currently started progress reporters.
+   *
+   * @return a reporter count, >= 0.
+   */
+  static int getActiveCount()
+  {
+    return reporters.size();
+  }
+
+  /**
+   * Starts sampling the given reporter, starting the background sampler if
+   * needed.
+   */
+  private static synchronized void register( final ProgressReporter aReporter )
+  {
+    if ( reporters.addIfAbsent( aReporter ) && ( samplerFuture == null ) )
+    {
+      if ( executor == null )
+      {
+        executor = Executors.newSingleThreadScheduledExecutor( new ThreadFactory()
+        {
+          @Override
+          public Thread newThread( final Runnable aRunnable )
+          {
+            final Thread thread = new Thread( aRunnable, "OLS Progress Reporter" );
+            thread.setDaemon( true );
+            return thread;
+          }
+        } );
+      }
+      samplerFuture = executor.scheduleAtFixedRate( new Sampler(), SAMPLE_INTERVAL, SAMPLE_INTERVAL,
+          TimeUnit.MILLISECONDS );
+    }
+  }
+
+  /**
+   * Stops sampling the given reporter, stopping the background sampler when no
+   * more reporters are started.
+   */
+  private static synchronized void unregister( final ProgressReporter aReporter )
+  {
+    if ( reporters.remove( aReporter ) && reporters.isEmpty() && ( samplerFuture != null ) )
+    {
+      samplerFuture.cancel( false /* mayInterruptIfRunning */);
+      samplerFuture = null;
+    }
+  }
+
+  /**
+   * Stops sampling this reporter without reporting any further progress.
+   * Calling this method more than once has no effect.
+   */
+  public void close()
+  {
+    synchronized ( this )
+    {
+      this.started = false;
+    }
+    unregister( this );
+  }
+
+  /**
+   * Stops sampling this reporter and reports completion (100%) directly to the
+   * progress listener.
+   */
+  public void finish()
+  {
+    close();
+
+    report( 100 );
+  }
+
+  /**
+   * Starts this reporter for the given range, and directly reports the start
+   * (0%) to the progress listener.
+   *
+   * @param aStartPosition
+   *          the position at which the progress is 0%;
+   * @param aEndPosition
+   *          the position at which the progress is 100%.
+   */
+  public void start( final long aStartPosition, final long aEndPosition )
+  {
+    synchronized ( this )
+    {
+      this.startPosition = aStartPosition;
+      this.endPosition = aEndPosition;
+      this.position.set( aStartPosition );
+      this.lastPercentage = -1;
+      this.started = true;
+
+      report( 0 );
+    }
+
+    register( this );
+  }
+
+  /**
+   * Updates the current position of this reporter. This method is cheap enough
+   * to be called for each processed sample.
+   *
+   * @param aPosition
+   *          the current position, should be between the start and end
+   *          position given to {@link #start(long, long)}.
+   */
+  public void update( final long aPosition )
+  {
+    // An ordered store suffices, as the sampler does not need to see each and
+    // every update...
+    this.position.lazySet( aPosition );
+  }
+
+  /**
+   * Passes the given percentage on to the progress listener, if it differs
+   * from the last reported percentage.
+   */
+  private synchronized void report( final int aPercentage )
+  {
+    if ( aPercentage == this.lastPercentage )
+    {
+      return;
+    }
+    this.lastPercentage = aPercentage;
+
+    if ( this.toolProgressListener != null )
+    {
+      this.toolProgressListener.setProgress( aPercentage );
+    }
+    if ( this.acquisitionProgressListener != null )
+    {
+      this.acquisitionProgressListener.acquisitionInProgress( aPercentage );
+    }
+  }
+
+  /**
+   * Samples the current position of this reporter, and passes it on to the
+   * progress listener.
+   */
+  final synchronized void sample()
+  {
+    if ( !this.started )
+    {
+      // Closed in the mean time; do not report anything...
+      return;
+    }
+    final long range = this.endPosition - this.startPosition;
+    final long done = this.position.get() - this.startPosition;
+
+    final int percentage = ( range <= 0L ) ? 100 : ( int )( ( 100L * done ) / range );
+    report( Math.max( 0, Math.min( 100, percentage ) ) );
+  }
+}
@@ -0,0 +1,206 @@
+/*
+ * OpenBench LogicSniffer / SUMP project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ * Copyright (C) 2006-2010 Michael Poppitz, www.sump.org
+ * Copyright (C) 2010-2012 J.W. Janssen, www.lxtreme.nl
+ */
+package nl.lxtreme.ols.api.data;
+
+
+import static org.junit.Assert.*;
+
+import java.util.*;
+
+import nl.lxtreme.ols.api.*;
+
+import org.junit.*;
+
+
+/**
+ * Test cases for the sample index searches of {@link CapturedData}.
+ */
+public class CapturedDataTest
+{
+  // METHODS
+
+  /**
+   * Tests the search in empty and single-valued arrays.
+   */
+  @Test
+  public void testSearchSmallArrays()
+  {
+    assertEquals( 0, CapturedData.binarySearch( new long[0], 0, 0, 5L ) );
+    assertEquals( 0, CapturedData.gallopingSearch( new long[0], 0, 0, 5L, 3 ) );
+
+    final long[] single = { 10L };
+    assertEquals( 0, CapturedData.binarySearch( single, 0, 1, 5L ) );
+    assertEquals( 0, CapturedData.binarySearch( single, 0, 1, 10L ) );
+    assertEquals( 0, CapturedData.binarySearch( single, 0, 1, 15L ) );
+    assertEquals( 0, CapturedData.gallopingSearch( single, 0, 1, 15L, 0 ) );
+  }
+
+  /**
+   * Tests that all searches yield the same result as a reference search for
+   * small data (without block index).
+   */
+  @Test
+  public void testSearchSmallData()
+  {
+    verifySearches( 1000, new Random( 1L ) );
+  }
+
+  /**
+   * Tests that all searches yield the same result as a reference search for
+   * large data (with block index).
+   */
+  @Test
+  public void testSearchLargeData()
+  {
+    verifySearches( ( 1 << 17 ) + 13, new Random( 2L ) );
+  }
+
+  /**
+   * Tests that large data is compacted when requested, and that all searches
+   * yield the same result as a reference search.
+   */
+  @Test
+  public void testSearchCompactedData()
+  {
+    final Random rnd = new Random( 5L );
+
+    final CapturedData plain = createData( ( 1 << 17 ) + 7, new Random( 6L ) );
+    assertNull( plain.getCompactTimestamps() );
+
+    System.setProperty( "nl.lxtreme.ols.compact.timestamps", "true" );
+    try
+    {
+      final CapturedData data = createData( ( 1 << 17 ) + 7, new Random( 6L ) );
+      assertNotNull( data.getCompactTimestamps() );
+
+      final long[] timestamps = plain.getTimestamps();
+      assertArrayEquals( timestamps, data.getTimestamps() );
+      // The decoded timestamps are kept while memory permits...
+      assertSame( data.getTimestamps(), data.getTimestamps() );
+      assertEquals( timestamps[12345], data.getTimestamp( 12345 ) );
+
+      final TransitionIndex expectedIndex = plain.getTransitionIndex( 3 );
+      final TransitionIndex index = data.getTransitionIndex( 3 );
+      assertEquals( expectedIndex.getEdgeCount(), index.getEdgeCount() );
+      for ( int i = 0; i < index.getEdgeCount(); i += 97 )
+      {
+        assertEquals( expectedIndex.getEdge( i ), index.getEdge( i ) );
+        assertEquals( expectedIndex.getHighTime( 0L, index.getEdge( i ) ), index.getHighTime( 0L, index.getEdge( i ) ) );
+      }
+
+      for ( int i = 0; i < 500; i++ )
+      {
+        final long key = rnd.nextInt( ( int )data.getAbsoluteLength() + 20 ) - 10;
+        final int hint = rnd.nextInt( timestamps.length );
+
+        final int expected = referenceSearch( timestamps, key );
+        assertEquals( "key = " + key, expected, data.getSampleIndex( key ) );
+        assertEquals( "key = " + key + ", hint = " + hint, expected, data.getSampleIndex( key, hint ) );
+      }
+    }
+    finally
+    {
+      System.clearProperty( "nl.lxtreme.ols.compact.timestamps" );
+    }
+  }
+
+  /**
+   * Tests that sequential look-ups using the previous result as hint yield the
+   * same result as a reference search.
+   */
+  @Test
+  public void testSequentialSearchWithHint()
+  {
+    final Random rnd = new Random( 3L );
+    final CapturedData data = createData( 5000, rnd );
+    final long[] timestamps = data.getTimestamps();
+
+    int hint = 0;
+    for ( long t = -5L; t < ( data.getAbsoluteLength() + 5L ); t += 1 + rnd.nextInt( 20 ) )
+    {
+      final int result = data.getSampleIndex( t, hint );
+      assertEquals( "t = " + t, referenceSearch( timestamps, t ), result );
+      hint = result;
+    }
+    for ( long t = data.getAbsoluteLength() + 5L; t > -5L; t -= 1 + rnd.nextInt( 20 ) )
+    {
+      final int result = data.getSampleIndex( t, hint );
+      assertEquals( "t = " + t, referenceSearch( timestamps, t ), result );
+      hint = result;
+    }
+  }
+
+  /**
+   * Creates captured data with random timestamps.
+   */
+  private static CapturedData createData( final int aSize, final Random aRandom )
+  {
+    final int[] values = new int[aSize];
+    final long[] timestamps = new long[aSize];
+    long time = aRandom.nextInt( 10 );
+    for ( int i = 0; i < aSize; i++ )
+    {
+      values[i] = aRandom.nextInt( 256 );
+      timestamps[i] = time;
+      time += 1 + aRandom.nextInt( 10 );
+    }
+    return new CapturedData( values, timestamps, Ols.NOT_AVAILABLE, 100, 8, 0xFF, time );
+  }
+
+  /**
+   * Returns the index of the given key, or if not found, the index of the first
+   * value greater than the given key, limited to the last index.
+   */
+  private static int referenceSearch( final long[] aArray, final long aKey )
+  {
+    int idx = 0;
+    while ( ( idx < ( aArray.length - 1 ) ) && ( aArray[idx] < aKey ) )
+    {
+      idx++;
+    }
+    return idx;
+  }
+
+  /**
+   * Verifies the searches against the reference search for random keys and
+   * hints.
+   */
+  private static void verifySearches( final int aSize, final Random aRandom )
+  {
+    final CapturedData data = createData( aSize, aRandom );
+    final long[] timestamps = data.getTimestamps();
+    final int size = timestamps.length;
+    final int absLength = ( int )data.getAbsoluteLength();
+
+    for ( int i = 0; i < 500; i++ )
+    {
+      final long key = ( i % 10 == 0 ) ? timestamps[aRandom.nextInt( size )] : aRandom.nextInt( absLength + 20 ) - 10;
+      final int hint = aRandom.nextInt( size + 20 ) - 10;
+
+      final int expected = referenceSearch( timestamps, key );
+      assertEquals( "key = " + key, expected, data.getSampleIndex( key ) );
+      assertEquals( "key = " + key, expected, CapturedData.binarySearch( timestamps, 0, size, key ) );
+      assertEquals( "key = " + key + ", hint = " + hint, expected, data.getSampleIndex( key, hint ) );
+      assertEquals( "key = " + key + ", hint = " + hint, expected,
+          CapturedData.gallopingSearch( timestamps, 0, size, key, hint ) );
+    }
+  }
+}
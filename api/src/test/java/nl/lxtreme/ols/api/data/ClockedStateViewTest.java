@@ -0,0 +1,146 @@
+/*
+ * OpenBench LogicSniffer / SUMP project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ *
+ * Copyright (C) 2010-2011 - J.W. Janssen, http://www.lxtreme.nl
+ */
+package nl.lxtreme.ols.api.data;
+
+
+import static org.junit.Assert.*;
+
+import java.util.*;
+
+import nl.lxtreme.ols.api.*;
+
+import org.junit.*;
+
+
+/**
+ * Test cases for {@link ClockedStateView}.
+ */
+public class ClockedStateViewTest
+{
+  // METHODS
+
+  /**
+   * Tests that the states are only sampled upon first access.
+   */
+  @Test
+  public void testSampleLazily()
+  {
+    final CapturedData data = createData( 100, new Random( 1L ) );
+    final ClockedStateView view = new ClockedStateView( data, 0, 0 );
+
+    assertTrue( view.getStateCount() > 0 );
+    assertFalse( view.isComputed() );
+
+    assertEquals( data.getChannels(), view.getChannels() );
+    assertFalse( view.hasTimingData() );
+    assertFalse( view.isComputed() );
+
+    view.getValues();
+    assertTrue( view.isComputed() );
+  }
+
+  /**
+   * Tests the sampled states against a straightforward implementation for
+   * both clock levels and various clock channels.
+   */
+  @Test
+  public void testSampleStatesAgainstBruteForce()
+  {
+    final CapturedData data = createData( 5000, new Random( 2L ) );
+
+    for ( int channel = 0; channel < 4; channel++ )
+    {
+      for ( int level = 0; level < 2; level++ )
+      {
+        final int[] expected = sampleStates( data.getValues(), channel, level );
+        final CapturedData expectedData = new CapturedData( expected, Ols.NOT_AVAILABLE, Ols.NOT_AVAILABLE,
+            data.getChannels(), data.getEnabledChannels() );
+
+        final ClockedStateView view = new ClockedStateView( data, channel, level );
+
+        final String msg = "ch" + channel + ", level " + level;
+        assertEquals( msg, expected.length, view.getStateCount() );
+        assertArrayEquals( msg, expectedData.getValues(), view.getValues() );
+        assertArrayEquals( msg, expectedData.getTimestamps(), view.getTimestamps() );
+      }
+    }
+  }
+
+  /**
+   * Tests that the trigger position is converted to the index of the first
+   * state sampled after it.
+   */
+  @Test
+  public void testTriggerPosition()
+  {
+    // clock on ch0, rising edges at 10, 30 and 50...
+    final int[] values = { 0x00, 0x03, 0x00, 0x01, 0x02, 0x03, 0x02 };
+    final long[] timestamps = { 0L, 10L, 20L, 30L, 40L, 50L, 60L };
+    final CapturedData data = new CapturedData( values, timestamps, 35L, 100, 2, 0x03, 70L );
+
+    final ClockedStateView view = new ClockedStateView( data, 0, 0 );
+
+    assertEquals( 3, view.getStateCount() );
+    assertEquals( 2L, view.getTriggerPosition() );
+  }
+
+  /**
+   * Creates captured data with random values.
+   */
+  private static CapturedData createData( final int aSize, final Random aRandom )
+  {
+    final int[] values = new int[aSize];
+    final long[] timestamps = new long[aSize];
+    long time = 0L;
+    for ( int i = 0; i < aSize; i++ )
+    {
+      values[i] = aRandom.nextInt( 256 );
+      timestamps[i] = time;
+      time += 1 + aRandom.nextInt( 10 );
+    }
+    return new CapturedData( values, timestamps, Ols.NOT_AVAILABLE, 100, 8, 0xFF, time );
+  }
+
+  /**
+   * Samples the states by visiting all values.
+   */
+  private static int[] sampleStates( final int[] aValues, final int aChannel, final int aLevel )
+  {
+    final List<Integer> states = new ArrayList<Integer>();
+    int last = ( aValues[0] >> aChannel ) & 1;
+    for ( int i = 1; i < aValues.length; i++ )
+    {
+      final int current = ( aValues[i] >> aChannel ) & 1;
+      if ( ( last == aLevel ) && ( current != aLevel ) )
+      {
+        states.add( Integer.valueOf( aValues[i - 1] ) );
+      }
+      last = current;
+    }
+
+    final int[] result = new int[states.size()];
+    for ( int i = 0; i < result.length; i++ )
+    {
+      result[i] = states.get( i ).intValue();
+    }
+    return result;
+  }
+}
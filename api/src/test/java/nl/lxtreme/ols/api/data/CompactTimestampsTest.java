@@ -0,0 +1,124 @@
+/*
+ * OpenBench LogicSniffer / SUMP project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ *
+ * Copyright (C) 2010-2011 - J.W. Janssen, http://www.lxtreme.nl
+ */
+package nl.lxtreme.ols.api.data;
+
+
+import static org.junit.Assert.*;
+
+import java.util.*;
+
+import org.junit.*;
+
+
+/**
+ * Test cases for {@link CompactTimestamps}.
+ */
+public class CompactTimestampsTest
+{
+  // METHODS
+
+  /**
+   * Tests that empty timestamps can be compacted.
+   */
+  @Test
+  public void testEncodeEmpty()
+  {
+    final CompactTimestamps ts = CompactTimestamps.encode( new long[0] );
+
+    assertNotNull( ts );
+    assertEquals( 0, ts.size() );
+    assertEquals( 0, ts.toArray().length );
+    assertEquals( 0, ts.lowerBound( 10L ) );
+  }
+
+  /**
+   * Tests that timestamps that cannot be compacted are refused.
+   */
+  @Test
+  public void testEncodeInvalidTimestamps()
+  {
+    // Not increasing...
+    assertNull( CompactTimestamps.encode( new long[] { 0L, 5L, 3L } ) );
+    // Too large a span within a single block...
+    assertNull( CompactTimestamps.encode( new long[] { 0L, 1L, 0x100000000L } ) );
+  }
+
+  /**
+   * Tests that large gaps between blocks are no problem.
+   */
+  @Test
+  public void testEncodeLargeGapsBetweenBlocks()
+  {
+    final long[] timestamps = new long[3 << CompactTimestamps.BLOCK_SHIFT];
+    for ( int i = 0; i < timestamps.length; i++ )
+    {
+      timestamps[i] = ( ( long )( i >> CompactTimestamps.BLOCK_SHIFT ) << 40 ) + i;
+    }
+
+    final CompactTimestamps ts = CompactTimestamps.encode( timestamps );
+
+    assertNotNull( ts );
+    assertArrayEquals( timestamps, ts.toArray() );
+  }
+
+  /**
+   * Tests random and bulk access, as well as searching, against the original
+   * timestamps.
+   */
+  @Test
+  public void testAccessAndSearchRandomTimestamps()
+  {
+    final Random rnd = new Random( 4L );
+    final long[] timestamps = new long[10000];
+    long time = -20L;
+    for ( int i = 0; i < timestamps.length; i++ )
+    {
+      timestamps[i] = time;
+      time += rnd.nextInt( 3 ) + ( ( rnd.nextInt( 100 ) == 0 ) ? 0x7FFFFFF : 0 );
+    }
+
+    final CompactTimestamps ts = CompactTimestamps.encode( timestamps );
+    assertNotNull( ts );
+    assertEquals( timestamps.length, ts.size() );
+
+    for ( int i = 0; i < timestamps.length; i++ )
+    {
+      assertEquals( timestamps[i], ts.get( i ) );
+    }
+
+    final long[] copy = new long[1000];
+    ts.copyTo( 250, copy, 3, 997 );
+    for ( int i = 0; i < 997; i++ )
+    {
+      assertEquals( timestamps[250 + i], copy[3 + i] );
+    }
+
+    for ( int i = 0; i < 1000; i++ )
+    {
+      final long key = ( i % 3 == 0 ) ? timestamps[rnd.nextInt( timestamps.length )] : time - rnd.nextLong() % time;
+      final int hint = rnd.nextInt( timestamps.length );
+
+      final int expected = CapturedData.lowerBound( timestamps, 0, timestamps.length, key );
+      assertEquals( "key = " + key, expected, ts.lowerBound( key ) );
+      assertEquals( "key = " + key + ", hint = " + hint, expected, ts.lowerBound( key, hint ) );
+    }
+  }
+}
@@ -0,0 +1,236 @@
+/*
+ * OpenBench LogicSniffer / SUMP project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ * Copyright (C) 2006-2010 Michael Poppitz, www.sump.org
+ * Copyright (C) 2010-2012 J.W. Janssen, www.lxtreme.nl
+ */
+package nl.lxtreme.ols.api.data;
+
+
+import static org.junit.Assert.*;
+
+import java.util.*;
+
+import nl.lxtreme.ols.api.*;
+
+import org.junit.*;
+
+
+/**
+ * Test cases for {@link TransitionIndex}.
+ */
+public class TransitionIndexTest
+{
+  // METHODS
+
+  /**
+   * Tests that an index of empty data yields no edges nor high time.
+   */
+  @Test
+  public void testEmptyData()
+  {
+    final TransitionIndex index = new TransitionIndex( new int[0], new long[0], 0x01, 0L );
+
+    assertEquals( 0, index.getEdgeCount() );
+    assertEquals( 0, index.getEdgeCount( 0L, 100L ) );
+    assertEquals( 0L, index.getHighTime( 0L, 100L ) );
+    assertFalse( index.isHigh( 10L ) );
+  }
+
+  /**
+   * Tests the edge counts and high times of a simple signal.
+   */
+  @Test
+  public void testSimpleSignal()
+  {
+    // ch0: high [0, 10), low [10, 25), high [25, 30), low [30, 40)
+    // ch1: low [0, 20), high [20, 40)
+    final int[] values = { 0x01, 0x00, 0x02, 0x03, 0x02, 0x02 };
+    final long[] timestamps = { 0L, 10L, 20L, 25L, 30L, 40L };
+    final CapturedData data = new CapturedData( values, timestamps, Ols.NOT_AVAILABLE, 100, 2, 0x03, 40L );
+
+    final TransitionIndex ch0 = data.getTransitionIndex( 0 );
+    assertEquals( 3, ch0.getEdgeCount() );
+    assertEquals( 10L, ch0.getEdge( 0 ) );
+    assertEquals( 25L, ch0.getEdge( 1 ) );
+    assertEquals( 30L, ch0.getEdge( 2 ) );
+
+    assertEquals( 15L, ch0.getHighTime( 0L, 40L ) );
+    assertEquals( 25L, ch0.getLowTime( 0L, 40L ) );
+    assertEquals( 7L, ch0.getHighTime( 4L, 26L ) );
+    assertEquals( 3, ch0.getEdgeCount( 0L, 40L ) );
+    assertEquals( 1, ch0.getRisingEdgeCount( 0L, 40L ) );
+    assertEquals( 2, ch0.getFallingEdgeCount( 0L, 40L ) );
+    assertEquals( 1, ch0.getEdgeCount( 10L, 25L ) );
+    assertTrue( ch0.isHigh( 9L ) );
+    assertFalse( ch0.isHigh( 10L ) );
+
+    final TransitionIndex ch1 = data.getTransitionIndex( 1 );
+    assertEquals( 1, ch1.getEdgeCount() );
+    assertEquals( 20L, ch1.getHighTime( -5L, 100L ) );
+    assertEquals( 1, ch1.getRisingEdgeCount( 0L, 40L ) );
+
+    // Indices should be created only once...
+    assertSame( ch0, data.getTransitionIndex( 0 ) );
+  }
+
+  /**
+   * Tests all queries against a brute-force implementation using random data.
+   */
+  @Test
+  public void testRandomDataAgainstBruteForce()
+  {
+    final Random rnd = new Random( 1234L );
+
+    final int size = 500;
+    final int[] values = new int[size];
+    final long[] timestamps = new long[size];
+    long time = 3L;
+    for ( int i = 0; i < size; i++ )
+    {
+      values[i] = rnd.nextInt( 16 );
+      timestamps[i] = time;
+      time += 1 + rnd.nextInt( 10 );
+    }
+    final long absLength = time;
+
+    for ( int channel = 0; channel < 4; channel++ )
+    {
+      final int mask = 1 << channel;
+      final TransitionIndex index = new TransitionIndex( values, timestamps, mask, absLength );
+
+      for ( int i = 0; i < 200; i++ )
+      {
+        final long t1 = rnd.nextInt( ( int )absLength + 20 ) - 10;
+        final long t2 = t1 + rnd.nextInt( 500 );
+
+        long high = 0L;
+        long low = 0L;
+        int rising = 0;
+        int falling = 0;
+        for ( long t = Math.max( t1, timestamps[0] ); t < Math.min( t2, absLength ); t++ )
+        {
+          final int idx = findSample( timestamps, t );
+          final boolean level = ( values[idx] & mask ) != 0;
+          if ( level )
+          {
+            high++;
+          }
+          else
+          {
+            low++;
+          }
+          if ( ( idx > 0 ) && ( timestamps[idx] == t ) && ( ( ( values[idx - 1] ^ values[idx] ) & mask ) != 0 ) )
+          {
+            if ( level )
+            {
+              rising++;
+            }
+            else
+            {
+              falling++;
+            }
+          }
+        }
+
+        final String msg = "ch" + channel + " [" + t1 + ", " + t2 + ")";
+        assertEquals( msg, high, index.getHighTime( t1, t2 ) );
+        assertEquals( msg, low, index.getLowTime( t1, t2 ) );
+        assertEquals( msg, rising, index.getRisingEdgeCount( t1, t2 ) );
+        assertEquals( msg, falling, index.getFallingEdgeCount( t1, t2 ) );
+        assertEquals( msg, rising + falling, index.getEdgeCount( t1, t2 ) );
+      }
+    }
+  }
+
+  /**
+   * Tests the number, total width and minimum and maximum width of the pulses
+   * against a brute-force implementation using random data with enough
+   * transitions to use the pulse width pyramid.
+   */
+  @Test
+  public void testPulseWidthsAgainstBruteForce()
+  {
+    final Random rnd = new Random( 4321L );
+
+    final int size = 5000;
+    final int[] values = new int[size];
+    final long[] timestamps = new long[size];
+    long time = 0L;
+    for ( int i = 0; i < size; i++ )
+    {
+      values[i] = rnd.nextInt( 4 );
+      timestamps[i] = time;
+      time += 1 + rnd.nextInt( 20 );
+    }
+
+    final TransitionIndex index = new TransitionIndex( values, timestamps, 0x01, time );
+    final long[] highWidths = new long[2];
+    final long[] lowWidths = new long[2];
+
+    for ( int i = 0; i < 500; i++ )
+    {
+      final long t1 = rnd.nextInt( ( int )time );
+      final long t2 = t1 + rnd.nextInt( ( int )( time - t1 ) + 1 );
+
+      final long[] expectedHigh = { Long.MAX_VALUE, Long.MIN_VALUE };
+      final long[] expectedLow = { Long.MAX_VALUE, Long.MIN_VALUE };
+      // count and total width of the high and low pulses...
+      final long[] expectedHighTotal = new long[2];
+      final long[] expectedLowTotal = new long[2];
+      for ( int e = 1; e < index.getEdgeCount(); e++ )
+      {
+        final long start = index.getEdge( e - 1 );
+        final long end = index.getEdge( e );
+        if ( ( start >= t1 ) && ( end < t2 ) )
+        {
+          final long[] expected = index.isHigh( start ) ? expectedHigh : expectedLow;
+          expected[0] = Math.min( expected[0], end - start );
+          expected[1] = Math.max( expected[1], end - start );
+
+          final long[] total = index.isHigh( start ) ? expectedHighTotal : expectedLowTotal;
+          total[0]++;
+          total[1] += end - start;
+        }
+      }
+
+      index.getHighPulseWidths( t1, t2, highWidths );
+      index.getLowPulseWidths( t1, t2, lowWidths );
+
+      final String msg = "[" + t1 + ", " + t2 + ")";
+      assertArrayEquals( msg, expectedHigh, highWidths );
+      assertArrayEquals( msg, expectedLow, lowWidths );
+      assertEquals( msg, expectedHighTotal[0], index.getHighPulseCount( t1, t2 ) );
+      assertEquals( msg, expectedHighTotal[1], index.getTotalHighPulseWidth( t1, t2 ) );
+      assertEquals( msg, expectedLowTotal[0], index.getLowPulseCount( t1, t2 ) );
+      assertEquals( msg, expectedLowTotal[1], index.getTotalLowPulseWidth( t1, t2 ) );
+    }
+  }
+
+  /**
+   * Returns the index of the sample that is active at the given time.
+   */
+  private static int findSample( final long[] aTimestamps, final long aTime )
+  {
+    int idx = 0;
+    while ( ( ( idx + 1 ) < aTimestamps.length ) && ( aTimestamps[idx + 1] <= aTime ) )
+    {
+      idx++;
+    }
+    return idx;
+  }
+}
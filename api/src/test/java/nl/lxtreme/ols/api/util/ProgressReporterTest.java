@@ -0,0 +1,168 @@
+/*
+ * OpenBench LogicSniffer / SUMP project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ *
+ * Copyright (C) 2010-2011 - J.W. Janssen, http://www.lxtreme.nl
+ */
+package nl.lxtreme.ols.api.util;
+
+
+import static org.junit.Assert.*;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+import nl.lxtreme.ols.api.tools.*;
+
+import org.junit.*;
+
+
+/**
+ * Test cases for {@link ProgressReporter}.
+ */
+public class ProgressReporterTest
+{
+  // INNER TYPES
+
+  /**
+   * Records all reported percentages.
+   */
+  static final class RecordingListener implements ToolProgressListener
+  {
+    // VARIABLES
+
+    final List<Integer> percentages = new CopyOnWriteArrayList<Integer>();
+
+    // METHODS
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void setProgress( final int aPercentage )
+    {
+      this.percentages.add( Integer.valueOf( aPercentage ) );
+    }
+
+    /**
+     * Waits until the given percentage is reported.
+     */
+    void await( final int aPercentage ) throws InterruptedException
+    {
+      final long timeout = System.currentTimeMillis() + 5000L;
+      while ( !this.percentages.contains( Integer.valueOf( aPercentage ) ) )
+      {
+        assertTrue( "Timeout waiting for " + aPercentage + "%!", System.currentTimeMillis() < timeout );
+        Thread.sleep( 10L );
+      }
+    }
+  }
+
+  // METHODS
+
+  /**
+   * Tests that closing a reporter stops it from being sampled.
+   */
+  @Test
+  public void testCloseStopsSamplingOk() throws Exception
+  {
+    final RecordingListener listener = new RecordingListener();
+
+    final ProgressReporter reporter = ProgressReporter.forTool( listener );
+    reporter.start( 0L, 100L );
+    assertEquals( 1, ProgressReporter.getActiveCount() );
+
+    reporter.close();
+    assertEquals( 0, ProgressReporter.getActiveCount() );
+
+    reporter.update( 50L );
+    Thread.sleep( 3 * ProgressReporter.SAMPLE_INTERVAL );
+
+    assertEquals( Arrays.asList( Integer.valueOf( 0 ) ), listener.percentages );
+  }
+
+  /**
+   * Tests that a failing progress listener does not prevent other reporters
+   * from being sampled.
+   */
+  @Test
+  public void testFailingListenerDoesNotStopSamplingOk() throws Exception
+  {
+    final ProgressReporter failing = ProgressReporter.forTool( new ToolProgressListener()
+    {
+      @Override
+      public void setProgress( final int aPercentage )
+      {
+        if ( aPercentage > 0 )
+        {
+          throw new RuntimeException( "Expected failure!" );
+        }
+      }
+    } );
+
+    final RecordingListener listener = new RecordingListener();
+    final ProgressReporter reporter = ProgressReporter.forTool( listener );
+
+    failing.start( 0L, 10L );
+    reporter.start( 0L, 10L );
+    try
+    {
+      failing.update( 5L );
+      Thread.sleep( 3 * ProgressReporter.SAMPLE_INTERVAL );
+
+      reporter.update( 5L );
+      listener.await( 50 );
+    }
+    finally
+    {
+      failing.close();
+      reporter.close();
+    }
+  }
+
+  /**
+   * Tests that updates are sampled and reported only when the percentage
+   * actually changes.
+   */
+  @Test
+  public void testUpdatesAreSampledOk() throws Exception
+  {
+    final RecordingListener listener = new RecordingListener();
+
+    final ProgressReporter reporter = ProgressReporter.forTool( listener );
+    reporter.start( 1000L, 2000L );
+    assertEquals( Arrays.asList( Integer.valueOf( 0 ) ), listener.percentages );
+
+    for ( long i = 1000L; i < 1250L; i++ )
+    {
+      reporter.update( i );
+    }
+    listener.await( 24 );
+
+    // Nothing changed, hence nothing should be reported...
+    Thread.sleep( 3 * ProgressReporter.SAMPLE_INTERVAL );
+    assertEquals( 2, listener.percentages.size() );
+
+    reporter.update( 1500L );
+    listener.await( 50 );
+
+    reporter.finish();
+    assertEquals( Arrays.asList( Integer.valueOf( 0 ), Integer.valueOf( 24 ), Integer.valueOf( 50 ),
+        Integer.valueOf( 100 ) ), listener.percentages );
+    assertEquals( 0, ProgressReporter.getActiveCount() );
+  }
+}
@@ -0,0 +1,430 @@
+/*
+ * OpenBench LogicSniffer / SUMP project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ *
+ * Copyright (C) 2010-2011 - J.W. Janssen, http://www.lxtreme.nl
+ */
+package nl.lxtreme.ols.benchmark;
+
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.logging.*;
+
+import javax.microedition.io.*;
+
+import nl.lxtreme.ols.api.acquisition.*;
+
+import org.sump.device.logicsniffer.*;
+import org.sump.device.logicsniffer.profile.*;
+import org.sump.device.logicsniffer.profile.DeviceProfile.CaptureClockSource;
+import org.sump.device.logicsniffer.simulator.*;
+import org.sump.device.logicsniffer.simulator.PatternSampleProvider.Pattern;
+
+
+/**
+ * Measures the end-to-end throughput of {@link LogicSnifferAcquisitionTask}
+ * against a {@link LogicSnifferSimulator}.
+ * <p>
+ * For each combination of channel count, sample count, RLE- and DDR-mode, the
+ * following is measured:
+ * </p>
+ * <ul>
+ * <li>the time until the first sample data arrives at the host;</li>
+ * <li>the time until all sample data is transferred;</li>
+ * <li>the time until the acquisition result is available, which is the time
+ * to the first pixel, as the signal display only shows complete results.</li>
+ * </ul>
+ * <p>
+ * As these are not simple "time per operation" metrics, this benchmark is not
+ * run by JMH, but can be run using:
+ * </p>
+ *
+ * <pre>
+ * java -cp benchmarks.jar nl.lxtreme.ols.benchmark.AcquisitionBenchmark [options]
+ * </pre>
+ * <p>
+ * Supported options are: <tt>-transport=pipe|socket|all</tt>,
+ * <tt>-bandwidth=&lt;bytes per second&gt;</tt>, <tt>-latency=&lt;us&gt;</tt>,
+ * <tt>-warmups=&lt;n&gt;</tt>, <tt>-iterations=&lt;n&gt;</tt> and
+ * <tt>-output=&lt;file&gt;</tt>. The results are written as JSON to
+ * <tt>acquisition-result.json</tt> unless specified otherwise.
+ * </p>
+ */
+public final class AcquisitionBenchmark
+{
+  // INNER TYPES
+
+  /**
+   * Denotes the transport used between host and simulator.
+   */
+  static enum Transport
+  {
+    PIPE, SOCKET;
+  }
+
+  /**
+   * Describes a single capture configuration.
+   */
+  static final class Scenario
+  {
+    // VARIABLES
+
+    final int channels;
+    final int sampleCount;
+    final boolean rle;
+    final boolean ddr;
+
+    // CONSTRUCTORS
+
+    /**
+     * Creates a new {@link Scenario} instance.
+     */
+    Scenario( final int aChannels, final int aSampleCount, final boolean aRle, final boolean aDdr )
+    {
+      this.channels = aChannels;
+      this.sampleCount = aSampleCount;
+      this.rle = aRle;
+      this.ddr = aDdr;
+    }
+
+    // METHODS
+
+    /**
+     * Returns the number of bytes transferred for this scenario.
+     *
+     * @return a byte count, > 0.
+     */
+    long getByteCount()
+    {
+      return ( long )this.sampleCount * ( this.channels / 8 );
+    }
+  }
+
+  /**
+   * Records the time of the first and last progress report of an acquisition,
+   * as well as the time the acquisition is completed.
+   */
+  static final class TimingListener implements AcquisitionProgressListener
+  {
+    // VARIABLES
+
+    private final long startTime;
+
+    volatile long firstDataTime = -1L;
+    volatile long transferredTime = -1L;
+    volatile long completedTime = -1L;
+
+    // CONSTRUCTORS
+
+    /**
+     * Creates a new {@link TimingListener} instance.
+     */
+    TimingListener( final long aStartTime )
+    {
+      this.startTime = aStartTime;
+    }
+
+    // METHODS
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void acquisitionInProgress( final int aPercentage )
+    {
+      final long now = System.nanoTime();
+      if ( this.firstDataTime < 0L )
+      {
+        this.firstDataTime = now - this.startTime;
+      }
+      if ( aPercentage >= 100 )
+      {
+        this.transferredTime = now - this.startTime;
+      }
+    }
+  }
+
+  // CONSTANTS
+
+  private static final String DEFAULT_RESULT_FILE = "acquisition-result.json";
+
+  private static final int[] CHANNELS = { 8, 16, 32 };
+  /** The maximum sample count supported by the SUMP protocol is 256Ki. */
+  private static final int[] SAMPLE_COUNTS = { 65536, 262144 };
+  /** In DDR-mode, twice as many samples (of at most 16 channels) are read. */
+  private static final int DDR_SAMPLE_COUNT = 524288;
+
+  // VARIABLES
+
+  private final List<Transport> transports;
+  private final int bandwidth;
+  private final long latency;
+  private final int warmups;
+  private final int iterations;
+  private final File output;
+
+  // CONSTRUCTORS
+
+  /**
+   * Creates a new {@link AcquisitionBenchmark} instance.
+   */
+  private AcquisitionBenchmark( final String[] aArgs )
+  {
+    String transport = "all";
+    int bandwidth = 0;
+    long latency = 0L;
+    int warmups = 3;
+    int iterations = 10;
+    String output = DEFAULT_RESULT_FILE;
+
+    for ( String arg : aArgs )
+    {
+      if ( arg.startsWith( "-transport=" ) )
+      {
+        transport = arg.substring( 11 );
+      }
+      else if ( arg.startsWith( "-bandwidth=" ) )
+      {
+        bandwidth = Integer.parseInt( arg.substring( 11 ) );
+      }
+      else if ( arg.startsWith( "-latency=" ) )
+      {
+        latency = Long.parseLong( arg.substring( 9 ) );
+      }
+      else if ( arg.startsWith( "-warmups=" ) )
+      {
+        warmups = Integer.parseInt( arg.substring( 9 ) );
+      }
+      else if ( arg.startsWith( "-iterations=" ) )
+      {
+        iterations = Integer.parseInt( arg.substring( 12 ) );
+      }
+      else if ( arg.startsWith( "-output=" ) )
+      {
+        output = arg.substring( 8 );
+      }
+      else
+      {
+        throw new IllegalArgumentException( "Unknown option: " + arg );
+      }
+    }
+
+    if ( "all".equalsIgnoreCase( transport ) )
+    {
+      this.transports = Arrays.asList( Transport.values() );
+    }
+    else
+    {
+      this.transports = Collections.singletonList( Transport.valueOf( transport.toUpperCase() ) );
+    }
+    if ( iterations < 1 )
+    {
+      throw new IllegalArgumentException( "At least one iteration is needed!" );
+    }
+
+    this.bandwidth = bandwidth;
+    this.latency = latency;
+    this.warmups = warmups;
+    this.iterations = iterations;
+    this.output = new File( output );
+  }
+
+  // METHODS
+
+  /**
+   * MAIN ENTRY POINT
+   *
+   * @param aArgs
+   *          the command line arguments, cannot be <code>null</code>.
+   */
+  public static void main( final String[] aArgs ) throws Exception
+  {
+    // The acquisition task is rather verbose...
+    Logger.getLogger( "org.sump.device.logicsniffer" ).setLevel( Level.WARNING );
+
+    new AcquisitionBenchmark( aArgs ).run();
+  }
+
+  /**
+   * Creates all scenarios to run.
+   */
+  private static List<Scenario> createScenarios()
+  {
+    final List<Scenario> result = new ArrayList<Scenario>();
+    for ( boolean rle : new boolean[] { false, true } )
+    {
+      for ( int channels : CHANNELS )
+      {
+        for ( int sampleCount : SAMPLE_COUNTS )
+        {
+          result.add( new Scenario( channels, sampleCount, rle, false /* aDdr */) );
+        }
+        if ( channels <= 16 )
+        {
+          result.add( new Scenario( channels, DDR_SAMPLE_COUNT, rle, true /* aDdr */) );
+        }
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Returns the mean of the given values, in milliseconds.
+   */
+  private static double mean( final long[] aValues )
+  {
+    double sum = 0.0;
+    for ( long value : aValues )
+    {
+      sum += value;
+    }
+    return ( sum / aValues.length ) / TimeUnit.MILLISECONDS.toNanos( 1L );
+  }
+
+  /**
+   * Returns the minimum of the given values, in milliseconds.
+   */
+  private static double min( final long[] aValues )
+  {
+    long result = Long.MAX_VALUE;
+    for ( long value : aValues )
+    {
+      result = Math.min( result, value );
+    }
+    return ( double )result / TimeUnit.MILLISECONDS.toNanos( 1L );
+  }
+
+  /**
+   * Acquires the samples of a single scenario once.
+   *
+   * @return the timing of the acquisition, never <code>null</code>.
+   */
+  private TimingListener acquire( final Transport aTransport, final Scenario aScenario ) throws Exception
+  {
+    final DeviceProfileManager deviceProfileManager = new DeviceProfileManager();
+
+    final LogicSnifferConfig config = VirtualLogicSnifferConfigs.create( deviceProfileManager );
+    config.setClockSource( CaptureClockSource.INTERNAL );
+    config.setEnabledChannels( ( int )( ( 1L << aScenario.channels ) - 1L ) );
+    config.setFilterEnabled( false );
+    config.setRatio( 0.5 );
+    config.setRleEnabled( aScenario.rle );
+    config.setSampleCount( aScenario.sampleCount );
+    config.setSampleRate( aScenario.ddr ? 200000000 : 100000000 );
+    config.setTriggerEnabled( false );
+
+    final LogicSnifferSimulator simulator = new LogicSnifferSimulator( new PatternSampleProvider(
+        aScenario.rle ? Pattern.RUNS : Pattern.COUNTER ) );
+    simulator.setBandwidth( this.bandwidth );
+    simulator.setLatency( this.latency );
+
+    try
+    {
+      final StreamConnection connection = ( aTransport == Transport.SOCKET ) ? simulator.openSocketConnection()
+          : simulator.openPipeConnection();
+
+      final long start = System.nanoTime();
+      final TimingListener listener = new TimingListener( start );
+
+      final AcquisitionResult result = new LogicSnifferAcquisitionTask( config, connection, deviceProfileManager,
+          listener ).call();
+      listener.completedTime = System.nanoTime() - start;
+
+      if ( result.getAbsoluteLength() <= 0L )
+      {
+        throw new IllegalStateException( "No samples acquired?!" );
+      }
+      return listener;
+    }
+    finally
+    {
+      simulator.close();
+    }
+  }
+
+  /**
+   * Runs all scenarios.
+   */
+  private void run() throws Exception
+  {
+    final StringBuilder json = new StringBuilder( "[\n" );
+
+    for ( Transport transport : this.transports )
+    {
+      for ( Scenario scenario : createScenarios() )
+      {
+        for ( int i = 0; i < this.warmups; i++ )
+        {
+          acquire( transport, scenario );
+        }
+
+        final long[] firstData = new long[this.iterations];
+        final long[] transferred = new long[this.iterations];
+        final long[] total = new long[this.iterations];
+        for ( int i = 0; i < this.iterations; i++ )
+        {
+          final TimingListener timing = acquire( transport, scenario );
+          total[i] = timing.completedTime;
+          firstData[i] = timing.firstDataTime;
+          transferred[i] = timing.transferredTime;
+        }
+
+        final double totalMillis = mean( total );
+        final double mibPerSecond = ( scenario.getByteCount() / ( 1024.0 * 1024.0 ) ) / ( totalMillis / 1000.0 );
+
+        System.out.printf( "%-6s %2d ch %7d samples %-4s %-4s %8.2f MiB/s, first data %8.3f ms, "
+            + "first pixel %8.3f ms%n", transport, Integer.valueOf( scenario.channels ),
+            Integer.valueOf( scenario.sampleCount ), scenario.rle ? "RLE" : "", scenario.ddr ? "DDR" : "",
+            Double.valueOf( mibPerSecond ), Double.valueOf( mean( firstData ) ), Double.valueOf( totalMillis ) );
+
+        if ( json.length() > 2 )
+        {
+          json.append( ",\n" );
+        }
+        json.append( "  {" );
+        json.append( "\"transport\": \"" ).append( transport.name().toLowerCase() ).append( "\", " );
+        json.append( "\"channels\": " ).append( scenario.channels ).append( ", " );
+        json.append( "\"samples\": " ).append( scenario.sampleCount ).append( ", " );
+        json.append( "\"rle\": " ).append( scenario.rle ).append( ", " );
+        json.append( "\"ddr\": " ).append( scenario.ddr ).append( ", " );
+        json.append( "\"bandwidth\": " ).append( this.bandwidth ).append( ", " );
+        json.append( "\"latencyMicros\": " ).append( this.latency ).append( ", " );
+        json.append( "\"iterations\": " ).append( this.iterations ).append( ", " );
+        json.append( "\"bytes\": " ).append( scenario.getByteCount() ).append( ", " );
+        json.append( "\"mibPerSecond\": " ).append( mibPerSecond ).append( ", " );
+        json.append( "\"timeToFirstDataMillis\": " ).append( mean( firstData ) ).append( ", " );
+        json.append( "\"transferMillis\": " ).append( mean( transferred ) ).append( ", " );
+        json.append( "\"timeToFirstPixelMillis\": " ).append( totalMillis ).append( ", " );
+        json.append( "\"minTimeToFirstPixelMillis\": " ).append( min( total ) );
+        json.append( "}" );
+      }
+    }
+    json.append( "\n]\n" );
+
+    final Writer writer = new OutputStreamWriter( new FileOutputStream( this.output ), "UTF-8" );
+    try
+    {
+      writer.write( json.toString() );
+    }
+    finally
+    {
+      writer.close();
+    }
+  }
+}
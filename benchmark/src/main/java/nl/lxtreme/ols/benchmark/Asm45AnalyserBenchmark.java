@@ -0,0 +1,163 @@
+/*
+ * OpenBench LogicSniffer / SUMP project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ *
+ * Copyright (C) 2010-2011 - J.W. Janssen, http://www.lxtreme.nl
+ */
+package nl.lxtreme.ols.benchmark;
+
+
+import java.util.concurrent.*;
+
+import nl.lxtreme.ols.api.acquisition.*;
+import nl.lxtreme.ols.api.data.*;
+import nl.lxtreme.ols.api.task.*;
+import nl.lxtreme.ols.api.tools.*;
+import nl.lxtreme.ols.benchmark.ProtocolAnalyserBenchmark.NullListener;
+import nl.lxtreme.ols.test.*;
+import nl.lxtreme.ols.test.data.*;
+import nl.lxtreme.ols.tool.asm45.*;
+
+import org.openjdk.jmh.annotations.*;
+
+
+/**
+ * Benchmarks the Asm45 analyser on a long bus trace, made by repeating the
+ * Asm45 test data, both sequentially and in parallel.
+ */
+@BenchmarkMode( Mode.Throughput )
+@OutputTimeUnit( TimeUnit.SECONDS )
+@Warmup( iterations = 5 )
+@Measurement( iterations = 5 )
+@Fork( 1 )
+@State( Scope.Benchmark )
+public class Asm45AnalyserBenchmark
+{
+  // VARIABLES
+
+  @Param( { "1024" } )
+  int repeatCount;
+
+  /** The number of workers, or 0 to use all available processors. */
+  @Param( { "1", "0" } )
+  int parallelism;
+
+  private final NullListener listener = new NullListener();
+  private final StringBuilder buffer = new StringBuilder();
+
+  private ToolContext context;
+  private int workers;
+  private ExecutorService executor;
+  private TaskExecutionService taskExecutionService;
+
+  // METHODS
+
+  /**
+   * Creates new captured data by repeating the given data a number of times.
+   */
+  private static AcquisitionResult repeat( final AcquisitionResult aData, final int aCount )
+  {
+    final int[] values = aData.getValues();
+    final long[] timestamps = aData.getTimestamps();
+    final long length = aData.getAbsoluteLength();
+
+    final int[] newValues = new int[values.length * aCount];
+    final long[] newTimestamps = new long[timestamps.length * aCount];
+    for ( int i = 0; i < aCount; i++ )
+    {
+      System.arraycopy( values, 0, newValues, i * values.length, values.length );
+      for ( int j = 0; j < timestamps.length; j++ )
+      {
+        newTimestamps[( i * timestamps.length ) + j] = ( i * length ) + timestamps[j];
+      }
+    }
+
+    return new CapturedData( newValues, newTimestamps, aData.getTriggerPosition(), aData.getSampleRate(),
+        aData.getChannels(), aData.getEnabledChannels(), length * aCount );
+  }
+
+  /**
+   * Loads and repeats the Asm45 test data.
+   */
+  @Setup
+  public void setUp() throws Exception
+  {
+    final AcquisitionResult data = DataTestUtils.getCapturedData( ResourceUtils.getResource(
+        Asm45AnalyserBenchmark.class, "asm45_test.ols" ) );
+
+    this.context = DataTestUtils.createToolContext( repeat( data, this.repeatCount ) );
+    this.workers = ( this.parallelism > 0 ) ? this.parallelism : Runtime.getRuntime().availableProcessors();
+
+    if ( this.workers > 1 )
+    {
+      this.executor = Executors.newFixedThreadPool( this.workers );
+      this.taskExecutionService = new TaskExecutionService()
+      {
+        @Override
+        public int cancelGroup( final Object aGroup )
+        {
+          return 0;
+        }
+
+        @Override
+        public <RESULT_TYPE> Future<RESULT_TYPE> execute( final Task<RESULT_TYPE> aTask )
+        {
+          return Asm45AnalyserBenchmark.this.executor.submit( aTask );
+        }
+      };
+    }
+  }
+
+  /**
+   * Stops the workers, if any.
+   */
+  @TearDown
+  public void tearDown()
+  {
+    if ( this.executor != null )
+    {
+      this.executor.shutdownNow();
+    }
+  }
+
+  /**
+   * Benchmarks decoding the bus trace.
+   */
+  @Benchmark
+  public Object decode() throws Exception
+  {
+    final Asm45AnalyserTask task = Asm45Tasks.createTask( this.context, this.listener, this.workers );
+    task.setTaskExecutionService( this.taskExecutionService );
+    return task.call();
+  }
+
+  /**
+   * Benchmarks disassembling all possible instruction words.
+   */
+  @Benchmark
+  public int disassemble()
+  {
+    int length = 0;
+    for ( int opcode = 0; opcode < 0x10000; opcode++ )
+    {
+      this.buffer.setLength( 0 );
+      Asm45Tasks.appendInstruction( this.buffer, 0x1000, opcode );
+      length += this.buffer.length();
+    }
+    return length;
+  }
+}
@@ -0,0 +1,84 @@
+/*
+ * OpenBench LogicSniffer / SUMP project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ *
+ * Copyright (C) 2010-2011 - J.W. Janssen, http://www.lxtreme.nl
+ */
+package nl.lxtreme.ols.benchmark;
+
+
+import org.openjdk.jmh.results.format.*;
+import org.openjdk.jmh.runner.*;
+import org.openjdk.jmh.runner.options.*;
+
+
+/**
+ * Provides a main entry point for running all (or a selection of) benchmarks.
+ * <p>
+ * Accepts the same command line options as JMH itself, but writes the results
+ * as JSON to <tt>jmh-result.json</tt> unless specified otherwise (using the
+ * <tt>-rf</tt> and <tt>-rff</tt> options).
+ * </p>
+ */
+public final class BenchmarkMain
+{
+  // CONSTANTS
+
+  private static final String DEFAULT_RESULT_FILE = "jmh-result.json";
+
+  // CONSTRUCTORS
+
+  /**
+   * Creates a new {@link BenchmarkMain} instance.
+   */
+  private BenchmarkMain()
+  {
+    // Not used.
+  }
+
+  // METHODS
+
+  /**
+   * MAIN ENTRY POINT
+   *
+   * @param aArgs
+   *          the JMH command line arguments, cannot be <code>null</code>.
+   */
+  public static void main( final String[] aArgs ) throws Exception
+  {
+    final CommandLineOptions cmdLineOptions = new CommandLineOptions( aArgs );
+    if ( cmdLineOptions.shouldHelp() || cmdLineOptions.shouldList() || cmdLineOptions.shouldListProfilers()
+        || cmdLineOptions.shouldListResultFormats() )
+    {
+      // Let JMH handle all informational requests itself...
+      org.openjdk.jmh.Main.main( aArgs );
+      return;
+    }
+
+    final ChainedOptionsBuilder builder = new OptionsBuilder().parent( cmdLineOptions );
+    if ( !cmdLineOptions.getResultFormat().hasValue() )
+    {
+      builder.resultFormat( ResultFormatType.JSON );
+    }
+    if ( !cmdLineOptions.getResult().hasValue() )
+    {
+      builder.result( DEFAULT_RESULT_FILE );
+    }
+
+    new Runner( builder.build() ).run();
+  }
+}
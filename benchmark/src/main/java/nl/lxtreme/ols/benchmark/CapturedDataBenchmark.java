@@ -0,0 +1,183 @@
+/*
+ * OpenBench LogicSniffer / SUMP project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ *
+ * Copyright (C) 2010-2011 - J.W. Janssen, http://www.lxtreme.nl
+ */
+package nl.lxtreme.ols.benchmark;
+
+
+import java.util.*;
+import java.util.concurrent.*;
+
+import nl.lxtreme.ols.api.*;
+import nl.lxtreme.ols.api.data.*;
+
+import org.openjdk.jmh.annotations.*;
+
+
+/**
+ * Benchmarks the construction of, and sample lookups in, {@link CapturedData},
+ * with plain and compacted timestamps.
+ */
+@BenchmarkMode( Mode.Throughput )
+@OutputTimeUnit( TimeUnit.SECONDS )
+@Warmup( iterations = 5 )
+@Measurement( iterations = 5 )
+@Fork( 1 )
+@State( Scope.Benchmark )
+public class CapturedDataBenchmark
+{
+  // VARIABLES
+
+  @Param( { "65536", "1048576" } )
+  int sampleCount;
+
+  @Param( { "false", "true" } )
+  boolean compactTimestamps;
+
+  private int[] values;
+  private long[] timestamps;
+  private int[] rawValues;
+  private CapturedData data;
+  private long[] lookups;
+  private long[] sortedLookups;
+
+  // METHODS
+
+  /**
+   * Generates the sample data.
+   */
+  @Setup
+  public void setUp()
+  {
+    System.setProperty( "nl.lxtreme.ols.compact.timestamps", Boolean.toString( this.compactTimestamps ) );
+
+    final Random rnd = new Random( 42L );
+
+    this.values = new int[this.sampleCount];
+    this.timestamps = new long[this.sampleCount];
+    this.rawValues = new int[this.sampleCount];
+
+    long time = 0L;
+    for ( int i = 0; i < this.sampleCount; i++ )
+    {
+      this.values[i] = rnd.nextInt( 0x100 );
+      this.timestamps[i] = time;
+      this.rawValues[i] = ( rnd.nextInt( 8 ) == 0 ) ? rnd.nextInt( 0x100 ) : this.rawValues[Math.max( 0, i - 1 )];
+      time += 1 + rnd.nextInt( 16 );
+    }
+
+    this.data = new CapturedData( this.values, this.timestamps, Ols.NOT_AVAILABLE, 100000000, 8, 0xFF, time );
+
+    this.lookups = new long[1024];
+    for ( int i = 0; i < this.lookups.length; i++ )
+    {
+      this.lookups[i] = ( long )( rnd.nextDouble() * time );
+    }
+    this.sortedLookups = this.lookups.clone();
+    Arrays.sort( this.sortedLookups );
+  }
+
+  /**
+   * Benchmarks the construction from compressed (= timestamped) samples.
+   */
+  @Benchmark
+  public CapturedData createFromCompressedSamples()
+  {
+    return new CapturedData( this.values, this.timestamps, Ols.NOT_AVAILABLE, 100000000, 8, 0xFF, -1L );
+  }
+
+  /**
+   * Benchmarks the construction from uncompressed samples.
+   */
+  @Benchmark
+  public CapturedData createFromRawSamples()
+  {
+    return new CapturedData( this.rawValues, Ols.NOT_AVAILABLE, 100000000, 8, 0xFF );
+  }
+
+  /**
+   * Benchmarks {@link CapturedData#getSampleIndex(long)} for random
+   * timestamps.
+   */
+  @Benchmark
+  @OperationsPerInvocation( 1024 )
+  public int getSampleIndex()
+  {
+    int result = 0;
+    for ( long timestamp : this.lookups )
+    {
+      result += this.data.getSampleIndex( timestamp );
+    }
+    return result;
+  }
+
+  /**
+   * Benchmarks {@link CapturedData#getSampleIndex(long, int)} for increasing
+   * timestamps, using the previous result as hint, like decoders and
+   * scrolling do.
+   */
+  @Benchmark
+  @OperationsPerInvocation( 1024 )
+  public int getSampleIndexSequentially()
+  {
+    int result = 0;
+    int hint = 0;
+    for ( long timestamp : this.sortedLookups )
+    {
+      hint = this.data.getSampleIndex( timestamp, hint );
+      result += hint;
+    }
+    return result;
+  }
+
+  /**
+   * Benchmarks reading all timestamps one by one, like decoders do.
+   */
+  @Benchmark
+  public long readTimestampsSequentially()
+  {
+    final int size = this.data.getValues().length;
+
+    long result = 0L;
+    for ( int i = 0; i < size; i++ )
+    {
+      result += this.data.getTimestamp( i );
+    }
+    return result;
+  }
+
+  /**
+   * Benchmarks reading all timestamps of a (visible) range one by one, like
+   * the signal view does while painting.
+   */
+  @Benchmark
+  public long readVisibleTimestamps()
+  {
+    final int size = this.data.getValues().length;
+    final int start = size / 3;
+    final int end = Math.min( size, start + 4096 );
+
+    long result = 0L;
+    for ( int i = start; i < end; i++ )
+    {
+      result += this.data.getTimestamp( i );
+    }
+    return result;
+  }
+}
@@ -0,0 +1,128 @@
+/*
+ * OpenBench LogicSniffer / SUMP project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ *
+ * Copyright (C) 2010-2011 - J.W. Janssen, http://www.lxtreme.nl
+ */
+package nl.lxtreme.ols.benchmark;
+
+
+import java.io.*;
+import java.util.concurrent.*;
+
+import nl.lxtreme.ols.api.data.*;
+import nl.lxtreme.ols.api.data.export.*;
+import nl.lxtreme.ols.export.csv.*;
+import nl.lxtreme.ols.export.vcd.*;
+import nl.lxtreme.ols.test.data.*;
+
+import org.openjdk.jmh.annotations.*;
+
+
+/**
+ * Benchmarks the textual exporters.
+ */
+@BenchmarkMode( Mode.Throughput )
+@OutputTimeUnit( TimeUnit.SECONDS )
+@Warmup( iterations = 5 )
+@Measurement( iterations = 5 )
+@Fork( 1 )
+@State( Scope.Benchmark )
+public class ExporterBenchmark
+{
+  // INNER TYPES
+
+  /**
+   * Counts, but otherwise discards, all written bytes.
+   */
+  static final class CountingOutputStream extends OutputStream
+  {
+    // VARIABLES
+
+    long count;
+
+    // METHODS
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void write( final byte[] aBuffer, final int aOffset, final int aLength )
+    {
+      this.count += aLength;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void write( final int aByte )
+    {
+      this.count++;
+    }
+  }
+
+  // VARIABLES
+
+  @Param( { "65536", "524288" } )
+  int sampleCount;
+
+  private DataSet dataSet;
+  private Exporter csvExporter;
+  private Exporter vcdExporter;
+
+  // METHODS
+
+  /**
+   * Generates the data set to export.
+   */
+  @Setup
+  public void setUp()
+  {
+    this.dataSet = DataTestUtils.createStubDataSet( this.sampleCount, 8 );
+    this.csvExporter = new CsvExporter();
+    this.vcdExporter = new ValueChangeDumpExporter();
+  }
+
+  /**
+   * Benchmarks the CSV exporter.
+   */
+  @Benchmark
+  public long csv() throws IOException
+  {
+    return export( this.csvExporter );
+  }
+
+  /**
+   * Benchmarks the value change dump exporter.
+   */
+  @Benchmark
+  public long vcd() throws IOException
+  {
+    return export( this.vcdExporter );
+  }
+
+  /**
+   * Exports the data set with the given exporter.
+   */
+  private long export( final Exporter aExporter ) throws IOException
+  {
+    final CountingOutputStream out = new CountingOutputStream();
+    aExporter.export( this.dataSet, null, out );
+    return out.count;
+  }
+}
@@ -0,0 +1,87 @@
+/*
+ * OpenBench LogicSniffer / SUMP project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ *
+ * Copyright (C) 2010-2011 - J.W. Janssen, http://www.lxtreme.nl
+ */
+package nl.lxtreme.ols.benchmark;
+
+
+import java.io.*;
+import java.util.concurrent.*;
+
+import nl.lxtreme.ols.api.data.*;
+import nl.lxtreme.ols.client.project.impl.OlsDataHelper;
+import nl.lxtreme.ols.test.data.DataTestUtils;
+
+import org.openjdk.jmh.annotations.*;
+
+
+/**
+ * Benchmarks reading and writing of OLS data files.
+ */
+@BenchmarkMode( Mode.Throughput )
+@OutputTimeUnit( TimeUnit.SECONDS )
+@Warmup( iterations = 5 )
+@Measurement( iterations = 5 )
+@Fork( 1 )
+@State( Scope.Benchmark )
+public class OlsDataHelperBenchmark
+{
+  // VARIABLES
+
+  @Param( { "65536", "524288" } )
+  int sampleCount;
+
+  private DataSet dataSet;
+  private String serialized;
+
+  // METHODS
+
+  /**
+   * Generates the data set and its serialized form.
+   */
+  @Setup
+  public void setUp() throws IOException
+  {
+    this.dataSet = DataTestUtils.createStubDataSet( this.sampleCount, 8 );
+
+    final StringWriter writer = new StringWriter();
+    OlsDataHelper.write( this.dataSet, writer );
+    this.serialized = writer.toString();
+  }
+
+  /**
+   * Benchmarks {@link OlsDataHelper#read(Reader)}.
+   */
+  @Benchmark
+  public DataSet read() throws IOException
+  {
+    return OlsDataHelper.read( new StringReader( this.serialized ) );
+  }
+
+  /**
+   * Benchmarks {@link OlsDataHelper#write(DataSet, Writer)}.
+   */
+  @Benchmark
+  public int write() throws IOException
+  {
+    final StringWriter writer = new StringWriter( this.serialized.length() );
+    OlsDataHelper.write( this.dataSet, writer );
+    return writer.getBuffer().length();
+  }
+}
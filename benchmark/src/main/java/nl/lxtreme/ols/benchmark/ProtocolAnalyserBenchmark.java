@@ -0,0 +1,173 @@
+/*
+ * OpenBench LogicSniffer / SUMP project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ *
+ * Copyright (C) 2010-2011 - J.W. Janssen, http://www.lxtreme.nl
+ */
+package nl.lxtreme.ols.benchmark;
+
+
+import java.util.concurrent.*;
+
+import nl.lxtreme.ols.api.acquisition.*;
+import nl.lxtreme.ols.api.data.annotation.*;
+import nl.lxtreme.ols.api.tools.*;
+import nl.lxtreme.ols.device.test.*;
+import nl.lxtreme.ols.test.data.*;
+import nl.lxtreme.ols.tool.i2c.*;
+import nl.lxtreme.ols.tool.linedecoder.impl.*;
+import nl.lxtreme.ols.tool.linedecoder.impl.decoders.*;
+import nl.lxtreme.ols.tool.onewire.*;
+
+import org.openjdk.jmh.annotations.*;
+
+
+/**
+ * Benchmarks the protocol analyser tasks over generated signals.
+ */
+@BenchmarkMode( Mode.Throughput )
+@OutputTimeUnit( TimeUnit.SECONDS )
+@Warmup( iterations = 5 )
+@Measurement( iterations = 5 )
+@Fork( 1 )
+@State( Scope.Benchmark )
+public class ProtocolAnalyserBenchmark
+{
+  // INNER TYPES
+
+  /**
+   * Ignores all progress and annotations.
+   */
+  static final class NullListener implements ToolProgressListener, AnnotationListener
+  {
+    // METHODS
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void clearAnnotations()
+    {
+      // Nop
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void clearAnnotations( final int aChannelIdx )
+    {
+      // Nop
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void onAnnotation( final Annotation<?> aAnnotation )
+    {
+      // Nop
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void setProgress( final int aPercentage )
+    {
+      // Nop
+    }
+  }
+
+  // VARIABLES
+
+  @Param( { "256", "4096" } )
+  int payloadLength;
+
+  private final NullListener listener = new NullListener();
+
+  private ToolContext i2cContext;
+  private ToolContext oneWireContext;
+  private ToolContext manchesterContext;
+
+  // METHODS
+
+  /**
+   * Generates the signals to analyse.
+   */
+  @Setup
+  public void setUp()
+  {
+    final String payload = GeneratedCaptures.createPayload( this.payloadLength );
+
+    this.i2cContext = createContext( GeneratedCaptures.createI2CCapture( payload ) );
+    this.oneWireContext = createContext( GeneratedCaptures.createOneWireCapture( payload ) );
+    this.manchesterContext = createContext( GeneratedCaptures.createManchesterCapture( payload ) );
+  }
+
+  /**
+   * Benchmarks the I2C analyser.
+   */
+  @Benchmark
+  public Object i2c() throws Exception
+  {
+    final I2CAnalyserTask task = new I2CAnalyserTask( this.i2cContext, this.listener, this.listener );
+    task.setLineAIndex( GeneratedCaptures.I2C_SCL_CHANNEL );
+    task.setLineBIndex( GeneratedCaptures.I2C_SDA_CHANNEL );
+    task.setDetectSDA_SCL( false );
+    task.setReportACK( true );
+    task.setReportNACK( true );
+    task.setReportStart( true );
+    task.setReportStop( true );
+    return task.call();
+  }
+
+  /**
+   * Benchmarks the Manchester line decoder.
+   */
+  @Benchmark
+  public Object manchester() throws Exception
+  {
+    final LineDecoderTask task = new LineDecoderTask( this.manchesterContext, this.listener, this.listener );
+    task.setLineDecoder( new ManchesterLineDecoder() );
+    task.setChannels( new int[] { GeneratedCaptures.MANCHESTER_CHANNEL } );
+    task.setClockSpeed( GeneratedCaptures.MANCHESTER_CLOCK_SPEED );
+    task.setInverted( false );
+    task.setRecoverClock( false );
+    return task.call();
+  }
+
+  /**
+   * Benchmarks the 1-wire analyser.
+   */
+  @Benchmark
+  public Object oneWire() throws Exception
+  {
+    final OneWireAnalyserTask task = new OneWireAnalyserTask( this.oneWireContext, this.listener, this.listener );
+    // Standard bus mode is the default...
+    task.setOneWireLineIndex( GeneratedCaptures.ONE_WIRE_CHANNEL );
+    return task.call();
+  }
+
+  /**
+   * Creates a tool context spanning the entire given capture.
+   */
+  private static ToolContext createContext( final AcquisitionResult aCapture )
+  {
+    return DataTestUtils.createToolContext( aCapture, 0, aCapture.getValues().length - 1 );
+  }
+}
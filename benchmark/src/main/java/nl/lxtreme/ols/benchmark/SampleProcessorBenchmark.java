@@ -0,0 +1,156 @@
+/*
+ * OpenBench LogicSniffer / SUMP project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ *
+ * Copyright (C) 2010-2011 - J.W. Janssen, http://www.lxtreme.nl
+ */
+package nl.lxtreme.ols.benchmark;
+
+
+import java.util.*;
+import java.util.concurrent.*;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.*;
+import org.sump.device.logicsniffer.*;
+import org.sump.device.logicsniffer.sampleprocessor.*;
+
+
+/**
+ * Benchmarks the decoding of raw (RLE-encoded) samples as read from a
+ * LogicSniffer device.
+ */
+@BenchmarkMode( Mode.Throughput )
+@OutputTimeUnit( TimeUnit.SECONDS )
+@Warmup( iterations = 5 )
+@Measurement( iterations = 5 )
+@Fork( 1 )
+@State( Scope.Benchmark )
+public class SampleProcessorBenchmark
+{
+  // INNER TYPES
+
+  /**
+   * Passes all decoded samples to a black hole.
+   */
+  static final class BlackholeCallback implements SampleProcessorCallback
+  {
+    // VARIABLES
+
+    private final Blackhole blackhole;
+
+    // CONSTRUCTORS
+
+    /**
+     * Creates a new {@link BlackholeCallback} instance.
+     */
+    BlackholeCallback( final Blackhole aBlackhole )
+    {
+      this.blackhole = aBlackhole;
+    }
+
+    // METHODS
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void addValue( final int aSampleValue, final long aTimestamp )
+    {
+      this.blackhole.consume( aSampleValue );
+      this.blackhole.consume( aTimestamp );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void ready( final long aAbsoluteLength, final long aTriggerPosition )
+    {
+      this.blackhole.consume( aAbsoluteLength );
+    }
+  }
+
+  // VARIABLES
+
+  @Param( { "65536", "1048576" } )
+  int sampleCount;
+
+  private LogicSnifferConfig config;
+  private int[] rleBuffer;
+  private int[] rawBuffer;
+
+  // METHODS
+
+  /**
+   * Generates the raw sample buffers.
+   */
+  @Setup
+  public void setUp()
+  {
+    this.config = new LogicSnifferConfig();
+    this.config.setSampleRate( 100000000 );
+    this.config.setEnabledChannels( 0xFF );
+    this.config.setRleEnabled( true );
+
+    final Random rnd = new Random( 42L );
+
+    // 8-bit RLE: each sample value (MSB clear) is followed by a count (MSB set)
+    this.rleBuffer = new int[this.sampleCount];
+    for ( int i = 0; i < this.sampleCount; i++ )
+    {
+      if ( ( i % 2 ) == 0 )
+      {
+        this.rleBuffer[i] = rnd.nextInt( 0x80 );
+      }
+      else
+      {
+        this.rleBuffer[i] = 0x80 | rnd.nextInt( 0x80 );
+      }
+    }
+
+    // Slowly changing samples, as seen on most real-world signals...
+    this.rawBuffer = new int[this.sampleCount];
+    int value = 0;
+    for ( int i = 0; i < this.sampleCount; i++ )
+    {
+      if ( rnd.nextInt( 16 ) == 0 )
+      {
+        value = rnd.nextInt( 0x100 );
+      }
+      this.rawBuffer[i] = value;
+    }
+  }
+
+  /**
+   * Benchmarks {@link EqualityFilter}.
+   */
+  @Benchmark
+  public void equalityFilter( final Blackhole aBlackhole )
+  {
+    new EqualityFilter( this.config, this.rawBuffer, 0, new BlackholeCallback( aBlackhole ) ).process();
+  }
+
+  /**
+   * Benchmarks {@link RleDecoder}.
+   */
+  @Benchmark
+  public void rleDecoder( final Blackhole aBlackhole )
+  {
+    new RleDecoder( this.config, this.rleBuffer, 0, new BlackholeCallback( aBlackhole ) ).process();
+  }
+}
@@ -0,0 +1,147 @@
+/*
+ * OpenBench LogicSniffer / SUMP project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ *
+ * Copyright (C) 2010-2011 - J.W. Janssen, http://www.lxtreme.nl
+ */
+package nl.lxtreme.ols.benchmark;
+
+
+import java.io.*;
+import java.net.*;
+import java.util.concurrent.*;
+
+import javax.microedition.io.*;
+
+import nl.lxtreme.ols.io.socket.*;
+
+import org.openjdk.jmh.annotations.*;
+import org.osgi.service.io.*;
+
+
+/**
+ * Benchmarks bulk reads of sample data from a loopback socket, comparing the
+ * (NIO) socket channel connection with the plain socket connection.
+ * <p>
+ * Each operation reads {@value #CHUNK_SIZE} bytes, like the LogicSniffer
+ * acquisition reads its sample buffer.
+ * </p>
+ */
+@BenchmarkMode( Mode.Throughput )
+@OutputTimeUnit( TimeUnit.SECONDS )
+@Warmup( iterations = 5 )
+@Measurement( iterations = 5 )
+@Fork( 1 )
+@State( Scope.Benchmark )
+public class SocketReadBenchmark
+{
+  // CONSTANTS
+
+  static final int CHUNK_SIZE = 1024 * 1024;
+
+  // VARIABLES
+
+  @Param( { "true", "false" } )
+  boolean nio;
+
+  @Param( { "0", "1048576" } )
+  int rcvbuf;
+
+  private ServerSocket serverSocket;
+  private Thread serverThread;
+  private StreamConnection connection;
+  private InputStream inputStream;
+  private byte[] rawData;
+
+  // METHODS
+
+  /**
+   * Starts a loopback server that endlessly writes data, and connects to it.
+   */
+  @Setup
+  public void setUp() throws IOException
+  {
+    this.serverSocket = new ServerSocket( 0, 1, InetAddress.getByName( "127.0.0.1" ) );
+    this.serverThread = new Thread( "Loopback server" )
+    {
+      @Override
+      public void run()
+      {
+        try
+        {
+          final Socket socket = SocketReadBenchmark.this.serverSocket.accept();
+          try
+          {
+            final OutputStream os = socket.getOutputStream();
+            final byte[] chunk = new byte[64 * 1024];
+            while ( !isInterrupted() )
+            {
+              os.write( chunk );
+            }
+          }
+          finally
+          {
+            socket.close();
+          }
+        }
+        catch ( IOException exception )
+        {
+          // Connection closed; we're done...
+        }
+      }
+    };
+    this.serverThread.setDaemon( true );
+    this.serverThread.start();
+
+    this.connection = ( StreamConnection )new SocketConnectionFactory().createConnection( "socket://127.0.0.1:"
+        + this.serverSocket.getLocalPort() + ";timeout=5000;rcvbuf=" + this.rcvbuf + ";nio=" + this.nio,
+        ConnectorService.READ_WRITE, true /* aTimeouts */);
+    this.inputStream = this.connection.openDataInputStream();
+    this.rawData = new byte[CHUNK_SIZE];
+  }
+
+  /**
+   * Closes the connection and stops the loopback server.
+   */
+  @TearDown
+  public void tearDown() throws Exception
+  {
+    this.serverThread.interrupt();
+    this.connection.close();
+    this.serverSocket.close();
+    this.serverThread.join( 1000L );
+  }
+
+  /**
+   * Benchmarks reading a chunk of sample data.
+   */
+  @Benchmark
+  public int read() throws IOException
+  {
+    int offset = 0;
+    while ( offset < CHUNK_SIZE )
+    {
+      final int read = this.inputStream.read( this.rawData, offset, CHUNK_SIZE - offset );
+      if ( read < 0 )
+      {
+        throw new EOFException();
+      }
+      offset += read;
+    }
+    return this.rawData[offset - 1];
+  }
+}
@@ -0,0 +1,940 @@
+/*
+ * OpenBench LogicSniffer / SUMP project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ *
+ * Copyright (C) 2010-2012 - J.W. Janssen, http://www.lxtreme.nl
+ */
+package nl.lxtreme.ols.client.project.impl;
+
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.zip.*;
+
+import nl.lxtreme.ols.api.acquisition.*;
+import nl.lxtreme.ols.api.data.*;
+import nl.lxtreme.ols.api.task.*;
+
+
+/**
+ * Compresses and decompresses capture results in independent blocks, allowing
+ * all available cores to be used.
+ * <p>
+ * The compressed capture results are a single, regular, raw deflate stream with
+ * the same contents as written by {@link OlsDataHelper#write(DataSet, Writer)},
+ * so they can be stored as regular deflated ZIP entry. The stream is composed
+ * of blocks that each start at a byte boundary and do not refer to data of
+ * preceding blocks. The first block contains the header, the other blocks
+ * contain a fixed number of samples each. A separate block index describes the
+ * location of each block, allowing the blocks to be decompressed and parsed in
+ * parallel as well.
+ * </p>
+ * <p>
+ * The blocks are submitted to the task execution service, while the calling
+ * thread processes all blocks that no worker has started yet. Hence, the
+ * calling thread always does its share of the work, and never waits for
+ * blocks that are still queued, which also makes it safe to use the codec from
+ * a task of the task execution service itself.
+ * </p>
+ */
+final class CaptureBlockCodec
+{
+  // INNER TYPES
+
+  /**
+   * Describes the location of all blocks in the compressed capture results.
+   */
+  static final class BlockIndex
+  {
+    // CONSTANTS
+
+    private static final String VERSION = "2";
+
+    // VARIABLES
+
+    final int[] compressedSizes;
+    final int[] sizes;
+    final int[] sampleCounts;
+    final long[] crcs;
+    final long crc;
+
+    // CONSTRUCTORS
+
+    /**
+     * Creates a new {@link BlockIndex} instance.
+     */
+    BlockIndex( final int[] aCompressedSizes, final int[] aSizes, final int[] aSampleCounts, final long[] aCRCs,
+        final long aCRC )
+    {
+      this.compressedSizes = aCompressedSizes;
+      this.sizes = aSizes;
+      this.sampleCounts = aSampleCounts;
+      this.crcs = aCRCs;
+      this.crc = aCRC;
+    }
+
+    // METHODS
+
+    /**
+     * Reads a block index from the given input stream.
+     *
+     * @param aInput
+     *          the input stream to read from, cannot be <code>null</code>.
+     * @return the read block index, never <code>null</code>.
+     * @throws IOException
+     *           in case of I/O problems, or an invalid block index.
+     */
+    static BlockIndex read( final InputStream aInput ) throws IOException
+    {
+      final BufferedReader reader = new BufferedReader( new InputStreamReader( aInput, "US-ASCII" ) );
+
+      try
+      {
+        if ( !VERSION.equals( reader.readLine() ) )
+        {
+          throw new IOException( "Unsupported block index!" );
+        }
+
+        final String header = reader.readLine();
+        final String[] headerParts = ( header == null ) ? new String[0] : header.split( " " );
+        if ( headerParts.length != 2 )
+        {
+          throw new IOException( "Invalid block index!" );
+        }
+
+        final int count = Integer.parseInt( headerParts[0] );
+        final long crc = Long.parseLong( headerParts[1] );
+        if ( ( count < 1 ) || ( crc < 0L ) || ( crc > 0xFFFFFFFFL ) )
+        {
+          throw new IOException( "Invalid block index!" );
+        }
+
+        final int[] compressedSizes = new int[count];
+        final int[] sizes = new int[count];
+        final int[] sampleCounts = new int[count];
+        final long[] crcs = new long[count];
+
+        for ( int i = 0; i < count; i++ )
+        {
+          final String line = reader.readLine();
+          if ( line == null )
+          {
+            throw new IOException( "Invalid block index!" );
+          }
+
+          final String[] parts = line.split( " " );
+          if ( parts.length != 4 )
+          {
+            throw new IOException( "Invalid block index!" );
+          }
+
+          compressedSizes[i] = Integer.parseInt( parts[0] );
+          sizes[i] = Integer.parseInt( parts[1] );
+          sampleCounts[i] = Integer.parseInt( parts[2] );
+          crcs[i] = Long.parseLong( parts[3] );
+
+          if ( ( compressedSizes[i] < 0 ) || ( sizes[i] < 0 ) || ( sampleCounts[i] < 0 ) || ( crcs[i] < 0L )
+              || ( crcs[i] > 0xFFFFFFFFL ) )
+          {
+            throw new IOException( "Invalid block index!" );
+          }
+        }
+
+        return new BlockIndex( compressedSizes, sizes, sampleCounts, crcs, crc );
+      }
+      catch ( NumberFormatException exception )
+      {
+        throw new IOException( "Invalid block index!", exception );
+      }
+    }
+
+    /**
+     * Returns the number of bytes of all compressed blocks.
+     *
+     * @return a size in bytes, >= 0.
+     */
+    long getCompressedSize()
+    {
+      long result = FINAL_BLOCK.length;
+      for ( int compressedSize : this.compressedSizes )
+      {
+        result += compressedSize;
+      }
+      return result;
+    }
+
+    /**
+     * Returns the number of bytes of all uncompressed blocks.
+     *
+     * @return a size in bytes, >= 0.
+     */
+    long getSize()
+    {
+      long result = 0L;
+      for ( int size : this.sizes )
+      {
+        result += size;
+      }
+      return result;
+    }
+
+    /**
+     * Returns the CRC-32 of all uncompressed blocks, as combined from the
+     * CRC-32 of each block.
+     *
+     * @return a CRC-32 checksum.
+     */
+    long getCombinedCRC()
+    {
+      long result = 0L;
+      for ( int i = 0; i < this.crcs.length; i++ )
+      {
+        result = combineCRC( result, this.crcs[i], this.sizes[i] );
+      }
+      return result;
+    }
+
+    /**
+     * Returns whether this block index describes the given compressed entry.
+     * <p>
+     * Both the sizes of each block and the CRC-32 of the entry should match
+     * those of all blocks together.
+     * </p>
+     *
+     * @param aEntry
+     *          the compressed entry to test, cannot be <code>null</code>.
+     * @return <code>true</code> if this block index matches the given entry,
+     *         <code>false</code> otherwise.
+     */
+    boolean matches( final CompressedEntry aEntry )
+    {
+      final int count = this.compressedSizes.length;
+      if ( aEntry.getBlockCount() != ( count + 1 ) )
+      {
+        return false;
+      }
+      for ( int i = 0; i < count; i++ )
+      {
+        if ( aEntry.getCompressedBlockSize( i ) != this.compressedSizes[i] )
+        {
+          return false;
+        }
+      }
+      return ( aEntry.getCompressedBlockSize( count ) == FINAL_BLOCK.length ) && ( getSize() == aEntry.getSize() )
+          && ( getCombinedCRC() == aEntry.getCRC() );
+    }
+
+    /**
+     * Returns whether this block index describes the given ZIP entry.
+     *
+     * @param aEntry
+     *          the ZIP entry to test, cannot be <code>null</code>.
+     * @return <code>true</code> if this block index matches the sizes and
+     *         CRC-32 of the given entry, <code>false</code> otherwise.
+     */
+    boolean matches( final ZipEntry aEntry )
+    {
+      return ( getCompressedSize() == aEntry.getCompressedSize() ) && ( getSize() == aEntry.getSize() )
+          && ( getCombinedCRC() == aEntry.getCrc() ) && ( this.crc == aEntry.getCrc() );
+    }
+
+    /**
+     * Reads the compressed blocks described by this block index from the given
+     * input stream.
+     *
+     * @param aInput
+     *          the input stream yielding the compressed capture results,
+     *          cannot be <code>null</code>.
+     * @return the compressed capture results, never <code>null</code>.
+     * @throws IOException
+     *           in case of I/O problems.
+     */
+    CompressedEntry readEntry( final InputStream aInput ) throws IOException
+    {
+      final int count = this.compressedSizes.length;
+      final byte[][] blocks = new byte[count + 1][];
+      for ( int i = 0; i < count; i++ )
+      {
+        blocks[i] = readBlock( aInput, this.compressedSizes[i] );
+      }
+      blocks[count] = readBlock( aInput, FINAL_BLOCK.length );
+      if ( !Arrays.equals( FINAL_BLOCK, blocks[count] ) )
+      {
+        throw new IOException( "Data file is corrupt?! Invalid end of capture results!" );
+      }
+
+      return new CompressedEntry( blocks, this.crc, getSize() );
+    }
+
+    /**
+     * Writes this block index to the given output stream.
+     *
+     * @param aOutput
+     *          the output stream to write to, cannot be <code>null</code>.
+     * @throws IOException
+     *           in case of I/O problems.
+     */
+    void write( final OutputStream aOutput ) throws IOException
+    {
+      final Writer writer = new OutputStreamWriter( aOutput, "US-ASCII" );
+
+      writer.write( VERSION );
+      writer.write( '\n' );
+      writer.write( Integer.toString( this.sizes.length ) );
+      writer.write( ' ' );
+      writer.write( Long.toString( this.crc ) );
+      writer.write( '\n' );
+      for ( int i = 0; i < this.sizes.length; i++ )
+      {
+        writer.write( Integer.toString( this.compressedSizes[i] ) );
+        writer.write( ' ' );
+        writer.write( Integer.toString( this.sizes[i] ) );
+        writer.write( ' ' );
+        writer.write( Integer.toString( this.sampleCounts[i] ) );
+        writer.write( ' ' );
+        writer.write( Long.toString( this.crcs[i] ) );
+        writer.write( '\n' );
+      }
+
+      writer.flush();
+    }
+  }
+
+  /**
+   * Reads a single compressed block of the given size.
+   */
+  static byte[] readBlock( final InputStream aInput, final int aSize ) throws IOException
+  {
+    final byte[] result = new byte[aSize];
+    int count = 0;
+    while ( count < aSize )
+    {
+      final int read = aInput.read( result, count, aSize - count );
+      if ( read < 0 )
+      {
+        throw new EOFException( "Unexpected end of capture results!" );
+      }
+      count += read;
+    }
+    return result;
+  }
+
+  /**
+   * Provides a single compressed block.
+   */
+  static final class Block
+  {
+    final byte[] data;
+    final int size;
+    final int sampleCount;
+    final long crc;
+
+    /**
+     * Creates a new {@link Block} instance.
+     */
+    Block( final byte[] aData, final int aSize, final int aSampleCount, final long aCRC )
+    {
+      this.data = aData;
+      this.size = aSize;
+      this.sampleCount = aSampleCount;
+      this.crc = aCRC;
+    }
+  }
+
+  /**
+   * Provides the result of compressing capture results.
+   */
+  static final class Result
+  {
+    final CompressedEntry entry;
+    final BlockIndex index;
+
+    /**
+     * Creates a new {@link Result} instance.
+     */
+    Result( final CompressedEntry aEntry, final BlockIndex aIndex )
+    {
+      this.entry = aEntry;
+      this.index = aIndex;
+    }
+  }
+
+  /**
+   * Callback for reporting the progress of decompressing capture results.
+   */
+  static interface ProgressListener
+  {
+    /**
+     * Called when the progress changes.
+     *
+     * @param aPercentage
+     *          the progress, 0..100.
+     */
+    void setProgress( int aPercentage );
+  }
+
+  // CONSTANTS
+
+  /** The number of samples stored in a single block. */
+  static final int SAMPLES_PER_BLOCK = 32768;
+
+  /** An empty, final, fixed-Huffman deflate block. */
+  private static final byte[] FINAL_BLOCK = { 0x03, 0x00 };
+
+  private static final byte[] HEX_DIGITS = "0123456789abcdef".getBytes();
+
+  // VARIABLES
+
+  private final TaskExecutionService taskExecutionService;
+  private final TaskPriority priority;
+
+  // CONSTRUCTORS
+
+  /**
+   * Creates a new {@link CaptureBlockCodec} instance.
+   *
+   * @param aTaskExecutionService
+   *          the task execution service used to compress and decompress the
+   *          blocks, can be <code>null</code> in which case all blocks are
+   *          compressed and decompressed by the calling thread;
+   * @param aPriority
+   *          the priority to compress and decompress the blocks with, for
+   *          example, {@link TaskPriority#INTERACTIVE} when a user is waiting
+   *          for the result, cannot be <code>null</code>.
+   */
+  public CaptureBlockCodec( final TaskExecutionService aTaskExecutionService, final TaskPriority aPriority )
+  {
+    this.taskExecutionService = aTaskExecutionService;
+    this.priority = aPriority;
+  }
+
+  // METHODS
+
+  /**
+   * Combines two CRC-32 checksums, as <tt>crc32_combine</tt> of zlib does.
+   *
+   * @param aCRC1
+   *          the CRC-32 of the first part;
+   * @param aCRC2
+   *          the CRC-32 of the second part;
+   * @param aLength2
+   *          the length of the second part, in bytes.
+   * @return the CRC-32 of both parts.
+   */
+  static long combineCRC( final long aCRC1, final long aCRC2, final long aLength2 )
+  {
+    if ( aLength2 <= 0 )
+    {
+      return aCRC1;
+    }
+
+    final long[] even = new long[32];
+    final long[] odd = new long[32];
+
+    // Put operator for one zero bit in odd...
+    odd[0] = 0xedb88320L;
+    long row = 1L;
+    for ( int n = 1; n < 32; n++ )
+    {
+      odd[n] = row;
+      row <<= 1;
+    }
+
+    // Put operator for two zero bits in even, and four zero bits in odd...
+    gf2MatrixSquare( even, odd );
+    gf2MatrixSquare( odd, even );
+
+    long crc1 = aCRC1;
+    long len2 = aLength2;
+    do
+    {
+      // Apply zeros operator for this bit of len2...
+      gf2MatrixSquare( even, odd );
+      if ( ( len2 & 1 ) != 0 )
+      {
+        crc1 = gf2MatrixTimes( even, crc1 );
+      }
+      len2 >>= 1;
+      if ( len2 == 0 )
+      {
+        break;
+      }
+
+      gf2MatrixSquare( odd, even );
+      if ( ( len2 & 1 ) != 0 )
+      {
+        crc1 = gf2MatrixTimes( odd, crc1 );
+      }
+      len2 >>= 1;
+    }
+    while ( len2 != 0 );
+
+    return crc1 ^ aCRC2;
+  }
+
+  /**
+   * Compresses the given data into a single block, ending at a byte boundary.
+   */
+  static byte[] deflate( final byte[] aData, final int aLength )
+  {
+    final Deflater deflater = new Deflater( Deflater.DEFAULT_COMPRESSION, true /* nowrap */);
+    try
+    {
+      final ByteArrayOutputStream baos = new ByteArrayOutputStream( Math.max( 64, aLength / 4 ) );
+      final byte[] buffer = new byte[8192];
+
+      deflater.setInput( aData, 0, aLength );
+
+      int len;
+      do
+      {
+        // Flush all pending output, ending at a byte boundary; this does not
+        // finish the deflate stream, allowing blocks to be concatenated...
+        len = deflater.deflate( buffer, 0, buffer.length, Deflater.SYNC_FLUSH );
+        baos.write( buffer, 0, len );
+      }
+      while ( len == buffer.length );
+
+      return baos.toByteArray();
+    }
+    finally
+    {
+      deflater.end();
+    }
+  }
+
+  /**
+   * Formats the given samples in the same way as
+   * {@link OlsDataHelper#formatSample(int, long)} does, each on its own line.
+   */
+  static byte[] formatSamples( final int[] aValues, final long[] aTimestamps, final int aFrom, final int aTo )
+  {
+    // 8 hex digits, @, at most 19 decimal digits, and a newline...
+    final byte[] result = new byte[( aTo - aFrom ) * 29];
+    final byte[] digits = new byte[19];
+
+    int pos = 0;
+    for ( int i = aFrom; i < aTo; i++ )
+    {
+      final int value = aValues[i];
+      for ( int shift = 28; shift >= 0; shift -= 4 )
+      {
+        result[pos++] = HEX_DIGITS[( value >>> shift ) & 0x0F];
+      }
+
+      result[pos++] = '@';
+
+      long timestamp = aTimestamps[i] & Long.MAX_VALUE;
+      int digitCount = 0;
+      do
+      {
+        digits[digitCount++] = ( byte )( '0' + ( timestamp % 10L ) );
+        timestamp /= 10L;
+      }
+      while ( timestamp > 0L );
+      while ( digitCount > 0 )
+      {
+        result[pos++] = digits[--digitCount];
+      }
+
+      result[pos++] = '\n';
+    }
+
+    return Arrays.copyOf( result, pos );
+  }
+
+  /**
+   * Parses the samples formatted by
+   * {@link #formatSamples(int[], long[], int, int)}.
+   *
+   * @return the number of parsed samples.
+   */
+  static int parseSamples( final byte[] aData, final int[] aValues, final long[] aTimestamps, final int aOffset,
+      final int aCount ) throws IOException
+  {
+    int idx = aOffset;
+    final int end = aOffset + aCount;
+
+    int pos = 0;
+    while ( pos < aData.length )
+    {
+      final byte first = aData[pos];
+      if ( ( first == '\n' ) || ( first == '\r' ) )
+      {
+        pos++;
+        continue;
+      }
+      if ( idx >= end )
+      {
+        throw new IOException( "Data file is corrupt?! Data size does not match sample count!" );
+      }
+
+      long value = 0L;
+      int digitCount = 0;
+      byte ch;
+      while ( ( pos < aData.length ) && ( ( ch = aData[pos] ) != '@' ) )
+      {
+        final int digit = Character.digit( ch, 16 );
+        if ( ( digit < 0 ) || ( ++digitCount > 8 ) )
+        {
+          throw new IOException( "Invalid data encountered." );
+        }
+        value = ( value << 4 ) | digit;
+        pos++;
+      }
+      if ( ( digitCount == 0 ) || ( pos >= aData.length ) )
+      {
+        throw new IOException( "Invalid data encountered." );
+      }
+      pos++; // skip '@'
+
+      long timestamp = 0L;
+      digitCount = 0;
+      while ( ( pos < aData.length ) && ( ( ch = aData[pos] ) != '\n' ) && ( ch != '\r' ) )
+      {
+        if ( ( ch < '0' ) || ( ch > '9' ) || ( ++digitCount > 19 ) )
+        {
+          throw new IOException( "Invalid data encountered." );
+        }
+        timestamp = ( timestamp * 10L ) + ( ch - '0' );
+        pos++;
+      }
+      if ( digitCount == 0 )
+      {
+        throw new IOException( "Invalid data encountered." );
+      }
+
+      aValues[idx] = ( int )value;
+      aTimestamps[idx] = timestamp & Long.MAX_VALUE;
+      idx++;
+    }
+
+    return idx - aOffset;
+  }
+
+  /**
+   * Returns the result of the given block operation. In case no worker has
+   * started the block operation yet, it is run by the calling thread,
+   * otherwise this method waits for the worker to complete it.
+   */
+  private static <T> T await( final FutureTask<T> aOperation ) throws IOException
+  {
+    // Does nothing if a worker already started (or completed) it...
+    aOperation.run();
+
+    try
+    {
+      return aOperation.get();
+    }
+    catch ( InterruptedException exception )
+    {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException( "Interrupted while waiting for capture results!" );
+    }
+    catch ( ExecutionException exception )
+    {
+      final Throwable cause = exception.getCause();
+      if ( cause instanceof IOException )
+      {
+        throw ( IOException )cause;
+      }
+      if ( cause instanceof RuntimeException )
+      {
+        throw ( RuntimeException )cause;
+      }
+      throw new IOException( "Failed to process capture results!", cause );
+    }
+  }
+
+  /**
+   * Squares a GF(2) matrix.
+   */
+  private static void gf2MatrixSquare( final long[] aSquare, final long[] aMatrix )
+  {
+    for ( int n = 0; n < 32; n++ )
+    {
+      aSquare[n] = gf2MatrixTimes( aMatrix, aMatrix[n] );
+    }
+  }
+
+  /**
+   * Multiplies a GF(2) matrix with a vector.
+   */
+  private static long gf2MatrixTimes( final long[] aMatrix, final long aVector )
+  {
+    long sum = 0L;
+    long vec = aVector;
+    int i = 0;
+    while ( vec != 0 )
+    {
+      if ( ( vec & 1 ) != 0 )
+      {
+        sum ^= aMatrix[i];
+      }
+      vec >>= 1;
+      i++;
+    }
+    return sum;
+  }
+
+  /**
+   * Compresses the capture results of the given data set.
+   *
+   * @param aDataSet
+   *          the data set to compress the capture results for, cannot be
+   *          <code>null</code> and should have capture results.
+   * @return the compressed capture results and their block index, never
+   *         <code>null</code>.
+   * @throws IOException
+   *           in case of I/O problems.
+   */
+  public Result compress( final DataSet aDataSet ) throws IOException
+  {
+    final AcquisitionResult capturedData = aDataSet.getCapturedData();
+    final int[] values = capturedData.getValues();
+    final long[] timestamps = capturedData.getTimestamps();
+
+    final List<FutureTask<Block>> futures = new ArrayList<FutureTask<Block>>();
+
+    futures.add( submit( new Callable<Block>()
+    {
+      @Override
+      public Block call() throws Exception
+      {
+        final ByteArrayOutputStream baos = new ByteArrayOutputStream( 512 );
+        final Writer writer = new OutputStreamWriter( baos );
+        OlsDataHelper.writeHeader( aDataSet, writer );
+        writer.flush();
+
+        return createBlock( baos.toByteArray(), 0 );
+      }
+    } ) );
+
+    for ( int i = 0; i < values.length; i += SAMPLES_PER_BLOCK )
+    {
+      final int from = i;
+      final int to = Math.min( values.length, i + SAMPLES_PER_BLOCK );
+
+      futures.add( submit( new Callable<Block>()
+      {
+        @Override
+        public Block call() throws Exception
+        {
+          return createBlock( formatSamples( values, timestamps, from, to ), to - from );
+        }
+      } ) );
+    }
+
+    final int count = futures.size();
+    final int[] compressedSizes = new int[count];
+    final int[] sizes = new int[count];
+    final int[] sampleCounts = new int[count];
+    final long[] crcs = new long[count];
+
+    // The blocks are kept as-is, followed by the block ending the stream...
+    final byte[][] blocks = new byte[count + 1][];
+    long size = 0L;
+    long crc = 0L;
+
+    try
+    {
+      for ( int i = 0; i < count; i++ )
+      {
+        final Block block = await( futures.get( i ) );
+        blocks[i] = block.data;
+
+        compressedSizes[i] = block.data.length;
+        sizes[i] = block.size;
+        sampleCounts[i] = block.sampleCount;
+        crcs[i] = block.crc;
+
+        crc = combineCRC( crc, block.crc, block.size );
+        size += block.size;
+      }
+    }
+    finally
+    {
+      // Stop compressing on failures...
+      for ( FutureTask<Block> future : futures )
+      {
+        future.cancel( true );
+      }
+    }
+    blocks[count] = FINAL_BLOCK.clone();
+
+    final CompressedEntry entry = new CompressedEntry( blocks, crc, size );
+    return new Result( entry, new BlockIndex( compressedSizes, sizes, sampleCounts, crcs, crc ) );
+  }
+
+  /**
+   * Decompresses the given capture results.
+   *
+   * @param aEntry
+   *          the compressed capture results, cannot be <code>null</code>;
+   * @param aIndex
+   *          the block index of the compressed capture results, cannot be
+   *          <code>null</code>;
+   * @param aListener
+   *          the listener to report the progress to, cannot be
+   *          <code>null</code>.
+   * @return the decompressed capture results, never <code>null</code>.
+   * @throws IOException
+   *           in case of I/O problems, or invalid capture results.
+   */
+  public DataSetImpl decompress( final CompressedEntry aEntry, final BlockIndex aIndex,
+      final ProgressListener aListener ) throws IOException
+  {
+    if ( !aIndex.matches( aEntry ) )
+    {
+      throw new IOException( "Block index does not match capture results!" );
+    }
+
+    final int count = aIndex.sizes.length;
+
+    long sampleCount = 0L;
+    for ( int i = 1; i < count; i++ )
+    {
+      sampleCount += aIndex.sampleCounts[i];
+    }
+    if ( sampleCount > Integer.MAX_VALUE )
+    {
+      throw new IOException( "Data file is corrupt?! Too many samples!" );
+    }
+
+    final int[] values = new int[( int )sampleCount];
+    final long[] timestamps = new long[( int )sampleCount];
+
+    final List<FutureTask<byte[]>> futures = new ArrayList<FutureTask<byte[]>>( count );
+
+    int sampleOffset = 0;
+    for ( int i = 0; i < count; i++ )
+    {
+      final int block = i;
+      final int blockSize = aIndex.sizes[i];
+      final int blockSampleOffset = sampleOffset;
+      final int blockSampleCount = aIndex.sampleCounts[i];
+      final long blockCRC = aIndex.crcs[i];
+      final boolean header = ( i == 0 );
+
+      futures.add( submit( new Callable<byte[]>()
+      {
+        @Override
+        public byte[] call() throws Exception
+        {
+          final byte[] data = aEntry.inflate( block, blockSize );
+
+          final CRC32 crc = new CRC32();
+          crc.update( data, 0, data.length );
+          if ( crc.getValue() != blockCRC )
+          {
+            throw new ZipException( "Data file is corrupt?! CRC mismatch in capture results!" );
+          }
+
+          if ( header )
+          {
+            return data;
+          }
+
+          if ( parseSamples( data, values, timestamps, blockSampleOffset, blockSampleCount ) != blockSampleCount )
+          {
+            throw new IOException( "Data file is corrupt?! Data size does not match sample count!" );
+          }
+          return null;
+        }
+      } ) );
+
+      if ( !header )
+      {
+        sampleOffset += blockSampleCount;
+      }
+    }
+
+    try
+    {
+      final byte[] headerData = await( futures.get( 0 ) );
+      for ( int i = 1; i < count; i++ )
+      {
+        await( futures.get( i ) );
+        aListener.setProgress( ( int )( ( 100L * i ) / count ) );
+      }
+
+      return OlsDataHelper.read( new InputStreamReader( new ByteArrayInputStream( headerData ) ), values, timestamps );
+    }
+    finally
+    {
+      // Stop decompressing on failures...
+      for ( FutureTask<byte[]> future : futures )
+      {
+        future.cancel( true );
+      }
+    }
+  }
+
+  /**
+   * Creates a new block for the given data.
+   */
+  private Block createBlock( final byte[] aData, final int aSampleCount )
+  {
+    final CRC32 crc = new CRC32();
+    crc.update( aData, 0, aData.length );
+
+    return new Block( deflate( aData, aData.length ), aData.length, aSampleCount, crc.getValue() );
+  }
+
+  /**
+   * Submits the given block operation to the task execution service, if
+   * available.
+   *
+   * @param aOperation
+   *          the block operation to submit, cannot be <code>null</code>.
+   * @return the block operation, to be passed to {@link #await(FutureTask)}
+   *         for its result, never <code>null</code>.
+   */
+  private <T> FutureTask<T> submit( final Callable<T> aOperation )
+  {
+    final FutureTask<T> result = new FutureTask<T>( aOperation );
+
+    if ( this.taskExecutionService != null )
+    {
+      this.taskExecutionService.execute( new ScheduledTask<Void>()
+      {
+        @Override
+        public Void call() throws Exception
+        {
+          // Does nothing if the calling thread already started it...
+          result.run();
+          return null;
+        }
+
+        @Override
+        public Object getGroup()
+        {
+          return null;
+        }
+
+        @Override
+        public TaskPriority getPriority()
+        {
+          return CaptureBlockCodec.this.priority;
+        }
+      } );
+    }
+
+    return result;
+  }
+}
@@ -0,0 +1,775 @@
+/*
+ * OpenBench LogicSniffer / SUMP project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ *
+ * Copyright (C) 2010-2012 - J.W. Janssen, http://www.lxtreme.nl
+ */
+package nl.lxtreme.ols.client.project.impl;
+
+
+import java.lang.ref.*;
+import java.util.*;
+
+import nl.lxtreme.ols.api.acquisition.*;
+import nl.lxtreme.ols.api.data.*;
+import nl.lxtreme.ols.api.task.*;
+
+
+/**
+ * Provides a bounded history of acquisition results, keeping each result in a
+ * compressed form in memory.
+ * <p>
+ * Timestamps are stored as variable-length encoded deltas, while sample values
+ * are stored as indexes into a dictionary of unique values. The history is
+ * bounded by both a maximum number of entries and a memory budget; the oldest
+ * entries are evicted first. Identical acquisition results are stored only
+ * once.
+ * </p>
+ * <p>
+ * Compression is done as batch task of the task execution service, grouped by
+ * history, so clearing the history cancels any pending compression. Only in
+ * absence of this service, the thread adding the acquisition result compresses
+ * it directly. Until its compression is finished, an entry keeps its
+ * acquisition result as-is.
+ * </p>
+ */
+final class CaptureHistory
+{
+  // INNER TYPES
+
+  /**
+   * Denotes a single, compressed, acquisition result.
+   */
+  static final class CompressedCapture
+  {
+    // VARIABLES
+
+    private final long absoluteLength;
+    private final int channels;
+    private final int enabledChannels;
+    private final int rate;
+    private final long triggerPosition;
+    private final int count;
+
+    private final int[] dictionary;
+    private final byte[] indices;
+    private final byte[] timestamps;
+    private final int hashCode;
+
+    private volatile Reference<AcquisitionResult> original;
+
+    // CONSTRUCTORS
+
+    /**
+     * Creates a new {@link CompressedCapture} instance.
+     *
+     * @param aResult
+     *          the acquisition result to compress, cannot be <code>null</code>
+     *          .
+     */
+    CompressedCapture( final AcquisitionResult aResult )
+    {
+      final int[] values = aResult.getValues();
+      final long[] ts = aResult.getTimestamps();
+
+      this.absoluteLength = aResult.getAbsoluteLength();
+      this.channels = aResult.getChannels();
+      this.enabledChannels = aResult.getEnabledChannels();
+      this.rate = aResult.getSampleRate();
+      this.triggerPosition = aResult.getTriggerPosition();
+      this.count = values.length;
+
+      this.dictionary = createDictionary( values );
+      this.indices = encodeValues( this.dictionary, values );
+      this.timestamps = encodeTimestamps( ts );
+
+      int hash = 31 + this.count;
+      hash = 31 * hash + Arrays.hashCode( this.dictionary );
+      hash = 31 * hash + Arrays.hashCode( this.indices );
+      hash = 31 * hash + Arrays.hashCode( this.timestamps );
+      this.hashCode = hash;
+
+      this.original = new SoftReference<AcquisitionResult>( aResult );
+    }
+
+    // METHODS
+
+    /**
+     * Creates a sorted array of all unique values.
+     */
+    private static int[] createDictionary( final int[] aValues )
+    {
+      final int[] sorted = Arrays.copyOf( aValues, aValues.length );
+      Arrays.sort( sorted );
+
+      int unique = 0;
+      for ( int i = 0; i < sorted.length; i++ )
+      {
+        if ( ( i == 0 ) || ( sorted[i] != sorted[unique - 1] ) )
+        {
+          sorted[unique++] = sorted[i];
+        }
+      }
+      return Arrays.copyOf( sorted, unique );
+    }
+
+    /**
+     * Decodes the given delta-encoded timestamps.
+     */
+    private static long[] decodeTimestamps( final byte[] aData, final int aCount )
+    {
+      final long[] result = new long[aCount];
+
+      long last = 0L;
+      for ( int i = 0, pos = 0; i < aCount; i++ )
+      {
+        long zigzag = 0L;
+        int shift = 0;
+        int b;
+        do
+        {
+          b = aData[pos++];
+          zigzag |= ( long )( b & 0x7F ) << shift;
+          shift += 7;
+        }
+        while ( ( b & 0x80 ) != 0 );
+
+        last += ( zigzag >>> 1 ) ^ -( zigzag & 1L );
+        result[i] = last;
+      }
+
+      return result;
+    }
+
+    /**
+     * Decodes the given dictionary-encoded values.
+     */
+    private static int[] decodeValues( final int[] aDictionary, final byte[] aIndices, final int aCount )
+    {
+      final int[] result = new int[aCount];
+      final int width = getIndexWidth( aDictionary.length );
+      for ( int i = 0, pos = 0; i < aCount; i++ )
+      {
+        int idx = 0;
+        for ( int j = 0; j < width; j++ )
+        {
+          idx = ( idx << 8 ) | ( aIndices[pos++] & 0xFF );
+        }
+        result[i] = aDictionary[idx];
+      }
+      return result;
+    }
+
+    /**
+     * Encodes the given timestamps as zig-zag, variable-length, deltas.
+     */
+    private static byte[] encodeTimestamps( final long[] aTimestamps )
+    {
+      byte[] result = new byte[Math.max( 16, aTimestamps.length + ( aTimestamps.length >> 1 ) )];
+      int pos = 0;
+
+      long last = 0L;
+      for ( long timestamp : aTimestamps )
+      {
+        final long delta = timestamp - last;
+        long zigzag = ( delta << 1 ) ^ ( delta >> 63 );
+        last = timestamp;
+
+        // A long never needs more than 10 bytes...
+        if ( ( pos + 10 ) > result.length )
+        {
+          result = Arrays.copyOf( result, result.length << 1 );
+        }
+
+        while ( ( zigzag & ~0x7FL ) != 0L )
+        {
+          result[pos++] = ( byte )( ( zigzag & 0x7F ) | 0x80 );
+          zigzag >>>= 7;
+        }
+        result[pos++] = ( byte )zigzag;
+      }
+
+      return Arrays.copyOf( result, pos );
+    }
+
+    /**
+     * Encodes the given values as indexes in the given dictionary.
+     */
+    private static byte[] encodeValues( final int[] aDictionary, final int[] aValues )
+    {
+      final int width = getIndexWidth( aDictionary.length );
+      final byte[] result = new byte[aValues.length * width];
+      for ( int i = 0, pos = 0; i < aValues.length; i++ )
+      {
+        final int idx = Arrays.binarySearch( aDictionary, aValues[i] );
+        for ( int j = width - 1; j >= 0; j-- )
+        {
+          result[pos++] = ( byte )( idx >>> ( j << 3 ) );
+        }
+      }
+      return result;
+    }
+
+    /**
+     * Returns the number of bytes needed to address a dictionary of the given
+     * size.
+     */
+    private static int getIndexWidth( final int aDictionarySize )
+    {
+      if ( aDictionarySize <= ( 1 << 8 ) )
+      {
+        return 1;
+      }
+      else if ( aDictionarySize <= ( 1 << 16 ) )
+      {
+        return 2;
+      }
+      else if ( aDictionarySize <= ( 1 << 24 ) )
+      {
+        return 3;
+      }
+      return 4;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean equals( final Object aObject )
+    {
+      if ( this == aObject )
+      {
+        return true;
+      }
+      if ( !( aObject instanceof CompressedCapture ) )
+      {
+        return false;
+      }
+
+      final CompressedCapture other = ( CompressedCapture )aObject;
+      return ( this.hashCode == other.hashCode ) && ( this.count == other.count )
+          && ( this.absoluteLength == other.absoluteLength ) && ( this.channels == other.channels )
+          && ( this.enabledChannels == other.enabledChannels ) && ( this.rate == other.rate )
+          && ( this.triggerPosition == other.triggerPosition ) && Arrays.equals( this.dictionary, other.dictionary )
+          && Arrays.equals( this.indices, other.indices ) && Arrays.equals( this.timestamps, other.timestamps );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int hashCode()
+    {
+      return this.hashCode;
+    }
+
+    /**
+     * Returns the least number of bytes a compressed capture of the given
+     * number of samples can occupy in memory, which is at least one byte per
+     * sample value and one byte per timestamp.
+     *
+     * @param aCount
+     *          the number of samples, >= 0.
+     * @return a size, in bytes.
+     */
+    static long getMinimumMemorySize( final int aCount )
+    {
+      return 68L + ( 2L * aCount );
+    }
+
+    /**
+     * Decodes this compressed capture into a new acquisition result.
+     *
+     * @return a new acquisition result, never <code>null</code>.
+     */
+    AcquisitionResult decode()
+    {
+      final int[] values = decodeValues( this.dictionary, this.indices, this.count );
+      final long[] ts = decodeTimestamps( this.timestamps, this.count );
+
+      return new CapturedData( values, ts, this.triggerPosition, this.rate, this.channels, this.enabledChannels,
+          this.absoluteLength );
+    }
+
+    /**
+     * Returns the acquisition result represented by this compressed capture.
+     * <p>
+     * As long as the original acquisition result is still (softly) reachable,
+     * it is returned directly; otherwise it is decoded.
+     * </p>
+     *
+     * @return an acquisition result, never <code>null</code>.
+     */
+    AcquisitionResult decompress()
+    {
+      AcquisitionResult result = this.original.get();
+      if ( result == null )
+      {
+        result = decode();
+
+        this.original = new SoftReference<AcquisitionResult>( result );
+      }
+      return result;
+    }
+
+    /**
+     * Returns the (approximate) number of bytes this compressed capture
+     * occupies in memory.
+     *
+     * @return a size, in bytes.
+     */
+    long getMemorySize()
+    {
+      return 64L + ( this.dictionary.length * 4L ) + this.indices.length + this.timestamps.length;
+    }
+  }
+
+  /**
+   * Denotes a single entry of the history, which is either still pending
+   * compression or compressed.
+   */
+  static final class Entry
+  {
+    // VARIABLES
+
+    private final long minimumSize;
+
+    private AcquisitionResult pending;
+    private CompressedCapture capture;
+
+    // CONSTRUCTORS
+
+    /**
+     * Creates a new, pending, {@link Entry} instance.
+     *
+     * @param aResult
+     *          the acquisition result to compress, cannot be <code>null</code>
+     *          .
+     */
+    Entry( final AcquisitionResult aResult )
+    {
+      this.pending = aResult;
+      this.minimumSize = CompressedCapture.getMinimumMemorySize( aResult.getValues().length );
+    }
+
+    // METHODS
+
+    /**
+     * Returns the acquisition result of this entry.
+     *
+     * @return an acquisition result, never <code>null</code>.
+     */
+    AcquisitionResult get()
+    {
+      if ( this.pending != null )
+      {
+        return this.pending;
+      }
+      return this.capture.decompress();
+    }
+
+    /**
+     * Returns the (approximate) number of bytes this entry occupies in memory.
+     * For pending entries, the least size of their compressed form is used.
+     *
+     * @return a size, in bytes.
+     */
+    long getMemorySize()
+    {
+      if ( this.capture != null )
+      {
+        return this.capture.getMemorySize();
+      }
+      return this.minimumSize;
+    }
+
+    /**
+     * Returns whether this entry represents the given acquisition result
+     * instance.
+     *
+     * @param aResult
+     *          the acquisition result to test, cannot be <code>null</code>.
+     * @return <code>true</code> if this entry holds the given acquisition
+     *         result, <code>false</code> otherwise.
+     */
+    boolean holds( final AcquisitionResult aResult )
+    {
+      if ( this.pending != null )
+      {
+        return this.pending == aResult;
+      }
+      return this.capture.original.get() == aResult;
+    }
+  }
+
+  /**
+   * Compresses a single entry of the history.
+   */
+  final class CompressTask implements ScheduledTask<Void>
+  {
+    // VARIABLES
+
+    private final Entry entry;
+
+    // CONSTRUCTORS
+
+    /**
+     * Creates a new {@link CompressTask} instance.
+     */
+    CompressTask( final Entry aEntry )
+    {
+      this.entry = aEntry;
+    }
+
+    // METHODS
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Void call() throws Exception
+    {
+      compress( this.entry );
+      return null;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Object getGroup()
+    {
+      return CaptureHistory.this;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public TaskPriority getPriority()
+    {
+      return TaskPriority.BATCH;
+    }
+  }
+
+  // CONSTANTS
+
+  /** The default number of acquisition results to retain. */
+  static final int DEFAULT_CAPACITY = 10;
+  /** The default memory budget, in bytes, of the history. */
+  static final long DEFAULT_MEMORY_BUDGET = 64L * 1024L * 1024L;
+
+  // VARIABLES
+
+  private final int capacity;
+  private final long memoryBudget;
+  private final TaskExecutionService taskExecutionService;
+  private final LinkedList<Entry> entries;
+
+  private int selected;
+
+  // CONSTRUCTORS
+
+  /**
+   * Creates a new {@link CaptureHistory} instance with default settings.
+   */
+  public CaptureHistory()
+  {
+    this( DEFAULT_CAPACITY, DEFAULT_MEMORY_BUDGET );
+  }
+
+  /**
+   * Creates a new {@link CaptureHistory} instance.
+   *
+   * @param aCapacity
+   *          the maximum number of acquisition results to retain, > 0;
+   * @param aMemoryBudget
+   *          the maximum number of bytes to use for the retained acquisition
+   *          results, > 0.
+   */
+  public CaptureHistory( final int aCapacity, final long aMemoryBudget )
+  {
+    this( aCapacity, aMemoryBudget, null );
+  }
+
+  /**
+   * Creates a new {@link CaptureHistory} instance.
+   *
+   * @param aCapacity
+   *          the maximum number of acquisition results to retain, > 0;
+   * @param aMemoryBudget
+   *          the maximum number of bytes to use for the retained acquisition
+   *          results, > 0;
+   * @param aTaskExecutionService
+   *          the task execution service to compress the acquisition results
+   *          with, can be <code>null</code> to compress them directly.
+   */
+  CaptureHistory( final int aCapacity, final long aMemoryBudget, final TaskExecutionService aTaskExecutionService )
+  {
+    if ( aCapacity < 1 )
+    {
+      throw new IllegalArgumentException( "Capacity should be at least one!" );
+    }
+    if ( aMemoryBudget < 1L )
+    {
+      throw new IllegalArgumentException( "Memory budget should be positive!" );
+    }
+    this.capacity = aCapacity;
+    this.memoryBudget = aMemoryBudget;
+    this.taskExecutionService = aTaskExecutionService;
+    this.entries = new LinkedList<Entry>();
+    this.selected = -1;
+  }
+
+  // METHODS
+
+  /**
+   * Adds a given acquisition result as most recent entry to this history, and
+   * marks it as selected.
+   * <p>
+   * If the given result is already present in this history, it is moved to
+   * the front instead. Acquisition results that do not fit in the memory
+   * budget of this history are not retained at all. The compression of the
+   * given result is left to the task execution service; identical results
+   * that were added as different instances are deduplicated once compressed.
+   * </p>
+   *
+   * @param aResult
+   *          the acquisition result to add, can be <code>null</code>.
+   * @return <code>true</code> if the given result is retained in this history,
+   *         <code>false</code> otherwise.
+   */
+  public synchronized boolean add( final AcquisitionResult aResult )
+  {
+    if ( ( aResult == null ) || ( aResult.getValues() == null ) || ( aResult.getTimestamps() == null ) )
+    {
+      this.selected = -1;
+      return false;
+    }
+
+    // Do not bother compressing what never fits...
+    if ( CompressedCapture.getMinimumMemorySize( aResult.getValues().length ) > this.memoryBudget )
+    {
+      this.selected = -1;
+      return false;
+    }
+
+    Entry entry = null;
+    for ( Iterator<Entry> iter = this.entries.iterator(); ( entry == null ) && iter.hasNext(); )
+    {
+      final Entry candidate = iter.next();
+      if ( candidate.holds( aResult ) )
+      {
+        iter.remove();
+        entry = candidate;
+      }
+    }
+
+    final boolean compress = ( entry == null );
+    if ( compress )
+    {
+      entry = new Entry( aResult );
+    }
+
+    this.entries.addFirst( entry );
+    this.selected = 0;
+
+    evict();
+
+    if ( compress )
+    {
+      if ( this.taskExecutionService != null )
+      {
+        this.taskExecutionService.execute( new CompressTask( entry ) );
+      }
+      else
+      {
+        compress( entry );
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Removes all entries from this history.
+   */
+  public synchronized void clear()
+  {
+    if ( this.taskExecutionService != null )
+    {
+      // None of the pending compressions is of any use any longer...
+      this.taskExecutionService.cancelGroup( this );
+    }
+
+    this.entries.clear();
+    this.selected = -1;
+  }
+
+  /**
+   * Returns the acquisition result at the given index, without selecting it.
+   *
+   * @param aIndex
+   *          the index of the acquisition result, 0 being the most recent one.
+   * @return the acquisition result, never <code>null</code>.
+   * @throws IndexOutOfBoundsException
+   *           in case the given index is invalid.
+   */
+  public synchronized AcquisitionResult get( final int aIndex )
+  {
+    return this.entries.get( aIndex ).get();
+  }
+
+  /**
+   * Returns the (approximate) number of bytes used by this history.
+   *
+   * @return a memory size, in bytes, >= 0.
+   */
+  public synchronized long getMemorySize()
+  {
+    long result = 0L;
+    for ( Entry entry : this.entries )
+    {
+      result += entry.getMemorySize();
+    }
+    return result;
+  }
+
+  /**
+   * Returns the index of the selected entry.
+   *
+   * @return the selected index, or -1 if no entry is selected.
+   */
+  public synchronized int getSelectedIndex()
+  {
+    return this.selected;
+  }
+
+  /**
+   * Selects the acquisition result at the given index.
+   *
+   * @param aIndex
+   *          the index of the acquisition result, 0 being the most recent one.
+   * @return the selected acquisition result, never <code>null</code>.
+   * @throws IndexOutOfBoundsException
+   *           in case the given index is invalid.
+   */
+  public synchronized AcquisitionResult select( final int aIndex )
+  {
+    final AcquisitionResult result = get( aIndex );
+    this.selected = aIndex;
+    return result;
+  }
+
+  /**
+   * Returns the number of acquisition results in this history.
+   *
+   * @return a size, >= 0.
+   */
+  public synchronized int size()
+  {
+    return this.entries.size();
+  }
+
+  /**
+   * Compresses the given entry, and replaces its acquisition result by its
+   * compressed form. Runs as task of the task execution service.
+   *
+   * @param aEntry
+   *          the entry to compress, cannot be <code>null</code>.
+   */
+  final void compress( final Entry aEntry )
+  {
+    final AcquisitionResult result;
+    synchronized ( this )
+    {
+      // Evicted before it got compressed...
+      if ( !this.entries.contains( aEntry ) )
+      {
+        return;
+      }
+      result = aEntry.pending;
+    }
+
+    final CompressedCapture capture = new CompressedCapture( result );
+
+    synchronized ( this )
+    {
+      if ( !this.entries.contains( aEntry ) )
+      {
+        return;
+      }
+
+      aEntry.capture = capture;
+      aEntry.pending = null;
+
+      // Deduplicate identical captures, retaining the one just compressed...
+      for ( int i = this.entries.size() - 1; i >= 0; i-- )
+      {
+        final Entry other = this.entries.get( i );
+        if ( ( other != aEntry ) && capture.equals( other.capture ) )
+        {
+          final boolean wasSelected = ( this.selected == i );
+          remove( i );
+          if ( wasSelected )
+          {
+            this.selected = this.entries.indexOf( aEntry );
+          }
+        }
+      }
+
+      if ( capture.getMemorySize() > this.memoryBudget )
+      {
+        remove( this.entries.indexOf( aEntry ) );
+      }
+
+      evict();
+    }
+  }
+
+  /**
+   * Evicts the oldest entries until both the capacity and memory budget of
+   * this history are respected.
+   */
+  private void evict()
+  {
+    long size = getMemorySize();
+    while ( ( this.entries.size() > this.capacity ) || ( size > this.memoryBudget ) )
+    {
+      size -= remove( this.entries.size() - 1 ).getMemorySize();
+    }
+  }
+
+  /**
+   * Removes the entry at the given index, keeping the selected index in sync.
+   *
+   * @param aIndex
+   *          the index of the entry to remove.
+   * @return the removed entry, never <code>null</code>.
+   */
+  private Entry remove( final int aIndex )
+  {
+    if ( this.selected == aIndex )
+    {
+      this.selected = -1;
+    }
+    else if ( this.selected > aIndex )
+    {
+      this.selected--;
+    }
+    return this.entries.remove( aIndex );
+  }
+}
@@ -0,0 +1,234 @@
+/*
+ * OpenBench LogicSniffer / SUMP project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ *
+ * Copyright (C) 2010-2012 - J.W. Janssen, http://www.lxtreme.nl
+ */
+package nl.lxtreme.ols.client.project.impl;
+
+
+import java.io.*;
+import java.util.*;
+import java.util.zip.*;
+
+
+/**
+ * Denotes the raw-deflated contents of a single project entry, as it is stored
+ * in a project file.
+ * <p>
+ * A compressed entry is stored as-is in a project archive, without the need to
+ * compress its contents again. Its contents are kept as a sequence of
+ * individually inflatable blocks, followed by a block that ends the deflate
+ * stream, so no single array needs to hold the entire entry.
+ * </p>
+ */
+final class CompressedEntry
+{
+  // VARIABLES
+
+  private final byte[][] blocks;
+  private final long crc;
+  private final long size;
+
+  // CONSTRUCTORS
+
+  /**
+   * Creates a new {@link CompressedEntry} instance.
+   *
+   * @param aBlocks
+   *          the raw deflated blocks, the last one ending the deflate stream;
+   * @param aCRC
+   *          the CRC-32 of the uncompressed data;
+   * @param aSize
+   *          the size of the uncompressed data, in bytes.
+   */
+  CompressedEntry( final byte[][] aBlocks, final long aCRC, final long aSize )
+  {
+    this.blocks = aBlocks;
+    this.crc = aCRC;
+    this.size = aSize;
+  }
+
+  // METHODS
+
+  /**
+   * Wraps the given stream of raw-deflated data in a stream that yields the
+   * uncompressed data.
+   *
+   * @param aInput
+   *          the raw-deflated input stream, cannot be <code>null</code>.
+   * @return a new input stream, never <code>null</code>.
+   */
+  static InputStream inflate( final InputStream aInput )
+  {
+    return new InflaterInputStream( aInput, new Inflater( true /* nowrap */), 8192 )
+    {
+      @Override
+      public void close() throws IOException
+      {
+        try
+        {
+          super.close();
+        }
+        finally
+        {
+          this.inf.end();
+        }
+      }
+    };
+  }
+
+  /**
+   * Returns the number of blocks of this entry, including the block ending the
+   * deflate stream.
+   *
+   * @return a block count, > 0.
+   */
+  public int getBlockCount()
+  {
+    return this.blocks.length;
+  }
+
+  /**
+   * Returns the number of compressed bytes of the block with the given index.
+   *
+   * @param aBlock
+   *          the index of the block, >= 0 and < {@link #getBlockCount()}.
+   * @return a size in bytes, >= 0.
+   */
+  public int getCompressedBlockSize( final int aBlock )
+  {
+    return this.blocks[aBlock].length;
+  }
+
+  /**
+   * Returns the number of bytes of the compressed data.
+   *
+   * @return a size in bytes, >= 0.
+   */
+  public long getCompressedSize()
+  {
+    long result = 0L;
+    for ( byte[] block : this.blocks )
+    {
+      result += block.length;
+    }
+    return result;
+  }
+
+  /**
+   * Returns the CRC-32 checksum of the uncompressed data.
+   *
+   * @return a CRC-32 checksum.
+   */
+  public long getCRC()
+  {
+    return this.crc;
+  }
+
+  /**
+   * Returns the number of bytes of the uncompressed data.
+   *
+   * @return a size in bytes, >= 0.
+   */
+  public long getSize()
+  {
+    return this.size;
+  }
+
+  /**
+   * Decompresses a single block of this entry.
+   * <p>
+   * The block should not refer to data preceding it, as is the case for the
+   * blocks written by {@link CaptureBlockCodec}.
+   * </p>
+   *
+   * @param aBlock
+   *          the index of the block to decompress, >= 0;
+   * @param aSize
+   *          the size of the uncompressed block, >= 0.
+   * @return the uncompressed block, never <code>null</code>.
+   * @throws IOException
+   *           in case the block could not be decompressed.
+   */
+  public byte[] inflate( final int aBlock, final int aSize ) throws IOException
+  {
+    final byte[] result = new byte[aSize];
+    final byte[] data = this.blocks[aBlock];
+
+    final Inflater inflater = new Inflater( true /* nowrap */);
+    try
+    {
+      inflater.setInput( data, 0, data.length );
+
+      int count = 0;
+      while ( count < aSize )
+      {
+        final int len = inflater.inflate( result, count, aSize - count );
+        if ( len == 0 )
+        {
+          if ( inflater.finished() || inflater.needsInput() || inflater.needsDictionary() )
+          {
+            throw new EOFException( "Unexpected end of compressed data!" );
+          }
+        }
+        count += len;
+      }
+    }
+    catch ( DataFormatException exception )
+    {
+      throw new IOException( "Invalid compressed data!", exception );
+    }
+    finally
+    {
+      inflater.end();
+    }
+
+    return result;
+  }
+
+  /**
+   * Opens a stream that yields the uncompressed contents of this entry.
+   *
+   * @return a new input stream, never <code>null</code>.
+   */
+  public InputStream openStream()
+  {
+    final List<InputStream> streams = new ArrayList<InputStream>( this.blocks.length );
+    for ( byte[] block : this.blocks )
+    {
+      streams.add( new ByteArrayInputStream( block ) );
+    }
+    return inflate( new SequenceInputStream( Collections.enumeration( streams ) ) );
+  }
+
+  /**
+   * Writes the compressed data of this entry to the given output stream.
+   *
+   * @param aOutput
+   *          the output stream to write to, cannot be <code>null</code>.
+   * @throws IOException
+   *           in case of I/O problems.
+   */
+  public void writeTo( final OutputStream aOutput ) throws IOException
+  {
+    for ( byte[] block : this.blocks )
+    {
+      aOutput.write( block );
+    }
+  }
+}
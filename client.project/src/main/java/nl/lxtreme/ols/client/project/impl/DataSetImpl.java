@@ -182,6 +182,28 @@ public class DataSetImpl implements PropertyChangeListener, DataSet, ProjectProp
     this.propertyChangeSupport.firePropertyChange( PROPERTY_CURSORS_ENABLED, old, aEnabled );
   }
 
+  /**
+   * Takes the timestamps of the given cursors for all cursors of this data set
+   * that are not yet defined.
+   * 
+   * @param aCursors
+   *          the cursors to merge, cannot be <code>null</code>.
+   */
+  final void mergeCursors( final Cursor[] aCursors )
+  {
+    final long absLen = ( this.capturedData == null ) ? 0L : this.capturedData.getAbsoluteLength();
+
+    int cursorCount = Math.min( aCursors.length, this.cursors.length );
+    for ( int i = 0; i < cursorCount; i++ )
+    {
+      final Cursor cursor = aCursors[i];
+      if ( !this.cursors[i].isDefined() && cursor.isDefined() && ( cursor.getTimestamp() <= absLen ) )
+      {
+        this.cursors[i].setTimestamp( cursor.getTimestamp() );
+      }
+    }
+  }
+
   /**
    * Trims the channels to the same number as the captured data, using the
    * channel information of the given data set as template.
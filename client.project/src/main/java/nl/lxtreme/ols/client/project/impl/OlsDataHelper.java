@@ -58,8 +58,28 @@ public final class OlsDataHelper
    * @throws IOException
    *           in case of I/O problems.
    */
-  @SuppressWarnings( "boxing" )
   public static DataSetImpl read( final Reader aReader ) throws IOException
+  {
+    return read( aReader, null, null );
+  }
+
+  /**
+   * Reads the data from a given reader, using the given (already read) sample
+   * data.
+   * 
+   * @param aReader
+   *          the reader to read the data from, cannot be <code>null</code>;
+   * @param aValues
+   *          the already read sample values, or <code>null</code> if the
+   *          sample values are to be read from the given reader;
+   * @param aTimestamps
+   *          the already read sample timestamps, or <code>null</code> if the
+   *          sample timestamps are to be read from the given reader.
+   * @throws IOException
+   *           in case of I/O problems.
+   */
+  @SuppressWarnings( "boxing" )
+  static DataSetImpl read( final Reader aReader, final int[] aValues, final long[] aTimestamps ) throws IOException
   {
     int size = -1;
     Integer rate = null, channels = null, enabledChannels = null;
@@ -160,7 +180,12 @@ public final class OlsDataHelper
 
     // Perform some sanity checks, make it not possible to import invalid
     // data...
-    if ( dataValues.isEmpty() )
+    if ( ( aValues != null ) && !dataValues.isEmpty() )
+    {
+      throw new IOException( "Data file is corrupt?! Unexpected sample data found!" );
+    }
+    final int sampleCount = ( aValues != null ) ? aValues.length : dataValues.size();
+    if ( sampleCount == 0 )
     {
       throw new IOException( "Data file does not contain any sample data!" );
     }
@@ -172,9 +197,9 @@ public final class OlsDataHelper
     // take the length of the data values as size indicator...
     if ( size < 0 )
     {
-      size = dataValues.size();
+      size = sampleCount;
     }
-    if ( size != dataValues.size() )
+    if ( size != sampleCount )
     {
       throw new IOException( "Data file is corrupt?! Data size does not match sample count!" );
     }
@@ -193,12 +218,17 @@ public final class OlsDataHelper
       enabledChannels = -1; // = 0xffffffff
     }
 
-    int[] values = new int[size];
-    long[] timestamps = new long[size];
+    int[] values = aValues;
+    long[] timestamps = aTimestamps;
 
     try
     {
-      for ( int i = 0; i < size; i++ )
+      if ( values == null )
+      {
+        values = new int[size];
+        timestamps = new long[size];
+      }
+      for ( int i = 0; i < dataValues.size(); i++ )
       {
         final String[] dataPair = dataValues.get( i );
 
@@ -232,6 +262,42 @@ public final class OlsDataHelper
   {
     final BufferedWriter bw = new BufferedWriter( aWriter );
 
+    try
+    {
+      writeHeader( aDataSet, bw );
+
+      final AcquisitionResult capturedData = aDataSet.getCapturedData();
+      final int[] values = capturedData.getValues();
+      final long[] timestamps = capturedData.getTimestamps();
+
+      for ( int i = 0; i < values.length; i++ )
+      {
+        bw.write( formatSample( values[i], timestamps[i] ) );
+        bw.newLine();
+      }
+    }
+    finally
+    {
+      bw.flush();
+    }
+  }
+
+  /**
+   * Writes the header of the data, that is, all data except the samples
+   * themselves, to the given writer.
+   * 
+   * @param aDataSet
+   *          the data set to write the header for, cannot be <code>null</code>
+   *          ;
+   * @param aWriter
+   *          the writer to write the header to, cannot be <code>null</code>.
+   * @throws IOException
+   *           in case of I/O problems.
+   */
+  static void writeHeader( final DataSet aDataSet, final Writer aWriter ) throws IOException
+  {
+    final BufferedWriter bw = new BufferedWriter( aWriter );
+
     final AcquisitionResult capturedData = aDataSet.getCapturedData();
 
     final Cursor[] cursors = aDataSet.getCursors();
@@ -240,7 +306,6 @@ public final class OlsDataHelper
     try
     {
       final int[] values = capturedData.getValues();
-      final long[] timestamps = capturedData.getTimestamps();
 
       bw.write( ";Size: " );
       bw.write( Integer.toString( values.length ) );
@@ -286,11 +351,6 @@ public final class OlsDataHelper
           bw.newLine();
         }
       }
-      for ( int i = 0; i < values.length; i++ )
-      {
-        bw.write( formatSample( values[i], timestamps[i] ) );
-        bw.newLine();
-      }
     }
     finally
     {
@@ -0,0 +1,178 @@
+/*
+ * OpenBench LogicSniffer / SUMP project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ *
+ * Copyright (C) 2010-2012 - J.W. Janssen, http://www.lxtreme.nl
+ */
+package nl.lxtreme.ols.client.project.impl;
+
+
+import java.io.*;
+import java.util.zip.*;
+
+
+/**
+ * Provides a ZIP input stream for project files, that also allows the
+ * compressed contents of an entry to be read as-is.
+ * <p>
+ * This allows large entries to be decompressed in parallel, and to be written
+ * again without compressing them once more. Only deflated entries whose sizes
+ * are stored in their local header, as written by
+ * {@link ProjectArchiveOutputStream#putEntry(String, CompressedEntry)}, can be
+ * read as-is. All other entries are read as with a regular
+ * {@link ZipInputStream}.
+ * </p>
+ */
+final class ProjectArchiveInputStream extends ZipInputStream
+{
+  // VARIABLES
+
+  private ZipEntry entry;
+  /** whether the current entry is read as-is. */
+  private boolean rawEntry;
+  private long rawRemaining;
+
+  // CONSTRUCTORS
+
+  /**
+   * Creates a new {@link ProjectArchiveInputStream} instance.
+   *
+   * @param aInput
+   *          the input stream to read the archive from, cannot be
+   *          <code>null</code>.
+   */
+  public ProjectArchiveInputStream( final InputStream aInput )
+  {
+    super( aInput );
+  }
+
+  // METHODS
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void closeEntry() throws IOException
+  {
+    if ( !this.rawEntry )
+    {
+      super.closeEntry();
+      return;
+    }
+
+    // Skip the remaining compressed data, leaving the inflater untouched...
+    while ( this.rawRemaining > 0L )
+    {
+      final long skipped = this.in.skip( this.rawRemaining );
+      if ( skipped <= 0L )
+      {
+        if ( this.in.read() < 0 )
+        {
+          throw new EOFException( "Unexpected end of ZIP entry!" );
+        }
+        this.rawRemaining--;
+      }
+      else
+      {
+        this.rawRemaining -= skipped;
+      }
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public ZipEntry getNextEntry() throws IOException
+  {
+    // Closes the current entry first...
+    final ZipEntry result = super.getNextEntry();
+
+    this.entry = result;
+    this.rawEntry = false;
+    this.rawRemaining = 0L;
+    return result;
+  }
+
+  /**
+   * Returns whether the compressed contents of the current entry can be read
+   * as-is.
+   *
+   * @return <code>true</code> if {@link #openRawEntry()} can be used for the
+   *         current entry, <code>false</code> otherwise.
+   */
+  public boolean isRawEntryAvailable()
+  {
+    final ZipEntry ze = this.entry;
+    // Entries followed by a data descriptor do not have a known compressed
+    // size until all their data is inflated...
+    return ( ze != null ) && !this.rawEntry && ( ze.getMethod() == ZipEntry.DEFLATED )
+        && ( ze.getCompressedSize() >= 0L );
+  }
+
+  /**
+   * Opens a stream that yields the compressed contents of the current entry.
+   * <p>
+   * The current entry should not be read in any other way afterwards.
+   * </p>
+   *
+   * @return a new input stream, never <code>null</code>.
+   * @throws IOException
+   *           in case the compressed contents of the current entry cannot be
+   *           read as-is.
+   * @see #isRawEntryAvailable()
+   */
+  public InputStream openRawEntry() throws IOException
+  {
+    if ( !isRawEntryAvailable() )
+    {
+      throw new IOException( "Cannot read ZIP entry as-is!" );
+    }
+
+    this.rawEntry = true;
+    this.rawRemaining = this.entry.getCompressedSize();
+
+    return new InputStream()
+    {
+      @Override
+      public int read() throws IOException
+      {
+        final byte[] buf = new byte[1];
+        return ( read( buf, 0, 1 ) < 0 ) ? -1 : ( buf[0] & 0xFF );
+      }
+
+      @Override
+      public int read( final byte[] aBuffer, final int aOffset, final int aLength ) throws IOException
+      {
+        final long remaining = ProjectArchiveInputStream.this.rawRemaining;
+        if ( remaining <= 0L )
+        {
+          return -1;
+        }
+
+        final int len = ProjectArchiveInputStream.this.in.read( aBuffer, aOffset, ( int )Math.min( aLength,
+            remaining ) );
+        if ( len < 0 )
+        {
+          throw new EOFException( "Unexpected end of ZIP entry!" );
+        }
+        ProjectArchiveInputStream.this.rawRemaining = remaining - len;
+        return len;
+      }
+    };
+  }
+}
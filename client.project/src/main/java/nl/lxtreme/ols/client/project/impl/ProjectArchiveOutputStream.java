@@ -0,0 +1,518 @@
+/*
+ * OpenBench LogicSniffer / SUMP project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ *
+ * Copyright (C) 2010-2012 - J.W. Janssen, http://www.lxtreme.nl
+ */
+package nl.lxtreme.ols.client.project.impl;
+
+
+import java.io.*;
+import java.util.*;
+import java.util.zip.*;
+
+
+/**
+ * Provides a minimal ZIP-archive writer for project files.
+ * <p>
+ * Unlike {@link ZipOutputStream}, this writer allows already compressed
+ * entries to be written as-is, so large entries that did not change are not
+ * compressed again. All entries are regular deflated entries, and Zip64
+ * extensions are used where sizes or offsets require them, so the resulting
+ * archive can be read by any regular ZIP reader. Other entries are compressed
+ * while they are written, and are followed by a data descriptor.
+ * </p>
+ */
+final class ProjectArchiveOutputStream extends OutputStream
+{
+  // INNER TYPES
+
+  /**
+   * Keeps the information needed to write the central directory of an entry.
+   */
+  static final class EntryInfo
+  {
+    final byte[] name;
+    final int flags;
+    final long offset;
+
+    long crc;
+    long compressedSize;
+    long size;
+
+    /**
+     * Creates a new {@link EntryInfo} instance.
+     */
+    EntryInfo( final byte[] aName, final int aFlags, final long aOffset )
+    {
+      this.name = aName;
+      this.flags = aFlags;
+      this.offset = aOffset;
+    }
+  }
+
+  // CONSTANTS
+
+  private static final int LOCAL_HEADER_SIGNATURE = 0x04034b50;
+  private static final int DATA_DESCRIPTOR_SIGNATURE = 0x08074b50;
+  private static final int CENTRAL_HEADER_SIGNATURE = 0x02014b50;
+  private static final int ZIP64_END_OF_CENTRAL_DIR_SIGNATURE = 0x06064b50;
+  private static final int ZIP64_END_OF_CENTRAL_DIR_LOCATOR_SIGNATURE = 0x07064b50;
+  private static final int END_OF_CENTRAL_DIR_SIGNATURE = 0x06054b50;
+
+  private static final int VERSION = 20;
+  private static final int VERSION_ZIP64 = 45;
+  /** Bit 11: file names are UTF-8 encoded. */
+  private static final int FLAGS = 0x0800;
+  /** Bit 3: sizes and CRC-32 follow the data in a data descriptor. */
+  private static final int FLAG_DATA_DESCRIPTOR = 0x0008;
+  private static final int METHOD_DEFLATED = 8;
+  private static final int ZIP64_EXTRA_ID = 0x0001;
+
+  /** Sizes and offsets from this value on need a Zip64 extension. */
+  private static final long ZIP64_MAGIC = 0xFFFFFFFFL;
+  private static final int ZIP64_MAGIC_COUNT = 0xFFFF;
+
+  // VARIABLES
+
+  private final OutputStream out;
+  private final List<EntryInfo> entries;
+  private final int dosTime;
+  private final byte[] buffer;
+
+  private byte[] comment;
+  private EntryInfo current;
+  private Deflater deflater;
+  private CRC32 crc;
+  private long written;
+  private boolean finished;
+
+  // CONSTRUCTORS
+
+  /**
+   * Creates a new {@link ProjectArchiveOutputStream} instance.
+   *
+   * @param aOutput
+   *          the output stream to write the archive to, cannot be
+   *          <code>null</code>.
+   */
+  public ProjectArchiveOutputStream( final OutputStream aOutput )
+  {
+    this.out = aOutput;
+    this.entries = new ArrayList<EntryInfo>();
+    this.dosTime = toDosTime( System.currentTimeMillis() );
+    this.buffer = new byte[8192];
+    this.comment = new byte[0];
+  }
+
+  // METHODS
+
+  /**
+   * Converts a given Java time to a DOS date/time value.
+   */
+  private static int toDosTime( final long aTime )
+  {
+    final Calendar cal = Calendar.getInstance();
+    cal.setTimeInMillis( aTime );
+
+    final int year = cal.get( Calendar.YEAR );
+    if ( year < 1980 )
+    {
+      return ( 1 << 21 ) | ( 1 << 16 );
+    }
+
+    return ( ( year - 1980 ) << 25 ) | ( ( cal.get( Calendar.MONTH ) + 1 ) << 21 )
+        | ( cal.get( Calendar.DAY_OF_MONTH ) << 16 ) | ( cal.get( Calendar.HOUR_OF_DAY ) << 11 )
+        | ( cal.get( Calendar.MINUTE ) << 5 ) | ( cal.get( Calendar.SECOND ) >> 1 );
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void close() throws IOException
+  {
+    try
+    {
+      finish();
+    }
+    finally
+    {
+      if ( this.deflater != null )
+      {
+        this.deflater.end();
+        this.deflater = null;
+      }
+      this.out.close();
+    }
+  }
+
+  /**
+   * Closes the current entry, if any, and writes its data descriptor.
+   *
+   * @throws IOException
+   *           in case of I/O problems.
+   */
+  public void closeEntry() throws IOException
+  {
+    final EntryInfo info = this.current;
+    if ( info == null )
+    {
+      return;
+    }
+    this.current = null;
+
+    this.deflater.finish();
+    while ( !this.deflater.finished() )
+    {
+      deflate();
+    }
+
+    info.crc = this.crc.getValue();
+    info.compressedSize = this.deflater.getBytesWritten();
+    info.size = this.deflater.getBytesRead();
+    if ( ( info.size >= ZIP64_MAGIC ) || ( info.compressedSize >= ZIP64_MAGIC ) )
+    {
+      // Only pre-compressed entries are expected to be this large...
+      throw new IOException( "Project entry too large to be written!" );
+    }
+
+    writeInt( DATA_DESCRIPTOR_SIGNATURE );
+    writeInt( info.crc );
+    writeInt( info.compressedSize );
+    writeInt( info.size );
+  }
+
+  /**
+   * Finishes writing the archive, without closing the underlying output
+   * stream.
+   *
+   * @throws IOException
+   *           in case of I/O problems.
+   */
+  public void finish() throws IOException
+  {
+    if ( this.finished )
+    {
+      return;
+    }
+
+    closeEntry();
+
+    final long cdOffset = this.written;
+    for ( EntryInfo info : this.entries )
+    {
+      writeCentralHeader( info );
+    }
+    final long cdSize = this.written - cdOffset;
+    final int count = this.entries.size();
+
+    if ( ( count >= ZIP64_MAGIC_COUNT ) || ( cdSize >= ZIP64_MAGIC ) || ( cdOffset >= ZIP64_MAGIC ) )
+    {
+      final long zip64Offset = this.written;
+
+      writeInt( ZIP64_END_OF_CENTRAL_DIR_SIGNATURE );
+      writeLong( 44L ); // size of the remainder of this record
+      writeShort( VERSION_ZIP64 ); // version made by
+      writeShort( VERSION_ZIP64 ); // version needed to extract
+      writeInt( 0 ); // number of this disk
+      writeInt( 0 ); // disk with the start of the central directory
+      writeLong( count );
+      writeLong( count );
+      writeLong( cdSize );
+      writeLong( cdOffset );
+
+      writeInt( ZIP64_END_OF_CENTRAL_DIR_LOCATOR_SIGNATURE );
+      writeInt( 0 ); // disk with the start of the Zip64 end of central directory
+      writeLong( zip64Offset );
+      writeInt( 1 ); // total number of disks
+    }
+
+    writeInt( END_OF_CENTRAL_DIR_SIGNATURE );
+    writeShort( 0 ); // number of this disk
+    writeShort( 0 ); // disk with the start of the central directory
+    writeShort( Math.min( count, ZIP64_MAGIC_COUNT ) );
+    writeShort( Math.min( count, ZIP64_MAGIC_COUNT ) );
+    writeInt( Math.min( cdSize, ZIP64_MAGIC ) );
+    writeInt( Math.min( cdOffset, ZIP64_MAGIC ) );
+    writeShort( this.comment.length );
+    writeBytes( this.comment, 0, this.comment.length );
+
+    this.out.flush();
+    this.finished = true;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void flush() throws IOException
+  {
+    this.out.flush();
+  }
+
+  /**
+   * Writes a given, already compressed, entry to the archive.
+   *
+   * @param aName
+   *          the name of the entry, cannot be <code>null</code>;
+   * @param aEntry
+   *          the compressed entry to write, cannot be <code>null</code>.
+   * @throws IOException
+   *           in case of I/O problems.
+   */
+  public void putEntry( final String aName, final CompressedEntry aEntry ) throws IOException
+  {
+    closeEntry();
+
+    final EntryInfo info = addEntry( aName, FLAGS );
+    info.crc = aEntry.getCRC();
+    info.compressedSize = aEntry.getCompressedSize();
+    info.size = aEntry.getSize();
+
+    final boolean zip64 = ( info.size >= ZIP64_MAGIC ) || ( info.compressedSize >= ZIP64_MAGIC );
+
+    writeInt( LOCAL_HEADER_SIGNATURE );
+    writeShort( zip64 ? VERSION_ZIP64 : VERSION );
+    writeShort( info.flags );
+    writeShort( METHOD_DEFLATED );
+    writeInt( this.dosTime );
+    writeInt( info.crc );
+    writeInt( zip64 ? ZIP64_MAGIC : info.compressedSize );
+    writeInt( zip64 ? ZIP64_MAGIC : info.size );
+    writeShort( info.name.length );
+    writeShort( zip64 ? 20 : 0 ); // extra field length
+    writeBytes( info.name, 0, info.name.length );
+    if ( zip64 )
+    {
+      // A local Zip64 extra field always holds both sizes...
+      writeShort( ZIP64_EXTRA_ID );
+      writeShort( 16 );
+      writeLong( info.size );
+      writeLong( info.compressedSize );
+    }
+
+    aEntry.writeTo( this.out );
+    this.written += info.compressedSize;
+  }
+
+  /**
+   * Starts a new entry with the given name; all data written to this stream
+   * until the next call to {@link #closeEntry()} is compressed into it.
+   *
+   * @param aName
+   *          the name of the entry, cannot be <code>null</code>.
+   * @throws IOException
+   *           in case of I/O problems.
+   */
+  public void putNextEntry( final String aName ) throws IOException
+  {
+    closeEntry();
+
+    final EntryInfo info = addEntry( aName, FLAGS | FLAG_DATA_DESCRIPTOR );
+
+    writeInt( LOCAL_HEADER_SIGNATURE );
+    writeShort( VERSION );
+    writeShort( info.flags );
+    writeShort( METHOD_DEFLATED );
+    writeInt( this.dosTime );
+    writeInt( 0 ); // CRC-32, in data descriptor
+    writeInt( 0 ); // compressed size, in data descriptor
+    writeInt( 0 ); // size, in data descriptor
+    writeShort( info.name.length );
+    writeShort( 0 ); // extra field length
+    writeBytes( info.name, 0, info.name.length );
+
+    if ( this.deflater == null )
+    {
+      this.deflater = new Deflater( Deflater.DEFAULT_COMPRESSION, true /* nowrap */);
+      this.crc = new CRC32();
+    }
+    else
+    {
+      this.deflater.reset();
+      this.crc.reset();
+    }
+    this.current = info;
+  }
+
+  /**
+   * Sets the comment of the archive.
+   *
+   * @param aComment
+   *          the comment to set, can be <code>null</code>.
+   */
+  public void setComment( final String aComment )
+  {
+    try
+    {
+      this.comment = ( aComment == null ) ? new byte[0] : aComment.getBytes( "UTF-8" );
+    }
+    catch ( UnsupportedEncodingException exception )
+    {
+      throw new RuntimeException( exception );
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void write( final byte[] aBuffer, final int aOffset, final int aLength ) throws IOException
+  {
+    if ( this.current == null )
+    {
+      throw new IOException( "No current entry!" );
+    }
+    if ( aLength == 0 )
+    {
+      return;
+    }
+
+    this.crc.update( aBuffer, aOffset, aLength );
+    this.deflater.setInput( aBuffer, aOffset, aLength );
+    while ( !this.deflater.needsInput() )
+    {
+      deflate();
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void write( final int aByte ) throws IOException
+  {
+    write( new byte[] { ( byte )aByte }, 0, 1 );
+  }
+
+  /**
+   * Adds a new entry with the given name, starting at the current position.
+   */
+  private EntryInfo addEntry( final String aName, final int aFlags ) throws IOException
+  {
+    if ( this.finished )
+    {
+      throw new IOException( "Archive already finished!" );
+    }
+
+    final EntryInfo info = new EntryInfo( aName.getBytes( "UTF-8" ), aFlags, this.written );
+    this.entries.add( info );
+    return info;
+  }
+
+  /**
+   * Writes the next chunk of compressed data of the current entry.
+   */
+  private void deflate() throws IOException
+  {
+    final int len = this.deflater.deflate( this.buffer, 0, this.buffer.length );
+    if ( len > 0 )
+    {
+      writeBytes( this.buffer, 0, len );
+    }
+  }
+
+  /**
+   * Writes the given bytes to the underlying stream.
+   */
+  private void writeBytes( final byte[] aValue, final int aOffset, final int aLength ) throws IOException
+  {
+    this.out.write( aValue, aOffset, aLength );
+    this.written += aLength;
+  }
+
+  /**
+   * Writes the central directory header of the given entry.
+   */
+  private void writeCentralHeader( final EntryInfo aInfo ) throws IOException
+  {
+    final boolean zip64Size = aInfo.size >= ZIP64_MAGIC;
+    final boolean zip64CompressedSize = aInfo.compressedSize >= ZIP64_MAGIC;
+    final boolean zip64Offset = aInfo.offset >= ZIP64_MAGIC;
+
+    // The Zip64 extra field only holds the values that do not fit...
+    final int extraLength = ( zip64Size ? 8 : 0 ) + ( zip64CompressedSize ? 8 : 0 ) + ( zip64Offset ? 8 : 0 );
+    final boolean zip64 = extraLength > 0;
+
+    writeInt( CENTRAL_HEADER_SIGNATURE );
+    writeShort( zip64 ? VERSION_ZIP64 : VERSION ); // version made by
+    writeShort( zip64 ? VERSION_ZIP64 : VERSION ); // version needed to extract
+    writeShort( aInfo.flags );
+    writeShort( METHOD_DEFLATED );
+    writeInt( this.dosTime );
+    writeInt( aInfo.crc );
+    writeInt( zip64CompressedSize ? ZIP64_MAGIC : aInfo.compressedSize );
+    writeInt( zip64Size ? ZIP64_MAGIC : aInfo.size );
+    writeShort( aInfo.name.length );
+    writeShort( zip64 ? ( extraLength + 4 ) : 0 ); // extra field length
+    writeShort( 0 ); // comment length
+    writeShort( 0 ); // disk number start
+    writeShort( 0 ); // internal file attributes
+    writeInt( 0 ); // external file attributes
+    writeInt( zip64Offset ? ZIP64_MAGIC : aInfo.offset );
+    writeBytes( aInfo.name, 0, aInfo.name.length );
+    if ( zip64 )
+    {
+      writeShort( ZIP64_EXTRA_ID );
+      writeShort( extraLength );
+      if ( zip64Size )
+      {
+        writeLong( aInfo.size );
+      }
+      if ( zip64CompressedSize )
+      {
+        writeLong( aInfo.compressedSize );
+      }
+      if ( zip64Offset )
+      {
+        writeLong( aInfo.offset );
+      }
+    }
+  }
+
+  /**
+   * Writes the given value as 32-bit little endian value.
+   */
+  private void writeInt( final long aValue ) throws IOException
+  {
+    this.buffer[0] = ( byte )aValue;
+    this.buffer[1] = ( byte )( aValue >>> 8 );
+    this.buffer[2] = ( byte )( aValue >>> 16 );
+    this.buffer[3] = ( byte )( aValue >>> 24 );
+    writeBytes( this.buffer, 0, 4 );
+  }
+
+  /**
+   * Writes the given value as 64-bit little endian value.
+   */
+  private void writeLong( final long aValue ) throws IOException
+  {
+    writeInt( aValue & 0xFFFFFFFFL );
+    writeInt( aValue >>> 32 );
+  }
+
+  /**
+   * Writes the given value as 16-bit little endian value.
+   */
+  private void writeShort( final int aValue ) throws IOException
+  {
+    this.buffer[0] = ( byte )aValue;
+    this.buffer[1] = ( byte )( aValue >>> 8 );
+    writeBytes( this.buffer, 0, 2 );
+  }
+}
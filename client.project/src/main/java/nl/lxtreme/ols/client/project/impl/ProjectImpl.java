@@ -31,6 +31,7 @@ import javax.swing.*;
 import nl.lxtreme.ols.api.*;
 import nl.lxtreme.ols.api.acquisition.*;
 import nl.lxtreme.ols.api.data.project.*;
+import nl.lxtreme.ols.api.task.*;
 
 
 /**
@@ -42,12 +43,17 @@ public final class ProjectImpl implements Project, ProjectProperties, PropertyCh
 
   private static final Logger LOG = Logger.getLogger( ProjectImpl.class.getName() );
 
+  /** The maximum number of decode results retained in a project. */
+  static final int MAX_DECODE_RESULTS = 16;
+
   // VARIABLES
 
   private final PropertyChangeSupport propertyChangeSupport;
   private final Map<String, UserSettings> settings;
+  private final CaptureHistory captureHistory;
+  private final Map<String, byte[]> decodeResults;
 
-  private DataSetImpl dataSet;
+  private volatile DataSetImpl dataSet;
   private String name;
   private boolean changed;
   private Date lastModified;
@@ -60,9 +66,33 @@ public final class ProjectImpl implements Project, ProjectProperties, PropertyCh
    * Creates a new {@link ProjectImpl} instance with 10 cursors and 32 channels.
    */
   public ProjectImpl()
+  {
+    this( null );
+  }
+
+  /**
+   * Creates a new {@link ProjectImpl} instance with 10 cursors and 32 channels.
+   * 
+   * @param aTaskExecutionService
+   *          the task execution service to compress the capture history with,
+   *          can be <code>null</code> to compress it directly.
+   */
+  ProjectImpl( final TaskExecutionService aTaskExecutionService )
   {
     this.propertyChangeSupport = new PropertyChangeSupport( this );
     this.settings = new HashMap<String, UserSettings>();
+    this.captureHistory = new CaptureHistory( CaptureHistory.DEFAULT_CAPACITY, CaptureHistory.DEFAULT_MEMORY_BUDGET,
+        aTaskExecutionService );
+    this.decodeResults = new LinkedHashMap<String, byte[]>( MAX_DECODE_RESULTS, 0.75f, true /* accessOrder */)
+    {
+      private static final long serialVersionUID = 1L;
+
+      @Override
+      protected boolean removeEldestEntry( final Map.Entry<String, byte[]> aEldest )
+      {
+        return size() > MAX_DECODE_RESULTS;
+      }
+    };
 
     setDataSet( new DataSetImpl() );
 
@@ -82,6 +112,15 @@ public final class ProjectImpl implements Project, ProjectProperties, PropertyCh
     this.propertyChangeSupport.addPropertyChangeListener( aListener );
   }
 
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public int getCaptureCount()
+  {
+    return this.captureHistory.size();
+  }
+
   /**
    * {@inheritDoc}
    */
@@ -91,6 +130,33 @@ public final class ProjectImpl implements Project, ProjectProperties, PropertyCh
     return this.dataSet;
   }
 
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public byte[] getDecodeResult( final String aKey )
+  {
+    synchronized ( this.decodeResults )
+    {
+      return this.decodeResults.get( aKey );
+    }
+  }
+
+  /**
+   * Returns all decode results stored in this project, from the least to the
+   * most recently used one.
+   * 
+   * @return a copy of the decode results, by their key, never
+   *         <code>null</code>.
+   */
+  public Map<String, byte[]> getDecodeResults()
+  {
+    synchronized ( this.decodeResults )
+    {
+      return new LinkedHashMap<String, byte[]>( this.decodeResults );
+    }
+  }
+
   /**
    * @see nl.lxtreme.ols.api.data.project.Project#getFilename()
    */
@@ -118,6 +184,15 @@ public final class ProjectImpl implements Project, ProjectProperties, PropertyCh
     return this.name;
   }
 
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public int getSelectedCapture()
+  {
+    return this.captureHistory.getSelectedIndex();
+  }
+
   /**
    * @see nl.lxtreme.ols.api.data.project.Project#getSettings(java.lang.String)
    */
@@ -166,13 +241,30 @@ public final class ProjectImpl implements Project, ProjectProperties, PropertyCh
     this.propertyChangeSupport.firePropertyChange( aEvent );
   }
 
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void putDecodeResult( final String aKey, final byte[] aResult )
+  {
+    if ( ( aKey == null ) || ( aResult == null ) )
+    {
+      throw new IllegalArgumentException( "Key and result cannot be null!" );
+    }
+
+    synchronized ( this.decodeResults )
+    {
+      this.decodeResults.put( aKey, aResult );
+    }
+  }
+
   /**
    * {@inheritDoc}
    */
   @Override
   public final void readData( final Reader aReader ) throws IOException
   {
-    setDataSet( OlsDataHelper.read( aReader ) );
+    loadDataSet( OlsDataHelper.read( aReader ) );
   }
 
   /**
@@ -190,12 +282,22 @@ public final class ProjectImpl implements Project, ProjectProperties, PropertyCh
    * {@inheritDoc}
    */
   @Override
-  public void setCapturedData( final AcquisitionResult aCapturedData )
+  public synchronized void selectCapture( final int aIndex )
   {
-    final DataSetImpl old = this.dataSet;
-    final boolean retainAnnotations = UIManager.getBoolean( "ols.retain.annotations.boolean" );
+    final AcquisitionResult capturedData = this.captureHistory.select( aIndex );
 
-    setDataSet( new DataSetImpl( aCapturedData, old, retainAnnotations ) );
+    replaceCapturedData( capturedData );
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public synchronized void setCapturedData( final AcquisitionResult aCapturedData )
+  {
+    this.captureHistory.add( aCapturedData );
+
+    replaceCapturedData( aCapturedData );
 
     // Mark this project as modified...
     setChanged( true );
@@ -333,13 +435,71 @@ public final class ProjectImpl implements Project, ProjectProperties, PropertyCh
     return this.propertyChangeSupport.getPropertyChangeListeners();
   }
 
+  /**
+   * Sets the data set of this project to a loaded data set.
+   * 
+   * @param aDataSet
+   *          the loaded data set to set, cannot be <code>null</code>.
+   */
+  final synchronized void loadDataSet( final DataSetImpl aDataSet )
+  {
+    setDataSet( aDataSet );
+
+    this.captureHistory.add( this.dataSet.getCapturedData() );
+  }
+
+  /**
+   * Merges a data set that is loaded in the background into the current data
+   * set of this project.
+   * <p>
+   * The loaded data set is only merged if the data set of this project is
+   * still the one present when the loading started. The channels and defined
+   * cursors of the current data set take precedence over those of the loaded
+   * data set, as they might have been edited while loading. Unless this project
+   * was changed while loading, the given channel labels are merged as well. The
+   * 'changed' flag of this project is left as-is.
+   * </p>
+   * 
+   * @param aExpected
+   *          the data set this project had when loading started, cannot be
+   *          <code>null</code>;
+   * @param aLoaded
+   *          the loaded data set, cannot be <code>null</code>;
+   * @param aLabels
+   *          the loaded channel labels, can be <code>null</code>.
+   * @return <code>true</code> if the loaded data set is merged,
+   *         <code>false</code> if the data set of this project was replaced
+   *         while loading.
+   */
+  final synchronized boolean mergeLoadedDataSet( final DataSetImpl aExpected, final DataSetImpl aLoaded,
+      final List<String> aLabels )
+  {
+    if ( this.dataSet != aExpected )
+    {
+      return false;
+    }
+
+    final DataSetImpl merged = new DataSetImpl( aLoaded.getCapturedData(), aExpected, true /* aRetainAnnotations */);
+    merged.mergeCursors( aLoaded.getCursors() );
+    if ( !this.changed )
+    {
+      merged.setCursorsEnabled( aLoaded.isCursorsEnabled() );
+      merged.mergeChannelLabels( aLabels );
+    }
+
+    this.captureHistory.add( merged.getCapturedData() );
+
+    setDataSet( merged );
+    return true;
+  }
+
   /**
    * Sets the data set in a single shot.
    * 
    * @param aDataSet
    *          the data set to set, cannot be <code>null</code>.
    */
-  final void setDataSet( final DataSetImpl aDataSet )
+  final synchronized void setDataSet( final DataSetImpl aDataSet )
   {
     if ( aDataSet == null )
     {
@@ -358,4 +518,20 @@ public final class ProjectImpl implements Project, ProjectProperties, PropertyCh
 
     this.propertyChangeSupport.firePropertyChange( PROPERTY_CAPTURED_DATA, old, this.dataSet );
   }
+
+  /**
+   * Replaces the current captured data with the given acquisition result,
+   * templating the new data set on the current one. Does not mark this project
+   * as modified, as merely browsing the capture history does not change it.
+   * 
+   * @param aCapturedData
+   *          the captured data to set, cannot be <code>null</code>.
+   */
+  private void replaceCapturedData( final AcquisitionResult aCapturedData )
+  {
+    final DataSetImpl old = this.dataSet;
+    final boolean retainAnnotations = UIManager.getBoolean( "ols.retain.annotations.boolean" );
+
+    setDataSet( new DataSetImpl( aCapturedData, old, retainAnnotations ) );
+  }
 }
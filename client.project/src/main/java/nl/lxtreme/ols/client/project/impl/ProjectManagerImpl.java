@@ -24,45 +24,325 @@ package nl.lxtreme.ols.client.project.impl;
 import java.beans.*;
 import java.io.*;
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.logging.*;
 import java.util.zip.*;
 
 import nl.lxtreme.ols.api.*;
+import nl.lxtreme.ols.api.acquisition.*;
 import nl.lxtreme.ols.api.data.*;
 import nl.lxtreme.ols.api.data.project.*;
+import nl.lxtreme.ols.api.task.*;
 import nl.lxtreme.ols.util.*;
 
 
 /**
  * Provides a simple implementation of a project manager, which writes an entire
  * project as (compressed) ZIP-file.
+ * <p>
+ * Projects are loaded lazily: the metadata, channel labels and settings are
+ * available directly after loading, while the capture results are decoded in
+ * the background. The capture results are stored as a regular deflated entry,
+ * that is compressed in independent blocks described by a separate block
+ * index. The compressed blocks are retained after loading, so unchanged
+ * capture results are written as-is when the project is saved again.
+ * </p>
  */
 public class ProjectManagerImpl implements PropertyChangeListener, ProjectManager, ProjectProperties
 {
+  // INNER TYPES
+
+  /**
+   * Keeps the compressed capture results of a project, along with the state
+   * they represent.
+   */
+  static final class CapturedResultsCache
+  {
+    // VARIABLES
+
+    final Project project;
+    final AcquisitionResult capturedData;
+    final String signature;
+    final CompressedEntry entry;
+    final CaptureBlockCodec.BlockIndex index;
+
+    // CONSTRUCTORS
+
+    /**
+     * Creates a new {@link CapturedResultsCache} instance.
+     *
+     * @param aProject
+     *          the project the capture results belong to;
+     * @param aCapturedData
+     *          the captured data, can be <code>null</code> if the captured data
+     *          is still being loaded;
+     * @param aSignature
+     *          the signature of the (non-sample) data in the capture results;
+     * @param aEntry
+     *          the compressed capture results;
+     * @param aIndex
+     *          the block index of the compressed capture results.
+     */
+    CapturedResultsCache( final Project aProject, final AcquisitionResult aCapturedData, final String aSignature,
+        final CompressedEntry aEntry, final CaptureBlockCodec.BlockIndex aIndex )
+    {
+      this.project = aProject;
+      this.capturedData = aCapturedData;
+      this.signature = aSignature;
+      this.entry = aEntry;
+      this.index = aIndex;
+    }
+
+    // METHODS
+
+    /**
+     * Returns whether this cache is still valid for the given project.
+     *
+     * @param aProject
+     *          the project to test, cannot be <code>null</code>.
+     * @return <code>true</code> if this cache can be used to write the capture
+     *         results of the given project, <code>false</code> otherwise.
+     */
+    boolean isValidFor( final Project aProject )
+    {
+      if ( this.project != aProject )
+      {
+        return false;
+      }
+
+      final DataSet dataSet = aProject.getDataSet();
+      final AcquisitionResult data = dataSet.getCapturedData();
+      if ( this.capturedData == null )
+      {
+        // Still loading...
+        return data == null;
+      }
+      return ( this.capturedData == data ) && this.signature.equals( getSignature( dataSet ) );
+    }
+  }
+
+  /**
+   * Decodes the capture results of a loaded project and merges them into the
+   * data set of that project, provided it did not change in the meantime.
+   */
+  final class CapturedResultsLoader implements Runnable, ScheduledTask<Void>
+  {
+    // VARIABLES
+
+    private final ProjectImpl project;
+    private final DataSetImpl dataSet;
+    private final CompressedEntry capturedResults;
+    private final CaptureBlockCodec.BlockIndex index;
+    private final List<String> labels;
+
+    volatile Exception failure;
+
+    // CONSTRUCTORS
+
+    /**
+     * Creates a new {@link CapturedResultsLoader} instance.
+     */
+    CapturedResultsLoader( final ProjectImpl aProject, final CompressedEntry aCapturedResults,
+        final CaptureBlockCodec.BlockIndex aIndex, final List<String> aLabels )
+    {
+      this.project = aProject;
+      this.dataSet = aProject.getDataSet();
+      this.capturedResults = aCapturedResults;
+      this.index = aIndex;
+      this.labels = aLabels;
+    }
+
+    // METHODS
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Void call() throws Exception
+    {
+      run();
+      return null;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Object getGroup()
+    {
+      // Loading another project supersedes this one...
+      return ProjectManagerImpl.this;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public TaskPriority getPriority()
+    {
+      return TaskPriority.BATCH;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void run()
+    {
+      try
+      {
+        final DataSetImpl loaded = decode();
+
+        if ( !this.project.mergeLoadedDataSet( this.dataSet, loaded, this.labels ) )
+        {
+          LOG.log( Level.INFO, "Discarding loaded capture results: the project data was replaced while loading..." );
+          return;
+        }
+
+        // The compressed capture results are still valid for the loaded
+        // data, as long as nothing changes...
+        final CapturedResultsCache cache = ProjectManagerImpl.this.capturedResultsCache;
+        if ( ( cache != null ) && ( cache.project == this.project ) && ( cache.capturedData == null ) )
+        {
+          final DataSetImpl merged = this.project.getDataSet();
+          ProjectManagerImpl.this.capturedResultsCache = new CapturedResultsCache( this.project,
+              merged.getCapturedData(), getSignature( merged ), this.capturedResults, this.index );
+        }
+      }
+      catch ( InterruptedIOException exception )
+      {
+        // Superseded by loading another project...
+        LOG.log( Level.FINE, "Loading capture results of project cancelled..." );
+        Thread.currentThread().interrupt();
+      }
+      catch ( Exception exception )
+      {
+        LOG.log( Level.WARNING, "Failed to load capture results of project!", exception );
+
+        this.failure = exception;
+        fireLoadFailure( exception );
+      }
+      finally
+      {
+        fireLoadProgress( 100, 0 );
+      }
+    }
+
+    /**
+     * Decodes the capture results.
+     */
+    private DataSetImpl decode() throws IOException
+    {
+      return getCodec( TaskPriority.BATCH ).decompress( this.capturedResults, this.index,
+          new CaptureBlockCodec.ProgressListener()
+      {
+        private int lastPercentage = 0;
+
+        @Override
+        public void setProgress( final int aPercentage )
+        {
+          fireLoadProgress( this.lastPercentage, aPercentage );
+          this.lastPercentage = aPercentage;
+        }
+      } );
+    }
+  }
+
+  /**
+   * Delegates to the task execution service currently bound to this project
+   * manager, or runs tasks directly if no such service is bound.
+   */
+  final class CurrentTaskExecutionService implements TaskExecutionService
+  {
+    // METHODS
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int cancelGroup( final Object aGroup )
+    {
+      final TaskExecutionService service = ProjectManagerImpl.this.taskExecutionService;
+      if ( service == null )
+      {
+        return 0;
+      }
+      return service.cancelGroup( aGroup );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public <RESULT_TYPE> Future<RESULT_TYPE> execute( final Task<RESULT_TYPE> aTask )
+    {
+      final TaskExecutionService service = ProjectManagerImpl.this.taskExecutionService;
+      if ( service != null )
+      {
+        return service.execute( aTask );
+      }
+
+      final FutureTask<RESULT_TYPE> result = new FutureTask<RESULT_TYPE>( aTask );
+      result.run();
+      return result;
+    }
+  }
+
   // CONSTANTS
 
+  private static final Logger LOG = Logger.getLogger( ProjectManagerImpl.class.getName() );
+
   private static final String FILENAME_PROJECT_METADATA = "ols.project";
   private static final String FILENAME_CHANNEL_LABELS = "channel.labels";
   private static final String FILENAME_PROJECT_SETTINGS = "settings/";
-  private static final String FILENAME_CAPTURE_RESULTS = "data.ols";
+  private static final String FILENAME_DECODE_RESULTS = "results/";
+  static final String FILENAME_CAPTURE_RESULTS = "data.ols";
+  static final String FILENAME_CAPTURE_BLOCKS_INDEX = "data.idx";
 
   // VARIABLES
 
   private volatile HostProperties hostProperties;
+  private volatile TaskExecutionService taskExecutionService;
 
   private final PropertyChangeSupport propertyChangeSupport;
+  private final TaskExecutionService currentTaskExecutionService;
+
+  private final Executor loadExecutor;
 
   private ProjectImpl project;
+  volatile CapturedResultsCache capturedResultsCache;
 
   // CONSTRUCTORS
 
   /**
-   * Creates a new SimpleProjectManager instance.
+   * Creates a new SimpleProjectManager instance, which decodes the capture
+   * results of loaded projects as batch task of the task execution service.
    */
   public ProjectManagerImpl()
+  {
+    this( null );
+  }
+
+  /**
+   * Creates a new SimpleProjectManager instance.
+   * <p>
+   * Headless users can pass an executor that runs tasks directly, in which
+   * case {@link #loadProject(InputStream)} returns only after the capture
+   * results are decoded.
+   * </p>
+   * 
+   * @param aLoadExecutor
+   *          the executor used to decode the capture results of loaded
+   *          projects, can be <code>null</code> to use the task execution
+   *          service instead.
+   */
+  public ProjectManagerImpl( final Executor aLoadExecutor )
   {
     this.propertyChangeSupport = new PropertyChangeSupport( this );
+    this.currentTaskExecutionService = new CurrentTaskExecutionService();
+    this.loadExecutor = aLoadExecutor;
 
-    setProject( new ProjectImpl() );
+    setProject( new ProjectImpl( this.currentTaskExecutionService ) );
   }
 
   // METHODS
@@ -80,7 +360,7 @@ public class ProjectManagerImpl implements PropertyChangeListener, ProjectManage
    */
   public Project createNewProject()
   {
-    setProject( new ProjectImpl() );
+    setProject( new ProjectImpl( this.currentTaskExecutionService ) );
     return this.project;
   }
 
@@ -89,7 +369,7 @@ public class ProjectManagerImpl implements PropertyChangeListener, ProjectManage
    */
   public Project createTemporaryProject()
   {
-    return new ProjectImpl();
+    return new ProjectImpl( this.currentTaskExecutionService );
   }
 
   /**
@@ -113,13 +393,16 @@ public class ProjectManagerImpl implements PropertyChangeListener, ProjectManage
     }
 
     final BufferedInputStream in = new BufferedInputStream( aInput );
-    final ZipInputStream zipIS = new ZipInputStream( in );
+    final ProjectArchiveInputStream zipIS = new ProjectArchiveInputStream( in );
 
-    final ProjectImpl newProject = new ProjectImpl();
+    final ProjectImpl newProject = new ProjectImpl( this.currentTaskExecutionService );
     // Make sure listeners retrieve the proper events...
     copyPropertyChangeListeners( this.project, newProject );
 
     List<String> labels = null;
+    DataSetImpl capturedData = null;
+    CompressedEntry capturedBlocks = null;
+    CaptureBlockCodec.BlockIndex capturedBlocksIndex = null;
 
     try
     {
@@ -140,15 +423,39 @@ public class ProjectManagerImpl implements PropertyChangeListener, ProjectManage
         }
         else if ( FILENAME_CAPTURE_RESULTS.equals( name ) )
         {
-          loadCapturedResults( newProject, zipIS );
+          final CaptureBlockCodec.BlockIndex index = capturedBlocksIndex;
+          if ( ( index != null ) && zipIS.isRawEntryAvailable() && index.matches( ze ) )
+          {
+            // Only read the compressed blocks; they are decoded later on...
+            capturedBlocks = index.readEntry( zipIS.openRawEntry() );
+          }
+          else
+          {
+            // Older project files store capture results without (a preceding)
+            // block index; these are decoded directly...
+            if ( index != null )
+            {
+              LOG.log( Level.INFO, "Ignoring block index of capture results: it does not match the capture results..." );
+            }
+            capturedData = loadCapturedResults( zipIS );
+          }
           entriesSeen = true;
         }
+        else if ( FILENAME_CAPTURE_BLOCKS_INDEX.equals( name ) )
+        {
+          capturedBlocksIndex = readBlockIndex( zipIS );
+        }
         else if ( name.startsWith( FILENAME_PROJECT_SETTINGS ) )
         {
           final String userSettingsName = name.substring( FILENAME_PROJECT_SETTINGS.length() );
           loadProjectSettings( newProject, userSettingsName, zipIS );
           entriesSeen = true;
         }
+        else if ( name.startsWith( FILENAME_DECODE_RESULTS ) )
+        {
+          final String decodeResultKey = name.substring( FILENAME_DECODE_RESULTS.length() );
+          loadDecodeResult( newProject, decodeResultKey, zipIS );
+        }
 
         zipIS.closeEntry();
       }
@@ -158,6 +465,11 @@ public class ProjectManagerImpl implements PropertyChangeListener, ProjectManage
         throw new IOException( "Invalid project file!" );
       }
 
+      if ( capturedData != null )
+      {
+        newProject.loadDataSet( capturedData );
+      }
+
       // Merge the channel labels with the channel-data in the project's data
       // set; this is not the nicest way of doing this, but we otherwise have to
       // break our project file-format, which is not done at the moment...
@@ -168,6 +480,15 @@ public class ProjectManagerImpl implements PropertyChangeListener, ProjectManage
 
       // Overwrite the main project...
       setProject( newProject );
+
+      if ( capturedBlocks != null )
+      {
+        final CaptureBlockCodec.BlockIndex index = capturedBlocksIndex;
+
+        this.capturedResultsCache = new CapturedResultsCache( newProject, null, null, capturedBlocks, index );
+
+        scheduleLoadCapturedResults( newProject, capturedBlocks, index, labels );
+      }
     }
     finally
     {
@@ -193,6 +514,18 @@ public class ProjectManagerImpl implements PropertyChangeListener, ProjectManage
     this.propertyChangeSupport.removePropertyChangeListener( aListener );
   }
 
+  /**
+   * Called by the dependency manager when the task execution service is going
+   * away.
+   * 
+   * @param aTaskExecutionService
+   *          the old task execution service to remove.
+   */
+  public void removeTaskExecutionService( final TaskExecutionService aTaskExecutionService )
+  {
+    this.taskExecutionService = null;
+  }
+
   /**
    * @see nl.lxtreme.ols.api.data.project.ProjectManager#saveProject(java.io.OutputStream)
    */
@@ -205,7 +538,7 @@ public class ProjectManagerImpl implements PropertyChangeListener, ProjectManage
     }
 
     final BufferedOutputStream os = new BufferedOutputStream( aOutput );
-    final ZipOutputStream zipOS = new ZipOutputStream( os );
+    final ProjectArchiveOutputStream zipOS = new ProjectArchiveOutputStream( os );
 
     zipOS.setComment( this.hostProperties.getFullName().concat( " project file" ) );
 
@@ -218,6 +551,8 @@ public class ProjectManagerImpl implements PropertyChangeListener, ProjectManage
       storeProjectSettings( this.project, zipOS );
       // Store the last capture results...
       storeCapturedResults( this.project, zipOS );
+      // Store the cached decode results...
+      storeDecodeResults( this.project, zipOS );
 
       // Mark the project as no longer changed...
       this.project.setChanged( false );
@@ -241,33 +576,71 @@ public class ProjectManagerImpl implements PropertyChangeListener, ProjectManage
   }
 
   /**
-   * Reads the capture results from the given ZIP-input stream.
+   * Sets taskExecutionService to the given value.
    * 
-   * @param aProject
-   *          the project to read the capture results for;
-   * @param aZipIS
-   *          the ZIP input stream to read the capture results from.
+   * @param aTaskExecutionService
+   *          the task execution service to set, can be <code>null</code> in
+   *          which case the capture results are compressed and decompressed
+   *          by the calling thread.
+   */
+  public void setTaskExecutionService( final TaskExecutionService aTaskExecutionService )
+  {
+    this.taskExecutionService = aTaskExecutionService;
+  }
+
+  /**
+   * Returns the signature of the non-sample data that is stored along with the
+   * capture results of a given data set.
+   * 
+   * @param aDataSet
+   *          the data set to get the signature for, cannot be <code>null</code>
+   *          .
+   * @return a signature, never <code>null</code>.
+   */
+  static String getSignature( final DataSet aDataSet )
+  {
+    final StringBuilder sb = new StringBuilder();
+    sb.append( aDataSet.isCursorsEnabled() );
+
+    for ( Cursor cursor : aDataSet.getCursors() )
+    {
+      sb.append( ';' );
+      if ( cursor.isDefined() )
+      {
+        sb.append( cursor.getTimestamp() );
+      }
+    }
+    return sb.toString();
+  }
+
+  /**
+   * Reads the capture results from the given input stream.
+   * 
+   * @param aInput
+   *          the input stream to read the capture results from.
+   * @return the data set with the read capture results, never
+   *         <code>null</code>.
    * @throws IOException
    *           in case of I/O problems.
    */
-  protected void loadCapturedResults( final Project aProject, final ZipInputStream aZipIS ) throws IOException
+  protected DataSetImpl loadCapturedResults( final InputStream aInput ) throws IOException
   {
-    aProject.readData( new InputStreamReader( aZipIS ) );
+    return OlsDataHelper.read( new InputStreamReader( aInput ) );
   }
 
   /**
-   * Reads the project channel labels from the given ZIP-input stream.
+   * Reads the project channel labels from the given input stream.
    * 
    * @param aProject
    *          the project to read the channel labels for;
-   * @param aZipIS
-   *          the ZIP input stream to read the channel labels from.
+   * @param aInput
+   *          the input stream to read the channel labels from.
    * @throws IOException
    *           in case of I/O problems.
    */
-  protected List<String> loadChannelLabels( final ZipInputStream aZipIS ) throws IOException
+  protected List<String> loadChannelLabels( final InputStream aInput ) throws IOException
   {
-    final InputStreamReader isReader = new InputStreamReader( aZipIS );
+    final InputStreamReader isReader = new InputStreamReader( aInput );
     final BufferedReader reader = new BufferedReader( isReader );
 
     List<String> result = new ArrayList<String>();
@@ -283,18 +656,18 @@ public class ProjectManagerImpl implements PropertyChangeListener, ProjectManage
   }
 
   /**
-   * Reads the project metadata to the given ZIP-input stream.
+   * Reads the project metadata to the given input stream.
    * 
    * @param aProject
    *          the project to read the metadata for;
-   * @param aZipIS
-   *          the ZIP input stream to read the metadata from.
+   * @param aInput
+   *          the input stream to read the metadata from.
    * @throws IOException
    *           in case of I/O problems.
    */
-  protected void loadProjectMetadata( final Project aProject, final ZipInputStream aZipIS ) throws IOException
+  protected void loadProjectMetadata( final Project aProject, final InputStream aInput ) throws IOException
   {
-    final InputStreamReader isReader = new InputStreamReader( aZipIS );
+    final InputStreamReader isReader = new InputStreamReader( aInput );
     final BufferedReader reader = new BufferedReader( isReader );
 
     String name = null;
@@ -316,24 +689,24 @@ public class ProjectManagerImpl implements PropertyChangeListener, ProjectManage
   }
 
   /**
-   * Reads the project settings to the given ZIP-input stream.
+   * Reads the project settings to the given input stream.
    * 
    * @param aProject
    *          the project to read the settings for;
    * @param aUserSettingsName
    *          the name of the user settings that is to be loaded;
-   * @param aZipIS
-   *          the ZIP input stream to read the settings from.
+   * @param aInput
+   *          the input stream to read the settings from.
    * @throws IOException
    *           in case of I/O problems.
    */
   protected void loadProjectSettings( final ProjectImpl aProject, final String aUserSettingsName,
-      final ZipInputStream aZipIS ) throws IOException
+      final InputStream aInput ) throws IOException
   {
     final Properties settings = new Properties();
     try
     {
-      settings.load( aZipIS );
+      settings.load( aInput );
     }
     finally
     {
@@ -342,11 +715,42 @@ public class ProjectManagerImpl implements PropertyChangeListener, ProjectManage
     }
   }
 
+  /**
+   * Loads a single decode result from the given input stream.
+   * 
+   * @param aProject
+   *          the project to load the decode result into;
+   * @param aKey
+   *          the key of the decode result;
+   * @param aInput
+   *          the input stream to read the decode result from.
+   * @throws IOException
+   *           in case of I/O problems.
+   */
+  protected void loadDecodeResult( final ProjectImpl aProject, final String aKey, final InputStream aInput )
+      throws IOException
+  {
+    final ByteArrayOutputStream result = new ByteArrayOutputStream();
+
+    final byte[] buffer = new byte[8192];
+    int read;
+    while ( ( read = aInput.read( buffer ) ) >= 0 )
+    {
+      result.write( buffer, 0, read );
+    }
+
+    aProject.putDecodeResult( aKey, result.toByteArray() );
+  }
+
   /**
    * Stores the captured results to the given ZIP-output stream.
    * <p>
    * If the given project does not have capture results, this method does
-   * nothing.
+   * nothing. If the capture results did not change since the project was last
+   * loaded or saved, the previously compressed capture results are reused.
+   * Otherwise, the capture results are compressed in blocks, using all
+   * available cores. The block index precedes the capture results, so they can
+   * be decoded in parallel while loading a project.
    * </p>
    * 
    * @param aProject
@@ -356,18 +760,20 @@ public class ProjectManagerImpl implements PropertyChangeListener, ProjectManage
    * @throws IOException
    *           in case of I/O problems.
    */
-  protected void storeCapturedResults( final Project aProject, final ZipOutputStream aZipOS ) throws IOException
+  protected void storeCapturedResults( final Project aProject, final ProjectArchiveOutputStream aZipOS )
+      throws IOException
   {
-    final DataSet dataSet = aProject.getDataSet();
-    if ( dataSet.getCapturedData() == null )
+    final CapturedResultsCache capturedResults = getCapturedResults( aProject );
+    if ( capturedResults == null )
     {
       return;
     }
 
-    final ZipEntry zipEntry = new ZipEntry( FILENAME_CAPTURE_RESULTS );
-    aZipOS.putNextEntry( zipEntry );
+    aZipOS.putNextEntry( FILENAME_CAPTURE_BLOCKS_INDEX );
+    capturedResults.index.write( aZipOS );
 
-    aProject.writeData( new OutputStreamWriter( aZipOS ) );
+    // The capture results are already compressed, so store them as-is...
+    aZipOS.putEntry( FILENAME_CAPTURE_RESULTS, capturedResults.entry );
   }
 
   /**
@@ -384,12 +790,12 @@ public class ProjectManagerImpl implements PropertyChangeListener, ProjectManage
    * @throws IOException
    *           in case of I/O problems.
    */
-  protected void storeChannelLabels( final DataSet aDataSet, final ZipOutputStream aZipOS ) throws IOException
+  protected void storeChannelLabels( final DataSet aDataSet, final ProjectArchiveOutputStream aZipOS )
+      throws IOException
   {
     final Channel[] channels = aDataSet.getChannels();
 
-    final ZipEntry zipEntry = new ZipEntry( FILENAME_CHANNEL_LABELS );
-    aZipOS.putNextEntry( zipEntry );
+    aZipOS.putNextEntry( FILENAME_CHANNEL_LABELS );
 
     // Write the channel labels
     PrintStream out = new PrintStream( aZipOS );
@@ -408,6 +814,27 @@ public class ProjectManagerImpl implements PropertyChangeListener, ProjectManage
     }
   }
 
+  /**
+   * Stores the decode results cached in the given project to the given
+   * ZIP-output stream.
+   * 
+   * @param aProject
+   *          the project to write the decode results for;
+   * @param aZipOS
+   *          the ZIP output stream to write the decode results to.
+   * @throws IOException
+   *           in case of I/O problems.
+   */
+  protected void storeDecodeResults( final ProjectImpl aProject, final ProjectArchiveOutputStream aZipOS )
+      throws IOException
+  {
+    for ( Map.Entry<String, byte[]> entry : aProject.getDecodeResults().entrySet() )
+    {
+      aZipOS.putNextEntry( FILENAME_DECODE_RESULTS.concat( entry.getKey() ) );
+      aZipOS.write( entry.getValue() );
+    }
+  }
+
   /**
    * Stores the project metadata to the given ZIP-output stream.
    * <p>
@@ -422,7 +849,8 @@ public class ProjectManagerImpl implements PropertyChangeListener, ProjectManage
    * @throws IOException
    *           in case of I/O problems.
    */
-  protected void storeProjectMetadata( final Project aProject, final ZipOutputStream aZipOS ) throws IOException
+  protected void storeProjectMetadata( final Project aProject, final ProjectArchiveOutputStream aZipOS )
+      throws IOException
   {
     final String name = aProject.getName();
     if ( ( name == null ) || name.trim().isEmpty() )
@@ -430,8 +858,7 @@ public class ProjectManagerImpl implements PropertyChangeListener, ProjectManage
       return;
     }
 
-    final ZipEntry zipEntry = new ZipEntry( FILENAME_PROJECT_METADATA );
-    aZipOS.putNextEntry( zipEntry );
+    aZipOS.putNextEntry( FILENAME_PROJECT_METADATA );
 
     // Write the project metadata...
     PrintStream out = new PrintStream( aZipOS );
@@ -463,7 +890,8 @@ public class ProjectManagerImpl implements PropertyChangeListener, ProjectManage
    * @throws IOException
    *           in case of I/O problems.
    */
-  protected void storeProjectSettings( final ProjectImpl aProject, final ZipOutputStream aZipOS ) throws IOException
+  protected void storeProjectSettings( final ProjectImpl aProject, final ProjectArchiveOutputStream aZipOS )
+      throws IOException
   {
     try
     {
@@ -474,8 +902,7 @@ public class ProjectManagerImpl implements PropertyChangeListener, ProjectManage
         {
           final String zipEntryName = FILENAME_PROJECT_SETTINGS.concat( aSettings.getName() );
 
-          final ZipEntry zipEntry = new ZipEntry( zipEntryName );
-          aZipOS.putNextEntry( zipEntry );
+          aZipOS.putNextEntry( zipEntryName );
 
           // Convert to a properties object...
           final Properties props = new Properties();
@@ -514,6 +941,153 @@ public class ProjectManagerImpl implements PropertyChangeListener, ProjectManage
     }
   }
 
+  /**
+   * Notifies all listeners about a failure to load capture results.
+   * 
+   * @param aFailure
+   *          the failure that occurred, cannot be <code>null</code>.
+   */
+  final void fireLoadFailure( final Exception aFailure )
+  {
+    this.propertyChangeSupport.firePropertyChange( PROPERTY_LOAD_FAILURE, null, aFailure );
+  }
+
+  /**
+   * Notifies all listeners about the progress of loading capture results.
+   * 
+   * @param aOldPercentage
+   *          the previous progress percentage;
+   * @param aNewPercentage
+   *          the current progress percentage, 0..100.
+   */
+  final void fireLoadProgress( final int aOldPercentage, final int aNewPercentage )
+  {
+    this.propertyChangeSupport.firePropertyChange( PROPERTY_LOAD_PROGRESS, aOldPercentage, aNewPercentage );
+  }
+
+  /**
+   * Returns the codec for the capture results, which uses the current task
+   * execution service, if any.
+   * 
+   * @param aPriority
+   *          the priority to compress or decompress the capture results with,
+   *          cannot be <code>null</code>.
+   * @return a codec, never <code>null</code>.
+   */
+  final CaptureBlockCodec getCodec( final TaskPriority aPriority )
+  {
+    return new CaptureBlockCodec( this.taskExecutionService, aPriority );
+  }
+
+  /**
+   * Returns the compressed capture results of the given project, reusing
+   * previously compressed results if they are still valid.
+   * 
+   * @param aProject
+   *          the project to get the capture results for, cannot be
+   *          <code>null</code>.
+   * @return the compressed capture results, or <code>null</code> if the given
+   *         project has no capture results.
+   * @throws IOException
+   *           in case of I/O problems.
+   */
+  private CapturedResultsCache getCapturedResults( final Project aProject ) throws IOException
+  {
+    final CapturedResultsCache cache = this.capturedResultsCache;
+    if ( ( cache != null ) && cache.isValidFor( aProject ) )
+    {
+      return cache;
+    }
+
+    final DataSet dataSet = aProject.getDataSet();
+    final AcquisitionResult capturedData = dataSet.getCapturedData();
+    if ( capturedData == null )
+    {
+      return null;
+    }
+
+    // Saving is done while the user waits for it...
+    final CaptureBlockCodec.Result result = getCodec( TaskPriority.INTERACTIVE ).compress( dataSet );
+
+    final CapturedResultsCache newCache = new CapturedResultsCache( aProject, capturedData, getSignature( dataSet ),
+        result.entry, result.index );
+    this.capturedResultsCache = newCache;
+    return newCache;
+  }
+
+  /**
+   * Reads the block index of the capture results.
+   * 
+   * @param aInput
+   *          the input stream to read the block index from.
+   * @return the block index, or <code>null</code> if the block index is
+   *         invalid.
+   */
+  private CaptureBlockCodec.BlockIndex readBlockIndex( final InputStream aInput )
+  {
+    try
+    {
+      return CaptureBlockCodec.BlockIndex.read( aInput );
+    }
+    catch ( IOException exception )
+    {
+      LOG.log( Level.INFO, "Ignoring block index of capture results...", exception );
+    }
+    return null;
+  }
+
+  /**
+   * Schedules the given capture results to be decoded in the background.
+   * <p>
+   * In case the capture results are decoded directly, any failure to decode
+   * them is thrown as well.
+   * </p>
+   * 
+   * @param aProject
+   *          the project to decode the capture results for;
+   * @param aCapturedResults
+   *          the compressed capture results to decode;
+   * @param aIndex
+   *          the block index of the capture results;
+   * @param aLabels
+   *          the channel labels to merge once the capture results are decoded,
+   *          can be <code>null</code>.
+   * @throws IOException
+   *           in case the capture results were decoded directly and failed.
+   */
+  private void scheduleLoadCapturedResults( final ProjectImpl aProject, final CompressedEntry aCapturedResults,
+      final CaptureBlockCodec.BlockIndex aIndex, final List<String> aLabels ) throws IOException
+  {
+    final CapturedResultsLoader loader = new CapturedResultsLoader( aProject, aCapturedResults, aIndex, aLabels );
+
+    final TaskExecutionService service = this.taskExecutionService;
+    if ( this.loadExecutor != null )
+    {
+      this.loadExecutor.execute( loader );
+    }
+    else if ( service != null )
+    {
+      // Any capture results of a previously loaded project are obsolete...
+      service.cancelGroup( this );
+      service.execute( loader );
+    }
+    else
+    {
+      // Without task execution service, decode directly...
+      loader.run();
+    }
+
+    final Exception failure = loader.failure;
+    if ( failure instanceof IOException )
+    {
+      throw ( IOException )failure;
+    }
+    else if ( failure instanceof RuntimeException )
+    {
+      throw ( RuntimeException )failure;
+    }
+  }
+
   /**
    * Sets the current project to the given project.
    * 
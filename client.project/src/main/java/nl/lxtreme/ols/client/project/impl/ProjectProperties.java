@@ -49,4 +49,8 @@ public interface ProjectProperties
   public static final String PROPERTY_SETTINGS = "settings";
   /** The captured data of the project. */
   public static final String PROPERTY_CAPTURED_DATA = "capturedData";
+  /** The progress (in percent) of loading the captured data of the project. */
+  public static final String PROPERTY_LOAD_PROGRESS = "loadProgress";
+  /** The failure that occurred while loading the captured data of the project. */
+  public static final String PROPERTY_LOAD_FAILURE = "loadFailure";
 }
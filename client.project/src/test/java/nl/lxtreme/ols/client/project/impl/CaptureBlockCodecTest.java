@@ -0,0 +1,306 @@
+/*
+ * OpenBench LogicSniffer / SUMP project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ *
+ * Copyright (C) 2010-2012 - J.W. Janssen, http://www.lxtreme.nl
+ */
+package nl.lxtreme.ols.client.project.impl;
+
+
+import static org.junit.Assert.*;
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.zip.*;
+
+import nl.lxtreme.ols.api.data.*;
+import nl.lxtreme.ols.api.task.*;
+import nl.lxtreme.ols.test.data.*;
+
+import org.junit.*;
+
+
+/**
+ * Test cases for {@link CaptureBlockCodec}.
+ */
+public class CaptureBlockCodecTest
+{
+  // VARIABLES
+
+  private ExecutorService executor;
+  private CaptureBlockCodec codec;
+
+  // METHODS
+
+  /**
+   * Reads all bytes from the given input stream.
+   */
+  private static byte[] readFully( final InputStream aInput ) throws IOException
+  {
+    final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+    final byte[] buffer = new byte[1024];
+    int read;
+    while ( ( read = aInput.read( buffer ) ) > 0 )
+    {
+      baos.write( buffer, 0, read );
+    }
+    return baos.toByteArray();
+  }
+
+  /**
+   * Creates a data set with a given number of samples.
+   */
+  private static DataSetImpl createDataSet( final int aSize )
+  {
+    final int[] values = new int[aSize];
+    final long[] timestamps = new long[aSize];
+    for ( int i = 0; i < aSize; i++ )
+    {
+      values[i] = i * 0x9E3779B9;
+      timestamps[i] = i * 37L + ( i % 3 );
+    }
+
+    final CapturedData data = new CapturedData( values, timestamps, 10L, 1000000, 32, 0xFFFFFFFF,
+        timestamps[aSize - 1] + 1 );
+    return new DataSetImpl( data, new DataSetImpl(), false /* aRetainAnnotations */);
+  }
+
+  /**
+   * Reads the blocks of the given compressed entry back, as described by the
+   * given block index.
+   */
+  private static CompressedEntry readEntry( final CaptureBlockCodec.BlockIndex aIndex, final CompressedEntry aEntry )
+      throws IOException
+  {
+    final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+    aEntry.writeTo( baos );
+    return aIndex.readEntry( new ByteArrayInputStream( baos.toByteArray() ) );
+  }
+
+  /**
+   * Set up for each test case.
+   */
+  @Before
+  public void setUp()
+  {
+    this.executor = Executors.newFixedThreadPool( 4 );
+    this.codec = new CaptureBlockCodec( new TaskExecutionService()
+    {
+      @Override
+      public int cancelGroup( final Object aGroup )
+      {
+        return 0;
+      }
+
+      @Override
+      public <RESULT_TYPE> Future<RESULT_TYPE> execute( final Task<RESULT_TYPE> aTask )
+      {
+        return CaptureBlockCodecTest.this.executor.submit( aTask );
+      }
+    }, TaskPriority.BATCH );
+  }
+
+  /**
+   * Tear down for each test case.
+   */
+  @After
+  public void tearDown()
+  {
+    this.executor.shutdownNow();
+  }
+
+  /**
+   * Tests that combining CRC-32 checksums yields the CRC-32 of the
+   * concatenated data.
+   */
+  @Test
+  public void testCombineCRC()
+  {
+    final byte[] first = "hello ".getBytes();
+    final byte[] second = "world, this is a test!".getBytes();
+
+    final CRC32 crc1 = new CRC32();
+    crc1.update( first );
+    final CRC32 crc2 = new CRC32();
+    crc2.update( second );
+    final CRC32 all = new CRC32();
+    all.update( first );
+    all.update( second );
+
+    assertEquals( all.getValue(), CaptureBlockCodec.combineCRC( crc1.getValue(), crc2.getValue(), second.length ) );
+  }
+
+  /**
+   * Tests that the compressed capture results can be read as regular deflate
+   * stream, yielding the same contents as {@link OlsDataHelper}.
+   */
+  @Test
+  public void testCompressedDataIsRegularDeflateStream() throws IOException
+  {
+    final DataSetImpl dataSet = createDataSet( 3 * CaptureBlockCodec.SAMPLES_PER_BLOCK + 17 );
+
+    final CaptureBlockCodec.Result result = this.codec.compress( dataSet );
+    assertEquals( 5, result.index.sizes.length );
+
+    final byte[] actual = readFully( result.entry.openStream() );
+
+    final StringWriter writer = new StringWriter();
+    OlsDataHelper.write( dataSet, writer );
+    // Line separators might differ...
+    final String expected = writer.toString().replace( "\r\n", "\n" );
+
+    assertEquals( expected, new String( actual ) );
+    assertEquals( actual.length, result.entry.getSize() );
+
+    final CRC32 crc = new CRC32();
+    crc.update( actual );
+    assertEquals( crc.getValue(), result.entry.getCRC() );
+  }
+
+  /**
+   * Tests that compressing and decompressing yields the original capture
+   * results.
+   */
+  @Test
+  public void testCompressDecompressRoundTrip() throws IOException
+  {
+    final DataSetImpl dataSet = createDataSet( 2 * CaptureBlockCodec.SAMPLES_PER_BLOCK + 1 );
+    dataSet.setCursorsEnabled( true );
+    dataSet.getCursor( 1 ).setTimestamp( 1234L );
+
+    final CaptureBlockCodec.Result result = this.codec.compress( dataSet );
+
+    final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+    result.index.write( baos );
+    final CaptureBlockCodec.BlockIndex index = CaptureBlockCodec.BlockIndex.read( new ByteArrayInputStream(
+        baos.toByteArray() ) );
+
+    final DataSetImpl decompressed = this.codec.decompress( result.entry, index,
+        new CaptureBlockCodec.ProgressListener()
+        {
+          @Override
+          public void setProgress( final int aPercentage )
+          {
+            assertTrue( ( aPercentage >= 0 ) && ( aPercentage <= 100 ) );
+          }
+        } );
+
+    DataTestUtils.assertEquals( dataSet.getCapturedData(), decompressed.getCapturedData() );
+    assertTrue( decompressed.isCursorsEnabled() );
+    assertEquals( 1234L, decompressed.getCursor( 1 ).getTimestamp() );
+  }
+
+  /**
+   * Tests that compressing and decompressing completes on the calling thread
+   * when the task execution service never gets around to running its tasks,
+   * as happens when called from one of its own, fully occupied, workers.
+   */
+  @Test( timeout = 10000 )
+  public void testCompressDecompressWithSaturatedServiceOk() throws IOException
+  {
+    final List<Task<?>> pending = new ArrayList<Task<?>>();
+    final CaptureBlockCodec codec = new CaptureBlockCodec( new TaskExecutionService()
+    {
+      @Override
+      public int cancelGroup( final Object aGroup )
+      {
+        return 0;
+      }
+
+      @Override
+      public <RESULT_TYPE> Future<RESULT_TYPE> execute( final Task<RESULT_TYPE> aTask )
+      {
+        // Queue the task, but never run it...
+        pending.add( aTask );
+        return new FutureTask<RESULT_TYPE>( aTask );
+      }
+    }, TaskPriority.INTERACTIVE );
+
+    final DataSetImpl dataSet = createDataSet( 3 * CaptureBlockCodec.SAMPLES_PER_BLOCK + 5 );
+
+    final CaptureBlockCodec.Result result = codec.compress( dataSet );
+    final DataSetImpl decompressed = codec.decompress( readEntry( result.index, result.entry ), result.index,
+        new CaptureBlockCodec.ProgressListener()
+        {
+          @Override
+          public void setProgress( final int aPercentage )
+          {
+            // Nothing...
+          }
+        } );
+
+    DataTestUtils.assertEquals( dataSet.getCapturedData(), decompressed.getCapturedData() );
+    assertFalse( pending.isEmpty() );
+    assertEquals( TaskPriority.INTERACTIVE, ( ( ScheduledTask<?> )pending.get( 0 ) ).getPriority() );
+  }
+
+  /**
+   * Tests that a block whose contents do not match its CRC-32 is rejected.
+   */
+  @Test( expected = ZipException.class )
+  public void testDecompressBlockWithCRCMismatchFails() throws IOException
+  {
+    final DataSetImpl dataSet = createDataSet( 2 * CaptureBlockCodec.SAMPLES_PER_BLOCK );
+
+    final CaptureBlockCodec.Result result = this.codec.compress( dataSet );
+    final CaptureBlockCodec.BlockIndex index = result.index;
+
+    final long[] crcs = index.crcs.clone();
+    crcs[1] ^= 1L;
+    // Keep the combined CRC consistent, so only the block check can fail...
+    long crc = 0L;
+    for ( int i = 0; i < crcs.length; i++ )
+    {
+      crc = CaptureBlockCodec.combineCRC( crc, crcs[i], index.sizes[i] );
+    }
+
+    final CaptureBlockCodec.BlockIndex corrupt = new CaptureBlockCodec.BlockIndex( index.compressedSizes,
+        index.sizes, index.sampleCounts, crcs, crc );
+    final CompressedEntry entry = readEntry( corrupt, result.entry );
+
+    this.codec.decompress( entry, corrupt,
+        new CaptureBlockCodec.ProgressListener()
+        {
+          @Override
+          public void setProgress( final int aPercentage )
+          {
+            // Nop
+          }
+        } );
+  }
+
+  /**
+   * Tests that a block index only matches an entry with the same CRC-32.
+   */
+  @Test
+  public void testIndexMatchesEntryCRC() throws IOException
+  {
+    final DataSetImpl dataSet = createDataSet( 2 * CaptureBlockCodec.SAMPLES_PER_BLOCK + 1 );
+
+    final CaptureBlockCodec.Result result = this.codec.compress( dataSet );
+    assertTrue( result.index.matches( result.entry ) );
+
+    final CaptureBlockCodec.BlockIndex index = result.index;
+    final long[] crcs = index.crcs.clone();
+    crcs[0] ^= 1L;
+    final CaptureBlockCodec.BlockIndex other = new CaptureBlockCodec.BlockIndex( index.compressedSizes,
+        index.sizes, index.sampleCounts, crcs, index.crc ^ 1L );
+    assertFalse( other.matches( result.entry ) );
+    assertFalse( other.matches( readEntry( other, result.entry ) ) );
+  }
+}
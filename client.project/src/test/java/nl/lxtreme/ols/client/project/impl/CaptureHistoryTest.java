@@ -0,0 +1,292 @@
+/*
+ * OpenBench LogicSniffer / SUMP project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ *
+ * Copyright (C) 2010-2012 - J.W. Janssen, http://www.lxtreme.nl
+ */
+package nl.lxtreme.ols.client.project.impl;
+
+
+import static org.junit.Assert.*;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+import nl.lxtreme.ols.api.acquisition.*;
+import nl.lxtreme.ols.api.data.*;
+import nl.lxtreme.ols.api.task.*;
+import nl.lxtreme.ols.test.data.*;
+
+import org.junit.*;
+
+
+/**
+ * Test cases for {@link CaptureHistory}.
+ */
+public class CaptureHistoryTest
+{
+  // INNER TYPES
+
+  /**
+   * Provides a task execution service that runs its tasks only when told so.
+   */
+  static final class QueueingTaskExecutionService implements TaskExecutionService
+  {
+    final List<ScheduledTask<?>> tasks = new ArrayList<ScheduledTask<?>>();
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int cancelGroup( final Object aGroup )
+    {
+      int result = 0;
+      for ( Iterator<ScheduledTask<?>> iter = this.tasks.iterator(); iter.hasNext(); )
+      {
+        if ( iter.next().getGroup() == aGroup )
+        {
+          iter.remove();
+          result++;
+        }
+      }
+      return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public <RESULT_TYPE> Future<RESULT_TYPE> execute( final Task<RESULT_TYPE> aTask )
+    {
+      this.tasks.add( ( ScheduledTask<?> )aTask );
+      return new FutureTask<RESULT_TYPE>( aTask );
+    }
+
+    /**
+     * Runs all queued tasks.
+     */
+    void runAll() throws Exception
+    {
+      for ( ScheduledTask<?> task : this.tasks )
+      {
+        task.call();
+      }
+      this.tasks.clear();
+    }
+  }
+
+  // CONSTANTS
+
+  /** Compresses all captures directly on the calling thread. */
+  private static final TaskExecutionService DIRECT = null;
+
+  // METHODS
+
+  /**
+   * Creates a capture with a given number of transitions.
+   */
+  private static CapturedData createCapture( final int aSize, final int aSeed )
+  {
+    final int[] values = new int[aSize];
+    final long[] timestamps = new long[aSize];
+
+    long time = 0L;
+    for ( int i = 0; i < aSize; i++ )
+    {
+      values[i] = ( i % 2 == 0 ) ? aSeed : ~aSeed + i;
+      timestamps[i] = time;
+      time += 1 + ( i % 7 ) * 100000L;
+    }
+
+    return new CapturedData( values, timestamps, 10L, 1000000, 32, 0xFFFFFFFF, time );
+  }
+
+  /**
+   * Tests that adding the same capture twice only retains it once.
+   */
+  @Test
+  public void testAddDuplicateCaptureIsRetainedOnce()
+  {
+    final CaptureHistory history = new CaptureHistory( CaptureHistory.DEFAULT_CAPACITY,
+        CaptureHistory.DEFAULT_MEMORY_BUDGET, DIRECT );
+
+    history.add( createCapture( 100, 1 ) );
+    history.add( createCapture( 100, 2 ) );
+    history.add( createCapture( 100, 1 ) );
+
+    assertEquals( 2, history.size() );
+    assertEquals( 0, history.getSelectedIndex() );
+  }
+
+  /**
+   * Tests that the capacity of the history is respected.
+   */
+  @Test
+  public void testCapacityIsRespected()
+  {
+    final CaptureHistory history = new CaptureHistory( 3, Long.MAX_VALUE, DIRECT );
+    for ( int i = 0; i < 10; i++ )
+    {
+      history.add( createCapture( 10, i ) );
+    }
+
+    assertEquals( 3, history.size() );
+  }
+
+  /**
+   * Tests that captures are compressed by the executor, not by the thread
+   * adding them.
+   */
+  @Test
+  public void testCompressionIsDeferredToExecutor() throws Exception
+  {
+    final QueueingTaskExecutionService executor = new QueueingTaskExecutionService();
+    final CaptureHistory history = new CaptureHistory( 10, Long.MAX_VALUE, executor );
+
+    final CapturedData capture = createCapture( 5000, 0x1234 );
+    assertTrue( history.add( capture ) );
+    assertSame( capture, history.get( 0 ) );
+    assertEquals( 1, executor.tasks.size() );
+    assertSame( history, executor.tasks.get( 0 ).getGroup() );
+    assertEquals( TaskPriority.BATCH, executor.tasks.get( 0 ).getPriority() );
+
+    // Adding the same instance again does not compress it again...
+    assertTrue( history.add( capture ) );
+    assertEquals( 1, history.size() );
+    assertEquals( 1, executor.tasks.size() );
+
+    executor.runAll();
+
+    assertEquals( 1, history.size() );
+    assertTrue( history.getMemorySize() < ( capture.getValues().length * 12L ) );
+    DataTestUtils.assertEquals( capture, history.get( 0 ) );
+  }
+
+  /**
+   * Tests that a capture exceeding the memory budget is rejected without being
+   * compressed at all.
+   */
+  @Test
+  public void testCaptureExceedingBudgetIsNotCompressed()
+  {
+    final QueueingTaskExecutionService executor = new QueueingTaskExecutionService();
+    final CaptureHistory history = new CaptureHistory( 10, 1024L, executor );
+
+    assertFalse( history.add( createCapture( 1000, 1 ) ) );
+    assertEquals( 0, history.size() );
+    assertTrue( executor.tasks.isEmpty() );
+  }
+
+  /**
+   * Tests that clearing the history cancels all pending compressions.
+   */
+  @Test
+  public void testClearCancelsPendingCompression()
+  {
+    final QueueingTaskExecutionService executor = new QueueingTaskExecutionService();
+    final CaptureHistory history = new CaptureHistory( 10, Long.MAX_VALUE, executor );
+
+    assertTrue( history.add( createCapture( 1000, 1 ) ) );
+    assertTrue( history.add( createCapture( 1000, 2 ) ) );
+    assertEquals( 2, executor.tasks.size() );
+
+    history.clear();
+
+    assertEquals( 0, history.size() );
+    assertTrue( executor.tasks.isEmpty() );
+  }
+
+  /**
+   * Tests that a decompressed capture equals the original capture.
+   */
+  @Test
+  public void testDecompressedCaptureEqualsOriginal()
+  {
+    final CapturedData original = createCapture( 5000, 0x1234 );
+
+    final CaptureHistory.CompressedCapture capture = new CaptureHistory.CompressedCapture( original );
+    // Make sure we're not obtaining the soft-referenced original...
+    final AcquisitionResult decompressed = capture.decode();
+
+    assertNotSame( original, decompressed );
+    DataTestUtils.assertEquals( original, decompressed );
+    assertTrue( capture.getMemorySize() < ( original.getValues().length * 12L ) );
+  }
+
+  /**
+   * Tests that the memory budget of the history is respected.
+   */
+  @Test
+  public void testMemoryBudgetIsRespected()
+  {
+    final CaptureHistory history = new CaptureHistory( 100, 16 * 1024L, DIRECT );
+
+    for ( int i = 0; i < 20; i++ )
+    {
+      history.add( createCapture( 2000, i ) );
+    }
+
+    assertTrue( history.size() < 20 );
+    assertTrue( history.getMemorySize() <= ( 16 * 1024L ) );
+
+    // Does not fit at all...
+    assertFalse( history.add( createCapture( 100000, 42 ) ) );
+    assertEquals( -1, history.getSelectedIndex() );
+  }
+
+  /**
+   * Tests that selecting an older capture of a project replaces its data set.
+   */
+  @Test
+  public void testSelectCaptureInProject()
+  {
+    final ProjectImpl project = new ProjectImpl();
+
+    final CapturedData first = createCapture( 100, 1 );
+    final CapturedData second = createCapture( 100, 2 );
+
+    project.setCapturedData( first );
+    project.setCapturedData( second );
+
+    assertEquals( 2, project.getCaptureCount() );
+    assertEquals( 0, project.getSelectedCapture() );
+
+    project.selectCapture( 1 );
+
+    assertEquals( 1, project.getSelectedCapture() );
+    DataTestUtils.assertEquals( first, project.getDataSet().getCapturedData() );
+  }
+
+  /**
+   * Tests that browsing the capture history does not mark a project as
+   * changed.
+   */
+  @Test
+  public void testSelectCaptureDoesNotChangeProject()
+  {
+    final ProjectImpl project = new ProjectImpl();
+
+    project.setCapturedData( createCapture( 100, 1 ) );
+    project.setCapturedData( createCapture( 100, 2 ) );
+    assertTrue( project.isChanged() );
+
+    project.setChanged( false );
+    project.selectCapture( 1 );
+
+    assertFalse( project.isChanged() );
+  }
+}
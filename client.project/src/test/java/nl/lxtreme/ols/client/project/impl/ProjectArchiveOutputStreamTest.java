@@ -0,0 +1,217 @@
+/*
+ * OpenBench LogicSniffer / SUMP project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ *
+ * Copyright (C) 2010-2012 - J.W. Janssen, http://www.lxtreme.nl
+ */
+package nl.lxtreme.ols.client.project.impl;
+
+
+import static org.junit.Assert.*;
+
+import java.io.*;
+import java.util.zip.*;
+
+import org.junit.*;
+
+
+/**
+ * Test cases for {@link ProjectArchiveOutputStream} and
+ * {@link ProjectArchiveInputStream}.
+ */
+public class ProjectArchiveOutputStreamTest
+{
+  // METHODS
+
+  /**
+   * Reads all bytes from the given input stream.
+   */
+  private static byte[] readFully( final InputStream aInput ) throws IOException
+  {
+    final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+    final byte[] buffer = new byte[1024];
+    int read;
+    while ( ( read = aInput.read( buffer ) ) > 0 )
+    {
+      baos.write( buffer, 0, read );
+    }
+    return baos.toByteArray();
+  }
+
+  /**
+   * Creates a compressed entry for the given data.
+   */
+  private static CompressedEntry createEntry( final byte[] aData )
+  {
+    final CRC32 crc = new CRC32();
+    crc.update( aData );
+
+    final byte[][] blocks = { CaptureBlockCodec.deflate( aData, aData.length ), { 0x03, 0x00 } };
+    return new CompressedEntry( blocks, crc.getValue(), aData.length );
+  }
+
+  /**
+   * Writes an archive with a regular entry, a compressed entry, and another
+   * regular entry.
+   */
+  private static byte[] writeArchive( final CompressedEntry aEntry ) throws IOException
+  {
+    final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+    final ProjectArchiveOutputStream zipOS = new ProjectArchiveOutputStream( baos );
+    zipOS.setComment( "test" );
+    zipOS.putNextEntry( "first" );
+    zipOS.write( "hello world".getBytes() );
+    zipOS.putEntry( "compressed", aEntry );
+    zipOS.putNextEntry( "last" );
+    zipOS.write( "bye".getBytes() );
+    zipOS.close();
+    return baos.toByteArray();
+  }
+
+  /**
+   * Tests that an archive can be read by {@link ZipFile}, which uses the
+   * central directory.
+   */
+  @Test
+  public void testArchiveReadByZipFileOk() throws IOException
+  {
+    final byte[] data = "some compressed data, some compressed data".getBytes();
+
+    final File file = File.createTempFile( "ols", ".zip" );
+    try
+    {
+      final OutputStream os = new FileOutputStream( file );
+      os.write( writeArchive( createEntry( data ) ) );
+      os.close();
+
+      final ZipFile zipFile = new ZipFile( file );
+      try
+      {
+        assertArrayEquals( "hello world".getBytes(), readFully( zipFile.getInputStream( zipFile.getEntry( "first" ) ) ) );
+        assertArrayEquals( data, readFully( zipFile.getInputStream( zipFile.getEntry( "compressed" ) ) ) );
+        assertArrayEquals( "bye".getBytes(), readFully( zipFile.getInputStream( zipFile.getEntry( "last" ) ) ) );
+      }
+      finally
+      {
+        zipFile.close();
+      }
+    }
+    finally
+    {
+      file.delete();
+    }
+  }
+
+  /**
+   * Tests that an archive can be read by {@link ZipInputStream}, and that the
+   * compressed entry can be read as-is.
+   */
+  @Test
+  public void testArchiveReadByZipInputStreamOk() throws IOException
+  {
+    final CompressedEntry entry = createEntry( "some compressed data, some compressed data".getBytes() );
+    final byte[] archive = writeArchive( entry );
+
+    final ByteArrayOutputStream raw = new ByteArrayOutputStream();
+    entry.writeTo( raw );
+
+    final ProjectArchiveInputStream zipIS = new ProjectArchiveInputStream( new ByteArrayInputStream( archive ) );
+    assertEquals( "first", zipIS.getNextEntry().getName() );
+    // Followed by a data descriptor...
+    assertFalse( zipIS.isRawEntryAvailable() );
+    assertArrayEquals( "hello world".getBytes(), readFully( zipIS ) );
+
+    final ZipEntry ze = zipIS.getNextEntry();
+    assertEquals( "compressed", ze.getName() );
+    assertEquals( entry.getCRC(), ze.getCrc() );
+    assertTrue( zipIS.isRawEntryAvailable() );
+    assertArrayEquals( raw.toByteArray(), readFully( zipIS.openRawEntry() ) );
+
+    assertEquals( "last", zipIS.getNextEntry().getName() );
+    assertArrayEquals( "bye".getBytes(), readFully( zipIS ) );
+    assertNull( zipIS.getNextEntry() );
+    zipIS.close();
+  }
+
+  /**
+   * Tests that a partially read compressed entry is skipped properly.
+   */
+  @Test
+  public void testSkipPartiallyReadRawEntryOk() throws IOException
+  {
+    final byte[] archive = writeArchive( createEntry( "some compressed data".getBytes() ) );
+
+    final ProjectArchiveInputStream zipIS = new ProjectArchiveInputStream( new ByteArrayInputStream( archive ) );
+    zipIS.getNextEntry();
+    zipIS.getNextEntry();
+    assertTrue( zipIS.openRawEntry().read() >= 0 );
+
+    assertEquals( "last", zipIS.getNextEntry().getName() );
+    assertArrayEquals( "bye".getBytes(), readFully( zipIS ) );
+    zipIS.close();
+  }
+
+  /**
+   * Tests that Zip64 extensions are used for entries whose size does not fit
+   * in 32 bits.
+   */
+  @Test
+  public void testLargeEntryUsesZip64Ok() throws IOException
+  {
+    // Only the size is verified while reading the entry's contents, so it can
+    // be faked as long as the contents are not inflated...
+    final long size = 5L * 1024L * 1024L * 1024L;
+    final CompressedEntry small = createEntry( "data".getBytes() );
+    final ByteArrayOutputStream raw = new ByteArrayOutputStream();
+    small.writeTo( raw );
+    final CompressedEntry entry = new CompressedEntry( new byte[][] { raw.toByteArray() }, small.getCRC(), size );
+
+    final byte[] archive = writeArchive( entry );
+
+    final ProjectArchiveInputStream zipIS = new ProjectArchiveInputStream( new ByteArrayInputStream( archive ) );
+    zipIS.getNextEntry();
+    final ZipEntry ze = zipIS.getNextEntry();
+    assertEquals( size, ze.getSize() );
+    assertEquals( raw.size(), ze.getCompressedSize() );
+    assertArrayEquals( raw.toByteArray(), readFully( zipIS.openRawEntry() ) );
+    assertEquals( "last", zipIS.getNextEntry().getName() );
+    zipIS.close();
+
+    final File file = File.createTempFile( "ols", ".zip" );
+    try
+    {
+      final OutputStream os = new FileOutputStream( file );
+      os.write( archive );
+      os.close();
+
+      final ZipFile zipFile = new ZipFile( file );
+      try
+      {
+        assertEquals( size, zipFile.getEntry( "compressed" ).getSize() );
+        assertArrayEquals( "bye".getBytes(), readFully( zipFile.getInputStream( zipFile.getEntry( "last" ) ) ) );
+      }
+      finally
+      {
+        zipFile.close();
+      }
+    }
+    finally
+    {
+      file.delete();
+    }
+  }
+}
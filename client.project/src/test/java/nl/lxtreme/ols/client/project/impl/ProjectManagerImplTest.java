@@ -24,7 +24,11 @@ package nl.lxtreme.ols.client.project.impl;
 import static org.junit.Assert.*;
 import static org.mockito.Mockito.*;
 
+import java.beans.*;
 import java.io.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.zip.*;
 
 import nl.lxtreme.ols.api.*;
 import nl.lxtreme.ols.api.acquisition.*;
@@ -44,6 +48,8 @@ public class ProjectManagerImplTest
   // VARIABLES
 
   private ProjectManagerImpl projectManager;
+  private List<Runnable> pendingTasks;
+  private boolean deferTasks;
 
   // METHODS
 
@@ -56,10 +62,89 @@ public class ProjectManagerImplTest
     HostProperties mockProperties = mock( HostProperties.class );
     when( mockProperties.getFullName() ).thenReturn( "OLS" );
 
-    this.projectManager = new ProjectManagerImpl();
+    this.pendingTasks = new ArrayList<Runnable>();
+    this.deferTasks = false;
+
+    this.projectManager = new ProjectManagerImpl( new Executor()
+    {
+      @Override
+      public void execute( final Runnable aTask )
+      {
+        if ( ProjectManagerImplTest.this.deferTasks )
+        {
+          ProjectManagerImplTest.this.pendingTasks.add( aTask );
+        }
+        else
+        {
+          aTask.run();
+        }
+      }
+    } );
     this.projectManager.setHostProperties( mockProperties );
   }
 
+  /**
+   * Creates a project with capture results that cannot be read.
+   */
+  private static byte[] createBrokenProject() throws IOException
+  {
+    final ByteArrayOutputStream baos = new ByteArrayOutputStream( 1024 );
+    final ProjectArchiveOutputStream zipOS = new ProjectArchiveOutputStream( baos );
+    zipOS.putNextEntry( "ols.project" );
+    zipOS.write( "broken\n0.9.6\n0\n".getBytes() );
+
+    // A block index that matches the capture results...
+    final CaptureBlockCodec.BlockIndex index = new CaptureBlockCodec.BlockIndex( new int[] { 4 }, new int[] { 10 },
+        new int[] { 0 }, new long[] { 0L }, 0L );
+    zipOS.putNextEntry( ProjectManagerImpl.FILENAME_CAPTURE_BLOCKS_INDEX );
+    index.write( zipOS );
+
+    // ...but whose block is not a valid deflate stream...
+    final byte[][] blocks = { { ( byte )0xFF, ( byte )0xFF, ( byte )0xFF, ( byte )0xFF }, { 0x03, 0x00 } };
+    zipOS.putEntry( ProjectManagerImpl.FILENAME_CAPTURE_RESULTS, new CompressedEntry( blocks, 0L, 10L ) );
+    zipOS.close();
+    return baos.toByteArray();
+  }
+
+  /**
+   * Reads all bytes from the given input stream.
+   */
+  private static byte[] readFully( final InputStream aInput ) throws IOException
+  {
+    final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+    final byte[] buffer = new byte[1024];
+    int read;
+    while ( ( read = aInput.read( buffer ) ) > 0 )
+    {
+      baos.write( buffer, 0, read );
+    }
+    return baos.toByteArray();
+  }
+
+  /**
+   * Returns the (uncompressed) contents of the entry with the given name.
+   */
+  private static byte[] readEntry( final byte[] aProject, final String aName ) throws IOException
+  {
+    final ZipInputStream zipIS = new ZipInputStream( new ByteArrayInputStream( aProject ) );
+    try
+    {
+      ZipEntry ze;
+      while ( ( ze = zipIS.getNextEntry() ) != null )
+      {
+        if ( aName.equals( ze.getName() ) )
+        {
+          return readFully( zipIS );
+        }
+      }
+      return null;
+    }
+    finally
+    {
+      zipIS.close();
+    }
+  }
+
   /**
    * Test method for {@link SimpleProjectManager#createNewProject()}.
    */
@@ -96,6 +181,167 @@ public class ProjectManagerImplTest
     this.projectManager.loadProject( bais );
   }
 
+  /**
+   * Test method for
+   * {@link SimpleProjectManager#loadProject(java.io.InputStream)}.
+   */
+  @Test
+  public void testLoadProjectDecodesCaptureResultsInBackground() throws IOException
+  {
+    final AcquisitionResult mockedCapturedData = DataTestUtils.getMockedCapturedData();
+
+    final Project project = this.projectManager.getCurrentProject();
+    project.setName( "lazy" );
+    project.setCapturedData( mockedCapturedData );
+
+    final ByteArrayOutputStream baos = new ByteArrayOutputStream( 1024 );
+    this.projectManager.saveProject( baos );
+
+    this.deferTasks = true;
+    this.projectManager.loadProject( new ByteArrayInputStream( baos.toByteArray() ) );
+
+    final Project loadedProject = this.projectManager.getCurrentProject();
+    // Metadata is directly available, the capture results are not...
+    assertEquals( "lazy", loadedProject.getName() );
+    assertNull( loadedProject.getDataSet().getCapturedData() );
+    assertEquals( 1, this.pendingTasks.size() );
+
+    // Saving while still loading should retain the capture results...
+    final ByteArrayOutputStream baos2 = new ByteArrayOutputStream( 1024 );
+    this.projectManager.saveProject( baos2 );
+    assertArrayEquals( readEntry( baos.toByteArray(), ProjectManagerImpl.FILENAME_CAPTURE_RESULTS ),
+        readEntry( baos2.toByteArray(), ProjectManagerImpl.FILENAME_CAPTURE_RESULTS ) );
+
+    this.pendingTasks.remove( 0 ).run();
+
+    DataTestUtils.assertEquals( mockedCapturedData, loadedProject.getDataSet().getCapturedData() );
+    assertFalse( loadedProject.isChanged() );
+  }
+
+  /**
+   * Test method for
+   * {@link SimpleProjectManager#loadProject(java.io.InputStream)}.
+   */
+  @Test
+  public void testLoadProjectDiscardsCaptureResultsWhenDataReplaced() throws IOException
+  {
+    final Project project = this.projectManager.getCurrentProject();
+    project.setCapturedData( DataTestUtils.getMockedCapturedData() );
+
+    final ByteArrayOutputStream baos = new ByteArrayOutputStream( 1024 );
+    this.projectManager.saveProject( baos );
+
+    this.deferTasks = true;
+    this.projectManager.loadProject( new ByteArrayInputStream( baos.toByteArray() ) );
+
+    // A new acquisition comes in while still loading...
+    final AcquisitionResult newData = DataTestUtils.createStubDataSet( 16, 8 ).getCapturedData();
+    final Project loadedProject = this.projectManager.getCurrentProject();
+    loadedProject.setCapturedData( newData );
+
+    this.pendingTasks.remove( 0 ).run();
+
+    assertSame( newData, loadedProject.getDataSet().getCapturedData() );
+    assertTrue( loadedProject.isChanged() );
+  }
+
+  /**
+   * Test method for
+   * {@link SimpleProjectManager#loadProject(java.io.InputStream)}.
+   */
+  @Test
+  public void testLoadProjectRetainsEditsMadeWhileLoading() throws IOException
+  {
+    final Project project = this.projectManager.getCurrentProject();
+    project.setCapturedData( DataTestUtils.getMockedCapturedData() );
+    project.getDataSet().getChannel( 0 ).setLabel( "saved" );
+
+    final ByteArrayOutputStream baos = new ByteArrayOutputStream( 1024 );
+    this.projectManager.saveProject( baos );
+
+    this.deferTasks = true;
+    this.projectManager.loadProject( new ByteArrayInputStream( baos.toByteArray() ) );
+
+    final Project loadedProject = this.projectManager.getCurrentProject();
+    assertFalse( loadedProject.isChanged() );
+
+    loadedProject.getDataSet().getChannel( 0 ).setLabel( "edited" );
+    assertTrue( loadedProject.isChanged() );
+
+    this.pendingTasks.remove( 0 ).run();
+
+    DataTestUtils.assertEquals( DataTestUtils.getMockedCapturedData(), loadedProject.getDataSet().getCapturedData() );
+    assertEquals( "edited", loadedProject.getDataSet().getChannel( 0 ).getLabel() );
+    assertTrue( loadedProject.isChanged() );
+  }
+
+  /**
+   * Test method for
+   * {@link SimpleProjectManager#loadProject(java.io.InputStream)}.
+   */
+  @Test( expected = IOException.class )
+  public void testLoadProjectDirectlyFailsOnBrokenCaptureResults() throws IOException
+  {
+    this.projectManager.loadProject( new ByteArrayInputStream( createBrokenProject() ) );
+  }
+
+  /**
+   * Test method for
+   * {@link SimpleProjectManager#loadProject(java.io.InputStream)}.
+   */
+  @Test
+  public void testLoadProjectReportsFailureToLoadCaptureResults() throws IOException
+  {
+    final List<Object> failures = new ArrayList<Object>();
+    this.projectManager.addPropertyChangeListener( new PropertyChangeListener()
+    {
+      @Override
+      public void propertyChange( final PropertyChangeEvent aEvent )
+      {
+        if ( ProjectProperties.PROPERTY_LOAD_FAILURE.equals( aEvent.getPropertyName() ) )
+        {
+          failures.add( aEvent.getNewValue() );
+        }
+      }
+    } );
+
+    this.deferTasks = true;
+    this.projectManager.loadProject( new ByteArrayInputStream( createBrokenProject() ) );
+
+    this.pendingTasks.remove( 0 ).run();
+
+    assertEquals( 1, failures.size() );
+    assertTrue( failures.get( 0 ) instanceof Exception );
+  }
+
+  /**
+   * Test method for
+   * {@link SimpleProjectManager#loadProject(java.io.InputStream)}.
+   */
+  @Test
+  public void testLoadProjectWrittenByZipOutputStreamOk() throws IOException
+  {
+    final Project project = this.projectManager.getCurrentProject();
+    project.setCapturedData( DataTestUtils.getMockedCapturedData() );
+
+    final ByteArrayOutputStream baos = new ByteArrayOutputStream( 1024 );
+    final ZipOutputStream zipOS = new ZipOutputStream( baos );
+    zipOS.putNextEntry( new ZipEntry( "ols.project" ) );
+    zipOS.write( "legacy\n0.9.6\n0\n".getBytes() );
+    zipOS.putNextEntry( new ZipEntry( ProjectManagerImpl.FILENAME_CAPTURE_RESULTS ) );
+    final Writer writer = new OutputStreamWriter( zipOS );
+    project.writeData( writer );
+    writer.flush();
+    zipOS.close();
+
+    this.projectManager.createNewProject();
+    this.projectManager.loadProject( new ByteArrayInputStream( baos.toByteArray() ) );
+
+    final Project loadedProject = this.projectManager.getCurrentProject();
+    assertEquals( "legacy", loadedProject.getName() );
+    DataTestUtils.assertEquals( DataTestUtils.getMockedCapturedData(), loadedProject.getDataSet().getCapturedData() );
+  }
+
   /**
    * Test method for
    * {@link SimpleProjectManager#loadProject(java.io.InputStream)}.
@@ -127,6 +373,7 @@ public class ProjectManagerImplTest
 
     final Project project = this.projectManager.getCurrentProject();
     project.setCapturedData( mockedCapturedData );
+    project.putDecodeResult( "tool-1", new byte[] { 1, 2, 3 } );
 
     final ByteArrayOutputStream baos = new ByteArrayOutputStream( 1024 );
     this.projectManager.saveProject( baos ); // should succeed...
@@ -139,6 +386,58 @@ public class ProjectManagerImplTest
 
     DataTestUtils.assertEquals( mockedCapturedData, this.projectManager.getCurrentProject().getDataSet()
         .getCapturedData() );
+    // Entries following the capture results should be read as well...
+    assertArrayEquals( new byte[] { 1, 2, 3 }, this.projectManager.getCurrentProject().getDecodeResult( "tool-1" ) );
+  }
+
+  /**
+   * Test method for
+   * {@link SimpleProjectManager#saveProject(java.io.OutputStream)}.
+   */
+  @Test
+  public void testSaveProjectStoresRegularCaptureResultsEntry() throws IOException
+  {
+    final Project project = this.projectManager.getCurrentProject();
+    project.setCapturedData( DataTestUtils.getMockedCapturedData() );
+
+    final ByteArrayOutputStream baos = new ByteArrayOutputStream( 1024 );
+    this.projectManager.saveProject( baos );
+
+    // Regular ZIP readers, and older clients, should be able to read the
+    // capture results as-is...
+    final StringWriter writer = new StringWriter();
+    project.writeData( writer );
+
+    final String data = new String( readEntry( baos.toByteArray(), ProjectManagerImpl.FILENAME_CAPTURE_RESULTS ) );
+    assertEquals( writer.toString().replace( "\r\n", "\n" ), data );
+  }
+
+  /**
+   * Test method for
+   * {@link SimpleProjectManager#saveProject(java.io.OutputStream)}.
+   */
+  @Test
+  public void testSaveProjectStoresDecodeResultsOk() throws IOException
+  {
+    final Project project = this.projectManager.getCurrentProject();
+    project.putDecodeResult( "tool-1", new byte[] { 1, 2, 3 } );
+    project.putDecodeResult( "tool-2", new byte[0] );
+    assertFalse( project.isChanged() );
+
+    final ByteArrayOutputStream baos = new ByteArrayOutputStream( 1024 );
+    this.projectManager.saveProject( baos ); // should succeed...
+
+    // Make sure everything is gone...
+    this.projectManager.createNewProject();
+    assertNull( this.projectManager.getCurrentProject().getDecodeResult( "tool-1" ) );
+
+    final ByteArrayInputStream bais = new ByteArrayInputStream( baos.toByteArray() );
+    this.projectManager.loadProject( bais );
+
+    final Project loadedProject = this.projectManager.getCurrentProject();
+    assertArrayEquals( new byte[] { 1, 2, 3 }, loadedProject.getDecodeResult( "tool-1" ) );
+    assertArrayEquals( new byte[0], loadedProject.getDecodeResult( "tool-2" ) );
+    assertNull( loadedProject.getDecodeResult( "tool-3" ) );
   }
 
   /**
@@ -227,4 +526,34 @@ public class ProjectManagerImplTest
     assertNotSame( settings, this.projectManager.getCurrentProject().getSettings( settingsName ) );
     assertEquals( "value", this.projectManager.getCurrentProject().getSettings( settingsName ).get( "key", "default" ) );
   }
+
+  /**
+   * Test method for
+   * {@link SimpleProjectManager#saveProject(java.io.OutputStream)}.
+   */
+  @Test
+  public void testSaveUnchangedProjectReusesCaptureResults() throws IOException
+  {
+    final Project project = this.projectManager.getCurrentProject();
+    project.setCapturedData( DataTestUtils.getMockedCapturedData() );
+
+    final ByteArrayOutputStream baos = new ByteArrayOutputStream( 1024 );
+    this.projectManager.saveProject( baos );
+
+    final ProjectManagerImpl.CapturedResultsCache cache = this.projectManager.capturedResultsCache;
+    assertNotNull( cache );
+
+    this.projectManager.saveProject( new ByteArrayOutputStream( 1024 ) );
+    assertSame( cache, this.projectManager.capturedResultsCache );
+
+    // Changing the cursors invalidates the compressed capture results...
+    project.getDataSet().setCursorsEnabled( !project.getDataSet().isCursorsEnabled() );
+
+    final ByteArrayOutputStream baos2 = new ByteArrayOutputStream( 1024 );
+    this.projectManager.saveProject( baos2 );
+    assertNotSame( cache, this.projectManager.capturedResultsCache );
+
+    final String data = new String( readEntry( baos2.toByteArray(), ProjectManagerImpl.FILENAME_CAPTURE_RESULTS ) );
+    assertTrue( data.contains( ";CursorEnabled: " + project.getDataSet().isCursorsEnabled() ) );
+  }
 }
@@ -30,6 +30,7 @@ import nl.lxtreme.ols.api.data.annotation.AnnotationListener;
 import nl.lxtreme.ols.api.data.export.*;
 import nl.lxtreme.ols.api.data.project.*;
 import nl.lxtreme.ols.api.devices.*;
+import nl.lxtreme.ols.api.task.*;
 import nl.lxtreme.ols.api.tools.*;
 import nl.lxtreme.ols.api.ui.*;
 import nl.lxtreme.ols.client.osgi.*;
@@ -227,6 +228,10 @@ public class Activator extends DependencyActivatorBase
         .add( createServiceDependency() //
             .setService( UIColorSchemeManager.class ) //
             .setRequired( true ) ) //
+        .add( createServiceDependency() //
+            .setService( TaskExecutionService.class ) //
+            .setCallbacks( "setTaskExecutionService", "removeTaskExecutionService" ) //
+            .setRequired( false ) ) //
         .add( createServiceDependency() //
             .setService( ComponentProvider.class, "(OLS-ComponentProvider=Menu)" ) //
             .setCallbacks( "addMenu", "removeMenu" ) //
@@ -40,6 +40,7 @@ import nl.lxtreme.ols.api.data.annotation.AnnotationListener;
 import nl.lxtreme.ols.api.data.export.*;
 import nl.lxtreme.ols.api.data.project.*;
 import nl.lxtreme.ols.api.devices.*;
+import nl.lxtreme.ols.api.task.*;
 import nl.lxtreme.ols.api.tools.*;
 import nl.lxtreme.ols.api.ui.*;
 import nl.lxtreme.ols.api.util.*;
@@ -47,6 +48,7 @@ import nl.lxtreme.ols.client.action.*;
 import nl.lxtreme.ols.client.actionmanager.*;
 import nl.lxtreme.ols.client.osgi.*;
 import nl.lxtreme.ols.client.signaldisplay.*;
+import nl.lxtreme.ols.client.signaldisplay.search.*;
 import nl.lxtreme.ols.util.*;
 import nl.lxtreme.ols.util.swing.*;
 import nl.lxtreme.ols.util.swing.component.*;
@@ -267,6 +269,107 @@ AcquisitionDataListener, AnnotationListener, PlatformCallback
     }
   }
 
+  /**
+   * Searches captured data in the background, and jumps to the first match
+   * after the current view position.
+   */
+  final class SignalSearchTask implements Runnable, ScheduledTask<Void>
+  {
+    // VARIABLES
+
+    private final AcquisitionResult capturedData;
+    private final SearchCriterion criterion;
+
+    // CONSTRUCTORS
+
+    /**
+     * Creates a new {@link SignalSearchTask} instance.
+     */
+    SignalSearchTask( final AcquisitionResult aCapturedData, final SearchCriterion aCriterion )
+    {
+      this.capturedData = aCapturedData;
+      this.criterion = aCriterion;
+    }
+
+    // METHODS
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Void call() throws Exception
+    {
+      run();
+      return null;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Object getGroup()
+    {
+      // All searches share the signal diagram, in which the results are
+      // retained...
+      return ClientController.this.signalDiagramController;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public TaskPriority getPriority()
+    {
+      return TaskPriority.BATCH;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void run()
+    {
+      try
+      {
+        final SearchResults results = getSignalDiagramController().search( this.capturedData, this.criterion );
+        if ( results.size() == 0 )
+        {
+          setStatusOnEDT( "No {0} found ...", results.getDescription() );
+        }
+        else
+        {
+          setStatusOnEDT( "Found {0}{1} {2}; use {3}+left/right to jump between them ...",
+              Integer.valueOf( results.size() ), results.isTruncated() ? "+" : "", results.getDescription(),
+              SmartJumpAction.getSearchResultModifiersText() );
+
+          SwingComponentUtils.invokeOnEDT( new Runnable()
+          {
+            @Override
+            public void run()
+            {
+              final SignalDiagramController controller = getSignalDiagramController();
+              controller.smartJump( controller.getViewModel().getSelectedChannelIndex(),
+                  SmartJumpAction.JumpType.SEARCH_RESULT, SmartJumpAction.JumpDirection.RIGHT );
+            }
+          } );
+        }
+      }
+      catch ( InterruptedException exception )
+      {
+        Thread.currentThread().interrupt();
+      }
+      catch ( RuntimeException exception )
+      {
+        LOG.log( Level.WARNING, "Signal search failed!", exception );
+        setStatusOnEDT( "Signal search failed! {0}", exception.getMessage() );
+      }
+      finally
+      {
+        updateActionsOnEDT();
+      }
+    }
+  }
+
   // CONSTANTS
 
   private static final Logger LOG = Logger.getLogger( ClientController.class.getName() );
@@ -1265,6 +1368,39 @@ AcquisitionDataListener, AnnotationListener, PlatformCallback
     }
   }
 
+  /**
+   * Searches the current captured data in the background for the given
+   * criterion, and jumps to the first match after the current view position.
+   * A new search cancels any ongoing search.
+   *
+   * @param aCriterion
+   *          what to search for, cannot be <code>null</code>.
+   */
+  public void searchSignal( final SearchCriterion aCriterion )
+  {
+    final AcquisitionResult capturedData = getCurrentDataSet().getCapturedData();
+    if ( capturedData == null )
+    {
+      return;
+    }
+
+    setStatusOnEDT( "Searching for {0} ...", aCriterion.getDescription() );
+
+    final SignalSearchTask task = new SignalSearchTask( capturedData, aCriterion );
+
+    final TaskExecutionService service = this.signalDiagramController.getTaskExecutionService();
+    if ( service == null )
+    {
+      task.run();
+    }
+    else
+    {
+      // A new search supersedes any ongoing search...
+      service.cancelGroup( task.getGroup() );
+      service.execute( task );
+    }
+  }
+
   /**
    * Selects the device with the given name.
    *
@@ -1282,6 +1418,32 @@ AcquisitionDataListener, AnnotationListener, PlatformCallback
     updateActionsOnEDT();
   }
 
+  /**
+   * Shows the next (newer) capture from the capture history of the current
+   * project, if any.
+   */
+  public void selectNextCapture()
+  {
+    final Project project = getCurrentProject();
+    if ( ( project != null ) && ( project.getSelectedCapture() > 0 ) )
+    {
+      selectCapture( project, project.getSelectedCapture() - 1 );
+    }
+  }
+
+  /**
+   * Shows the previous (older) capture from the capture history of the current
+   * project, if any.
+   */
+  public void selectPreviousCapture()
+  {
+    final Project project = getCurrentProject();
+    if ( ( project != null ) && ( project.getSelectedCapture() < ( project.getCaptureCount() - 1 ) ) )
+    {
+      selectCapture( project, project.getSelectedCapture() + 1 );
+    }
+  }
+
   /**
    * Shows the "about OLS" dialog on screen. the parent window to use, can be
    * <code>null</code>.
@@ -1547,6 +1709,18 @@ AcquisitionDataListener, AnnotationListener, PlatformCallback
     }
   }
 
+  /**
+   * Called by the dependency manager when the task execution service is going
+   * away.
+   *
+   * @param aTaskExecutionService
+   *          the old task execution service to remove.
+   */
+  final void removeTaskExecutionService( final TaskExecutionService aTaskExecutionService )
+  {
+    this.signalDiagramController.setTaskExecutionService( null );
+  }
+
   /**
    * Called by the dependency manager when a (new) project manager service
    * becomes available.
@@ -1567,6 +1741,18 @@ AcquisitionDataListener, AnnotationListener, PlatformCallback
     }
   }
 
+  /**
+   * Called by the dependency manager when a (new) task execution service
+   * becomes available.
+   *
+   * @param aTaskExecutionService
+   *          the task execution service to set.
+   */
+  final void setTaskExecutionService( final TaskExecutionService aTaskExecutionService )
+  {
+    this.signalDiagramController.setTaskExecutionService( aTaskExecutionService );
+  }
+
   /**
    * Sets the given message + arguments as status message.
    *
@@ -1612,6 +1798,11 @@ AcquisitionDataListener, AnnotationListener, PlatformCallback
         getAction( CancelCaptureAction.ID ).setEnabled( deviceCapturing );
         getAction( RepeatCaptureAction.ID ).setEnabled( deviceSetup );
 
+        final int selectedCapture = getSelectedCapture();
+        getAction( PreviousCaptureAction.ID ).setEnabled( !deviceCapturing && ( selectedCapture >= 0 )
+            && ( selectedCapture < ( getCaptureCount() - 1 ) ) );
+        getAction( NextCaptureAction.ID ).setEnabled( !deviceCapturing && ( selectedCapture > 0 ) );
+
         final boolean projectChanged = isProjectChanged();
         final boolean projectSavedBefore = !isAnonymousProject();
         final boolean dataAvailable = hasCapturedData();
@@ -1624,6 +1815,7 @@ AcquisitionDataListener, AnnotationListener, PlatformCallback
         getAction( SaveDataFileAction.ID ).setEnabled( dataAvailable );
 
         getAction( GotoTriggerAction.ID ).setEnabled( dataAvailable && hasTriggerData );
+        getAction( SearchSignalAction.ID ).setEnabled( dataAvailable );
 
         // Update the cursor actions accordingly...
         getAction( SetCursorModeAction.ID ).setEnabled( dataAvailable );
@@ -1714,6 +1906,38 @@ AcquisitionDataListener, AnnotationListener, PlatformCallback
     return this.actionManager.getActionByType( aActionType );
   }
 
+  /**
+   * Returns the number of captures in the capture history of the current
+   * project.
+   *
+   * @return a capture count, >= 0.
+   */
+  protected int getCaptureCount()
+  {
+    final Project currentProject = getCurrentProject();
+    if ( currentProject == null )
+    {
+      return 0;
+    }
+    return currentProject.getCaptureCount();
+  }
+
+  /**
+   * Returns the index of the selected capture in the capture history of the
+   * current project.
+   *
+   * @return a capture index, or -1 if no capture is selected.
+   */
+  protected int getSelectedCapture()
+  {
+    final Project currentProject = getCurrentProject();
+    if ( currentProject == null )
+    {
+      return -1;
+    }
+    return currentProject.getSelectedCapture();
+  }
+
   /**
    * Returns whether or not there is trigger data available.
    *
@@ -1948,6 +2172,30 @@ AcquisitionDataListener, AnnotationListener, PlatformCallback
     }
   }
 
+  /**
+   * Selects the capture with the given index from the capture history of the
+   * given project.
+   *
+   * @param aProject
+   *          the project to select the capture in, cannot be <code>null</code>;
+   * @param aIndex
+   *          the index of the capture to select, 0 being the most recent one.
+   */
+  private void selectCapture( final Project aProject, final int aIndex )
+  {
+    try
+    {
+      aProject.selectCapture( aIndex );
+
+      setStatusOnEDT( "Showing capture {0} of {1} ...", Integer.valueOf( aProject.getCaptureCount() - aIndex ),
+          Integer.valueOf( aProject.getCaptureCount() ) );
+    }
+    finally
+    {
+      updateActionsOnEDT();
+    }
+  }
+
   /**
    * @param aLookAndFeelClass
    */
@@ -883,6 +883,34 @@ public final class MainFrame extends JFrame implements Closeable, PropertyChange
         }
       } );
     }
+    else if ( "loadProgress".equals( propertyName ) )
+    {
+      final int percentage = ( ( Integer )aEvent.getNewValue() ).intValue();
+
+      SwingComponentUtils.invokeOnEDT( new Runnable()
+      {
+        @Override
+        public void run()
+        {
+          setProgress( percentage );
+        }
+      } );
+      // No need to update the actions for every progress update...
+      return;
+    }
+    else if ( "loadFailure".equals( propertyName ) )
+    {
+      final Exception exception = ( Exception )aEvent.getNewValue();
+
+      SwingComponentUtils.invokeOnEDT( new Runnable()
+      {
+        @Override
+        public void run()
+        {
+          JErrorDialog.showDialog( MainFrame.this, "Loading the project data failed!", exception );
+        }
+      } );
+    }
 
     this.controller.updateActionsOnEDT();
   }
@@ -1049,6 +1077,9 @@ public final class MainFrame extends JFrame implements Closeable, PropertyChange
     captureMenu.add( this.controller.getAction( RepeatCaptureAction.ID ) );
     captureMenu.add( this.controller.getAction( CancelCaptureAction.ID ) );
     captureMenu.addSeparator();
+    captureMenu.add( this.controller.getAction( PreviousCaptureAction.ID ) );
+    captureMenu.add( this.controller.getAction( NextCaptureAction.ID ) );
+    captureMenu.addSeparator();
     captureMenu.add( this.deviceMenu );
 
     final JMenu diagramMenu = bar.add( new JMenu( "Diagram" ) );
@@ -1060,6 +1091,7 @@ public final class MainFrame extends JFrame implements Closeable, PropertyChange
     diagramMenu.add( this.controller.getAction( ZoomAllAction.ID ) );
     diagramMenu.addSeparator();
     diagramMenu.add( this.controller.getAction( GotoTriggerAction.ID ) );
+    diagramMenu.add( this.controller.getAction( SearchSignalAction.ID ) );
     diagramMenu.addSeparator();
     diagramMenu.add( new JCheckBoxMenuItem( this.controller.getAction( SetCursorModeAction.ID ) ) );
     diagramMenu.add( new JCheckBoxMenuItem( this.controller.getAction( SetCursorSnapModeAction.ID ) ) );
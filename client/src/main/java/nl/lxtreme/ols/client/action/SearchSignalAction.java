@@ -0,0 +1,408 @@
+/*
+ * OpenBench LogicSniffer / SUMP project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ *
+ * Copyright (C) 2010-2012 - J.W. Janssen, http://www.lxtreme.nl
+ */
+package nl.lxtreme.ols.client.action;
+
+
+import java.awt.*;
+import java.awt.event.*;
+
+import javax.swing.*;
+
+import nl.lxtreme.ols.api.data.Edge;
+import nl.lxtreme.ols.api.util.*;
+import nl.lxtreme.ols.client.*;
+import nl.lxtreme.ols.client.signaldisplay.model.*;
+import nl.lxtreme.ols.client.signaldisplay.search.*;
+import nl.lxtreme.ols.util.swing.*;
+import nl.lxtreme.ols.util.swing.StandardActionFactory.*;
+
+
+/**
+ * Provides an action to search the captured data for glitches, pulses,
+ * patterns or setup/hold violations.
+ */
+public class SearchSignalAction extends BaseAction
+{
+  // INNER TYPES
+
+  /**
+   * Provides a Swing dialog for entering what to search for.
+   */
+  static final class SearchDialog extends JDialog implements StatusAwareCloseableDialog
+  {
+    // CONSTANTS
+
+    private static final long serialVersionUID = 1L;
+
+    private static final String[] TYPES = { "Pulses shorter than", "Pulses longer than", "Pattern",
+        "Setup/hold violations" };
+
+    private static final int TYPE_PULSE_BELOW = 0;
+    private static final int TYPE_PULSE_ABOVE = 1;
+    private static final int TYPE_PATTERN = 2;
+    private static final int TYPE_SETUP_HOLD = 3;
+
+    private static final String[] POLARITIES = { "High", "Low", "Any" };
+    private static final Edge[] LEADING_EDGES = { Edge.RISING, Edge.FALLING, Edge.NONE };
+
+    // VARIABLES
+
+    private final SignalDiagramModel model;
+
+    private JComboBox type;
+    private JSpinner channel;
+    private JComboBox polarity;
+    private JSpinner clockChannel;
+    private JComboBox clockEdge;
+    private JTextField duration;
+    private JComboBox durationUnit;
+    private JTextField holdTime;
+    private JComboBox holdTimeUnit;
+    private JTextField mask;
+    private JTextField value;
+
+    private SearchCriterion criterion;
+
+    // CONSTRUCTORS
+
+    /**
+     * Creates a new {@link SearchDialog} instance.
+     */
+    public SearchDialog( final Window aParent, final SignalDiagramModel aModel )
+    {
+      super( aParent, ModalityType.APPLICATION_MODAL );
+
+      setResizable( false );
+
+      this.model = aModel;
+
+      initDialog();
+    }
+
+    // METHODS
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void close()
+    {
+      setVisible( false );
+      dispose();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean setDialogStatus( final DialogStatus aStatus )
+    {
+      this.criterion = null;
+      if ( aStatus != DialogStatus.OK )
+      {
+        return true;
+      }
+
+      try
+      {
+        this.criterion = createCriterion();
+        return true;
+      }
+      catch ( IllegalArgumentException exception )
+      {
+        JOptionPane.showMessageDialog( this, exception.getMessage(), "Invalid search", JOptionPane.ERROR_MESSAGE );
+        return false;
+      }
+    }
+
+    /**
+     * Makes this dialog visible on screen and waits until it is dismissed.
+     *
+     * @return the search criterion entered by the user, or <code>null</code>
+     *         if the dialog is cancelled by the user.
+     */
+    public SearchCriterion showDialog()
+    {
+      this.criterion = null;
+      setVisible( true );
+      return this.criterion;
+    }
+
+    /**
+     * Creates the search criterion from the current dialog settings.
+     */
+    private SearchCriterion createCriterion()
+    {
+      final int selectedType = this.type.getSelectedIndex();
+      final int channelIdx = ( ( Number )this.channel.getValue() ).intValue();
+      final Edge leadingEdge = LEADING_EDGES[this.polarity.getSelectedIndex()];
+
+      switch ( selectedType )
+      {
+        case TYPE_PULSE_BELOW:
+          return SearchCriterion.pulseWidthBelow( channelIdx, leadingEdge,
+              getDuration( this.duration, this.durationUnit ) );
+
+        case TYPE_PULSE_ABOVE:
+          return SearchCriterion.pulseWidthAbove( channelIdx, leadingEdge,
+              getDuration( this.duration, this.durationUnit ) );
+
+        case TYPE_PATTERN:
+          return SearchCriterion.pattern( parseHex( this.mask, "mask" ), parseHex( this.value, "value" ) );
+
+        case TYPE_SETUP_HOLD:
+          final int clockIdx = ( ( Number )this.clockChannel.getValue() ).intValue();
+          final boolean rising = ( this.clockEdge.getSelectedIndex() == 0 );
+          return SearchCriterion.setupHoldViolation( channelIdx, clockIdx, rising,
+              getDuration( this.duration, this.durationUnit ), getDuration( this.holdTime, this.holdTimeUnit ) );
+
+        default:
+          throw new IllegalArgumentException( "Unknown search type!" );
+      }
+    }
+
+    /**
+     * Returns the duration entered in the given field, in sample periods.
+     */
+    private long getDuration( final JTextField aField, final JComboBox aUnit )
+    {
+      final double duration;
+      try
+      {
+        duration = Double.parseDouble( aField.getText().trim() );
+      }
+      catch ( NumberFormatException exception )
+      {
+        throw new IllegalArgumentException( "Invalid duration: " + aField.getText() );
+      }
+      if ( duration < 0.0 )
+      {
+        throw new IllegalArgumentException( "Duration cannot be negative!" );
+      }
+
+      if ( !this.model.hasTimingData() )
+      {
+        // Durations are in samples...
+        return Math.round( duration );
+      }
+
+      final Unit.Time unit = ( Unit.Time )aUnit.getSelectedItem();
+      return Math.round( duration * unit.getFactor() * this.model.getSampleRate() );
+    }
+
+    /**
+     * Initializes this dialog.
+     */
+    private void initDialog()
+    {
+      setTitle( "Find signal event" );
+
+      final boolean timingData = this.model.hasTimingData();
+      final int selectedChannel = Math.max( 0, this.model.getSelectedChannelIndex() );
+
+      this.type = new JComboBox( TYPES );
+      this.channel = new JSpinner( new SpinnerNumberModel( selectedChannel, 0, 31, 1 ) );
+      this.polarity = new JComboBox( POLARITIES );
+      this.clockChannel = new JSpinner( new SpinnerNumberModel( 0, 0, 31, 1 ) );
+      this.clockEdge = new JComboBox( new String[] { "Rising", "Falling" } );
+      this.duration = new JTextField( "1", 8 );
+      this.durationUnit = createUnitEditor( timingData );
+      this.holdTime = new JTextField( "0", 8 );
+      this.holdTimeUnit = createUnitEditor( timingData );
+      this.mask = new JTextField( "ffffffff", 8 );
+      this.value = new JTextField( "00000000", 8 );
+
+      this.type.addItemListener( new ItemListener()
+      {
+        @Override
+        public void itemStateChanged( final ItemEvent aEvent )
+        {
+          updateEditorStates();
+        }
+      } );
+
+      final JButton okButton = StandardActionFactory.createOkButton();
+      final JButton cancelButton = StandardActionFactory.createCancelButton();
+
+      final String durationLabel = timingData ? "Duration / setup time" : "Duration / setup (samples)";
+      final String holdLabel = timingData ? "Hold time" : "Hold (samples)";
+
+      JPanel editorPane = new JPanel( new SpringLayout() );
+      editorPane.add( SwingComponentUtils.createRightAlignedLabel( "Find" ) );
+      editorPane.add( this.type );
+
+      editorPane.add( SwingComponentUtils.createRightAlignedLabel( "Channel" ) );
+      editorPane.add( this.channel );
+
+      editorPane.add( SwingComponentUtils.createRightAlignedLabel( "Pulse polarity" ) );
+      editorPane.add( this.polarity );
+
+      editorPane.add( SwingComponentUtils.createRightAlignedLabel( durationLabel ) );
+      editorPane.add( createDurationEditor( this.duration, this.durationUnit ) );
+
+      editorPane.add( SwingComponentUtils.createRightAlignedLabel( "Mask (hex)" ) );
+      editorPane.add( this.mask );
+
+      editorPane.add( SwingComponentUtils.createRightAlignedLabel( "Value (hex)" ) );
+      editorPane.add( this.value );
+
+      editorPane.add( SwingComponentUtils.createRightAlignedLabel( "Clock channel" ) );
+      editorPane.add( this.clockChannel );
+
+      editorPane.add( SwingComponentUtils.createRightAlignedLabel( "Clock edge" ) );
+      editorPane.add( this.clockEdge );
+
+      editorPane.add( SwingComponentUtils.createRightAlignedLabel( holdLabel ) );
+      editorPane.add( createDurationEditor( this.holdTime, this.holdTimeUnit ) );
+
+      SpringLayoutUtils.makeEditorGrid( editorPane, 10, 10 );
+
+      JComponent buttonPane = SwingComponentUtils.createButtonPane( okButton, cancelButton );
+
+      JPanel contentPane = new JPanel( new BorderLayout( 4, 4 ) );
+      contentPane.add( editorPane, BorderLayout.CENTER );
+      contentPane.add( buttonPane, BorderLayout.PAGE_END );
+
+      setContentPane( contentPane );
+
+      updateEditorStates();
+
+      pack();
+    }
+
+    /**
+     * Creates a panel with a duration field and its unit.
+     */
+    private JComponent createDurationEditor( final JTextField aField, final JComboBox aUnit )
+    {
+      final JPanel panel = new JPanel( new BorderLayout( 4, 0 ) );
+      panel.add( aField, BorderLayout.CENTER );
+      panel.add( aUnit, BorderLayout.LINE_END );
+      return panel;
+    }
+
+    /**
+     * Creates a combobox with all units of time.
+     */
+    private JComboBox createUnitEditor( final boolean aEnabled )
+    {
+      final JComboBox result = new JComboBox( new Unit.Time[] { Unit.Time.S, Unit.Time.MS, Unit.Time.US,
+          Unit.Time.NS } );
+      result.setRenderer( new DefaultListCellRenderer()
+      {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        public Component getListCellRendererComponent( final JList aList, final Object aValue, final int aIndex,
+            final boolean aIsSelected, final boolean aCellHasFocus )
+        {
+          final Object value = ( aValue instanceof Unit.Time ) ? ( ( Unit.Time )aValue ).getDisplayName() : aValue;
+          return super.getListCellRendererComponent( aList, value, aIndex, aIsSelected, aCellHasFocus );
+        }
+      } );
+      result.setSelectedItem( Unit.Time.NS );
+      result.setEnabled( aEnabled );
+      return result;
+    }
+
+    /**
+     * Parses the hexadecimal value of the given field.
+     */
+    private int parseHex( final JTextField aField, final String aName )
+    {
+      try
+      {
+        return ( int )Long.parseLong( aField.getText().trim(), 16 );
+      }
+      catch ( NumberFormatException exception )
+      {
+        throw new IllegalArgumentException( "Invalid " + aName + ": " + aField.getText() );
+      }
+    }
+
+    /**
+     * Enables only those editors that are relevant for the selected type.
+     */
+    private void updateEditorStates()
+    {
+      final int selectedType = this.type.getSelectedIndex();
+      final boolean timingData = this.model.hasTimingData();
+
+      final boolean pattern = ( selectedType == TYPE_PATTERN );
+      final boolean setupHold = ( selectedType == TYPE_SETUP_HOLD );
+
+      this.channel.setEnabled( !pattern );
+      this.polarity.setEnabled( !pattern && !setupHold );
+      this.duration.setEnabled( !pattern );
+      this.durationUnit.setEnabled( !pattern && timingData );
+      this.mask.setEnabled( pattern );
+      this.value.setEnabled( pattern );
+      this.clockChannel.setEnabled( setupHold );
+      this.clockEdge.setEnabled( setupHold );
+      this.holdTime.setEnabled( setupHold );
+      this.holdTimeUnit.setEnabled( setupHold && timingData );
+    }
+  }
+
+  // CONSTANTS
+
+  private static final long serialVersionUID = 1L;
+
+  public static final String ID = "SearchSignal";
+
+  // CONSTRUCTORS
+
+  /**
+   * Creates a new SearchSignalAction instance.
+   *
+   * @param aController
+   *          the controller to use for this action.
+   */
+  public SearchSignalAction( final ClientController aController )
+  {
+    super( ID, aController, "Find Signal Event ...",
+        "<html>Finds glitches, pulses, patterns or setup/hold violations.<br/>"
+            + "Use " + SmartJumpAction.getSearchResultModifiersText().toUpperCase()
+            + "+left/right to jump between the matches.</html>" );
+    putValue( ACCELERATOR_KEY, SwingComponentUtils.createMenuKeyMask( KeyEvent.VK_F, InputEvent.SHIFT_DOWN_MASK ) );
+  }
+
+  // METHODS
+
+  /**
+   * @see java.awt.event.ActionListener#actionPerformed(java.awt.event.ActionEvent)
+   */
+  @Override
+  public void actionPerformed( final ActionEvent aEvent )
+  {
+    final ClientController controller = getController();
+    final SignalDiagramModel model = controller.getSignalDiagramController().getViewModel();
+
+    final SearchDialog dialog = new SearchDialog( SwingComponentUtils.getOwningWindow( aEvent ), model );
+    final SearchCriterion criterion = dialog.showDialog();
+    if ( criterion != null )
+    {
+      controller.searchSignal( criterion );
+    }
+  }
+}
+
+/* EOF */
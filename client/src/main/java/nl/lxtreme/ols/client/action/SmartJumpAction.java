@@ -26,6 +26,7 @@ import java.awt.event.*;
 import nl.lxtreme.ols.client.*;
 import nl.lxtreme.ols.client.signaldisplay.*;
 import nl.lxtreme.ols.client.signaldisplay.model.*;
+import nl.lxtreme.ols.util.swing.*;
 
 
 /**
@@ -59,7 +60,7 @@ public class SmartJumpAction extends BaseAction
    */
   public static enum JumpType
   {
-    CURSOR, SIGNAL_EDGE, ANNOTATION;
+    CURSOR, SIGNAL_EDGE, ANNOTATION, SEARCH_RESULT;
   }
 
   // CONSTANTS
@@ -100,6 +101,28 @@ public class SmartJumpAction extends BaseAction
     return getID( JumpDirection.RIGHT );
   }
 
+  /**
+   * Returns the modifiers to jump to search results with, being the menu
+   * shortcut modifier of the platform combined with SHIFT.
+   * 
+   * @return the (old-style) modifier mask.
+   */
+  public static int getSearchResultModifiers()
+  {
+    return SwingComponentUtils.getMenuShortcutKeyMask() | InputEvent.SHIFT_MASK;
+  }
+
+  /**
+   * Returns a human readable representation of the modifiers to jump to
+   * search results with.
+   * 
+   * @return a modifier text, such as "Ctrl+Shift", never <code>null</code>.
+   */
+  public static String getSearchResultModifiersText()
+  {
+    return KeyEvent.getKeyModifiersText( getSearchResultModifiers() );
+  }
+
   /**
    * @param aDirection
    * @return
@@ -107,8 +130,9 @@ public class SmartJumpAction extends BaseAction
   private static String getDescription( final JumpDirection aDirection )
   {
     return String.format( "<html>Jumps to the %1$s event. Use<br/>SHIFT to jump to %1$s cursor;<br/>"
-        + "CTRL to jump to %1$s edge, and<br/>ALT to jump to %1$s annotation.</html>",
-        ( aDirection == JumpDirection.LEFT ? "previous" : "next" ) );
+        + "CTRL to jump to %1$s edge;<br/>ALT to jump to %1$s annotation, and<br/>"
+        + "%2$s to jump to %1$s search result.</html>",
+        ( aDirection == JumpDirection.LEFT ? "previous" : "next" ), getSearchResultModifiersText().toUpperCase() );
   }
 
   /**
@@ -137,7 +161,12 @@ public class SmartJumpAction extends BaseAction
   {
     // What do we need to jump to?
     JumpType type = null;
-    if ( ( aEvent.getModifiers() & InputEvent.SHIFT_MASK ) != 0 )
+    if ( ( aEvent.getModifiers() & getSearchResultModifiers() ) == getSearchResultModifiers() )
+    {
+      // Search result...
+      type = JumpType.SEARCH_RESULT;
+    }
+    else if ( ( aEvent.getModifiers() & InputEvent.SHIFT_MASK ) != 0 )
     {
       // Cursor...
       type = JumpType.CURSOR;
@@ -25,8 +25,6 @@ import java.awt.*;
 import javax.swing.*;
 import javax.swing.table.*;
 
-import nl.lxtreme.ols.client.*;
-
 
 /**
  * Provides a cell renderer for data values.
@@ -48,11 +46,11 @@ class DataCellRenderer extends DefaultTableCellRenderer
 
     StateTableModel tableModel = ( StateTableModel )aTable.getModel();
 
-    Radix radix = tableModel.getRadix( aColumn );
-    int width = tableModel.getViewWidth( aColumn );
+    int row = aTable.convertRowIndexToModel( aRow );
+    int column = aTable.convertColumnIndexToModel( aColumn );
 
     label.setHorizontalAlignment( SwingConstants.RIGHT );
-    label.setText( radix.toString( ( ( Integer )aValue ).intValue(), width ) );
+    label.setText( tableModel.getFormattedValueAt( row, column ) );
     return label;
   }
 }
@@ -0,0 +1,168 @@
+/*
+ * OpenBench LogicSniffer / SUMP project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ * Copyright (C) 2006-2010 Michael Poppitz, www.sump.org
+ * Copyright (C) 2010-2014 J.W. Janssen, www.lxtreme.nl
+ */
+package nl.lxtreme.ols.client.signaldisplay;
+
+
+import java.util.*;
+
+
+/**
+ * Provides a least-recently-used cache of formatted table cells, organized per
+ * column, allowing all cells of a single column to be invalidated at once.
+ * <p>
+ * This class is thread-safe; callers can synchronize on an instance to
+ * perform compound actions atomically.
+ * </p>
+ */
+final class FormattedCellCache
+{
+  // INNER TYPES
+
+  /**
+   * Provides the cached cells of a single column.
+   */
+  private static final class ColumnCache extends LinkedHashMap<Integer, String>
+  {
+    // CONSTANTS
+
+    private static final long serialVersionUID = 1L;
+
+    // VARIABLES
+
+    private final int capacity;
+
+    // CONSTRUCTORS
+
+    /**
+     * Creates a new {@link ColumnCache} instance.
+     */
+    ColumnCache( final int aCapacity )
+    {
+      // Use access-order, making it a LRU-map...
+      super( 64, 0.75f, true /* accessOrder */);
+      this.capacity = aCapacity;
+    }
+
+    // METHODS
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected boolean removeEldestEntry( final Map.Entry<Integer, String> aEldest )
+    {
+      return size() > this.capacity;
+    }
+  }
+
+  // VARIABLES
+
+  private final List<ColumnCache> columns;
+
+  // CONSTRUCTORS
+
+  /**
+   * Creates a new {@link FormattedCellCache} instance.
+   *
+   * @param aColumnCount
+   *          the number of columns, >= 0;
+   * @param aCapacity
+   *          the maximum number of cells cached per column, > 0.
+   */
+  FormattedCellCache( final int aColumnCount, final int aCapacity )
+  {
+    this.columns = new ArrayList<ColumnCache>( aColumnCount );
+    for ( int i = 0; i < aColumnCount; i++ )
+    {
+      this.columns.add( new ColumnCache( aCapacity ) );
+    }
+  }
+
+  // METHODS
+
+  /**
+   * Returns the cached cell for the given row and column.
+   *
+   * @param aRow
+   *          the (model) row index;
+   * @param aColumn
+   *          the (model) column index.
+   * @return the formatted cell, or <code>null</code> if it is not cached.
+   */
+  public synchronized String get( final int aRow, final int aColumn )
+  {
+    return this.columns.get( aColumn ).get( Integer.valueOf( aRow ) );
+  }
+
+  /**
+   * Returns whether a cell for the given row and column is cached, without
+   * affecting the order in which cells are evicted.
+   *
+   * @param aRow
+   *          the (model) row index;
+   * @param aColumn
+   *          the (model) column index.
+   * @return <code>true</code> if the cell is cached, <code>false</code>
+   *         otherwise.
+   */
+  public synchronized boolean contains( final int aRow, final int aColumn )
+  {
+    return this.columns.get( aColumn ).containsKey( Integer.valueOf( aRow ) );
+  }
+
+  /**
+   * Drops all cached cells of the given column.
+   *
+   * @param aColumn
+   *          the (model) column index.
+   */
+  public synchronized void invalidateColumn( final int aColumn )
+  {
+    this.columns.get( aColumn ).clear();
+  }
+
+  /**
+   * Caches a formatted cell.
+   *
+   * @param aRow
+   *          the (model) row index;
+   * @param aColumn
+   *          the (model) column index;
+   * @param aText
+   *          the formatted cell, cannot be <code>null</code>.
+   */
+  public synchronized void put( final int aRow, final int aColumn, final String aText )
+  {
+    this.columns.get( aColumn ).put( Integer.valueOf( aRow ), aText );
+  }
+
+  /**
+   * Returns the number of cached cells of the given column.
+   *
+   * @param aColumn
+   *          the (model) column index.
+   * @return a cell count, >= 0.
+   */
+  public synchronized int size( final int aColumn )
+  {
+    return this.columns.get( aColumn ).size();
+  }
+}
@@ -30,6 +30,7 @@ import javax.swing.*;
 import nl.lxtreme.ols.api.acquisition.AcquisitionResult;
 import nl.lxtreme.ols.api.data.*;
 import nl.lxtreme.ols.api.data.Cursor;
+import nl.lxtreme.ols.api.task.*;
 import nl.lxtreme.ols.client.Activator;
 import nl.lxtreme.ols.client.action.*;
 import nl.lxtreme.ols.client.actionmanager.*;
@@ -38,6 +39,7 @@ import nl.lxtreme.ols.client.signaldisplay.ZoomController.ZoomListener;
 import nl.lxtreme.ols.client.signaldisplay.dnd.*;
 import nl.lxtreme.ols.client.signaldisplay.laf.*;
 import nl.lxtreme.ols.client.signaldisplay.model.*;
+import nl.lxtreme.ols.client.signaldisplay.search.*;
 import nl.lxtreme.ols.client.signaldisplay.signalelement.*;
 import nl.lxtreme.ols.client.signaldisplay.signalelement.SignalElement.SignalElementType;
 import nl.lxtreme.ols.client.signaldisplay.util.*;
@@ -57,6 +59,7 @@ public final class SignalDiagramController implements ZoomListener
 
   private SignalDiagramModel signalDiagramModel;
   private JComponent signalDiagram;
+  private volatile TaskExecutionService taskExecutionService;
 
   // CONSTRUCTORS
 
@@ -177,6 +180,18 @@ public final class SignalDiagramController implements ZoomListener
     return null;
   }
 
+  /**
+   * Returns the task execution service used to run the work of the signal
+   * diagram in the background.
+   *
+   * @return a task execution service, can be <code>null</code> if none is
+   *         available.
+   */
+  public TaskExecutionService getTaskExecutionService()
+  {
+    return this.taskExecutionService;
+  }
+
   /**
    * @return the signal diagram component, never <code>null</code>.
    */
@@ -471,6 +486,36 @@ public final class SignalDiagramController implements ZoomListener
     }
   }
 
+  /**
+   * Searches the given captured data for all matches of the given criterion,
+   * and retains the results for jumping between them.
+   * <p>
+   * This method can take a while on large captures and should <em>not</em> be
+   * called on the EDT.
+   * </p>
+   *
+   * @param aData
+   *          the captured data to search, cannot be <code>null</code>;
+   * @param aCriterion
+   *          what to search for, cannot be <code>null</code>.
+   * @return the search results, never <code>null</code>.
+   * @throws InterruptedException
+   *           in case the search was interrupted.
+   */
+  public SearchResults search( final AcquisitionResult aData, final SearchCriterion aCriterion )
+      throws InterruptedException
+  {
+    final SignalSearchEngine searchEngine = new SignalSearchEngine( this.taskExecutionService );
+
+    final SearchResults results = searchEngine.search( aData, aCriterion );
+    // Only retain the results if they still apply to the current data...
+    if ( getViewModel().getCapturedData() == aData )
+    {
+      getViewModel().setSearchResults( results );
+    }
+    return results;
+  }
+
   /**
    * Enables or disables the cursor mode, which in effect, Ttrns the visibility
    * of all cursors either on or off.
@@ -627,6 +672,18 @@ public final class SignalDiagramController implements ZoomListener
     getViewModel().setSnapCursorMode( aSnapMode );
   }
 
+  /**
+   * Sets the task execution service used to run the work of the signal diagram
+   * in the background.
+   *
+   * @param aTaskExecutionService
+   *          the task execution service to set, can be <code>null</code>.
+   */
+  public void setTaskExecutionService( final TaskExecutionService aTaskExecutionService )
+  {
+    this.taskExecutionService = aTaskExecutionService;
+  }
+
   /**
    * @param aChannelIndex
    * @param aType
@@ -23,7 +23,6 @@ package nl.lxtreme.ols.client.signaldisplay;
 
 import java.util.*;
 
-import javax.swing.event.*;
 import javax.swing.table.*;
 
 import nl.lxtreme.ols.api.acquisition.*;
@@ -42,12 +41,16 @@ class StateTableModel extends AbstractTableModel
 
   private static final long serialVersionUID = 1L;
 
+  /** The maximum number of formatted cells cached per column. */
+  private static final int CELL_CACHE_CAPACITY = 16 * 1024;
+
   // VARIABLES
 
+  private final AcquisitionResult capturedData;
   private final int[] values;
-  private final long[] timestamps;
   private final List<ElementGroup> groups;
   private final Radix[] viewModes;
+  private final FormattedCellCache cellCache;
 
   // CONSTRUCTORS
 
@@ -56,9 +59,8 @@ class StateTableModel extends AbstractTableModel
    */
   public StateTableModel( final SignalDiagramModel aModel )
   {
-    AcquisitionResult capturedData = aModel.getCapturedData();
-    this.values = capturedData.getValues();
-    this.timestamps = capturedData.getTimestamps();
+    this.capturedData = aModel.getCapturedData();
+    this.values = this.capturedData.getValues();
 
     SignalElementManager sem = aModel.getSignalElementManager();
     Collection<ElementGroup> elementGroups = sem.getGroups();
@@ -67,25 +69,12 @@ class StateTableModel extends AbstractTableModel
 
     this.viewModes = new Radix[this.groups.size()];
     Arrays.fill( this.viewModes, Radix.HEX );
+
+    this.cellCache = new FormattedCellCache( getColumnCount(), CELL_CACHE_CAPACITY );
   }
 
   // METHODS
 
-  /**
-   * Convenience method to fire an event when the data of an entire column is
-   * changed.
-   *
-   * @param aColumnIndex
-   *          the index of the column that is changed.
-   */
-  public void fireColumnDataChanged( final int aColumnIndex )
-  {
-    int first = 0;
-    int last = getRowCount() - 1;
-
-    fireTableChanged( new TableModelEvent( this, first, last, aColumnIndex ) );
-  }
-
   /**
    * {@inheritDoc}
    */
@@ -145,6 +134,27 @@ class StateTableModel extends AbstractTableModel
     return sb.toString();
   }
 
+  /**
+   * Returns the value of a cell formatted in the radix of its column, taking it
+   * from the cell cache if possible.
+   *
+   * @param aRowIndex
+   *          the (model) row index;
+   * @param aColumnIndex
+   *          the (model) column index, > 0.
+   * @return the formatted value, never <code>null</code>.
+   */
+  public String getFormattedValueAt( final int aRowIndex, final int aColumnIndex )
+  {
+    String result = this.cellCache.get( aRowIndex, aColumnIndex );
+    if ( result == null )
+    {
+      result = formatValueAt( aRowIndex, aColumnIndex );
+      this.cellCache.put( aRowIndex, aColumnIndex, result );
+    }
+    return result;
+  }
+
   /**
    * {@inheritDoc}
    */
@@ -162,7 +172,7 @@ class StateTableModel extends AbstractTableModel
   {
     if ( aColumnIndex == 0 )
     {
-      return Long.valueOf( this.timestamps[aRowIndex] );
+      return Long.valueOf( this.capturedData.getTimestamp( aRowIndex ) );
     }
 
     int groupIdx = aColumnIndex - 1;
@@ -210,6 +220,45 @@ class StateTableModel extends AbstractTableModel
   }
 
   /**
+   * Formats the cells of the given rows in advance, such that they can be
+   * taken from the cell cache when they are shown. This method can be called
+   * from any thread.
+   *
+   * @param aRowIndices
+   *          the (model) indices of the rows to prefetch, cannot be
+   *          <code>null</code>.
+   */
+  public void prefetch( final int[] aRowIndices )
+  {
+    for ( int column = 1; column < getColumnCount(); column++ )
+    {
+      for ( int row : aRowIndices )
+      {
+        if ( Thread.currentThread().isInterrupted() )
+        {
+          return;
+        }
+        if ( ( row < 0 ) || ( row >= getRowCount() ) )
+        {
+          continue;
+        }
+        // Ensure the radix of the column does not change while formatting...
+        synchronized ( this.cellCache )
+        {
+          if ( !this.cellCache.contains( row, column ) )
+          {
+            this.cellCache.put( row, column, formatValueAt( row, column ) );
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * Sets the radix in which the values of a column are shown. Only the cached
+   * cells of that column are invalidated; as the values themselves do not
+   * change, no model event is fired.
+   *
    * @param aColumnIndex
    * @param aMode
    */
@@ -217,7 +266,22 @@ class StateTableModel extends AbstractTableModel
   {
     if ( aColumnIndex > 0 )
     {
-      this.viewModes[aColumnIndex - 1] = aMode;
+      synchronized ( this.cellCache )
+      {
+        this.viewModes[aColumnIndex - 1] = aMode;
+        this.cellCache.invalidateColumn( aColumnIndex );
+      }
     }
   }
+
+  /**
+   * Formats the value of a cell in the radix of its column.
+   */
+  private String formatValueAt( final int aRowIndex, final int aColumnIndex )
+  {
+    final Radix radix = this.viewModes[aColumnIndex - 1];
+    final int value = this.groups.get( aColumnIndex - 1 ).getValue( this.values[aRowIndex] );
+
+    return radix.toString( value, getViewWidth( aColumnIndex ) );
+  }
 }
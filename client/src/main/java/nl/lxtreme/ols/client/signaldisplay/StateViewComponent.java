@@ -25,7 +25,9 @@ import java.awt.*;
 import java.awt.event.*;
 
 import javax.swing.*;
+import javax.swing.event.*;
 
+import nl.lxtreme.ols.api.task.*;
 import nl.lxtreme.ols.client.*;
 import nl.lxtreme.ols.util.swing.component.*;
 
@@ -40,6 +42,12 @@ public class StateViewComponent extends JPanel
 
   private static final long serialVersionUID = 1L;
 
+  /**
+   * The number of rows before and after the viewport that are formatted in
+   * advance, expressed in viewport heights.
+   */
+  private static final int PREFETCH_PAGES = 2;
+
   // VARIABLES
 
   private final SignalDiagramController controller;
@@ -112,9 +120,12 @@ public class StateViewComponent extends JPanel
               public void actionPerformed( final ActionEvent aE )
               {
                 tableModel.setViewMode( columnIdx, vm );
-                tableModel.fireColumnDataChanged( columnIdx );
+                // Only the visible cells need to be formatted again...
+                StateViewComponent.this.table.repaint();
                 // Ensure the column header is updated as well...
                 StateViewComponent.this.table.resetColumnHeader( columnIdx );
+
+                prefetchRows( tableModel );
               }
             } );
 
@@ -127,7 +138,17 @@ public class StateViewComponent extends JPanel
       }
     } );
 
-    add( new JScrollPane( this.table ), BorderLayout.CENTER );
+    final JScrollPane scrollPane = new JScrollPane( this.table );
+    scrollPane.getViewport().addChangeListener( new ChangeListener()
+    {
+      @Override
+      public void stateChanged( final ChangeEvent aEvent )
+      {
+        prefetchRows( tableModel );
+      }
+    } );
+
+    add( scrollPane, BorderLayout.CENTER );
 
     super.addNotify();
   }
@@ -145,6 +166,94 @@ public class StateViewComponent extends JPanel
     return endRow - startRow;
   }
 
+  /**
+   * Formats the rows around the viewport of the table as an interactive task,
+   * cancelling any pending prefetch of this view.
+   *
+   * @param aTableModel
+   *          the table model to prefetch the rows of, cannot be
+   *          <code>null</code>.
+   */
+  final void prefetchRows( final StateTableModel aTableModel )
+  {
+    final Rectangle visibleRect = this.table.getVisibleRect();
+    final int rowCount = this.table.getRowCount();
+    if ( ( rowCount == 0 ) || visibleRect.isEmpty() )
+    {
+      return;
+    }
+
+    int startRow = this.table.rowAtPoint( new Point( 0, visibleRect.y ) );
+    int endRow = this.table.rowAtPoint( new Point( 0, ( visibleRect.y + visibleRect.height ) - 1 ) );
+    if ( startRow < 0 )
+    {
+      startRow = 0;
+    }
+    if ( endRow < 0 )
+    {
+      endRow = rowCount - 1;
+    }
+
+    final int margin = PREFETCH_PAGES * ( ( endRow - startRow ) + 1 );
+    final int first = Math.max( 0, startRow - margin );
+    final int last = Math.min( rowCount - 1, endRow + margin );
+
+    // The (sorted) view rows are to be converted on the EDT...
+    final int[] rows = new int[( last - first ) + 1];
+    for ( int i = 0; i < rows.length; i++ )
+    {
+      rows[i] = this.table.convertRowIndexToModel( first + i );
+    }
+
+    final TaskExecutionService service = this.controller.getTaskExecutionService();
+    if ( service == null )
+    {
+      // Not worth blocking the EDT for; the visible rows are formatted upon
+      // painting anyway...
+      return;
+    }
+
+    // A new viewport supersedes any pending prefetch of this view...
+    service.cancelGroup( this );
+    service.execute( new ScheduledTask<Void>()
+    {
+      @Override
+      public Void call() throws Exception
+      {
+        aTableModel.prefetch( rows );
+        return null;
+      }
+
+      @Override
+      public Object getGroup()
+      {
+        return StateViewComponent.this;
+      }
+
+      @Override
+      public TaskPriority getPriority()
+      {
+        // The user is waiting for the rows to show up while scrolling...
+        return TaskPriority.INTERACTIVE;
+      }
+    } );
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void removeNotify()
+  {
+    final TaskExecutionService service = this.controller.getTaskExecutionService();
+    if ( service != null )
+    {
+      service.cancelGroup( this );
+    }
+
+    super.removeNotify();
+  }
+
   /**
    * @param aTimestamp
    */
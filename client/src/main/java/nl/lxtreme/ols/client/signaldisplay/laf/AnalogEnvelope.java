@@ -0,0 +1,232 @@
+/*
+ * OpenBench LogicSniffer / SUMP project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ *
+ * Copyright (C) 2010-2012 - J.W. Janssen, http://www.lxtreme.nl
+ */
+package nl.lxtreme.ols.client.signaldisplay.laf;
+
+
+/**
+ * Provides a pyramid of minimum, maximum and summed values of an analogue
+ * signal, allowing the envelope of any range of samples to be determined in
+ * logarithmic time.
+ * <p>
+ * The lowest level of the pyramid summarizes blocks of
+ * <tt>2<sup>BASE_SHIFT</sup></tt> samples, each next level summarizes pairs of
+ * blocks of the level below it. Instances of this class are immutable, and
+ * thus thread-safe.
+ * </p>
+ */
+final class AnalogEnvelope
+{
+  // CONSTANTS
+
+  /** The 2-log of the number of samples in the blocks of the lowest level. */
+  static final int BASE_SHIFT = 4;
+
+  private static final int BASE_MASK = ( 1 << BASE_SHIFT ) - 1;
+
+  /** The indices of the envelope values in a query result. */
+  static final int MIN = 0;
+  static final int MAX = 1;
+  static final int SUM = 2;
+
+  // VARIABLES
+
+  private final int[] values;
+  private final long mask;
+  private final int shift;
+
+  private final long[][] minimums;
+  private final long[][] maximums;
+  private final long[][] sums;
+
+  // CONSTRUCTORS
+
+  /**
+   * Creates a new {@link AnalogEnvelope} instance.
+   *
+   * @param aValues
+   *          the sample values to create the envelope for, cannot be
+   *          <code>null</code>;
+   * @param aMask
+   *          the mask of the analogue signal.
+   */
+  AnalogEnvelope( final int[] aValues, final int aMask )
+  {
+    this.values = aValues;
+    this.mask = aMask & 0xFFFFFFFFL;
+    this.shift = Long.numberOfTrailingZeros( this.mask );
+
+    int levels = 0;
+    for ( int size = aValues.length >> BASE_SHIFT; size > 0; size >>= 1 )
+    {
+      levels++;
+    }
+
+    this.minimums = new long[levels][];
+    this.maximums = new long[levels][];
+    this.sums = new long[levels][];
+
+    if ( levels > 0 )
+    {
+      // Only complete blocks are summarized...
+      final int size = aValues.length >> BASE_SHIFT;
+
+      final long[] min = this.minimums[0] = new long[size];
+      final long[] max = this.maximums[0] = new long[size];
+      final long[] sum = this.sums[0] = new long[size];
+
+      for ( int block = 0, i = 0; block < size; block++ )
+      {
+        long blockMin = Long.MAX_VALUE;
+        long blockMax = Long.MIN_VALUE;
+        long blockSum = 0L;
+        for ( int end = i + BASE_MASK + 1; i < end; i++ )
+        {
+          final long value = getValue( i );
+          blockMin = Math.min( blockMin, value );
+          blockMax = Math.max( blockMax, value );
+          blockSum += value;
+        }
+        min[block] = blockMin;
+        max[block] = blockMax;
+        sum[block] = blockSum;
+      }
+    }
+
+    for ( int level = 1; level < levels; level++ )
+    {
+      final long[] prevMin = this.minimums[level - 1];
+      final long[] prevMax = this.maximums[level - 1];
+      final long[] prevSum = this.sums[level - 1];
+
+      final int size = prevMin.length >> 1;
+
+      final long[] min = this.minimums[level] = new long[size];
+      final long[] max = this.maximums[level] = new long[size];
+      final long[] sum = this.sums[level] = new long[size];
+
+      for ( int block = 0; block < size; block++ )
+      {
+        final int i = block << 1;
+        min[block] = Math.min( prevMin[i], prevMin[i + 1] );
+        max[block] = Math.max( prevMax[i], prevMax[i + 1] );
+        sum[block] = prevSum[i] + prevSum[i + 1];
+      }
+    }
+  }
+
+  // METHODS
+
+  /**
+   * Returns the masked value of a single sample.
+   *
+   * @param aIndex
+   *          the index of the sample.
+   * @return the sample value, shifted to start at bit 0.
+   */
+  long getValue( final int aIndex )
+  {
+    return ( this.values[aIndex] & this.mask ) >>> this.shift;
+  }
+
+  /**
+   * Determines the envelope of a range of samples.
+   *
+   * @param aFrom
+   *          the index of the first sample (inclusive);
+   * @param aTo
+   *          the index of the last sample (exclusive), > aFrom;
+   * @param aResult
+   *          the array to store the minimum, maximum and sum of all values in
+   *          the given range in, at the indices {@link #MIN}, {@link #MAX} and
+   *          {@link #SUM}.
+   */
+  void query( final int aFrom, final int aTo, final long[] aResult )
+  {
+    long min = Long.MAX_VALUE;
+    long max = Long.MIN_VALUE;
+    long sum = 0L;
+
+    int from = aFrom;
+    int to = aTo;
+
+    // Take the samples outside complete blocks one by one...
+    while ( ( from < to ) && ( ( ( from & BASE_MASK ) != 0 ) || ( ( from >> BASE_SHIFT ) >= getBlockCount() ) ) )
+    {
+      final long value = getValue( from++ );
+      min = Math.min( min, value );
+      max = Math.max( max, value );
+      sum += value;
+    }
+    while ( ( from < to ) && ( ( to & BASE_MASK ) != 0 ) )
+    {
+      final long value = getValue( --to );
+      min = Math.min( min, value );
+      max = Math.max( max, value );
+      sum += value;
+    }
+
+    // Take the largest blocks that fit in the remaining range...
+    int lo = from >> BASE_SHIFT;
+    int hi = to >> BASE_SHIFT;
+    for ( int level = 0; lo < hi; level++ )
+    {
+      if ( ( lo & 1 ) != 0 )
+      {
+        min = Math.min( min, this.minimums[level][lo] );
+        max = Math.max( max, this.maximums[level][lo] );
+        sum += this.sums[level][lo];
+        lo++;
+      }
+      if ( ( hi & 1 ) != 0 )
+      {
+        hi--;
+        min = Math.min( min, this.minimums[level][hi] );
+        max = Math.max( max, this.maximums[level][hi] );
+        sum += this.sums[level][hi];
+      }
+      if ( ( level + 1 ) >= this.minimums.length )
+      {
+        // Top level reached; take the remaining blocks one by one...
+        for ( ; lo < hi; lo++ )
+        {
+          min = Math.min( min, this.minimums[level][lo] );
+          max = Math.max( max, this.maximums[level][lo] );
+          sum += this.sums[level][lo];
+        }
+        break;
+      }
+      lo >>= 1;
+      hi >>= 1;
+    }
+
+    aResult[MIN] = min;
+    aResult[MAX] = max;
+    aResult[SUM] = sum;
+  }
+
+  /**
+   * Returns the number of blocks in the lowest level.
+   */
+  private int getBlockCount()
+  {
+    return ( this.minimums.length == 0 ) ? 0 : this.minimums[0].length;
+  }
+}
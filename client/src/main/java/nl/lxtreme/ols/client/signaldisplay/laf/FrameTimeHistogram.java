@@ -0,0 +1,212 @@
+/*
+ * OpenBench LogicSniffer / SUMP project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ *
+ * Copyright (C) 2010-2012 - J.W. Janssen, http://www.lxtreme.nl
+ */
+package nl.lxtreme.ols.client.signaldisplay.laf;
+
+
+/**
+ * Provides a histogram of frame times, using buckets whose upper bounds are
+ * powers of two milliseconds, that is, 1, 2, 4, ..., 512 ms and a final bucket
+ * for all longer frames.
+ * <p>
+ * This class is thread-safe.
+ * </p>
+ */
+public final class FrameTimeHistogram
+{
+  // CONSTANTS
+
+  /** The number of buckets in this histogram. */
+  public static final int BUCKET_COUNT = 11;
+
+  // VARIABLES
+
+  private final long[] buckets;
+  private long count;
+  private long totalTime;
+  private long maxTime;
+
+  // CONSTRUCTORS
+
+  /**
+   * Creates a new, empty, {@link FrameTimeHistogram} instance.
+   */
+  public FrameTimeHistogram()
+  {
+    this.buckets = new long[BUCKET_COUNT];
+  }
+
+  // METHODS
+
+  /**
+   * Returns the bucket for a given frame time.
+   *
+   * @param aFrameTime
+   *          the frame time, in nanoseconds.
+   * @return a bucket index, >= 0 && < {@link #BUCKET_COUNT}.
+   */
+  static int getBucket( final long aFrameTime )
+  {
+    final long millis = Math.max( 0L, aFrameTime ) / 1000000L;
+    // 0 ms => bucket 0, 1 ms => bucket 1, 2..3 ms => bucket 2, ...
+    final int bucket = Long.SIZE - Long.numberOfLeadingZeros( millis );
+    return Math.min( BUCKET_COUNT - 1, bucket );
+  }
+
+  /**
+   * Returns the upper bound of a given bucket.
+   *
+   * @param aBucket
+   *          the bucket index, >= 0 && < {@link #BUCKET_COUNT}.
+   * @return the (exclusive) upper bound, in milliseconds, or
+   *         {@link Long#MAX_VALUE} for the last bucket.
+   */
+  public static long getBucketUpperBound( final int aBucket )
+  {
+    if ( aBucket >= ( BUCKET_COUNT - 1 ) )
+    {
+      return Long.MAX_VALUE;
+    }
+    return 1L << aBucket;
+  }
+
+  /**
+   * Returns the number of frames in a given bucket.
+   *
+   * @param aBucket
+   *          the bucket index, >= 0 && < {@link #BUCKET_COUNT}.
+   * @return a frame count, >= 0.
+   */
+  public synchronized long getBucketCount( final int aBucket )
+  {
+    return this.buckets[aBucket];
+  }
+
+  /**
+   * Returns the total number of recorded frames.
+   *
+   * @return a frame count, >= 0.
+   */
+  public synchronized long getCount()
+  {
+    return this.count;
+  }
+
+  /**
+   * Returns the longest recorded frame time.
+   *
+   * @return a frame time, in nanoseconds.
+   */
+  public synchronized long getMaxTime()
+  {
+    return this.maxTime;
+  }
+
+  /**
+   * Returns the mean recorded frame time.
+   *
+   * @return a frame time, in nanoseconds.
+   */
+  public synchronized long getMeanTime()
+  {
+    return ( this.count == 0L ) ? 0L : this.totalTime / this.count;
+  }
+
+  /**
+   * Returns the upper bound of the bucket that contains the given percentile
+   * of all recorded frames.
+   *
+   * @param aPercentile
+   *          the percentile, > 0.0 && <= 100.0.
+   * @return a frame time, in milliseconds, or {@link Long#MAX_VALUE} if the
+   *         percentile lies in the last bucket.
+   */
+  public synchronized long getPercentile( final double aPercentile )
+  {
+    final long threshold = ( long )Math.ceil( ( this.count * aPercentile ) / 100.0 );
+
+    long seen = 0L;
+    for ( int i = 0; i < BUCKET_COUNT; i++ )
+    {
+      seen += this.buckets[i];
+      if ( seen >= threshold )
+      {
+        return getBucketUpperBound( i );
+      }
+    }
+    return getBucketUpperBound( BUCKET_COUNT - 1 );
+  }
+
+  /**
+   * Records a single frame time.
+   *
+   * @param aFrameTime
+   *          the frame time, in nanoseconds.
+   */
+  public synchronized void record( final long aFrameTime )
+  {
+    this.buckets[getBucket( aFrameTime )]++;
+    this.count++;
+    this.totalTime += aFrameTime;
+    this.maxTime = Math.max( this.maxTime, aFrameTime );
+  }
+
+  /**
+   * Clears all recorded frame times.
+   */
+  public synchronized void reset()
+  {
+    for ( int i = 0; i < BUCKET_COUNT; i++ )
+    {
+      this.buckets[i] = 0L;
+    }
+    this.count = 0L;
+    this.totalTime = 0L;
+    this.maxTime = 0L;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public synchronized String toString()
+  {
+    final StringBuilder sb = new StringBuilder();
+    sb.append( this.count ).append( " frames, mean " ).append( getMeanTime() / 1000L ).append( " us, max " )
+        .append( this.maxTime / 1000L ).append( " us; " );
+    for ( int i = 0; i < BUCKET_COUNT; i++ )
+    {
+      if ( i > 0 )
+      {
+        sb.append( ", " );
+      }
+      if ( i < ( BUCKET_COUNT - 1 ) )
+      {
+        sb.append( "<" ).append( getBucketUpperBound( i ) ).append( "ms: " );
+      }
+      else
+      {
+        sb.append( ">=" ).append( getBucketUpperBound( i - 1 ) ).append( "ms: " );
+      }
+      sb.append( this.buckets[i] );
+    }
+    return sb.toString();
+  }
+}
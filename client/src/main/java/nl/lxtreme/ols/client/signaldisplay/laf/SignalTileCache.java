@@ -0,0 +1,268 @@
+/*
+ * OpenBench LogicSniffer / SUMP project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ *
+ * Copyright (C) 2010-2012 - J.W. Janssen, http://www.lxtreme.nl
+ */
+package nl.lxtreme.ols.client.signaldisplay.laf;
+
+
+import java.awt.image.*;
+import java.util.*;
+
+
+/**
+ * Provides a cache of pre-rendered signal tiles, that is, images of a fixed
+ * width showing a part of a single signal element.
+ * <p>
+ * Tiles are evicted in least-recently-used order as soon as the total memory
+ * used by all tiles exceeds a given limit. All tiles are dropped when the data
+ * they are rendered from changes. This class is <em>not</em> thread-safe.
+ * </p>
+ */
+final class SignalTileCache
+{
+  // INNER TYPES
+
+  /**
+   * Identifies a single tile.
+   */
+  static final class TileKey
+  {
+    // VARIABLES
+
+    private final Object element;
+    private final long zoomFactor;
+    private final int tileIndex;
+    private final Object style;
+    private final int hashCode;
+
+    // CONSTRUCTORS
+
+    /**
+     * Creates a new {@link TileKey} instance.
+     *
+     * @param aElement
+     *          the signal element the tile is rendered for;
+     * @param aZoomFactor
+     *          the zoom factor the tile is rendered with;
+     * @param aTileIndex
+     *          the horizontal index of the tile;
+     * @param aStyle
+     *          all other properties that affect the rendering of the tile,
+     *          such as colors and heights.
+     */
+    TileKey( final Object aElement, final double aZoomFactor, final int aTileIndex, final Object aStyle )
+    {
+      this.element = aElement;
+      this.zoomFactor = Double.doubleToLongBits( aZoomFactor );
+      this.tileIndex = aTileIndex;
+      this.style = aStyle;
+
+      int result = 1;
+      result = ( 31 * result ) + System.identityHashCode( aElement );
+      result = ( 31 * result ) + ( int )( this.zoomFactor ^ ( this.zoomFactor >>> 32 ) );
+      result = ( 31 * result ) + aTileIndex;
+      result = ( 31 * result ) + aStyle.hashCode();
+      this.hashCode = result;
+    }
+
+    // METHODS
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean equals( final Object aObject )
+    {
+      if ( this == aObject )
+      {
+        return true;
+      }
+      if ( !( aObject instanceof TileKey ) )
+      {
+        return false;
+      }
+
+      final TileKey other = ( TileKey )aObject;
+      return ( this.element == other.element ) && ( this.zoomFactor == other.zoomFactor )
+          && ( this.tileIndex == other.tileIndex ) && this.style.equals( other.style );
+    }
+
+    /**
+     * Returns the signal element the tile is rendered for.
+     *
+     * @return the signal element, never <code>null</code>.
+     */
+    Object getElement()
+    {
+      return this.element;
+    }
+
+    /**
+     * Returns the horizontal index of the tile.
+     *
+     * @return a tile index.
+     */
+    int getTileIndex()
+    {
+      return this.tileIndex;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int hashCode()
+    {
+      return this.hashCode;
+    }
+  }
+
+  // CONSTANTS
+
+  /** The width of a single tile, in pixels. */
+  static final int TILE_WIDTH = 256;
+
+  /** The default maximum number of bytes used by all cached tiles. */
+  static final long DEFAULT_MEMORY_LIMIT = 32L * 1024L * 1024L;
+
+  // VARIABLES
+
+  private final long memoryLimit;
+  private final LinkedHashMap<TileKey, BufferedImage> tiles;
+
+  private Object data;
+  private long memoryUsage;
+
+  // CONSTRUCTORS
+
+  /**
+   * Creates a new {@link SignalTileCache} instance.
+   *
+   * @param aMemoryLimit
+   *          the maximum number of bytes used by all cached tiles.
+   */
+  SignalTileCache( final long aMemoryLimit )
+  {
+    this.memoryLimit = aMemoryLimit;
+    // Use access-order, making it a LRU-map...
+    this.tiles = new LinkedHashMap<TileKey, BufferedImage>( 64, 0.75f, true /* accessOrder */);
+  }
+
+  // METHODS
+
+  /**
+   * Returns the number of bytes used by the given image.
+   */
+  static long getMemoryUsage( final BufferedImage aImage )
+  {
+    final int bitsPerPixel = aImage.getColorModel().getPixelSize();
+    return ( ( long )aImage.getWidth() * aImage.getHeight() * bitsPerPixel ) / 8L;
+  }
+
+  /**
+   * Drops all cached tiles.
+   */
+  void clear()
+  {
+    for ( BufferedImage image : this.tiles.values() )
+    {
+      image.flush();
+    }
+    this.tiles.clear();
+    this.memoryUsage = 0L;
+  }
+
+  /**
+   * Returns the tile for the given key.
+   *
+   * @param aKey
+   *          the key of the tile to return, cannot be <code>null</code>.
+   * @return the cached tile, or <code>null</code> if no such tile is cached.
+   */
+  BufferedImage get( final TileKey aKey )
+  {
+    return this.tiles.get( aKey );
+  }
+
+  /**
+   * Returns the number of bytes currently used by all cached tiles.
+   *
+   * @return a memory usage, in bytes.
+   */
+  long getMemoryUsage()
+  {
+    return this.memoryUsage;
+  }
+
+  /**
+   * Caches a given tile, evicting the least recently used tiles if the memory
+   * limit is exceeded.
+   *
+   * @param aKey
+   *          the key of the tile, cannot be <code>null</code>;
+   * @param aImage
+   *          the tile image, cannot be <code>null</code>.
+   */
+  void put( final TileKey aKey, final BufferedImage aImage )
+  {
+    final BufferedImage old = this.tiles.put( aKey, aImage );
+    if ( old != null )
+    {
+      this.memoryUsage -= getMemoryUsage( old );
+    }
+    this.memoryUsage += getMemoryUsage( aImage );
+
+    // Always retain the tile just added...
+    final Iterator<Map.Entry<TileKey, BufferedImage>> iter = this.tiles.entrySet().iterator();
+    while ( ( this.memoryUsage > this.memoryLimit ) && ( this.tiles.size() > 1 ) )
+    {
+      final BufferedImage eldest = iter.next().getValue();
+      iter.remove();
+
+      this.memoryUsage -= getMemoryUsage( eldest );
+      eldest.flush();
+    }
+  }
+
+  /**
+   * Returns the number of cached tiles.
+   *
+   * @return a tile count, >= 0.
+   */
+  int size()
+  {
+    return this.tiles.size();
+  }
+
+  /**
+   * Verifies that the cached tiles are rendered from the given data, and drops
+   * all tiles if not.
+   *
+   * @param aData
+   *          the data that is (to be) rendered, compared by identity.
+   */
+  void validate( final Object aData )
+  {
+    if ( this.data != aData )
+    {
+      clear();
+      this.data = aData;
+    }
+  }
+}
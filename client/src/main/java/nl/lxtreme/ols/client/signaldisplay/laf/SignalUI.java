@@ -20,16 +20,27 @@
 package nl.lxtreme.ols.client.signaldisplay.laf;
 
 
+import static nl.lxtreme.ols.client.signaldisplay.laf.SignalTileCache.*;
+
 import java.awt.*;
+import java.awt.font.*;
+import java.awt.image.*;
+import java.util.*;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.logging.*;
 
 import javax.swing.*;
 import javax.swing.plaf.*;
 
 import nl.lxtreme.ols.api.*;
+import nl.lxtreme.ols.api.acquisition.*;
 import nl.lxtreme.ols.api.data.annotation.*;
+import nl.lxtreme.ols.api.task.*;
 import nl.lxtreme.ols.client.signaldisplay.*;
 import nl.lxtreme.ols.client.signaldisplay.model.*;
 import nl.lxtreme.ols.client.signaldisplay.signalelement.*;
+import nl.lxtreme.ols.client.signaldisplay.signalelement.SignalElement.SignalElementType;
 import nl.lxtreme.ols.client.signaldisplay.util.*;
 import nl.lxtreme.ols.client.signaldisplay.view.*;
 
@@ -39,27 +50,546 @@ import nl.lxtreme.ols.client.signaldisplay.view.*;
  */
 public class SignalUI extends ComponentUI
 {
+  // INNER TYPES
+
+  /**
+   * Provides an immutable copy of all properties of a signal element that
+   * affect its rendering. It is taken on the EDT, allowing the signal element
+   * to be rendered on other threads, and serves as part of the key of its
+   * rendered tiles.
+   */
+  static final class ElementStyle
+  {
+    // VARIABLES
+
+    private final ViewStyle viewStyle;
+    private final SignalElementType type;
+    private final int mask;
+    private final Color color;
+    private final int height;
+    private final int signalHeight;
+    private final int offset;
+    private final boolean enabled;
+
+    // CONSTRUCTORS
+
+    /**
+     * Creates a new {@link ElementStyle} instance.
+     *
+     * @param aElement
+     *          the signal element to copy the properties of, cannot be
+     *          <code>null</code>;
+     * @param aViewStyle
+     *          the properties of the view that affect the rendering of all
+     *          signal elements, cannot be <code>null</code>.
+     */
+    ElementStyle( final SignalElement aElement, final ViewStyle aViewStyle )
+    {
+      this.viewStyle = aViewStyle;
+      this.type = aElement.getType();
+      this.mask = aElement.getMask();
+      this.color = aElement.getColor();
+      this.height = aElement.getHeight();
+      this.signalHeight = aElement.getSignalHeight();
+      // Only digital signals have an offset...
+      this.offset = aElement.isDigitalSignal() ? aElement.getOffset() : 0;
+      this.enabled = aElement.isEnabled();
+    }
+
+    // METHODS
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean equals( final Object aObject )
+    {
+      if ( this == aObject )
+      {
+        return true;
+      }
+      if ( !( aObject instanceof ElementStyle ) )
+      {
+        return false;
+      }
+
+      final ElementStyle other = ( ElementStyle )aObject;
+      return this.viewStyle.equals( other.viewStyle ) && ( this.type == other.type ) && ( this.mask == other.mask )
+          && this.color.equals( other.color ) && ( this.height == other.height )
+          && ( this.signalHeight == other.signalHeight ) && ( this.offset == other.offset )
+          && ( this.enabled == other.enabled );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int hashCode()
+    {
+      int result = 1;
+      result = ( 31 * result ) + this.viewStyle.hashCode();
+      result = ( 31 * result ) + this.type.hashCode();
+      result = ( 31 * result ) + this.mask;
+      result = ( 31 * result ) + this.color.hashCode();
+      result = ( 31 * result ) + this.height;
+      result = ( 31 * result ) + this.signalHeight;
+      result = ( 31 * result ) + this.offset;
+      result = ( 31 * result ) + ( this.enabled ? 1231 : 1237 );
+      return result;
+    }
+
+    /**
+     * @return <code>true</code> if the signal element is an analogue scope
+     *         signal, <code>false</code> otherwise.
+     */
+    boolean isAnalogSignal()
+    {
+      return this.type == SignalElementType.ANALOG_SIGNAL;
+    }
+
+    /**
+     * @return <code>true</code> if the signal element is a digital signal,
+     *         <code>false</code> otherwise.
+     */
+    boolean isDigitalSignal()
+    {
+      return this.type == SignalElementType.DIGITAL_SIGNAL;
+    }
+
+    /**
+     * @return <code>true</code> if the signal element is a group summary,
+     *         <code>false</code> otherwise.
+     */
+    boolean isGroupSummary()
+    {
+      return this.type == SignalElementType.GROUP_SUMMARY;
+    }
+  }
+
+  /**
+   * Provides the widths of the hexadecimal digits of a font, used to determine
+   * the width of group summary labels without formatting them.
+   */
+  static final class HexGlyphWidths
+  {
+    // VARIABLES
+
+    private final Font font;
+    private final FontRenderContext renderContext;
+    private final int[] widths;
+    private final int minWidth;
+
+    // CONSTRUCTORS
+
+    /**
+     * Creates a new {@link HexGlyphWidths} instance.
+     *
+     * @param aMetrics
+     *          the font metrics to take the glyph widths from, cannot be
+     *          <code>null</code>.
+     */
+    HexGlyphWidths( final FontMetrics aMetrics )
+    {
+      this.font = aMetrics.getFont();
+      this.renderContext = aMetrics.getFontRenderContext();
+      this.widths = new int[HEX_DIGITS.length];
+
+      int min = Integer.MAX_VALUE;
+      for ( int i = 0; i < HEX_DIGITS.length; i++ )
+      {
+        this.widths[i] = aMetrics.charWidth( HEX_DIGITS[i] );
+        min = Math.min( min, this.widths[i] );
+      }
+      this.minWidth = min;
+    }
+
+    // METHODS
+
+    /**
+     * Returns the minimal width of a label with a given number of digits.
+     *
+     * @param aDigits
+     *          the number of digits.
+     * @return a width, in pixels.
+     */
+    int getMinimumWidth( final int aDigits )
+    {
+      return aDigits * this.minWidth;
+    }
+
+    /**
+     * Returns the width of the hexadecimal label of a given value.
+     *
+     * @param aValue
+     *          the value to return the label width for;
+     * @param aDigits
+     *          the number of digits of the label.
+     * @return a width, in pixels.
+     */
+    int getWidth( final int aValue, final int aDigits )
+    {
+      int result = 0;
+      for ( int i = aDigits - 1; i >= 0; i-- )
+      {
+        result += this.widths[( aValue >>> ( 4 * i ) ) & 0x0F];
+      }
+      return result;
+    }
+
+    /**
+     * Returns whether these glyph widths are taken from the given font metrics.
+     */
+    boolean isValidFor( final FontMetrics aMetrics )
+    {
+      return this.font.equals( aMetrics.getFont() ) && this.renderContext.equals( aMetrics.getFontRenderContext() );
+    }
+  }
+
+  /**
+   * Collects the points of a polyline and draws them in chunks, allowing an
+   * unbounded number of points to be drawn.
+   */
+  static final class Polyline
+  {
+    // VARIABLES
+
+    private final Graphics2D canvas;
+    private final int[] xPoints;
+    private final int[] yPoints;
+    private int count;
+
+    // CONSTRUCTORS
+
+    /**
+     * Creates a new {@link Polyline} instance.
+     *
+     * @param aCanvas
+     *          the canvas to draw on, cannot be <code>null</code>.
+     */
+    Polyline( final Graphics2D aCanvas )
+    {
+      this.canvas = aCanvas;
+      this.xPoints = new int[POLYLINE_CHUNK_SIZE];
+      this.yPoints = new int[POLYLINE_CHUNK_SIZE];
+    }
+
+    // METHODS
+
+    /**
+     * Adds a point to this polyline, drawing all collected points if no more
+     * points can be collected.
+     *
+     * @param aX
+     *          the X-coordinate of the point;
+     * @param aY
+     *          the Y-coordinate of the point.
+     */
+    void add( final int aX, final int aY )
+    {
+      if ( this.count > 0 )
+      {
+        if ( ( this.xPoints[this.count - 1] == aX ) && ( this.yPoints[this.count - 1] == aY ) )
+        {
+          // Nothing to add...
+          return;
+        }
+        if ( this.count == POLYLINE_CHUNK_SIZE )
+        {
+          this.canvas.drawPolyline( this.xPoints, this.yPoints, this.count );
+
+          // Continue the next chunk from the last point of this chunk...
+          this.xPoints[0] = this.xPoints[this.count - 1];
+          this.yPoints[0] = this.yPoints[this.count - 1];
+          this.count = 1;
+        }
+      }
+
+      this.xPoints[this.count] = aX;
+      this.yPoints[this.count] = aY;
+      this.count++;
+    }
+
+    /**
+     * Draws all collected points and clears this polyline.
+     */
+    void flush()
+    {
+      if ( this.count > 0 )
+      {
+        this.canvas.drawPolyline( this.xPoints, this.yPoints, this.count );
+      }
+      this.count = 0;
+    }
+
+    /**
+     * Returns the Y-coordinate of the last added point.
+     *
+     * @return a Y-coordinate.
+     */
+    int getLastY()
+    {
+      return this.yPoints[this.count - 1];
+    }
+  }
+
+  /**
+   * Renders a single tile of a signal element as interactive task.
+   */
+  final class TileRenderTask implements ScheduledTask<BufferedImage>
+  {
+    // VARIABLES
+
+    private final GraphicsConfiguration configuration;
+    private final TileRequest request;
+
+    // CONSTRUCTORS
+
+    /**
+     * Creates a new {@link TileRenderTask} instance.
+     *
+     * @param aConfiguration
+     *          the graphics configuration to create the tile for, cannot be
+     *          <code>null</code>;
+     * @param aRequest
+     *          the tile to render, cannot be <code>null</code>.
+     */
+    TileRenderTask( final GraphicsConfiguration aConfiguration, final TileRequest aRequest )
+    {
+      this.configuration = aConfiguration;
+      this.request = aRequest;
+    }
+
+    // METHODS
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public BufferedImage call() throws Exception
+    {
+      return renderTile( this.configuration, this.request );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Object getGroup()
+    {
+      return null;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public TaskPriority getPriority()
+    {
+      // The EDT is waiting for the tile...
+      return TaskPriority.INTERACTIVE;
+    }
+  }
+
+  /**
+   * Provides everything needed to render a single tile of a signal element,
+   * copied on the EDT before the tile is rendered on another thread.
+   */
+  static final class TileRequest
+  {
+    // VARIABLES
+
+    private final ElementStyle style;
+    private final AcquisitionResult data;
+    private final double zoomFactor;
+    private final int tileIndex;
+    private final int startIdx;
+    private final int endIdx;
+
+    // CONSTRUCTORS
+
+    /**
+     * Creates a new {@link TileRequest} instance.
+     *
+     * @param aStyle
+     *          the style of the signal element to render, cannot be
+     *          <code>null</code>;
+     * @param aData
+     *          the captured data to render, cannot be <code>null</code>;
+     * @param aZoomFactor
+     *          the zoom factor to render with;
+     * @param aTileIndex
+     *          the horizontal index of the tile;
+     * @param aStartIdx
+     *          the index of the first sample visible in the tile;
+     * @param aEndIdx
+     *          the index of the last sample visible in the tile.
+     */
+    TileRequest( final ElementStyle aStyle, final AcquisitionResult aData, final double aZoomFactor,
+        final int aTileIndex, final int aStartIdx, final int aEndIdx )
+    {
+      this.style = aStyle;
+      this.data = aData;
+      this.zoomFactor = aZoomFactor;
+      this.tileIndex = aTileIndex;
+      this.startIdx = aStartIdx;
+      this.endIdx = aEndIdx;
+    }
+  }
+
+  /**
+   * Provides an immutable copy of all properties of the view that affect the
+   * rendering of all signal elements, taken from the look and feel on the
+   * EDT.
+   */
+  static final class ViewStyle
+  {
+    // VARIABLES
+
+    private final Font groupSummaryFont;
+    private final int groupSummaryPadding;
+    private final Color groupSummaryBarColor;
+    private final boolean groupSummaryAntiAliased;
+    private final boolean scopeSignalAntiAliased;
+    private final boolean sloppyScopeRendering;
+
+    // CONSTRUCTORS
+
+    /**
+     * Creates a new {@link ViewStyle} instance.
+     *
+     * @param aModel
+     *          the model to copy the properties of, cannot be
+     *          <code>null</code>.
+     */
+    ViewStyle( final SignalViewModel aModel )
+    {
+      this.groupSummaryFont = aModel.getGroupSummaryTextFont();
+      this.groupSummaryPadding = aModel.getGroupSummaryPadding();
+      this.groupSummaryBarColor = aModel.getGroupSummaryBarColor();
+      this.groupSummaryAntiAliased = aModel.isRenderGroupSummaryAntiAliased();
+      this.scopeSignalAntiAliased = aModel.isRenderScopeSignalAntiAliased();
+      this.sloppyScopeRendering = aModel.isSloppyScopeRenderingAllowed();
+    }
+
+    // METHODS
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean equals( final Object aObject )
+    {
+      if ( this == aObject )
+      {
+        return true;
+      }
+      if ( !( aObject instanceof ViewStyle ) )
+      {
+        return false;
+      }
+
+      final ViewStyle other = ( ViewStyle )aObject;
+      return this.groupSummaryFont.equals( other.groupSummaryFont )
+          && ( this.groupSummaryPadding == other.groupSummaryPadding )
+          && this.groupSummaryBarColor.equals( other.groupSummaryBarColor )
+          && ( this.groupSummaryAntiAliased == other.groupSummaryAntiAliased )
+          && ( this.scopeSignalAntiAliased == other.scopeSignalAntiAliased )
+          && ( this.sloppyScopeRendering == other.sloppyScopeRendering );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int hashCode()
+    {
+      int result = 1;
+      result = ( 31 * result ) + this.groupSummaryFont.hashCode();
+      result = ( 31 * result ) + this.groupSummaryPadding;
+      result = ( 31 * result ) + this.groupSummaryBarColor.hashCode();
+      result = ( 31 * result ) + ( this.groupSummaryAntiAliased ? 1231 : 1237 );
+      result = ( 31 * result ) + ( this.scopeSignalAntiAliased ? 1231 : 1237 );
+      result = ( 31 * result ) + ( this.sloppyScopeRendering ? 1231 : 1237 );
+      return result;
+    }
+  }
+
   // CONSTANTS
 
-  /** The maximum number of points in a polyline. */
-  private static final int POINT_COUNT = 1000000;
+  /** The number of points drawn at once as part of a polyline. */
+  private static final int POLYLINE_CHUNK_SIZE = 4096;
+  /** The hexadecimal digits used for group summary labels. */
+  private static final char[] HEX_DIGITS = "0123456789ABCDEF".toCharArray();
   /**
-   * The number of samples that are shown in a single view upon which is decided
-   * to draw the group summary and scope a bit sloppy.
+   * The number of samples per pixel upon which is decided to draw the envelope
+   * of scope signals instead of the individual samples.
    */
-  private static final int SLOPPY_DRAW_THRESHOLD = 10000;
+  private static final int ENVELOPE_DRAW_DENSITY = 2;
+  /** The alpha value of the band between the minimum and maximum values. */
+  private static final int ENVELOPE_ALPHA = 96;
+  /** The maximum number of analogue signal envelopes that are retained. */
+  private static final int MAX_ENVELOPES = 8;
+  /**
+   * The number of samples per pixel upon which is decided to draw the group
+   * summary and scope a bit sloppy.
+   */
+  private static final int SLOPPY_DRAW_DENSITY = 10;
+  /** The number of frames after which the frame times are logged. */
+  private static final long FRAME_TIME_LOG_INTERVAL = 1024L;
+
+  private static final Logger LOG = Logger.getLogger( SignalUI.class.getName() );
+
 
   // VARIABLES
 
+  private volatile HexGlyphWidths hexGlyphWidths;
   private volatile boolean listening = true;
   private volatile MeasurementInfo measurementInfo;
   private volatile Rectangle measurementRect;
 
-  private static final int[] x = new int[2 * POINT_COUNT];
-  private static final int[] y = new int[2 * POINT_COUNT];
+  private int[] envelopeValues;
+  private final Map<Integer, AnalogEnvelope> envelopes = new HashMap<Integer, AnalogEnvelope>();
+  private final SignalTileCache tileCache = new SignalTileCache( SignalTileCache.DEFAULT_MEMORY_LIMIT );
+  private final FrameTimeHistogram frameTimes = new FrameTimeHistogram();
 
   // METHODS
 
+  /**
+   * Writes the hexadecimal representation of a given value into a given
+   * buffer, similar to <tt>String.format("%02X", value)</tt>.
+   *
+   * @param aBuffer
+   *          the buffer to write to, should be able to hold eight characters;
+   * @param aValue
+   *          the value to format;
+   * @param aDigits
+   *          the number of digits to write, as returned by
+   *          {@link #getHexDigitCount(int)}.
+   * @return the number of characters written.
+   */
+  static int formatHex( final char[] aBuffer, final int aValue, final int aDigits )
+  {
+    for ( int i = 0; i < aDigits; i++ )
+    {
+      aBuffer[i] = HEX_DIGITS[( aValue >>> ( 4 * ( aDigits - i - 1 ) ) ) & 0x0F];
+    }
+    return aDigits;
+  }
+
+  /**
+   * Returns the number of hexadecimal digits needed to represent a given value,
+   * using at least two digits.
+   *
+   * @param aValue
+   *          the value to return the digit count for.
+   * @return a digit count, >= 2 && <= 8.
+   */
+  static int getHexDigitCount( final int aValue )
+  {
+    final int bits = Integer.SIZE - Integer.numberOfLeadingZeros( aValue );
+    return Math.max( 2, ( bits + 3 ) / 4 );
+  }
+
   /**
    * Creates the rendering hints for this the drawing of arrows.
    */
@@ -105,6 +635,16 @@ public class SignalUI extends ComponentUI
     return hints;
   }
 
+  /**
+   * Returns the histogram of the time it takes to paint the signal view.
+   *
+   * @return a frame time histogram, never <code>null</code>.
+   */
+  public FrameTimeHistogram getFrameTimeHistogram()
+  {
+    return this.frameTimes;
+  }
+
   /**
    * Returns the current value of measurementRect.
    * 
@@ -157,6 +697,8 @@ public class SignalUI extends ComponentUI
 
     this.listening = false;
 
+    final long start = System.nanoTime();
+
     try
     {
       final Rectangle clip = aGraphics.getClipBounds();
@@ -199,9 +741,66 @@ public class SignalUI extends ComponentUI
     finally
     {
       this.listening = true;
+
+      this.frameTimes.record( System.nanoTime() - start );
+      if ( LOG.isLoggable( Level.FINE ) && ( ( this.frameTimes.getCount() % FRAME_TIME_LOG_INTERVAL ) == 0L ) )
+      {
+        LOG.fine( "Signal view frame times: " + this.frameTimes );
+      }
     }
   }
 
+  /**
+   * Returns the envelope of an analogue signal, creating it upon first use.
+   *
+   * @param aValues
+   *          the sample values;
+   * @param aMask
+   *          the mask of the analogue signal.
+   * @return the envelope, never <code>null</code>.
+   */
+  private AnalogEnvelope getAnalogEnvelope( final int[] aValues, final int aMask )
+  {
+    synchronized ( this.envelopes )
+    {
+      if ( ( this.envelopeValues != aValues ) || ( this.envelopes.size() >= MAX_ENVELOPES ) )
+      {
+        // Envelopes of stale data are of no use any longer...
+        this.envelopes.clear();
+        this.envelopeValues = aValues;
+      }
+
+      final Integer key = Integer.valueOf( aMask );
+
+      AnalogEnvelope result = this.envelopes.get( key );
+      if ( result == null )
+      {
+        result = new AnalogEnvelope( aValues, aMask );
+        this.envelopes.put( key, result );
+      }
+      return result;
+    }
+  }
+
+  /**
+   * Returns the hexadecimal glyph widths for the given font metrics, reusing
+   * the previously determined widths if possible.
+   *
+   * @param aMetrics
+   *          the font metrics to use, cannot be <code>null</code>.
+   * @return the glyph widths, never <code>null</code>.
+   */
+  private HexGlyphWidths getHexGlyphWidths( final FontMetrics aMetrics )
+  {
+    HexGlyphWidths result = this.hexGlyphWidths;
+    if ( ( result == null ) || !result.isValidFor( aMetrics ) )
+    {
+      result = new HexGlyphWidths( aMetrics );
+      this.hexGlyphWidths = result;
+    }
+    return result;
+  }
+
   /**
    * Returns the stroke to use to render the annotation lines.
    * 
@@ -234,8 +833,8 @@ public class SignalUI extends ComponentUI
   private void paintAnnotations( final Graphics2D aCanvas, final SignalViewModel aModel,
       final IUIElement[] aSignalElements )
   {
-    final long[] timestamps = aModel.getTimestamps();
-    if ( ( timestamps == null ) || ( timestamps.length == 0 ) || ( aSignalElements.length == 0 ) )
+    final AcquisitionResult data = aModel.getCapturedData();
+    if ( ( data == null ) || ( data.getValues().length == 0 ) || ( aSignalElements.length == 0 ) )
     {
       // Nothing to do...
       return;
@@ -243,10 +842,10 @@ public class SignalUI extends ComponentUI
 
     final Rectangle clip = aCanvas.getClipBounds();
     final int startIdx = aModel.getStartIndex( clip );
-    final int endIdx = aModel.getEndIndex( clip, timestamps.length );
+    final int endIdx = aModel.getEndIndex( clip, data.getValues().length );
 
-    final long startTimestamp = timestamps[startIdx];
-    final long endTimestamp = timestamps[endIdx];
+    final long startTimestamp = data.getTimestamp( startIdx );
+    final long endTimestamp = data.getTimestamp( endIdx );
 
     final double zoomFactor = aModel.getZoomFactor();
 
@@ -413,234 +1012,549 @@ public class SignalUI extends ComponentUI
   }
 
   /**
-   * Paints the individual signal channels, group bytes and analogue scope
-   * signals.
-   * 
+   * Paints a single signal channel, group byte or analogue scope signal. The
+   * given canvas should be translated such that the signal element starts at
+   * Y-position zero.
+   *
+   * <p>
+   * Only the given request is used, as this method is called on other threads
+   * than the EDT.
+   * </p>
+   *
    * @param aCanvas
    *          the canvas to paint on, cannot be <code>null</code>;
-   * @param aModel
-   *          the model to use, cannot be <code>null</code>;
-   * @param aElements
-   *          the UI-elements to draw, cannot be <code>null</code> or empty!
+   * @param aRequest
+   *          the tile to paint, cannot be <code>null</code>.
    */
-  private void paintSignals( final Graphics2D aCanvas, final SignalViewModel aModel, final IUIElement[] aElements )
+  private void paintSignalElement( final Graphics2D aCanvas, final TileRequest aRequest )
   {
-    final int[] values = aModel.getDataValues();
-    final long[] timestamps = aModel.getTimestamps();
+    final ElementStyle style = aRequest.style;
+    final ViewStyle viewStyle = style.viewStyle;
+    final AcquisitionResult data = aRequest.data;
+    final int[] values = data.getValues();
+    final double zoomFactor = aRequest.zoomFactor;
 
     final Rectangle clip = aCanvas.getClipBounds();
 
-    aCanvas.setBackground( aModel.getBackgroundColor() );
-    aCanvas.clearRect( clip.x, clip.y, clip.width, clip.height );
+    final int startIdx = aRequest.startIdx;
+    final int endIdx = aRequest.endIdx;
 
-    final int startIdx = aModel.getStartIndex( clip );
-    final int endIdx = aModel.getEndIndex( clip, values.length );
+    final Polyline polyline = new Polyline( aCanvas );
 
-    final double zoomFactor = aModel.getZoomFactor();
+    aCanvas.setColor( style.color );
 
-    if ( aModel.hasTriggerData() )
+    if ( style.isDigitalSignal() )
     {
-      final long triggerOffset = aModel.getTriggerOffset();
-      if ( ( timestamps[startIdx] <= triggerOffset ) && ( timestamps[endIdx] >= triggerOffset ) )
-      {
-        // Draw a line denoting the trigger position...
-        final int x = ( int )Math.round( triggerOffset * zoomFactor ) - 1;
+      int signalHeight = style.signalHeight;
+      int signalOffset = style.offset;
 
-        aCanvas.setColor( aModel.getTriggerColor() );
-        aCanvas.drawLine( x, clip.y, x, clip.y + clip.height );
+      // Tell Swing how we would like to render ourselves...
+      aCanvas.setRenderingHints( createSignalRenderingHints( false /* aUseAA */) );
+
+      aCanvas.translate( 0, signalOffset );
+
+      if ( !style.enabled || ( startIdx == endIdx ) )
+      {
+        // Forced zero'd channel is *very* easy to draw...
+        aCanvas.drawLine( clip.x, signalHeight, clip.x + clip.width, signalHeight );
       }
-    }
+      else
+      {
+        // "Normal" data set; draw as accurate as possible...
+        final int mask = style.mask;
 
-    // Start drawing at the correct position in the clipped region...
-    aCanvas.translate( 0, aElements[0].getYposition() );
+        // Make sure we always start with time 0...
+        long timestamp = data.getTimestamp( startIdx );
+        int prevSampleValue = ( values[startIdx] & mask );
 
-    final boolean enableSloppyScopePainting = aModel.isSloppyScopeRenderingAllowed();
-    int lastP = 0;
+        int xValue = ( int )( zoomFactor * timestamp );
+        int yValue = ( prevSampleValue == 0 ? signalHeight : 0 );
 
-    for ( IUIElement element : aElements )
-    {
-      if ( element instanceof ElementGroup )
-      {
-        // Draw nothing...
+        polyline.add( xValue, yValue );
 
-        // advance to the next element...
-        aCanvas.translate( 0, element.getHeight() + aModel.getSignalElementSpacing() );
+        for ( int sampleIdx = startIdx + 1; sampleIdx <= endIdx; sampleIdx++ )
+        {
+          timestamp = data.getTimestamp( sampleIdx );
+          int sampleValue = ( values[sampleIdx] & mask );
 
-        continue;
+          xValue = ( int )( zoomFactor * timestamp );
+
+          if ( prevSampleValue != sampleValue )
+          {
+            polyline.add( xValue, ( prevSampleValue == 0 ? signalHeight : 0 ) );
+          }
+
+          polyline.add( xValue, ( sampleValue == 0 ? signalHeight : 0 ) );
+
+          prevSampleValue = sampleValue;
+        }
+
+        polyline.flush();
       }
 
-      aCanvas.setColor( element.getColor() );
+      // Move back to the original position...
+      aCanvas.translate( 0, -signalOffset );
+    }
 
-      final SignalElement signalElement = ( SignalElement )element;
+    int sampleIncr = 1;
+    if ( viewStyle.sloppyScopeRendering && ( ( endIdx - startIdx ) > ( SLOPPY_DRAW_DENSITY * clip.width ) ) )
+    {
+      sampleIncr = ( int )Math.max( 1.0, ( 1.0 / zoomFactor ) );
+    }
+    // Always use the same samples, regardless of the clip...
+    final int firstIdx = startIdx - ( startIdx % sampleIncr );
 
-      if ( signalElement.isDigitalSignal() )
+    if ( style.isGroupSummary() )
+    {
+      // Tell Swing how we would like to render ourselves...
+      aCanvas.setRenderingHints( createSignalRenderingHints( viewStyle.groupSummaryAntiAliased ) );
+
+      int mask = style.mask;
+
+      int padding = viewStyle.groupSummaryPadding;
+
+      // Start at the beginning of the first visible value, in order to place
+      // its text at the same position regardless of the clip...
+      int sampleIdx = firstIdx;
+      int prevSampleValue = values[sampleIdx] & mask;
+      while ( ( sampleIdx >= sampleIncr ) && ( ( values[sampleIdx - sampleIncr] & mask ) == prevSampleValue ) )
       {
-        int signalHeight = signalElement.getSignalHeight();
-        int signalOffset = signalElement.getOffset();
+        sampleIdx -= sampleIncr;
+      }
 
-        // Tell Swing how we would like to render ourselves...
-        aCanvas.setRenderingHints( createSignalRenderingHints( false /* aUseAA */) );
+      int prevX = ( int )( zoomFactor * data.getTimestamp( sampleIdx ) );
 
-        aCanvas.translate( 0, signalOffset );
+      aCanvas.setFont( viewStyle.groupSummaryFont );
 
-        if ( !signalElement.isEnabled() || ( startIdx == endIdx ) )
-        {
-          // Forced zero'd channel is *very* easy to draw...
-          aCanvas.drawLine( clip.x, signalHeight, clip.x + clip.width, signalHeight );
-        }
-        else
-        {
-          // "Normal" data set; draw as accurate as possible...
-          final int mask = signalElement.getMask();
+      FontMetrics fm = aCanvas.getFontMetrics();
+      int textYpos = ( int )( ( style.height + fm.getLeading() + fm.getMaxAscent() ) / 2.0 ) - padding;
 
-          // Make sure we always start with time 0...
-          long timestamp = timestamps[startIdx];
-          int prevSampleValue = ( values[startIdx] & mask );
+      final HexGlyphWidths glyphWidths = getHexGlyphWidths( fm );
+      // No label can be narrower than two of the narrowest digits...
+      final int minTextWidth = glyphWidths.getMinimumWidth( 2 ) + ( 2 * padding );
+      final char[] text = new char[8];
 
-          int xValue = ( int )( zoomFactor * timestamp );
-          int yValue = ( prevSampleValue == 0 ? signalHeight : 0 );
+      // Continue until the end of the last visible value...
+      for ( sampleIdx += sampleIncr; sampleIdx < values.length; sampleIdx += sampleIncr )
+      {
+        int sampleValue = ( values[sampleIdx] & mask );
 
-          x[0] = xValue;
-          y[0] = yValue;
-          int p = 1;
+        if ( sampleValue != prevSampleValue )
+        {
+          int x = ( int )( zoomFactor * data.getTimestamp( sampleIdx ) );
 
-          for ( int sampleIdx = startIdx + 1; ( p < POINT_COUNT ) && ( sampleIdx <= endIdx ); sampleIdx++ )
+          int cellWidth = x - prevX;
+          if ( minTextWidth < cellWidth )
           {
-            timestamp = timestamps[sampleIdx];
-            int sampleValue = ( values[sampleIdx] & mask );
+            int digits = getHexDigitCount( prevSampleValue );
+            int textWidth = glyphWidths.getWidth( prevSampleValue, digits ) + ( 2 * padding );
+            if ( textWidth < cellWidth )
+            {
+              int textXpos = prevX + ( int )( ( cellWidth - textWidth ) / 2.0 ) + padding;
 
-            xValue = ( int )( zoomFactor * timestamp );
+              aCanvas.setColor( style.color );
 
-            if ( prevSampleValue != sampleValue )
-            {
-              x[p] = xValue;
-              y[p] = ( prevSampleValue == 0 ? signalHeight : 0 );
-              p++;
+              aCanvas.drawChars( text, 0, formatHex( text, prevSampleValue, digits ), textXpos, textYpos );
             }
+          }
 
-            x[p] = xValue;
-            y[p] = ( sampleValue == 0 ? signalHeight : 0 );
-            p++;
+          aCanvas.setColor( viewStyle.groupSummaryBarColor );
 
-            prevSampleValue = sampleValue;
-          }
+          // draw a small line...
+          aCanvas.drawLine( x, padding, x, style.height - padding );
 
-          aCanvas.drawPolyline( x, y, p );
+          prevX = x;
 
-          lastP = ( int )( ( p * 0.1 ) + ( lastP * 0.9 ) );
+          if ( sampleIdx >= endIdx )
+          {
+            break;
+          }
         }
 
-        // Move back to the original position...
-        aCanvas.translate( 0, -signalOffset );
+        prevSampleValue = sampleValue;
       }
+    }
+
+    if ( style.isAnalogSignal() )
+    {
+      // Tell Swing how we would like to render ourselves...
+      aCanvas.setRenderingHints( createSignalRenderingHints( viewStyle.scopeSignalAntiAliased ) );
 
-      int sampleIncr = 1;
-      if ( enableSloppyScopePainting && ( lastP > SLOPPY_DRAW_THRESHOLD ) )
+      aCanvas.setColor( style.color );
+
+      long mask = style.mask & 0xFFFFFFFFL;
+      final int trailingZeros = Long.numberOfTrailingZeros( mask );
+      final int onesCount = Long.SIZE - Long.numberOfLeadingZeros( mask ) - trailingZeros;
+      final long maxValue = ( ( 1L << onesCount ) - 1L ) & 0xFFFFFFFFL;
+      double scaleFactor = ( maxValue == 0L ) ? 1.0 : style.height / ( double )maxValue;
+
+      // Make sure we always start with time 0...
+      if ( startIdx == endIdx )
       {
-        sampleIncr = ( int )Math.max( 1.0, ( 1.0 / zoomFactor ) );
+        polyline.add( clip.x, style.height );
       }
+      else if ( ( endIdx - startIdx ) > ( ENVELOPE_DRAW_DENSITY * clip.width ) )
+      {
+        // Too many samples to draw them one by one; draw their envelope...
+        final AnalogEnvelope envelope = getAnalogEnvelope( values, style.mask );
 
-      if ( signalElement.isGroupSummary() )
+        paintAnalogEnvelope( aCanvas, polyline, envelope, data, startIdx, endIdx, zoomFactor, maxValue, scaleFactor );
+      }
+      else
       {
-        // Tell Swing how we would like to render ourselves...
-        aCanvas.setRenderingHints( createSignalRenderingHints( aModel.isRenderGroupSummaryAntiAliased() ) );
+        for ( int sampleIdx = startIdx; sampleIdx < endIdx; sampleIdx++ )
+        {
+          long timestamp = data.getTimestamp( sampleIdx );
 
-        int mask = signalElement.getMask();
+          long sampleValue = maxValue - ( ( values[sampleIdx] & mask ) >> trailingZeros );
 
-        int padding = aModel.getGroupSummaryPadding();
+          polyline.add( ( int )( zoomFactor * timestamp ), ( int )( scaleFactor * sampleValue ) );
+        }
+      }
 
-        int prevSampleValue = values[startIdx] & mask;
-        int prevX = ( int )( zoomFactor * timestamps[startIdx] );
+      // Make sure we end at the last visible sample index...
+      polyline.add( clip.x + clip.width, polyline.getLastY() );
+      polyline.flush();
+    }
+  }
 
-        aCanvas.setFont( aModel.getGroupSummaryTextFont() );
+  /**
+   * Paints the envelope of an analogue signal, as a band between the minimum
+   * and maximum value of all samples of each pixel column, along with a line
+   * through their mean values. Only the envelope of the columns in the clip of
+   * the canvas is painted.
+   *
+   * @param aCanvas
+   *          the canvas to paint on, cannot be <code>null</code>;
+   * @param aPolyline
+   *          the polyline to add the mean values to, cannot be
+   *          <code>null</code>;
+   * @param aEnvelope
+   *          the envelope of the analogue signal, cannot be <code>null</code>;
+   * @param aData
+   *          the captured data, cannot be <code>null</code>;
+   * @param aStartIdx
+   *          the index of the first visible sample;
+   * @param aEndIdx
+   *          the index of the last visible sample;
+   * @param aZoomFactor
+   *          the zoom factor to use;
+   * @param aMaxValue
+   *          the maximum value of the analogue signal;
+   * @param aScaleFactor
+   *          the factor to scale values to Y-coordinates with.
+   */
+  private static void paintAnalogEnvelope( final Graphics2D aCanvas, final Polyline aPolyline,
+      final AnalogEnvelope aEnvelope, final AcquisitionResult aData, final int aStartIdx, final int aEndIdx,
+      final double aZoomFactor, final long aMaxValue, final double aScaleFactor )
+  {
+    final Rectangle clip = aCanvas.getClipBounds();
+    final Color color = aCanvas.getColor();
 
-        FontMetrics fm = aCanvas.getFontMetrics();
-        int textYpos = ( int )( ( signalElement.getHeight() + fm.getLeading() + fm.getMaxAscent() ) / 2.0 ) - padding;
+    aCanvas.setColor( new Color( color.getRed(), color.getGreen(), color.getBlue(), ENVELOPE_ALPHA ) );
 
-        for ( int sampleIdx = startIdx + 1; sampleIdx < endIdx; sampleIdx += sampleIncr )
-        {
-          int sampleValue = ( values[sampleIdx] & mask );
+    final long[] result = new long[3];
+    final int end = aEndIdx + 1;
 
-          if ( sampleValue != prevSampleValue )
-          {
-            int x = ( int )( zoomFactor * timestamps[sampleIdx] );
+    // The first sample that is drawn in or after the first column...
+    int idx = findFirstSampleAt( aData, aStartIdx, end, clip.x, aZoomFactor );
 
-            String text = String.format( "%02X", Integer.valueOf( prevSampleValue ) );
+    for ( int x = clip.x; x < ( clip.x + clip.width ); x++ )
+    {
+      final int next = findFirstSampleAt( aData, idx, end, x + 1, aZoomFactor );
 
-            int textWidth = fm.stringWidth( text ) + ( 2 * padding );
-            int cellWidth = x - prevX;
-            if ( textWidth < cellWidth )
-            {
-              int textXpos = prevX + ( int )( ( cellWidth - textWidth ) / 2.0 ) + padding;
+      // Include the sample that is active at the start of the column...
+      final int from = Math.max( 0, idx - 1 );
+      final int to = Math.max( from + 1, next );
 
-              aCanvas.setColor( signalElement.getColor() );
+      aEnvelope.query( from, to, result );
 
-              aCanvas.drawString( text, textXpos, textYpos );
-            }
+      final int yMin = ( int )( aScaleFactor * ( aMaxValue - result[AnalogEnvelope.MAX] ) );
+      final int yMax = ( int )( aScaleFactor * ( aMaxValue - result[AnalogEnvelope.MIN] ) );
+      final double mean = result[AnalogEnvelope.SUM] / ( double )( to - from );
 
-            aCanvas.setColor( aModel.getGroupSummaryBarColor() );
+      aCanvas.drawLine( x, yMin, x, yMax );
+      aPolyline.add( x, ( int )( aScaleFactor * ( aMaxValue - mean ) ) );
 
-            // draw a small line...
-            aCanvas.drawLine( x, padding, x, signalElement.getHeight() - padding );
+      idx = next;
+    }
 
-            prevX = x;
-          }
+    aCanvas.setColor( color );
+  }
 
-          prevSampleValue = sampleValue;
-        }
+  /**
+   * Returns the index of the first sample that is drawn at or after a given
+   * X-position, using a binary search.
+   *
+   * @return a sample index, >= aFrom && <= aTo.
+   */
+  private static int findFirstSampleAt( final AcquisitionResult aData, final int aFrom, final int aTo,
+      final int aXpos, final double aZoomFactor )
+  {
+    int lo = aFrom;
+    int hi = aTo;
+    while ( lo < hi )
+    {
+      final int mid = ( lo + hi ) >>> 1;
+      if ( ( int )( aZoomFactor * aData.getTimestamp( mid ) ) < aXpos )
+      {
+        lo = mid + 1;
       }
+      else
+      {
+        hi = mid;
+      }
+    }
+    return lo;
+  }
 
-      if ( signalElement.isAnalogSignal() )
+  /**
+   * Paints the individual signal channels, group bytes and analogue scope
+   * signals.
+   * <p>
+   * Each signal element is drawn as a number of tiles, which are rendered once
+   * and then taken from the tile cache, as long as the data, zoom factor and
+   * appearance of the signal element do not change. This way, scrolling
+   * horizontally or moving cursors only needs to render newly exposed tiles.
+   * Missing tiles are rendered concurrently into their own images, and
+   * composited onto the given canvas afterwards.
+   * </p>
+   * 
+   * @param aCanvas
+   *          the canvas to paint on, cannot be <code>null</code>;
+   * @param aModel
+   *          the model to use, cannot be <code>null</code>;
+   * @param aElements
+   *          the UI-elements to draw, cannot be <code>null</code> or empty!
+   */
+  private void paintSignals( final Graphics2D aCanvas, final SignalViewModel aModel, final IUIElement[] aElements )
+  {
+    final AcquisitionResult data = aModel.getCapturedData();
+    final int[] values = data.getValues();
+
+    final Rectangle clip = aCanvas.getClipBounds();
+
+    aCanvas.setBackground( aModel.getBackgroundColor() );
+    aCanvas.clearRect( clip.x, clip.y, clip.width, clip.height );
+
+    final double zoomFactor = aModel.getZoomFactor();
+
+    if ( aModel.hasTriggerData() )
+    {
+      final int startIdx = aModel.getStartIndex( clip );
+      final int endIdx = aModel.getEndIndex( clip, values.length );
+
+      final long triggerOffset = aModel.getTriggerOffset();
+      if ( ( data.getTimestamp( startIdx ) <= triggerOffset ) && ( data.getTimestamp( endIdx ) >= triggerOffset ) )
       {
-        // Tell Swing how we would like to render ourselves...
-        aCanvas.setRenderingHints( createSignalRenderingHints( aModel.isRenderScopeSignalAntiAliased() ) );
+        // Draw a line denoting the trigger position...
+        final int x = ( int )Math.round( triggerOffset * zoomFactor ) - 1;
 
-        aCanvas.setColor( signalElement.getColor() );
+        aCanvas.setColor( aModel.getTriggerColor() );
+        aCanvas.drawLine( x, clip.y, x, clip.y + clip.height );
+      }
+    }
 
-        long mask = signalElement.getMask() & 0xFFFFFFFFL;
-        final int trailingZeros = Long.numberOfTrailingZeros( mask );
-        final int onesCount = Long.SIZE - Long.numberOfLeadingZeros( mask ) - trailingZeros;
-        final long maxValue = ( ( 1L << onesCount ) - 1L ) & 0xFFFFFFFFL;
-        double scaleFactor = ( maxValue == 0L ) ? 1.0 : signalElement.getHeight() / ( double )maxValue;
+    // Tiles are only valid for the data they are rendered from...
+    this.tileCache.validate( values );
 
-        // Make sure we always start with time 0...
-        int p = 0;
-        if ( startIdx == endIdx )
+    final ViewStyle viewStyle = new ViewStyle( aModel );
+    final GraphicsConfiguration gc = aCanvas.getDeviceConfiguration();
+
+    final int firstTile = getTileIndex( clip.x );
+    final int lastTile = getTileIndex( ( clip.x + clip.width ) - 1 );
+
+    final List<TileKey> keys = new ArrayList<TileKey>();
+    final List<TileRequest> missingTiles = new ArrayList<TileRequest>();
+
+    for ( IUIElement element : aElements )
+    {
+      if ( !( element instanceof SignalElement ) || ( element.getHeight() <= 0 ) )
+      {
+        // Draw nothing...
+        continue;
+      }
+
+      final SignalElement signalElement = ( SignalElement )element;
+      // Tiles are rendered on other threads, so copy everything they need...
+      final ElementStyle style = new ElementStyle( signalElement, viewStyle );
+
+      for ( int tileIdx = firstTile; tileIdx <= lastTile; tileIdx++ )
+      {
+        final TileKey key = new TileKey( signalElement, zoomFactor, tileIdx, style );
+        keys.add( key );
+
+        if ( this.tileCache.get( key ) == null )
         {
-          x[p] = clip.x;
-          y[p] = signalElement.getHeight();
-          p++;
+          final Rectangle tileClip = new Rectangle( tileIdx * TILE_WIDTH, 0, TILE_WIDTH, style.height + 1 );
+          missingTiles.add( new TileRequest( style, data, zoomFactor, tileIdx, aModel.getStartIndex( tileClip ),
+              aModel.getEndIndex( tileClip, values.length ) ) );
         }
         else
         {
-          for ( int sampleIdx = startIdx; ( p < POINT_COUNT ) && ( sampleIdx < endIdx ); sampleIdx += sampleIncr )
-          {
-            long timestamp = timestamps[sampleIdx];
+          missingTiles.add( null );
+        }
+      }
+    }
 
-            int sampleValue = ( int )( ( values[sampleIdx] & mask ) >> trailingZeros );
-            final int i_max = Math.min( endIdx, ( sampleIdx + sampleIncr ) - 1 );
-            for ( int i = sampleIdx + 1; i < i_max; i++ )
-            {
-              sampleValue += ( ( values[i] & mask ) >> trailingZeros );
-            }
-            sampleValue = ( int )( maxValue - ( sampleValue / ( double )sampleIncr ) );
+    final List<Future<BufferedImage>> renderedTiles = renderTiles( gc, aModel.getTaskExecutionService(),
+        missingTiles );
 
-            x[p] = ( int )( zoomFactor * timestamp );
-            y[p] = ( int )( scaleFactor * sampleValue );
-            p++;
-          }
-        }
+    for ( int i = 0; i < keys.size(); i++ )
+    {
+      final TileKey key = keys.get( i );
+      final Future<BufferedImage> missingTile = renderedTiles.get( i );
+
+      BufferedImage tile;
+      if ( missingTile == null )
+      {
+        tile = this.tileCache.get( key );
+      }
+      else
+      {
+        tile = getRenderedTile( missingTile );
+        this.tileCache.put( key, tile );
+      }
+
+      aCanvas.drawImage( tile, key.getTileIndex() * TILE_WIDTH, ( ( IUIElement )key.getElement() ).getYposition(),
+          null );
+    }
+  }
+
+  /**
+   * Renders the given tiles. The first tile is rendered by the calling thread,
+   * all others are rendered concurrently by the given task execution service.
+   *
+   * @param aConfiguration
+   *          the graphics configuration to create the tiles for, cannot be
+   *          <code>null</code>;
+   * @param aTaskExecutionService
+   *          the task execution service to render the tiles with, can be
+   *          <code>null</code> in which case all tiles are rendered by the
+   *          calling thread;
+   * @param aRequests
+   *          the tiles to render, may contain <code>null</code> for tiles that
+   *          need no rendering.
+   * @return the rendered tiles, in the same order as the given requests.
+   */
+  private List<Future<BufferedImage>> renderTiles( final GraphicsConfiguration aConfiguration,
+      final TaskExecutionService aTaskExecutionService, final List<TileRequest> aRequests )
+  {
+    final List<Future<BufferedImage>> result = new ArrayList<Future<BufferedImage>>( aRequests.size() );
+    final List<FutureTask<BufferedImage>> localTasks = new ArrayList<FutureTask<BufferedImage>>();
+
+    for ( TileRequest request : aRequests )
+    {
+      if ( request == null )
+      {
+        result.add( null );
+        continue;
+      }
+
+      final TileRenderTask task = new TileRenderTask( aConfiguration, request );
+      if ( ( aTaskExecutionService != null ) && !localTasks.isEmpty() )
+      {
+        result.add( aTaskExecutionService.execute( task ) );
+      }
+      else
+      {
+        final FutureTask<BufferedImage> localTask = new FutureTask<BufferedImage>( task );
+        localTasks.add( localTask );
+        result.add( localTask );
+      }
+    }
 
-        // Make sure we end at the last visible sample index...
-        x[p] = clip.x + clip.width;
-        y[p] = y[p - 1];
-        p++;
+    // Render our own tiles while the others are rendered in the background...
+    for ( FutureTask<BufferedImage> localTask : localTasks )
+    {
+      localTask.run();
+    }
 
-        aCanvas.drawPolyline( x, y, p );
+    return result;
+  }
+
+  /**
+   * Waits until the given tile is rendered and returns it.
+   */
+  private static BufferedImage getRenderedTile( final Future<BufferedImage> aTile )
+  {
+    boolean interrupted = false;
+    try
+    {
+      while ( true )
+      {
+        try
+        {
+          return aTile.get();
+        }
+        catch ( InterruptedException exception )
+        {
+          // Keep waiting, the paint cannot be completed without this tile...
+          interrupted = true;
+        }
+      }
+    }
+    catch ( ExecutionException exception )
+    {
+      final Throwable cause = exception.getCause();
+      if ( cause instanceof RuntimeException )
+      {
+        throw ( RuntimeException )cause;
       }
+      if ( cause instanceof Error )
+      {
+        throw ( Error )cause;
+      }
+      throw new RuntimeException( cause );
+    }
+    finally
+    {
+      if ( interrupted )
+      {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+
+  /**
+   * Returns the index of the tile containing the given X-position.
+   */
+  private static int getTileIndex( final int aXpos )
+  {
+    return ( int )Math.floor( aXpos / ( double )TILE_WIDTH );
+  }
+
+  /**
+   * Renders a single tile of a signal element.
+   *
+   * @param aConfiguration
+   *          the graphics configuration to create the tile for, cannot be
+   *          <code>null</code>;
+   * @param aRequest
+   *          the tile to render, cannot be <code>null</code>.
+   * @return the rendered tile, never <code>null</code>.
+   */
+  private BufferedImage renderTile( final GraphicsConfiguration aConfiguration, final TileRequest aRequest )
+  {
+    final int tileX = aRequest.tileIndex * TILE_WIDTH;
+    // Signals can be drawn on the bottom line of the signal element as well...
+    final int tileHeight = aRequest.style.height + 1;
+
+    final BufferedImage tile = aConfiguration.createCompatibleImage( TILE_WIDTH, tileHeight, Transparency.TRANSLUCENT );
+
+    final Graphics2D canvas = tile.createGraphics();
+    try
+    {
+      canvas.translate( -tileX, 0 );
+      canvas.clipRect( tileX, 0, TILE_WIDTH, tileHeight );
 
-      // advance to the next element...
-      aCanvas.translate( 0, signalElement.getHeight() + aModel.getSignalElementSpacing() );
+      paintSignalElement( canvas, aRequest );
+    }
+    finally
+    {
+      canvas.dispose();
     }
+
+    return tile;
   }
 }
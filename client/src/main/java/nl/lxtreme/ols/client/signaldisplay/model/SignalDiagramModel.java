@@ -34,6 +34,7 @@ import nl.lxtreme.ols.api.data.*;
 import nl.lxtreme.ols.api.data.Cursor;
 import nl.lxtreme.ols.client.signaldisplay.*;
 import nl.lxtreme.ols.client.signaldisplay.laf.*;
+import nl.lxtreme.ols.client.signaldisplay.search.*;
 import nl.lxtreme.ols.client.signaldisplay.signalelement.*;
 import nl.lxtreme.ols.client.signaldisplay.signalelement.SignalElementManager.SignalElementMeasurer;
 
@@ -66,6 +67,9 @@ public class SignalDiagramModel
   private volatile int mode;
   private volatile int selectedChannelIndex;
   private volatile DataSet dataSet;
+  private volatile SearchResults searchResults;
+  /** the last looked up timestamp index, used as hint for the next look up */
+  private volatile int lastTimestampIndex;
 
   private final ZoomController zoomController;
   private final SignalElementManager channelGroupManager;
@@ -243,18 +247,13 @@ public class SignalDiagramModel
    */
   public final long findEdgeAfter( final int aChannelIdx, final long aTimestamp )
   {
-    final long[] timestamps = getTimestamps();
-    final int[] values = getValues();
-
-    int refIdx = Arrays.binarySearch( timestamps, aTimestamp );
-    if ( refIdx < 0 )
-    {
-      refIdx = -( refIdx + 1 ) - 1;
-    }
+    final AcquisitionResult capturedData = getCapturedData();
+    final int[] values = capturedData.getValues();
 
+    int refIdx = getSampleIndexAtOrBefore( capturedData, aTimestamp );
     if ( ( refIdx < 0 ) || ( refIdx >= values.length ) )
     {
-      return timestamps[0];
+      return capturedData.getTimestamp( 0 );
     }
 
     // find the reference time value; which is the "timestamp" under the
@@ -268,7 +267,7 @@ public class SignalDiagramModel
     }
     while ( ( refIdx < ( values.length - 1 ) ) && ( ( values[refIdx] & mask ) == refValue ) );
 
-    return timestamps[refIdx];
+    return capturedData.getTimestamp( refIdx );
   }
 
   /**
@@ -278,18 +277,13 @@ public class SignalDiagramModel
    */
   public final long findEdgeBefore( final int aChannelIdx, final long aTimestamp )
   {
-    final long[] timestamps = getTimestamps();
-    final int[] values = getValues();
-
-    int refIdx = Arrays.binarySearch( timestamps, aTimestamp );
-    if ( refIdx < 0 )
-    {
-      refIdx = -( refIdx + 1 ) - 1;
-    }
+    final AcquisitionResult capturedData = getCapturedData();
+    final int[] values = capturedData.getValues();
 
+    int refIdx = getSampleIndexAtOrBefore( capturedData, aTimestamp );
     if ( ( refIdx < 0 ) || ( refIdx >= values.length ) )
     {
-      return timestamps[0];
+      return capturedData.getTimestamp( 0 );
     }
 
     // find the reference time value; which is the "timestamp" under the
@@ -303,7 +297,7 @@ public class SignalDiagramModel
     }
     while ( ( refIdx > 0 ) && ( ( values[refIdx] & mask ) == refValue ) );
 
-    return timestamps[Math.max( 0, refIdx )];
+    return capturedData.getTimestamp( Math.max( 0, refIdx ) );
   }
 
   /**
@@ -508,6 +502,17 @@ public class SignalDiagramModel
     return capturedData.getChannels();
   }
 
+  /**
+   * Returns the results of the last signal search.
+   *
+   * @return the search results, or <code>null</code> if no search is done
+   *         on the current data model.
+   */
+  public SearchResults getSearchResults()
+  {
+    return this.searchResults;
+  }
+
   /**
    * Returns the index of the current selected channel.
    *
@@ -583,7 +588,8 @@ public class SignalDiagramModel
       return new MeasurementInfo( aSignalElement, refTime );
     }
 
-    final long[] timestamps = getTimestamps();
+    final AcquisitionResult capturedData = getCapturedData();
+    final int size = capturedData.getValues().length;
 
     long ts = -1L;
     long tm = -1L;
@@ -592,47 +598,33 @@ public class SignalDiagramModel
 
     // find the reference time value; which is the "timestamp" under the
     // cursor...
-    final int[] values = getValues();
-    if ( ( refIdx >= 0 ) && ( refIdx < values.length ) )
+    if ( ( refIdx >= 0 ) && ( refIdx < size ) )
     {
-      final int mask = channel.getMask();
-      final int refValue = ( values[refIdx] & mask );
-
-      int idx = refIdx;
-      do
-      {
-        idx--;
-      }
-      while ( ( idx >= 0 ) && ( ( values[idx] & mask ) == refValue ) );
-
-      // convert the found index back to "screen" values...
-      final int tm_idx = Math.max( 0, idx + 1 );
-      tm = ( tm_idx == 0 ) ? 0 : timestamps[tm_idx];
-
-      // Search for the original value again, to complete the pulse...
-      do
+      final long refTimestamp = capturedData.getTimestamp( refIdx );
+
+      // Use the transition index of the channel, which allows us to find the
+      // surrounding edges using a binary search instead of walking all samples
+      // in which only *other* channels changed...
+      final TransitionIndex index = capturedData.getTransitionIndex( channel.getIndex() );
+      final int edgeIdx = index.getEdgeIndex( refTimestamp );
+
+      // the start of the pulse under the cursor, and the start of the pulse
+      // before it...
+      tm = ( edgeIdx > 0 ) ? index.getEdge( edgeIdx - 1 ) : 0L;
+      ts = ( edgeIdx > 1 ) ? index.getEdge( edgeIdx - 2 ) : 0L;
+      // the end of the pulse under the cursor...
+      if ( edgeIdx < index.getEdgeCount() )
       {
-        idx--;
+        te = index.getEdge( edgeIdx );
       }
-      while ( ( idx >= 0 ) && ( ( values[idx] & mask ) != refValue ) );
-
-      // convert the found index back to "screen" values...
-      final int ts_idx = Math.max( 0, idx + 1 );
-      ts = ( ts_idx == 0 ) ? 0 : timestamps[ts_idx];
-
-      idx = refIdx;
-      do
+      else
       {
-        idx++;
+        te = ( size > 1 ) ? capturedData.getTimestamp( size - 1 ) : 0L;
       }
-      while ( ( idx < values.length ) && ( ( values[idx] & mask ) == refValue ) );
-
-      // convert the found index back to "screen" values...
-      final int te_idx = Math.min( idx, timestamps.length - 1 );
-      te = ( te_idx == 0 ) ? 0 : timestamps[te_idx];
 
       // Determine the width of the "high" part...
-      if ( ( values[ts_idx] & mask ) != 0 )
+      final boolean startHigh = ( edgeIdx > 0 ) ^ index.isHigh( refTimestamp );
+      if ( startHigh )
       {
         th = Math.abs( tm - ts );
       }
@@ -778,20 +770,11 @@ public class SignalDiagramModel
     {
       return 0;
     }
-    return capturedData.getSampleIndex( aValue );
-  }
-
-  /**
-   * {@inheritDoc}
-   */
-  public long[] getTimestamps()
-  {
-    final AcquisitionResult capturedData = getCapturedData();
-    if ( capturedData == null )
-    {
-      return new long[0];
-    }
-    return capturedData.getTimestamps();
+    // Look-ups are mostly done for nearby timestamps, for example, while
+    // scrolling or moving the mouse...
+    final int result = capturedData.getSampleIndex( aValue, this.lastTimestampIndex );
+    this.lastTimestampIndex = result;
+    return result;
   }
 
   /**
@@ -1221,6 +1204,8 @@ public class SignalDiagramModel
     }
 
     this.dataSet = aDataSet;
+    // Search results only apply to the data they were found in...
+    this.searchResults = null;
 
     final IDataModelChangeListener[] listeners = this.eventListeners.getListeners( IDataModelChangeListener.class );
     for ( IDataModelChangeListener listener : listeners )
@@ -1257,6 +1242,17 @@ public class SignalDiagramModel
     }
   }
 
+  /**
+   * Sets the results of the last signal search.
+   *
+   * @param aSearchResults
+   *          the search results to set, can be <code>null</code>.
+   */
+  public void setSearchResults( final SearchResults aSearchResults )
+  {
+    this.searchResults = aSearchResults;
+  }
+
   /**
    * Sets the selected channel index to the given value.
    *
@@ -1311,4 +1307,21 @@ public class SignalDiagramModel
   {
     return getValues().length;
   }
+
+  /**
+   * Returns the index of the last sample whose timestamp is at or before the
+   * given timestamp.
+   *
+   * @return a sample index, or -1 if all samples are after the given
+   *         timestamp.
+   */
+  private int getSampleIndexAtOrBefore( final AcquisitionResult aCapturedData, final long aTimestamp )
+  {
+    int result = aCapturedData.getSampleIndex( aTimestamp, this.lastTimestampIndex );
+    if ( ( result < aCapturedData.getValues().length ) && ( aCapturedData.getTimestamp( result ) > aTimestamp ) )
+    {
+      result--;
+    }
+    return result;
+  }
 }
@@ -26,6 +26,8 @@ import java.awt.*;
 
 import javax.swing.*;
 
+import nl.lxtreme.ols.api.acquisition.*;
+import nl.lxtreme.ols.api.task.*;
 import nl.lxtreme.ols.client.signaldisplay.*;
 import nl.lxtreme.ols.client.signaldisplay.model.SignalDiagramModel.*;
 import nl.lxtreme.ols.client.signaldisplay.view.*;
@@ -133,6 +135,16 @@ public class SignalViewModel extends AbstractViewModel
     return font;
   }
 
+  /**
+   * Returns the captured data that is displayed.
+   * 
+   * @return the captured data, can be <code>null</code>.
+   */
+  public AcquisitionResult getCapturedData()
+  {
+    return this.controller.getViewModel().getCapturedData();
+  }
+
   /**
    * @return
    */
@@ -219,11 +231,14 @@ public class SignalViewModel extends AbstractViewModel
   }
 
   /**
-   * @return
+   * Returns the task execution service to render the signals with.
+   * 
+   * @return a task execution service, can be <code>null</code> if none is
+   *         available.
    */
-  public long[] getTimestamps()
+  public TaskExecutionService getTaskExecutionService()
   {
-    return this.controller.getViewModel().getTimestamps();
+    return this.controller.getTaskExecutionService();
   }
 
   /**
@@ -0,0 +1,467 @@
+/*
+ * OpenBench LogicSniffer / SUMP project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ * Copyright (C) 2006-2010 Michael Poppitz, www.sump.org
+ * Copyright (C) 2010-2012 J.W. Janssen, www.lxtreme.nl
+ */
+package nl.lxtreme.ols.client.signaldisplay.search;
+
+
+import nl.lxtreme.ols.api.acquisition.*;
+import nl.lxtreme.ols.api.data.*;
+
+
+/**
+ * Denotes what to search for in captured data.
+ * <p>
+ * All durations are expressed in timestamp units of the captured data, that
+ * is, in sample periods.
+ * </p>
+ */
+public abstract class SearchCriterion
+{
+  // INNER TYPES
+
+  /**
+   * Matches all complete pulses of a given polarity on a channel whose width is
+   * below or above a given threshold.
+   */
+  static final class PulseWidthCriterion extends SearchCriterion
+  {
+    // VARIABLES
+
+    private final int channel;
+    private final Edge leadingEdge;
+    private final long threshold;
+    private final boolean below;
+
+    // CONSTRUCTORS
+
+    /**
+     * Creates a new {@link PulseWidthCriterion} instance.
+     */
+    PulseWidthCriterion( final int aChannel, final Edge aLeadingEdge, final long aThreshold, final boolean aBelow )
+    {
+      this.channel = aChannel;
+      this.leadingEdge = aLeadingEdge;
+      this.threshold = aThreshold;
+      this.below = aBelow;
+    }
+
+    // METHODS
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getDescription()
+    {
+      final String polarity = this.leadingEdge.isRising() ? "high " : ( this.leadingEdge.isFalling() ? "low " : "" );
+      return String.format( "%spulses %s %d on channel %d", polarity, this.below ? "shorter than" : "longer than",
+          Long.valueOf( this.threshold ), Integer.valueOf( this.channel ) );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    void scan( final AcquisitionResult aData, final int aFrom, final int aTo, final SearchResults.Collector aCollector )
+    {
+      final int[] values = aData.getValues();
+      final int mask = ( 1 << this.channel );
+      final int length = values.length;
+
+      int i = Math.max( 1, aFrom );
+      while ( i < aTo )
+      {
+        if ( ( ( values[i] ^ values[i - 1] ) & mask ) == 0 )
+        {
+          i++;
+          continue;
+        }
+
+        // Pulse starts at i; find the edge that ends it, which might be beyond
+        // our part of the data...
+        int j = i + 1;
+        while ( ( j < length ) && ( ( ( values[j] ^ values[j - 1] ) & mask ) == 0 ) )
+        {
+          j++;
+        }
+        if ( j >= length )
+        {
+          // Incomplete pulse...
+          break;
+        }
+
+        // A high pulse starts with a rising edge, a low pulse with a falling
+        // edge...
+        final boolean high = ( values[i] & mask ) != 0;
+        final boolean polarity = this.leadingEdge.isNone() || ( this.leadingEdge.isRising() == high );
+
+        final long start = aData.getTimestamp( i );
+        final long end = aData.getTimestamp( j );
+        final long width = end - start;
+        final boolean match = polarity && ( this.below ? ( width < this.threshold ) : ( width > this.threshold ) );
+        if ( match && !aCollector.add( start, end ) )
+        {
+          break;
+        }
+
+        i = j;
+      }
+    }
+  }
+
+  /**
+   * Matches all periods in which the masked sample value equals a given value.
+   */
+  static final class PatternCriterion extends SearchCriterion
+  {
+    // VARIABLES
+
+    private final int mask;
+    private final int value;
+
+    // CONSTRUCTORS
+
+    /**
+     * Creates a new {@link PatternCriterion} instance.
+     */
+    PatternCriterion( final int aMask, final int aValue )
+    {
+      this.mask = aMask;
+      this.value = aValue & aMask;
+    }
+
+    // METHODS
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getDescription()
+    {
+      return String.format( "pattern %08x with mask %08x", Integer.valueOf( this.value ),
+          Integer.valueOf( this.mask ) );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    void scan( final AcquisitionResult aData, final int aFrom, final int aTo, final SearchResults.Collector aCollector )
+    {
+      final int[] values = aData.getValues();
+      final int length = values.length;
+
+      int i = aFrom;
+      while ( i < aTo )
+      {
+        if ( ( ( values[i] & this.mask ) != this.value )
+            || ( ( i > 0 ) && ( ( values[i - 1] & this.mask ) == this.value ) ) )
+        {
+          i++;
+          continue;
+        }
+
+        // Match starts at i; find where it ends, which might be beyond our part
+        // of the data...
+        int j = i + 1;
+        while ( ( j < length ) && ( ( values[j] & this.mask ) == this.value ) )
+        {
+          j++;
+        }
+
+        final long start = aData.getTimestamp( i );
+        final long end = ( j < length ) ? aData.getTimestamp( j ) : Math.max( start, aData.getAbsoluteLength() );
+        if ( !aCollector.add( start, end ) )
+        {
+          break;
+        }
+
+        i = j;
+      }
+    }
+  }
+
+  /**
+   * Matches all edges on a data channel that occur within the setup or hold
+   * time of an edge of a clock channel. An edge violating both the hold time of
+   * one clock edge and the setup time of the next is reported only once, as
+   * hold violation.
+   */
+  static final class SetupHoldCriterion extends SearchCriterion
+  {
+    // VARIABLES
+
+    private final int dataChannel;
+    private final int clockChannel;
+    private final boolean risingEdge;
+    private final long setupTime;
+    private final long holdTime;
+
+    // CONSTRUCTORS
+
+    /**
+     * Creates a new {@link SetupHoldCriterion} instance.
+     */
+    SetupHoldCriterion( final int aDataChannel, final int aClockChannel, final boolean aRisingEdge,
+        final long aSetupTime, final long aHoldTime )
+    {
+      this.dataChannel = aDataChannel;
+      this.clockChannel = aClockChannel;
+      this.risingEdge = aRisingEdge;
+      this.setupTime = aSetupTime;
+      this.holdTime = aHoldTime;
+    }
+
+    // METHODS
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getDescription()
+    {
+      return String.format( "setup/hold violations of channel %d on %s edges of channel %d",
+          Integer.valueOf( this.dataChannel ), this.risingEdge ? "rising" : "falling",
+          Integer.valueOf( this.clockChannel ) );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    void scan( final AcquisitionResult aData, final int aFrom, final int aTo, final SearchResults.Collector aCollector )
+    {
+      final int[] values = aData.getValues();
+      final int dataMask = ( 1 << this.dataChannel );
+      final int length = values.length;
+
+      for ( int i = Math.max( 1, aFrom ); i < aTo; i++ )
+      {
+        if ( !isClockEdge( values, i ) )
+        {
+          continue;
+        }
+
+        final long clockTime = aData.getTimestamp( i );
+
+        // Setup time: the data should be stable for some time before the clock
+        // edge...
+        for ( int k = i; ( k > 0 ) && ( aData.getTimestamp( k ) > ( clockTime - this.setupTime ) ); k-- )
+        {
+          if ( ( ( values[k] ^ values[k - 1] ) & dataMask ) != 0 )
+          {
+            if ( !isHoldViolation( aData, k ) && !aCollector.add( aData.getTimestamp( k ), clockTime ) )
+            {
+              return;
+            }
+            break;
+          }
+        }
+
+        // Hold time: the data should remain stable for some time after the
+        // clock edge...
+        for ( int k = i + 1; ( k < length ) && ( aData.getTimestamp( k ) < ( clockTime + this.holdTime ) ); k++ )
+        {
+          if ( ( ( values[k] ^ values[k - 1] ) & dataMask ) != 0 )
+          {
+            if ( !aCollector.add( clockTime, aData.getTimestamp( k ) ) )
+            {
+              return;
+            }
+            break;
+          }
+        }
+      }
+    }
+
+    /**
+     * Returns whether the given sample is a clock edge this criterion samples
+     * the data on.
+     */
+    private boolean isClockEdge( final int[] aValues, final int aIndex )
+    {
+      final int clockMask = ( 1 << this.clockChannel );
+      final int clockLevel = this.risingEdge ? clockMask : 0;
+      return ( ( ( aValues[aIndex] ^ aValues[aIndex - 1] ) & clockMask ) != 0 )
+          && ( ( aValues[aIndex] & clockMask ) == clockLevel );
+    }
+
+    /**
+     * Returns whether the data edge at the given sample is reported as hold
+     * violation of a preceding clock edge, that is, whether it is the first
+     * data edge after a clock edge within the hold time.
+     */
+    private boolean isHoldViolation( final AcquisitionResult aData, final int aDataIndex )
+    {
+      final int[] values = aData.getValues();
+      final int dataMask = ( 1 << this.dataChannel );
+      final long dataTime = aData.getTimestamp( aDataIndex );
+
+      for ( int j = aDataIndex - 1; ( j > 0 ) && ( aData.getTimestamp( j ) > ( dataTime - this.holdTime ) ); j-- )
+      {
+        if ( isClockEdge( values, j ) )
+        {
+          return true;
+        }
+        if ( ( ( values[j] ^ values[j - 1] ) & dataMask ) != 0 )
+        {
+          // Another data edge is closer to the clock edge...
+          return false;
+        }
+      }
+      return false;
+    }
+  }
+
+  // METHODS
+
+  /**
+   * Creates a criterion that matches pulses on a given channel whose width is
+   * longer than a given threshold.
+   *
+   * @param aChannel
+   *          the channel index, >= 0 && < 32;
+   * @param aLeadingEdge
+   *          the edge that starts the pulses to match: {@link Edge#RISING} for
+   *          high pulses, {@link Edge#FALLING} for low pulses, or
+   *          {@link Edge#NONE} for both;
+   * @param aThreshold
+   *          the minimal width (exclusive) of the pulses to match.
+   * @return a new search criterion, never <code>null</code>.
+   */
+  public static SearchCriterion pulseWidthAbove( final int aChannel, final Edge aLeadingEdge, final long aThreshold )
+  {
+    return new PulseWidthCriterion( checkChannel( aChannel ), checkEdge( aLeadingEdge ), aThreshold,
+        false /* aBelow */);
+  }
+
+  /**
+   * Creates a criterion that matches pulses on a given channel whose width is
+   * shorter than a given threshold, for example, to find glitches.
+   *
+   * @param aChannel
+   *          the channel index, >= 0 && < 32;
+   * @param aLeadingEdge
+   *          the edge that starts the pulses to match: {@link Edge#RISING} for
+   *          high pulses, {@link Edge#FALLING} for low pulses, or
+   *          {@link Edge#NONE} for both;
+   * @param aThreshold
+   *          the maximal width (exclusive) of the pulses to match.
+   * @return a new search criterion, never <code>null</code>.
+   */
+  public static SearchCriterion pulseWidthBelow( final int aChannel, final Edge aLeadingEdge, final long aThreshold )
+  {
+    return new PulseWidthCriterion( checkChannel( aChannel ), checkEdge( aLeadingEdge ), aThreshold,
+        true /* aBelow */);
+  }
+
+  /**
+   * Creates a criterion that matches all periods in which the masked sample
+   * value equals the given value.
+   *
+   * @param aMask
+   *          the mask of channels to compare;
+   * @param aValue
+   *          the value to match.
+   * @return a new search criterion, never <code>null</code>.
+   */
+  public static SearchCriterion pattern( final int aMask, final int aValue )
+  {
+    return new PatternCriterion( aMask, aValue );
+  }
+
+  /**
+   * Creates a criterion that matches edges on a data channel that violate the
+   * setup or hold time with respect to a clock channel.
+   *
+   * @param aDataChannel
+   *          the data channel index, >= 0 && < 32;
+   * @param aClockChannel
+   *          the clock channel index, >= 0 && < 32;
+   * @param aRisingEdge
+   *          <code>true</code> if data is sampled on the rising edges of the
+   *          clock, <code>false</code> if sampled on the falling edges;
+   * @param aSetupTime
+   *          the setup time, >= 0;
+   * @param aHoldTime
+   *          the hold time, >= 0.
+   * @return a new search criterion, never <code>null</code>.
+   */
+  public static SearchCriterion setupHoldViolation( final int aDataChannel, final int aClockChannel,
+      final boolean aRisingEdge, final long aSetupTime, final long aHoldTime )
+  {
+    if ( ( aSetupTime < 0 ) || ( aHoldTime < 0 ) )
+    {
+      throw new IllegalArgumentException( "Setup and hold time cannot be negative!" );
+    }
+    return new SetupHoldCriterion( checkChannel( aDataChannel ), checkChannel( aClockChannel ), aRisingEdge,
+        aSetupTime, aHoldTime );
+  }
+
+  /**
+   * Verifies the given channel index.
+   */
+  private static int checkChannel( final int aChannel )
+  {
+    if ( ( aChannel < 0 ) || ( aChannel >= 32 ) )
+    {
+      throw new IllegalArgumentException( "Invalid channel index: " + aChannel );
+    }
+    return aChannel;
+  }
+
+  /**
+   * Verifies the given edge.
+   */
+  private static Edge checkEdge( final Edge aEdge )
+  {
+    if ( aEdge == null )
+    {
+      throw new IllegalArgumentException( "Edge cannot be null!" );
+    }
+    return aEdge;
+  }
+
+  /**
+   * Returns a human readable description of this criterion.
+   *
+   * @return a description, never <code>null</code>.
+   */
+  public abstract String getDescription();
+
+  /**
+   * Scans a part of the captured data for matches of this criterion.
+   * <p>
+   * Implementations should report all matches that <em>start</em> in the given
+   * part, in order, but are allowed to look beyond the part to determine
+   * whether there is a match.
+   * </p>
+   *
+   * @param aData
+   *          the captured data to scan, cannot be <code>null</code>;
+   * @param aFrom
+   *          the index of the first sample of the part to scan;
+   * @param aTo
+   *          the index of the sample after the part to scan;
+   * @param aCollector
+   *          the collector to report all matches to.
+   */
+  abstract void scan( AcquisitionResult aData, int aFrom, int aTo, SearchResults.Collector aCollector );
+}
@@ -0,0 +1,322 @@
+/*
+ * OpenBench LogicSniffer / SUMP project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ * Copyright (C) 2006-2010 Michael Poppitz, www.sump.org
+ * Copyright (C) 2010-2012 J.W. Janssen, www.lxtreme.nl
+ */
+package nl.lxtreme.ols.client.signaldisplay.search;
+
+
+import java.util.*;
+
+
+/**
+ * Provides the (immutable) results of a signal search, ordered by their start
+ * timestamp.
+ */
+public final class SearchResults
+{
+  // INNER TYPES
+
+  /**
+   * Collects the matches found in a single part of the captured data.
+   */
+  static final class Collector
+  {
+    // VARIABLES
+
+    private final int limit;
+
+    private long[] starts;
+    private long[] ends;
+    private int size;
+    private boolean truncated;
+    private boolean sorted = true;
+
+    // CONSTRUCTORS
+
+    /**
+     * Creates a new {@link Collector} instance.
+     *
+     * @param aLimit
+     *          the maximum number of matches to collect, > 0.
+     */
+    Collector( final int aLimit )
+    {
+      this.limit = aLimit;
+      this.starts = new long[16];
+      this.ends = new long[16];
+    }
+
+    // METHODS
+
+    /**
+     * Adds a match.
+     *
+     * @param aStart
+     *          the start timestamp of the match;
+     * @param aEnd
+     *          the end timestamp of the match.
+     * @return <code>true</code> if more matches can be added,
+     *         <code>false</code> if the limit is reached.
+     */
+    boolean add( final long aStart, final long aEnd )
+    {
+      if ( this.size >= this.limit )
+      {
+        this.truncated = true;
+        return false;
+      }
+      if ( this.size == this.starts.length )
+      {
+        final int newLength = Math.min( this.limit, this.size * 2 );
+        this.starts = Arrays.copyOf( this.starts, newLength );
+        this.ends = Arrays.copyOf( this.ends, newLength );
+      }
+      if ( ( this.size > 0 ) && ( aStart < this.starts[this.size - 1] ) )
+      {
+        this.sorted = false;
+      }
+      this.starts[this.size] = aStart;
+      this.ends[this.size] = aEnd;
+      this.size++;
+      return true;
+    }
+  }
+
+  // VARIABLES
+
+  private final String description;
+  private final long[] starts;
+  private final long[] ends;
+  private final boolean truncated;
+
+  // CONSTRUCTORS
+
+  /**
+   * Creates a new {@link SearchResults} instance.
+   */
+  private SearchResults( final String aDescription, final long[] aStarts, final long[] aEnds,
+      final boolean aTruncated )
+  {
+    this.description = aDescription;
+    this.starts = aStarts;
+    this.ends = aEnds;
+    this.truncated = aTruncated;
+  }
+
+  // METHODS
+
+  /**
+   * Merges the given collectors into search results.
+   *
+   * @param aDescription
+   *          the description of the search;
+   * @param aCollectors
+   *          the collectors to merge, in any order;
+   * @param aLimit
+   *          the maximum number of results to retain.
+   * @return new search results, never <code>null</code>.
+   */
+  static SearchResults merge( final String aDescription, final List<Collector> aCollectors, final int aLimit )
+  {
+    int total = 0;
+    boolean truncated = false;
+    for ( Collector collector : aCollectors )
+    {
+      if ( !collector.sorted )
+      {
+        sortByStart( collector.starts, collector.ends, collector.size );
+        collector.sorted = true;
+      }
+      total += collector.size;
+      truncated |= collector.truncated;
+    }
+    if ( total > aLimit )
+    {
+      total = aLimit;
+      truncated = true;
+    }
+
+    final long[] starts = new long[total];
+    final long[] ends = new long[total];
+
+    // Merge the (sorted) collectors, such that we retain the first matches of
+    // the *whole* captured data in case we need to truncate...
+    final int[] positions = new int[aCollectors.size()];
+    for ( int i = 0; i < total; i++ )
+    {
+      int next = -1;
+      long nextStart = Long.MAX_VALUE;
+      for ( int c = 0; c < positions.length; c++ )
+      {
+        final Collector collector = aCollectors.get( c );
+        if ( ( positions[c] < collector.size ) && ( ( next < 0 ) || ( collector.starts[positions[c]] < nextStart ) ) )
+        {
+          next = c;
+          nextStart = collector.starts[positions[c]];
+        }
+      }
+
+      final Collector collector = aCollectors.get( next );
+      starts[i] = collector.starts[positions[next]];
+      ends[i] = collector.ends[positions[next]];
+      positions[next]++;
+    }
+
+    return new SearchResults( aDescription, starts, ends, truncated );
+  }
+
+  /**
+   * Sorts the first matches of the given arrays by their start timestamp.
+   */
+  private static void sortByStart( final long[] aStarts, final long[] aEnds, final int aCount )
+  {
+    final Integer[] order = new Integer[aCount];
+    for ( int i = 0; i < order.length; i++ )
+    {
+      order[i] = Integer.valueOf( i );
+    }
+
+    final long[] starts = Arrays.copyOf( aStarts, aCount );
+    final long[] ends = Arrays.copyOf( aEnds, aCount );
+    Arrays.sort( order, new Comparator<Integer>()
+    {
+      @Override
+      public int compare( final Integer aIdx1, final Integer aIdx2 )
+      {
+        final long s1 = starts[aIdx1.intValue()];
+        final long s2 = starts[aIdx2.intValue()];
+        return ( s1 < s2 ) ? -1 : ( ( s1 == s2 ) ? 0 : 1 );
+      }
+    } );
+
+    for ( int i = 0; i < order.length; i++ )
+    {
+      aStarts[i] = starts[order[i].intValue()];
+      aEnds[i] = ends[order[i].intValue()];
+    }
+  }
+
+  /**
+   * Returns a description of the search that yielded these results.
+   *
+   * @return a description, never <code>null</code>.
+   */
+  public String getDescription()
+  {
+    return this.description;
+  }
+
+  /**
+   * Returns the end timestamp of the match with the given index.
+   *
+   * @param aIndex
+   *          the index of the match, >= 0 && < {@link #size()}.
+   * @return an end timestamp.
+   */
+  public long getEndTimestamp( final int aIndex )
+  {
+    return this.ends[aIndex];
+  }
+
+  /**
+   * Returns the start timestamp of the match with the given index.
+   *
+   * @param aIndex
+   *          the index of the match, >= 0 && < {@link #size()}.
+   * @return a start timestamp.
+   */
+  public long getStartTimestamp( final int aIndex )
+  {
+    return this.starts[aIndex];
+  }
+
+  /**
+   * Returns the index of the first match that starts after the given
+   * timestamp.
+   *
+   * @param aTimestamp
+   *          the timestamp to search from.
+   * @return the index of the found match, or -1 if no such match exists.
+   */
+  public int indexAfter( final long aTimestamp )
+  {
+    int idx = Arrays.binarySearch( this.starts, aTimestamp );
+    if ( idx < 0 )
+    {
+      idx = -( idx + 1 );
+    }
+    else
+    {
+      // Skip all matches starting at the very same timestamp...
+      while ( ( idx < this.starts.length ) && ( this.starts[idx] == aTimestamp ) )
+      {
+        idx++;
+      }
+    }
+    return ( idx < this.starts.length ) ? idx : -1;
+  }
+
+  /**
+   * Returns the index of the last match that starts before the given
+   * timestamp.
+   *
+   * @param aTimestamp
+   *          the timestamp to search from.
+   * @return the index of the found match, or -1 if no such match exists.
+   */
+  public int indexBefore( final long aTimestamp )
+  {
+    int idx = Arrays.binarySearch( this.starts, aTimestamp );
+    if ( idx < 0 )
+    {
+      idx = -( idx + 1 );
+    }
+    else
+    {
+      // Skip all matches starting at the very same timestamp...
+      while ( ( idx > 0 ) && ( this.starts[idx - 1] == aTimestamp ) )
+      {
+        idx--;
+      }
+    }
+    return idx - 1;
+  }
+
+  /**
+   * Returns whether more matches were found than are retained in these
+   * results.
+   *
+   * @return <code>true</code> if these results are truncated,
+   *         <code>false</code> otherwise.
+   */
+  public boolean isTruncated()
+  {
+    return this.truncated;
+  }
+
+  /**
+   * Returns the number of matches.
+   *
+   * @return a match count, >= 0.
+   */
+  public int size()
+  {
+    return this.starts.length;
+  }
+}
@@ -0,0 +1,190 @@
+/*
+ * OpenBench LogicSniffer / SUMP project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ * Copyright (C) 2006-2010 Michael Poppitz, www.sump.org
+ * Copyright (C) 2010-2012 J.W. Janssen, www.lxtreme.nl
+ */
+package nl.lxtreme.ols.client.signaldisplay.search;
+
+
+import java.util.*;
+import java.util.concurrent.*;
+
+import nl.lxtreme.ols.api.acquisition.*;
+import nl.lxtreme.ols.api.task.*;
+
+
+/**
+ * Searches captured data for glitches, pulses, patterns and setup/hold
+ * violations.
+ * <p>
+ * The transitions of the captured data are split in shards that are scanned
+ * in parallel as batch tasks of the task execution service, with the calling
+ * thread scanning the shards no worker picked up, after which the matches of
+ * all shards are merged into a single, ordered, result list.
+ * </p>
+ */
+public final class SignalSearchEngine
+{
+  // CONSTANTS
+
+  /** The maximum number of matches that is retained. */
+  public static final int MAX_RESULTS = 100000;
+
+  /** The minimal number of transitions scanned by a single shard. */
+  static final int MIN_SHARD_SIZE = 65536;
+
+  // VARIABLES
+
+  private final TaskExecutionService taskExecutionService;
+  private final int parallelism;
+
+  // CONSTRUCTORS
+
+  /**
+   * Creates a new {@link SignalSearchEngine} instance.
+   *
+   * @param aTaskExecutionService
+   *          the task execution service to scan the shards with, can be
+   *          <code>null</code> in which case all shards are scanned by the
+   *          calling thread.
+   */
+  public SignalSearchEngine( final TaskExecutionService aTaskExecutionService )
+  {
+    this.taskExecutionService = aTaskExecutionService;
+    this.parallelism = ( aTaskExecutionService == null ) ? 1 : Runtime.getRuntime().availableProcessors();
+  }
+
+  // METHODS
+
+  /**
+   * Searches the given captured data for all matches of the given criterion.
+   *
+   * @param aData
+   *          the captured data to search, cannot be <code>null</code>;
+   * @param aCriterion
+   *          the criterion to search for, cannot be <code>null</code>.
+   * @return the search results, never <code>null</code>.
+   * @throws InterruptedException
+   *           in case the search was interrupted.
+   */
+  public SearchResults search( final AcquisitionResult aData, final SearchCriterion aCriterion )
+      throws InterruptedException
+  {
+    final int length = aData.getValues().length;
+    // Use a couple of shards per thread to even out the work...
+    final int shardCount = Math.max( 1, Math.min( this.parallelism * 4, length / MIN_SHARD_SIZE ) );
+    final int shardSize = ( length + shardCount - 1 ) / Math.max( 1, shardCount );
+
+    final List<SearchResults.Collector> collectors = new ArrayList<SearchResults.Collector>( shardCount );
+    final List<FutureTask<Void>> shards = new ArrayList<FutureTask<Void>>( shardCount );
+
+    for ( int from = 0; from < length; from += shardSize )
+    {
+      final int shardFrom = from;
+      final int shardTo = Math.min( length, from + shardSize );
+
+      final SearchResults.Collector collector = new SearchResults.Collector( MAX_RESULTS );
+      collectors.add( collector );
+
+      shards.add( submit( new Callable<Void>()
+      {
+        @Override
+        public Void call() throws Exception
+        {
+          aCriterion.scan( aData, shardFrom, shardTo, collector );
+          return null;
+        }
+      }, shardCount ) );
+    }
+
+    try
+    {
+      for ( FutureTask<Void> shard : shards )
+      {
+        // Help scanning the shards no worker picked up (yet), which also
+        // avoids waiting on a pool that is fully occupied...
+        shard.run();
+        shard.get();
+      }
+    }
+    catch ( ExecutionException exception )
+    {
+      final Throwable cause = exception.getCause();
+      if ( cause instanceof RuntimeException )
+      {
+        throw ( RuntimeException )cause;
+      }
+      throw new RuntimeException( cause );
+    }
+    finally
+    {
+      for ( FutureTask<Void> shard : shards )
+      {
+        shard.cancel( true );
+      }
+    }
+
+    return SearchResults.merge( aCriterion.getDescription(), collectors, MAX_RESULTS );
+  }
+
+  /**
+   * Offers a shard to the task execution service.
+   *
+   * @param aShard
+   *          the shard to scan;
+   * @param aShardCount
+   *          the total number of shards.
+   * @return the scan of the shard, to be run by the caller if no worker picked
+   *         it up, never <code>null</code>.
+   */
+  private FutureTask<Void> submit( final Callable<Void> aShard, final int aShardCount )
+  {
+    final FutureTask<Void> result = new FutureTask<Void>( aShard );
+
+    if ( ( aShardCount > 1 ) && ( this.taskExecutionService != null ) )
+    {
+      this.taskExecutionService.execute( new ScheduledTask<Void>()
+      {
+        @Override
+        public Void call() throws Exception
+        {
+          // Does nothing if the caller already started (or cancelled) it...
+          result.run();
+          return null;
+        }
+
+        @Override
+        public Object getGroup()
+        {
+          return null;
+        }
+
+        @Override
+        public TaskPriority getPriority()
+        {
+          // Leave the interactive threads to the rendering of the signals...
+          return TaskPriority.BATCH;
+        }
+      } );
+    }
+    // Otherwise not worth the effort of going through the task execution
+    // service; the caller scans the shard itself...
+
+    return result;
+  }
+}
@@ -30,6 +30,7 @@ import nl.lxtreme.ols.api.data.annotation.*;
 import nl.lxtreme.ols.client.action.SmartJumpAction.*;
 import nl.lxtreme.ols.client.signaldisplay.*;
 import nl.lxtreme.ols.client.signaldisplay.model.*;
+import nl.lxtreme.ols.client.signaldisplay.search.*;
 import nl.lxtreme.ols.client.signaldisplay.signalelement.*;
 
 
@@ -81,6 +82,12 @@ public final class SmartJumpHelper
   {
     Rectangle viewSize = this.controller.getViewComponent().getVisibleRect();
 
+    if ( this.type == JumpType.SEARCH_RESULT )
+    {
+      // Search results are not bound to a single channel...
+      return getSearchResultJumpPosition( ( int )Math.round( viewSize.getCenterX() ) );
+    }
+
     SignalElement signalElement = getSignalDiagramModel().getSignalElementManager().getDigitalSignalByChannelIndex(
         aChannelIndex );
     if ( signalElement != null )
@@ -177,6 +184,40 @@ public final class SmartJumpHelper
     return -1L;
   }
 
+  /**
+   * @param aRefX
+   *          the X-position of the reference point.
+   * @return the start timestamp of the previous/next search result, or -1L if
+   *         there is no such result.
+   */
+  private long getSearchResultJumpPosition( final int aRefX )
+  {
+    final SearchResults results = getSignalDiagramModel().getSearchResults();
+    if ( results == null )
+    {
+      return -1L;
+    }
+
+    // Use the neighbouring pixels as reference, otherwise we could get stuck
+    // on a result that is not exactly in the center of the view...
+    int idx;
+    if ( this.direction.isLeft() )
+    {
+      idx = results.indexBefore( locationToTimestamp( new Point( aRefX - 1, 0 ) ) );
+    }
+    else
+    {
+      idx = results.indexAfter( locationToTimestamp( new Point( aRefX + 1, 0 ) ) );
+    }
+
+    if ( idx >= 0 )
+    {
+      return results.getStartTimestamp( idx );
+    }
+
+    return -1L;
+  }
+
   /**
    * @return
    */
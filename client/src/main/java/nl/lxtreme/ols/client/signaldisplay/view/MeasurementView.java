@@ -30,6 +30,7 @@ import java.util.*;
 import java.util.List;
 
 import javax.swing.*;
+import javax.swing.table.*;
 
 import nl.lxtreme.ols.api.acquisition.*;
 import nl.lxtreme.ols.api.data.*;
@@ -96,6 +97,109 @@ ICursorChangeListener, IMeasurementListener
     }
   }
 
+  /**
+   * Provides the table model for the statistics of all measured channels.
+   */
+  static final class ChannelStatisticsTableModel extends AbstractTableModel
+  {
+    // CONSTANTS
+
+    private static final long serialVersionUID = 1L;
+
+    private static final String[] COLUMNS = { "Channel", "Pulses", "Frequency", "Duty cycle", "Width (H)",
+        "Width (L)" };
+
+    // VARIABLES
+
+    private List<Channel> channels = Collections.emptyList();
+    private PulseCountInfo[] statistics = new PulseCountInfo[0];
+
+    // METHODS
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getColumnCount()
+    {
+      return COLUMNS.length;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getColumnName( final int aColumn )
+    {
+      return COLUMNS[aColumn];
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getRowCount()
+    {
+      return this.channels.size();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Object getValueAt( final int aRowIndex, final int aColumnIndex )
+    {
+      final Channel channel = this.channels.get( aRowIndex );
+      final PulseCountInfo info = this.statistics[aRowIndex];
+
+      switch ( aColumnIndex )
+      {
+        case 0:
+          return channel.hasName() ? channel.getIndex() + ", " + channel.getLabel() : Integer.toString( channel
+              .getIndex() );
+        case 1:
+          return info.hasTimingData ? info.pulseCount : info.totalEdgeCount;
+        case 2:
+          return hasPulses( info ) ? formatFrequency( info.getFrequency() ) : "-";
+        case 3:
+          return hasPulses( info ) ? formatDutyCycle( Double.valueOf( info.getDutyCycle() ) ) : "-";
+        case 4:
+          return info.hasTimingData ? formatWidths( info.minHighTime, info.meanHighTime, info.maxHighTime,
+              info.sampleRate ) : "-";
+        case 5:
+          return info.hasTimingData ? formatWidths( info.minLowTime, info.meanLowTime, info.maxLowTime,
+              info.sampleRate ) : "-";
+        default:
+          return null;
+      }
+    }
+
+    /**
+     * Sets the statistics to show.
+     *
+     * @param aChannels
+     *          the measured channels, cannot be <code>null</code>;
+     * @param aStatistics
+     *          the statistics of the measured channels, in the same order as
+     *          the channels, cannot be <code>null</code>.
+     */
+    public void setStatistics( final List<Channel> aChannels, final PulseCountInfo[] aStatistics )
+    {
+      this.channels = aChannels;
+      this.statistics = aStatistics;
+
+      fireTableDataChanged();
+    }
+
+    /**
+     * Returns whether the given statistics contain pulses with timing data.
+     */
+    private static boolean hasPulses( final PulseCountInfo aInfo )
+    {
+      return aInfo.hasTimingData && ( aInfo.pulseCount.intValue() != 0 );
+    }
+  }
+
   /**
    * {@link ActionListener} implementation for the cursor comboboxes.
    */
@@ -155,12 +259,33 @@ ICursorChangeListener, IMeasurementListener
     final Integer pulseCount;
     final int sampleRate;
     final boolean hasTimingData;
+    final long minHighTime;
+    final long maxHighTime;
+    final long minLowTime;
+    final long maxLowTime;
+    final double meanHighTime;
+    final double meanLowTime;
 
     /**
      * Creates a new {@link PulseCountInfo} instance.
      */
     public PulseCountInfo( final double aMeasureTime, final int aRisingEdgeCount, final int aFallingEdgeCount,
         final long aTotalLowTime, final long aTotalHighTime, final int aSampleRate, final boolean aHasTimingData )
+    {
+      this( aMeasureTime, aRisingEdgeCount, aFallingEdgeCount, aTotalLowTime, aTotalHighTime, aSampleRate,
+          aHasTimingData, Long.MAX_VALUE, Long.MIN_VALUE, Double.NaN, Long.MAX_VALUE, Long.MIN_VALUE, Double.NaN );
+    }
+
+    /**
+     * Creates a new {@link PulseCountInfo} instance, including the minimum,
+     * maximum and mean widths of the complete pulses, which are
+     * {@link Long#MAX_VALUE}, {@link Long#MIN_VALUE} and {@link Double#NaN} if
+     * no complete pulses are measured.
+     */
+    public PulseCountInfo( final double aMeasureTime, final int aRisingEdgeCount, final int aFallingEdgeCount,
+        final long aTotalLowTime, final long aTotalHighTime, final int aSampleRate, final boolean aHasTimingData,
+        final long aMinHighTime, final long aMaxHighTime, final double aMeanHighTime, final long aMinLowTime,
+        final long aMaxLowTime, final double aMeanLowTime )
     {
       this.measureTime = Double.valueOf( aMeasureTime );
       this.risingEdgeCount = Integer.valueOf( aRisingEdgeCount );
@@ -171,6 +296,12 @@ ICursorChangeListener, IMeasurementListener
       this.pulseCount = Integer.valueOf( this.totalEdgeCount.intValue() / 2 );
       this.sampleRate = aSampleRate;
       this.hasTimingData = aHasTimingData;
+      this.minHighTime = aMinHighTime;
+      this.maxHighTime = aMaxHighTime;
+      this.minLowTime = aMinLowTime;
+      this.maxLowTime = aMaxLowTime;
+      this.meanHighTime = aMeanHighTime;
+      this.meanLowTime = aMeanLowTime;
     }
 
     /**
@@ -209,14 +340,15 @@ ICursorChangeListener, IMeasurementListener
   }
 
   /**
-   * Does the actual measurement of the signal.
+   * Does the actual measurement of a single channel of the signal, using the
+   * transition index of that channel.
    */
   static final class SignalMeasurer
   {
     // VARIABLES
 
     private final AcquisitionResult result;
-    private final int mask;
+    private final int index;
     private final long startTimestamp;
     private final long endTimestamp;
 
@@ -229,7 +361,7 @@ ICursorChangeListener, IMeasurementListener
         final long aEndTimestamp )
     {
       this.result = aResult;
-      this.mask = ( 1 << aIndex );
+      this.index = aIndex;
       this.startTimestamp = aStartTimestamp;
       this.endTimestamp = aEndTimestamp;
     }
@@ -238,63 +370,58 @@ ICursorChangeListener, IMeasurementListener
 
     /**
      * Executes the actual measurement.
+     * <p>
+     * This takes logarithmic time once the transition index of the measured
+     * channel is created, which is done upon first use.
+     * </p>
      *
      * @return the measurement information, never <code>null</code>.
      */
     public PulseCountInfo run()
     {
+      final TransitionIndex channel = this.result.getTransitionIndex( this.index );
+
       // Issue #215 - we need to start *before* the first index and end *before*
       // the last index
       final int startIdx = Math.max( 0, this.result.getSampleIndex( this.startTimestamp ) - 1 );
-      final int endIdx = Math.max( 0, this.result.getSampleIndex( this.endTimestamp ) - 1 );
-
-      final boolean hasTimingData = this.result.hasTimingData();
+      final int endIdx = Math.max( 0, this.result.getSampleIndex( this.endTimestamp, startIdx ) - 1 );
 
-      final int[] values = this.result.getValues();
-      final long[] timestamps = this.result.getTimestamps();
+      // Measure all transitions after the start sample, up to and including
+      // the end sample...
+      final long start = this.result.getTimestamp( startIdx );
+      final long end = this.result.getTimestamp( endIdx ) + 1L;
 
-      int fallingEdgeCount = 0;
-      long highTime = 0;
-      int risingEdgeCount = 0;
-      long lowTime = 0;
+      final int risingEdgeCount = channel.getRisingEdgeCount( start + 1L, end );
+      final int fallingEdgeCount = channel.getFallingEdgeCount( start + 1L, end );
 
-      int i = startIdx;
-      long lastTransition = timestamps[i];
-      int lastBitValue = values[i++] & this.mask;
+      long lowTime = 0L;
+      long highTime = 0L;
 
-      for ( ; !Thread.currentThread().isInterrupted() && ( i <= endIdx ); i++ )
+      final int lastEdgeIdx = channel.getEdgeIndex( end - 1L ) - 1;
+      if ( lastEdgeIdx >= channel.getEdgeIndex( start ) )
       {
-        final int bitValue = values[i] & this.mask;
-        final Edge edge = Edge.toEdge( lastBitValue, bitValue );
+        // The time after the last transition is not measured...
+        final long lastEdge = channel.getEdge( lastEdgeIdx );
+        lowTime = channel.getLowTime( start, lastEdge );
+        highTime = channel.getHighTime( start, lastEdge );
+      }
 
-        if ( !edge.isNone() )
-        {
-          final long periodTime = timestamps[i] - lastTransition;
-          lastTransition = timestamps[i];
-
-          if ( edge.isRising() )
-          {
-            // Low to high transition: previously seen a low-state...
-            risingEdgeCount++;
-            lowTime += periodTime;
-          }
-          else
-            /* if ( edge.isFalling() ) */
-          {
-            // High to low transition: previously seen a high-state...
-            fallingEdgeCount++;
-            highTime += periodTime;
-          }
-        }
+      final long[] highWidths = new long[2];
+      channel.getHighPulseWidths( start + 1L, end, highWidths );
+      final long[] lowWidths = new long[2];
+      channel.getLowPulseWidths( start + 1L, end, lowWidths );
 
-        lastBitValue = bitValue;
-      }
+      final double meanHighWidth = channel.getTotalHighPulseWidth( start + 1L, end )
+          / ( double )channel.getHighPulseCount( start + 1L, end );
+      final double meanLowWidth = channel.getTotalLowPulseWidth( start + 1L, end )
+          / ( double )channel.getLowPulseCount( start + 1L, end );
 
       final double measureTime = Math.abs( ( this.endTimestamp - this.startTimestamp )
           / ( double )this.result.getSampleRate() );
 
       return new PulseCountInfo( measureTime, risingEdgeCount, fallingEdgeCount, lowTime, highTime,
-          this.result.getSampleRate(), hasTimingData );
+          this.result.getSampleRate(), this.result.hasTimingData(), highWidths[0], highWidths[1], meanHighWidth,
+          lowWidths[0], lowWidths[1], meanLowWidth );
     }
   }
 
@@ -302,31 +429,33 @@ ICursorChangeListener, IMeasurementListener
    * Provides a {@link SwingWorker} to measure the frequency, dutycycle and such
    * asynchronously from the UI.
    */
-  final class SignalMeasurerWorker extends SwingWorker<PulseCountInfo, Boolean>
+  final class SignalMeasurerWorker extends SwingWorker<PulseCountInfo[], Boolean>
   {
     // VARIABLES
 
-    private final int index;
+    private final List<Channel> channels;
     private final long startTimestamp;
     private final long endTimestamp;
 
+    private volatile AcquisitionResult data;
+
     // CONSTRUCTORS
 
     /**
      * Creates a new {@link SignalMeasurerWorker} instance.
      *
-     * @param aChannel
-     *          the channel to measure;
+     * @param aChannels
+     *          the channels to measure;
      * @param aCursorA
      *          the cursor denoting the start of measurement;
      * @param aCursorB
      *          the cursor denoting the end of measurement.
      */
-    public SignalMeasurerWorker( final Channel aChannel, final Cursor aCursorA, final Cursor aCursorB )
+    public SignalMeasurerWorker( final List<Channel> aChannels, final Cursor aCursorA, final Cursor aCursorB )
     {
-      this.index = aChannel.getIndex();
-      this.startTimestamp = aCursorA != null ? aCursorA.getTimestamp() : -1L;
-      this.endTimestamp = aCursorB != null ? aCursorB.getTimestamp() : -1L;
+      this.channels = aChannels;
+      this.startTimestamp = getTimestamp( aCursorA );
+      this.endTimestamp = getTimestamp( aCursorB );
     }
 
     // METHODS
@@ -335,22 +464,12 @@ ICursorChangeListener, IMeasurementListener
      * {@inheritDoc}
      */
     @Override
-    protected PulseCountInfo doInBackground() throws Exception
+    protected PulseCountInfo[] doInBackground() throws Exception
     {
-      final SignalDiagramModel model = getSignalDiagramModel();
-
-      long start = this.startTimestamp;
-      if ( start < 0L )
-      {
-        start = model.getTimestamps()[0];
-      }
-      long end = this.endTimestamp;
-      if ( end < 0L )
-      {
-        end = model.getAbsoluteLength();
-      }
+      this.data = getSignalDiagramModel().getCapturedData();
 
-      return new SignalMeasurer( model.getCapturedData(), this.index, start, end ).run();
+      // Creates the transition indexes of all channels, if needed...
+      return measure( this.data, this.channels, this.startTimestamp, this.endTimestamp );
     }
 
     /**
@@ -361,9 +480,15 @@ ICursorChangeListener, IMeasurementListener
     {
       try
       {
-        updatePulseCountInformation( get() );
+        updateStatistics( this.channels, get() );
+
+        MeasurementView.this.indexedData = this.data;
+        MeasurementView.this.indexedChannels = getChannelMask( this.channels );
 
         repaint( 50L );
+
+        // The cursors might have been moved while indexing...
+        updateMeasurementInfo();
       }
       catch ( Exception exception )
       {
@@ -406,10 +531,18 @@ ICursorChangeListener, IMeasurementListener
   private final JLabel pci_dutyCycle;
   private final JLabel pci_pulseCountLabel;
   private final JLabel pci_pulseCount;
+  private final JLabel pci_widthHigh;
+  private final JLabel pci_widthLow;
+
+  private final ChannelStatisticsTableModel statisticsModel;
 
   private volatile boolean listening;
   private volatile SignalMeasurerWorker signalMeasurerWorker;
 
+  /** the data and channels whose transition indexes are known to exist. */
+  private volatile AcquisitionResult indexedData;
+  private volatile int indexedChannels;
+
   private final List<Component> comps;
 
   // CONSTRUCTORS
@@ -443,6 +576,12 @@ ICursorChangeListener, IMeasurementListener
     this.pci_pulseCountLabel = new JLabel( "# of pulses:" );
     this.pci_pulseCountLabel.setHorizontalAlignment( SwingConstants.RIGHT );
     this.pci_pulseCount = new JLabel();
+    this.pci_widthHigh = new JLabel();
+    this.pci_widthHigh.setToolTipText( "Minimum / mean / maximum width of the complete high pulses" );
+    this.pci_widthLow = new JLabel();
+    this.pci_widthLow.setToolTipText( "Minimum / mean / maximum width of the complete low pulses" );
+
+    this.statisticsModel = new ChannelStatisticsTableModel();
 
     initComponent();
 
@@ -628,6 +767,121 @@ ICursorChangeListener, IMeasurementListener
     // NO-op
   }
 
+  /**
+   * Creates a measurer for a channel between two timestamps.
+   *
+   * @param aData
+   *          the captured data to measure;
+   * @param aChannelIndex
+   *          the index of the channel to measure;
+   * @param aStartTimestamp
+   *          the start timestamp, or -1L to start at the first sample;
+   * @param aEndTimestamp
+   *          the end timestamp, or -1L to end at the last sample.
+   * @return a new measurer, never <code>null</code>.
+   */
+  static SignalMeasurer createMeasurer( final AcquisitionResult aData, final int aChannelIndex,
+      final long aStartTimestamp, final long aEndTimestamp )
+  {
+    long start = aStartTimestamp;
+    if ( start < 0L )
+    {
+      start = aData.getTimestamp( 0 );
+    }
+    long end = aEndTimestamp;
+    if ( end < 0L )
+    {
+      end = aData.getAbsoluteLength();
+    }
+
+    return new SignalMeasurer( aData, aChannelIndex, start, end );
+  }
+
+  /**
+   * Formats the statistics of pulse widths.
+   *
+   * @param aMinWidth
+   *          the minimum pulse width, in samples;
+   * @param aMeanWidth
+   *          the mean pulse width, in samples;
+   * @param aMaxWidth
+   *          the maximum pulse width, in samples;
+   * @param aSampleRate
+   *          the sample rate.
+   * @return the formatted statistics, as "min / mean / max", or "-" if no
+   *         complete pulses are measured.
+   */
+  static String formatWidths( final long aMinWidth, final double aMeanWidth, final long aMaxWidth,
+      final int aSampleRate )
+  {
+    if ( aMinWidth > aMaxWidth )
+    {
+      return "-";
+    }
+    final String min = formatTime( Double.valueOf( aMinWidth / ( double )aSampleRate ) );
+    if ( aMinWidth == aMaxWidth )
+    {
+      return min;
+    }
+    return min.concat( " / " ).concat( formatTime( Double.valueOf( aMeanWidth / aSampleRate ) ) ).concat( " / " )
+        .concat( formatTime( Double.valueOf( aMaxWidth / ( double )aSampleRate ) ) );
+  }
+
+  /**
+   * Returns the bitmask of the given channels.
+   *
+   * @param aChannels
+   *          the channels to return the mask for, cannot be <code>null</code>.
+   * @return a channel mask.
+   */
+  static int getChannelMask( final List<Channel> aChannels )
+  {
+    int result = 0;
+    for ( Channel channel : aChannels )
+    {
+      result |= channel.getMask();
+    }
+    return result;
+  }
+
+  /**
+   * Measures several channels between two timestamps.
+   *
+   * @param aData
+   *          the captured data to measure;
+   * @param aChannels
+   *          the channels to measure;
+   * @param aStartTimestamp
+   *          the start timestamp, or -1L to start at the first sample;
+   * @param aEndTimestamp
+   *          the end timestamp, or -1L to end at the last sample.
+   * @return the measurement information of each channel, in the order of the
+   *         given channels, never <code>null</code>.
+   */
+  static PulseCountInfo[] measure( final AcquisitionResult aData, final List<Channel> aChannels,
+      final long aStartTimestamp, final long aEndTimestamp )
+  {
+    final PulseCountInfo[] result = new PulseCountInfo[aChannels.size()];
+    for ( int i = 0; i < result.length; i++ )
+    {
+      result[i] = createMeasurer( aData, aChannels.get( i ).getIndex(), aStartTimestamp, aEndTimestamp ).run();
+    }
+    return result;
+  }
+
+  /**
+   * Returns the timestamp of the given cursor.
+   *
+   * @param aCursor
+   *          the cursor to return the timestamp of, can be <code>null</code>.
+   * @return the timestamp of the cursor, or -1L if the cursor is
+   *         <code>null</code>.
+   */
+  private static long getTimestamp( final Cursor aCursor )
+  {
+    return ( aCursor != null ) ? aCursor.getTimestamp() : -1L;
+  }
+
   /**
    * Returns all available channels.
    *
@@ -713,6 +967,8 @@ ICursorChangeListener, IMeasurementListener
     String dutyCycleText = "-";
     String pulseCountLabel = "Pulses:";
     String pulseCountText = "-";
+    String widthHighText = "-";
+    String widthLowText = "-";
 
     // Issue #150: use alternative characters to denote rising/falling edges...
     String upArrow = "\u02C4"; // \u2191 is not supported on Windows
@@ -735,6 +991,11 @@ ICursorChangeListener, IMeasurementListener
           frequencyText = formatFrequency( aPulseCountInfo.getFrequency() );
           dutyCycleText = formatDutyCycle( Double.valueOf( aPulseCountInfo.getDutyCycle() ) );
         }
+
+        widthHighText = formatWidths( aPulseCountInfo.minHighTime, aPulseCountInfo.meanHighTime,
+            aPulseCountInfo.maxHighTime, aPulseCountInfo.sampleRate );
+        widthLowText = formatWidths( aPulseCountInfo.minLowTime, aPulseCountInfo.meanLowTime,
+            aPulseCountInfo.maxLowTime, aPulseCountInfo.sampleRate );
       }
       else
       {
@@ -756,6 +1017,34 @@ ICursorChangeListener, IMeasurementListener
 
     this.pci_pulseCountLabel.setText( pulseCountLabel );
     this.pci_pulseCount.setText( pulseCountText );
+
+    this.pci_widthHigh.setText( widthHighText );
+    this.pci_widthLow.setText( widthLowText );
+  }
+
+  /**
+   * Updates the statistics table and the pulse counter of the selected channel.
+   *
+   * @param aChannels
+   *          the measured channels;
+   * @param aStatistics
+   *          the statistics of the measured channels, in the same order as the
+   *          channels.
+   */
+  final void updateStatistics( final List<Channel> aChannels, final PulseCountInfo[] aStatistics )
+  {
+    this.statisticsModel.setStatistics( aChannels, aStatistics );
+
+    PulseCountInfo selected = null;
+    final Channel channel = ( Channel )this.measureChannel.getSelectedItem();
+    for ( int i = 0; ( channel != null ) && ( i < aChannels.size() ); i++ )
+    {
+      if ( aChannels.get( i ).getIndex() == channel.getIndex() )
+      {
+        selected = aStatistics[i];
+      }
+    }
+    updatePulseCountInformation( selected );
   }
 
   /**
@@ -770,7 +1059,7 @@ ICursorChangeListener, IMeasurementListener
       {
         updateChannelComboBoxModel( MeasurementView.this.measureChannel, aChannels );
 
-        updatePulseCountInformation( null );
+        updateStatistics( Collections.<Channel> emptyList(), new PulseCountInfo[0] );
 
         updateMeasurementInfo();
 
@@ -792,7 +1081,7 @@ ICursorChangeListener, IMeasurementListener
         updateCursorComboBoxModel( MeasurementView.this.cursorA );
         updateCursorComboBoxModel( MeasurementView.this.cursorB );
 
-        updatePulseCountInformation( null );
+        updateStatistics( Collections.<Channel> emptyList(), new PulseCountInfo[0] );
 
         updateMeasurementInfo();
 
@@ -814,8 +1103,7 @@ ICursorChangeListener, IMeasurementListener
       return false;
     }
 
-    Channel channel = ( Channel )this.measureChannel.getSelectedItem();
-    if ( ( channel == null ) || !channel.isEnabled() )
+    if ( getSignalDiagramModel().getCapturedData() == null )
     {
       return false;
     }
@@ -858,6 +1146,24 @@ ICursorChangeListener, IMeasurementListener
     return channels;
   }
 
+  /**
+   * Returns all enabled channels, which are the channels to measure.
+   *
+   * @return a list of channels, never <code>null</code>.
+   */
+  private List<Channel> getEnabledChannels()
+  {
+    final List<Channel> channels = new ArrayList<Channel>();
+    for ( Channel channel : getAllChannels() )
+    {
+      if ( channel.isEnabled() )
+      {
+        channels.add( channel );
+      }
+    }
+    return channels;
+  }
+
   /**
    * Returns the channel group manager.
    *
@@ -963,11 +1269,25 @@ ICursorChangeListener, IMeasurementListener
     this.comps.add( panel.add( createRightAlignedLabel( "Duty cycle:" ) ) );
     this.comps.add( panel.add( this.pci_dutyCycle ) );
 
+    this.comps.add( panel.add( createRightAlignedLabel( "Width (H):" ) ) );
+    this.comps.add( panel.add( this.pci_widthHigh ) );
+
+    this.comps.add( panel.add( createRightAlignedLabel( "Width (L):" ) ) );
+    this.comps.add( panel.add( this.pci_widthLow ) );
+
     panel.add( new JLabel( "" ) );
     panel.add( this.indicator );
 
+    // ROW 20 -- HEADER
+    SpringLayoutUtils.addSeparator( panel, "Channel statistics" );
+
     SpringLayoutUtils.makeEditorGrid( panel, 10, 10 );
 
+    final JTable statisticsTable = new JTable( this.statisticsModel );
+    statisticsTable.setToolTipText( "Widths are shown as minimum / mean / maximum of the complete pulses" );
+    statisticsTable.putClientProperty( "JComponent.sizeVariant", "small" );
+    this.comps.add( statisticsTable );
+
     // Synchronize model state with UI state...
     setState( this.enableMeasurementMode.isSelected() );
 
@@ -975,6 +1295,7 @@ ICursorChangeListener, IMeasurementListener
     updatePulseCountInformation( null );
 
     add( panel, BorderLayout.NORTH );
+    add( new JScrollPane( statisticsTable ), BorderLayout.CENTER );
   }
 
   /**
@@ -1041,15 +1362,25 @@ ICursorChangeListener, IMeasurementListener
     {
       if ( canPerformMeasurement() )
       {
-        if ( ( this.signalMeasurerWorker == null ) || this.signalMeasurerWorker.isDone() )
+        List<Channel> channels = getEnabledChannels();
+        Cursor cursorA = ( Cursor )MeasurementView.this.cursorA.getSelectedItem();
+        Cursor cursorB = ( Cursor )MeasurementView.this.cursorB.getSelectedItem();
+
+        final AcquisitionResult data = getSignalDiagramModel().getCapturedData();
+        final int mask = getChannelMask( channels );
+        if ( ( data == this.indexedData ) && ( ( this.indexedChannels & mask ) == mask ) )
         {
-          this.indicator.setVisible( true );
+          // Measuring takes logarithmic time per channel, so we can do this
+          // directly...
+          updateStatistics( channels, measure( data, channels, getTimestamp( cursorA ), getTimestamp( cursorB ) ) );
 
-          Channel channel = ( Channel )MeasurementView.this.measureChannel.getSelectedItem();
-          Cursor cursorA = ( Cursor )MeasurementView.this.cursorA.getSelectedItem();
-          Cursor cursorB = ( Cursor )MeasurementView.this.cursorB.getSelectedItem();
+          repaint( 50L );
+        }
+        else if ( ( this.signalMeasurerWorker == null ) || this.signalMeasurerWorker.isDone() )
+        {
+          this.indicator.setVisible( true );
 
-          this.signalMeasurerWorker = new SignalMeasurerWorker( channel, cursorA, cursorB );
+          this.signalMeasurerWorker = new SignalMeasurerWorker( channels, cursorA, cursorB );
           this.signalMeasurerWorker.execute();
         }
       }
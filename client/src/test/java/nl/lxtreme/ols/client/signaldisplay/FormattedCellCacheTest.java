@@ -0,0 +1,77 @@
+/*
+ * OpenBench LogicSniffer / SUMP project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ * Copyright (C) 2006-2010 Michael Poppitz, www.sump.org
+ * Copyright (C) 2010-2014 J.W. Janssen, www.lxtreme.nl
+ */
+package nl.lxtreme.ols.client.signaldisplay;
+
+
+import static org.junit.Assert.*;
+
+import org.junit.*;
+
+
+/**
+ * Test cases for {@link FormattedCellCache}.
+ */
+public class FormattedCellCacheTest
+{
+  // METHODS
+
+  /**
+   * Tests that invalidating a column leaves the other columns untouched.
+   */
+  @Test
+  public void testInvalidateColumnOnlyDropsThatColumn()
+  {
+    final FormattedCellCache cache = new FormattedCellCache( 3, 10 );
+    cache.put( 1, 1, "A" );
+    cache.put( 1, 2, "B" );
+
+    cache.invalidateColumn( 1 );
+
+    assertNull( cache.get( 1, 1 ) );
+    assertEquals( "B", cache.get( 1, 2 ) );
+    assertEquals( 0, cache.size( 1 ) );
+    assertEquals( 1, cache.size( 2 ) );
+  }
+
+  /**
+   * Tests that the least recently used cells are evicted once a column is
+   * full.
+   */
+  @Test
+  public void testLeastRecentlyUsedCellsAreEvicted()
+  {
+    final FormattedCellCache cache = new FormattedCellCache( 2, 3 );
+    cache.put( 0, 1, "0" );
+    cache.put( 1, 1, "1" );
+    cache.put( 2, 1, "2" );
+
+    // Touch the first row, making the second one the eldest...
+    assertEquals( "0", cache.get( 0, 1 ) );
+
+    cache.put( 3, 1, "3" );
+
+    assertEquals( 3, cache.size( 1 ) );
+    assertTrue( cache.contains( 0, 1 ) );
+    assertFalse( cache.contains( 1, 1 ) );
+    assertTrue( cache.contains( 2, 1 ) );
+    assertTrue( cache.contains( 3, 1 ) );
+  }
+}
@@ -0,0 +1,86 @@
+/*
+ * OpenBench LogicSniffer / SUMP project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ *
+ * Copyright (C) 2010-2012 - J.W. Janssen, http://www.lxtreme.nl
+ */
+package nl.lxtreme.ols.client.signaldisplay.laf;
+
+
+import static org.junit.Assert.*;
+
+import java.util.*;
+
+import org.junit.*;
+
+
+/**
+ * Test cases for {@link AnalogEnvelope}.
+ */
+public class AnalogEnvelopeTest
+{
+  // METHODS
+
+  /**
+   * Tests that the envelope of arbitrary ranges equals the envelope determined
+   * by inspecting all samples of those ranges.
+   */
+  @Test
+  public void testQueryMatchesAllSamples()
+  {
+    final Random rnd = new Random( 1234L );
+    final int mask = 0x0000FF00;
+
+    for ( int length : new int[] { 1, 15, 16, 17, 100, 1000, 4099 } )
+    {
+      final int[] values = new int[length];
+      for ( int i = 0; i < length; i++ )
+      {
+        // Sine-like signal with some noise, and garbage outside the mask...
+        final int value = ( int )( 127.5 + ( 127.5 * Math.sin( i / 50.0 ) ) );
+        values[i] = ( Math.min( 255, value + rnd.nextInt( 3 ) ) << 8 ) | rnd.nextInt( 256 ) | 0xFF0000;
+      }
+
+      final AnalogEnvelope envelope = new AnalogEnvelope( values, mask );
+      final long[] result = new long[3];
+
+      for ( int n = 0; n < 500; n++ )
+      {
+        final int from = rnd.nextInt( length );
+        final int to = from + 1 + rnd.nextInt( length - from );
+
+        long min = Long.MAX_VALUE;
+        long max = Long.MIN_VALUE;
+        long sum = 0L;
+        for ( int i = from; i < to; i++ )
+        {
+          final long value = ( values[i] & mask ) >>> 8;
+          min = Math.min( min, value );
+          max = Math.max( max, value );
+          sum += value;
+        }
+
+        envelope.query( from, to, result );
+
+        final String range = "[" + from + ", " + to + ") of " + length;
+        assertEquals( range, min, result[AnalogEnvelope.MIN] );
+        assertEquals( range, max, result[AnalogEnvelope.MAX] );
+        assertEquals( range, sum, result[AnalogEnvelope.SUM] );
+      }
+    }
+  }
+}
@@ -0,0 +1,82 @@
+/*
+ * OpenBench LogicSniffer / SUMP project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ *
+ * Copyright (C) 2010-2012 - J.W. Janssen, http://www.lxtreme.nl
+ */
+package nl.lxtreme.ols.client.signaldisplay.laf;
+
+
+import static org.junit.Assert.*;
+
+import org.junit.*;
+
+
+/**
+ * Test cases for {@link FrameTimeHistogram}.
+ */
+public class FrameTimeHistogramTest
+{
+  // CONSTANTS
+
+  private static final long MS = 1000000L;
+
+  // METHODS
+
+  /**
+   * Tests that frame times end up in the correct buckets.
+   */
+  @Test
+  public void testBuckets()
+  {
+    assertEquals( 0, FrameTimeHistogram.getBucket( 0L ) );
+    assertEquals( 0, FrameTimeHistogram.getBucket( MS - 1L ) );
+    assertEquals( 1, FrameTimeHistogram.getBucket( MS ) );
+    assertEquals( 2, FrameTimeHistogram.getBucket( 3 * MS ) );
+    assertEquals( 5, FrameTimeHistogram.getBucket( 16 * MS ) );
+    assertEquals( FrameTimeHistogram.BUCKET_COUNT - 1, FrameTimeHistogram.getBucket( 10000 * MS ) );
+  }
+
+  /**
+   * Tests that percentiles are determined from the recorded frame times.
+   */
+  @Test
+  public void testPercentiles()
+  {
+    final FrameTimeHistogram histogram = new FrameTimeHistogram();
+    for ( int i = 0; i < 90; i++ )
+    {
+      histogram.record( 3 * MS );
+    }
+    for ( int i = 0; i < 10; i++ )
+    {
+      histogram.record( 40 * MS );
+    }
+
+    assertEquals( 100L, histogram.getCount() );
+    assertEquals( 90L, histogram.getBucketCount( 2 ) );
+    assertEquals( 4L, histogram.getPercentile( 50.0 ) );
+    assertEquals( 4L, histogram.getPercentile( 90.0 ) );
+    assertEquals( 64L, histogram.getPercentile( 99.0 ) );
+    assertEquals( 40 * MS, histogram.getMaxTime() );
+    assertEquals( ( ( 90 * 3 ) + ( 10 * 40 ) ) * MS / 100L, histogram.getMeanTime() );
+
+    histogram.reset();
+    assertEquals( 0L, histogram.getCount() );
+    assertEquals( 0L, histogram.getBucketCount( 2 ) );
+  }
+}
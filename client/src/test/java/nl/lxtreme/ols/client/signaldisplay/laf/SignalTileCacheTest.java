@@ -0,0 +1,119 @@
+/*
+ * OpenBench LogicSniffer / SUMP project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ *
+ * Copyright (C) 2010-2012 - J.W. Janssen, http://www.lxtreme.nl
+ */
+package nl.lxtreme.ols.client.signaldisplay.laf;
+
+
+import static org.junit.Assert.*;
+
+import java.awt.image.*;
+import java.util.*;
+
+import nl.lxtreme.ols.client.signaldisplay.laf.SignalTileCache.TileKey;
+
+import org.junit.*;
+
+
+/**
+ * Test cases for {@link SignalTileCache}.
+ */
+public class SignalTileCacheTest
+{
+  // CONSTANTS
+
+  private static final List<?> STYLE = Arrays.asList( "style" );
+
+  // METHODS
+
+  /**
+   * Creates a new tile image.
+   */
+  private static BufferedImage createTile()
+  {
+    return new BufferedImage( SignalTileCache.TILE_WIDTH, 16, BufferedImage.TYPE_INT_ARGB );
+  }
+
+  /**
+   * Tests that tiles are only equal for the same element, zoom factor, index
+   * and style.
+   */
+  @Test
+  public void testTileKeyEquality()
+  {
+    final Object element = new Object();
+
+    assertEquals( new TileKey( element, 1.0, 1, STYLE ), new TileKey( element, 1.0, 1, Arrays.asList( "style" ) ) );
+    assertFalse( new TileKey( element, 1.0, 1, STYLE ).equals( new TileKey( new Object(), 1.0, 1, STYLE ) ) );
+    assertFalse( new TileKey( element, 1.0, 1, STYLE ).equals( new TileKey( element, 2.0, 1, STYLE ) ) );
+    assertFalse( new TileKey( element, 1.0, 1, STYLE ).equals( new TileKey( element, 1.0, 2, STYLE ) ) );
+    assertFalse( new TileKey( element, 1.0, 1, STYLE ).equals( new TileKey( element, 1.0, 1, Arrays.asList( "x" ) ) ) );
+  }
+
+  /**
+   * Tests that the least recently used tiles are evicted when the memory limit
+   * is exceeded.
+   */
+  @Test
+  public void testLeastRecentlyUsedTilesAreEvicted()
+  {
+    final long tileSize = SignalTileCache.getMemoryUsage( createTile() );
+    final SignalTileCache cache = new SignalTileCache( 3 * tileSize );
+    final Object element = new Object();
+
+    for ( int i = 0; i < 3; i++ )
+    {
+      cache.put( new TileKey( element, 1.0, i, STYLE ), createTile() );
+    }
+    assertEquals( 3, cache.size() );
+    assertEquals( 3 * tileSize, cache.getMemoryUsage() );
+
+    // Touch the first tile, making the second one the eldest...
+    assertNotNull( cache.get( new TileKey( element, 1.0, 0, STYLE ) ) );
+
+    cache.put( new TileKey( element, 1.0, 3, STYLE ), createTile() );
+    assertEquals( 3, cache.size() );
+    assertEquals( 3 * tileSize, cache.getMemoryUsage() );
+
+    assertNotNull( cache.get( new TileKey( element, 1.0, 0, STYLE ) ) );
+    assertNull( cache.get( new TileKey( element, 1.0, 1, STYLE ) ) );
+    assertNotNull( cache.get( new TileKey( element, 1.0, 2, STYLE ) ) );
+    assertNotNull( cache.get( new TileKey( element, 1.0, 3, STYLE ) ) );
+  }
+
+  /**
+   * Tests that all tiles are dropped when the data changes.
+   */
+  @Test
+  public void testValidateDropsTilesOnDataChange()
+  {
+    final SignalTileCache cache = new SignalTileCache( SignalTileCache.DEFAULT_MEMORY_LIMIT );
+    final int[] data = new int[16];
+
+    cache.validate( data );
+    cache.put( new TileKey( new Object(), 1.0, 0, STYLE ), createTile() );
+
+    cache.validate( data );
+    assertEquals( 1, cache.size() );
+
+    cache.validate( new int[16] );
+    assertEquals( 0, cache.size() );
+    assertEquals( 0L, cache.getMemoryUsage() );
+  }
+}
@@ -0,0 +1,81 @@
+/*
+ * OpenBench LogicSniffer / SUMP project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ *
+ * Copyright (C) 2010-2012 - J.W. Janssen, http://www.lxtreme.nl
+ */
+package nl.lxtreme.ols.client.signaldisplay.laf;
+
+
+import static org.junit.Assert.*;
+import static org.mockito.Matchers.*;
+import static org.mockito.Mockito.*;
+
+import java.awt.*;
+
+import nl.lxtreme.ols.client.signaldisplay.laf.SignalUI.Polyline;
+
+import org.junit.*;
+
+
+/**
+ * Test cases for the rendering helpers of {@link SignalUI}.
+ */
+public class SignalUITest
+{
+  // METHODS
+
+  /**
+   * Tests that hexadecimal labels are formatted like "%02X" does.
+   */
+  @Test
+  public void testFormatHex()
+  {
+    final char[] buffer = new char[8];
+    for ( int value : new int[] { 0, 0x0A, 0xFF, 0x100, 0xABCDE, 0x7FFFFFFF, -1 } )
+    {
+      final int length = SignalUI.formatHex( buffer, value, SignalUI.getHexDigitCount( value ) );
+      assertEquals( String.format( "%02X", Integer.valueOf( value ) ), new String( buffer, 0, length ) );
+    }
+  }
+
+  /**
+   * Tests that a polyline with more points than fit in a single chunk is drawn
+   * completely, with each chunk continuing from the last point of the previous
+   * one.
+   */
+  @Test
+  public void testPolylineIsDrawnInChunks()
+  {
+    final Graphics2D canvas = mock( Graphics2D.class );
+    final Polyline polyline = new Polyline( canvas );
+
+    final int points = 10000;
+    for ( int i = 0; i < points; i++ )
+    {
+      polyline.add( i, i & 1 );
+      // Duplicate points are to be ignored...
+      polyline.add( i, i & 1 );
+    }
+    assertEquals( 1, polyline.getLastY() );
+    polyline.flush();
+
+    // 10000 points in chunks of 4096, overlapping by one point...
+    verify( canvas, times( 2 ) ).drawPolyline( any( int[].class ), any( int[].class ), eq( 4096 ) );
+    verify( canvas ).drawPolyline( any( int[].class ), any( int[].class ), eq( points - ( 2 * 4095 ) ) );
+  }
+}
@@ -0,0 +1,312 @@
+/*
+ * OpenBench LogicSniffer / SUMP project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ *
+ * Copyright (C) 2010-2012 - J.W. Janssen, http://www.lxtreme.nl
+ */
+package nl.lxtreme.ols.client.signaldisplay.search;
+
+
+import static org.junit.Assert.*;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+import nl.lxtreme.ols.api.*;
+import nl.lxtreme.ols.api.acquisition.*;
+import nl.lxtreme.ols.api.data.*;
+import nl.lxtreme.ols.api.task.*;
+
+import org.junit.*;
+
+
+/**
+ * Test cases for {@link SignalSearchEngine}.
+ */
+public class SignalSearchEngineTest
+{
+  // VARIABLES
+
+  private ExecutorService executor;
+  private SignalSearchEngine engine;
+
+  // METHODS
+
+  /**
+   * Creates captured data with the given values and timestamps.
+   */
+  private static AcquisitionResult createData( final int[] aValues, final long[] aTimestamps, final long aAbsLength )
+  {
+    return new CapturedData( aValues, aTimestamps, Ols.NOT_AVAILABLE, 1000000, 8, 0xFF, aAbsLength );
+  }
+
+  /**
+   * Creates captured data for channel 0 in which every n-th pulse is a
+   * glitch of a single sample.
+   */
+  private static AcquisitionResult createGlitchData( final int aPulses, final int aGlitchInterval )
+  {
+    final int[] values = new int[aPulses];
+    final long[] timestamps = new long[aPulses];
+    long time = 0L;
+    for ( int i = 0; i < aPulses; i++ )
+    {
+      values[i] = ( i & 1 );
+      timestamps[i] = time;
+      time += ( ( i % aGlitchInterval ) == 0 ) ? 1L : 10L;
+    }
+    return createData( values, timestamps, time );
+  }
+
+  /**
+   * Set up for each test case.
+   */
+  @Before
+  public void setUp()
+  {
+    this.executor = Executors.newFixedThreadPool( 4 );
+    this.engine = new SignalSearchEngine( new TaskExecutionService()
+    {
+      @Override
+      public int cancelGroup( final Object aGroup )
+      {
+        return 0;
+      }
+
+      @Override
+      public <RESULT_TYPE> Future<RESULT_TYPE> execute( final Task<RESULT_TYPE> aTask )
+      {
+        return SignalSearchEngineTest.this.executor.submit( aTask );
+      }
+    } );
+  }
+
+  /**
+   * Tear down for each test case.
+   */
+  @After
+  public void tearDown()
+  {
+    this.executor.shutdownNow();
+  }
+
+  /**
+   * Tests that the results of multiple shards are merged in order.
+   */
+  @Test
+  public void testMultipleShardsAreMergedInOrder() throws InterruptedException
+  {
+    final int size = 4 * SignalSearchEngine.MIN_SHARD_SIZE + 123;
+    final AcquisitionResult data = createGlitchData( size, 7 );
+
+    final SearchResults results = this.engine.search( data, SearchCriterion.pulseWidthBelow( 0, Edge.NONE, 2L ) );
+
+    // The first sample starts no pulse, the last pulse is incomplete...
+    int expected = 0;
+    for ( int i = 1; i < ( size - 1 ); i++ )
+    {
+      if ( ( i % 7 ) == 0 )
+      {
+        expected++;
+      }
+    }
+    assertEquals( expected, results.size() );
+    assertFalse( results.isTruncated() );
+
+    for ( int i = 1; i < results.size(); i++ )
+    {
+      assertTrue( results.getStartTimestamp( i - 1 ) < results.getStartTimestamp( i ) );
+      assertEquals( 1L, results.getEndTimestamp( i ) - results.getStartTimestamp( i ) );
+    }
+  }
+
+  /**
+   * Tests that truncated results retain the first matches, regardless of the
+   * order in which the shards are merged.
+   */
+  @Test
+  public void testMergeTruncatesAfterSorting()
+  {
+    final SearchResults.Collector late = new SearchResults.Collector( 10 );
+    late.add( 100L, 101L );
+    late.add( 200L, 201L );
+
+    final SearchResults.Collector early = new SearchResults.Collector( 10 );
+    early.add( 2L, 3L );
+    early.add( 1L, 2L );
+
+    final SearchResults results = SearchResults.merge( "test", Arrays.asList( late, early ), 3 );
+    assertEquals( 3, results.size() );
+    assertTrue( results.isTruncated() );
+    assertEquals( 1L, results.getStartTimestamp( 0 ) );
+    assertEquals( 2L, results.getStartTimestamp( 1 ) );
+    assertEquals( 100L, results.getStartTimestamp( 2 ) );
+    assertEquals( 101L, results.getEndTimestamp( 2 ) );
+  }
+
+  /**
+   * Tests that all shards are scanned by the calling thread if no task
+   * execution service is available.
+   */
+  @Test
+  public void testMultipleShardsWithoutTaskExecutionService() throws InterruptedException
+  {
+    final int size = 4 * SignalSearchEngine.MIN_SHARD_SIZE + 123;
+    final AcquisitionResult data = createGlitchData( size, 7 );
+    final SearchCriterion criterion = SearchCriterion.pulseWidthBelow( 0, Edge.NONE, 2L );
+
+    final SearchResults expected = this.engine.search( data, criterion );
+    final SearchResults results = new SignalSearchEngine( null ).search( data, criterion );
+
+    assertEquals( expected.size(), results.size() );
+    for ( int i = 0; i < results.size(); i++ )
+    {
+      assertEquals( expected.getStartTimestamp( i ), results.getStartTimestamp( i ) );
+      assertEquals( expected.getEndTimestamp( i ), results.getEndTimestamp( i ) );
+    }
+  }
+
+  /**
+   * Tests the navigation through search results.
+   */
+  @Test
+  public void testNavigateResults() throws InterruptedException
+  {
+    final AcquisitionResult data = createData( new int[] { 0, 1, 0, 1, 0 }, new long[] { 0, 10, 20, 30, 40 }, 50L );
+
+    final SearchResults results = this.engine.search( data, SearchCriterion.pattern( 0x01, 0x01 ) );
+    assertEquals( 2, results.size() );
+
+    assertEquals( 0, results.indexAfter( 0L ) );
+    assertEquals( 1, results.indexAfter( 10L ) );
+    assertEquals( -1, results.indexAfter( 30L ) );
+
+    assertEquals( -1, results.indexBefore( 10L ) );
+    assertEquals( 0, results.indexBefore( 11L ) );
+    assertEquals( 1, results.indexBefore( 100L ) );
+  }
+
+  /**
+   * Tests that a pattern search yields all periods matching the pattern.
+   */
+  @Test
+  public void testPatternSearch() throws InterruptedException
+  {
+    final AcquisitionResult data = createData( new int[] { 0x00, 0x03, 0x07, 0x01, 0x03 }, new long[] { 0, 10, 20,
+        30, 40 }, 50L );
+
+    final SearchResults results = this.engine.search( data, SearchCriterion.pattern( 0x03, 0x03 ) );
+    assertEquals( 2, results.size() );
+    assertEquals( 10L, results.getStartTimestamp( 0 ) );
+    assertEquals( 30L, results.getEndTimestamp( 0 ) );
+    assertEquals( 40L, results.getStartTimestamp( 1 ) );
+    assertEquals( 50L, results.getEndTimestamp( 1 ) );
+  }
+
+  /**
+   * Tests that a search for long pulses only yields complete pulses.
+   */
+  @Test
+  public void testPulseWidthAbove() throws InterruptedException
+  {
+    final AcquisitionResult data = createData( new int[] { 0, 1, 0, 1, 0 }, new long[] { 0, 10, 15, 40, 100 }, 200L );
+
+    final SearchResults results = this.engine.search( data, SearchCriterion.pulseWidthAbove( 0, Edge.NONE, 20L ) );
+    assertEquals( 2, results.size() );
+    assertEquals( 15L, results.getStartTimestamp( 0 ) );
+    assertEquals( 40L, results.getEndTimestamp( 0 ) );
+    assertEquals( 40L, results.getStartTimestamp( 1 ) );
+    assertEquals( 100L, results.getEndTimestamp( 1 ) );
+  }
+
+  /**
+   * Tests that a pulse search only yields pulses of the requested polarity.
+   */
+  @Test
+  public void testPulseWidthPolarity() throws InterruptedException
+  {
+    final AcquisitionResult data = createData( new int[] { 0, 1, 0, 1, 0 }, new long[] { 0, 10, 12, 40, 100 }, 200L );
+
+    SearchResults results = this.engine.search( data, SearchCriterion.pulseWidthAbove( 0, Edge.FALLING, 20L ) );
+    assertEquals( 1, results.size() );
+    assertEquals( 12L, results.getStartTimestamp( 0 ) );
+    assertEquals( 40L, results.getEndTimestamp( 0 ) );
+
+    results = this.engine.search( data, SearchCriterion.pulseWidthAbove( 0, Edge.RISING, 20L ) );
+    assertEquals( 1, results.size() );
+    assertEquals( 40L, results.getStartTimestamp( 0 ) );
+    assertEquals( 100L, results.getEndTimestamp( 0 ) );
+
+    results = this.engine.search( data, SearchCriterion.pulseWidthBelow( 0, Edge.FALLING, 20L ) );
+    assertEquals( 0, results.size() );
+  }
+
+  /**
+   * Tests that a search for glitches yields only the short pulses.
+   */
+  @Test
+  public void testPulseWidthBelow() throws InterruptedException
+  {
+    final AcquisitionResult data = createData( new int[] { 0, 1, 0, 1, 0 }, new long[] { 0, 10, 12, 40, 100 }, 200L );
+
+    final SearchResults results = this.engine.search( data, SearchCriterion.pulseWidthBelow( 0, Edge.NONE, 5L ) );
+    assertEquals( 1, results.size() );
+    assertEquals( 10L, results.getStartTimestamp( 0 ) );
+    assertEquals( 12L, results.getEndTimestamp( 0 ) );
+  }
+
+  /**
+   * Tests that setup and hold violations are found.
+   */
+  @Test
+  public void testSetupHoldViolations() throws InterruptedException
+  {
+    // channel 0 = clock, channel 1 = data
+    final int[] values = { 0x00, 0x02, 0x03, 0x02, 0x03, 0x01, 0x00, 0x01 };
+    final long[] timestamps = { 0, 8, 10, 20, 30, 31, 40, 50 };
+    final AcquisitionResult data = createData( values, timestamps, 60L );
+
+    final SearchResults results = this.engine.search( data,
+        SearchCriterion.setupHoldViolation( 1, 0, true /* aRisingEdge */, 3L, 2L ) );
+    assertEquals( 2, results.size() );
+    // Setup violation: data changes at 8, clock rises at 10...
+    assertEquals( 8L, results.getStartTimestamp( 0 ) );
+    assertEquals( 10L, results.getEndTimestamp( 0 ) );
+    // Hold violation: clock rises at 30, data changes at 31...
+    assertEquals( 30L, results.getStartTimestamp( 1 ) );
+    assertEquals( 31L, results.getEndTimestamp( 1 ) );
+  }
+
+  /**
+   * Tests that a data edge violating both the hold time of one clock edge and
+   * the setup time of the next clock edge is reported only once.
+   */
+  @Test
+  public void testSetupHoldViolationsReportEdgeOnce() throws InterruptedException
+  {
+    // channel 0 = clock, channel 1 = data
+    final int[] values = { 0x00, 0x01, 0x03, 0x02, 0x03, 0x02 };
+    final long[] timestamps = { 0, 10, 11, 15, 20, 30 };
+    final AcquisitionResult data = createData( values, timestamps, 40L );
+
+    final SearchResults results = this.engine.search( data,
+        SearchCriterion.setupHoldViolation( 1, 0, true /* aRisingEdge */, 10L, 2L ) );
+    assertEquals( 1, results.size() );
+    assertEquals( 10L, results.getStartTimestamp( 0 ) );
+    assertEquals( 11L, results.getEndTimestamp( 0 ) );
+  }
+}
@@ -0,0 +1,157 @@
+/*
+ * OpenBench LogicSniffer / SUMP project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ *
+ * Copyright (C) 2010-2012 - J.W. Janssen, http://www.lxtreme.nl
+ */
+package nl.lxtreme.ols.client.signaldisplay.view;
+
+
+import static org.junit.Assert.*;
+
+import java.util.*;
+
+import nl.lxtreme.ols.api.*;
+import nl.lxtreme.ols.api.acquisition.*;
+import nl.lxtreme.ols.api.data.*;
+import nl.lxtreme.ols.client.signaldisplay.view.MeasurementView.PulseCountInfo;
+
+import org.junit.*;
+
+
+/**
+ * Test cases for {@link MeasurementView.SignalMeasurer}.
+ */
+public class SignalMeasurerTest
+{
+  // METHODS
+
+  /**
+   * Tests that measuring random windows of random data yields the same results
+   * as scanning all samples of those windows.
+   */
+  @Test
+  public void testMeasureMatchesFullScan()
+  {
+    final Random rnd = new Random( 4321L );
+
+    final int size = 5000;
+    final int[] values = new int[size];
+    final long[] timestamps = new long[size];
+    long time = 0L;
+    for ( int i = 0; i < size; i++ )
+    {
+      values[i] = rnd.nextInt( 256 );
+      timestamps[i] = time;
+      time += 1L + rnd.nextInt( 20 );
+    }
+    final AcquisitionResult data = new CapturedData( values, timestamps, Ols.NOT_AVAILABLE, 1000000, 8, 0xFF, time );
+
+    for ( int n = 0; n < 1000; n++ )
+    {
+      final int channel = rnd.nextInt( 8 );
+      final long start = ( long )( rnd.nextDouble() * time );
+      final long end = start + ( long )( rnd.nextDouble() * ( time - start ) );
+
+      final PulseCountInfo expected = scan( data, channel, start, end );
+      final PulseCountInfo actual = new MeasurementView.SignalMeasurer( data, channel, start, end ).run();
+
+      final String window = "channel " + channel + " [" + start + ", " + end + "]";
+      assertEquals( window, expected.risingEdgeCount, actual.risingEdgeCount );
+      assertEquals( window, expected.fallingEdgeCount, actual.fallingEdgeCount );
+      assertEquals( window, expected.totalLowTime, actual.totalLowTime );
+      assertEquals( window, expected.totalHighTime, actual.totalHighTime );
+      assertEquals( window, expected.minHighTime, actual.minHighTime );
+      assertEquals( window, expected.maxHighTime, actual.maxHighTime );
+      assertEquals( window, expected.minLowTime, actual.minLowTime );
+      assertEquals( window, expected.maxLowTime, actual.maxLowTime );
+      assertEquals( window, expected.meanHighTime, actual.meanHighTime, 1.0e-9 );
+      assertEquals( window, expected.meanLowTime, actual.meanLowTime, 1.0e-9 );
+    }
+  }
+
+  /**
+   * Measures a channel by scanning all samples between two timestamps.
+   */
+  private static PulseCountInfo scan( final AcquisitionResult aData, final int aChannel, final long aStart,
+      final long aEnd )
+  {
+    final int startIdx = Math.max( 0, aData.getSampleIndex( aStart ) - 1 );
+    final int endIdx = Math.max( 0, aData.getSampleIndex( aEnd ) - 1 );
+
+    final int[] values = aData.getValues();
+    final long[] timestamps = aData.getTimestamps();
+    final int mask = 1 << aChannel;
+
+    int rising = 0;
+    int falling = 0;
+    long lowTime = 0L;
+    long highTime = 0L;
+    long minHigh = Long.MAX_VALUE;
+    long maxHigh = Long.MIN_VALUE;
+    long minLow = Long.MAX_VALUE;
+    long maxLow = Long.MIN_VALUE;
+    // count and total width of the complete high and low pulses...
+    final long[] high = new long[2];
+    final long[] low = new long[2];
+
+    boolean first = true;
+    long lastTransition = timestamps[startIdx];
+    for ( int i = startIdx + 1; i <= endIdx; i++ )
+    {
+      final int prev = values[i - 1] & mask;
+      final int cur = values[i] & mask;
+      if ( prev == cur )
+      {
+        continue;
+      }
+
+      final long width = timestamps[i] - lastTransition;
+      lastTransition = timestamps[i];
+
+      if ( cur != 0 )
+      {
+        rising++;
+        lowTime += width;
+        if ( !first )
+        {
+          minLow = Math.min( minLow, width );
+          maxLow = Math.max( maxLow, width );
+          low[0]++;
+          low[1] += width;
+        }
+      }
+      else
+      {
+        falling++;
+        highTime += width;
+        if ( !first )
+        {
+          minHigh = Math.min( minHigh, width );
+          maxHigh = Math.max( maxHigh, width );
+          high[0]++;
+          high[1] += width;
+        }
+      }
+      first = false;
+    }
+
+    return new PulseCountInfo( 0.0, rising, falling, lowTime, highTime, aData.getSampleRate(),
+        aData.hasTimingData(), minHigh, maxHigh, high[1] / ( double )high[0], minLow, maxLow, low[1]
+            / ( double )low[0] );
+  }
+}
@@ -28,6 +28,7 @@ import nl.lxtreme.ols.api.*;
 import nl.lxtreme.ols.api.acquisition.*;
 import nl.lxtreme.ols.api.data.*;
 import nl.lxtreme.ols.api.devices.*;
+import nl.lxtreme.ols.api.util.*;
 import nl.lxtreme.ols.util.*;
 
 
@@ -85,6 +86,9 @@ public final class RawDataAcquisitionTask implements AcquisitionTask
 
     this.inputStream = new FileInputStream( this.deviceConfig.getDevicePath() );
 
+    final ProgressReporter progress = ProgressReporter.forAcquisition( this.progressListener );
+    progress.start( 0, count );
+
     try
     {
       int idx = 0;
@@ -101,7 +105,7 @@ public final class RawDataAcquisitionTask implements AcquisitionTask
         timestamps[idx] = idx;
 
         // Update the progress...
-        this.progressListener.acquisitionInProgress( ( int )( ( idx++ * 100.0 ) / count ) );
+        progress.update( ++idx );
       }
 
       final long absLength = timestamps[idx - 1];
@@ -116,6 +120,8 @@ public final class RawDataAcquisitionTask implements AcquisitionTask
     }
     finally
     {
+      progress.close();
+
       HostUtils.closeResource( this.inputStream );
     }
   }
@@ -31,6 +31,7 @@ import nl.lxtreme.ols.api.*;
 import nl.lxtreme.ols.api.acquisition.*;
 import nl.lxtreme.ols.api.data.*;
 import nl.lxtreme.ols.api.devices.*;
+import nl.lxtreme.ols.api.util.*;
 import nl.lxtreme.ols.util.*;
 
 import org.sump.device.logicsniffer.profile.*;
@@ -415,6 +416,9 @@ public class LogicSnifferAcquisitionTask implements SumpProtocolConstants, Acqui
     final int length = aEnabledGroupCount * aSampleCount;
     final byte[] rawData = new byte[length];
 
+    final ProgressReporter progress = ProgressReporter.forAcquisition( this.acquisitionProgressListener );
+    progress.start( 0, length );
+
     try
     {
       int offset = 0;
@@ -432,7 +436,7 @@ public class LogicSnifferAcquisitionTask implements SumpProtocolConstants, Acqui
           offset += read;
         }
 
-        this.acquisitionProgressListener.acquisitionInProgress( ( 100 * offset ) / length );
+        progress.update( offset );
       }
     }
     catch ( IOException exception )
@@ -448,7 +452,7 @@ public class LogicSnifferAcquisitionTask implements SumpProtocolConstants, Acqui
       // Make sure we leave the device in a correct state...
       this.outputStream.writeCmdReset();
 
-      this.acquisitionProgressListener.acquisitionInProgress( 100 );
+      progress.finish();
     }
     
     if ( Thread.currentThread().isInterrupted() )
@@ -34,7 +34,7 @@ import org.junit.runner.*;
 import org.junit.runners.*;
 import org.junit.runners.Parameterized.Parameters;
 import org.osgi.service.cm.*;
-import org.sump.device.logicsniffer.VirtualLogicSnifferDevice.SampleProvider;
+import org.sump.device.logicsniffer.simulator.*;
 import org.sump.device.logicsniffer.profile.*;
 import org.sump.device.logicsniffer.profile.DeviceProfile.CaptureClockSource;
 
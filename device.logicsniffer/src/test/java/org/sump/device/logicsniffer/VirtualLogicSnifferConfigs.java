@@ -0,0 +1,65 @@
+/*
+ * OpenBench LogicSniffer / SUMP project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ *
+ * Copyright (C) 2010-2011 J.W. Janssen, www.lxtreme.nl
+ */
+package org.sump.device.logicsniffer;
+
+
+import org.osgi.service.cm.*;
+import org.sump.device.logicsniffer.profile.*;
+import org.sump.device.logicsniffer.simulator.*;
+
+
+/**
+ * Creates device configurations for a {@link LogicSnifferSimulator}, for use
+ * outside this package.
+ */
+public final class VirtualLogicSnifferConfigs
+{
+  // CONSTRUCTORS
+
+  /**
+   * Creates a new VirtualLogicSnifferConfigs instance, never used.
+   */
+  private VirtualLogicSnifferConfigs()
+  {
+    // Nop
+  }
+
+  // METHODS
+
+  /**
+   * Creates a device configuration with the device profile of a virtual
+   * LogicSniffer, which is added to the given device profile manager.
+   * 
+   * @param aManager
+   *          the device profile manager to add the device profile to, cannot
+   *          be <code>null</code>.
+   * @return a new device configuration, never <code>null</code>.
+   * @throws ConfigurationException
+   *           in case the device profile is invalid.
+   */
+  public static LogicSnifferConfig create( final DeviceProfileManager aManager ) throws ConfigurationException
+  {
+    final LogicSnifferConfig result = new LogicSnifferConfig();
+    result.setDeviceProfile( LogicSnifferSimulator.addDeviceProfile( aManager, "VirtualLS",
+        "\"Virtual LogicSniffer\"" ) );
+    return result;
+  }
+}
@@ -0,0 +1,697 @@
+/*
+ * OpenBench LogicSniffer / SUMP project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ *
+ * Copyright (C) 2010-2011 J.W. Janssen, www.lxtreme.nl
+ */
+package org.sump.device.logicsniffer.simulator;
+
+
+import java.io.*;
+import java.net.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.logging.*;
+
+import javax.microedition.io.*;
+
+import nl.lxtreme.ols.api.*;
+import nl.lxtreme.ols.util.*;
+
+import org.osgi.service.cm.*;
+import org.sump.device.logicsniffer.profile.*;
+import org.sump.device.logicsniffer.protocol.*;
+
+
+/**
+ * Provides a local simulator of a LogicSniffer device, which speaks the SUMP
+ * protocol over either in-memory pipes or a (loopback) TCP connection.
+ * <p>
+ * The samples sent by this simulator are provided by a {@link SampleProvider}.
+ * Optionally, the bandwidth and latency of the link can be limited in order to
+ * simulate a "real" serial link.
+ * </p>
+ */
+public final class LogicSnifferSimulator implements Closeable
+{
+  // INNER TYPES
+
+  /**
+   * Handles the SUMP commands of a single connection.
+   */
+  final class ConnectionHandler extends Thread
+  {
+    // VARIABLES
+
+    private final DataInputStream is;
+    private final OutputStream os;
+    private final Socket socket;
+
+    private volatile boolean running;
+
+    private int sizeValue;
+    private int sampleWidth;
+    private boolean ddrMode;
+    private boolean rleMode;
+
+    // CONSTRUCTORS
+
+    /**
+     * Creates a new {@link ConnectionHandler} instance.
+     *
+     * @param aIS
+     *          the input stream to read the commands from;
+     * @param aOS
+     *          the output stream to write the responses to;
+     * @param aSocket
+     *          the socket of the connection, can be <code>null</code>.
+     */
+    public ConnectionHandler( final InputStream aIS, final OutputStream aOS, final Socket aSocket )
+    {
+      super( "OLS Simulator" );
+      setDaemon( true );
+
+      final int bandwidth = LogicSnifferSimulator.this.bandwidth;
+
+      this.is = new DataInputStream( new BufferedInputStream( aIS ) );
+      this.os = ( bandwidth > 0 ) ? new ThrottledOutputStream( new BufferedOutputStream( aOS ), bandwidth )
+          : new BufferedOutputStream( aOS );
+      this.socket = aSocket;
+
+      this.sampleWidth = Ols.MAX_BLOCKS;
+      this.running = true;
+    }
+
+    // METHODS
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void run()
+    {
+      final byte[] parameters = new byte[4];
+
+      try
+      {
+        int command;
+        while ( this.running && ( ( command = this.is.read() ) >= 0 ) )
+        {
+          int parameterValue = 0;
+
+          // Short or long command?
+          if ( ( command & 0x80 ) != 0 )
+          {
+            this.is.readFully( parameters );
+            // Construct a 32-bit integer back from the parameters
+            parameterValue = ( ( ( parameters[3] & 0xFF ) << 24 ) | ( ( parameters[2] & 0xFF ) << 16 )
+                | ( ( parameters[1] & 0xFF ) << 8 ) | ( parameters[0] & 0xFF ) );
+          }
+
+          handleCommand( command, parameterValue );
+        }
+      }
+      catch ( IOException exception )
+      {
+        if ( this.running )
+        {
+          LOG.log( Level.FINE, "Simulator connection failed!", exception );
+        }
+      }
+      finally
+      {
+        // The streams are only closed upon termination, like a real device
+        // would not close its port...
+        this.running = false;
+      }
+    }
+
+    /**
+     * Stops this handler and closes its connection.
+     */
+    public void terminate()
+    {
+      this.running = false;
+      interrupt();
+      closeStreams();
+    }
+
+    /**
+     * Closes all streams of this handler.
+     */
+    private void closeStreams()
+    {
+      HostUtils.closeResource( this.is );
+      HostUtils.closeResource( this.os );
+      if ( this.socket != null )
+      {
+        try
+        {
+          this.socket.close();
+        }
+        catch ( IOException exception )
+        {
+          // Ignore...
+        }
+      }
+    }
+
+    /**
+     * Handles a single command.
+     */
+    private void handleCommand( final int aCommand, final int aParameterValue ) throws IOException
+    {
+      switch ( aCommand & 0xFF )
+      {
+        case SumpProtocolConstants.CMD_RESET:
+        case SumpProtocolConstants.CMD_RLE_FINISH_NOW:
+          // Ignore...
+          break;
+        case SumpProtocolConstants.CMD_RUN:
+          respondWithSampleData();
+          break;
+        case SumpProtocolConstants.CMD_ID:
+          respondWithDeviceID();
+          break;
+        case SumpProtocolConstants.CMD_SELFTEST:
+          respondWithSelftestResult();
+          break;
+        case SumpProtocolConstants.CMD_METADATA:
+          respondWithDeviceMetadata();
+          break;
+        case 0xC0:
+        case 0xC1:
+        case 0xC2:
+        case 0xC4:
+        case 0xC5:
+        case 0xC6:
+        case 0xC8:
+        case 0xC9:
+        case 0xCA:
+        case 0xCC:
+        case 0xCD:
+        case 0xCE:
+          // Set trigger mask, value & configuration; ignored...
+          break;
+        case 0x80:
+          // Set divider...
+          LogicSnifferSimulator.this.divider = aParameterValue;
+          break;
+        case 0x81:
+          // Set Read & Delay Count...
+          this.sizeValue = aParameterValue;
+          break;
+        case 0x82:
+          // Set Flags...
+          this.ddrMode = ( ( aParameterValue & SumpCommandWriter.FLAG_DEMUX ) != 0 );
+          this.rleMode = ( ( aParameterValue & SumpCommandWriter.FLAG_RLE ) != 0 );
+          final int disabledGroups = ( ( aParameterValue & 0x3C ) >> 2 );
+          this.sampleWidth = Ols.MAX_BLOCKS - Integer.bitCount( disabledGroups );
+          if ( this.ddrMode )
+          {
+            this.sampleWidth >>= 1;
+          }
+          LogicSnifferSimulator.this.flags = aParameterValue;
+          break;
+        default:
+          LOG.log( Level.INFO, "Unknown/unimplemented command: 0x{0}!", Integer.toHexString( aCommand ) );
+          break;
+      }
+    }
+
+    /**
+     * Responds with the device ID.
+     */
+    private void respondWithDeviceID() throws IOException
+    {
+      simulateLatency();
+
+      // Respond with '1ALS'...
+      this.os.write( new byte[] { 0x31, 0x41, 0x4c, 0x53 } );
+      this.os.flush();
+    }
+
+    /**
+     * Responds with the device metadata.
+     */
+    private void respondWithDeviceMetadata() throws IOException
+    {
+      simulateLatency();
+
+      // 0x01: Device name...
+      writeMetadataString( 0x01, "Virtual LogicSniffer" );
+      // 0x02: FPGA version...
+      writeMetadataString( 0x02, "Virtual FPGA" );
+      // 0x03: Ancillary version...
+      writeMetadataString( 0x03, "Virtual PIC" );
+      //
+      // 0x20: number of usable probes...
+      this.os.write( new byte[] { 0x20, 0x00, 0x00, 0x00, 0x08 } );
+      // 0x21: Amount of sample memory available (bytes)
+      this.os.write( new byte[] { 0x21, 0x00, 0x00, 0x10, 0x00 } );
+      // 0x22: Amount of dynamic memory available (bytes)
+      this.os.write( new byte[] { 0x22, 0x00, 0x00, 0x00, 0x00 } );
+      // 0x23: Maximum sample rate (hz)
+      this.os.write( new byte[] { 0x23, 0x0B, ( byte )0xEB, ( byte )0xC2, 0x00 } );
+      // 0x24: Protocol version (see below)
+      this.os.write( new byte[] { 0x24, 0x00, 0x00, 0x00, 0x01 } );
+      //
+      // 0x40: Number of usable probes (short)
+      this.os.write( new byte[] { 0x40, 0x08 } );
+      // 0x41: Protocol version (short)
+      this.os.write( new byte[] { 0x41, 0x01 } );
+      //
+      // 0x00: END-OF-DESCRIPTOR
+      this.os.write( 0x00 );
+      this.os.flush();
+    }
+
+    /**
+     * Responds with the sample data, as provided by the sample provider.
+     */
+    private void respondWithSampleData() throws IOException
+    {
+      int readCount, delayCount;
+      if ( this.ddrMode )
+      {
+        readCount = ( ( this.sizeValue & 0xFFFF ) + 1 ) << 3;
+        delayCount = ( ( this.sizeValue >> 16 ) & 0xFFFF ) << 3;
+      }
+      else
+      {
+        readCount = ( ( this.sizeValue & 0xFFFF ) + 1 ) << 2;
+        delayCount = ( ( this.sizeValue >> 16 ) & 0xFFFF ) << 2;
+      }
+      LogicSnifferSimulator.this.readCount = readCount;
+      LogicSnifferSimulator.this.delayCount = delayCount;
+
+      simulateLatency();
+
+      try
+      {
+        LogicSnifferSimulator.this.sampleProvider.write( this.os, this.sampleWidth, readCount, this.rleMode,
+            this.ddrMode );
+      }
+      catch ( RuntimeException exception )
+      {
+        abortSampleData( exception );
+      }
+      catch ( Error exception )
+      {
+        abortSampleData( exception );
+      }
+    }
+
+    /**
+     * Aborts sending sample data after the sample provider failed, by closing
+     * the output stream, while continuing to accept commands. This way the
+     * host sees the end of the data, instead of a connection that went dead
+     * at an arbitrary moment.
+     */
+    private void abortSampleData( final Throwable aCause )
+    {
+      LOG.log( Level.FINE, "Sample provider failed!", aCause );
+      HostUtils.closeResource( this.os );
+    }
+
+    /**
+     * Responds with the self test result.
+     */
+    private void respondWithSelftestResult() throws IOException
+    {
+      // TODO
+      this.os.flush();
+    }
+
+    /**
+     * Waits for the configured latency to pass before a response is sent.
+     */
+    private void simulateLatency() throws InterruptedIOException
+    {
+      final long latency = LogicSnifferSimulator.this.latency;
+      if ( latency > 0L )
+      {
+        try
+        {
+          TimeUnit.MICROSECONDS.sleep( latency );
+        }
+        catch ( InterruptedException exception )
+        {
+          Thread.currentThread().interrupt();
+          throw new InterruptedIOException();
+        }
+      }
+    }
+
+    /**
+     * Writes a zero-terminated metadata string.
+     */
+    private void writeMetadataString( final int aKey, final String aValue ) throws IOException
+    {
+      this.os.write( aKey );
+      this.os.write( aValue.getBytes() );
+      this.os.write( 0x00 );
+    }
+  }
+
+  /**
+   * Provides the host side of a connection to this simulator.
+   */
+  static final class SimulatorConnection implements StreamConnection
+  {
+    // VARIABLES
+
+    private final InputStream is;
+    private final OutputStream os;
+    private final Socket socket;
+
+    // CONSTRUCTORS
+
+    /**
+     * Creates a new {@link SimulatorConnection} instance.
+     */
+    SimulatorConnection( final InputStream aIS, final OutputStream aOS, final Socket aSocket )
+    {
+      this.is = aIS;
+      this.os = aOS;
+      this.socket = aSocket;
+    }
+
+    // METHODS
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void close() throws IOException
+    {
+      HostUtils.closeResource( this.is );
+      HostUtils.closeResource( this.os );
+      if ( this.socket != null )
+      {
+        this.socket.close();
+      }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public DataInputStream openDataInputStream() throws IOException
+    {
+      return new DataInputStream( openInputStream() );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public DataOutputStream openDataOutputStream() throws IOException
+    {
+      return new DataOutputStream( openOutputStream() );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public InputStream openInputStream() throws IOException
+    {
+      return this.is;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public OutputStream openOutputStream() throws IOException
+    {
+      return this.os;
+    }
+  }
+
+  // CONSTANTS
+
+  static final Logger LOG = Logger.getLogger( LogicSnifferSimulator.class.getName() );
+
+  /**
+   * Quite a lot of data can be pumped from this device, so we need some room
+   * for it to store it all...
+   */
+  private static final int PIPE_SIZE = 512 * 1024;
+
+  // VARIABLES
+
+  private final SampleProvider sampleProvider;
+  private final List<ConnectionHandler> handlers;
+
+  private volatile int bandwidth;
+  private volatile long latency;
+
+  private volatile int divider;
+  private volatile int readCount;
+  private volatile int delayCount;
+  private volatile int flags;
+
+  // CONSTRUCTORS
+
+  /**
+   * Creates a new {@link LogicSnifferSimulator} instance.
+   *
+   * @param aSampleProvider
+   *          the provider of the samples to send, cannot be <code>null</code>.
+   */
+  public LogicSnifferSimulator( final SampleProvider aSampleProvider )
+  {
+    if ( aSampleProvider == null )
+    {
+      throw new IllegalArgumentException( "Sample provider cannot be null!" );
+    }
+    this.sampleProvider = aSampleProvider;
+    this.handlers = new CopyOnWriteArrayList<ConnectionHandler>();
+  }
+
+  // METHODS
+
+  /**
+   * Adds a device profile for a virtual device to the given device profile
+   * manager.
+   *
+   * @param aManager
+   *          the device profile manager to add the profile to, cannot be
+   *          <code>null</code>;
+   * @param aType
+   *          the type of the device profile, cannot be <code>null</code>;
+   * @param aMetadataKeys
+   *          the metadata keys to use for the device profile, cannot be
+   *          <code>null</code>.
+   * @return the added device profile, never <code>null</code>.
+   * @throws ConfigurationException
+   *           in case the device profile is invalid.
+   */
+  public static DeviceProfile addDeviceProfile( final DeviceProfileManager aManager, final String aType,
+      final String aMetadataKeys ) throws ConfigurationException
+  {
+    Properties properties = new Properties();
+    properties.put( DeviceProfile.DEVICE_CAPTURECLOCK, "INTERNAL" );
+    properties.put( DeviceProfile.DEVICE_CAPTURESIZE_BOUND, "false" );
+    properties.put( DeviceProfile.DEVICE_CAPTURESIZES, "4096,2048,1024,512,256,128,64,32,16" );
+    properties.put( DeviceProfile.DEVICE_CHANNEL_COUNT, "32" );
+    properties.put( DeviceProfile.DEVICE_CHANNEL_GROUPS, "4" );
+    properties.put( DeviceProfile.DEVICE_CHANNEL_NUMBERING_SCHEMES, "DEFAULT" );
+    properties.put( DeviceProfile.DEVICE_CLOCKSPEED, "100000000" );
+    properties.put( DeviceProfile.DEVICE_DIVIDER_CLOCKSPEED, "100000000" );
+    properties.put( DeviceProfile.DEVICE_DESCRIPTION, aType.concat( " Device Profile" ) );
+    properties.put( DeviceProfile.DEVICE_FEATURE_NOISEFILTER, "true" );
+    properties.put( DeviceProfile.DEVICE_FEATURE_RLE, "true" );
+    properties.put( DeviceProfile.DEVICE_FEATURE_TEST_MODE, "true" );
+    properties.put( DeviceProfile.DEVICE_FEATURE_TRIGGERS, "true" );
+    properties.put( DeviceProfile.DEVICE_INTERFACE, "SERIAL" );
+    properties.put( DeviceProfile.DEVICE_METADATA_KEYS, aMetadataKeys );
+    properties.put( DeviceProfile.DEVICE_OPEN_PORT_DELAY, "0" );
+    properties.put( DeviceProfile.DEVICE_OPEN_PORT_DTR, "false" );
+    properties.put( DeviceProfile.DEVICE_RECEIVE_TIMEOUT, "12" );
+    properties.put( DeviceProfile.DEVICE_SAMPLE_REVERSE_ORDER, "true" );
+    properties.put( DeviceProfile.DEVICE_SAMPLERATES, "1000000" );
+    properties.put( DeviceProfile.DEVICE_SUPPORTS_DDR, "true" );
+    properties.put( DeviceProfile.DEVICE_TRIGGER_COMPLEX, "true" );
+    properties.put( DeviceProfile.DEVICE_TRIGGER_STAGES, "4" );
+    properties.put( DeviceProfile.DEVICE_TYPE, aType );
+    // Update the properties of a 'virtual' PID...
+    aManager.updated( "PID-" + aType, properties );
+
+    return aManager.getProfile( aType );
+  }
+
+  /**
+   * Stops this simulator and closes all of its connections.
+   */
+  @Override
+  public void close()
+  {
+    for ( ConnectionHandler handler : this.handlers )
+    {
+      handler.terminate();
+
+      do
+      {
+        try
+        {
+          handler.join();
+        }
+        catch ( InterruptedException exception )
+        {
+          Thread.currentThread().interrupt();
+          return;
+        }
+      }
+      while ( handler.isAlive() );
+    }
+    this.handlers.clear();
+  }
+
+  /**
+   * Returns the read count, as last written to this simulator.
+   *
+   * @return the read count, in samples.
+   */
+  public int getReadCount()
+  {
+    return this.readCount;
+  }
+
+  /**
+   * Returns the delay count, as last written to this simulator.
+   *
+   * @return the delay count, in samples.
+   */
+  public int getDelayCount()
+  {
+    return this.delayCount;
+  }
+
+  /**
+   * Returns the divider, as last written to this simulator.
+   *
+   * @return the divider value.
+   */
+  public int getDivider()
+  {
+    return this.divider;
+  }
+
+  /**
+   * Returns the flags, as last written to this simulator.
+   *
+   * @return the flags value.
+   */
+  public int getFlags()
+  {
+    return this.flags;
+  }
+
+  /**
+   * Opens a new connection to this simulator using in-memory pipes.
+   *
+   * @return the host side of the connection, never <code>null</code>.
+   * @throws IOException
+   *           in case the connection could not be opened.
+   */
+  public StreamConnection openPipeConnection() throws IOException
+  {
+    final PipedInputStream deviceIn = new PipedInputStream( PIPE_SIZE );
+    final PipedOutputStream hostOut = new PipedOutputStream( deviceIn );
+
+    final PipedInputStream hostIn = new PipedInputStream( PIPE_SIZE );
+    final PipedOutputStream deviceOut = new PipedOutputStream( hostIn );
+
+    startHandler( new ConnectionHandler( deviceIn, deviceOut, null /* aSocket */) );
+
+    return new SimulatorConnection( hostIn, hostOut, null /* aSocket */);
+  }
+
+  /**
+   * Opens a new connection to this simulator using a loopback TCP connection.
+   *
+   * @return the host side of the connection, never <code>null</code>.
+   * @throws IOException
+   *           in case the connection could not be opened.
+   */
+  public StreamConnection openSocketConnection() throws IOException
+  {
+    final ServerSocket serverSocket = new ServerSocket( 0, 1, InetAddress.getByName( "127.0.0.1" ) );
+    try
+    {
+      final Socket hostSocket = new Socket( serverSocket.getInetAddress(), serverSocket.getLocalPort() );
+      hostSocket.setTcpNoDelay( true );
+
+      final Socket deviceSocket = serverSocket.accept();
+      deviceSocket.setTcpNoDelay( true );
+
+      startHandler( new ConnectionHandler( deviceSocket.getInputStream(), deviceSocket.getOutputStream(),
+          deviceSocket ) );
+
+      return new SimulatorConnection( hostSocket.getInputStream(), hostSocket.getOutputStream(), hostSocket );
+    }
+    finally
+    {
+      serverSocket.close();
+    }
+  }
+
+  /**
+   * Sets the bandwidth of the link, used for all connections opened after
+   * this call.
+   *
+   * @param aBandwidth
+   *          the maximum number of bytes per second sent by this simulator, or
+   *          zero for an unlimited bandwidth.
+   */
+  public void setBandwidth( final int aBandwidth )
+  {
+    if ( aBandwidth < 0 )
+    {
+      throw new IllegalArgumentException( "Bandwidth cannot be negative!" );
+    }
+    this.bandwidth = aBandwidth;
+  }
+
+  /**
+   * Sets the latency of the link, which is waited before each response of
+   * this simulator.
+   *
+   * @param aLatency
+   *          the latency, in microseconds, or zero for no latency.
+   */
+  public void setLatency( final long aLatency )
+  {
+    if ( aLatency < 0L )
+    {
+      throw new IllegalArgumentException( "Latency cannot be negative!" );
+    }
+    this.latency = aLatency;
+  }
+
+  /**
+   * Starts the given connection handler.
+   */
+  private void startHandler( final ConnectionHandler aHandler )
+  {
+    this.handlers.add( aHandler );
+    aHandler.start();
+  }
+}
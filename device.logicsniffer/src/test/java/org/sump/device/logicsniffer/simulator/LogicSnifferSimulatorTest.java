@@ -0,0 +1,160 @@
+/*
+ * OpenBench LogicSniffer / SUMP project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ *
+ * Copyright (C) 2010-2011 J.W. Janssen, www.lxtreme.nl
+ */
+package org.sump.device.logicsniffer.simulator;
+
+
+import static org.junit.Assert.*;
+
+import javax.microedition.io.*;
+
+import nl.lxtreme.ols.api.acquisition.*;
+
+import org.junit.*;
+import org.sump.device.logicsniffer.*;
+import org.sump.device.logicsniffer.profile.*;
+import org.sump.device.logicsniffer.profile.DeviceProfile.CaptureClockSource;
+import org.sump.device.logicsniffer.simulator.PatternSampleProvider.Pattern;
+
+
+/**
+ * Test cases for {@link LogicSnifferSimulator}.
+ */
+public class LogicSnifferSimulatorTest
+{
+  // VARIABLES
+
+  private DeviceProfileManager deviceProfileManager;
+  private LogicSnifferConfig config;
+  private LogicSnifferSimulator simulator;
+
+  // METHODS
+
+  /**
+   * Sets up the device configuration for an 8-channel capture.
+   */
+  @Before
+  public void setUp() throws Exception
+  {
+    this.deviceProfileManager = new DeviceProfileManager();
+
+    this.config = VirtualLogicSnifferConfigs.create( this.deviceProfileManager );
+    this.config.setClockSource( CaptureClockSource.INTERNAL );
+    this.config.setEnabledChannels( 0x000000FF );
+    this.config.setFilterEnabled( false );
+    this.config.setRatio( 0.5 );
+    this.config.setSampleCount( 4096 );
+    this.config.setSampleRate( 100000000 );
+    this.config.setTriggerEnabled( false );
+  }
+
+  /**
+   * Stops the simulator.
+   */
+  @After
+  public void tearDown()
+  {
+    if ( this.simulator != null )
+    {
+      this.simulator.close();
+    }
+  }
+
+  /**
+   * Tests that the bandwidth of the link is limited when set.
+   */
+  @Test( timeout = 10000 )
+  public void testLimitedBandwidth() throws Exception
+  {
+    this.simulator = new LogicSnifferSimulator( new PatternSampleProvider( Pattern.CONSTANT ) );
+    // 4096 samples of one byte should take (at least) 250 ms...
+    this.simulator.setBandwidth( 16384 );
+
+    final long start = System.nanoTime();
+    final AcquisitionResult result = acquire( this.simulator.openPipeConnection() );
+    final long duration = ( System.nanoTime() - start ) / 1000000L;
+
+    assertEquals( 4096L, result.getAbsoluteLength() );
+    assertTrue( "Acquisition too fast: " + duration + " ms", duration >= 200L );
+  }
+
+  /**
+   * Tests that RLE-encoded runs are decoded correctly.
+   */
+  @Test( timeout = 10000 )
+  public void testRleRunsOverPipe() throws Exception
+  {
+    this.config.setRleEnabled( true );
+
+    this.simulator = new LogicSnifferSimulator( new PatternSampleProvider( Pattern.RUNS, 16 ) );
+
+    final AcquisitionResult result = acquire( this.simulator.openPipeConnection() );
+
+    final int[] values = result.getValues();
+    final long[] timestamps = result.getTimestamps();
+    // Each run consists of a value and a count...
+    assertTrue( values.length > 1000 );
+    for ( int i = 1; i < 1000; i++ )
+    {
+      assertEquals( 16L, timestamps[i] - timestamps[i - 1] );
+      assertTrue( values[i] != values[i - 1] );
+      assertTrue( ( values[i] == 0x55 ) || ( values[i] == 0x2A ) );
+    }
+  }
+
+  /**
+   * Tests that all samples are sent over a TCP connection.
+   */
+  @Test( timeout = 10000 )
+  public void testUncompressedCounterOverSocket() throws Exception
+  {
+    this.config.setRleEnabled( false );
+
+    this.simulator = new LogicSnifferSimulator( new PatternSampleProvider( Pattern.COUNTER ) );
+
+    final AcquisitionResult result = acquire( this.simulator.openSocketConnection() );
+
+    final int[] values = result.getValues();
+    final long[] timestamps = result.getTimestamps();
+    for ( int i = 0; i < 4096; i++ )
+    {
+      assertEquals( i & 0xFF, values[i] );
+      assertEquals( i, timestamps[i] );
+    }
+    assertEquals( 4096, this.simulator.getReadCount() );
+  }
+
+  /**
+   * Acquires the samples from the simulator using the given connection.
+   */
+  private AcquisitionResult acquire( final StreamConnection aConnection ) throws Exception
+  {
+    final LogicSnifferAcquisitionTask task = new LogicSnifferAcquisitionTask( this.config, aConnection,
+        this.deviceProfileManager, new AcquisitionProgressListener()
+        {
+          @Override
+          public void acquisitionInProgress( final int aPercentage )
+          {
+            // Nop
+          }
+        } );
+    return task.call();
+  }
+}
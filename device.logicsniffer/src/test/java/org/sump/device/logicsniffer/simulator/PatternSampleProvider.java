@@ -0,0 +1,197 @@
+/*
+ * OpenBench LogicSniffer / SUMP project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ *
+ * Copyright (C) 2010-2011 J.W. Janssen, www.lxtreme.nl
+ */
+package org.sump.device.logicsniffer.simulator;
+
+
+import java.io.*;
+import java.util.*;
+
+
+/**
+ * Provides a {@link SampleProvider} that generates one of several fixed
+ * patterns of samples.
+ * <p>
+ * The samples are written in chronological order, as expected for the device
+ * profile added by {@link LogicSnifferSimulator#addDeviceProfile}. In RLE-mode,
+ * each run is written as its sample value followed by its count.
+ * </p>
+ */
+public final class PatternSampleProvider implements SampleProvider
+{
+  // INNER TYPES
+
+  /**
+   * Denotes the various patterns that can be generated.
+   */
+  public static enum Pattern
+  {
+    /** All samples have the same value, regardless of the RLE-mode. */
+    CONSTANT,
+    /** Each sample has a different (incrementing) value. */
+    COUNTER,
+    /** Runs of two alternating values, RLE-encoded when in RLE-mode. */
+    RUNS;
+  }
+
+  // CONSTANTS
+
+  private static final int BUFFER_SIZE = 64 * 1024;
+
+  private static final int DEFAULT_RUN_LENGTH = 64;
+
+  // VARIABLES
+
+  private final Pattern pattern;
+  private final int runLength;
+
+  // CONSTRUCTORS
+
+  /**
+   * Creates a new {@link PatternSampleProvider} instance with a default run
+   * length.
+   *
+   * @param aPattern
+   *          the pattern to generate, cannot be <code>null</code>.
+   */
+  public PatternSampleProvider( final Pattern aPattern )
+  {
+    this( aPattern, DEFAULT_RUN_LENGTH );
+  }
+
+  /**
+   * Creates a new {@link PatternSampleProvider} instance.
+   *
+   * @param aPattern
+   *          the pattern to generate, cannot be <code>null</code>;
+   * @param aRunLength
+   *          the length of a single run, in samples, > 0. Only used for the
+   *          {@link Pattern#RUNS} pattern.
+   */
+  public PatternSampleProvider( final Pattern aPattern, final int aRunLength )
+  {
+    if ( aPattern == null )
+    {
+      throw new IllegalArgumentException( "Pattern cannot be null!" );
+    }
+    if ( aRunLength < 1 )
+    {
+      throw new IllegalArgumentException( "Run length should be at least one!" );
+    }
+
+    this.pattern = aPattern;
+    this.runLength = aRunLength;
+  }
+
+  // METHODS
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void write( final OutputStream aOs, final int aSampleWidth, final int aSampleCount, final boolean aRleMode,
+      final boolean aDdrMode ) throws IOException
+  {
+    final byte[] buffer = new byte[Math.max( 1, BUFFER_SIZE / aSampleWidth ) * aSampleWidth];
+
+    if ( this.pattern == Pattern.CONSTANT )
+    {
+      // Keep the MSB of each byte cleared in RLE-mode...
+      Arrays.fill( buffer, ( byte )( aRleMode ? 0x7F : 0xFF ) );
+    }
+
+    final int wordMask = ( int )( ( 1L << ( 8 * aSampleWidth ) ) - 1L );
+    final int valueMask = aRleMode ? ( wordMask >>> 1 ) : wordMask;
+    final int countFlag = wordMask & ~valueMask;
+
+    int offset = 0;
+    for ( int i = 0; i < aSampleCount; i++ )
+    {
+      if ( this.pattern != Pattern.CONSTANT )
+      {
+        final int word = getWord( i, aSampleCount, aRleMode, aDdrMode, valueMask, countFlag );
+        for ( int b = 0; b < aSampleWidth; b++ )
+        {
+          buffer[offset + b] = ( byte )( word >>> ( 8 * b ) );
+        }
+      }
+
+      offset += aSampleWidth;
+      if ( offset == buffer.length )
+      {
+        aOs.write( buffer, 0, offset );
+        offset = 0;
+      }
+    }
+
+    if ( offset > 0 )
+    {
+      aOs.write( buffer, 0, offset );
+    }
+    aOs.flush();
+  }
+
+  /**
+   * Returns the sample word at the given position in the written stream.
+   */
+  private int getWord( final int aIndex, final int aSampleCount, final boolean aRleMode, final boolean aDdrMode,
+      final int aValueMask, final int aCountFlag )
+  {
+    if ( this.pattern == Pattern.COUNTER )
+    {
+      return aIndex & aValueMask;
+    }
+
+    if ( !aRleMode )
+    {
+      return getRunValue( aIndex / this.runLength, aValueMask );
+    }
+
+    // In DDR-mode, a RLE-count takes two words...
+    final int unitSize = aDdrMode ? 3 : 2;
+    final int unit = aIndex / unitSize;
+    final int position = aIndex % unitSize;
+    if ( unit >= ( aSampleCount / unitSize ) )
+    {
+      // Pad with sample values...
+      return getRunValue( unit, aValueMask );
+    }
+
+    final int count = Math.min( aValueMask, aDdrMode ? ( ( this.runLength - 1 ) >> 1 ) : ( this.runLength - 1 ) );
+    if ( position == 0 )
+    {
+      return getRunValue( unit, aValueMask );
+    }
+    else if ( aDdrMode && ( position == 2 ) )
+    {
+      // the lower half of the DDR-count; the upper half is always zero...
+      return count;
+    }
+    return aCountFlag | ( aDdrMode ? 0 : count );
+  }
+
+  /**
+   * Returns the sample value for the run with the given index.
+   */
+  private static int getRunValue( final int aRunIndex, final int aValueMask )
+  {
+    return ( ( ( aRunIndex & 1 ) == 0 ) ? 0x55555555 : 0xAAAAAAAA ) & aValueMask;
+  }
+}
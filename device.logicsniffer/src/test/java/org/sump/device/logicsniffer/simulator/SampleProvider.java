@@ -0,0 +1,55 @@
+/*
+ * OpenBench LogicSniffer / SUMP project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ *
+ * Copyright (C) 2010-2011 J.W. Janssen, www.lxtreme.nl
+ */
+package org.sump.device.logicsniffer.simulator;
+
+
+import java.io.*;
+
+
+/**
+ * Provides the samples sent by a {@link LogicSnifferSimulator}.
+ */
+public interface SampleProvider
+{
+  // METHODS
+
+  /**
+   * Writes the samples.
+   *
+   * @param aOs
+   *          the output stream to write the samples to, cannot be
+   *          <code>null</code>;
+   * @param aSampleWidth
+   *          the width of a single sample, in bytes;
+   * @param aSampleCount
+   *          the number of samples to write;
+   * @param aRleMode
+   *          <code>true</code> if the samples are to be run-length encoded,
+   *          <code>false</code> otherwise;
+   * @param aDdrMode
+   *          <code>true</code> if the samples are taken at double data rate,
+   *          <code>false</code> otherwise.
+   * @throws IOException
+   *           in case of I/O problems.
+   */
+  void write( OutputStream aOs, int aSampleWidth, int aSampleCount, boolean aRleMode, boolean aDdrMode )
+      throws IOException;
+}
@@ -0,0 +1,139 @@
+/*
+ * OpenBench LogicSniffer / SUMP project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ *
+ * Copyright (C) 2010-2011 J.W. Janssen, www.lxtreme.nl
+ */
+package org.sump.device.logicsniffer.simulator;
+
+
+import java.io.*;
+import java.util.concurrent.*;
+
+
+/**
+ * Provides an output stream that limits the rate in which data is written to
+ * a given bandwidth, in order to simulate a (slow) serial link.
+ */
+final class ThrottledOutputStream extends FilterOutputStream
+{
+  // CONSTANTS
+
+  /** The number of slices per second in which data is written. */
+  private static final int SLICES_PER_SECOND = 100;
+  /** The maximum time, in nanoseconds, the link may be idle before its rate is reset. */
+  private static final long MAX_IDLE_TIME = TimeUnit.MILLISECONDS.toNanos( 10L );
+
+  // VARIABLES
+
+  private final int bandwidth;
+  private final int sliceSize;
+
+  private long startTime;
+  private long written;
+
+  // CONSTRUCTORS
+
+  /**
+   * Creates a new {@link ThrottledOutputStream} instance.
+   *
+   * @param aOut
+   *          the output stream to write to, cannot be <code>null</code>;
+   * @param aBandwidth
+   *          the maximum number of bytes per second to write, > 0.
+   */
+  public ThrottledOutputStream( final OutputStream aOut, final int aBandwidth )
+  {
+    super( aOut );
+
+    this.bandwidth = aBandwidth;
+    this.sliceSize = Math.max( 1, aBandwidth / SLICES_PER_SECOND );
+    this.startTime = -1L;
+  }
+
+  // METHODS
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void write( final byte[] aBuffer, final int aOffset, final int aLength ) throws IOException
+  {
+    int offset = aOffset;
+    int remaining = aLength;
+    while ( remaining > 0 )
+    {
+      final int length = Math.min( remaining, this.sliceSize );
+      throttle( length );
+      this.out.write( aBuffer, offset, length );
+      // Make the data available to the reader as soon as possible...
+      this.out.flush();
+
+      offset += length;
+      remaining -= length;
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void write( final int aByte ) throws IOException
+  {
+    throttle( 1 );
+    this.out.write( aByte );
+  }
+
+  /**
+   * Waits until the given number of bytes can be written without exceeding
+   * the bandwidth.
+   */
+  private void throttle( final int aLength ) throws InterruptedIOException
+  {
+    final long now = System.nanoTime();
+    // Do not allow idle time to be "saved up" for a later burst...
+    if ( ( this.startTime < 0L ) || ( now > ( this.startTime + getDuration( this.written ) + MAX_IDLE_TIME ) ) )
+    {
+      this.startTime = now;
+      this.written = 0L;
+    }
+
+    this.written += aLength;
+
+    final long delay = ( this.startTime + getDuration( this.written ) ) - now;
+    if ( delay > 0L )
+    {
+      try
+      {
+        TimeUnit.NANOSECONDS.sleep( delay );
+      }
+      catch ( InterruptedException exception )
+      {
+        Thread.currentThread().interrupt();
+        throw new InterruptedIOException();
+      }
+    }
+  }
+
+  /**
+   * Returns the time needed to transfer the given number of bytes.
+   */
+  private long getDuration( final long aByteCount )
+  {
+    return ( TimeUnit.SECONDS.toNanos( 1L ) * aByteCount ) / this.bandwidth;
+  }
+}
@@ -0,0 +1,132 @@
+/*
+ * OpenBench LogicSniffer / SUMP project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ *
+ * Copyright (C) 2010-2011 - J.W. Janssen, http://www.lxtreme.nl
+ */
+package nl.lxtreme.ols.device.test;
+
+
+import nl.lxtreme.ols.api.*;
+import nl.lxtreme.ols.api.acquisition.*;
+import nl.lxtreme.ols.api.data.*;
+
+
+/**
+ * Provides captures generated by the (package private) signal generators of
+ * the test device, for use in benchmarks.
+ */
+public final class GeneratedCaptures
+{
+  // CONSTANTS
+
+  /** The channel carrying the I2C data (SDA). */
+  public static final int I2C_SDA_CHANNEL = 0;
+  /** The channel carrying the I2C clock (SCL). */
+  public static final int I2C_SCL_CHANNEL = 1;
+  /** The channel carrying the 1-wire data. */
+  public static final int ONE_WIRE_CHANNEL = 0;
+  /** The channel carrying the Manchester encoded data. */
+  public static final int MANCHESTER_CHANNEL = 2;
+  /** The clock speed of the Manchester encoded data, in Hertz. */
+  public static final int MANCHESTER_CLOCK_SPEED = 1020304;
+
+  private static final int CHANNELS = 8;
+
+  // CONSTRUCTORS
+
+  /**
+   * Creates a new {@link GeneratedCaptures} instance.
+   */
+  private GeneratedCaptures()
+  {
+    // Not used.
+  }
+
+  // METHODS
+
+  /**
+   * Creates an I2C capture with the given payload.
+   *
+   * @param aPayload
+   *          the payload to encode, cannot be <code>null</code>.
+   * @return a new capture, never <code>null</code>.
+   */
+  public static AcquisitionResult createI2CCapture( final String aPayload )
+  {
+    final I2CGenerator generator = new I2CGenerator();
+    generator.writeBitStream( aPayload );
+    return createCapture( generator.getData(), generator.getTrigger(), generator.getRate() );
+  }
+
+  /**
+   * Creates a Manchester encoded capture with the given payload.
+   *
+   * @param aPayload
+   *          the payload to encode, cannot be <code>null</code>.
+   * @return a new capture, never <code>null</code>.
+   */
+  public static AcquisitionResult createManchesterCapture( final String aPayload )
+  {
+    final ManchesterEncoder encoder = new ManchesterEncoder();
+    encoder.writeData( aPayload );
+    return createCapture( encoder.getData(), encoder.getTrigger(), encoder.getRate() );
+  }
+
+  /**
+   * Creates a 1-wire capture (standard speed) with the given payload.
+   *
+   * @param aPayload
+   *          the payload to encode, cannot be <code>null</code>.
+   * @return a new capture, never <code>null</code>.
+   */
+  public static AcquisitionResult createOneWireCapture( final String aPayload )
+  {
+    final OneWireGenerator generator = new OneWireGenerator( true /* aStandard */);
+    generator.writeBitStream( aPayload );
+    return createCapture( generator.getData(), generator.getTrigger(), generator.getRate() );
+  }
+
+  /**
+   * Creates a payload of (at least) the given length by repeating a fixed
+   * text.
+   *
+   * @param aLength
+   *          the length of the payload, > 0.
+   * @return a payload, never <code>null</code>.
+   */
+  public static String createPayload( final int aLength )
+  {
+    final String text = "Hello World, this is a sample bit stream! ";
+    final StringBuilder sb = new StringBuilder( aLength + text.length() );
+    while ( sb.length() < aLength )
+    {
+      sb.append( text );
+    }
+    sb.setLength( aLength );
+    return sb.toString();
+  }
+
+  /**
+   * Creates a capture from generated (uncompressed) data.
+   */
+  private static AcquisitionResult createCapture( final int[] aData, final int aTrigger, final int aRate )
+  {
+    final int triggerPos = ( aTrigger < 0 ) ? Ols.NOT_AVAILABLE : aTrigger;
+    return new CapturedData( aData, triggerPos, aRate, CHANNELS, ( 1 << CHANNELS ) - 1 );
+  }
+}
@@ -38,6 +38,7 @@ public class Activator extends DependencyActivatorBase
   private static final String PROPERTY_LOG_LEVEL = "nl.lxtreme.ols.logLevel";
   private static final String PROPERTY_LOG_TO_CONSOLE = "nl.lxtreme.ols.logToConsole";
   private static final String PROPERTY_FILTER_JDKUI_LOGS = "nl.lxtreme.ols.filterJdkUiLogs";
+  private static final String PROPERTY_LOG_BUFFER_SIZE = "nl.lxtreme.ols.logBufferSize";
 
   // METHODS
 
@@ -69,6 +70,26 @@ public class Activator extends DependencyActivatorBase
     }
   }
 
+  /**
+   * Returns the maximum number of log records that can be buffered before
+   * being passed on to the OSGi LogService.
+   * 
+   * @return a buffer size, > 0.
+   */
+  public static int getLogBufferSize()
+  {
+    int size = 4096;
+    try
+    {
+      size = Integer.getInteger( PROPERTY_LOG_BUFFER_SIZE, size ).intValue();
+    }
+    catch ( NumberFormatException exception )
+    {
+      // Ignore...
+    }
+    return Math.max( 1, size );
+  }
+
   /**
    * Returns the default log level to use in OSGi LogService.
    * 
@@ -23,8 +23,11 @@ package nl.lxtreme.ols.logging;
 
 import static nl.lxtreme.ols.logging.Activator.*;
 
+import java.math.*;
 import java.text.*;
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
 import java.util.logging.*;
 
 import org.osgi.service.log.*;
@@ -33,9 +36,84 @@ import org.osgi.service.log.*;
 /**
  * Implements a custom log handler for forwarding all JUL log statements to the
  * LogService of OSGi.
+ * <p>
+ * Log records are not formatted nor forwarded on the calling thread, but placed
+ * in a bounded buffer that is drained by a single background thread. Mutable
+ * message parameters are snapshotted when published, so later changes to them
+ * do not show up in the log. In case the buffer is full, log records are
+ * dropped (and accounted for) rather than blocking the calling thread, so
+ * logging never stalls acquisition or decoding threads.
+ * </p>
  */
 public class LogHandler extends Handler
 {
+  // INNER TYPES
+
+  /**
+   * Denotes a published, but not yet formatted, log record.
+   */
+  static final class LogEntry
+  {
+    // VARIABLES
+
+    final int level;
+    final String loggerName;
+    final String message;
+    final Object[] params;
+    final Throwable thrown;
+
+    // CONSTRUCTORS
+
+    /**
+     * Creates a new {@link LogEntry} instance.
+     */
+    LogEntry( final int aLevel, final String aLoggerName, final String aMessage, final Object[] aParams,
+        final Throwable aThrown )
+    {
+      this.level = aLevel;
+      this.loggerName = aLoggerName;
+      this.message = aMessage;
+      this.params = aParams;
+      this.thrown = aThrown;
+    }
+  }
+
+  /**
+   * Drains the log record buffer and forwards all log records to the
+   * LogService.
+   */
+  final class LogDrainer implements Runnable
+  {
+    // METHODS
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void run()
+    {
+      try
+      {
+        while ( !Thread.currentThread().isInterrupted() )
+        {
+          forwardSafely( LogHandler.this.buffer.take() );
+        }
+      }
+      catch ( InterruptedException exception )
+      {
+        // Stop draining...
+      }
+
+      // Forward the remaining entries ourselves, so all entries are forwarded
+      // by a single thread, in order...
+      drainRemaining();
+    }
+  }
+
+  // CONSTANTS
+
+  private static final long DRAINER_STOP_TIMEOUT = 1000L;
+
   // VARIABLES
 
   // Injected by Felix DM...
@@ -43,6 +121,12 @@ public class LogHandler extends Handler
   private volatile Level originalLevel;
 
   private final List<Handler> originalRootHandlers;
+  private final BlockingQueue<LogEntry> buffer;
+  private final AtomicLong droppedCount;
+
+  /** Only accessed by the (single) thread forwarding the log entries. */
+  private long reportedDroppedCount;
+  private volatile Thread drainerThread;
 
   // CONSTRUCTORS
 
@@ -50,8 +134,21 @@ public class LogHandler extends Handler
    * Creates a new {@link LogHandler} instance.
    */
   public LogHandler()
+  {
+    this( getLogBufferSize() );
+  }
+
+  /**
+   * Creates a new {@link LogHandler} instance.
+   * 
+   * @param aBufferSize
+   *          the maximum number of log records to buffer, > 0.
+   */
+  LogHandler( final int aBufferSize )
   {
     this.originalRootHandlers = new ArrayList<Handler>();
+    this.buffer = new ArrayBlockingQueue<LogEntry>( aBufferSize );
+    this.droppedCount = new AtomicLong();
   }
 
   // METHODS
@@ -74,6 +171,17 @@ public class LogHandler extends Handler
     // Nop
   }
 
+  /**
+   * Returns the total number of log records that are dropped due to a full
+   * buffer.
+   * 
+   * @return a dropped record count, >= 0.
+   */
+  public long getDroppedCount()
+  {
+    return this.droppedCount.get();
+  }
+
   /**
    * {@inheritDoc}
    */
@@ -85,15 +193,20 @@ public class LogHandler extends Handler
       return;
     }
 
-    Object[] params = aRecord.getParameters();
-    String message = aRecord.getMessage();
-    if ( ( params != null ) && ( params.length > 0 ) )
+    if ( this.buffer.remainingCapacity() == 0 )
     {
-      message = MessageFormat.format( message, params );
+      // Buffer overflow; do not even bother to create an entry...
+      this.droppedCount.incrementAndGet();
+      return;
     }
 
-    Throwable thrownException = aRecord.getThrown();
-    this.logService.log( mapLevel( aRecord.getLevel() ), aRecord.getLoggerName() + " " + message, thrownException );
+    final LogEntry entry = new LogEntry( mapLevel( aRecord.getLevel() ), aRecord.getLoggerName(),
+        aRecord.getMessage(), snapshot( aRecord.getParameters() ), aRecord.getThrown() );
+    if ( !this.buffer.offer( entry ) )
+    {
+      // Buffer overflow; never block the calling thread...
+      this.droppedCount.incrementAndGet();
+    }
   }
 
   /**
@@ -106,6 +219,8 @@ public class LogHandler extends Handler
 
     originalLevel = logger.getLevel();
 
+    startDrainer();
+
     replaceLogHandlers( logger, this.originalRootHandlers );
   }
 
@@ -118,6 +233,171 @@ public class LogHandler extends Handler
     Logger logger = logManager.getLogger( "" );
 
     restoreLogHandler( logger, this.originalRootHandlers );
+
+    stopDrainer();
+  }
+
+  /**
+   * Starts the background thread that drains the log record buffer.
+   */
+  final void startDrainer()
+  {
+    Thread thread = new Thread( new LogDrainer(), "OLS Log Drainer" );
+    thread.setDaemon( true );
+    thread.start();
+
+    this.drainerThread = thread;
+  }
+
+  /**
+   * Stops the background thread that drains the log record buffer. The
+   * drainer forwards all remaining log entries before it exits. In case no
+   * drainer was started, the remaining log entries are forwarded on the calling
+   * thread.
+   */
+  final void stopDrainer() throws InterruptedException
+  {
+    Thread thread = this.drainerThread;
+    this.drainerThread = null;
+
+    if ( thread != null )
+    {
+      thread.interrupt();
+      thread.join( DRAINER_STOP_TIMEOUT );
+    }
+    else
+    {
+      drainRemaining();
+    }
+  }
+
+  /**
+   * Forwards all log entries that remain in the buffer.
+   */
+  private void drainRemaining()
+  {
+    LogEntry entry;
+    while ( ( entry = this.buffer.poll() ) != null )
+    {
+      forwardSafely( entry );
+    }
+  }
+
+  /**
+   * Snapshots the given message parameters, so they can be formatted later on
+   * by another thread.
+   * 
+   * @param aParams
+   *          the parameters to snapshot, can be <code>null</code>.
+   * @return the snapshotted parameters, in which all mutable parameters are
+   *         replaced by their string value, can be <code>null</code>.
+   */
+  private static Object[] snapshot( final Object[] aParams )
+  {
+    if ( ( aParams == null ) || ( aParams.length == 0 ) )
+    {
+      return null;
+    }
+
+    final Object[] result = new Object[aParams.length];
+    for ( int i = 0; i < aParams.length; i++ )
+    {
+      final Object param = aParams[i];
+      if ( ( param == null ) || isImmutable( param ) )
+      {
+        // Keep as-is, so number and date patterns still work...
+        result[i] = param;
+      }
+      else if ( param instanceof Date )
+      {
+        result[i] = new Date( ( ( Date )param ).getTime() );
+      }
+      else
+      {
+        result[i] = String.valueOf( param );
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Returns whether the given message parameter is of a known immutable type.
+   */
+  private static boolean isImmutable( final Object aParam )
+  {
+    return ( aParam instanceof String ) || ( aParam instanceof Boolean ) || ( aParam instanceof Character )
+        || ( aParam instanceof Byte ) || ( aParam instanceof Short ) || ( aParam instanceof Integer )
+        || ( aParam instanceof Long ) || ( aParam instanceof Float ) || ( aParam instanceof Double )
+        || ( aParam instanceof BigInteger ) || ( aParam instanceof BigDecimal );
+  }
+
+  /**
+   * Formats the message of the given log entry.
+   * 
+   * @param aEntry
+   *          the log entry to format, cannot be <code>null</code>.
+   * @return the formatted message, prefixed with the name of the logger.
+   */
+  private String format( final LogEntry aEntry )
+  {
+    Object[] params = aEntry.params;
+    String message = aEntry.message;
+    if ( params != null )
+    {
+      try
+      {
+        message = MessageFormat.format( message, params );
+      }
+      catch ( IllegalArgumentException exception )
+      {
+        // Invalid message pattern; use the message as-is...
+      }
+    }
+    return aEntry.loggerName + " " + message;
+  }
+
+  /**
+   * Forwards the given log entry to the LogService, preceded by a warning in
+   * case log records have been dropped since the last forwarded entry.
+   * 
+   * @param aEntry
+   *          the log entry to forward, cannot be <code>null</code>.
+   */
+  private void forward( final LogEntry aEntry )
+  {
+    final LogService service = this.logService;
+    if ( service == null )
+    {
+      return;
+    }
+
+    long dropped = this.droppedCount.get();
+    if ( dropped != this.reportedDroppedCount )
+    {
+      service.log( LogService.LOG_WARNING, String.format( "%s dropped %d log record(s) due to a full buffer!",
+          getClass().getName(), Long.valueOf( dropped - this.reportedDroppedCount ) ) );
+      this.reportedDroppedCount = dropped;
+    }
+
+    service.log( aEntry.level, format( aEntry ), aEntry.thrown );
+  }
+
+  /**
+   * Forwards the given log entry, ignoring any failures of the LogService.
+   * 
+   * @param aEntry
+   *          the log entry to forward, cannot be <code>null</code>.
+   */
+  private void forwardSafely( final LogEntry aEntry )
+  {
+    try
+    {
+      forward( aEntry );
+    }
+    catch ( RuntimeException exception )
+    {
+      // Ignore; we cannot log this ourselves, but keep draining...
+    }
   }
 
   /**
@@ -0,0 +1,170 @@
+/*
+ * OpenBench LogicSniffer / SUMP project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ *
+ * Copyright (C) 2010-2011 - J.W. Janssen, http://www.lxtreme.nl
+ */
+package nl.lxtreme.ols.logging;
+
+
+import static org.junit.Assert.*;
+import static org.mockito.Matchers.*;
+import static org.mockito.Mockito.*;
+
+import java.lang.reflect.*;
+import java.util.logging.*;
+
+import org.junit.*;
+import org.mockito.*;
+import org.osgi.service.log.*;
+
+
+/**
+ * Test cases for {@link LogHandler}.
+ */
+public class LogHandlerTest
+{
+  // VARIABLES
+
+  private LogService logService;
+  private LogHandler handler;
+
+  // METHODS
+
+  /**
+   * Set up for each test.
+   */
+  @Before
+  public void setUp() throws Exception
+  {
+    this.logService = mock( LogService.class );
+
+    this.handler = new LogHandler( 2 );
+
+    // Normally injected by Felix DM...
+    Field field = LogHandler.class.getDeclaredField( "logService" );
+    field.setAccessible( true );
+    field.set( this.handler, this.logService );
+  }
+
+  /**
+   * Tear down for each test.
+   */
+  @After
+  public void tearDown() throws Exception
+  {
+    this.handler.stopDrainer();
+  }
+
+  /**
+   * Tests that log records are forwarded by the background drainer, and
+   * formatted only there.
+   */
+  @Test
+  public void testPublishIsForwardedAsynchronouslyOk() throws Exception
+  {
+    this.handler.startDrainer();
+
+    this.handler.publish( createRecord( Level.INFO, "Read: 0x{0}", "ff" ) );
+
+    verify( this.logService, timeout( 5000 ) ).log( eq( LogService.LOG_INFO ), eq( "test Read: 0xff" ),
+        ( Throwable )isNull() );
+  }
+
+  /**
+   * Tests that publishing never blocks on a full buffer, but drops and
+   * accounts for the overflowing log records.
+   */
+  @Test
+  public void testPublishOnFullBufferDropsRecordsOk() throws Exception
+  {
+    // Drainer not started, so the buffer fills up...
+    this.handler.publish( createRecord( Level.FINE, "one" ) );
+    this.handler.publish( createRecord( Level.WARNING, "two" ) );
+    this.handler.publish( createRecord( Level.SEVERE, "three" ) );
+    this.handler.publish( createRecord( Level.SEVERE, "four" ) );
+
+    assertEquals( 2L, this.handler.getDroppedCount() );
+    verifyZeroInteractions( this.logService );
+
+    this.handler.stopDrainer();
+
+    InOrder inOrder = inOrder( this.logService );
+    inOrder.verify( this.logService ).log( eq( LogService.LOG_WARNING ), contains( "dropped 2 log record(s)" ) );
+    inOrder.verify( this.logService ).log( eq( LogService.LOG_DEBUG ), eq( "test one" ), ( Throwable )isNull() );
+    inOrder.verify( this.logService ).log( eq( LogService.LOG_WARNING ), eq( "test two" ), ( Throwable )isNull() );
+    inOrder.verifyNoMoreInteractions();
+  }
+
+  /**
+   * Tests that mutable message parameters are snapshotted when published, even
+   * though the message is formatted when forwarded.
+   */
+  @Test
+  public void testPublishSnapshotsParametersOk() throws Exception
+  {
+    final StringBuilder param = new StringBuilder( "before" );
+    this.handler.publish( createRecord( Level.INFO, "Value: {0}", param ) );
+
+    // Changed after publishing, but before forwarding...
+    param.setLength( 0 );
+    param.append( "after" );
+
+    this.handler.stopDrainer();
+
+    verify( this.logService ).log( eq( LogService.LOG_INFO ), eq( "test Value: before" ), ( Throwable )isNull() );
+  }
+
+  /**
+   * Tests that immutable message parameters are kept as-is, so typed message
+   * patterns still apply to them.
+   */
+  @Test
+  public void testPublishKeepsTypedParametersOk() throws Exception
+  {
+    this.handler.publish( createRecord( Level.INFO, "Count: {0,number,#}", Integer.valueOf( 1234 ) ) );
+
+    this.handler.stopDrainer();
+
+    verify( this.logService ).log( eq( LogService.LOG_INFO ), eq( "test Count: 1234" ), ( Throwable )isNull() );
+  }
+
+  /**
+   * Tests that an invalid message pattern does not prevent the record from
+   * being forwarded.
+   */
+  @Test
+  public void testPublishWithInvalidPatternOk() throws Exception
+  {
+    this.handler.publish( createRecord( Level.INFO, "Invalid {x}", "param" ) );
+
+    this.handler.stopDrainer();
+
+    verify( this.logService ).log( eq( LogService.LOG_INFO ), eq( "test Invalid {x}" ), ( Throwable )isNull() );
+  }
+
+  /**
+   * Creates a new log record.
+   */
+  private static LogRecord createRecord( final Level aLevel, final String aMessage, final Object... aParams )
+  {
+    LogRecord record = new LogRecord( aLevel, aMessage );
+    record.setLoggerName( "test" );
+    record.setParameters( aParams );
+    return record;
+  }
+}
@@ -0,0 +1,833 @@
+/*
+ * OpenBench LogicSniffer / SUMP project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ *
+ * Copyright (C) 2010-2011 - J.W. Janssen, http://www.lxtreme.nl
+ */
+package nl.lxtreme.ols.runner;
+
+
+import java.io.*;
+import java.lang.reflect.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+import nl.lxtreme.ols.api.acquisition.*;
+import nl.lxtreme.ols.api.data.*;
+import nl.lxtreme.ols.api.data.annotation.*;
+import nl.lxtreme.ols.api.tools.*;
+import nl.lxtreme.ols.client.project.impl.*;
+import nl.lxtreme.ols.tool.base.scan.*;
+
+
+/**
+ * Decodes a batch of captures with one or more tools, using a pool of worker
+ * threads, and streams all resulting annotations as CSV or JSON to a file or
+ * the standard output.
+ * <p>
+ * Tools whose tasks provide a {@link ScanDecoder} share a single scan over the
+ * sample values of each capture, so decoding several protocols at once does
+ * not cost a pass over all samples per protocol.
+ * </p>
+ * <p>
+ * Supported command line options are:
+ * </p>
+ * <dl>
+ * <dt><tt>-tool=&lt;class&gt;</tt></dt>
+ * <dd>the fully qualified class name of the tool to use (mandatory), can be
+ * given more than once to decode each capture with several tools;</dd>
+ * <dt><tt>-set:&lt;property&gt;=&lt;value&gt;</tt></dt>
+ * <dd>sets a property of the task of the preceding tool (or the first tool, if
+ * no tool precedes it), for example, <tt>-set:lineAIndex=0</tt> calls
+ * <tt>setLineAIndex(0)</tt> on the tool task;</dd>
+ * <dt><tt>-threads=&lt;n&gt;</tt></dt>
+ * <dd>the number of captures to decode concurrently, defaults to the number of
+ * available processors;</dd>
+ * <dt><tt>-format=csv|json</tt></dt>
+ * <dd>the output format, defaults to CSV. JSON is written as one object per
+ * line;</dd>
+ * <dt><tt>-output=&lt;file&gt;</tt></dt>
+ * <dd>the file to write the results to, defaults to the standard output;</dd>
+ * <dt><tt>-pluginDir=&lt;dir&gt;</tt></dt>
+ * <dd>the directory with plugins, see {@link BatchRunner}.</dd>
+ * </dl>
+ * <p>
+ * All other arguments denote the <tt>.ols</tt> and <tt>.olp</tt> files to
+ * decode; directories are searched recursively for such files.
+ * </p>
+ * <p>
+ * Note that the tools are the same classes as used by the client, and as such
+ * still refer to AWT and Swing classes (for example, for their dialogs). These
+ * classes are loaded, but never instantiated, as the batch decoder runs in
+ * headless mode. Tools that need a dialog or any other UI to decode cannot be
+ * used.
+ * </p>
+ */
+public final class BatchDecoder implements Callable<Integer>
+{
+  // INNER TYPES
+
+  /**
+   * Denotes the supported output formats.
+   */
+  static enum OutputFormat
+  {
+    CSV, JSON;
+  }
+
+  /**
+   * Provides the tool options, that is, which tool to use with which
+   * properties.
+   */
+  static final class ToolOptions
+  {
+    // VARIABLES
+
+    final String toolClass;
+    final Map<String, String> properties;
+
+    // CONSTRUCTORS
+
+    /**
+     * Creates a new {@link ToolOptions} instance.
+     */
+    ToolOptions( final String aToolClass, final Map<String, String> aProperties )
+    {
+      this.toolClass = aToolClass;
+      this.properties = Collections.unmodifiableMap( aProperties );
+    }
+  }
+
+  /**
+   * Provides the parsed command line options.
+   */
+  static final class BatchOptions
+  {
+    // VARIABLES
+
+    final List<ToolOptions> tools;
+    final int threads;
+    final OutputFormat format;
+    final File output;
+    final List<File> inputs;
+
+    // CONSTRUCTORS
+
+    /**
+     * Creates a new {@link BatchOptions} instance.
+     *
+     * @param aCmdLineArgs
+     *          the command line arguments to parse.
+     */
+    public BatchOptions( final String... aCmdLineArgs )
+    {
+      List<String> _toolClasses = new ArrayList<String>();
+      List<Map<String, String>> _properties = new ArrayList<Map<String, String>>();
+      // Properties given before any tool are for the first tool...
+      _properties.add( new LinkedHashMap<String, String>() );
+      int _threads = Runtime.getRuntime().availableProcessors();
+      OutputFormat _format = OutputFormat.CSV;
+      File _output = null;
+      List<File> _inputs = new ArrayList<File>();
+
+      for ( String cmdLineArg : aCmdLineArgs )
+      {
+        if ( cmdLineArg.startsWith( "-tool=" ) )
+        {
+          final String toolClass = cmdLineArg.substring( 6 );
+          if ( "".equals( toolClass ) )
+          {
+            throw new IllegalArgumentException( "No tool given, use -tool=<class>!" );
+          }
+          if ( !_toolClasses.isEmpty() )
+          {
+            _properties.add( new LinkedHashMap<String, String>() );
+          }
+          _toolClasses.add( toolClass );
+        }
+        else if ( cmdLineArg.startsWith( "-set:" ) )
+        {
+          String arg = cmdLineArg.substring( 5 );
+          int idx = arg.indexOf( '=' );
+          if ( idx <= 0 )
+          {
+            throw new IllegalArgumentException( "Invalid property, should be -set:<name>=<value>!" );
+          }
+          _properties.get( _properties.size() - 1 ).put( arg.substring( 0, idx ), arg.substring( idx + 1 ) );
+        }
+        else if ( cmdLineArg.startsWith( "-threads=" ) )
+        {
+          _threads = Integer.parseInt( cmdLineArg.substring( 9 ) );
+        }
+        else if ( cmdLineArg.startsWith( "-format=" ) )
+        {
+          _format = OutputFormat.valueOf( cmdLineArg.substring( 8 ).toUpperCase( Locale.ENGLISH ) );
+        }
+        else if ( cmdLineArg.startsWith( "-output=" ) )
+        {
+          _output = new File( cmdLineArg.substring( 8 ) );
+        }
+        else if ( cmdLineArg.startsWith( "-pluginDir=" ) )
+        {
+          // Handled by the batch runner...
+        }
+        else if ( cmdLineArg.startsWith( "-" ) )
+        {
+          throw new IllegalArgumentException( String.format( "Unknown option (%s)!", cmdLineArg ) );
+        }
+        else
+        {
+          _inputs.add( new File( cmdLineArg ) );
+        }
+      }
+
+      if ( _toolClasses.isEmpty() )
+      {
+        throw new IllegalArgumentException( "No tool given, use -tool=<class>!" );
+      }
+      if ( _threads < 1 )
+      {
+        throw new IllegalArgumentException( "Invalid number of threads, should be at least 1!" );
+      }
+      if ( _inputs.isEmpty() )
+      {
+        throw new IllegalArgumentException( "No captures to decode!" );
+      }
+
+      final List<ToolOptions> tools = new ArrayList<ToolOptions>();
+      for ( int i = 0; i < _toolClasses.size(); i++ )
+      {
+        tools.add( new ToolOptions( _toolClasses.get( i ), _properties.get( i ) ) );
+      }
+
+      this.tools = Collections.unmodifiableList( tools );
+      this.threads = _threads;
+      this.format = _format;
+      this.output = _output;
+      this.inputs = Collections.unmodifiableList( _inputs );
+    }
+  }
+
+  /**
+   * Provides a tool context spanning all samples of a single capture.
+   */
+  static final class BatchToolContext implements ToolContext
+  {
+    // VARIABLES
+
+    private final DataSet dataSet;
+
+    // CONSTRUCTORS
+
+    /**
+     * Creates a new {@link BatchToolContext} instance.
+     *
+     * @param aDataSet
+     *          the data set to decode, cannot be <code>null</code>.
+     */
+    public BatchToolContext( final DataSet aDataSet )
+    {
+      this.dataSet = aDataSet;
+    }
+
+    // METHODS
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getChannels()
+    {
+      return getData().getChannels();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Cursor getCursor( final int aIndex )
+    {
+      return this.dataSet.getCursor( aIndex );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public AcquisitionResult getData()
+    {
+      return this.dataSet.getCapturedData();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getEnabledChannels()
+    {
+      return getData().getEnabledChannels();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getEndSampleIndex()
+    {
+      return Math.max( 0, getData().getValues().length - 1 );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getLength()
+    {
+      return getEndSampleIndex() - getStartSampleIndex();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getStartSampleIndex()
+    {
+      return 0;
+    }
+  }
+
+  /**
+   * Collects all annotations produced by a single tool task.
+   */
+  static final class AnnotationCollector implements AnnotationListener, ToolProgressListener
+  {
+    // VARIABLES
+
+    private final List<Annotation<?>> annotations = new ArrayList<Annotation<?>>();
+
+    // METHODS
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized void clearAnnotations()
+    {
+      this.annotations.clear();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized void clearAnnotations( final int aChannelIdx )
+    {
+      final Iterator<Annotation<?>> iter = this.annotations.iterator();
+      while ( iter.hasNext() )
+      {
+        if ( iter.next().getChannel() == aChannelIdx )
+        {
+          iter.remove();
+        }
+      }
+    }
+
+    /**
+     * Returns a snapshot of all collected annotations.
+     *
+     * @return the annotations, in the order they were produced.
+     */
+    public synchronized List<Annotation<?>> getAnnotations()
+    {
+      return new ArrayList<Annotation<?>>( this.annotations );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized void onAnnotation( final Annotation<?> aAnnotation )
+    {
+      this.annotations.add( aAnnotation );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void setProgress( final int aPercentage )
+    {
+      // Nobody is watching...
+    }
+  }
+
+  /**
+   * Provides the outcome of decoding a single capture.
+   */
+  static final class DecodeResult
+  {
+    // VARIABLES
+
+    final File file;
+    final List<Annotation<?>> annotations;
+    final Exception failure;
+
+    // CONSTRUCTORS
+
+    /**
+     * Creates a new {@link DecodeResult} instance.
+     */
+    DecodeResult( final File aFile, final List<Annotation<?>> aAnnotations, final Exception aFailure )
+    {
+      this.file = aFile;
+      this.annotations = aAnnotations;
+      this.failure = aFailure;
+    }
+  }
+
+  // CONSTANTS
+
+  /** The number of captures per thread that can be decoded or pending at once. */
+  private static final int CAPTURES_PER_THREAD = 2;
+
+  // VARIABLES
+
+  private final BatchOptions options;
+
+  // CONSTRUCTORS
+
+  /**
+   * Creates a new {@link BatchDecoder} instance.
+   *
+   * @param aCmdLineArgs
+   *          the command line arguments, cannot be <code>null</code>.
+   */
+  public BatchDecoder( final String[] aCmdLineArgs )
+  {
+    this( new BatchOptions( aCmdLineArgs ) );
+  }
+
+  /**
+   * Creates a new {@link BatchDecoder} instance.
+   *
+   * @param aOptions
+   *          the batch options to use, cannot be <code>null</code>.
+   */
+  BatchDecoder( final BatchOptions aOptions )
+  {
+    this.options = aOptions;
+  }
+
+  // METHODS
+
+  /**
+   * Configures a tool task by calling the setter for each given property.
+   *
+   * @param aTask
+   *          the tool task to configure;
+   * @param aProperties
+   *          the properties to set, as name-value pairs.
+   * @throws IllegalArgumentException
+   *           in case a property has no setter, or its value cannot be
+   *           converted to the type of its setter.
+   */
+  static void configure( final Object aTask, final Map<String, String> aProperties ) throws Exception
+  {
+    for ( Map.Entry<String, String> entry : aProperties.entrySet() )
+    {
+      final String name = entry.getKey();
+      final String setterName = "set" + Character.toUpperCase( name.charAt( 0 ) ) + name.substring( 1 );
+
+      Method setter = null;
+      for ( Method method : aTask.getClass().getMethods() )
+      {
+        if ( setterName.equals( method.getName() ) && ( method.getParameterTypes().length == 1 ) )
+        {
+          setter = method;
+          break;
+        }
+      }
+      if ( setter == null )
+      {
+        throw new IllegalArgumentException( String.format( "Unknown property (%s) for %s!", name, aTask.getClass()
+            .getSimpleName() ) );
+      }
+
+      setter.invoke( aTask, convert( entry.getValue(), setter.getParameterTypes()[0] ) );
+    }
+  }
+
+  /**
+   * Converts a given string value to the given type.
+   */
+  @SuppressWarnings( { "unchecked", "rawtypes" } )
+  static Object convert( final String aValue, final Class<?> aType )
+  {
+    if ( ( aType == Integer.TYPE ) || ( aType == Integer.class ) )
+    {
+      return Integer.decode( aValue );
+    }
+    else if ( ( aType == Long.TYPE ) || ( aType == Long.class ) )
+    {
+      return Long.decode( aValue );
+    }
+    else if ( ( aType == Boolean.TYPE ) || ( aType == Boolean.class ) )
+    {
+      return Boolean.valueOf( aValue );
+    }
+    else if ( ( aType == Double.TYPE ) || ( aType == Double.class ) )
+    {
+      return Double.valueOf( aValue );
+    }
+    else if ( aType.isEnum() )
+    {
+      return Enum.valueOf( ( Class<? extends Enum> )aType, aValue.toUpperCase( Locale.ENGLISH ) );
+    }
+    else if ( aType == String.class )
+    {
+      return aValue;
+    }
+    throw new IllegalArgumentException( "Unsupported property type: " + aType.getName() );
+  }
+
+  /**
+   * Escapes a given value for use in a CSV file.
+   */
+  static String escapeCSV( final String aValue )
+  {
+    if ( ( aValue.indexOf( ',' ) < 0 ) && ( aValue.indexOf( '"' ) < 0 ) && ( aValue.indexOf( '\n' ) < 0 )
+        && ( aValue.indexOf( '\r' ) < 0 ) )
+    {
+      return aValue;
+    }
+    return "\"" + aValue.replace( "\"", "\"\"" ) + "\"";
+  }
+
+  /**
+   * Escapes a given value for use as JSON string.
+   */
+  static String escapeJSON( final String aValue )
+  {
+    final StringBuilder sb = new StringBuilder( aValue.length() + 2 );
+    sb.append( '"' );
+    for ( int i = 0; i < aValue.length(); i++ )
+    {
+      final char c = aValue.charAt( i );
+      switch ( c )
+      {
+        case '"':
+          sb.append( "\\\"" );
+          break;
+        case '\\':
+          sb.append( "\\\\" );
+          break;
+        case '\n':
+          sb.append( "\\n" );
+          break;
+        case '\r':
+          sb.append( "\\r" );
+          break;
+        case '\t':
+          sb.append( "\\t" );
+          break;
+        default:
+          if ( c < 0x20 )
+          {
+            sb.append( String.format( "\\u%04x", Integer.valueOf( c ) ) );
+          }
+          else
+          {
+            sb.append( c );
+          }
+      }
+    }
+    sb.append( '"' );
+    return sb.toString();
+  }
+
+  /**
+   * Collects all captures in the given files and directories.
+   *
+   * @param aInputs
+   *          the files and directories to search;
+   * @param aResult
+   *          the list to add all found captures to.
+   */
+  static void findCaptures( final List<File> aInputs, final List<File> aResult )
+  {
+    for ( File input : aInputs )
+    {
+      if ( input.isDirectory() )
+      {
+        final File[] files = input.listFiles();
+        if ( files != null )
+        {
+          Arrays.sort( files );
+          findCaptures( Arrays.asList( files ), aResult );
+        }
+      }
+      else if ( input.getName().endsWith( ".ols" ) || input.getName().endsWith( ".olp" ) )
+      {
+        aResult.add( input );
+      }
+    }
+  }
+
+  /**
+   * Decodes all captures and writes their results.
+   *
+   * @return the exit code, 0 if all captures were decoded successfully, 1
+   *         otherwise.
+   */
+  @Override
+  public Integer call() throws Exception
+  {
+    final List<File> captures = new ArrayList<File>();
+    findCaptures( this.options.inputs, captures );
+
+    final ExecutorService executor = Executors.newFixedThreadPool( this.options.threads, new ThreadFactory()
+    {
+      private final AtomicInteger count = new AtomicInteger();
+
+      @Override
+      public Thread newThread( final Runnable aTask )
+      {
+        final Thread thread = new Thread( aTask, "OLS batch decoder #" + this.count.incrementAndGet() );
+        thread.setDaemon( true );
+        return thread;
+      }
+    } );
+
+    final Writer writer;
+    if ( this.options.output != null )
+    {
+      writer = new BufferedWriter( new OutputStreamWriter( new FileOutputStream( this.options.output ), "UTF-8" ) );
+    }
+    else
+    {
+      writer = new BufferedWriter( new OutputStreamWriter( System.out ) );
+    }
+
+    int failures = 0;
+    try
+    {
+      final CompletionService<DecodeResult> completionService = new ExecutorCompletionService<DecodeResult>( executor );
+
+      // Only submit a limited number of captures at once, as each decoded
+      // capture keeps its annotations until they are written...
+      final Iterator<File> pending = captures.iterator();
+      for ( int i = 0; ( i < ( CAPTURES_PER_THREAD * this.options.threads ) ) && pending.hasNext(); i++ )
+      {
+        submit( completionService, pending.next() );
+      }
+
+      if ( this.options.format == OutputFormat.CSV )
+      {
+        writer.write( "file,channel,start,end,value\n" );
+      }
+
+      // Write the results in the order in which the captures are decoded...
+      for ( int i = 0; i < captures.size(); i++ )
+      {
+        final DecodeResult result = completionService.take().get();
+        if ( pending.hasNext() )
+        {
+          submit( completionService, pending.next() );
+        }
+
+        if ( result.failure != null )
+        {
+          System.err.printf( "Failed to decode %s: %s%n", result.file, result.failure );
+          failures++;
+        }
+        else
+        {
+          write( writer, result );
+          writer.flush();
+        }
+      }
+    }
+    finally
+    {
+      executor.shutdownNow();
+      writer.flush();
+      if ( this.options.output != null )
+      {
+        writer.close();
+      }
+    }
+
+    System.err.printf( "Decoded %d of %d captures.%n", Integer.valueOf( captures.size() - failures ),
+        Integer.valueOf( captures.size() ) );
+
+    return Integer.valueOf( ( failures == 0 ) ? 0 : 1 );
+  }
+
+  /**
+   * Decodes a single capture.
+   *
+   * @param aFile
+   *          the capture to decode, cannot be <code>null</code>.
+   * @return the decode result, never <code>null</code>.
+   */
+  final DecodeResult decode( final File aFile )
+  {
+    try
+    {
+      final DataSet dataSet = load( aFile );
+      if ( dataSet.getCapturedData() == null )
+      {
+        throw new IOException( "No captured data present!" );
+      }
+
+      final AnnotationCollector collector = new AnnotationCollector();
+      final BatchToolContext context = new BatchToolContext( dataSet );
+
+      // All tools that can, decode during a single scan over the samples...
+      final SampleScanner scanner = new SampleScanner( dataSet.getCapturedData() );
+      final List<ToolTask<?>> otherTasks = new ArrayList<ToolTask<?>>();
+      boolean scan = false;
+
+      for ( ToolOptions toolOptions : this.options.tools )
+      {
+        final Tool<?> tool = ( Tool<?> )Class.forName( toolOptions.toolClass, true, getClass().getClassLoader() )
+            .newInstance();
+
+        final ToolTask<?> task = tool.createToolTask( context, collector, collector );
+        configure( task, toolOptions.properties );
+
+        if ( task instanceof ScanDecoderProvider<?> )
+        {
+          scanner.addDecoder( ( ( ScanDecoderProvider<?> )task ).createScanDecoder() );
+          scan = true;
+        }
+        else
+        {
+          otherTasks.add( task );
+        }
+      }
+
+      if ( scan )
+      {
+        scanner.scan( collector );
+      }
+      for ( ToolTask<?> task : otherTasks )
+      {
+        task.call();
+      }
+
+      return new DecodeResult( aFile, collector.getAnnotations(), null );
+    }
+    catch ( Exception exception )
+    {
+      return new DecodeResult( aFile, null, exception );
+    }
+  }
+
+  /**
+   * Loads a single capture.
+   *
+   * @param aFile
+   *          the capture to load, either a data file or a project.
+   * @return the loaded data set, never <code>null</code>.
+   */
+  private DataSet load( final File aFile ) throws IOException
+  {
+    if ( aFile.getName().endsWith( ".olp" ) )
+    {
+      // Decode the capture results directly on this thread...
+      final ProjectManagerImpl projectManager = new ProjectManagerImpl( new Executor()
+      {
+        @Override
+        public void execute( final Runnable aTask )
+        {
+          aTask.run();
+        }
+      } );
+
+      final InputStream is = new FileInputStream( aFile );
+      try
+      {
+        projectManager.loadProject( is );
+      }
+      finally
+      {
+        is.close();
+      }
+      return projectManager.getCurrentProject().getDataSet();
+    }
+
+    final Reader reader = new InputStreamReader( new FileInputStream( aFile ), "UTF-8" );
+    try
+    {
+      return OlsDataHelper.read( reader );
+    }
+    finally
+    {
+      reader.close();
+    }
+  }
+
+  /**
+   * Submits the decoding of a single capture to the given completion service.
+   */
+  private void submit( final CompletionService<DecodeResult> aCompletionService, final File aCapture )
+  {
+    aCompletionService.submit( new Callable<DecodeResult>()
+    {
+      @Override
+      public DecodeResult call() throws Exception
+      {
+        return decode( aCapture );
+      }
+    } );
+  }
+
+  /**
+   * Writes all annotations of a single decode result.
+   */
+  private void write( final Writer aWriter, final DecodeResult aResult ) throws IOException
+  {
+    final String file = aResult.file.getPath();
+    for ( Annotation<?> annotation : aResult.annotations )
+    {
+      String start = "";
+      String end = "";
+      if ( annotation instanceof DataAnnotation<?> )
+      {
+        start = Long.toString( ( ( DataAnnotation<?> )annotation ).getStartTimestamp() );
+        end = Long.toString( ( ( DataAnnotation<?> )annotation ).getEndTimestamp() );
+      }
+      final String value = String.valueOf( annotation.getAnnotation() );
+
+      if ( this.options.format == OutputFormat.CSV )
+      {
+        aWriter.write( escapeCSV( file ) + "," + annotation.getChannel() + "," + start + "," + end + ","
+            + escapeCSV( value ) + "\n" );
+      }
+      else
+      {
+        aWriter.write( "{\"file\":" + escapeJSON( file ) + ",\"channel\":" + annotation.getChannel()
+            + ( "".equals( start ) ? "" : ",\"start\":" + start + ",\"end\":" + end ) + ",\"value\":"
+            + escapeJSON( value ) + "}\n" );
+      }
+    }
+  }
+}
+
+/* EOF */
@@ -0,0 +1,309 @@
+/*
+ * OpenBench LogicSniffer / SUMP project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ *
+ * Copyright (C) 2010-2011 - J.W. Janssen, http://www.lxtreme.nl
+ */
+package nl.lxtreme.ols.runner;
+
+
+import java.io.*;
+import java.net.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.jar.*;
+
+
+/**
+ * Provides a main entry point for decoding captures from the command line,
+ * without starting the OSGi framework or the (Swing) client.
+ * <p>
+ * The plugins are loaded as plain JARs in an isolated class loader, after
+ * which the actual decoding is delegated to {@link BatchDecoder}. See
+ * {@link BatchDecoder} for the supported command line options.
+ * </p>
+ * <p>
+ * As the plugins are not resolved as bundles, only their
+ * <tt>Bundle-ClassPath</tt> is honoured: JARs embedded in a plugin are
+ * extracted to temporary files and loaded as well. Imports, exports and
+ * activators of the plugins are ignored.
+ * </p>
+ */
+public final class BatchRunner
+{
+  // INNER CLASSES
+
+  /**
+   * Provides a class loader that loads all OLS classes from the plugins
+   * <em>before</em> delegating to its parent, allowing the batch decoder (which
+   * is also present on the class path of the runner) to see the API classes.
+   */
+  static final class PluginClassLoader extends URLClassLoader
+  {
+    // CONSTANTS
+
+    private static final String OLS_PACKAGE = "nl.lxtreme.ols.";
+
+    // CONSTRUCTORS
+
+    /**
+     * Creates a new {@link PluginClassLoader} instance.
+     *
+     * @param aURLs
+     *          the URLs to load classes from;
+     * @param aParent
+     *          the parent class loader to delegate non-OLS classes to.
+     */
+    public PluginClassLoader( final URL[] aURLs, final ClassLoader aParent )
+    {
+      super( aURLs, aParent );
+    }
+
+    // METHODS
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected synchronized Class<?> loadClass( final String aName, final boolean aResolve )
+        throws ClassNotFoundException
+    {
+      if ( !aName.startsWith( OLS_PACKAGE ) )
+      {
+        return super.loadClass( aName, aResolve );
+      }
+
+      Class<?> result = findLoadedClass( aName );
+      if ( result == null )
+      {
+        try
+        {
+          result = findClass( aName );
+        }
+        catch ( ClassNotFoundException exception )
+        {
+          result = super.loadClass( aName, false );
+        }
+      }
+      if ( aResolve )
+      {
+        resolveClass( result );
+      }
+      return result;
+    }
+  }
+
+  // CONSTANTS
+
+  private static final String DECODER_CLASS = "nl.lxtreme.ols.runner.BatchDecoder";
+  private static final String BUNDLE_CLASSPATH = "Bundle-ClassPath";
+
+  // CONSTRUCTORS
+
+  /**
+   * Creates a new {@link BatchRunner} instance.
+   */
+  private BatchRunner()
+  {
+    // Not used.
+  }
+
+  // METHODS
+
+  /**
+   * MAIN ENTRY POINT
+   *
+   * @param aArgs
+   *          the command line arguments, cannot be <code>null</code>.
+   */
+  public static void main( final String[] aArgs ) throws Exception
+  {
+    // We never want to show anything...
+    System.setProperty( "java.awt.headless", "true" );
+
+    final File pluginDir = getPluginDir( aArgs );
+
+    final ClassLoader classLoader = createClassLoader( pluginDir );
+    Thread.currentThread().setContextClassLoader( classLoader );
+
+    final Class<?> decoderClass = classLoader.loadClass( DECODER_CLASS );
+    @SuppressWarnings( "unchecked" )
+    final Callable<Integer> decoder = ( Callable<Integer> )decoderClass.getConstructor( String[].class ).newInstance(
+        new Object[] { aArgs } );
+
+    System.exit( decoder.call().intValue() );
+  }
+
+  /**
+   * Creates the class loader for all plugins in the given directory.
+   *
+   * @param aPluginDir
+   *          the plugin directory, cannot be <code>null</code>.
+   * @return a new class loader, never <code>null</code>.
+   */
+  private static ClassLoader createClassLoader( final File aPluginDir ) throws IOException
+  {
+    final List<URL> urls = new ArrayList<URL>();
+    // Our own code source, which provides the batch decoder...
+    urls.add( BatchRunner.class.getProtectionDomain().getCodeSource().getLocation() );
+
+    final File[] files = aPluginDir.listFiles();
+    if ( files != null )
+    {
+      Arrays.sort( files );
+      for ( File file : files )
+      {
+        if ( file.getName().endsWith( ".jar" ) )
+        {
+          urls.addAll( getClassPath( file ) );
+        }
+      }
+    }
+
+    return new PluginClassLoader( urls.toArray( new URL[urls.size()] ), BatchRunner.class.getClassLoader() );
+  }
+
+  /**
+   * Determines the class path of a single plugin, following its
+   * <tt>Bundle-ClassPath</tt> manifest header, if present.
+   * 
+   * @param aPlugin
+   *          the plugin JAR, cannot be <code>null</code>.
+   * @return the URLs to load the classes of the plugin from, never
+   *         <code>null</code>.
+   * @throws IOException
+   *           in case of I/O problems reading the plugin.
+   */
+  static List<URL> getClassPath( final File aPlugin ) throws IOException
+  {
+    final List<URL> result = new ArrayList<URL>();
+    final URL pluginURL = aPlugin.toURI().toURL();
+
+    final JarFile jarFile = new JarFile( aPlugin );
+    try
+    {
+      final Manifest manifest = jarFile.getManifest();
+      final String classPath = ( manifest == null ) ? null : manifest.getMainAttributes().getValue(
+          BUNDLE_CLASSPATH );
+      if ( ( classPath == null ) || "".equals( classPath.trim() ) )
+      {
+        result.add( pluginURL );
+        return result;
+      }
+
+      for ( String entry : classPath.split( "," ) )
+      {
+        // Strip any parameters...
+        String path = entry.split( ";" )[0].trim();
+        if ( ".".equals( path ) || "/".equals( path ) )
+        {
+          result.add( pluginURL );
+          continue;
+        }
+        if ( path.startsWith( "/" ) )
+        {
+          path = path.substring( 1 );
+        }
+
+        final JarEntry jarEntry = jarFile.getJarEntry( path );
+        if ( jarEntry == null )
+        {
+          // Try it as directory...
+          if ( jarFile.getJarEntry( path + "/" ) != null )
+          {
+            result.add( new URL( "jar:" + pluginURL + "!/" + path + "/" ) );
+          }
+          // Ignore missing entries, as OSGi does...
+        }
+        else if ( jarEntry.isDirectory() )
+        {
+          result.add( new URL( "jar:" + pluginURL + "!/" + ( path.endsWith( "/" ) ? path : path + "/" ) ) );
+        }
+        else
+        {
+          result.add( extract( jarFile, jarEntry ).toURI().toURL() );
+        }
+      }
+    }
+    finally
+    {
+      jarFile.close();
+    }
+
+    return result;
+  }
+
+  /**
+   * Extracts an embedded JAR to a temporary file, which is removed upon exit.
+   */
+  private static File extract( final JarFile aJarFile, final JarEntry aEntry ) throws IOException
+  {
+    final File result = File.createTempFile( "ols-plugin", ".jar" );
+    result.deleteOnExit();
+
+    final InputStream is = aJarFile.getInputStream( aEntry );
+    try
+    {
+      final OutputStream os = new FileOutputStream( result );
+      try
+      {
+        final byte[] buffer = new byte[8192];
+        int read;
+        while ( ( read = is.read( buffer ) ) > 0 )
+        {
+          os.write( buffer, 0, read );
+        }
+      }
+      finally
+      {
+        os.close();
+      }
+    }
+    finally
+    {
+      is.close();
+    }
+    return result;
+  }
+
+  /**
+   * Determines the plugin directory from the given command line arguments.
+   *
+   * @param aArgs
+   *          the command line arguments, cannot be <code>null</code>.
+   * @return the plugin directory, never <code>null</code>.
+   */
+  private static File getPluginDir( final String[] aArgs ) throws IOException
+  {
+    String pluginDir = Runner.CmdLineOptions.getPluginDir();
+    for ( String arg : aArgs )
+    {
+      if ( arg.startsWith( "-pluginDir=" ) )
+      {
+        pluginDir = arg.substring( 11 );
+      }
+    }
+
+    if ( ( pluginDir == null ) || "".equals( pluginDir ) || !new File( pluginDir ).isDirectory() )
+    {
+      throw new IllegalArgumentException( String.format( "Invalid plugin directory (%s)!", pluginDir ) );
+    }
+    return new File( pluginDir ).getCanonicalFile();
+  }
+}
+
+/* EOF */
@@ -119,7 +119,7 @@ public final class Runner
      * @return the fully qualified path to the directory with plugins, can be
      *         <code>null</code> in case it could not be determined.
      */
-    private static String getPluginDir()
+    static String getPluginDir()
     {
       String defaultDir = "./plugins";
       File pluginDir;
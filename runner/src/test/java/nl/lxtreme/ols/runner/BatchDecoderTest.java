@@ -0,0 +1,422 @@
+/*
+ * OpenBench LogicSniffer / SUMP project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ *
+ * Copyright (C) 2010-2011 - J.W. Janssen, http://www.lxtreme.nl
+ */
+package nl.lxtreme.ols.runner;
+
+
+import static org.junit.Assert.*;
+
+import java.awt.*;
+import java.io.*;
+import java.util.*;
+import java.util.List;
+
+import nl.lxtreme.ols.api.acquisition.*;
+import nl.lxtreme.ols.api.data.annotation.*;
+import nl.lxtreme.ols.api.tools.*;
+import nl.lxtreme.ols.runner.BatchDecoder.BatchOptions;
+import nl.lxtreme.ols.runner.BatchDecoder.OutputFormat;
+import nl.lxtreme.ols.tool.base.annotation.*;
+
+import org.junit.*;
+import org.junit.rules.*;
+
+
+/**
+ * Provides test cases for {@link BatchDecoder}.
+ */
+public class BatchDecoderTest
+{
+  // INNER TYPES
+
+  /**
+   * Provides a tool that annotates each sample in which a channel is high.
+   */
+  public static final class HighLevelTool implements Tool<Void>
+  {
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public ToolTask<Void> createToolTask( final ToolContext aContext, final ToolProgressListener aProgressListener,
+        final AnnotationListener aAnnotationListener )
+    {
+      return new HighLevelTask( aContext, aAnnotationListener );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public ToolCategory getCategory()
+    {
+      return ToolCategory.DECODER;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getName()
+    {
+      return "High level";
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void invoke( final Window aParent, final ToolContext aContext )
+    {
+      throw new UnsupportedOperationException();
+    }
+  }
+
+  /**
+   * Provides the task of {@link HighLevelTool}.
+   */
+  public static final class HighLevelTask implements ToolTask<Void>
+  {
+    private final ToolContext context;
+    private final AnnotationListener listener;
+
+    private int channel;
+    private String label = "high";
+
+    /**
+     * Creates a new {@link HighLevelTask} instance.
+     */
+    HighLevelTask( final ToolContext aContext, final AnnotationListener aListener )
+    {
+      this.context = aContext;
+      this.listener = aListener;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Void call() throws Exception
+    {
+      final AcquisitionResult data = this.context.getData();
+      final int[] values = data.getValues();
+      final long[] timestamps = data.getTimestamps();
+      for ( int i = 0; i < values.length; i++ )
+      {
+        if ( ( values[i] & ( 1 << this.channel ) ) != 0 )
+        {
+          this.listener.onAnnotation( new SampleDataAnnotation( this.channel, timestamps[i], this.label ) );
+        }
+      }
+      return null;
+    }
+
+    /**
+     * @param aChannel
+     *          the channel to annotate.
+     */
+    public void setChannel( final int aChannel )
+    {
+      this.channel = aChannel;
+    }
+
+    /**
+     * @param aLabel
+     *          the text of each annotation.
+     */
+    public void setLabel( final String aLabel )
+    {
+      this.label = aLabel;
+    }
+  }
+
+  /**
+   * Provides a bean with properties of all supported types.
+   */
+  public static final class PropertyBean
+  {
+    int intValue;
+    Long longValue;
+    boolean booleanValue;
+    double doubleValue;
+    OutputFormat enumValue;
+    String stringValue;
+
+    public void setBooleanValue( final boolean aValue )
+    {
+      this.booleanValue = aValue;
+    }
+
+    public void setDoubleValue( final double aValue )
+    {
+      this.doubleValue = aValue;
+    }
+
+    public void setEnumValue( final OutputFormat aValue )
+    {
+      this.enumValue = aValue;
+    }
+
+    public void setIntValue( final int aValue )
+    {
+      this.intValue = aValue;
+    }
+
+    public void setLongValue( final Long aValue )
+    {
+      this.longValue = aValue;
+    }
+
+    public void setStringValue( final String aValue )
+    {
+      this.stringValue = aValue;
+    }
+  }
+
+  // CONSTANTS
+
+  private static final String TOOL = HighLevelTool.class.getName();
+
+  // VARIABLES
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  // METHODS
+
+  /**
+   * Tests that properties are set on the tool preceding them, and that
+   * properties given before any tool are set on the first tool.
+   */
+  @Test
+  public void testParseOptionsOk() throws Exception
+  {
+    final BatchOptions options = new BatchOptions( "-set:a=1", "-tool=x.Y", "-set:b=2", "-tool=x.Z", "-set:c=3=4",
+        "-threads=3", "-format=json", "-output=out.json", "-pluginDir=plugins", "one.ols", "dir" );
+
+    assertEquals( 2, options.tools.size() );
+    assertEquals( "x.Y", options.tools.get( 0 ).toolClass );
+    assertEquals( "{a=1, b=2}", options.tools.get( 0 ).properties.toString() );
+    assertEquals( "x.Z", options.tools.get( 1 ).toolClass );
+    assertEquals( "{c=3=4}", options.tools.get( 1 ).properties.toString() );
+    assertEquals( 3, options.threads );
+    assertEquals( OutputFormat.JSON, options.format );
+    assertEquals( new File( "out.json" ), options.output );
+    assertEquals( Arrays.asList( new File( "one.ols" ), new File( "dir" ) ), options.inputs );
+  }
+
+  /**
+   * Tests that the defaults are used for all omitted options.
+   */
+  @Test
+  public void testParseOptionsDefaultsOk() throws Exception
+  {
+    final BatchOptions options = new BatchOptions( "-tool=x.Y", "one.ols" );
+
+    assertEquals( 1, options.tools.size() );
+    assertTrue( options.tools.get( 0 ).properties.isEmpty() );
+    assertEquals( Runtime.getRuntime().availableProcessors(), options.threads );
+    assertEquals( OutputFormat.CSV, options.format );
+    assertNull( options.output );
+  }
+
+  /**
+   * Tests that invalid command lines are rejected.
+   */
+  @Test
+  public void testParseInvalidOptionsFail() throws Exception
+  {
+    final String[][] cmdLines = { { "one.ols" }, //
+        { "-tool=", "one.ols" }, //
+        { "-tool=x.Y" }, //
+        { "-tool=x.Y", "-set:=1", "one.ols" }, //
+        { "-tool=x.Y", "-set:a", "one.ols" }, //
+        { "-tool=x.Y", "-threads=0", "one.ols" }, //
+        { "-tool=x.Y", "-verbose", "one.ols" } };
+
+    for ( String[] cmdLine : cmdLines )
+    {
+      try
+      {
+        new BatchOptions( cmdLine );
+        fail( "Expected " + Arrays.toString( cmdLine ) + " to be rejected!" );
+      }
+      catch ( IllegalArgumentException exception )
+      {
+        // Ok; expected...
+      }
+    }
+  }
+
+  /**
+   * Tests that only values that need it are quoted for CSV.
+   */
+  @Test
+  public void testEscapeCSV() throws Exception
+  {
+    assertEquals( "plain text", BatchDecoder.escapeCSV( "plain text" ) );
+    assertEquals( "\"a,b\"", BatchDecoder.escapeCSV( "a,b" ) );
+    assertEquals( "\"say \"\"hi\"\"\"", BatchDecoder.escapeCSV( "say \"hi\"" ) );
+    assertEquals( "\"a\nb\"", BatchDecoder.escapeCSV( "a\nb" ) );
+    assertEquals( "\"a\rb\"", BatchDecoder.escapeCSV( "a\rb" ) );
+  }
+
+  /**
+   * Tests that values are written as valid JSON strings.
+   */
+  @Test
+  public void testEscapeJSON() throws Exception
+  {
+    assertEquals( "\"plain\"", BatchDecoder.escapeJSON( "plain" ) );
+    assertEquals( "\"a\\\"b\\\\c\"", BatchDecoder.escapeJSON( "a\"b\\c" ) );
+    assertEquals( "\"\\n\\r\\t\"", BatchDecoder.escapeJSON( "\n\r\t" ) );
+    assertEquals( "\"\\u0001\"", BatchDecoder.escapeJSON( "\u0001" ) );
+  }
+
+  /**
+   * Tests that the properties are converted to the type of their setters.
+   */
+  @Test
+  public void testConfigureOk() throws Exception
+  {
+    final Map<String, String> properties = new LinkedHashMap<String, String>();
+    properties.put( "intValue", "0x10" );
+    properties.put( "longValue", "12345678901" );
+    properties.put( "booleanValue", "true" );
+    properties.put( "doubleValue", "1.5" );
+    properties.put( "enumValue", "json" );
+    properties.put( "stringValue", "text" );
+
+    final PropertyBean bean = new PropertyBean();
+    BatchDecoder.configure( bean, properties );
+
+    assertEquals( 16, bean.intValue );
+    assertEquals( Long.valueOf( 12345678901L ), bean.longValue );
+    assertTrue( bean.booleanValue );
+    assertEquals( 1.5, bean.doubleValue, 0.0 );
+    assertEquals( OutputFormat.JSON, bean.enumValue );
+    assertEquals( "text", bean.stringValue );
+  }
+
+  /**
+   * Tests that properties without a setter are rejected.
+   */
+  @Test( expected = IllegalArgumentException.class )
+  public void testConfigureUnknownPropertyFail() throws Exception
+  {
+    BatchDecoder.configure( new PropertyBean(), Collections.singletonMap( "unknown", "1" ) );
+  }
+
+  /**
+   * Tests that all captures in a directory are decoded and their annotations
+   * are written as CSV.
+   */
+  @Test
+  public void testDecodeToCSVOk() throws Exception
+  {
+    final File dir = this.folder.newFolder( "captures" );
+    writeCapture( new File( dir, "a.ols" ) );
+    writeCapture( new File( dir, "b.ols" ) );
+    final File output = new File( this.folder.getRoot(), "out.csv" );
+
+    final int exitCode = new BatchDecoder( new String[] { "-tool=" + TOOL, "-set:channel=1", "-set:label=x,y",
+        "-threads=1", "-output=" + output, dir.getPath() } ).call().intValue();
+
+    assertEquals( 0, exitCode );
+
+    final List<String> lines = readLines( output );
+    assertEquals( 7, lines.size() );
+    assertEquals( "file,channel,start,end,value", lines.get( 0 ) );
+    final String a = new File( dir, "a.ols" ).getPath();
+    assertEquals( a + ",1,10,11,\"x,y\"", lines.get( 1 ) );
+    assertEquals( a + ",1,30,31,\"x,y\"", lines.get( 2 ) );
+    // The last sample is repeated at the absolute length of the capture...
+    assertEquals( a + ",1,40,41,\"x,y\"", lines.get( 3 ) );
+    assertTrue( lines.get( 4 ).startsWith( new File( dir, "b.ols" ).getPath() + "," ) );
+  }
+
+  /**
+   * Tests that the annotations of several tools are written as JSON lines, and
+   * that a capture that cannot be read results in a non-zero exit code.
+   */
+  @Test
+  public void testDecodeToJSONOk() throws Exception
+  {
+    final File capture = new File( this.folder.getRoot(), "a.ols" );
+    writeCapture( capture );
+    final File broken = this.folder.newFile( "broken.ols" );
+    final File output = new File( this.folder.getRoot(), "out.json" );
+
+    final int exitCode = new BatchDecoder( new String[] { "-tool=" + TOOL, "-tool=" + TOOL, "-set:channel=1",
+        "-format=json", "-threads=2", "-output=" + output, capture.getPath(), broken.getPath() } ).call().intValue();
+
+    assertEquals( 1, exitCode );
+
+    final String file = BatchDecoder.escapeJSON( capture.getPath() );
+    final List<String> lines = readLines( output );
+    assertEquals( Arrays.asList( "{\"file\":" + file + ",\"channel\":0,\"start\":0,\"end\":1,\"value\":\"high\"}",
+        "{\"file\":" + file + ",\"channel\":0,\"start\":30,\"end\":31,\"value\":\"high\"}", //
+        "{\"file\":" + file + ",\"channel\":0,\"start\":40,\"end\":41,\"value\":\"high\"}", //
+        "{\"file\":" + file + ",\"channel\":1,\"start\":10,\"end\":11,\"value\":\"high\"}", //
+        "{\"file\":" + file + ",\"channel\":1,\"start\":30,\"end\":31,\"value\":\"high\"}", //
+        "{\"file\":" + file + ",\"channel\":1,\"start\":40,\"end\":41,\"value\":\"high\"}" ), lines );
+  }
+
+  /**
+   * Reads all lines of the given file.
+   */
+  private static List<String> readLines( final File aFile ) throws IOException
+  {
+    final List<String> result = new ArrayList<String>();
+    final BufferedReader reader = new BufferedReader( new InputStreamReader( new FileInputStream( aFile ), "UTF-8" ) );
+    try
+    {
+      String line;
+      while ( ( line = reader.readLine() ) != null )
+      {
+        result.add( line );
+      }
+    }
+    finally
+    {
+      reader.close();
+    }
+    return result;
+  }
+
+  /**
+   * Writes a small capture with four samples to the given file.
+   */
+  private static void writeCapture( final File aFile ) throws IOException
+  {
+    final Writer writer = new OutputStreamWriter( new FileOutputStream( aFile ), "UTF-8" );
+    try
+    {
+      writer.write( ";Size: 4\n;Rate: 100\n;Channels: 8\n;EnabledChannels: 255\n;Compressed: true\n"
+          + ";AbsoluteLength: 40\n00000001@0\n00000002@10\n00000000@20\n00000003@30\n" );
+    }
+    finally
+    {
+      writer.close();
+    }
+  }
+}
+
+/* EOF */
@@ -0,0 +1,147 @@
+/*
+ * OpenBench LogicSniffer / SUMP project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ *
+ * Copyright (C) 2010-2011 - J.W. Janssen, http://www.lxtreme.nl
+ */
+package nl.lxtreme.ols.runner;
+
+
+import static org.junit.Assert.*;
+
+import java.io.*;
+import java.net.*;
+import java.util.*;
+import java.util.jar.*;
+
+import org.junit.*;
+import org.junit.rules.*;
+
+
+/**
+ * Provides test cases for {@link BatchRunner}.
+ */
+public class BatchRunnerTest
+{
+  // VARIABLES
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  // METHODS
+
+  /**
+   * Tests that a plugin without a <tt>Bundle-ClassPath</tt> is loaded as plain
+   * JAR.
+   */
+  @Test
+  public void testGetClassPathWithoutBundleClassPathOk() throws Exception
+  {
+    final File plugin = createJar( "plugin.jar", null, Collections.singletonMap( "a/A.class", new byte[] { 1 } ) );
+
+    assertEquals( Collections.singletonList( plugin.toURI().toURL() ), BatchRunner.getClassPath( plugin ) );
+  }
+
+  /**
+   * Tests that the JARs and directories embedded in a plugin are added to the
+   * class path in the order of its <tt>Bundle-ClassPath</tt>.
+   */
+  @Test
+  public void testGetClassPathWithEmbeddedJarOk() throws Exception
+  {
+    final File embedded = createJar( "embedded.jar", null, Collections.singletonMap( "b/B.class", new byte[] { 2 } ) );
+
+    final Map<String, byte[]> entries = new LinkedHashMap<String, byte[]>();
+    entries.put( "lib/embedded.jar", readFully( embedded ) );
+    entries.put( "classes/c/C.class", new byte[] { 3 } );
+    final File plugin = createJar( "plugin.jar", "lib/embedded.jar;resolution:=optional, ., /classes, missing.jar",
+        entries );
+
+    final List<URL> classPath = BatchRunner.getClassPath( plugin );
+    assertEquals( 3, classPath.size() );
+    assertEquals( plugin.toURI().toURL(), classPath.get( 1 ) );
+    assertEquals( new URL( "jar:" + plugin.toURI().toURL() + "!/classes/" ), classPath.get( 2 ) );
+
+    final URLClassLoader loader = new URLClassLoader( classPath.toArray( new URL[classPath.size()] ), null );
+    assertNotNull( loader.getResource( "b/B.class" ) );
+    assertNotNull( loader.getResource( "c/C.class" ) );
+  }
+
+  /**
+   * Creates a JAR with the given entries and, optionally, a
+   * <tt>Bundle-ClassPath</tt> header.
+   */
+  private File createJar( final String aName, final String aBundleClassPath, final Map<String, byte[]> aEntries )
+      throws IOException
+  {
+    final Manifest manifest = new Manifest();
+    manifest.getMainAttributes().put( Attributes.Name.MANIFEST_VERSION, "1.0" );
+    if ( aBundleClassPath != null )
+    {
+      manifest.getMainAttributes().putValue( "Bundle-ClassPath", aBundleClassPath );
+    }
+
+    final File result = new File( this.folder.getRoot(), aName );
+    final JarOutputStream jos = new JarOutputStream( new FileOutputStream( result ), manifest );
+    try
+    {
+      for ( Map.Entry<String, byte[]> entry : aEntries.entrySet() )
+      {
+        String name = entry.getKey();
+        // Add all parent directories...
+        for ( int idx = name.indexOf( '/' ); idx > 0; idx = name.indexOf( '/', idx + 1 ) )
+        {
+          jos.putNextEntry( new JarEntry( name.substring( 0, idx + 1 ) ) );
+          jos.closeEntry();
+        }
+        jos.putNextEntry( new JarEntry( name ) );
+        jos.write( entry.getValue() );
+        jos.closeEntry();
+      }
+    }
+    finally
+    {
+      jos.close();
+    }
+    return result;
+  }
+
+  /**
+   * Reads all bytes from the given file.
+   */
+  private static byte[] readFully( final File aFile ) throws IOException
+  {
+    final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+    final InputStream is = new FileInputStream( aFile );
+    try
+    {
+      final byte[] buffer = new byte[1024];
+      int read;
+      while ( ( read = is.read( buffer ) ) > 0 )
+      {
+        baos.write( buffer, 0, read );
+      }
+    }
+    finally
+    {
+      is.close();
+    }
+    return baos.toByteArray();
+  }
+}
+
+/* EOF */
@@ -84,7 +84,7 @@ public class BackgroundDataAcquisitionService implements DataAcquisitionService,
 
     // Wrap the actual acquisition task in order to get a kind of "auto"
     // closable behavior...
-    this.acquisitionTask = new Task<AcquisitionResult>()
+    this.acquisitionTask = new AcquisitionTask()
     {
       @Override
       public AcquisitionResult call() throws Exception
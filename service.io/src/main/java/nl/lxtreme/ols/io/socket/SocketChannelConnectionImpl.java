@@ -0,0 +1,445 @@
+/*
+ * OpenBench LogicSniffer / SUMP project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ *
+ * Copyright (C) 2010-2011 - J.W. Janssen, http://www.lxtreme.nl
+ */
+package nl.lxtreme.ols.io.socket;
+
+
+import java.io.*;
+import java.net.*;
+import java.nio.*;
+import java.nio.channels.*;
+
+import javax.microedition.io.*;
+
+
+/**
+ * Provides a {@link SocketConnection} implementation on top of a (NIO)
+ * {@link SocketChannel}.
+ * <p>
+ * Data is received in a large, direct, byte buffer, from which bulk reads
+ * directly fill the caller's buffer with as much data as is available, instead
+ * of going through the (small) intermediate buffers of the classic socket
+ * streams. The channel is used in non-blocking mode, allowing the timeout of
+ * the connection to be honoured for both reads and writes.
+ * </p>
+ */
+final class SocketChannelConnectionImpl implements SocketConnection
+{
+  // INNER TYPES
+
+  /**
+   * Provides an input stream that reads from the receive buffer of the channel.
+   */
+  final class ChannelInputStream extends InputStream
+  {
+    // METHODS
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized int available() throws IOException
+    {
+      if ( !SocketChannelConnectionImpl.this.receiveBuffer.hasRemaining() )
+      {
+        fill( false /* aWait */);
+      }
+      return SocketChannelConnectionImpl.this.receiveBuffer.remaining();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void close() throws IOException
+    {
+      SocketChannelConnectionImpl.this.close();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized int read() throws IOException
+    {
+      final ByteBuffer buffer = SocketChannelConnectionImpl.this.receiveBuffer;
+      if ( !buffer.hasRemaining() && ( fill( true /* aWait */) < 0 ) )
+      {
+        return -1;
+      }
+      return buffer.get() & 0xFF;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized int read( final byte[] aBuffer, final int aOffset, final int aLength ) throws IOException
+    {
+      if ( ( aOffset < 0 ) || ( aLength < 0 ) || ( aLength > ( aBuffer.length - aOffset ) ) )
+      {
+        throw new IndexOutOfBoundsException();
+      }
+      if ( aLength == 0 )
+      {
+        return 0;
+      }
+
+      final ByteBuffer buffer = SocketChannelConnectionImpl.this.receiveBuffer;
+      if ( !buffer.hasRemaining() && ( fill( true /* aWait */) < 0 ) )
+      {
+        return -1;
+      }
+
+      // Copy as much as is directly available, without waiting for more...
+      int count = 0;
+      do
+      {
+        final int length = Math.min( aLength - count, buffer.remaining() );
+        buffer.get( aBuffer, aOffset + count, length );
+        count += length;
+      }
+      while ( ( count < aLength ) && ( fill( false /* aWait */) > 0 ) );
+
+      return count;
+    }
+  }
+
+  /**
+   * Provides an output stream that writes directly to the channel.
+   */
+  final class ChannelOutputStream extends OutputStream
+  {
+    // METHODS
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void close() throws IOException
+    {
+      SocketChannelConnectionImpl.this.close();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void write( final byte[] aBuffer, final int aOffset, final int aLength ) throws IOException
+    {
+      SocketChannelConnectionImpl.this.write( ByteBuffer.wrap( aBuffer, aOffset, aLength ) );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void write( final int aByte ) throws IOException
+    {
+      write( new byte[] { ( byte )aByte }, 0, 1 );
+    }
+  }
+
+  // CONSTANTS
+
+  /** The minimal size of the receive buffer, in bytes. */
+  static final int MIN_BUFFER_SIZE = 256 * 1024;
+
+  private static final int YES = 1;
+  private static final int NO = 0;
+
+  // VARIABLES
+
+  private final SocketChannel channel;
+  private final int timeout;
+  private final ByteBuffer receiveBuffer;
+  private final Selector readSelector;
+  private final Selector writeSelector;
+  private final ChannelInputStream inputStream;
+  private final ChannelOutputStream outputStream;
+
+  // CONSTRUCTORS
+
+  /**
+   * Creates a new {@link SocketChannelConnectionImpl} instance.
+   * 
+   * @param aChannel
+   *          the connected socket channel to wrap, cannot be <code>null</code>;
+   * @param aTimeout
+   *          the timeout for reads and writes, in milliseconds, or 0 to wait
+   *          indefinitely.
+   * @throws IllegalArgumentException
+   *           in case the given channel was <code>null</code>;
+   * @throws IOException
+   *           in case of I/O problems configuring the given channel.
+   */
+  public SocketChannelConnectionImpl( final SocketChannel aChannel, final int aTimeout )
+      throws IllegalArgumentException, IOException
+  {
+    if ( aChannel == null )
+    {
+      throw new IllegalArgumentException( "Parameter channel cannot be null!" );
+    }
+    this.channel = aChannel;
+    this.timeout = Math.max( 0, aTimeout );
+
+    final int bufferSize = Math.max( MIN_BUFFER_SIZE, aChannel.socket().getReceiveBufferSize() );
+    this.receiveBuffer = ByteBuffer.allocateDirect( bufferSize );
+    // Start out with an empty buffer in "read" mode...
+    this.receiveBuffer.flip();
+
+    this.channel.configureBlocking( false );
+
+    this.readSelector = Selector.open();
+    this.channel.register( this.readSelector, SelectionKey.OP_READ );
+    this.writeSelector = Selector.open();
+    this.channel.register( this.writeSelector, SelectionKey.OP_WRITE );
+
+    this.inputStream = new ChannelInputStream();
+    this.outputStream = new ChannelOutputStream();
+  }
+
+  // METHODS
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void close() throws IOException
+  {
+    try
+    {
+      this.channel.close();
+    }
+    finally
+    {
+      this.readSelector.close();
+      this.writeSelector.close();
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public String getAddress() throws IOException
+  {
+    return this.channel.socket().getInetAddress().getHostAddress();
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public String getLocalAddress() throws IOException
+  {
+    return this.channel.socket().getLocalAddress().getHostAddress();
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public int getLocalPort() throws IOException
+  {
+    return this.channel.socket().getLocalPort();
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public int getPort() throws IOException
+  {
+    return this.channel.socket().getPort();
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public int getSocketOption( final byte aOption ) throws IllegalArgumentException, IOException
+  {
+    final Socket socket = this.channel.socket();
+    switch ( aOption )
+    {
+      case DELAY:
+        return socket.getTcpNoDelay() ? YES : NO;
+      case LINGER:
+        return socket.getSoLinger();
+      case KEEPALIVE:
+        return socket.getKeepAlive() ? YES : NO;
+      case RCVBUF:
+        return socket.getReceiveBufferSize();
+      case SNDBUF:
+        return socket.getSendBufferSize();
+      default:
+        throw new IllegalArgumentException( "Illegal option: " + aOption + "!" );
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public DataInputStream openDataInputStream() throws IOException
+  {
+    return new DataInputStream( openInputStream() );
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public DataOutputStream openDataOutputStream() throws IOException
+  {
+    return new DataOutputStream( openOutputStream() );
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public InputStream openInputStream() throws IOException
+  {
+    return this.inputStream;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public OutputStream openOutputStream() throws IOException
+  {
+    return this.outputStream;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void setSocketOption( final byte aOption, final int aValue ) throws IllegalArgumentException, IOException
+  {
+    final Socket socket = this.channel.socket();
+    switch ( aOption )
+    {
+      case DELAY:
+        socket.setTcpNoDelay( aValue != NO );
+        break;
+      case LINGER:
+        socket.setSoLinger( aValue != NO, aValue );
+        break;
+      case KEEPALIVE:
+        socket.setKeepAlive( aValue != NO );
+        break;
+      case RCVBUF:
+        socket.setReceiveBufferSize( aValue );
+        break;
+      case SNDBUF:
+        socket.setSendBufferSize( aValue );
+        break;
+      default:
+        throw new IllegalArgumentException( "Illegal option: " + aOption + "!" );
+    }
+  }
+
+  /**
+   * Refills the (empty) receive buffer from the channel.
+   * 
+   * @param aWait
+   *          <code>true</code> to wait until data is available,
+   *          <code>false</code> to return directly if no data is available.
+   * @return the number of bytes read, or -1 in case the end of the stream is
+   *         reached.
+   * @throws SocketTimeoutException
+   *           in case no data became available within the timeout;
+   * @throws IOException
+   *           in case of other I/O problems.
+   */
+  final int fill( final boolean aWait ) throws IOException
+  {
+    this.receiveBuffer.clear();
+    try
+    {
+      int read;
+      while ( ( ( read = this.channel.read( this.receiveBuffer ) ) == 0 ) && aWait )
+      {
+        await( this.readSelector );
+      }
+      return read;
+    }
+    finally
+    {
+      this.receiveBuffer.flip();
+    }
+  }
+
+  /**
+   * Writes all remaining bytes of the given buffer to the channel.
+   * 
+   * @param aBuffer
+   *          the buffer to write, cannot be <code>null</code>.
+   * @throws SocketTimeoutException
+   *           in case the channel did not become writable within the timeout;
+   * @throws IOException
+   *           in case of other I/O problems.
+   */
+  final synchronized void write( final ByteBuffer aBuffer ) throws IOException
+  {
+    while ( aBuffer.hasRemaining() )
+    {
+      if ( this.channel.write( aBuffer ) == 0 )
+      {
+        await( this.writeSelector );
+      }
+    }
+  }
+
+  /**
+   * Waits until the given selector selects the channel.
+   * 
+   * @throws SocketTimeoutException
+   *           in case the channel is not selected within the timeout.
+   */
+  private void await( final Selector aSelector ) throws IOException
+  {
+    if ( Thread.currentThread().isInterrupted() )
+    {
+      throw new InterruptedIOException();
+    }
+
+    final int selected;
+    try
+    {
+      selected = aSelector.select( this.timeout );
+      aSelector.selectedKeys().clear();
+    }
+    catch ( ClosedSelectorException exception )
+    {
+      // Connection is closed while waiting...
+      throw new AsynchronousCloseException();
+    }
+
+    if ( ( selected == 0 ) && ( this.timeout > 0 ) )
+    {
+      throw new SocketTimeoutException( "Timeout after " + this.timeout + " ms!" );
+    }
+  }
+}
@@ -23,6 +23,7 @@ package nl.lxtreme.ols.io.socket;
 
 import java.io.*;
 import java.net.*;
+import java.nio.channels.*;
 
 import javax.microedition.io.*;
 
@@ -40,6 +41,10 @@ public class SocketConnectionFactory implements ConnectionFactory
   /**
    * The scheme we're exposing through this factory. Serial URIs should be
    * written in the form of: <tt>socket://127.0.0.1:1234;timeout=100</tt>.
+   * Remote sockets additionally accept the options <tt>rcvbuf</tt>, for the
+   * size of the receive buffer (SO_RCVBUF) in bytes, and <tt>nio</tt>, which
+   * can be set to <tt>false</tt> to use a plain socket instead of a socket
+   * channel.
    */
   public static final String SCHEME = "socket";
 
@@ -85,22 +90,104 @@ public class SocketConnectionFactory implements ConnectionFactory
   private Connection createSocketConnection( final SocketOptions aOptions ) throws UnknownHostException, IOException,
       SocketException
   {
-    if ( aOptions.isRemoteSocket() )
+    if ( aOptions.isRemoteSocket() && aOptions.isNio() )
     {
-      this.logService.log( LogService.LOG_DEBUG,
-          "Opening socket to " + aOptions.getAddress() + ":" + aOptions.getPort() );
+      log( "Opening socket channel to " + aOptions.getAddress() + ":" + aOptions.getPort() );
 
-      Socket socket = new Socket( aOptions.getAddress(), aOptions.getPort() );
-      socket.setSoTimeout( aOptions.getTimeout() );
+      return createSocketChannelConnection( aOptions );
+    }
+    else if ( aOptions.isRemoteSocket() )
+    {
+      log( "Opening socket to " + aOptions.getAddress() + ":" + aOptions.getPort() );
 
-      return new SocketConnectionImpl( socket );
+      return createPlainSocketConnection( aOptions );
     }
 
-    this.logService.log( LogService.LOG_DEBUG, "Opening server socket on " + aOptions.getPort() );
+    log( "Opening server socket on " + aOptions.getPort() );
 
     ServerSocket socket = new ServerSocket( aOptions.getPort() );
     socket.setSoTimeout( aOptions.getTimeout() );
 
     return new ServerSocketConnectionImpl( socket );
   }
+
+  /**
+   * Factory method for creating a new socket connection on top of a plain
+   * socket.
+   * 
+   * @param aOptions
+   *          the options to use to connect to the socket, cannot be
+   *          <code>null</code>.
+   * @return a new {@link Connection}, never <code>null</code>.
+   * @throws IOException
+   *           in case of I/O problems.
+   */
+  static Connection createPlainSocketConnection( final SocketOptions aOptions ) throws IOException
+  {
+    Socket socket = new Socket();
+    try
+    {
+      if ( aOptions.getReceiveBufferSize() > 0 )
+      {
+        socket.setReceiveBufferSize( aOptions.getReceiveBufferSize() );
+      }
+      socket.connect( new InetSocketAddress( aOptions.getAddress(), aOptions.getPort() ), aOptions.getTimeout() );
+      socket.setSoTimeout( aOptions.getTimeout() );
+
+      return new SocketConnectionImpl( socket );
+    }
+    catch ( IOException exception )
+    {
+      socket.close();
+      throw exception;
+    }
+  }
+
+  /**
+   * Factory method for creating a new socket connection on top of a socket
+   * channel.
+   * 
+   * @param aOptions
+   *          the options to use to connect to the socket, cannot be
+   *          <code>null</code>.
+   * @return a new {@link Connection}, never <code>null</code>.
+   * @throws IOException
+   *           in case of I/O problems.
+   */
+  static Connection createSocketChannelConnection( final SocketOptions aOptions ) throws IOException
+  {
+    SocketChannel channel = SocketChannel.open();
+    try
+    {
+      // Needs to be set before connecting to allow large TCP windows...
+      if ( aOptions.getReceiveBufferSize() > 0 )
+      {
+        channel.socket().setReceiveBufferSize( aOptions.getReceiveBufferSize() );
+      }
+      channel.socket().connect( new InetSocketAddress( aOptions.getAddress(), aOptions.getPort() ),
+          aOptions.getTimeout() );
+
+      return new SocketChannelConnectionImpl( channel, aOptions.getTimeout() );
+    }
+    catch ( IOException exception )
+    {
+      channel.close();
+      throw exception;
+    }
+  }
+
+  /**
+   * Logs a debug message, if a log service is available.
+   * 
+   * @param aMessage
+   *          the message to log.
+   */
+  private void log( final String aMessage )
+  {
+    final LogService log = this.logService;
+    if ( log != null )
+    {
+      log.log( LogService.LOG_DEBUG, aMessage );
+    }
+  }
 }
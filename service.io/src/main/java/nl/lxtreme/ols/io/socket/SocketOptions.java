@@ -33,13 +33,16 @@ final class SocketOptions
 
   private static final Pattern SCHEMA_REGEX = Pattern
       .compile( "^socket:(?://)?([^:;]*)(?::(\\d+))?(?:;([^\\r\\n]+))*$" );
-  private static final Pattern OPTION_REGEX = Pattern.compile( "(timeout)=([\\.\\d\\w_-]+)", Pattern.CASE_INSENSITIVE );
+  private static final Pattern OPTION_REGEX = Pattern.compile( "(timeout|rcvbuf|nio)=([\\.\\d\\w_-]+)",
+      Pattern.CASE_INSENSITIVE );
 
   // VARIABLES
 
   private String address;
   private int port;
   private int timeout;
+  private int receiveBufferSize;
+  private boolean nio;
 
   // CONSTRUCTORS
 
@@ -59,6 +62,12 @@ final class SocketOptions
     // Default to no timeout...
     this.timeout = 0;
 
+    // Default to the receive buffer size of the platform...
+    this.receiveBufferSize = 0;
+
+    // Default to socket channels...
+    this.nio = true;
+
     parseURI( aURI );
   }
 
@@ -84,6 +93,17 @@ final class SocketOptions
     return this.port;
   }
 
+  /**
+   * Returns the size of the receive buffer (SO_RCVBUF) to use for the socket.
+   * 
+   * @return the receive buffer size, in bytes, or 0 to use the default of the
+   *         platform.
+   */
+  public int getReceiveBufferSize()
+  {
+    return this.receiveBufferSize;
+  }
+
   /**
    * Returns the timeout to use for opening the socket.
    * 
@@ -103,6 +123,16 @@ final class SocketOptions
     return this.timeout > 0;
   }
 
+  /**
+   * @return <code>true</code> if a remote socket is to be connected using a
+   *         (NIO) socket channel, <code>false</code> if a plain socket is to
+   *         be used.
+   */
+  public boolean isNio()
+  {
+    return this.nio;
+  }
+
   /**
    * @return <code>true</code> if a remote socket is to be connected,
    *         <code>false</code> if a local socket is to be connected.
@@ -116,7 +146,7 @@ final class SocketOptions
    * @param aStr
    * @return
    */
-  private int parseTimeout( final String aStr )
+  private int parseNumber( final String aStr )
   {
     int result = 0;
     try
@@ -178,12 +208,24 @@ final class SocketOptions
 
       if ( "timeout".equals( key ) )
       {
-        int parsedValue = parseTimeout( value );
+        int parsedValue = parseNumber( value );
         if ( parsedValue >= 0 )
         {
           this.timeout = parsedValue;
         }
       }
+      else if ( "rcvbuf".equals( key ) )
+      {
+        int parsedValue = parseNumber( value );
+        if ( parsedValue >= 0 )
+        {
+          this.receiveBufferSize = parsedValue;
+        }
+      }
+      else if ( "nio".equals( key ) )
+      {
+        this.nio = Boolean.parseBoolean( value );
+      }
     }
   }
 }
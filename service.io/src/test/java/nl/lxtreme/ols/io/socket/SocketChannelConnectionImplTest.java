@@ -0,0 +1,262 @@
+/*
+ * OpenBench LogicSniffer / SUMP project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ *
+ * Copyright (C) 2010-2011 - J.W. Janssen, http://www.lxtreme.nl
+ */
+package nl.lxtreme.ols.io.socket;
+
+
+import static org.junit.Assert.*;
+
+import java.io.*;
+import java.net.*;
+
+import javax.microedition.io.*;
+
+import org.junit.*;
+
+
+/**
+ * Test cases for {@link SocketChannelConnectionImpl}.
+ */
+public class SocketChannelConnectionImplTest
+{
+  // INNER TYPES
+
+  /**
+   * Provides a loopback server that accepts a single connection and handles it
+   * in a background thread.
+   */
+  static abstract class LoopbackServer extends Thread
+  {
+    // VARIABLES
+
+    final ServerSocket serverSocket;
+    volatile Exception failure;
+
+    // CONSTRUCTORS
+
+    /**
+     * Creates a new {@link LoopbackServer} instance.
+     */
+    LoopbackServer() throws IOException
+    {
+      this.serverSocket = new ServerSocket( 0, 1, InetAddress.getByName( "127.0.0.1" ) );
+      setDaemon( true );
+    }
+
+    // METHODS
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void run()
+    {
+      try
+      {
+        final Socket socket = this.serverSocket.accept();
+        try
+        {
+          handle( socket );
+        }
+        finally
+        {
+          socket.close();
+        }
+      }
+      catch ( Exception exception )
+      {
+        this.failure = exception;
+      }
+    }
+
+    /**
+     * Returns the URI to connect to this server.
+     */
+    String getURI( final String aOptions )
+    {
+      return "socket://127.0.0.1:" + this.serverSocket.getLocalPort() + aOptions;
+    }
+
+    /**
+     * Handles the accepted connection.
+     */
+    abstract void handle( Socket aSocket ) throws Exception;
+  }
+
+  // METHODS
+
+  /**
+   * Tests that data written to the connection arrives at the server, and that
+   * the reply becomes available.
+   */
+  @Test
+  public void testWriteAndReadOk() throws Exception
+  {
+    final LoopbackServer server = new LoopbackServer()
+    {
+      @Override
+      void handle( final Socket aSocket ) throws Exception
+      {
+        final InputStream is = aSocket.getInputStream();
+        final OutputStream os = aSocket.getOutputStream();
+        // Echo the bytes back in reverse order...
+        final int b1 = is.read();
+        final int b2 = is.read();
+        os.write( new byte[] { ( byte )b2, ( byte )b1 } );
+        os.flush();
+        // Wait until the client closes the connection...
+        is.read();
+      }
+    };
+    server.start();
+
+    final StreamConnection conn = createConnection( server.getURI( ";timeout=5000" ) );
+    try
+    {
+      final DataOutputStream os = conn.openDataOutputStream();
+      os.write( 0x11 );
+      os.write( 0x22 );
+      os.flush();
+
+      final DataInputStream is = conn.openDataInputStream();
+      assertEquals( 0x2211, is.readUnsignedShort() );
+      assertEquals( 0, is.available() );
+    }
+    finally
+    {
+      conn.close();
+    }
+
+    server.join( 5000L );
+    assertNull( server.failure );
+  }
+
+  /**
+   * Tests that a read without any data times out.
+   */
+  @Test( expected = SocketTimeoutException.class )
+  public void testReadTimeoutFail() throws Exception
+  {
+    final LoopbackServer server = new LoopbackServer()
+    {
+      @Override
+      void handle( final Socket aSocket ) throws Exception
+      {
+        // Wait until the client closes the connection...
+        aSocket.getInputStream().read();
+      }
+    };
+    server.start();
+
+    final StreamConnection conn = createConnection( server.getURI( ";timeout=100" ) );
+    try
+    {
+      conn.openInputStream().read( new byte[16] );
+    }
+    finally
+    {
+      conn.close();
+    }
+  }
+
+  /**
+   * Tests that bulk reads of a large capture deliver all data intact, using
+   * large reads.
+   * <p>
+   * See <tt>SocketReadBenchmark</tt> in the benchmark module for the actual
+   * throughput.
+   * </p>
+   */
+  @Test
+  public void testBulkReadOk() throws Exception
+  {
+    final int size = 32 * 1024 * 1024;
+
+    final LoopbackServer server = new LoopbackServer()
+    {
+      @Override
+      void handle( final Socket aSocket ) throws Exception
+      {
+        final OutputStream os = aSocket.getOutputStream();
+        final byte[] chunk = new byte[64 * 1024];
+        for ( int offset = 0; offset < size; offset += chunk.length )
+        {
+          for ( int i = 0; i < chunk.length; i++ )
+          {
+            chunk[i] = ( byte )( ( offset + i ) % 251 );
+          }
+          os.write( chunk );
+        }
+        os.flush();
+      }
+    };
+    server.start();
+
+    final StreamConnection conn = createConnection( server.getURI( ";timeout=5000;rcvbuf=1048576" ) );
+    try
+    {
+      final InputStream is = conn.openDataInputStream();
+      final byte[] rawData = new byte[size];
+
+      int offset = 0;
+      int reads = 0;
+      while ( offset < size )
+      {
+        final int read = is.read( rawData, offset, size - offset );
+        if ( read < 0 )
+        {
+          throw new EOFException();
+        }
+        offset += read;
+        reads++;
+      }
+
+      for ( int i = 0; i < size; i++ )
+      {
+        if ( rawData[i] != ( byte )( i % 251 ) )
+        {
+          fail( "Data mismatch at " + i + "!" );
+        }
+      }
+
+      // Each read should copy everything that is available, instead of a few
+      // bytes at a time...
+      assertTrue( "Too many reads: " + reads, reads <= ( size / 1024 ) );
+      assertEquals( -1, is.read() );
+    }
+    finally
+    {
+      conn.close();
+    }
+
+    server.join( 5000L );
+    assertNull( server.failure );
+  }
+
+  /**
+   * Creates a new socket channel connection for the given URI.
+   */
+  private static StreamConnection createConnection( final String aURI ) throws IOException
+  {
+    final Connection conn = SocketConnectionFactory.createSocketChannelConnection( new SocketOptions( aURI ) );
+    assertTrue( conn instanceof SocketChannelConnectionImpl );
+    return ( StreamConnection )conn;
+  }
+}
@@ -74,6 +74,22 @@ public class SocketOptionsTest
     assertEquals( 250, options.getTimeout() );
   }
 
+  /**
+   * @throws Exception
+   */
+  @Test
+  public void testParseChannelOptionsOk() throws Exception
+  {
+    SocketOptions options = new SocketOptions( "socket://localhost:1234;timeout=250;rcvbuf=1048576" );
+    assertEquals( 250, options.getTimeout() );
+    assertEquals( 1048576, options.getReceiveBufferSize() );
+    assertTrue( options.isNio() );
+
+    options = new SocketOptions( "socket://localhost:1234;nio=false" );
+    assertEquals( 0, options.getReceiveBufferSize() );
+    assertFalse( options.isNio() );
+  }
+
   /**
    * @throws Exception
    */
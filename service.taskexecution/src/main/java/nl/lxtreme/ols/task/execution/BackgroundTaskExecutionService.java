@@ -21,44 +21,261 @@
 package nl.lxtreme.ols.task.execution;
 
 
+import java.util.*;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
 import java.util.logging.*;
 
+import nl.lxtreme.ols.api.devices.*;
 import nl.lxtreme.ols.api.task.*;
+import nl.lxtreme.ols.api.tools.*;
 
 
 /**
  * Provides a {@link TaskExecutionService} that invokes {@link Task}s in a
  * background thread.
+ * <p>
+ * All tasks share a single thread pool, sized to the number of available
+ * processors. Its queue is ordered by {@link TaskPriority priority class},
+ * and in order of submission within a priority class, so a queued acquisition
+ * or measurement task always runs before any queued tool decode. Running
+ * tasks are never preempted. Tasks that do not implement
+ * {@link ScheduledTask} are run as acquisition task if they are an
+ * {@link AcquisitionTask} or {@link CancelTask}, as batch task if they are a
+ * {@link ToolTask}, and as interactive task otherwise.
+ * </p>
  */
 public class BackgroundTaskExecutionService implements TaskExecutionService
 {
+  // INNER TYPES
+
+  /**
+   * Runs a single task, informing the task status listener about its progress
+   * and keeping track of its queue wait and run times. Task runners are
+   * ordered by their priority class first, and by their submission order
+   * second.
+   */
+  final class TaskRunner<RESULT_TYPE> extends FutureTask<RESULT_TYPE> implements Comparable<TaskRunner<?>>
+  {
+    // VARIABLES
+
+    private final Object group;
+    private final TaskPriority priority;
+    private final long sequenceNumber;
+
+    // CONSTRUCTORS
+
+    /**
+     * Creates a new TaskRunner instance.
+     */
+    TaskRunner( final Task<RESULT_TYPE> aTask, final Object aGroup, final TaskPriority aPriority )
+    {
+      super( new Callable<RESULT_TYPE>()
+      {
+        private final TaskStatusListener tsl = BackgroundTaskExecutionService.this.taskStatusListener;
+        private final long submitTime = System.nanoTime();
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public RESULT_TYPE call() throws Exception
+        {
+          final long startTime = System.nanoTime();
+
+          this.tsl.taskStarted( aTask );
+
+          try
+          {
+            RESULT_TYPE result = aTask.call();
+            this.tsl.taskEnded( aTask, result );
+            return result;
+          }
+          catch ( Exception exception )
+          {
+            LOG.log( Level.FINE, "Task execution failed!", exception );
+            this.tsl.taskFailed( aTask, exception );
+            throw exception;
+          }
+          finally
+          {
+            if ( this.tsl instanceof TaskMetricsListener )
+            {
+              ( ( TaskMetricsListener )this.tsl ).taskMetricsAvailable( aTask, startTime - this.submitTime,
+                  System.nanoTime() - startTime );
+            }
+          }
+        }
+      } );
+
+      this.group = aGroup;
+      this.priority = aPriority;
+      this.sequenceNumber = BackgroundTaskExecutionService.this.sequence.getAndIncrement();
+    }
+
+    // METHODS
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int compareTo( final TaskRunner<?> aOther )
+    {
+      int result = this.priority.compareTo( aOther.priority );
+      if ( result == 0 )
+      {
+        result = ( this.sequenceNumber < aOther.sequenceNumber ) ? -1
+            : ( ( this.sequenceNumber == aOther.sequenceNumber ) ? 0 : 1 );
+      }
+      return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void done()
+    {
+      if ( this.group != null )
+      {
+        removeFromGroup( this.group, this );
+      }
+    }
+  }
+
+  /**
+   * Provides the threads of the thread pool.
+   */
+  static final class TaskThreadFactory implements ThreadFactory
+  {
+    // VARIABLES
+
+    private final AtomicInteger threadCount = new AtomicInteger();
+
+    // METHODS
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Thread newThread( final Runnable aRunnable )
+    {
+      final String name = String.format( "OLS task-%d", Integer.valueOf( this.threadCount.incrementAndGet() ) );
+
+      final Thread thread = new Thread( aRunnable, name );
+      thread.setDaemon( false );
+      return thread;
+    }
+  }
+
   // CONSTANTS
 
   private static final Logger LOG = Logger.getLogger( BackgroundTaskExecutionService.class.getName() );
 
-  private static final int POOL_SIZE = 5;
+  /** The time idle threads are kept alive, in seconds. */
+  private static final long KEEP_ALIVE_TIME = 30L;
 
   // VARIABLES
 
   private final TaskStatusListener taskStatusListener;
+  private final ThreadPoolExecutor executor;
+  private final AtomicLong sequence;
+  private final Map<Object, Set<Future<?>>> groups;
 
-  final ExecutorService executorService;
-
-  // CONSTANTS
+  // CONSTRUCTORS
 
   /**
    * Creates a new {@link BackgroundTaskExecutionService} instance.
    */
   public BackgroundTaskExecutionService( final TaskStatusListener aTaskStatusListener )
+  {
+    this( aTaskStatusListener, Math.max( 2, Runtime.getRuntime().availableProcessors() ) );
+  }
+
+  /**
+   * Creates a new {@link BackgroundTaskExecutionService} instance.
+   * 
+   * @param aTaskStatusListener
+   *          the task status listener to inform about all tasks;
+   * @param aPoolSize
+   *          the maximum number of tasks to run concurrently, > 0.
+   */
+  BackgroundTaskExecutionService( final TaskStatusListener aTaskStatusListener, final int aPoolSize )
   {
     this.taskStatusListener = aTaskStatusListener;
 
-    this.executorService = Executors.newFixedThreadPool( POOL_SIZE );
+    this.executor = new ThreadPoolExecutor( aPoolSize, aPoolSize, KEEP_ALIVE_TIME, TimeUnit.SECONDS,
+        new PriorityBlockingQueue<Runnable>(), new TaskThreadFactory() );
+    this.executor.allowCoreThreadTimeOut( true );
+
+    this.sequence = new AtomicLong();
+    this.groups = new HashMap<Object, Set<Future<?>>>();
   }
 
   // METHODS
 
+  /**
+   * Determines the priority class of a given task.
+   * 
+   * @param aTask
+   *          the task to determine the priority class for, cannot be
+   *          <code>null</code>.
+   * @return a priority class, never <code>null</code>.
+   */
+  static TaskPriority getPriority( final Task<?> aTask )
+  {
+    if ( aTask instanceof ScheduledTask<?> )
+    {
+      final TaskPriority priority = ( ( ScheduledTask<?> )aTask ).getPriority();
+      if ( priority != null )
+      {
+        return priority;
+      }
+    }
+    if ( ( aTask instanceof AcquisitionTask ) || ( aTask instanceof CancelTask ) )
+    {
+      return TaskPriority.ACQUISITION;
+    }
+    if ( aTask instanceof ToolTask<?> )
+    {
+      return TaskPriority.BATCH;
+    }
+    return TaskPriority.INTERACTIVE;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public int cancelGroup( final Object aGroup )
+  {
+    if ( aGroup == null )
+    {
+      throw new IllegalArgumentException( "Group cannot be null!" );
+    }
+
+    final List<Future<?>> futures;
+    synchronized ( this.groups )
+    {
+      final Set<Future<?>> group = this.groups.remove( aGroup );
+      if ( group == null )
+      {
+        return 0;
+      }
+      futures = new ArrayList<Future<?>>( group );
+    }
+
+    int count = 0;
+    for ( Future<?> future : futures )
+    {
+      if ( future.cancel( true /* mayInterruptIfRunning */) )
+      {
+        count++;
+      }
+    }
+    return count;
+  }
+
   /**
    * Closes this tool execution service, cancelling any ongoing executions if
    * needed.
@@ -68,20 +285,20 @@ public class BackgroundTaskExecutionService implements TaskExecutionService
    */
   public void close()
   {
-    if ( this.executorService.isShutdown() )
+    if ( isShutdown() )
     {
       throw new IllegalStateException( "Service already shut down!" );
     }
 
     // Force the running tasks to be cancelled immediately...
-    this.executorService.shutdownNow();
+    this.executor.shutdownNow();
 
     int tries = 3;
-    while ( !this.executorService.isTerminated() && ( tries-- >= 0 ) )
+    while ( !this.executor.isTerminated() && ( tries-- >= 0 ) )
     {
       try
       {
-        if ( this.executorService.awaitTermination( 500L, TimeUnit.MILLISECONDS ) )
+        if ( this.executor.awaitTermination( 500L, TimeUnit.MILLISECONDS ) )
         {
           LOG.fine( "All running threads are terminated ..." );
         }
@@ -107,33 +324,61 @@ public class BackgroundTaskExecutionService implements TaskExecutionService
       throw new IllegalArgumentException( "Parameter Task cannot be null!" );
     }
 
-    final Callable<RESULT_TYPE> task = new Callable<RESULT_TYPE>()
-    {
-      private final TaskStatusListener tsl = BackgroundTaskExecutionService.this.taskStatusListener;
+    final Object group = ( aTask instanceof ScheduledTask<?> ) ? ( ( ScheduledTask<?> )aTask ).getGroup() : null;
 
-      /**
-       * {@inheritDoc}
-       */
-      @Override
-      public RESULT_TYPE call() throws Exception
+    final TaskRunner<RESULT_TYPE> runner = new TaskRunner<RESULT_TYPE>( aTask, group, getPriority( aTask ) );
+    if ( group != null )
+    {
+      synchronized ( this.groups )
       {
-        this.tsl.taskStarted( aTask );
-
-        try
+        Set<Future<?>> futures = this.groups.get( group );
+        if ( futures == null )
         {
-          RESULT_TYPE result = aTask.call();
-          this.tsl.taskEnded( aTask, result );
-          return result;
-        }
-        catch ( Exception exception )
-        {
-          LOG.log( Level.FINE, "Task execution failed!", exception );
-          this.tsl.taskFailed( aTask, exception );
-          throw exception;
+          futures = new HashSet<Future<?>>();
+          this.groups.put( group, futures );
         }
+        futures.add( runner );
       }
-    };
+    }
+
+    try
+    {
+      this.executor.execute( runner );
+    }
+    catch ( RejectedExecutionException exception )
+    {
+      if ( group != null )
+      {
+        removeFromGroup( group, runner );
+      }
+      throw exception;
+    }
+    return runner;
+  }
 
-    return this.executorService.submit( task );
+  /**
+   * Returns whether this service is shut down.
+   * 
+   * @return <code>true</code> if this service is shut down, <code>false</code>
+   *         otherwise.
+   */
+  final boolean isShutdown()
+  {
+    return this.executor.isShutdown();
+  }
+
+  /**
+   * Removes a completed task from its group.
+   */
+  final void removeFromGroup( final Object aGroup, final Future<?> aFuture )
+  {
+    synchronized ( this.groups )
+    {
+      final Set<Future<?>> futures = this.groups.get( aGroup );
+      if ( ( futures != null ) && futures.remove( aFuture ) && futures.isEmpty() )
+      {
+        this.groups.remove( aGroup );
+      }
+    }
   }
 }
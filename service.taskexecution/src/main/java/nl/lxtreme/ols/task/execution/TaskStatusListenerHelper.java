@@ -31,7 +31,7 @@ import nl.lxtreme.ols.util.osgi.*;
 /**
  * Whiteboard helper for all {@link ToolProgressListener}s.
  */
-public class TaskStatusListenerHelper extends WhiteboardHelper<TaskStatusListener> implements TaskStatusListener
+public class TaskStatusListenerHelper extends WhiteboardHelper<TaskStatusListener> implements TaskMetricsListener
 {
   // CONSTRUCTORS
 
@@ -80,6 +80,26 @@ public class TaskStatusListenerHelper extends WhiteboardHelper<TaskStatusListene
     }
   }
 
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public <RESULT_TYPE> void taskMetricsAvailable( final Task<RESULT_TYPE> aTask, final long aQueueWaitTime,
+      final long aRunTime )
+  {
+    final Object[] services = getServices();
+    if ( services != null )
+    {
+      for ( Object service : services )
+      {
+        if ( service instanceof TaskMetricsListener )
+        {
+          ( ( TaskMetricsListener )service ).taskMetricsAvailable( aTask, aQueueWaitTime, aRunTime );
+        }
+      }
+    }
+  }
+
   /**
    * {@inheritDoc}
    */
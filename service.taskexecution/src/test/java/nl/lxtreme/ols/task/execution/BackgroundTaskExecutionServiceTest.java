@@ -26,8 +26,10 @@ import static org.mockito.Matchers.*;
 import static org.mockito.Mockito.*;
 
 import java.io.*;
+import java.util.*;
 import java.util.concurrent.*;
 
+import nl.lxtreme.ols.api.devices.*;
 import nl.lxtreme.ols.api.task.*;
 import nl.lxtreme.ols.api.tools.*;
 
@@ -243,6 +245,113 @@ public class BackgroundTaskExecutionServiceTest
     this.service.execute( null );
   }
 
+  /**
+   * Test method for {@link BackgroundTaskExecutionService#cancelGroup(Object)}.
+   */
+  @Test
+  public void testCancelGroupOk() throws Exception
+  {
+    final Object group = new Object();
+
+    final Future<Object> future1 = this.service.execute( createScheduledTask( TaskPriority.BATCH, group, 500 ) );
+    final Future<Object> future2 = this.service.execute( createScheduledTask( TaskPriority.INTERACTIVE, group, 500 ) );
+    final Future<Object> future3 = this.service.execute( createMockTask( 100 ) );
+
+    sleep( 10 );
+
+    assertEquals( 2, this.service.cancelGroup( group ) );
+    assertEquals( 0, this.service.cancelGroup( group ) );
+
+    assertTrue( future1.isCancelled() );
+    assertTrue( future2.isCancelled() );
+    assertFalse( future3.isCancelled() );
+    assertNull( future3.get() );
+  }
+
+  /**
+   * Test method for
+   * {@link BackgroundTaskExecutionService#execute(nl.lxtreme.ols.api.task.Task)}
+   * .
+   */
+  @Test
+  public void testExecuteReportsMetricsOk() throws Exception
+  {
+    final TaskMetricsListener listener = mock( TaskMetricsListener.class );
+    this.service.close();
+    this.service = new BackgroundTaskExecutionService( listener );
+
+    final Task<Object> task = createMockTask( 100 );
+    this.service.execute( task ).get();
+
+    sleep( 10 ); // sleep long enough to allow callbacks to be invoked...
+
+    final ArgumentCaptor<Long> runTime = ArgumentCaptor.forClass( Long.class );
+
+    InOrder inOrder = inOrder( listener );
+    inOrder.verify( listener ).taskStarted( eq( task ) );
+    inOrder.verify( listener ).taskEnded( eq( task ), anyObject() );
+    inOrder.verify( listener ).taskMetricsAvailable( eq( task ), anyLong(), runTime.capture().longValue() );
+    inOrder.verifyNoMoreInteractions();
+
+    assertTrue( runTime.getValue().longValue() >= TimeUnit.MILLISECONDS.toNanos( 90 ) );
+  }
+
+  /**
+   * Tests that queued tasks are run in order of their priority class, and in
+   * order of submission within a priority class.
+   */
+  @Test
+  public void testExecuteRunsQueuedTasksInPriorityOrder() throws Exception
+  {
+    this.service.close();
+    this.service = new BackgroundTaskExecutionService( this.mockTaskStatusListener, 1 );
+
+    final Semaphore started = new Semaphore( 0 );
+    final CountDownLatch release = new CountDownLatch( 1 );
+    final List<String> order = Collections.synchronizedList( new ArrayList<String>() );
+
+    final List<Future<Object>> futures = new ArrayList<Future<Object>>();
+    try
+    {
+      // Occupy the only thread, so all other tasks are queued...
+      futures.add( this.service.execute( createBlockingTask( TaskPriority.BATCH, started, release ) ) );
+      assertTrue( started.tryAcquire( 5, TimeUnit.SECONDS ) );
+
+      futures.add( this.service.execute( createRecordingTask( TaskPriority.BATCH, "batch1", order ) ) );
+      futures.add( this.service.execute( createRecordingTask( TaskPriority.BATCH, "batch2", order ) ) );
+      futures.add( this.service.execute( createRecordingTask( TaskPriority.INTERACTIVE, "interactive1", order ) ) );
+      futures.add( this.service.execute( createRecordingTask( TaskPriority.ACQUISITION, "acquisition", order ) ) );
+      futures.add( this.service.execute( createRecordingTask( TaskPriority.INTERACTIVE, "interactive2", order ) ) );
+    }
+    finally
+    {
+      release.countDown();
+    }
+
+    for ( Future<Object> future : futures )
+    {
+      future.get( 5, TimeUnit.SECONDS );
+    }
+
+    assertEquals( Arrays.asList( "acquisition", "interactive1", "interactive2", "batch1", "batch2" ), order );
+  }
+
+  /**
+   * Test method for
+   * {@link BackgroundTaskExecutionService#getPriority(nl.lxtreme.ols.api.task.Task)}
+   * .
+   */
+  @Test
+  public void testGetPriority()
+  {
+    assertEquals( TaskPriority.INTERACTIVE, BackgroundTaskExecutionService.getPriority( createMockTask( 0 ) ) );
+    assertEquals( TaskPriority.ACQUISITION,
+        BackgroundTaskExecutionService.getPriority( mock( AcquisitionTask.class ) ) );
+    assertEquals( TaskPriority.BATCH, BackgroundTaskExecutionService.getPriority( mock( ToolTask.class ) ) );
+    assertEquals( TaskPriority.ACQUISITION,
+        BackgroundTaskExecutionService.getPriority( createScheduledTask( TaskPriority.ACQUISITION, null, 0 ) ) );
+  }
+
   /**
    * Creates a mock tool instance with a given time-to-complete.
    * 
@@ -299,4 +408,94 @@ public class BackgroundTaskExecutionServiceTest
     return tool;
   }
 
+  /**
+   * Creates a scheduled task that signals it is started, and blocks until it is
+   * released.
+   */
+  private ScheduledTask<Object> createBlockingTask( final TaskPriority aPriority, final Semaphore aStarted,
+      final CountDownLatch aRelease )
+  {
+    return new ScheduledTask<Object>()
+    {
+      @Override
+      public Object call() throws Exception
+      {
+        aStarted.release();
+        aRelease.await();
+        return null;
+      }
+
+      @Override
+      public Object getGroup()
+      {
+        return null;
+      }
+
+      @Override
+      public TaskPriority getPriority()
+      {
+        return aPriority;
+      }
+    };
+  }
+
+
+  /**
+   * Creates a scheduled task that adds its name to the given list when run.
+   */
+  private ScheduledTask<Object> createRecordingTask( final TaskPriority aPriority, final String aName,
+      final List<String> aOrder )
+  {
+    return new ScheduledTask<Object>()
+    {
+      @Override
+      public Object call() throws Exception
+      {
+        aOrder.add( aName );
+        return null;
+      }
+
+      @Override
+      public Object getGroup()
+      {
+        return null;
+      }
+
+      @Override
+      public TaskPriority getPriority()
+      {
+        return aPriority;
+      }
+    };
+  }
+
+  /**
+   * Creates a scheduled task with a given priority, group and time-to-complete.
+   */
+  private ScheduledTask<Object> createScheduledTask( final TaskPriority aPriority, final Object aGroup,
+      final int aTimeout )
+  {
+    final Task<Object> task = createMockTask( aTimeout );
+    return new ScheduledTask<Object>()
+    {
+      @Override
+      public Object call() throws Exception
+      {
+        return task.call();
+      }
+
+      @Override
+      public Object getGroup()
+      {
+        return aGroup;
+      }
+
+      @Override
+      public TaskPriority getPriority()
+      {
+        return aPriority;
+      }
+    };
+  }
+
 }
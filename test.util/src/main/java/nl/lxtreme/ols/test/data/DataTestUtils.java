@@ -384,18 +384,36 @@ public final class DataTestUtils
         return ( int )aTimeValue;
       }
 
+      @Override
+      public int getSampleIndex( final long aTimeValue, final int aHintIndex )
+      {
+        return ( int )aTimeValue;
+      }
+
       @Override
       public int getSampleRate()
       {
         return 100;
       }
 
+      @Override
+      public long getTimestamp( final int aIndex )
+      {
+        return aIndex + 1L;
+      }
+
       @Override
       public long[] getTimestamps()
       {
         return new long[] { 1L, 2L, 3L, 4L };
       }
 
+      @Override
+      public TransitionIndex getTransitionIndex( final int aChannelIdx )
+      {
+        return new TransitionIndex( getValues(), getTimestamps(), 1 << aChannelIdx, getAbsoluteLength() );
+      }
+
       @Override
       public long getTriggerPosition()
       {
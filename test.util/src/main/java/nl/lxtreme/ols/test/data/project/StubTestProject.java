@@ -46,6 +46,7 @@ public class StubTestProject implements Project
   private final StubDataSet dataSet;
   private String sourceVersion;
   private final Map<String, UserSettings> settings = new HashMap<String, UserSettings>();
+  private final Map<String, byte[]> decodeResults = new HashMap<String, byte[]>();
   private String name;
   private Date lastModified;
   private File file;
@@ -63,6 +64,15 @@ public class StubTestProject implements Project
 
   // METHODS
 
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public int getCaptureCount()
+  {
+    return ( this.dataSet.getCapturedData() == null ) ? 0 : 1;
+  }
+
   /**
    * {@inheritDoc}
    */
@@ -72,6 +82,15 @@ public class StubTestProject implements Project
     return this.dataSet;
   }
 
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public byte[] getDecodeResult( final String aKey )
+  {
+    return this.decodeResults.get( aKey );
+  }
+
   /**
    * @see nl.lxtreme.ols.api.data.project.Project#getFilename()
    */
@@ -99,6 +118,15 @@ public class StubTestProject implements Project
     return this.name;
   }
 
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public int getSelectedCapture()
+  {
+    return getCaptureCount() - 1;
+  }
+
   /**
    * @see nl.lxtreme.ols.api.data.project.Project#getSettings(java.lang.String)
    */
@@ -131,6 +159,15 @@ public class StubTestProject implements Project
     return this.changed;
   }
 
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void putDecodeResult( final String aKey, final byte[] aResult )
+  {
+    this.decodeResults.put( aKey, aResult );
+  }
+
   /**
    * {@inheritDoc}
    */
@@ -140,6 +177,18 @@ public class StubTestProject implements Project
     OlsDataHelper.read( this.dataSet, aReader );
   }
 
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void selectCapture( final int aIndex )
+  {
+    if ( ( aIndex < 0 ) || ( aIndex >= getCaptureCount() ) )
+    {
+      throw new IndexOutOfBoundsException();
+    }
+  }
+
   /**
    * @see nl.lxtreme.ols.api.data.project.Project#setCapturedData(AcquisitionResult)
    */
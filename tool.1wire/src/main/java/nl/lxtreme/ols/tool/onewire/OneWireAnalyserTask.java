@@ -364,7 +364,8 @@ public class OneWireAnalyserTask implements ToolTask<OneWireDataSet>
   {
     final AcquisitionResult data = this.context.getData();
     final int startSampleIdx = Math.max( data.getSampleIndex( aStartTimestamp ), 0 );
-    final int endSampleIdx = Math.min( data.getSampleIndex( aEndTimestamp ) - 1, data.getTimestamps().length - 1 );
+    final int endSampleIdx = Math.min( data.getSampleIndex( aEndTimestamp, startSampleIdx ) - 1,
+        data.getTimestamps().length - 1 );
 
     aDataSet.reportData( this.owLineIndex, startSampleIdx, endSampleIdx, aByteValue );
 
@@ -385,7 +386,8 @@ public class OneWireAnalyserTask implements ToolTask<OneWireDataSet>
   {
     final AcquisitionResult data = this.context.getData();
     final int startSampleIdx = Math.max( data.getSampleIndex( aStartTimestamp ), 0 );
-    final int endSampleIdx = Math.min( data.getSampleIndex( aEndTimestamp ) - 1, data.getTimestamps().length - 1 );
+    final int endSampleIdx = Math.min( data.getSampleIndex( aEndTimestamp, startSampleIdx ) - 1,
+        data.getTimestamps().length - 1 );
 
     aDataSet.reportReset( this.owLineIndex, startSampleIdx, endSampleIdx, aSlaveIsPresent );
 
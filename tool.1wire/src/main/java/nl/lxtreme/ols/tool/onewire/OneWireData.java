@@ -29,6 +29,10 @@ import nl.lxtreme.ols.api.data.*;
  */
 public class OneWireData extends BaseData<OneWireData>
 {
+  // CONSTANTS
+
+  private static final long serialVersionUID = 1L;
+
   // VARIABLES
 
   private final int value;
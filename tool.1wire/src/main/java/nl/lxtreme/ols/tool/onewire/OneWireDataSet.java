@@ -32,6 +32,8 @@ public class OneWireDataSet extends BaseDataSet<OneWireData>
 {
   // CONSTANTS
 
+  private static final long serialVersionUID = 1L;
+
   public static final String OW_RESET = "RESET";
   public static final String OW_BUS_ERROR = "BUS-ERROR";
 
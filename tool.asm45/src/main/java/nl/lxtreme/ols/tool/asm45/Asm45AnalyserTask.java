@@ -22,8 +22,13 @@ package nl.lxtreme.ols.tool.asm45;
 
 
 import static nl.lxtreme.ols.util.NumberUtils.*;
+
+import java.util.*;
+import java.util.concurrent.*;
+
 import nl.lxtreme.ols.api.acquisition.*;
 import nl.lxtreme.ols.api.data.annotation.AnnotationListener;
+import nl.lxtreme.ols.api.task.*;
 import nl.lxtreme.ols.api.tools.*;
 
 
@@ -32,9 +37,223 @@ import nl.lxtreme.ols.api.tools.*;
  * 
  * @author Ansgar Kueckes
  */
-@SuppressWarnings( "boxing" )
 public class Asm45AnalyserTask implements ToolTask<Asm45DataSet>
 {
+  // INNER TYPES
+
+  /**
+   * Holds the bus events decoded from a range of samples, in order of
+   * occurrence.
+   */
+  static final class BusEvents
+  {
+    // VARIABLES
+
+    int size;
+    int[] startIdx = new int[64];
+    int[] endIdx = new int[64];
+    int[] block = new int[64];
+    int[] address = new int[64];
+    int[] value = new int[64];
+    boolean[] busGrant = new boolean[64];
+    String[] type = new String[64];
+    String[] event = new String[64];
+
+    // METHODS
+
+    /**
+     * Adds a decoded event.
+     */
+    void add( final int aStartIdx, final int aEndIdx, final int aBlock, final int aAddress, final int aValue,
+        final boolean aBusGrant, final String aType, final String aEvent )
+    {
+      if ( this.size == this.startIdx.length )
+      {
+        final int newLength = this.size * 2;
+        this.startIdx = Arrays.copyOf( this.startIdx, newLength );
+        this.endIdx = Arrays.copyOf( this.endIdx, newLength );
+        this.block = Arrays.copyOf( this.block, newLength );
+        this.address = Arrays.copyOf( this.address, newLength );
+        this.value = Arrays.copyOf( this.value, newLength );
+        this.busGrant = Arrays.copyOf( this.busGrant, newLength );
+        this.type = Arrays.copyOf( this.type, newLength );
+        this.event = Arrays.copyOf( this.event, newLength );
+      }
+
+      final int idx = this.size++;
+      this.startIdx[idx] = aStartIdx;
+      this.endIdx[idx] = aEndIdx;
+      this.block[idx] = aBlock;
+      this.address[idx] = aAddress;
+      this.value[idx] = aValue;
+      this.busGrant[idx] = aBusGrant;
+      this.type[idx] = aType;
+      this.event[idx] = aEvent;
+    }
+  }
+
+  /**
+   * Decodes the bus cycles in a range of samples. A decoder reuses a single
+   * buffer for formatting the events, and should therefore be used by a single
+   * thread only.
+   */
+  final class BusCycleDecoder implements Callable<BusEvents>
+  {
+    // VARIABLES
+
+    private final int[] values;
+    private final int from;
+    private final int to;
+    private final int initialStatus;
+    private final StringBuilder buffer;
+
+    // CONSTRUCTORS
+
+    /**
+     * Creates a new {@link BusCycleDecoder} instance.
+     * 
+     * @param aValues
+     *          the sample values;
+     * @param aFrom
+     *          the index of the first sample to decode;
+     * @param aTo
+     *          the index of the sample after the last sample to decode;
+     * @param aInitialStatus
+     *          the status of the control lines before the first sample.
+     */
+    BusCycleDecoder( final int[] aValues, final int aFrom, final int aTo, final int aInitialStatus )
+    {
+      this.values = aValues;
+      this.from = aFrom;
+      this.to = aTo;
+      this.initialStatus = aInitialStatus;
+      this.buffer = new StringBuilder( 32 );
+    }
+
+    // METHODS
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public BusEvents call()
+    {
+      return decode( false /* aReportProgress */);
+    }
+
+    /**
+     * Decodes the range of samples.
+     * 
+     * @param aReportProgress
+     *          <code>true</code> to report the progress while decoding,
+     *          <code>false</code> otherwise.
+     * @return the decoded events, never <code>null</code>.
+     */
+    BusEvents decode( final boolean aReportProgress )
+    {
+      final BusEvents result = new BusEvents();
+      final int[] values = this.values;
+
+      int status = this.initialStatus; // last control lines status
+
+      int startIdx = 0;
+      int block = 0; // 6-bit block address
+      int address = 0; // 16-bit address within memory block
+
+      /*
+       * Loop over the acquisition data
+       */
+      for ( int idx = this.from; idx < this.to; idx++ )
+      {
+        final int dataValue = values[idx];
+
+        final int control = dataValue & CONTROL_MASK; // IDA bus control signals
+        final int ida = ( ~dataValue & 0x0000ffff ); // IDA bus address/data
+
+        // start memory cycle
+        if ( ( ( status & Asm45AnalyserTask.this.lineSTMmask ) != 0 )
+            && ( ( control & Asm45AnalyserTask.this.lineSTMmask ) == 0 ) )
+        {
+          startIdx = idx;
+          address = ida;
+          block = ( ( ( ~control ) >> 16 ) & 0x3f );
+        }
+
+        // memory cycle complete
+        if ( ( ( status & Asm45AnalyserTask.this.lineSMCmask ) == 0 )
+            && ( ( control & Asm45AnalyserTask.this.lineSMCmask ) != 0 ) )
+        {
+          // filter bus grants (like DMA or CRT cycle stealing)
+          final boolean busGrant = ( ( status & Asm45AnalyserTask.this.lineEBGmask ) != 0 )
+              && ( ( control & Asm45AnalyserTask.this.lineEBGmask ) == 0 );
+
+          if ( !busGrant && ( ( status & Asm45AnalyserTask.this.lineSYNCmask ) != 0 ) )
+          {
+            // instruction fetch
+            if ( Asm45AnalyserTask.this.reportInst )
+            {
+              this.buffer.setLength( 0 );
+              appendInstruction( this.buffer, address, ida );
+              result.add( startIdx, idx, block, address, ida, busGrant, Asm45Data.TYPE_INSTRUCTION,
+                  this.buffer.toString() );
+            }
+          }
+          else if ( busGrant ? Asm45AnalyserTask.this.reportBusGrants : Asm45AnalyserTask.this.reportData )
+          {
+            // data transfer
+            result.add( startIdx, idx, block, address, ida, busGrant, getDataType( status ),
+                formatDataTransfer( status, address, ida ) );
+          }
+        }
+
+        status = control;
+
+        if ( aReportProgress && ( ( idx & PROGRESS_MASK ) == 0 ) )
+        {
+          Asm45AnalyserTask.this.progressListener.setProgress( getPercentage( idx, this.from, this.to ) );
+        }
+      }
+
+      return result;
+    }
+
+    /**
+     * Formats a data transfer event.
+     */
+    private String formatDataTransfer( final int aStatus, final int aAddress, final int aValue )
+    {
+      final StringBuilder sb = this.buffer;
+      sb.setLength( 0 );
+      if ( aAddress < 32 )
+      {
+        sb.append( registers[aAddress] );
+      }
+      else
+      {
+        appendHex( sb, aAddress );
+      }
+      sb.append( ( ( aStatus & Asm45AnalyserTask.this.lineWRTmask ) != 0 ) ? "&rarr;$" : "&larr;$" );
+      appendHex( sb, aValue );
+      return sb.toString();
+    }
+
+    /**
+     * Returns the type of a data transfer.
+     */
+    private String getDataType( final int aStatus )
+    {
+      if ( ( aStatus & Asm45AnalyserTask.this.lineBYTEmask ) == 0 )
+      {
+        return Asm45Data.TYPE_DATA_WORD;
+      }
+      else if ( ( aStatus & Asm45AnalyserTask.this.lineBLmask ) == 0 )
+      {
+        return Asm45Data.TYPE_DATA_BYTE_RIGHT;
+      }
+      return Asm45Data.TYPE_DATA_BYTE_LEFT;
+    }
+  }
+
   // CONSTANTS
 
   /**
@@ -208,6 +427,23 @@ public class Asm45AnalyserTask implements ToolTask<Asm45DataSet>
       new Asm45OpcodeTable( 0xffff, 0x73c0, "CDC", 0, 11 ), //
       new Asm45OpcodeTable( 0, 0, null, 0, 0 ) };
 
+  /** The bits of a sample value holding the IDA bus control signals. */
+  private static final int CONTROL_MASK = 0xffff0000;
+
+  /**
+   * Direct lookup table for all 16-bit instruction words, holding for each
+   * word the index of the first matching entry in {@link #hp9845Table}.
+   */
+  private static final short[] DISPATCH_TABLE = createDispatchTable();
+
+  private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+  /** The minimal number of samples decoded by a single worker. */
+  private static final int MIN_SHARD_SIZE = 1 << 16;
+
+  /** Progress is reported once every this many samples (+1). */
+  private static final int PROGRESS_MASK = 0xfff;
+
   // VARIABLES
 
   private final ToolContext context;
@@ -226,6 +462,10 @@ public class Asm45AnalyserTask implements ToolTask<Asm45DataSet>
   private boolean reportData;
   private boolean reportBusGrants;
 
+  private TaskExecutionService taskExecutionService;
+  private int parallelism;
+  private int minShardSize;
+
   // CONSTRUCTORS
 
   /**
@@ -240,12 +480,211 @@ public class Asm45AnalyserTask implements ToolTask<Asm45DataSet>
   {
     this.context = aContext;
     this.progressListener = aProgressListener;
+
+    this.parallelism = Runtime.getRuntime().availableProcessors();
+    this.minShardSize = MIN_SHARD_SIZE;
   }
 
   // METHODS
 
+  /**
+   * Appends the assembler instruction for the given instruction word to the
+   * given buffer.
+   * 
+   * @param aBuffer
+   *          the buffer to append to;
+   * @param address
+   *          the address of the instruction word;
+   * @param opcode
+   *          the instruction word.
+   */
+  static void appendInstruction( final StringBuilder aBuffer, final int address, final int opcode )
+  {
+    final Asm45OpcodeTable op = hp9845Table[DISPATCH_TABLE[opcode & 0xffff]];
+
+    /* if match, write mnemonic - else return */
+    if ( op.getMnemonic() == null )
+    {
+      aBuffer.append( "???" );
+      return;
+    }
+
+    aBuffer.append( op.getMnemonic() );
+
+    int operand;
+    switch ( op.getMode() )
+    {
+      case 0:
+        /* no operands (full width opcode) */
+        break;
+
+      case 1:
+        /*
+         * 10-bit memory reference w/ or w/o indirection and/or base page
+         * reference
+         */
+        operand = opcode & 0x03ff;
+        if ( ( opcode & 0x0200 ) != 0 )
+        {
+          operand -= 0x0400;
+        }
+        aBuffer.append( ' ' );
+        if ( ( opcode & 0x0400 ) != 0 )
+        {
+          /* current page */
+          appendHex( aBuffer, address + operand );
+        }
+        else if ( operand < 0 )
+        {
+          /* base page */
+          appendHex( aBuffer, 0x10000 + operand );
+        }
+        else if ( operand < 32 )
+        {
+          aBuffer.append( registers[operand] );
+        }
+        else
+        {
+          appendHex( aBuffer, operand );
+        }
+
+        /* indirect addressing */
+        if ( ( opcode & 0x8000 ) != 0 )
+        {
+          aBuffer.append( ",I" );
+        }
+
+        /* base page reference */
+        if ( ( ( opcode & 0x0400 ) == 0 ) && ( ( operand < 0 ) || ( operand > 31 ) ) )
+        {
+          aBuffer.append( " [B]" );
+        }
+        break;
+
+      case 2: /* 5-bit register (for EXE) */
+        aBuffer.append( ' ' ).append( registers[opcode & 0x001f] );
+        if ( ( opcode & 0x8000 ) != 0 )
+        {
+          aBuffer.append( ",I" );
+        }
+        break;
+
+      case 3: /* 6-bit signed skip field */
+        operand = getSkipOffset( opcode );
+        aBuffer.append( " *+" ).append( operand ).append( " [" );
+        appendHex( aBuffer, address + operand );
+        aBuffer.append( ']' );
+        break;
+
+      case 4:
+        /* 6-bit signed skip field with hold/change and clear/set */
+        operand = getSkipOffset( opcode );
+        aBuffer.append( " *+" ).append( operand );
+        if ( ( opcode & 0x0080 ) != 0 )
+        {
+          aBuffer.append( ( ( opcode & 0x0040 ) != 0 ) ? ",S" : ",C" );
+        }
+        aBuffer.append( " [" );
+        appendHex( aBuffer, address + operand );
+        aBuffer.append( ']' );
+        break;
+
+      case 5:
+        /*
+         * 6-bit signed skip field w/ or w/o pop the IOC's PA stack (for RET)
+         */
+        aBuffer.append( ' ' ).append( getSkipOffset( opcode ) );
+        if ( ( opcode & 0x40 ) != 0 )
+        {
+          aBuffer.append( ",P" );
+        }
+        break;
+
+      case 6:
+        /* 4-bit count */
+        aBuffer.append( ' ' ).append( ( opcode & 0xf ) + 1 );
+        break;
+
+      case 7:
+        /* 3-bit register with increment/decrement */
+        aBuffer.append( ' ' ).append( registers[opcode & 0x7] );
+        aBuffer.append( ( ( opcode & 0x0080 ) != 0 ) ? ",D" : ",I" );
+        break;
+    }
+  }
+
+  /**
+   * Appends the given value as (at least) 4-digit hexadecimal value, like
+   * <tt>%04x</tt> would do.
+   */
+  private static void appendHex( final StringBuilder aBuffer, final int aValue )
+  {
+    if ( ( aValue & ~0xffff ) != 0 )
+    {
+      aBuffer.append( Integer.toHexString( aValue ) );
+      return;
+    }
+    aBuffer.append( HEX_DIGITS[( aValue >> 12 ) & 0xf] );
+    aBuffer.append( HEX_DIGITS[( aValue >> 8 ) & 0xf] );
+    aBuffer.append( HEX_DIGITS[( aValue >> 4 ) & 0xf] );
+    aBuffer.append( HEX_DIGITS[aValue & 0xf] );
+  }
+
+  /**
+   * Creates the direct lookup table for all 16-bit instruction words.
+   */
+  private static short[] createDispatchTable()
+  {
+    // The last entry of the opcode table denotes an unknown instruction...
+    final int unknownIdx = hp9845Table.length - 1;
+
+    final short[] result = new short[0x10000];
+    Arrays.fill( result, ( short )unknownIdx );
+
+    // Walk the table backwards, so the first matching entry wins...
+    for ( int i = unknownIdx - 1; i >= 0; i-- )
+    {
+      final Asm45OpcodeTable op = hp9845Table[i];
+      if ( ( op.getOpcode() & ~op.getMask() ) != 0 )
+      {
+        // Can never match...
+        continue;
+      }
+
+      // Enumerate all combinations of the operand/variant bits...
+      final int variantBits = ~op.getMask() & 0xffff;
+      int variant = variantBits;
+      do
+      {
+        result[op.getOpcode() | variant] = ( short )i;
+        variant = ( variant - 1 ) & variantBits;
+      }
+      while ( variant != variantBits );
+    }
+
+    return result;
+  }
+
+  /**
+   * Returns the 6-bit signed skip field of the given instruction word.
+   */
+  private static int getSkipOffset( final int aOpcode )
+  {
+    int operand = aOpcode & 0x003f;
+    if ( ( aOpcode & 0x0020 ) != 0 )
+    {
+      operand -= 0x0040;
+    }
+    return operand;
+  }
+
   /**
    * Asm45 bus decoder core routine.
+   * <p>
+   * The bus cycles are decoded in parallel for large captures, as the decoding
+   * state only depends on the samples since the start of the current memory
+   * cycle.
+   * </p>
    * 
    * @see javax.swing.SwingWorker#doInBackground()
    */
@@ -261,148 +700,62 @@ public class Asm45AnalyserTask implements ToolTask<Asm45DataSet>
     int startOfDecode = this.context.getStartSampleIndex();
     int endOfDecode = this.context.getEndSampleIndex();
 
-    int control; // 16 IDA bus control signals (includes BSC lines)
-    int ida; // 16 IDA bus address/data lines
-
     final Asm45DataSet asm45DataSet = new Asm45DataSet( startOfDecode, endOfDecode, data );
 
-    int idx = asm45DataSet.getStartOfDecode();
-    int startIdx = 0;
-
-    int status = 0; // last control lines status
+    final int first = asm45DataSet.getStartOfDecode();
+    final int last = Math.max( first, asm45DataSet.getEndOfDecode() - 1 );
 
-    int clocks = 0; // system clocks consumed for the last instruction
-    int block = 0; // 6-bit block address
-    int address = 0; // 16-bit address within memory block
-    boolean busGrant = false; // bus grant for DMA, CRT cycle steeling etc.
+    final int[] bounds = getShardBounds( values, first, last );
+    final int shardCount = bounds.length - 1;
 
-    String type = Asm45Data.TYPE_INSTRUCTION; // type of decoded event
-    String event = "???"; // event description (mnemonic etc.)
-
-    /*
-     * Loop over the acquisition data
-     */
-    for ( ; idx < ( asm45DataSet.getEndOfDecode() - 1 ); idx++ )
+    final List<BusEvents> shards = new ArrayList<BusEvents>( shardCount );
+    if ( shardCount == 1 )
     {
-      final int dataValue = values[idx];
-
-      control = dataValue & 0xffff0000;
-      ida = ( ~dataValue & 0x0000ffff );
-      clocks++;
-
-      // start memory cycle
-      if ( ( ( status & this.lineSTMmask ) != 0 ) && ( ( control & this.lineSTMmask ) == 0 ) )
+      shards.add( new BusCycleDecoder( values, first, last, 0 ).decode( true /* aReportProgress */) );
+    }
+    else
+    {
+      final List<FutureTask<BusEvents>> futures = new ArrayList<FutureTask<BusEvents>>( shardCount );
+      for ( int i = 0; i < shardCount; i++ )
       {
-        startIdx = idx;
-        address = ida;
-        block = ( ( ( ~control ) >> 16 ) & 0x3f );
+        final int from = bounds[i];
+        final int status = ( i == 0 ) ? 0 : ( values[from - 1] & CONTROL_MASK );
+        futures.add( submit( new BusCycleDecoder( values, from, bounds[i + 1], status ) ) );
       }
 
-      // memory cycle complete
-      if ( ( ( status & this.lineSMCmask ) == 0 ) && ( ( control & this.lineSMCmask ) != 0 ) )
+      try
       {
-        // filter bus grants (like DMA or CRT cycle stealing)
-        if ( ( ( status & this.lineEBGmask ) != 0 ) && ( ( control & this.lineEBGmask ) == 0 ) )
-        {
-          busGrant = true;
-          if ( ( status & this.lineBYTEmask ) == 0 )
-          {
-            type = Asm45Data.TYPE_DATA_WORD;
-          }
-          else if ( ( status & this.lineBLmask ) == 0 )
-          {
-            type = Asm45Data.TYPE_DATA_BYTE_RIGHT;
-          }
-          else
-          {
-            type = Asm45Data.TYPE_DATA_BYTE_LEFT;
-          }
-          if ( ( status & this.lineWRTmask ) != 0 )
-          {
-            if ( address < 32 )
-            {
-              event = Asm45AnalyserTask.registers[address] + String.format( "&rarr;$%04x", ida );
-            }
-            else
-            {
-              event = String.format( "%04x&rarr;$%04x", address, ida );
-            }
-          }
-          else
-          {
-            if ( address < 32 )
-            {
-              event = Asm45AnalyserTask.registers[address] + String.format( "&larr;$%04x", ida );
-            }
-            else
-            {
-              event = String.format( "%04x&larr;$%04x", address, ida );
-            }
-          }
-        }
-        else
+        for ( int i = 0; i < shardCount; i++ )
         {
-          busGrant = false;
-          if ( ( status & this.lineSYNCmask ) != 0 )
-          {
-            // instruction fetch
-            type = Asm45Data.TYPE_INSTRUCTION;
-            event = word2asm( address, ida );
-          }
-          else
-          {
-            // data transfer
-            if ( ( status & this.lineBYTEmask ) == 0 )
-            {
-              type = Asm45Data.TYPE_DATA_WORD;
-            }
-            else if ( ( status & this.lineBLmask ) == 0 )
-            {
-              type = Asm45Data.TYPE_DATA_BYTE_RIGHT;
-            }
-            else
-            {
-              type = Asm45Data.TYPE_DATA_BYTE_LEFT;
-            }
-            if ( ( status & this.lineWRTmask ) != 0 )
-            {
-              if ( address < 32 )
-              {
-                event = Asm45AnalyserTask.registers[address] + String.format( "&rarr;$%04x", ida );
-              }
-              else
-              {
-                event = String.format( "%04x&rarr;$%04x", address, ida );
-              }
-            }
-            else
-            {
-              if ( address < 32 )
-              {
-                event = Asm45AnalyserTask.registers[address] + String.format( "&larr;$%04x", ida );
-              }
-              else
-              {
-                event = String.format( "%04x&larr;$%04x", address, ida );
-              }
-            }
-          }
-        }
+          final FutureTask<BusEvents> future = futures.get( i );
+          // Decode the part ourselves if no worker picked it up (yet)...
+          future.run();
 
-        // report the requested event
-        if ( ( ( type == Asm45Data.TYPE_INSTRUCTION ) && this.reportInst )
-            || ( !busGrant
-                && ( ( type == Asm45Data.TYPE_DATA_WORD ) || ( type == Asm45Data.TYPE_DATA_BYTE_LEFT ) || ( type == Asm45Data.TYPE_DATA_BYTE_RIGHT ) ) && this.reportData )
-            || ( busGrant && this.reportBusGrants ) )
+          shards.add( future.get() );
+          this.progressListener.setProgress( getPercentage( i + 1, shardCount ) );
+        }
+      }
+      finally
+      {
+        for ( FutureTask<BusEvents> future : futures )
         {
-          reportEvent( asm45DataSet, startIdx, idx, clocks, block, address, ida, busGrant, type, event );
-          clocks = 0;
+          future.cancel( true );
         }
       }
+    }
 
-      status = control;
-
-      this.progressListener.setProgress( getPercentage( idx, startOfDecode, endOfDecode ) );
+    // report the decoded events in order; the clocks consumed by an event are
+    // counted from the previous reported event...
+    int lastReportedIdx = first - 1;
+    for ( BusEvents events : shards )
+    {
+      for ( int i = 0; i < events.size; i++ )
+      {
+        final int endIdx = events.endIdx[i];
+        reportEvent( asm45DataSet, events.startIdx[i], endIdx, endIdx - lastReportedIdx, events.block[i],
+            events.address[i], events.value[i], events.busGrant[i], events.type[i], events.event[i] );
+        lastReportedIdx = endIdx;
+      }
     }
 
     return asm45DataSet;
@@ -489,6 +842,40 @@ public class Asm45AnalyserTask implements ToolTask<Asm45DataSet>
     this.reportInst = aReportInst;
   }
 
+  /**
+   * Sets the number of samples that is at least decoded by a single worker.
+   * 
+   * @param aMinShardSize
+   *          the minimal number of samples, > 0.
+   */
+  final void setMinimumShardSize( final int aMinShardSize )
+  {
+    this.minShardSize = Math.max( 1, aMinShardSize );
+  }
+
+  /**
+   * Sets the task execution service to decode the parts of the data with.
+   * 
+   * @param aTaskExecutionService
+   *          the task execution service to use, can be <code>null</code> in
+   *          which case all parts are decoded by the calling thread.
+   */
+  public void setTaskExecutionService( final TaskExecutionService aTaskExecutionService )
+  {
+    this.taskExecutionService = aTaskExecutionService;
+  }
+
+  /**
+   * Sets the number of workers to decode with.
+   * 
+   * @param aParallelism
+   *          the number of workers, > 0.
+   */
+  final void setParallelism( final int aParallelism )
+  {
+    this.parallelism = Math.max( 1, aParallelism );
+  }
+
   /**
    * decode event
    * 
@@ -498,189 +885,100 @@ public class Asm45AnalyserTask implements ToolTask<Asm45DataSet>
    */
   protected String word2asm( final int address, final int opcode )
   {
-    int operand;
-    int count;
-    int timing = 0;
-    int i = 0;
-    Asm45OpcodeTable op = hp9845Table[0];
-    String ret_string = "";
-
-    /* get mnemonic */
-    while ( op.getMnemonic() != null )
-    {
-      if ( ( opcode & op.getMask() ) == op.getOpcode() )
-      {
-        break;
-      }
-      i++;
-      op = hp9845Table[i];
-    }
-
-    /* if match, write mnemonic - else return */
-    if ( op.getMnemonic() == null )
-    {
-      return "???";
-    }
+    final StringBuilder sb = new StringBuilder( 24 );
+    appendInstruction( sb, address, opcode );
+    return sb.toString();
+  }
 
-    ret_string = op.getMnemonic();
-    timing = op.getTiming();
+  /**
+   * Offers the decoding of a part of the data to the task execution service,
+   * if available.
+   * 
+   * @return the decoding of the part, to be run by the caller if no worker
+   *         picked it up, never <code>null</code>.
+   */
+  private FutureTask<BusEvents> submit( final BusCycleDecoder aDecoder )
+  {
+    final FutureTask<BusEvents> result = new FutureTask<BusEvents>( aDecoder );
 
-    switch ( op.getMode() )
+    final TaskExecutionService service = this.taskExecutionService;
+    if ( service != null )
     {
-      case 0:
-        /* no operands (full width opcode) */
-        /* note: timing for EMC mantissa & arithmetics depends on actual data */
-        break;
-
-      case 1:
-        /*
-         * 10-bit memory reference w/ or w/o indirection and/or base page
-         * reference
-         */
-        operand = opcode & 0x03ff;
-        if ( ( opcode & 0x0200 ) != 0 )
-        {
-          operand -= 0x0400;
-        }
-        if ( ( opcode & 0x0400 ) != 0 )
-        {
-          /* current page */
-          ret_string += String.format( " %04x", address + operand );
-        }
-        else
-        {
-          /* base page */
-          if ( operand < 0 )
-          {
-            ret_string += String.format( " %04x", 0x10000 + operand );
-          }
-          else
-          {
-            if ( operand < 32 )
-            {
-              ret_string += String.format( " %s", registers[operand] );
-            }
-            else
-            {
-              ret_string += String.format( " %04x", operand );
-            }
-          }
-        }
-
-        /* indirect addressing */
-        if ( ( opcode & 0x8000 ) != 0 )
-        {
-          timing += 6;
-          ret_string += ",I";
-        }
-
-        /* base page reference */
-        if ( ( opcode & 0x0400 ) == 0 )
-        {
-          if ( ( operand < 0 ) || ( operand > 31 ) )
-          {
-            ret_string += " [B]";
-          }
-        }
-        break;
-
-      case 2: /* 5-bit register (for EXE) */
-        operand = opcode & 0x001f;
-        ret_string += String.format( " %s", registers[operand] );
-        if ( ( opcode & 0x8000 ) != 0 )
-        {
-          timing += 6;
-          ret_string += ",I";
-        }
-        break;
-
-      case 3: /* 6-bit signed skip field */
-        operand = opcode & 0x003f;
-        if ( ( opcode & 0x0020 ) != 0 )
+      service.execute( new ScheduledTask<Void>()
+      {
+        @Override
+        public Void call() throws Exception
         {
-          operand -= 0x0040;
+          // Does nothing if the caller already started (or cancelled) it...
+          result.run();
+          return null;
         }
-        ret_string += String.format( " *+%d [%04x]", operand, address + operand );
-        break;
 
-      case 4:
-        /* 6-bit signed skip field with hold/change and clear/set */
-        operand = opcode & 0x003f;
-        if ( ( opcode & 0x0020 ) != 0 )
+        @Override
+        public Object getGroup()
         {
-          operand -= 0x0040;
+          return null;
         }
-        ret_string += String.format( " *+%d", operand );
 
-        if ( ( opcode & 0x0080 ) != 0 )
+        @Override
+        public TaskPriority getPriority()
         {
-          if ( ( opcode & 0x0040 ) != 0 )
-          {
-            ret_string += ",S";
-          }
-          else
-          {
-            ret_string += ",C";
-          }
+          return TaskPriority.BATCH;
         }
+      } );
+    }
 
-        ret_string += String.format( " [%04x]", address + operand );
+    return result;
+  }
 
-        break;
+  /**
+   * Splits the given range of samples in parts that can be decoded
+   * independently of each other.
+   * 
+   * @return the bounds of the parts, the first being the start and the last
+   *         being the end of the given range.
+   */
+  private int[] getShardBounds( final int[] aValues, final int aFrom, final int aTo )
+  {
+    final int length = aTo - aFrom;
+    final int shardCount = Math.min( this.parallelism * 4, length / this.minShardSize );
+    if ( ( this.parallelism == 1 ) || ( shardCount <= 1 ) )
+    {
+      return new int[] { aFrom, aTo };
+    }
 
-      case 5:
-        /*
-         * 6-bit signed skip field w/ or w/o pop the IOC's PA stack (for RET)
-         */
-        operand = opcode & 0x3f;
-        if ( ( opcode & 0x20 ) != 0 )
-        {
-          operand -= 0x0040;
-        }
-        ret_string += String.format( " %d", operand );
-        if ( ( opcode & 0x40 ) != 0 )
-        {
-          ret_string += ",P";
-        }
-        break;
+    final int[] bounds = new int[shardCount + 1];
+    int count = 0;
+    bounds[count++] = aFrom;
 
-      case 6:
-        /* 4-bit count */
-        count = ( opcode & 0xf ) + 1;
-        ret_string += String.format( " %d", count );
-        if ( ( opcode & 0xfff0 ) == 0x7380 )
-        {
-          timing += count * 6; /* CLR */
-        }
-        else if ( ( opcode & 0xfff0 ) == 0x7380 )
-        {
-          timing += count * 12; /* XFR */
-        }
-        else
-        {
-          timing += count; /* all others */
-        }
-        break;
-
-      case 7:
-        /* 3-bit register with increment/decrement */
-        operand = opcode & 0x7;
-        ret_string += String.format( " %s", Asm45AnalyserTask.registers[operand] );
-        if ( ( opcode & 0x0080 ) != 0 )
-        {
-          ret_string += ",D";
-        }
-        else
-        {
-          ret_string += ",I";
-        }
+    for ( int i = 1; i < shardCount; i++ )
+    {
+      int idx = Math.max( bounds[count - 1] + 1, aFrom + ( int )( ( ( long )length * i ) / shardCount ) );
+      // A part should start at the start of a memory cycle, which resets the
+      // decoding state...
+      while ( ( idx < aTo ) && !isStartOfMemoryCycle( aValues, idx ) )
+      {
+        idx++;
+      }
+      if ( idx >= aTo )
+      {
         break;
+      }
+      bounds[count++] = idx;
     }
 
-    // TODO
-    assert timing >= 0;
+    bounds[count++] = aTo;
+    return Arrays.copyOf( bounds, count );
+  }
 
-    return ret_string;
+  /**
+   * @return <code>true</code> if a memory cycle starts at the given index,
+   *         <code>false</code> otherwise.
+   */
+  private boolean isStartOfMemoryCycle( final int[] aValues, final int aIdx )
+  {
+    final int mask = this.lineSTMmask & CONTROL_MASK;
+    return ( ( aValues[aIdx - 1] & mask ) != 0 ) && ( ( aValues[aIdx] & mask ) == 0 );
   }
 
   /**
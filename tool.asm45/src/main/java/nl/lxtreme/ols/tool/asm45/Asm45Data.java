@@ -33,6 +33,8 @@ public final class Asm45Data extends BaseData<Asm45Data>
 {
   // CONSTANTS
 
+  private static final long serialVersionUID = 1L;
+
   public static final String TYPE_INSTRUCTION = "I";
   public static final String TYPE_DATA_WORD = "DW";
   public static final String TYPE_DATA_BYTE_LEFT = "DBL";
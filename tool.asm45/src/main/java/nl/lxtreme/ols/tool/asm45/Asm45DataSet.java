@@ -32,6 +32,8 @@ public final class Asm45DataSet extends BaseDataSet<Asm45Data>
 {
   // CONSTANTS
 
+  private static final long serialVersionUID = 1L;
+
   // VARIABLES
 
   private int decodedWords;
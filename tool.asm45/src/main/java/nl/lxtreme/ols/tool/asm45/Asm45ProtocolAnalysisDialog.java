@@ -245,6 +245,7 @@ ExportAware<Asm45DataSet>
     toolTask.setReportInst( this.showInst.isSelected() );
     toolTask.setReportData( this.showData.isSelected() );
     toolTask.setReportBusGrants( this.showBusGrants.isSelected() );
+    toolTask.setTaskExecutionService( getTaskExecutionService() );
   }
 
   /**
@@ -25,9 +25,11 @@ import static org.junit.Assert.*;
 
 import java.net.*;
 import java.util.*;
+import java.util.concurrent.*;
 
 import nl.lxtreme.ols.api.acquisition.*;
 import nl.lxtreme.ols.api.data.annotation.AnnotationListener;
+import nl.lxtreme.ols.api.task.*;
 import nl.lxtreme.ols.api.tools.*;
 import nl.lxtreme.ols.test.*;
 import nl.lxtreme.ols.test.data.*;
@@ -129,6 +131,35 @@ public class Asm45AnalyserWorkerDataFilesTest
     assertDataCount( result, this.expectedEventCount );
   }
 
+  /**
+   * Tests that decoding the data file in parallel yields the very same events
+   * as decoding it sequentially.
+   */
+  @Test
+  public void testParallelDecodingYieldsSameEvents() throws Exception
+  {
+    Asm45DataSet expected = analyseDataFile( this.resourceName, 1 /* aParallelism */);
+    Asm45DataSet result = analyseDataFile( this.resourceName, 4 /* aParallelism */);
+
+    List<Asm45Data> expectedEvents = expected.getData();
+    List<Asm45Data> events = result.getData();
+    assertEquals( expectedEvents.size(), events.size() );
+
+    for ( int i = 0; i < expectedEvents.size(); i++ )
+    {
+      Asm45Data expectedEvent = expectedEvents.get( i );
+      Asm45Data event = events.get( i );
+
+      assertEquals( expectedEvent.getStartSampleIndex(), event.getStartSampleIndex() );
+      assertEquals( expectedEvent.getEndSampleIndex(), event.getEndSampleIndex() );
+      assertEquals( expectedEvent.getClocks(), event.getClocks() );
+      assertEquals( expectedEvent.getAddress(), event.getAddress() );
+      assertEquals( expectedEvent.getValue(), event.getValue() );
+      assertEquals( expectedEvent.getType(), event.getType() );
+      assertEquals( expectedEvent.getEvent(), event.getEvent() );
+    }
+  }
+
   /**
    * Analyses the data file identified by the given resource name.
    * 
@@ -140,6 +171,24 @@ public class Asm45AnalyserWorkerDataFilesTest
    *           in case of exceptions.
    */
   private Asm45DataSet analyseDataFile( final String aResourceName ) throws Exception
+  {
+    return analyseDataFile( aResourceName, 1 /* aParallelism */);
+  }
+
+  /**
+   * Analyses the data file identified by the given resource name with a given
+   * number of workers.
+   * 
+   * @param aResourceName
+   *          the name of the resource (= data file) to analyse, cannot be
+   *          <code>null</code>;
+   * @param aParallelism
+   *          the number of workers to decode with, > 0.
+   * @return the analysis results, never <code>null</code>.
+   * @throws Exception
+   *           in case of exceptions.
+   */
+  private Asm45DataSet analyseDataFile( final String aResourceName, final int aParallelism ) throws Exception
   {
     URL resource = ResourceUtils.getResource( getClass(), aResourceName );
     AcquisitionResult container = DataTestUtils.getCapturedData( resource );
@@ -159,12 +208,41 @@ public class Asm45AnalyserWorkerDataFilesTest
     worker.setReportInst( this.decodeInstructions );
     worker.setReportData( this.decodeDataTransfers );
     worker.setReportBusGrants( this.decodeBusGrants );
-
-    // Simulate we're running in a separate thread by directly calling the main
-    // working routine...
-    Asm45DataSet result = worker.call();
-    assertNotNull( result );
-
-    return result;
+    worker.setParallelism( aParallelism );
+    // Use tiny parts to have lots of them when decoding in parallel...
+    worker.setMinimumShardSize( 64 );
+
+    final ExecutorService executor = Executors.newFixedThreadPool( aParallelism );
+    if ( aParallelism > 1 )
+    {
+      worker.setTaskExecutionService( new TaskExecutionService()
+      {
+        @Override
+        public int cancelGroup( final Object aGroup )
+        {
+          return 0;
+        }
+
+        @Override
+        public <RESULT_TYPE> Future<RESULT_TYPE> execute( final Task<RESULT_TYPE> aTask )
+        {
+          return executor.submit( aTask );
+        }
+      } );
+    }
+
+    try
+    {
+      // Simulate we're running in a separate thread by directly calling the
+      // main working routine...
+      Asm45DataSet result = worker.call();
+      assertNotNull( result );
+
+      return result;
+    }
+    finally
+    {
+      executor.shutdownNow();
+    }
   }
 }
@@ -0,0 +1,91 @@
+/*
+ * OpenBench LogicSniffer / SUMP project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ *
+ * Copyright (C) 2010-2011 - J.W. Janssen, http://www.lxtreme.nl
+ */
+package nl.lxtreme.ols.tool.asm45;
+
+
+import nl.lxtreme.ols.api.data.annotation.*;
+import nl.lxtreme.ols.api.tools.*;
+
+
+/**
+ * Provides access to the (package private) parts of the Asm45 analyser, for
+ * use in benchmarks.
+ */
+public final class Asm45Tasks
+{
+  // CONSTRUCTORS
+
+  /**
+   * Creates a new {@link Asm45Tasks} instance.
+   */
+  private Asm45Tasks()
+  {
+    // Not used.
+  }
+
+  // METHODS
+
+  /**
+   * Appends the disassembly of a single instruction word to the given buffer.
+   *
+   * @param aBuffer
+   *          the buffer to append to, cannot be <code>null</code>;
+   * @param aAddress
+   *          the address of the instruction;
+   * @param aOpcode
+   *          the instruction word to disassemble.
+   */
+  public static void appendInstruction( final StringBuilder aBuffer, final int aAddress, final int aOpcode )
+  {
+    Asm45AnalyserTask.appendInstruction( aBuffer, aAddress, aOpcode );
+  }
+
+  /**
+   * Creates an analyser task for the channel layout of the Asm45 test data,
+   * reporting instructions, data and bus grants.
+   *
+   * @param aContext
+   *          the tool context to analyse, cannot be <code>null</code>;
+   * @param aListener
+   *          the listener for progress and annotations, cannot be
+   *          <code>null</code>;
+   * @param aParallelism
+   *          the number of workers to decode with, > 0.
+   * @return a new task, never <code>null</code>.
+   */
+  public static <T extends ToolProgressListener & AnnotationListener> Asm45AnalyserTask createTask(
+      final ToolContext aContext, final T aListener, final int aParallelism )
+  {
+    final Asm45AnalyserTask task = new Asm45AnalyserTask( aContext, aListener, aListener );
+    task.setLineSMCIndex( 22 );
+    task.setLineSTMIndex( 23 );
+    task.setLineEBGIndex( 25 );
+    task.setLineBYTEIndex( 26 );
+    task.setLineBLIndex( 27 );
+    task.setLineWRTIndex( 29 );
+    task.setLineSYNCIndex( 30 );
+    task.setReportInst( true );
+    task.setReportData( true );
+    task.setReportBusGrants( true );
+    task.setParallelism( aParallelism );
+    return task;
+  }
+}
@@ -62,6 +62,7 @@ public abstract class BaseToolDialog<RESULT_TYPE> extends JFrame implements Tool
   private final TaskExecutionServiceTracker taskExecutionService;
   private final AnnotationListenerServiceTracker annotationListener;
   private final ToolProgressListenerServiceTracker toolProgressListener;
+  private final DecodeResultCache resultCache;
 
   private ServiceRegistration serviceReg;
   private volatile Future<RESULT_TYPE> toolFutureTask;
@@ -94,6 +95,7 @@ public abstract class BaseToolDialog<RESULT_TYPE> extends JFrame implements Tool
     this.taskExecutionService = new TaskExecutionServiceTracker( aBundleContext );
     this.annotationListener = new AnnotationListenerServiceTracker( aBundleContext );
     this.toolProgressListener = new ToolProgressListenerServiceTracker( aBundleContext );
+    this.resultCache = new DecodeResultCache( aBundleContext );
   }
 
   // METHODS
@@ -119,9 +121,13 @@ public abstract class BaseToolDialog<RESULT_TYPE> extends JFrame implements Tool
   @Override
   public final void close()
   {
+    // Do not leave any of our tasks running...
+    this.taskExecutionService.cancelGroup( this );
+
     this.taskExecutionService.close();
     this.annotationListener.close();
     this.toolProgressListener.close();
+    this.resultCache.close();
 
     try
     {
@@ -181,9 +187,17 @@ public abstract class BaseToolDialog<RESULT_TYPE> extends JFrame implements Tool
     boolean settingsValid = validateToolSettings();
     if ( settingsValid )
     {
-      this.toolTask = this.tool.createToolTask( this.context, this.toolProgressListener, this.annotationListener );
-      prepareToolTask( this.toolTask );
+      // Record the annotations of the tool, allowing them to be cached...
+      final DecodeResultCache.AnnotationRecorder recorder = new DecodeResultCache.AnnotationRecorder(
+          this.annotationListener );
+
+      final ToolTask<RESULT_TYPE> task = this.tool.createToolTask( this.context, this.toolProgressListener, recorder );
+      prepareToolTask( task );
+
+      final long configurationHash = DecodeResultCache.getConfigurationHash( this.context, this );
 
+      this.toolTask = new CachingToolTask<RESULT_TYPE>( task, this.context, this.resultCache, this.tool.getClass()
+          .getName(), configurationHash, recorder, this.toolProgressListener, this );
       this.toolFutureTask = this.taskExecutionService.execute( this.toolTask );
     }
     return settingsValid;
@@ -200,6 +214,7 @@ public abstract class BaseToolDialog<RESULT_TYPE> extends JFrame implements Tool
     this.taskExecutionService.open();
     this.annotationListener.open();
     this.toolProgressListener.open();
+    this.resultCache.open();
 
     onBeforeShowDialog();
 
@@ -294,6 +309,16 @@ public abstract class BaseToolDialog<RESULT_TYPE> extends JFrame implements Tool
     return this.bundleContext;
   }
 
+  /**
+   * Returns the task execution service this dialog runs its tool with.
+   *
+   * @return the task execution service, never <code>null</code>.
+   */
+  protected final TaskExecutionService getTaskExecutionService()
+  {
+    return this.taskExecutionService;
+  }
+
   /**
    * Returns the acquisition result data.
    *
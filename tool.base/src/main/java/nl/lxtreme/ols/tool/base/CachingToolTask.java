@@ -0,0 +1,135 @@
+/*
+ * OpenBench LogicSniffer / SUMP project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ *
+ * Copyright (C) 2010-2011 - J.W. Janssen, http://www.lxtreme.nl
+ */
+package nl.lxtreme.ols.tool.base;
+
+
+import nl.lxtreme.ols.api.acquisition.*;
+import nl.lxtreme.ols.api.task.*;
+import nl.lxtreme.ols.api.tools.*;
+import nl.lxtreme.ols.tool.base.DecodeResultCache.AnnotationRecorder;
+
+
+/**
+ * Wraps a tool task, returning a cached result (and its annotations) in case
+ * the same captured data was already decoded using the same configuration.
+ * The task is scheduled as batch task, grouped by the tool dialog that
+ * invoked it.
+ */
+final class CachingToolTask<RESULT_TYPE> implements ToolTask<RESULT_TYPE>, ScheduledTask<RESULT_TYPE>
+{
+  // VARIABLES
+
+  private final ToolTask<RESULT_TYPE> task;
+  private final ToolContext context;
+  private final DecodeResultCache cache;
+  private final String toolName;
+  private final long configurationHash;
+  private final AnnotationRecorder recorder;
+  private final ToolProgressListener progressListener;
+  private final Object group;
+
+  // CONSTRUCTORS
+
+  /**
+   * Creates a new CachingToolTask instance.
+   * 
+   * @param aTask
+   *          the actual tool task, created with the given recorder as
+   *          annotation listener;
+   * @param aContext
+   *          the tool context;
+   * @param aCache
+   *          the cache to use;
+   * @param aToolName
+   *          the (unique) name of the tool;
+   * @param aConfigurationHash
+   *          the hash of the tool configuration;
+   * @param aRecorder
+   *          the recorder of the annotations of the actual tool task;
+   * @param aProgressListener
+   *          the progress listener;
+   * @param aGroup
+   *          the group of this task.
+   */
+  CachingToolTask( final ToolTask<RESULT_TYPE> aTask, final ToolContext aContext, final DecodeResultCache aCache,
+      final String aToolName, final long aConfigurationHash, final AnnotationRecorder aRecorder,
+      final ToolProgressListener aProgressListener, final Object aGroup )
+  {
+    this.task = aTask;
+    this.context = aContext;
+    this.cache = aCache;
+    this.toolName = aToolName;
+    this.configurationHash = aConfigurationHash;
+    this.recorder = aRecorder;
+    this.progressListener = aProgressListener;
+    this.group = aGroup;
+  }
+
+  // METHODS
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  @SuppressWarnings( "unchecked" )
+  public RESULT_TYPE call() throws Exception
+  {
+    final AcquisitionResult data = this.context.getData();
+    final String key = DecodeResultCache.createKey( this.toolName, this.configurationHash, data );
+
+    RESULT_TYPE result = ( RESULT_TYPE )this.cache.get( key, data, this.task.getClass(),
+        this.recorder.getDelegate() );
+    if ( result != null )
+    {
+      this.progressListener.setProgress( 100 );
+      return result;
+    }
+
+    result = this.task.call();
+
+    // Do not cache partial results of cancelled tasks...
+    if ( ( result != null ) && !Thread.currentThread().isInterrupted() )
+    {
+      this.cache.put( key, result, this.recorder );
+    }
+    return result;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public Object getGroup()
+  {
+    return this.group;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public TaskPriority getPriority()
+  {
+    return TaskPriority.BATCH;
+  }
+}
+
+/* EOF */
@@ -0,0 +1,755 @@
+/*
+ * OpenBench LogicSniffer / SUMP project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ *
+ * Copyright (C) 2010-2011 - J.W. Janssen, http://www.lxtreme.nl
+ */
+package nl.lxtreme.ols.tool.base;
+
+
+import java.io.*;
+import java.lang.ref.*;
+import java.math.*;
+import java.util.*;
+import java.util.logging.*;
+
+import nl.lxtreme.ols.api.*;
+import nl.lxtreme.ols.api.Configurable;
+import nl.lxtreme.ols.api.acquisition.*;
+import nl.lxtreme.ols.api.data.*;
+import nl.lxtreme.ols.api.data.annotation.*;
+import nl.lxtreme.ols.api.data.project.*;
+import nl.lxtreme.ols.api.tools.*;
+import nl.lxtreme.ols.tool.base.annotation.*;
+import nl.lxtreme.ols.util.osgi.*;
+
+import org.osgi.framework.*;
+
+
+/**
+ * Provides a cache for the results of tools, keyed by a fingerprint of the
+ * captured data and the configuration of the tool.
+ * <p>
+ * Decode results are kept in memory, shared by all tools, and are stored in
+ * the current project as well, so they survive reopening a tool dialog or
+ * reloading the project. Along with a result, all annotations emitted while
+ * decoding it are stored, so these can be restored as well. Results that (or
+ * whose annotations) are not serializable are only kept in memory.
+ * </p>
+ * <p>
+ * As projects are shared, results stored in a project are untrusted input.
+ * They are only restored if they consist solely of the classes of the tool
+ * itself, the annotations and data set classes of OLS, and a small set of
+ * value classes, see {@link ResultInputStream}.
+ * </p>
+ * <p>
+ * Caching can be disabled by setting the system property
+ * {@value #PROPERTY_ENABLED} to <code>false</code>.
+ * </p>
+ */
+public final class DecodeResultCache
+{
+  // INNER TYPES
+
+  /**
+   * Provides an annotation listener that records all annotations (and
+   * clearings) before passing them on to another listener.
+   */
+  static final class AnnotationRecorder implements AnnotationListener
+  {
+    // VARIABLES
+
+    private final AnnotationListener delegate;
+    private final List<Object> events;
+
+    // CONSTRUCTORS
+
+    /**
+     * Creates a new AnnotationRecorder instance.
+     * 
+     * @param aDelegate
+     *          the listener to pass all annotations on to, cannot be
+     *          <code>null</code>.
+     */
+    AnnotationRecorder( final AnnotationListener aDelegate )
+    {
+      this.delegate = aDelegate;
+      this.events = new ArrayList<Object>();
+    }
+
+    // METHODS
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void clearAnnotations()
+    {
+      this.events.add( Integer.valueOf( CLEAR_ALL ) );
+      this.delegate.clearAnnotations();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void clearAnnotations( final int aChannelIdx )
+    {
+      this.events.add( Integer.valueOf( aChannelIdx ) );
+      this.delegate.clearAnnotations( aChannelIdx );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void onAnnotation( final Annotation<?> aAnnotation )
+    {
+      this.events.add( aAnnotation );
+      this.delegate.onAnnotation( aAnnotation );
+    }
+
+    /**
+     * @return the listener all annotations are passed on to, never
+     *         <code>null</code>.
+     */
+    AnnotationListener getDelegate()
+    {
+      return this.delegate;
+    }
+
+    /**
+     * @return a copy of all recorded events, never <code>null</code>.
+     */
+    List<Object> getEvents()
+    {
+      return new ArrayList<Object>( this.events );
+    }
+  }
+
+  /**
+   * Provides a cached decode result along with its annotations.
+   */
+  static final class Entry implements Serializable
+  {
+    // CONSTANTS
+
+    private static final long serialVersionUID = 1L;
+
+    // VARIABLES
+
+    final Object result;
+    /** either annotations or channel indexes denoting a clearing. */
+    final ArrayList<Object> events;
+
+    // CONSTRUCTORS
+
+    /**
+     * Creates a new Entry instance.
+     */
+    Entry( final Object aResult, final List<Object> aEvents )
+    {
+      this.result = aResult;
+      this.events = new ArrayList<Object>( aEvents );
+    }
+
+    // METHODS
+
+    /**
+     * Replays all recorded annotations to the given listener.
+     * 
+     * @param aListener
+     *          the listener to replay the annotations to, cannot be
+     *          <code>null</code>.
+     */
+    void replay( final AnnotationListener aListener )
+    {
+      for ( Object event : this.events )
+      {
+        if ( event instanceof Annotation<?> )
+        {
+          aListener.onAnnotation( ( Annotation<?> )event );
+        }
+        else
+        {
+          final int channelIdx = ( ( Integer )event ).intValue();
+          if ( channelIdx == CLEAR_ALL )
+          {
+            aListener.clearAnnotations();
+          }
+          else
+          {
+            aListener.clearAnnotations( channelIdx );
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * Provides an object input stream that only resolves the classes that can
+   * be part of a stored decode result, and refuses all others.
+   */
+  static final class ResultInputStream extends ObjectInputStream
+  {
+    // CONSTANTS
+
+    /** The classes, other than those of the tool, a result can consist of. */
+    private static final Set<String> ALLOWED_CLASSES = new HashSet<String>( Arrays.asList( Entry.class.getName(),
+        BaseDataSet.class.getName(), BaseData.class.getName(), SampleDataAnnotation.class.getName(),
+        ChannelLabelAnnotation.class.getName(), ArrayList.class.getName(), String.class.getName(),
+        Boolean.class.getName(), Byte.class.getName(), Character.class.getName(), Short.class.getName(),
+        Integer.class.getName(), Long.class.getName(), Float.class.getName(), Double.class.getName(),
+        Number.class.getName(), BigInteger.class.getName(), byte[].class.getName() /* of BigInteger */,
+        Enum.class.getName() ) );
+
+    // VARIABLES
+
+    private final ClassLoader toolClassLoader;
+    private final String toolPackage;
+
+    // CONSTRUCTORS
+
+    /**
+     * Creates a new ResultInputStream instance.
+     * 
+     * @param aInput
+     *          the input stream to read the serialized result from, cannot be
+     *          <code>null</code>;
+     * @param aToolClass
+     *          the class of the tool (task) whose result is read; only the
+     *          classes of its package (and sub-packages) are resolved, cannot
+     *          be <code>null</code>.
+     * @throws IOException
+     *           in case of I/O problems.
+     */
+    ResultInputStream( final InputStream aInput, final Class<?> aToolClass ) throws IOException
+    {
+      super( aInput );
+
+      this.toolClassLoader = aToolClass.getClassLoader();
+      final String name = aToolClass.getName();
+      this.toolPackage = name.substring( 0, name.lastIndexOf( '.' ) + 1 );
+    }
+
+    // METHODS
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected Class<?> resolveClass( final ObjectStreamClass aDesc ) throws IOException, ClassNotFoundException
+    {
+      final String name = aDesc.getName();
+      if ( ALLOWED_CLASSES.contains( name ) )
+      {
+        return Class.forName( name, false, DecodeResultCache.class.getClassLoader() );
+      }
+      if ( name.startsWith( this.toolPackage ) )
+      {
+        // Results are defined by the tool itself...
+        return Class.forName( name, false, this.toolClassLoader );
+      }
+      throw new InvalidClassException( name, "Not allowed in a stored decode result!" );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected Class<?> resolveProxyClass( final String[] aInterfaces ) throws IOException, ClassNotFoundException
+    {
+      throw new InvalidClassException( "Proxies are not allowed in a stored decode result!" );
+    }
+  }
+
+  /**
+   * Provides user settings that only keep track of all written settings, in
+   * order to obtain a hash of the configuration of a tool.
+   */
+  static final class SettingsDigest implements UserSettings
+  {
+    // CONSTANTS
+
+    private static final long serialVersionUID = 1L;
+
+    // VARIABLES
+
+    private final SortedMap<String, Object> settings = new TreeMap<String, Object>();
+
+    // METHODS
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String get( final String aName, final String aDefaultValue )
+    {
+      return aDefaultValue;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean getBoolean( final String aName, final boolean aDefaultValue )
+    {
+      return aDefaultValue;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getInt( final String aName, final int aDefaultValue )
+    {
+      return aDefaultValue;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getLong( final String aName, final long aDefaultValue )
+    {
+      return aDefaultValue;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getName()
+    {
+      return "digest";
+    }
+
+    /**
+     * Returns the hash of all settings written so far.
+     * 
+     * @param aSeed
+     *          the initial hash value.
+     * @return a hash value.
+     */
+    long getHash( final long aSeed )
+    {
+      long hash = aSeed;
+      for ( Map.Entry<String, Object> entry : this.settings.entrySet() )
+      {
+        hash = mix( hash, entry.getKey() );
+        hash = mix( hash, String.valueOf( entry.getValue() ) );
+      }
+      return hash;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Iterator<Map.Entry<String, Object>> iterator()
+    {
+      return Collections.unmodifiableMap( this.settings ).entrySet().iterator();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void put( final String aName, final String aValue )
+    {
+      this.settings.put( aName, aValue );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void putAll( final Map<?, ?> aSettings )
+    {
+      for ( Map.Entry<?, ?> entry : aSettings.entrySet() )
+      {
+        this.settings.put( String.valueOf( entry.getKey() ), entry.getValue() );
+      }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void putBoolean( final String aName, final boolean aValue )
+    {
+      this.settings.put( aName, Boolean.valueOf( aValue ) );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void putInt( final String aName, final int aValue )
+    {
+      this.settings.put( aName, Integer.valueOf( aValue ) );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void putLong( final String aName, final long aValue )
+    {
+      this.settings.put( aName, Long.valueOf( aValue ) );
+    }
+  }
+
+  // CONSTANTS
+
+  /** The system property to enable or disable caching with. */
+  public static final String PROPERTY_ENABLED = "nl.lxtreme.ols.decode.cache";
+
+  private static final Logger LOG = Logger.getLogger( DecodeResultCache.class.getName() );
+
+  /** The maximum number of decode results kept in memory. */
+  private static final int MAX_ENTRIES = 32;
+  /** Denotes the clearing of all annotations in a recording. */
+  private static final int CLEAR_ALL = -1;
+
+  private static final long SEED = 0xcbf29ce484222325L;
+  private static final long MULTIPLIER = 0x9e3779b97f4a7c15L;
+
+  /** The decode results, shared by all tools, in least recently used order. */
+  private static final Map<String, SoftReference<Entry>> ENTRIES = new LinkedHashMap<String, SoftReference<Entry>>(
+      MAX_ENTRIES, 0.75f, true /* accessOrder */)
+  {
+    private static final long serialVersionUID = 1L;
+
+    @Override
+    protected boolean removeEldestEntry( final Map.Entry<String, SoftReference<Entry>> aEldest )
+    {
+      return size() > MAX_ENTRIES;
+    }
+  };
+
+  /** The fingerprints of all captured data seen so far. */
+  private static final Map<AcquisitionResult, Long> FINGERPRINTS = Collections
+      .synchronizedMap( new WeakHashMap<AcquisitionResult, Long>() );
+
+  // VARIABLES
+
+  private final WhiteboardHelper<ProjectManager> projectManagerHelper;
+
+  // CONSTRUCTORS
+
+  /**
+   * Creates a new {@link DecodeResultCache} instance.
+   * 
+   * @param aContext
+   *          the bundle context to use for obtaining the current project,
+   *          cannot be <code>null</code>.
+   */
+  public DecodeResultCache( final BundleContext aContext )
+  {
+    this.projectManagerHelper = new WhiteboardHelper<ProjectManager>( aContext, ProjectManager.class );
+  }
+
+  // METHODS
+
+  /**
+   * Creates the key for the decode result of a tool.
+   * 
+   * @param aToolName
+   *          the (unique) name of the tool, cannot be <code>null</code>;
+   * @param aConfigurationHash
+   *          the hash of the tool configuration, see
+   *          {@link #getConfigurationHash(ToolContext, Configurable)};
+   * @param aData
+   *          the captured data that is decoded, cannot be <code>null</code>.
+   * @return a key, never <code>null</code>.
+   */
+  public static String createKey( final String aToolName, final long aConfigurationHash, final AcquisitionResult aData )
+  {
+    return String.format( "%s-%016x-%016x", aToolName, Long.valueOf( getFingerprint( aData ) ),
+        Long.valueOf( aConfigurationHash ) );
+  }
+
+  /**
+   * Returns a hash of the configuration of a tool.
+   * <p>
+   * This method should be called on the EDT, as the configuration is obtained
+   * by letting the given configurable write its preferences.
+   * </p>
+   * 
+   * @param aContext
+   *          the tool context, cannot be <code>null</code>;
+   * @param aConfigurable
+   *          the configurable (tool dialog), cannot be <code>null</code>.
+   * @return a hash value.
+   */
+  public static long getConfigurationHash( final ToolContext aContext, final Configurable aConfigurable )
+  {
+    final SettingsDigest digest = new SettingsDigest();
+    aConfigurable.writePreferences( digest );
+
+    long hash = SEED;
+    hash = mix( hash, aContext.getStartSampleIndex() );
+    hash = mix( hash, aContext.getEndSampleIndex() );
+    hash = mix( hash, aContext.getChannels() );
+    hash = mix( hash, aContext.getEnabledChannels() );
+    return digest.getHash( hash );
+  }
+
+  /**
+   * Returns a fingerprint of the given captured data, based on all of its
+   * sample values and timestamps.
+   * <p>
+   * The fingerprint is computed only once for each instance of captured data.
+   * </p>
+   * 
+   * @param aData
+   *          the captured data to return the fingerprint for, cannot be
+   *          <code>null</code>.
+   * @return a fingerprint.
+   */
+  public static long getFingerprint( final AcquisitionResult aData )
+  {
+    Long result = FINGERPRINTS.get( aData );
+    if ( result == null )
+    {
+      final int[] values = aData.getValues();
+
+      long hash = SEED;
+      hash = mix( hash, values.length );
+      hash = mix( hash, aData.getAbsoluteLength() );
+      hash = mix( hash, aData.getSampleRate() );
+      hash = mix( hash, aData.getTriggerPosition() );
+      hash = mix( hash, aData.getChannels() );
+      hash = mix( hash, aData.getEnabledChannels() );
+      for ( int i = 0; i < values.length; i++ )
+      {
+        // Reads compacted timestamps without decoding all of them...
+        hash = mix( mix( hash, values[i] ), aData.getTimestamp( i ) );
+      }
+
+      result = Long.valueOf( hash );
+      FINGERPRINTS.put( aData, result );
+    }
+    return result.longValue();
+  }
+
+  /**
+   * Returns whether caching of decode results is enabled.
+   * 
+   * @return <code>true</code> (the default) if caching is enabled,
+   *         <code>false</code> otherwise.
+   */
+  public static boolean isEnabled()
+  {
+    return Boolean.parseBoolean( System.getProperty( PROPERTY_ENABLED, "true" ) );
+  }
+
+  /**
+   * Mixes a value into a given hash.
+   */
+  private static long mix( final long aHash, final long aValue )
+  {
+    final long hash = ( aHash ^ aValue ) * MULTIPLIER;
+    return hash ^ ( hash >>> 32 );
+  }
+
+  /**
+   * Mixes a string into a given hash.
+   */
+  private static long mix( final long aHash, final String aValue )
+  {
+    long hash = mix( aHash, aValue.length() );
+    for ( int i = 0; i < aValue.length(); i++ )
+    {
+      hash = mix( hash, aValue.charAt( i ) );
+    }
+    return hash;
+  }
+
+  /**
+   * Closes this cache.
+   */
+  public void close()
+  {
+    try
+    {
+      this.projectManagerHelper.close();
+    }
+    catch ( IllegalStateException exception )
+    {
+      // Ignore; bundle context probably is incorrect...
+    }
+  }
+
+  /**
+   * Returns a cached decode result, replaying its annotations to the given
+   * listener.
+   * 
+   * @param aKey
+   *          the key of the decode result, cannot be <code>null</code>;
+   * @param aData
+   *          the captured data that is decoded, cannot be <code>null</code>;
+   * @param aToolClass
+   *          the class of the tool (task) that produced the decode result,
+   *          used for restoring a decode result stored in the current project,
+   *          cannot be <code>null</code>;
+   * @param aListener
+   *          the annotation listener to replay the annotations to, cannot be
+   *          <code>null</code>.
+   * @return the cached decode result, or <code>null</code> if no such result
+   *         is cached.
+   */
+  public Object get( final String aKey, final AcquisitionResult aData, final Class<?> aToolClass,
+      final AnnotationListener aListener )
+  {
+    if ( !isEnabled() )
+    {
+      return null;
+    }
+
+    Entry entry = getEntry( aKey );
+    if ( entry == null )
+    {
+      entry = loadEntry( aKey, aData, aToolClass );
+      if ( entry == null )
+      {
+        return null;
+      }
+      putEntry( aKey, entry );
+    }
+
+    entry.replay( aListener );
+    return entry.result;
+  }
+
+  /**
+   * Opens this cache for business.
+   */
+  public void open()
+  {
+    this.projectManagerHelper.open();
+  }
+
+  /**
+   * Caches a decode result along with its recorded annotations.
+   * 
+   * @param aKey
+   *          the key of the decode result, cannot be <code>null</code>;
+   * @param aResult
+   *          the decode result, cannot be <code>null</code>;
+   * @param aRecorder
+   *          the recorder of the annotations emitted while decoding, cannot be
+   *          <code>null</code>.
+   */
+  void put( final String aKey, final Object aResult, final AnnotationRecorder aRecorder )
+  {
+    if ( !isEnabled() )
+    {
+      return;
+    }
+
+    final Entry entry = new Entry( aResult, aRecorder.getEvents() );
+    putEntry( aKey, entry );
+
+    final Project project = getCurrentProject();
+    if ( project == null )
+    {
+      return;
+    }
+
+    try
+    {
+      final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+      final ObjectOutputStream oos = new ObjectOutputStream( baos );
+      oos.writeObject( entry );
+      oos.close();
+
+      project.putDecodeResult( aKey, baos.toByteArray() );
+    }
+    catch ( IOException exception )
+    {
+      // Not serializable; keep it in memory only...
+      LOG.log( Level.FINE, "Decode result not stored in project!", exception );
+    }
+  }
+
+  /**
+   * @return the current project, or <code>null</code> if there is none.
+   */
+  private Project getCurrentProject()
+  {
+    final ProjectManager projectManager = this.projectManagerHelper.getService();
+    return ( projectManager == null ) ? null : projectManager.getCurrentProject();
+  }
+
+  /**
+   * Returns the entry with the given key from memory.
+   */
+  private Entry getEntry( final String aKey )
+  {
+    synchronized ( ENTRIES )
+    {
+      final SoftReference<Entry> ref = ENTRIES.get( aKey );
+      return ( ref == null ) ? null : ref.get();
+    }
+  }
+
+  /**
+   * Restores the entry with the given key from the current project.
+   */
+  private Entry loadEntry( final String aKey, final AcquisitionResult aData, final Class<?> aToolClass )
+  {
+    final Project project = getCurrentProject();
+    final byte[] bytes = ( project == null ) ? null : project.getDecodeResult( aKey );
+    if ( bytes == null )
+    {
+      return null;
+    }
+
+    try
+    {
+      final ObjectInputStream ois = new ResultInputStream( new ByteArrayInputStream( bytes ), aToolClass );
+
+      final Entry entry = ( Entry )ois.readObject();
+      if ( entry.result instanceof BaseDataSet<?> )
+      {
+        ( ( BaseDataSet<?> )entry.result ).attach( aData );
+      }
+      return entry;
+    }
+    catch ( Exception exception )
+    {
+      // Probably stored by another version of the tool, or tampered with...
+      LOG.log( Level.FINE, "Failed to restore decode result from project!", exception );
+      return null;
+    }
+  }
+
+  /**
+   * Puts the given entry in memory.
+   */
+  private void putEntry( final String aKey, final Entry aEntry )
+  {
+    synchronized ( ENTRIES )
+    {
+      ENTRIES.put( aKey, new SoftReference<Entry>( aEntry ) );
+    }
+  }
+}
+
+/* EOF */
@@ -53,6 +53,20 @@ public class TaskExecutionServiceTracker implements TaskExecutionService
 
   // METHODS
 
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public int cancelGroup( final Object aGroup )
+  {
+    final TaskExecutionService service = this.taskExecutionServiceHelper.getService();
+    if ( service != null )
+    {
+      return service.cancelGroup( aGroup );
+    }
+    return 0;
+  }
+
   /**
    * Closes this task execution service.
    */
@@ -21,14 +21,20 @@
 package nl.lxtreme.ols.tool.base.annotation;
 
 
+import java.io.*;
+
 import nl.lxtreme.ols.api.data.annotation.*;
 
 
 /**
  * Provides an annotation that provides an annotation for a channel label.
  */
-public class ChannelLabelAnnotation implements Annotation<String>
+public class ChannelLabelAnnotation implements Annotation<String>, Serializable
 {
+  // CONSTANTS
+
+  private static final long serialVersionUID = 1L;
+
   // VARIABLES
 
   private final int channelIdx;
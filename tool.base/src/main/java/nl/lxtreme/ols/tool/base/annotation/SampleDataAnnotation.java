@@ -21,14 +21,20 @@
 package nl.lxtreme.ols.tool.base.annotation;
 
 
+import java.io.*;
+
 import nl.lxtreme.ols.api.data.annotation.*;
 
 
 /**
  * 
  */
-public class SampleDataAnnotation implements DataAnnotation<String>
+public class SampleDataAnnotation implements DataAnnotation<String>, Serializable
 {
+  // CONSTANTS
+
+  private static final long serialVersionUID = 1L;
+
   // VARIABLES
 
   private final int channelIdx;
@@ -0,0 +1,166 @@
+/*
+ * OpenBench LogicSniffer / SUMP project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ *
+ * Copyright (C) 2010-2011 - J.W. Janssen, http://www.lxtreme.nl
+ */
+package nl.lxtreme.ols.tool.base.scan;
+
+
+import static nl.lxtreme.ols.util.NumberUtils.*;
+
+import java.util.*;
+
+import nl.lxtreme.ols.api.acquisition.*;
+import nl.lxtreme.ols.api.tools.*;
+
+
+/**
+ * Scans the sample values of an acquisition result once, and feeds all
+ * registered {@link ScanDecoder}s with the transitions of their channels.
+ * <p>
+ * Running several decoders on the same data this way costs a single pass over
+ * the sample values, instead of one pass per decoder. Decoders are called in
+ * the order in which they are added.
+ * </p>
+ */
+public final class SampleScanner
+{
+  // CONSTANTS
+
+  /** The number of progress updates during a single scan. */
+  private static final int PROGRESS_STEPS = 100;
+
+  // VARIABLES
+
+  private final AcquisitionResult data;
+  private final List<ScanDecoder<?>> decoders;
+
+  // CONSTRUCTORS
+
+  /**
+   * Creates a new {@link SampleScanner} instance.
+   *
+   * @param aData
+   *          the data to scan, cannot be <code>null</code>.
+   */
+  public SampleScanner( final AcquisitionResult aData )
+  {
+    if ( aData == null )
+    {
+      throw new IllegalArgumentException( "Data cannot be null!" );
+    }
+    this.data = aData;
+    this.decoders = new ArrayList<ScanDecoder<?>>();
+  }
+
+  // METHODS
+
+  /**
+   * Adds a decoder to this scanner.
+   *
+   * @param aDecoder
+   *          the decoder to add, cannot be <code>null</code>.
+   */
+  public void addDecoder( final ScanDecoder<?> aDecoder )
+  {
+    if ( aDecoder == null )
+    {
+      throw new IllegalArgumentException( "Decoder cannot be null!" );
+    }
+    this.decoders.add( aDecoder );
+  }
+
+  /**
+   * Scans the sample values once, calling all decoders for the transitions of
+   * their channels.
+   *
+   * @param aProgressListener
+   *          the listener to report the progress of the scan to, cannot be
+   *          <code>null</code>.
+   */
+  public void scan( final ToolProgressListener aProgressListener )
+  {
+    final ScanDecoder<?>[] decoderArray = this.decoders.toArray( new ScanDecoder<?>[this.decoders.size()] );
+    final int count = decoderArray.length;
+
+    final int[] values = this.data.getValues();
+
+    final int[] masks = new int[count];
+    final int[] starts = new int[count];
+    final int[] ends = new int[count];
+
+    int combinedMask = 0;
+    int scanStart = values.length;
+    int scanEnd = 0;
+    for ( int i = 0; i < count; i++ )
+    {
+      masks[i] = decoderArray[i].getChannelMask();
+      starts[i] = Math.max( 0, decoderArray[i].getStartSampleIndex() );
+      ends[i] = Math.min( values.length, decoderArray[i].getEndSampleIndex() );
+
+      combinedMask |= masks[i];
+      scanStart = Math.min( scanStart, starts[i] );
+      scanEnd = Math.max( scanEnd, ends[i] );
+    }
+
+    for ( ScanDecoder<?> decoder : decoderArray )
+    {
+      decoder.scanStarted( this.data );
+    }
+
+    if ( scanStart < scanEnd )
+    {
+      final int progressStep = Math.max( 1, ( scanEnd - scanStart ) / PROGRESS_STEPS );
+      int nextProgress = scanStart + progressStep;
+
+      int previous = values[scanStart];
+      for ( int idx = scanStart + 1; idx < scanEnd; idx++ )
+      {
+        final int value = values[idx];
+        final int changed = ( previous ^ value ) & combinedMask;
+        previous = value;
+
+        if ( changed != 0 )
+        {
+          for ( int i = 0; i < count; i++ )
+          {
+            if ( ( ( changed & masks[i] ) != 0 ) && ( idx > starts[i] ) && ( idx < ends[i] ) )
+            {
+              decoderArray[i].onTransition( idx, value );
+            }
+          }
+        }
+
+        if ( idx >= nextProgress )
+        {
+          aProgressListener.setProgress( getPercentage( idx, scanStart, scanEnd ) );
+          nextProgress += progressStep;
+        }
+      }
+    }
+
+    for ( ScanDecoder<?> decoder : decoderArray )
+    {
+      decoder.scanEnded();
+    }
+
+    aProgressListener.setProgress( 100 );
+  }
+}
+
+/* EOF */
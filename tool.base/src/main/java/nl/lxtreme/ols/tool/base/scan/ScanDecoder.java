@@ -0,0 +1,97 @@
+/*
+ * OpenBench LogicSniffer / SUMP project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ *
+ * Copyright (C) 2010-2011 - J.W. Janssen, http://www.lxtreme.nl
+ */
+package nl.lxtreme.ols.tool.base.scan;
+
+
+import nl.lxtreme.ols.api.acquisition.*;
+
+
+/**
+ * Provides a protocol decoder that is driven by a {@link SampleScanner}.
+ * <p>
+ * Instead of walking all sample values itself, a scan decoder subscribes to
+ * the channels given by its channel mask and is only called for those samples
+ * at which at least one of these channels changes. This allows a single scan
+ * over the sample values to feed several decoders at once.
+ * </p>
+ *
+ * @param <RESULT_TYPE>
+ *          the type of the decoding result.
+ */
+public interface ScanDecoder<RESULT_TYPE>
+{
+  // METHODS
+
+  /**
+   * Returns the channels this decoder is interested in.
+   *
+   * @return a bitmask of channels, != 0.
+   */
+  int getChannelMask();
+
+  /**
+   * Returns the sample index (exclusive) at which decoding should end.
+   *
+   * @return a sample index, >= {@link #getStartSampleIndex()}.
+   */
+  int getEndSampleIndex();
+
+  /**
+   * Returns the result of the decoding, available after the scan is ended.
+   *
+   * @return the decoding result, can be <code>null</code>.
+   */
+  RESULT_TYPE getResult();
+
+  /**
+   * Returns the sample index (inclusive) at which decoding should start.
+   *
+   * @return a sample index, >= 0.
+   */
+  int getStartSampleIndex();
+
+  /**
+   * Called for each sample after the start sample index at which at least one
+   * of the channels of this decoder changes. The sample at the start sample
+   * index itself is never reported, it provides the initial state.
+   *
+   * @param aSampleIdx
+   *          the index of the changed sample;
+   * @param aValue
+   *          the (complete) sample value at the given index.
+   */
+  void onTransition( int aSampleIdx, int aValue );
+
+  /**
+   * Called once after all samples are scanned.
+   */
+  void scanEnded();
+
+  /**
+   * Called once before any sample is scanned.
+   *
+   * @param aData
+   *          the data that is to be scanned, cannot be <code>null</code>.
+   */
+  void scanStarted( AcquisitionResult aData );
+}
+
+/* EOF */
@@ -0,0 +1,47 @@
+/*
+ * OpenBench LogicSniffer / SUMP project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ *
+ * Copyright (C) 2010-2011 - J.W. Janssen, http://www.lxtreme.nl
+ */
+package nl.lxtreme.ols.tool.base.scan;
+
+
+/**
+ * Provides a tool task that can do its decoding by means of a
+ * {@link ScanDecoder}, allowing several of such tasks to share a single
+ * {@link SampleScanner}.
+ * 
+ * @param <RESULT_TYPE>
+ *          the type of the decoding result.
+ */
+public interface ScanDecoderProvider<RESULT_TYPE>
+{
+  // METHODS
+
+  /**
+   * Prepares the decoding and returns the decoder that does the actual
+   * decoding of the sample values.
+   * 
+   * @return a new scan decoder, never <code>null</code>.
+   * @throws IllegalStateException
+   *           in case the data cannot be decoded by this task.
+   */
+  ScanDecoder<RESULT_TYPE> createScanDecoder();
+}
+
+/* EOF */
@@ -0,0 +1,228 @@
+/*
+ * OpenBench LogicSniffer / SUMP project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ *
+ * Copyright (C) 2010-2011 - J.W. Janssen, http://www.lxtreme.nl
+ */
+package nl.lxtreme.ols.tool.base;
+
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+import java.io.*;
+import java.math.*;
+import java.util.*;
+
+import nl.lxtreme.ols.api.*;
+import nl.lxtreme.ols.api.Configurable;
+import nl.lxtreme.ols.api.acquisition.*;
+import nl.lxtreme.ols.api.data.*;
+import nl.lxtreme.ols.api.data.annotation.*;
+import nl.lxtreme.ols.api.tools.*;
+import nl.lxtreme.ols.tool.base.DecodeResultCache.AnnotationRecorder;
+import nl.lxtreme.ols.tool.base.DecodeResultCache.Entry;
+import nl.lxtreme.ols.tool.base.DecodeResultCache.ResultInputStream;
+import nl.lxtreme.ols.tool.base.annotation.*;
+
+import org.junit.*;
+import org.osgi.framework.*;
+
+
+/**
+ * Test cases for {@link DecodeResultCache}.
+ */
+public class DecodeResultCacheTest
+{
+  // INNER TYPES
+
+  static final class ToolResult implements Serializable
+  {
+    private static final long serialVersionUID = 1L;
+  }
+
+  // VARIABLES
+
+  private DecodeResultCache cache;
+
+  // METHODS
+
+  /**
+   * Set up for each test case.
+   */
+  @Before
+  public void setUp()
+  {
+    this.cache = new DecodeResultCache( mock( BundleContext.class ) );
+  }
+
+  /**
+   * Tests that a cached result is returned along with its annotations, which
+   * are replayed in the original order.
+   */
+  @Test
+  public void testCachedResultReplaysAnnotations()
+  {
+    final AcquisitionResult data = createData( 0 );
+    final String key = DecodeResultCache.createKey( "tool", 1L, data );
+
+    final AnnotationListener listener = mock( AnnotationListener.class );
+    final AnnotationRecorder recorder = new AnnotationRecorder( listener );
+    final ChannelLabelAnnotation label = new ChannelLabelAnnotation( 1, "SCL" );
+    recorder.clearAnnotations( 1 );
+    recorder.onAnnotation( label );
+
+    final Object result = new Object();
+    this.cache.put( key, result, recorder );
+
+    final AnnotationListener replayListener = mock( AnnotationListener.class );
+    assertSame( result, this.cache.get( key, data, getClass(), replayListener ) );
+    verify( replayListener ).clearAnnotations( 1 );
+    verify( replayListener ).onAnnotation( label );
+    verifyNoMoreInteractions( replayListener );
+
+    assertNull( this.cache.get( key + "x", data, getClass(), replayListener ) );
+  }
+
+  /**
+   * Tests that the configuration hash depends on both the settings and the
+   * decoding range.
+   */
+  @Test
+  public void testConfigurationHash()
+  {
+    final ToolContext context = mock( ToolContext.class );
+    when( Integer.valueOf( context.getEndSampleIndex() ) ).thenReturn( Integer.valueOf( 10 ) );
+
+    final long hash1 = DecodeResultCache.getConfigurationHash( context, createConfigurable( 1 ) );
+    assertEquals( hash1, DecodeResultCache.getConfigurationHash( context, createConfigurable( 1 ) ) );
+    assertTrue( hash1 != DecodeResultCache.getConfigurationHash( context, createConfigurable( 2 ) ) );
+
+    when( Integer.valueOf( context.getEndSampleIndex() ) ).thenReturn( Integer.valueOf( 11 ) );
+    assertTrue( hash1 != DecodeResultCache.getConfigurationHash( context, createConfigurable( 1 ) ) );
+  }
+
+  /**
+   * Tests that the fingerprint depends on the contents of the captured data,
+   * and not on its identity.
+   */
+  @Test
+  public void testFingerprint()
+  {
+    final long fingerprint = DecodeResultCache.getFingerprint( createData( 0 ) );
+    assertEquals( fingerprint, DecodeResultCache.getFingerprint( createData( 0 ) ) );
+    assertTrue( fingerprint != DecodeResultCache.getFingerprint( createData( 1 ) ) );
+  }
+
+  /**
+   * Tests that a stored result consisting of allowed classes is restored.
+   */
+  @Test
+  public void testReadAllowedResultOk() throws Exception
+  {
+    final List<Object> events = new ArrayList<Object>();
+    events.add( Integer.valueOf( 1 ) );
+    events.add( new ChannelLabelAnnotation( 1, "SCL" ) );
+
+    final Entry entry = readEntry( new Entry( BigInteger.TEN, events ), getClass() );
+    assertEquals( BigInteger.TEN, entry.result );
+    assertEquals( 2, entry.events.size() );
+  }
+
+  /**
+   * Tests that a stored result containing a class that is neither allowed nor
+   * part of the tool is refused.
+   */
+  @Test( expected = InvalidClassException.class )
+  public void testReadDisallowedResultFail() throws Exception
+  {
+    final HashMap<String, String> result = new HashMap<String, String>();
+    result.put( "key", "value" );
+
+    readEntry( new Entry( result, Collections.emptyList() ), getClass() );
+  }
+
+  /**
+   * Tests that a stored result containing a class of another tool is refused.
+   */
+  @Test( expected = InvalidClassException.class )
+  public void testReadOtherToolResultFail() throws Exception
+  {
+    final Entry entry = new Entry( new ToolResult(), Collections.emptyList() );
+    // Allowed for the tool itself...
+    assertNotNull( readEntry( entry, getClass() ).result );
+    // ...but not for another one...
+    readEntry( entry, Ols.class );
+  }
+
+  /**
+   * Serializes the given entry and reads it back as stored result of the given
+   * tool class.
+   */
+  private static Entry readEntry( final Entry aEntry, final Class<?> aToolClass ) throws Exception
+  {
+    final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+    final ObjectOutputStream oos = new ObjectOutputStream( baos );
+    oos.writeObject( aEntry );
+    oos.close();
+
+    final ObjectInputStream ois = new ResultInputStream( new ByteArrayInputStream( baos.toByteArray() ), aToolClass );
+    try
+    {
+      return ( Entry )ois.readObject();
+    }
+    finally
+    {
+      ois.close();
+    }
+  }
+
+  /**
+   * Creates a configurable that writes a single setting.
+   */
+  private static Configurable createConfigurable( final int aValue )
+  {
+    return new Configurable()
+    {
+      @Override
+      public void readPreferences( final UserSettings aSettings )
+      {
+        // Nothing
+      }
+
+      @Override
+      public void writePreferences( final UserSettings aSettings )
+      {
+        aSettings.putInt( "value", aValue );
+        aSettings.putBoolean( "flag", true );
+      }
+    };
+  }
+
+  /**
+   * Creates captured data, whose last sample value is modified by the given
+   * value.
+   */
+  private static AcquisitionResult createData( final int aModifier )
+  {
+    final int[] values = { 0x00, 0x01, 0x03, 0x02 + aModifier };
+    final long[] timestamps = { 0L, 5L, 7L, 10L };
+    return new CapturedData( values, timestamps, Ols.NOT_AVAILABLE, 100, 8, 0xFF, 12L );
+  }
+}
+
+/* EOF */
@@ -0,0 +1,222 @@
+/*
+ * OpenBench LogicSniffer / SUMP project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ *
+ * Copyright (C) 2010-2011 - J.W. Janssen, http://www.lxtreme.nl
+ */
+package nl.lxtreme.ols.tool.base.scan;
+
+
+import static org.junit.Assert.*;
+
+import java.util.*;
+
+import nl.lxtreme.ols.api.*;
+import nl.lxtreme.ols.api.acquisition.*;
+import nl.lxtreme.ols.api.data.*;
+import nl.lxtreme.ols.api.tools.*;
+
+import org.junit.*;
+
+
+/**
+ * Test cases for {@link SampleScanner}.
+ */
+public class SampleScannerTest
+{
+  // INNER TYPES
+
+  /**
+   * Records all transitions it is called for.
+   */
+  static final class RecordingDecoder implements ScanDecoder<List<Integer>>
+  {
+    // VARIABLES
+
+    private final int mask;
+    private final int start;
+    private final int end;
+    private final List<Integer> transitions = new ArrayList<Integer>();
+
+    private boolean started;
+    private boolean ended;
+
+    // CONSTRUCTORS
+
+    /**
+     * Creates a new RecordingDecoder instance.
+     */
+    RecordingDecoder( final int aMask, final int aStart, final int aEnd )
+    {
+      this.mask = aMask;
+      this.start = aStart;
+      this.end = aEnd;
+    }
+
+    // METHODS
+
+    @Override
+    public int getChannelMask()
+    {
+      return this.mask;
+    }
+
+    @Override
+    public int getEndSampleIndex()
+    {
+      return this.end;
+    }
+
+    @Override
+    public List<Integer> getResult()
+    {
+      return this.transitions;
+    }
+
+    @Override
+    public int getStartSampleIndex()
+    {
+      return this.start;
+    }
+
+    @Override
+    public void onTransition( final int aSampleIdx, final int aValue )
+    {
+      assertTrue( this.started );
+      assertFalse( this.ended );
+      this.transitions.add( Integer.valueOf( aSampleIdx ) );
+    }
+
+    @Override
+    public void scanEnded()
+    {
+      this.ended = true;
+    }
+
+    @Override
+    public void scanStarted( final AcquisitionResult aData )
+    {
+      this.started = true;
+    }
+  }
+
+  // VARIABLES
+
+  private int lastProgress;
+
+  // METHODS
+
+  /**
+   * Tests that each decoder only sees the transitions of its own channels,
+   * within its own decoding range.
+   */
+  @Test
+  public void testDispatchesTransitionsPerChannelMask()
+  {
+    // idx:                 0     1     2     3     4     5     6
+    final int[] values = { 0x00, 0x01, 0x03, 0x02, 0x06, 0x04, 0x05 };
+    final AcquisitionResult data = createData( values );
+
+    final RecordingDecoder ch0 = new RecordingDecoder( 0x01, 0, values.length );
+    final RecordingDecoder ch1 = new RecordingDecoder( 0x02, 0, values.length );
+    final RecordingDecoder ch01 = new RecordingDecoder( 0x03, 2, 6 );
+
+    final SampleScanner scanner = new SampleScanner( data );
+    scanner.addDecoder( ch0 );
+    scanner.addDecoder( ch1 );
+    scanner.addDecoder( ch01 );
+    scanner.scan( createProgressListener() );
+
+    assertEquals( Arrays.asList( 1, 3, 6 ), ch0.getResult() );
+    assertEquals( Arrays.asList( 2, 5 ), ch1.getResult() );
+    assertEquals( Arrays.asList( 3, 5 ), ch01.getResult() );
+    assertTrue( ch0.ended );
+    assertEquals( 100, this.lastProgress );
+  }
+
+  /**
+   * Tests that a scan over random data gives the same transitions as a
+   * straightforward scan per decoder.
+   */
+  @Test
+  public void testRandomDataAgainstSingleScans()
+  {
+    final Random rnd = new Random( 4321L );
+    final int[] randomValues = new int[5000];
+    for ( int i = 0; i < randomValues.length; i++ )
+    {
+      randomValues[i] = rnd.nextInt( 256 );
+    }
+    final AcquisitionResult data = createData( randomValues );
+    final int[] values = data.getValues();
+
+    final SampleScanner scanner = new SampleScanner( data );
+    final RecordingDecoder[] decoders = new RecordingDecoder[8];
+    for ( int i = 0; i < decoders.length; i++ )
+    {
+      final int start = rnd.nextInt( values.length / 4 );
+      decoders[i] = new RecordingDecoder( 1 << i, start, start + rnd.nextInt( values.length ) );
+      scanner.addDecoder( decoders[i] );
+    }
+    scanner.scan( createProgressListener() );
+
+    for ( RecordingDecoder decoder : decoders )
+    {
+      final List<Integer> expected = new ArrayList<Integer>();
+      final int end = Math.min( values.length, decoder.end );
+      for ( int idx = decoder.start + 1; idx < end; idx++ )
+      {
+        if ( ( ( values[idx - 1] ^ values[idx] ) & decoder.mask ) != 0 )
+        {
+          expected.add( Integer.valueOf( idx ) );
+        }
+      }
+      assertEquals( expected, decoder.getResult() );
+    }
+  }
+
+  /**
+   * Creates acquisition data with the given values, one sample per timestamp.
+   * Note that consecutive equal values are merged by the acquisition data.
+   */
+  private static AcquisitionResult createData( final int[] aValues )
+  {
+    final long[] timestamps = new long[aValues.length];
+    for ( int i = 0; i < timestamps.length; i++ )
+    {
+      timestamps[i] = i;
+    }
+    return new CapturedData( aValues, timestamps, Ols.NOT_AVAILABLE, 100, 8, 0xFF, aValues.length );
+  }
+
+  /**
+   * Creates a progress listener that keeps the last reported progress.
+   */
+  private ToolProgressListener createProgressListener()
+  {
+    return new ToolProgressListener()
+    {
+      @Override
+      public void setProgress( final int aPercentage )
+      {
+        SampleScannerTest.this.lastProgress = aPercentage;
+      }
+    };
+  }
+}
+
+/* EOF */
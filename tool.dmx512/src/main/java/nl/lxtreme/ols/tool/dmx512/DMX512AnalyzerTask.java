@@ -132,7 +132,8 @@ public class DMX512AnalyzerTask implements ToolTask<DMX512DataSet>
       @Override
       public void onEvent( final int aChannelIdx, final String aEvent, final long aStartTime, final long aEndTime )
       {
-        dataSet.reportEvent( aChannelIdx, aEvent, data.getSampleIndex( aStartTime ), data.getSampleIndex( aEndTime ) );
+        final int startIdx = data.getSampleIndex( aStartTime );
+        dataSet.reportEvent( aChannelIdx, aEvent, startIdx, data.getSampleIndex( aEndTime, startIdx ) );
 
         addEventAnnotation( aChannelIdx, aEvent, aStartTime, aEndTime );
       }
@@ -143,7 +144,8 @@ public class DMX512AnalyzerTask implements ToolTask<DMX512DataSet>
       @Override
       public void onSymbol( final int aChannelIdx, final int aSymbol, final long aStartTime, final long aEndTime )
       {
-        dataSet.reportData( aChannelIdx, data.getSampleIndex( aStartTime ), data.getSampleIndex( aEndTime ), aSymbol );
+        final int startIdx = data.getSampleIndex( aStartTime );
+        dataSet.reportData( aChannelIdx, startIdx, data.getSampleIndex( aEndTime, startIdx ), aSymbol );
 
         addSymbolAnnotation( aChannelIdx, aSymbol, aStartTime, aEndTime );
       }
@@ -30,6 +30,10 @@ import nl.lxtreme.ols.tool.uart.AsyncSerialDataDecoder.ErrorType;
  */
 public class DMX512Data extends BaseData<DMX512Data>
 {
+  // CONSTANTS
+
+  private static final long serialVersionUID = 1L;
+
   // VARIABLES
 
   private final int data;
@@ -33,6 +33,8 @@ public class DMX512DataSet extends BaseDataSet<DMX512Data>
 {
   // CONSTANTS
 
+  private static final long serialVersionUID = 1L;
+
   /**
    * The space-before-break used as preamble for the actual data frame.
    */
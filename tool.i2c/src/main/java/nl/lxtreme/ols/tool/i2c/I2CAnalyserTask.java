@@ -21,22 +21,293 @@
 package nl.lxtreme.ols.tool.i2c;
 
 
-import static nl.lxtreme.ols.util.NumberUtils.*;
-
 import java.beans.*;
 import java.util.logging.*;
 
 import nl.lxtreme.ols.api.acquisition.*;
 import nl.lxtreme.ols.api.data.annotation.AnnotationListener;
 import nl.lxtreme.ols.api.tools.*;
+import nl.lxtreme.ols.api.util.*;
 import nl.lxtreme.ols.tool.base.annotation.*;
+import nl.lxtreme.ols.tool.base.scan.*;
 
 
 /**
  * Performs the actual I2C analysis.
  */
-public class I2CAnalyserTask implements ToolTask<I2CDataSet>
+public class I2CAnalyserTask implements ToolTask<I2CDataSet>, ScanDecoderProvider<I2CDataSet>
 {
+  // INNER TYPES
+
+  /**
+   * Provides the actual I2C protocol decoder, driven by a {@link SampleScanner}.
+   * Only called for SDA and SCL transitions, so no per-sample work is done for
+   * samples in which neither line changes.
+   */
+  final class I2CScanDecoder implements ScanDecoder<I2CDataSet>
+  {
+    // VARIABLES
+
+    private final I2CDataSet dataSet;
+    private final AnnotationListener annotationListener;
+    private final int sdaIdx;
+    private final int sdaMask;
+    private final int sclMask;
+
+    private long[] timestamps;
+    private int prevIdx;
+    private int oldSCL;
+    private int oldSDA;
+    private int bitCount;
+    private int byteValue;
+    private boolean startCondFound;
+    private boolean tenBitAddress;
+    private int slaveAddress;
+    private int direction;
+
+    // CONSTRUCTORS
+
+    /**
+     * Creates a new I2CScanDecoder instance.
+     */
+    I2CScanDecoder( final I2CDataSet aDataSet, final boolean aStartCondFound )
+    {
+      this.dataSet = aDataSet;
+      this.annotationListener = I2CAnalyserTask.this.annotationListener;
+      this.sdaIdx = I2CAnalyserTask.this.sdaIdx;
+      this.sdaMask = ( 1 << this.sdaIdx );
+      this.sclMask = ( 1 << I2CAnalyserTask.this.sclIdx );
+      this.startCondFound = aStartCondFound;
+    }
+
+    // METHODS
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getChannelMask()
+    {
+      return this.sdaMask | this.sclMask;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getEndSampleIndex()
+    {
+      return this.dataSet.getEndOfDecode();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public I2CDataSet getResult()
+    {
+      return this.dataSet;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getStartSampleIndex()
+    {
+      return this.dataSet.getStartOfDecode();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void onTransition( final int aSampleIdx, final int aValue )
+    {
+      final int idx = aSampleIdx;
+
+      final int sda = ( aValue & this.sdaMask );
+      final int scl = ( aValue & this.sclMask );
+
+      // detect SCL fall/rise
+      if ( this.oldSCL > scl )
+      {
+        // SCL falls
+        if ( ( this.prevIdx < 0 ) || ( this.bitCount == I2C_BITCOUNT ) )
+        {
+          this.prevIdx = idx;
+        }
+
+        if ( this.bitCount == 0 )
+        {
+          // store decoded byte
+          reportData( this.dataSet, this.prevIdx, idx, this.byteValue );
+
+          final String annotation;
+          if ( this.startCondFound )
+          {
+            // This is the (7- or 10-bit) address part...
+            this.direction = ( this.byteValue & 0x01 );
+
+            if ( ( this.byteValue & 0xf8 ) == 0xf0 )
+            {
+              // 10-bit address part...
+              this.slaveAddress = ( this.byteValue & 0x06 ) << 6;
+              this.tenBitAddress = true;
+
+              annotation = String.format( "Setup %s 10-bit slave", ( this.direction == 1 ) ? "read from" : "write to" );
+            }
+            else
+            {
+              if ( this.tenBitAddress )
+              {
+                // 10-bit address needs the first few bits of the previous slave
+                // address, so OR-ing is needed here...
+                this.slaveAddress |= ( this.byteValue & 0xFF );
+              }
+              else
+              {
+                // 7-bit address, directly available. See issue #51
+                this.slaveAddress = ( ( this.byteValue >> 1 ) & 0xFF );
+              }
+              this.startCondFound = false;
+
+              annotation = String.format( this.tenBitAddress ? "Setup %s slave: 0x%X " : "Setup %s slave: 0x%X [0x%X]",
+                  ( this.direction == 1 ) ? "read from" : "write to", Integer.valueOf( this.slaveAddress ),
+                  Integer.valueOf( this.byteValue ) );
+
+              this.tenBitAddress = false;
+            }
+          }
+          else
+          {
+            annotation = String.format( "%s data: 0x%X (%c)", ( this.direction == 1 ) ? "Read" : "Write",
+                Integer.valueOf( this.byteValue ), Integer.valueOf( this.byteValue ) );
+          }
+
+          this.annotationListener.onAnnotation( new SampleDataAnnotation( this.sdaIdx, this.timestamps[this.prevIdx],
+              this.timestamps[idx], annotation ) );
+
+          this.byteValue = 0;
+        }
+      }
+      else if ( scl > this.oldSCL )
+      {
+        // SCL rises
+        if ( sda != this.oldSDA )
+        {
+          reportBusError( this.dataSet, idx );
+        }
+        else
+        {
+          // read SDA
+          if ( this.bitCount != 0 )
+          {
+            this.bitCount--;
+            if ( sda != 0 )
+            {
+              this.byteValue |= ( 1 << this.bitCount );
+            }
+          }
+          else
+          {
+            // read the confirmation of the slave...
+            if ( sda != 0 )
+            {
+              // NACK
+              reportNACK( this.dataSet, idx );
+
+              this.annotationListener.onAnnotation( new SampleDataAnnotation( this.sdaIdx, this.timestamps[idx],
+                  I2CDataSet.I2C_NACK ) );
+            }
+            else
+            {
+              // ACK
+              reportACK( this.dataSet, idx );
+
+              this.annotationListener.onAnnotation( new SampleDataAnnotation( this.sdaIdx, this.timestamps[idx],
+                  I2CDataSet.I2C_ACK ) );
+            }
+
+            // next byte
+            this.bitCount = I2C_BITCOUNT;
+            this.byteValue = 0;
+          }
+        }
+      }
+
+      // detect SDA change when SCL high
+      if ( ( scl == this.sclMask ) && ( sda != this.oldSDA ) )
+      {
+        // SDA changes here
+        if ( ( this.bitCount > 0 ) && ( this.bitCount < ( I2C_BITCOUNT - 1 ) ) )
+        {
+          // bus error, no complete byte detected
+          reportBusError( this.dataSet, idx );
+        }
+        else
+        {
+          if ( sda > this.oldSDA )
+          {
+            // SDA rises, this is a stop condition
+            reportStopCondition( this.dataSet, idx );
+
+            this.annotationListener.onAnnotation( new SampleDataAnnotation( this.sdaIdx, this.timestamps[idx],
+                I2CDataSet.I2C_STOP ) );
+
+            this.slaveAddress = 0x00;
+            this.direction = -1;
+          }
+          else
+          {
+            // SDA falls, this is a start condition
+            reportStartCondition( this.dataSet, idx );
+
+            this.annotationListener.onAnnotation( new SampleDataAnnotation( this.sdaIdx, this.timestamps[idx],
+                I2CDataSet.I2C_START ) );
+
+            this.startCondFound = true;
+          }
+
+          // new byte
+          this.bitCount = I2C_BITCOUNT;
+          this.byteValue = 0;
+        }
+      }
+
+      this.oldSCL = scl;
+      this.oldSDA = sda;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void scanEnded()
+    {
+      this.timestamps = null;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void scanStarted( final AcquisitionResult aData )
+    {
+      final int startValue = aData.getValues()[getStartSampleIndex()];
+
+      this.timestamps = aData.getTimestamps();
+      this.prevIdx = -1;
+      this.oldSCL = startValue & this.sclMask;
+      this.oldSDA = startValue & this.sdaMask;
+      this.bitCount = I2C_BITCOUNT;
+      this.byteValue = 0;
+      this.tenBitAddress = false;
+      this.slaveAddress = 0x00;
+      this.direction = -1;
+    }
+  }
+
   // CONSTANTS
 
   public static final String LINE_A = "LineA";
@@ -114,16 +385,26 @@ public class I2CAnalyserTask implements ToolTask<I2CDataSet>
    */
   @Override
   public I2CDataSet call() throws Exception
+  {
+    final ScanDecoder<I2CDataSet> decoder = createScanDecoder();
+
+    final SampleScanner scanner = new SampleScanner( this.context.getData() );
+    scanner.addDecoder( decoder );
+    scanner.scan( this.progressListener );
+
+    return decoder.getResult();
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public ScanDecoder<I2CDataSet> createScanDecoder()
   {
     final AcquisitionResult data = this.context.getData();
 
-    final int[] values = data.getValues();
     final long[] timestamps = data.getTimestamps();
 
-    // process the captured data and write to output
-    int oldSCL, oldSDA, bitCount;
-    int byteValue;
-
     if ( LOG.isLoggable( Level.FINE ) )
     {
       LOG.log( Level.FINE, "Line A mask = 0x{0}", Integer.toHexString( this.lineAmask ) );
@@ -144,9 +425,6 @@ public class I2CAnalyserTask implements ToolTask<I2CDataSet>
       this.sdaIdx = this.lineBidx;
     }
 
-    final int sdaMask = ( 1 << this.sdaIdx );
-    final int sclMask = ( 1 << this.sclIdx );
-
     final I2CDataSet i2cDataSet = new I2CDataSet( startOfDecode, endOfDecode, data );
 
     // Prepare everything for the decoding results...
@@ -159,20 +437,6 @@ public class I2CAnalyserTask implements ToolTask<I2CDataSet>
      * to scan for SCL rises and for SDA changes during SCL is high. Each byte
      * is followed by a 9th bit (ACK/NACK).
      */
-    int idx = i2cDataSet.getStartOfDecode();
-    int prevIdx = -1;
-
-    oldSCL = values[idx] & sclMask;
-    oldSDA = values[idx] & sdaMask;
-
-    bitCount = I2C_BITCOUNT;
-    byteValue = 0;
-
-    boolean startCondFound = false;
-    boolean tenBitAddress = false;
-    int slaveAddress = 0x00;
-    int direction = -1;
-
     if ( this.detectSDA_SCL )
     {
       // We've just found our start condition, start the report with that...
@@ -180,171 +444,9 @@ public class I2CAnalyserTask implements ToolTask<I2CDataSet>
 
       this.annotationListener.onAnnotation( new SampleDataAnnotation( this.sdaIdx, timestamps[startOfDecode],
           I2CDataSet.I2C_START ) );
-
-      startCondFound = true;
     }
 
-    for ( ; idx < i2cDataSet.getEndOfDecode(); idx++ )
-    {
-      final int dataValue = values[idx];
-
-      final int sda = ( dataValue & sdaMask );
-      final int scl = ( dataValue & sclMask );
-
-      // detect SCL fall/rise
-      if ( oldSCL > scl )
-      {
-        // SCL falls
-        if ( ( prevIdx < 0 ) || ( bitCount == I2C_BITCOUNT ) )
-        {
-          prevIdx = idx;
-        }
-
-        if ( bitCount == 0 )
-        {
-          // store decoded byte
-          reportData( i2cDataSet, prevIdx, idx, byteValue );
-
-          final String annotation;
-          if ( startCondFound )
-          {
-            // This is the (7- or 10-bit) address part...
-            direction = ( byteValue & 0x01 );
-
-            if ( ( byteValue & 0xf8 ) == 0xf0 )
-            {
-              // 10-bit address part...
-              slaveAddress = ( byteValue & 0x06 ) << 6;
-              tenBitAddress = true;
-
-              annotation = String.format( "Setup %s 10-bit slave", ( direction == 1 ) ? "read from" : "write to" );
-            }
-            else
-            {
-              if ( tenBitAddress )
-              {
-                // 10-bit address needs the first few bits of the previous slave
-                // address, so OR-ing is needed here...
-                slaveAddress |= ( byteValue & 0xFF );
-              }
-              else
-              {
-                // 7-bit address, directly available. See issue #51
-                slaveAddress = ( ( byteValue >> 1 ) & 0xFF );
-              }
-              startCondFound = false;
-
-              annotation = String.format( tenBitAddress ? "Setup %s slave: 0x%X " : "Setup %s slave: 0x%X [0x%X]",
-                  ( direction == 1 ) ? "read from" : "write to", Integer.valueOf( slaveAddress ),
-                  Integer.valueOf( byteValue ) );
-
-              tenBitAddress = false;
-            }
-          }
-          else
-          {
-            annotation = String.format( "%s data: 0x%X (%c)", ( direction == 1 ) ? "Read" : "Write",
-                Integer.valueOf( byteValue ), Integer.valueOf( byteValue ) );
-          }
-
-          this.annotationListener.onAnnotation( new SampleDataAnnotation( this.sdaIdx, timestamps[prevIdx],
-              timestamps[idx], annotation ) );
-
-          byteValue = 0;
-        }
-      }
-      else if ( scl > oldSCL )
-      {
-        // SCL rises
-        if ( sda != oldSDA )
-        {
-          reportBusError( i2cDataSet, idx );
-        }
-        else
-        {
-          // read SDA
-          if ( bitCount != 0 )
-          {
-            bitCount--;
-            if ( sda != 0 )
-            {
-              byteValue |= ( 1 << bitCount );
-            }
-          }
-          else
-          {
-            // read the confirmation of the slave...
-            if ( sda != 0 )
-            {
-              // NACK
-              reportNACK( i2cDataSet, idx );
-
-              this.annotationListener.onAnnotation( new SampleDataAnnotation( this.sdaIdx, timestamps[idx],
-                  I2CDataSet.I2C_NACK ) );
-            }
-            else
-            {
-              // ACK
-              reportACK( i2cDataSet, idx );
-
-              this.annotationListener.onAnnotation( new SampleDataAnnotation( this.sdaIdx, timestamps[idx],
-                  I2CDataSet.I2C_ACK ) );
-            }
-
-            // next byte
-            bitCount = I2C_BITCOUNT;
-            byteValue = 0;
-          }
-        }
-      }
-
-      // detect SDA change when SCL high
-      if ( ( scl == sclMask ) && ( sda != oldSDA ) )
-      {
-        // SDA changes here
-        if ( ( bitCount > 0 ) && ( bitCount < ( I2C_BITCOUNT - 1 ) ) )
-        {
-          // bus error, no complete byte detected
-          reportBusError( i2cDataSet, idx );
-        }
-        else
-        {
-          if ( sda > oldSDA )
-          {
-            // SDA rises, this is a stop condition
-            reportStopCondition( i2cDataSet, idx );
-
-            this.annotationListener.onAnnotation( new SampleDataAnnotation( this.sdaIdx, timestamps[idx],
-                I2CDataSet.I2C_STOP ) );
-
-            slaveAddress = 0x00;
-            direction = -1;
-          }
-          else
-          {
-            // SDA falls, this is a start condition
-            reportStartCondition( i2cDataSet, idx );
-
-            this.annotationListener.onAnnotation( new SampleDataAnnotation( this.sdaIdx, timestamps[idx],
-                I2CDataSet.I2C_START ) );
-
-            startCondFound = true;
-          }
-
-          // new byte
-          bitCount = I2C_BITCOUNT;
-          byteValue = 0;
-        }
-      }
-
-      oldSCL = scl;
-      oldSDA = sda;
-
-      this.progressListener
-          .setProgress( getPercentage( idx, i2cDataSet.getStartOfDecode(), i2cDataSet.getEndOfDecode() ) );
-    }
-
-    return i2cDataSet;
+    return new I2CScanDecoder( i2cDataSet, this.detectSDA_SCL );
   }
 
   /**
@@ -450,72 +552,82 @@ public class I2CAnalyserTask implements ToolTask<I2CDataSet>
 
     final int[] values = aData.getValues();
 
-    int sampleIdx;
-    /*
-     * first of all scan both lines until they are high (IDLE), then the first
-     * line that goes low is the SDA line (START condition).
-     */
-    for ( sampleIdx = aStartOfDecode; sampleIdx < aEndOfDecode; sampleIdx++ )
-    {
-      final int dataValue = values[sampleIdx];
+    final ProgressReporter progress = ProgressReporter.forTool( this.progressListener );
+    progress.start( aStartOfDecode, aEndOfDecode );
 
-      if ( ( dataValue & dataMask ) == dataMask )
+    try
+    {
+      int sampleIdx;
+      /*
+       * first of all scan both lines until they are high (IDLE), then the first
+       * line that goes low is the SDA line (START condition).
+       */
+      for ( sampleIdx = aStartOfDecode; sampleIdx < aEndOfDecode; sampleIdx++ )
       {
-        // IDLE found here
-        break;
-      }
+        final int dataValue = values[sampleIdx];
 
-      this.progressListener.setProgress( getPercentage( sampleIdx, aStartOfDecode, aEndOfDecode ) );
-    }
+        if ( ( dataValue & dataMask ) == dataMask )
+        {
+          // IDLE found here
+          break;
+        }
 
-    if ( sampleIdx == aEndOfDecode )
-    {
-      // no idle state could be found
-      LOG.log( Level.WARNING, "No IDLE state found in data; aborting analysis..." );
-      throw new IllegalStateException( "No IDLE state found!" );
-    }
+        progress.update( sampleIdx );
+      }
 
-    // a is now the start of idle, now find the first start condition
-    for ( ; sampleIdx < aEndOfDecode; sampleIdx++ )
-    {
-      final int sample = values[sampleIdx];
-      final int dataValue = sample & dataMask;
+      if ( sampleIdx == aEndOfDecode )
+      {
+        // no idle state could be found
+        LOG.log( Level.WARNING, "No IDLE state found in data; aborting analysis..." );
+        throw new IllegalStateException( "No IDLE state found!" );
+      }
 
-      if ( ( dataValue != dataMask ) && ( dataValue != 0 ) )
+      // a is now the start of idle, now find the first start condition
+      for ( ; sampleIdx < aEndOfDecode; sampleIdx++ )
       {
-        final int lineAvalue = sample & this.lineAmask;
-        final int lineBvalue = sample & this.lineBmask;
+        final int sample = values[sampleIdx];
+        final int dataValue = sample & dataMask;
 
-        // is one line low?
-        if ( ( lineAvalue == 0 ) && ( lineBvalue != 0 ) )
+        if ( ( dataValue != dataMask ) && ( dataValue != 0 ) )
         {
-          // lineA is low and lineB is high here: lineA = SDA, lineB = SCL
-          this.sdaIdx = this.lineAidx;
-          this.sclIdx = this.lineBidx;
+          final int lineAvalue = sample & this.lineAmask;
+          final int lineBvalue = sample & this.lineBmask;
 
-          break;
-        }
-        else if ( ( lineAvalue != 0 ) && ( lineBvalue == 0 ) )
-        {
-          // lineB is low and lineA is high here: lineA = SCL, lineB = SDA
-          this.sdaIdx = this.lineBidx;
-          this.sclIdx = this.lineAidx;
+          // is one line low?
+          if ( ( lineAvalue == 0 ) && ( lineBvalue != 0 ) )
+          {
+            // lineA is low and lineB is high here: lineA = SDA, lineB = SCL
+            this.sdaIdx = this.lineAidx;
+            this.sclIdx = this.lineBidx;
 
-          break;
+            break;
+          }
+          else if ( ( lineAvalue != 0 ) && ( lineBvalue == 0 ) )
+          {
+            // lineB is low and lineA is high here: lineA = SCL, lineB = SDA
+            this.sdaIdx = this.lineBidx;
+            this.sclIdx = this.lineAidx;
+
+            break;
+          }
         }
+
+        progress.update( sampleIdx );
       }
 
-      this.progressListener.setProgress( getPercentage( sampleIdx, aStartOfDecode, aEndOfDecode ) );
-    }
+      if ( sampleIdx == aEndOfDecode )
+      {
+        // no start condition could be found
+        LOG.log( Level.WARNING, "No START condition found! Analysis aborted..." );
+        throw new IllegalStateException( "No START condition found!" );
+      }
 
-    if ( sampleIdx == aEndOfDecode )
+      return sampleIdx;
+    }
+    finally
     {
-      // no start condition could be found
-      LOG.log( Level.WARNING, "No START condition found! Analysis aborted..." );
-      throw new IllegalStateException( "No START condition found!" );
+      progress.close();
     }
-
-    return sampleIdx;
   }
 
   /**
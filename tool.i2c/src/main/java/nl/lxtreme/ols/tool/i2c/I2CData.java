@@ -33,6 +33,10 @@ import nl.lxtreme.ols.api.data.*;
  */
 public final class I2CData extends BaseData<I2CData>
 {
+  // CONSTANTS
+
+  private static final long serialVersionUID = 1L;
+
   // VARIABLES
 
   private final int value;
@@ -32,6 +32,8 @@ public final class I2CDataSet extends BaseDataSet<I2CData>
 {
   // CONSTANTS
 
+  private static final long serialVersionUID = 1L;
+
   public static final String I2C_ACK = "ACK";
   public static final String I2C_BUS_ERROR = "BUS-ERROR";
   public static final String I2C_NACK = "NACK";
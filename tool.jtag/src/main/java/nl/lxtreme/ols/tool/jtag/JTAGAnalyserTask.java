@@ -21,24 +21,8 @@
 package nl.lxtreme.ols.tool.jtag;
 
 
-import static nl.lxtreme.ols.tool.jtag.JTAGState.CAPTURE_DR;
-import static nl.lxtreme.ols.tool.jtag.JTAGState.CAPTURE_IR;
-import static nl.lxtreme.ols.tool.jtag.JTAGState.EXIT1_DR;
-import static nl.lxtreme.ols.tool.jtag.JTAGState.EXIT1_IR;
-import static nl.lxtreme.ols.tool.jtag.JTAGState.EXIT2_DR;
-import static nl.lxtreme.ols.tool.jtag.JTAGState.EXIT2_IR;
-import static nl.lxtreme.ols.tool.jtag.JTAGState.PAUSE_DR;
-import static nl.lxtreme.ols.tool.jtag.JTAGState.PAUSE_IR;
-import static nl.lxtreme.ols.tool.jtag.JTAGState.RUN_TEST_IDLE;
-import static nl.lxtreme.ols.tool.jtag.JTAGState.SELECT_DR;
-import static nl.lxtreme.ols.tool.jtag.JTAGState.SELECT_IR;
-import static nl.lxtreme.ols.tool.jtag.JTAGState.SHIFT_DR;
-import static nl.lxtreme.ols.tool.jtag.JTAGState.SHIFT_IR;
 import static nl.lxtreme.ols.tool.jtag.JTAGState.TEST_LOGIC_RESET;
-import static nl.lxtreme.ols.tool.jtag.JTAGState.UPDATE_DR;
-import static nl.lxtreme.ols.tool.jtag.JTAGState.UPDATE_IR;
 
-import java.math.BigInteger;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -47,6 +31,7 @@ import nl.lxtreme.ols.api.data.annotation.AnnotationListener;
 import nl.lxtreme.ols.api.tools.ToolContext;
 import nl.lxtreme.ols.api.tools.ToolProgressListener;
 import nl.lxtreme.ols.api.tools.ToolTask;
+import nl.lxtreme.ols.api.util.ProgressReporter;
 import nl.lxtreme.ols.tool.base.annotation.ChannelLabelAnnotation;
 import nl.lxtreme.ols.tool.base.annotation.SampleDataAnnotation;
 
@@ -203,12 +188,11 @@ public class JTAGAnalyserTask implements ToolTask<JTAGDataSet>
     // scanning for falling/rising clk edges
     int oldTckValue = ( values[startOfDecode] & tckMask );
 
-    String state;
     int startTdiDataIdx = 0;
     int endTdiDataIdx = 0;
-    
-    String tdiData = null;
-    String tdoData = null;
+
+    final JTAGShiftRegister tdiData = new JTAGShiftRegister();
+    final JTAGShiftRegister tdoData = new JTAGShiftRegister();
 
     this.currentState = TEST_LOGIC_RESET;
     this.oldState = TEST_LOGIC_RESET;
@@ -216,304 +200,75 @@ public class JTAGAnalyserTask implements ToolTask<JTAGDataSet>
 
     LOG.log( Level.INFO, "clockDataOnEdge: " + startOfDecode + " to " + endOfDecode );
 
-    final double length = endOfDecode - startOfDecode;
-    for ( int idx = startOfDecode + 1; idx < endOfDecode; idx++ )
-    {
-      final int dataSample = values[idx];
-      final int tckValue = ( dataSample & tckMask );
-      final int tmsValue = ( dataSample & tmsMask );
-      final int tdiValue = ( dataSample & tdiMask );
-      final int tdoValue = ( dataSample & tdoMask );
+    final ProgressReporter progress = ProgressReporter.forTool( this.progressListener );
+    progress.start( startOfDecode, endOfDecode );
 
-      if ( oldTckValue != tckValue )
+    try
+    {
+      for ( int idx = startOfDecode + 1; idx < endOfDecode; idx++ )
       {
-        oldTckValue = tckValue;
+        final int dataSample = values[idx];
+        final int tckValue = ( dataSample & tckMask );
 
-        if ( tckValue != 0 )
+        if ( oldTckValue != tckValue )
         {
-          if ( this.currentState == TEST_LOGIC_RESET )
-          { // state 0: Test Logic Reset
-            state = this.currentState.getDisplayText();
-            if ( tmsValue == 0 )
-            {
-              this.currentState = RUN_TEST_IDLE;
-            }
-          }
-          else if ( this.currentState == RUN_TEST_IDLE )
-          { // state 1: Run Test Idle
-            state = this.currentState.getDisplayText();
-            if ( tmsValue == 0 )
-            {
-              this.currentState = RUN_TEST_IDLE;
-            }
-            else
-            {
-              this.currentState = SELECT_DR;
-            }
-          }
-          else if ( this.currentState == SELECT_DR )
-          { // state 2: Select DR
-            state = this.currentState.getDisplayText();
-            if ( tmsValue == 0 )
-            {
-              this.currentState = CAPTURE_DR;
-            }
-            else
-            {
-              this.currentState = SELECT_IR;
-            }
-          }
-          else if ( this.currentState == CAPTURE_DR )
-          { // state 3: Capture DR
-            state = this.currentState.getDisplayText();
-            
-            tdiData = null;
-            tdoData = null;
-            
-            if ( tmsValue == 0 )
-            {
-              this.currentState = SHIFT_DR;
-            }
-            else
-            {
-              this.currentState = EXIT1_DR;
-            }
-          }
-          else if ( this.currentState == SHIFT_DR )
-          { // state 4: Shift DR
-            state = this.currentState.getDisplayText();
-            
-            if ( tdiData == null )
-            {
-              startTdiDataIdx = idx;
-              
-              tdiData = "";
-              tdoData = "";
-            }
-            endTdiDataIdx = idx;
+          oldTckValue = tckValue;
 
-            if ( tdiValue == 0 )
-            {
-              tdiData = "0" + tdiData;
-            }
-            else
-            {
-              tdiData = "1" + tdiData;
-            }
-
-            if ( tdoValue == 0 )
-            {
-              tdoData = "0" + tdoData;
-            }
-            else
-            {
-              tdoData = "1" + tdoData;
-            }
+          if ( tckValue != 0 )
+          {
+            final JTAGState state = this.currentState;
 
-            if ( tmsValue != 0 )
-            {
-              this.currentState = EXIT1_DR;
-            }
-          }
-          else if ( this.currentState == EXIT1_DR )
-          { // state 5: Exit1 DR
-            state = this.currentState.getDisplayText();
-            if ( tmsValue == 0 )
-            {
-              this.currentState = PAUSE_DR;
-            }
-            else
-            {
-              this.currentState = UPDATE_DR;
-            }
-          }
-          else if ( this.currentState == PAUSE_DR )
-          { // state 6: Pause DR
-            state = this.currentState.getDisplayText();
-            if ( tmsValue == 0 )
-            {
-              this.currentState = PAUSE_DR;
-            }
-            else
-            {
-              this.currentState = EXIT2_DR;
-            }
-          }
-          else if ( this.currentState == EXIT2_DR )
-          { // state 7: Exit2 DR
-            state = this.currentState.getDisplayText();
-            if ( tmsValue == 0 )
-            {
-              this.currentState = SHIFT_DR;
-            }
-            else
+            switch ( state )
             {
-              this.currentState = UPDATE_DR;
-            }
-          }
-          else if ( this.currentState == UPDATE_DR )
-          { // state 8: Update DR
-            state = this.currentState.getDisplayText();
+              case CAPTURE_DR:
+              case CAPTURE_IR:
+                tdiData.clear();
+                tdoData.clear();
+                break;
 
-            this.annotationListener.onAnnotation( new SampleDataAnnotation( this.tdiIdx, timestamps[startTdiDataIdx],
-                timestamps[endTdiDataIdx], String.format( "0x%x", new BigInteger( tdiData, 2 ) ) ) );
-            this.annotationListener.onAnnotation( new SampleDataAnnotation( this.tdoIdx, timestamps[startTdiDataIdx],
-                timestamps[endTdiDataIdx], String.format( "0x%x", new BigInteger( tdoData, 2 ) ) ) );
+              case SHIFT_DR:
+              case SHIFT_IR:
+                if ( tdiData.isEmpty() )
+                {
+                  startTdiDataIdx = idx;
+                }
+                endTdiDataIdx = idx;
 
-            aDataSet.reportJTAGTdiData( tdiIdx, startTdiDataIdx, endTdiDataIdx, currentState, tdiData );
-            aDataSet.reportJTAGTdoData( tdoIdx, startTdiDataIdx, endTdiDataIdx, currentState, tdoData );
-
-            if ( tmsValue == 0 )
-            {
-              this.currentState = RUN_TEST_IDLE;
-            }
-            else
-            {
-              this.currentState = SELECT_DR;
-            }
-          }
-          else if ( this.currentState == SELECT_IR )
-          { // state 9: Select IR
-            state = this.currentState.getDisplayText();
-            if ( tmsValue == 0 )
-            {
-              this.currentState = CAPTURE_IR;
-            }
-            else
-            {
-              this.currentState = TEST_LOGIC_RESET;
-            }
-          }
-          else if ( this.currentState == CAPTURE_IR )
-          { // state 10: Capture IR
-            state = this.currentState.getDisplayText();
-            
-            tdiData = null;
-            tdoData = null;
-            
-            if ( tmsValue == 0 )
-            {
-              this.currentState = SHIFT_IR;
-            }
-            else
-            {
-              this.currentState = EXIT1_IR;
-            }
-          }
-          else if ( this.currentState == SHIFT_IR )
-          { // state 11: Shift IR
-            state = this.currentState.getDisplayText();
+                tdiData.shift( ( dataSample & tdiMask ) != 0 );
+                tdoData.shift( ( dataSample & tdoMask ) != 0 );
+                break;
 
-            if ( tdiData == null )
-            {
-              startTdiDataIdx = idx;
-              
-              tdiData = "";
-              tdoData = "";
-            }
-            endTdiDataIdx = idx;
+              case UPDATE_DR:
+              case UPDATE_IR:
+                reportShiftedData( aDataSet, state, startTdiDataIdx, endTdiDataIdx, tdiData, tdoData );
+                break;
 
-            if ( tdiValue == 0 )
-            {
-              tdiData = "0" + tdiData;
-            }
-            else
-            {
-              tdiData = "1" + tdiData;
+              default:
+                break;
             }
 
-            if ( tdoValue == 0 )
-            {
-              tdoData = "0" + tdoData;
-            }
-            else
-            {
-              tdoData = "1" + tdoData;
-            }
+            this.currentState = state.getNextState( ( dataSample & tmsMask ) != 0 );
 
-            if ( tmsValue != 0 )
-            {
-              this.currentState = EXIT1_IR;
-            }
-          }
-          else if ( this.currentState == EXIT1_IR )
-          { // state 12: Exit1 IR
-            state = this.currentState.getDisplayText();
-            if ( tmsValue == 0 )
-            {
-              this.currentState = PAUSE_IR;
-            }
-            else
-            {
-              this.currentState = UPDATE_IR;
-            }
-          }
-          else if ( this.currentState == PAUSE_IR )
-          { // state 13: Pause IR
-            state = this.currentState.getDisplayText();
-            if ( tmsValue == 0 )
-            {
-              this.currentState = PAUSE_IR;
-            }
-            else
-            {
-              this.currentState = EXIT2_IR;
-            }
-          }
-          else if ( this.currentState == EXIT2_IR )
-          { // state 14: Exit2 IR
-            state = this.currentState.getDisplayText();
-            if ( tmsValue == 0 )
-            {
-              this.currentState = SHIFT_IR;
-            }
-            else
+            if ( this.oldState != this.currentState )
             {
-              this.currentState = UPDATE_IR;
-            }
-          }
-          else if ( this.currentState == UPDATE_IR )
-          { // state 15: Update IR
-            state = this.currentState.getDisplayText();
-
-            this.annotationListener.onAnnotation( new SampleDataAnnotation( this.tdiIdx, timestamps[startTdiDataIdx],
-                timestamps[endTdiDataIdx], String.format( "0x%x", new BigInteger( tdiData, 2 ) ) ) );
+              this.annotationListener.onAnnotation( new SampleDataAnnotation( this.tmsIdx, timestamps[this.startIdx],
+                  timestamps[idx], state.getDisplayText() ) );
 
-            this.annotationListener.onAnnotation( new SampleDataAnnotation( this.tdoIdx, timestamps[startTdiDataIdx],
-                timestamps[endTdiDataIdx], String.format( "0x%x", new BigInteger( tdoData, 2 ) ) ) );
+              aDataSet.reportJTAGState( this.tmsIdx, this.startIdx, idx, this.oldState );
 
-            aDataSet.reportJTAGTdiData( tdiIdx, startTdiDataIdx, endTdiDataIdx, currentState, tdiData );
-            aDataSet.reportJTAGTdoData( tdoIdx, startTdiDataIdx, endTdiDataIdx, currentState, tdoData );
-
-            if ( tmsValue == 0 )
-            {
-              this.currentState = RUN_TEST_IDLE;
-            }
-            else
-            {
-              this.currentState = SELECT_DR;
+              this.startIdx = idx + 1;
+              this.oldState = this.currentState;
             }
-          }
-          else
-          {
-            state = "ERROR";
-          }
 
-          if ( this.oldState != this.currentState )
-          {
-            this.annotationListener.onAnnotation( new SampleDataAnnotation( this.tmsIdx, timestamps[this.startIdx],
-                timestamps[idx], state ) );
-
-            aDataSet.reportJTAGState( this.tmsIdx, this.startIdx, idx, this.oldState );
-
-            this.startIdx = idx + 1;
-            this.oldState = this.currentState;
+            progress.update( idx );
           }
-
-          this.progressListener.setProgress( ( int )( ( ( idx - startOfDecode ) * 100.0 ) / length ) );
         }
       }
     }
+    finally
+    {
+      progress.close();
+    }
   }
 
   /**
@@ -543,4 +298,40 @@ public class JTAGAnalyserTask implements ToolTask<JTAGDataSet>
       this.annotationListener.onAnnotation( new ChannelLabelAnnotation( this.tdoIdx, JTAGDataSet.JTAG_TDO ) );
     }
   }
+
+  /**
+   * Reports the data shifted in and out during a Shift-DR or Shift-IR state.
+   * 
+   * @param aDataSet
+   *          the decoded data to fill;
+   * @param aState
+   *          the current (update) state;
+   * @param aStartIdx
+   *          the sample index of the first shifted bit;
+   * @param aEndIdx
+   *          the sample index of the last shifted bit;
+   * @param aTdiData
+   *          the data shifted in;
+   * @param aTdoData
+   *          the data shifted out.
+   */
+  private void reportShiftedData( final JTAGDataSet aDataSet, final JTAGState aState, final int aStartIdx,
+      final int aEndIdx, final JTAGShiftRegister aTdiData, final JTAGShiftRegister aTdoData )
+  {
+    if ( aTdiData.isEmpty() )
+    {
+      // Nothing shifted, nothing to report...
+      return;
+    }
+
+    final long[] timestamps = this.context.getData().getTimestamps();
+
+    this.annotationListener.onAnnotation( new SampleDataAnnotation( this.tdiIdx, timestamps[aStartIdx],
+        timestamps[aEndIdx], aTdiData.toHexString() ) );
+    this.annotationListener.onAnnotation( new SampleDataAnnotation( this.tdoIdx, timestamps[aStartIdx],
+        timestamps[aEndIdx], aTdoData.toHexString() ) );
+
+    aDataSet.reportJTAGTdiData( this.tdiIdx, aStartIdx, aEndIdx, aState, aTdiData.toBigInteger() );
+    aDataSet.reportJTAGTdoData( this.tdoIdx, aStartIdx, aEndIdx, aState, aTdoData.toBigInteger() );
+  }
 }
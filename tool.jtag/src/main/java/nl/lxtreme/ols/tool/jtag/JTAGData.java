@@ -33,6 +33,10 @@ import nl.lxtreme.ols.api.data.BaseData;
  */
 public final class JTAGData extends BaseData<JTAGData>
 {
+  // CONSTANTS
+
+  private static final long serialVersionUID = 1L;
+
   // VARIABLES
 
   private final Object dataValue;
@@ -35,6 +35,8 @@ public final class JTAGDataSet extends BaseDataSet<JTAGData>
 {
   // CONSTANTS
 
+  private static final long serialVersionUID = 1L;
+
   public static final String JTAG_TDI = "TDI";
   public static final String JTAG_TDO = "TDO";
   public static final String JTAG_TCK = "TCK";
@@ -64,19 +66,21 @@ public final class JTAGDataSet extends BaseDataSet<JTAGData>
   /**
    * @param aTimeValue
    */
-  public void reportJTAGTdiData( final int aChannelIdx, final int aStartIdx, final int aEndIdx, final JTAGState aState, final String aTdiData )
+  public void reportJTAGTdiData( final int aChannelIdx, final int aStartIdx, final int aEndIdx, final JTAGState aState,
+      final BigInteger aTdiData )
   {
     final int idx = size();
-    addData( new JTAGData( idx, aChannelIdx, JTAG_TDI, new BigInteger( aTdiData, 2 ), aStartIdx, aEndIdx ) );
+    addData( new JTAGData( idx, aChannelIdx, JTAG_TDI, aTdiData, aStartIdx, aEndIdx ) );
   }
 
   /**
    * @param aTimeValue
    */
-  public void reportJTAGTdoData( final int aChannelIdx, final int aStartIdx, final int aEndIdx, final JTAGState aState, final String aTdoData )
+  public void reportJTAGTdoData( final int aChannelIdx, final int aStartIdx, final int aEndIdx, final JTAGState aState,
+      final BigInteger aTdoData )
   {
     final int idx = size();
-    addData( new JTAGData( idx, aChannelIdx, JTAG_TDO, new BigInteger( aTdoData, 2 ), aStartIdx, aEndIdx ) );
+    addData( new JTAGData( idx, aChannelIdx, JTAG_TDO, aTdoData, aStartIdx, aEndIdx ) );
   }
 
   /**
@@ -0,0 +1,181 @@
+/*
+ * OpenBench LogicSniffer / SUMP project 
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ * 
+ * Copyright (C) 2010-2011 J.W. Janssen, www.lxtreme.nl
+ */
+package nl.lxtreme.ols.tool.jtag;
+
+
+import java.math.BigInteger;
+
+
+/**
+ * Provides a shift register for the data shifted in or out during the Shift-DR
+ * and Shift-IR states.
+ * <p>
+ * The bits are packed into <code>long</code> words, the first bit shifted being
+ * the least significant bit of the resulting value.
+ * </p>
+ */
+final class JTAGShiftRegister
+{
+  // CONSTANTS
+
+  private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+  // VARIABLES
+
+  private long[] words;
+  private int bitCount;
+
+  // CONSTRUCTORS
+
+  /**
+   * Creates a new, empty, {@link JTAGShiftRegister} instance.
+   */
+  public JTAGShiftRegister()
+  {
+    this.words = new long[4];
+    this.bitCount = 0;
+  }
+
+  // METHODS
+
+  /**
+   * Removes all shifted bits from this register.
+   */
+  public void clear()
+  {
+    this.bitCount = 0;
+  }
+
+  /**
+   * Returns the number of bits shifted into this register.
+   * 
+   * @return a bit count, >= 0.
+   */
+  public int getBitCount()
+  {
+    return this.bitCount;
+  }
+
+  /**
+   * Returns whether any bits are shifted into this register.
+   * 
+   * @return <code>true</code> if no bits are shifted into this register,
+   *         <code>false</code> otherwise.
+   */
+  public boolean isEmpty()
+  {
+    return this.bitCount == 0;
+  }
+
+  /**
+   * Shifts a single bit into this register.
+   * 
+   * @param aBit
+   *          the bit value to shift in.
+   */
+  public void shift( final boolean aBit )
+  {
+    final int wordIdx = this.bitCount >>> 6;
+    if ( wordIdx >= this.words.length )
+    {
+      final long[] newWords = new long[this.words.length << 1];
+      System.arraycopy( this.words, 0, newWords, 0, this.words.length );
+      this.words = newWords;
+    }
+
+    final long mask = 1L << ( this.bitCount & 63 );
+    if ( aBit )
+    {
+      this.words[wordIdx] |= mask;
+    }
+    else
+    {
+      this.words[wordIdx] &= ~mask;
+    }
+    this.bitCount++;
+  }
+
+  /**
+   * Returns the shifted bits as (non-negative) integer value.
+   * 
+   * @return the value of this register, never <code>null</code>.
+   */
+  public BigInteger toBigInteger()
+  {
+    // BigInteger expects its magnitude in big-endian order...
+    final byte[] magnitude = new byte[( this.bitCount + 7 ) >>> 3];
+    for ( int i = 0, j = magnitude.length - 1; j >= 0; i++, j-- )
+    {
+      magnitude[j] = ( byte )( getBits( i << 3, 8 ) );
+    }
+    return new BigInteger( 1, magnitude );
+  }
+
+  /**
+   * Returns the shifted bits as hexadecimal string, like
+   * <code>String.format( "0x%x", toBigInteger() )</code> does.
+   * 
+   * @return a hexadecimal representation of this register, never
+   *         <code>null</code>.
+   */
+  public String toHexString()
+  {
+    final int digits = ( this.bitCount + 3 ) >>> 2;
+
+    final StringBuilder sb = new StringBuilder( digits + 2 ).append( "0x" );
+    for ( int i = digits - 1; i >= 0; i-- )
+    {
+      final int digit = getBits( i << 2, 4 );
+      // Omit leading zeros...
+      if ( ( digit != 0 ) || ( sb.length() > 2 ) )
+      {
+        sb.append( HEX_DIGITS[digit] );
+      }
+    }
+    if ( sb.length() == 2 )
+    {
+      sb.append( '0' );
+    }
+    return sb.toString();
+  }
+
+  /**
+   * Returns a number of bits, starting at the given bit position; bits beyond
+   * the bit count are zero.
+   * 
+   * @param aPosition
+   *          the position of the first bit, should be a multiple of the
+   *          number of bits;
+   * @param aCount
+   *          the number of bits, either 4 or 8.
+   */
+  private int getBits( final int aPosition, final int aCount )
+  {
+    int result = ( int )( this.words[aPosition >>> 6] >>> ( aPosition & 63 ) ) & ( ( 1 << aCount ) - 1 );
+
+    final int validBits = this.bitCount - aPosition;
+    if ( validBits < aCount )
+    {
+      result &= ( 1 << validBits ) - 1;
+    }
+    return result;
+  }
+}
@@ -43,8 +43,34 @@ public enum JTAGState
   EXIT2_IR( "Exit 2 IR" ), // State 14
   UPDATE_IR( "Update IR" ); // State 15
 
+  // CONSTANTS
+
+  /** The next state (by ordinal) for each state when TMS is low. */
+  private static final int[] NEXT_STATE_TMS_LOW = { 1, 1, 3, 4, 4, 6, 6, 4, 1, 10, 11, 11, 13, 13, 11, 1 };
+  /** The next state (by ordinal) for each state when TMS is high. */
+  private static final int[] NEXT_STATE_TMS_HIGH = { 0, 2, 9, 5, 5, 8, 7, 8, 2, 0, 12, 12, 15, 14, 15, 2 };
+
+  /** The TAP controller transitions, indexed by state and TMS value. */
+  private static final JTAGState[][] TRANSITIONS;
+
+  static
+  {
+    final JTAGState[] states = values();
+
+    TRANSITIONS = new JTAGState[states.length][2];
+    for ( int i = 0; i < states.length; i++ )
+    {
+      TRANSITIONS[i][0] = states[NEXT_STATE_TMS_LOW[i]];
+      TRANSITIONS[i][1] = states[NEXT_STATE_TMS_HIGH[i]];
+    }
+  }
+
+  // VARIABLES
+
   private final String displayText;
 
+  // CONSTRUCTORS
+
   /**
    * Creates a new JTAGState instance.
    * 
@@ -56,6 +82,8 @@ public enum JTAGState
     this.displayText = aDisplayText;
   }
 
+  // METHODS
+
   /**
    * Returns the display text of this state.
    * 
@@ -66,6 +94,20 @@ public enum JTAGState
     return this.displayText;
   }
   
+  /**
+   * Returns the state the TAP controller moves to on the next rising edge of
+   * TCK.
+   * 
+   * @param aTmsHigh
+   *          <code>true</code> if TMS is high on the rising edge of TCK,
+   *          <code>false</code> if it is low.
+   * @return the next state, never <code>null</code>.
+   */
+  public JTAGState getNextState( final boolean aTmsHigh )
+  {
+    return TRANSITIONS[ordinal()][aTmsHigh ? 1 : 0];
+  }
+
   /**
    * {@inheritDoc}
    */
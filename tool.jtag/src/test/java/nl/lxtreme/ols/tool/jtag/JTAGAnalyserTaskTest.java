@@ -0,0 +1,230 @@
+/*
+ * OpenBench LogicSniffer / SUMP project 
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ * 
+ * Copyright (C) 2010-2011 J.W. Janssen, www.lxtreme.nl
+ */
+package nl.lxtreme.ols.tool.jtag;
+
+
+import static org.junit.Assert.*;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import nl.lxtreme.ols.api.Ols;
+import nl.lxtreme.ols.api.data.CapturedData;
+import nl.lxtreme.ols.api.data.annotation.Annotation;
+import nl.lxtreme.ols.api.data.annotation.AnnotationListener;
+import nl.lxtreme.ols.api.tools.ToolProgressListener;
+import nl.lxtreme.ols.test.data.DataTestUtils;
+import nl.lxtreme.ols.tool.base.annotation.SampleDataAnnotation;
+
+import org.junit.Test;
+
+
+/**
+ * Test cases for {@link JTAGAnalyserTask}.
+ */
+public class JTAGAnalyserTaskTest
+{
+  // CONSTANTS
+
+  private static final int TCK = 0;
+  private static final int TMS = 1;
+  private static final int TDI = 2;
+  private static final int TDO = 3;
+
+  // METHODS
+
+  /**
+   * Tests that a long DR-shift is decoded into the correct TDI and TDO values.
+   */
+  @Test
+  public void testDecodeLongShiftOk() throws Exception
+  {
+    final Random rnd = new Random( 42L );
+    final int bitCount = 1234;
+    final boolean[] tdiBits = new boolean[bitCount];
+    final boolean[] tdoBits = new boolean[bitCount];
+
+    final List<Integer> samples = new ArrayList<Integer>();
+    // Test-Logic-Reset -> Run-Test/Idle -> Select-DR -> Capture-DR...
+    for ( int i = 0; i < 5; i++ )
+    {
+      clock( samples, true, false, false );
+    }
+    clock( samples, false, false, false );
+    clock( samples, true, false, false );
+    clock( samples, false, false, false );
+    // Capture-DR -> Shift-DR...
+    clock( samples, false, false, false );
+    // Shift-DR -> Exit1-DR on the last bit...
+    for ( int i = 0; i < bitCount; i++ )
+    {
+      tdiBits[i] = rnd.nextBoolean();
+      tdoBits[i] = rnd.nextBoolean();
+      clock( samples, i == ( bitCount - 1 ), tdiBits[i], tdoBits[i] );
+    }
+    // Exit1-DR -> Update-DR -> Run-Test/Idle...
+    clock( samples, true, false, false );
+    clock( samples, false, false, false );
+    clock( samples, false, false, false );
+
+    final int[] values = new int[samples.size()];
+    for ( int i = 0; i < values.length; i++ )
+    {
+      values[i] = samples.get( i ).intValue();
+    }
+
+    final List<String> annotations = new ArrayList<String>();
+    final AnnotationListener annotationListener = new AnnotationListener()
+    {
+      @Override
+      public void clearAnnotations()
+      {
+        // Nop
+      }
+
+      @Override
+      public void clearAnnotations( final int aChannelIdx )
+      {
+        // Nop
+      }
+
+      @Override
+      public void onAnnotation( final Annotation<?> aAnnotation )
+      {
+        if ( ( aAnnotation instanceof SampleDataAnnotation ) && ( aAnnotation.getChannel() != TMS ) )
+        {
+          annotations.add( aAnnotation.getChannel() + ":" + aAnnotation.getAnnotation() );
+        }
+      }
+    };
+    final ToolProgressListener progressListener = new ToolProgressListener()
+    {
+      @Override
+      public void setProgress( final int aPercentage )
+      {
+        // Nop
+      }
+    };
+
+    final CapturedData data = new CapturedData( values, Ols.NOT_AVAILABLE, 1000000, 4, 0x0F );
+    final JTAGAnalyserTask task = new JTAGAnalyserTask( DataTestUtils.createToolContext( data ), progressListener,
+        annotationListener );
+    task.setTckIndex( TCK );
+    task.setTmsIndex( TMS );
+    task.setTdiIndex( TDI );
+    task.setTdoIndex( TDO );
+
+    final JTAGDataSet result = task.call();
+
+    final BigInteger expectedTdi = toBigInteger( tdiBits );
+    final BigInteger expectedTdo = toBigInteger( tdoBits );
+
+    BigInteger tdi = null;
+    BigInteger tdo = null;
+    for ( JTAGData item : result.getData() )
+    {
+      if ( item.isTdiData() )
+      {
+        tdi = ( BigInteger )item.getDataValue();
+      }
+      else if ( item.isTdoData() )
+      {
+        tdo = ( BigInteger )item.getDataValue();
+      }
+    }
+
+    assertEquals( expectedTdi, tdi );
+    assertEquals( expectedTdo, tdo );
+
+    assertEquals( 2, annotations.size() );
+    assertEquals( TDI + ":" + String.format( "0x%x", expectedTdi ), annotations.get( 0 ) );
+    assertEquals( TDO + ":" + String.format( "0x%x", expectedTdo ), annotations.get( 1 ) );
+  }
+
+  /**
+   * Tests the shift register for all lengths up to a few words.
+   */
+  @Test
+  public void testShiftRegisterOk()
+  {
+    final Random rnd = new Random( 1L );
+    final JTAGShiftRegister register = new JTAGShiftRegister();
+
+    for ( int length = 1; length < 300; length++ )
+    {
+      final boolean[] bits = new boolean[length];
+
+      register.clear();
+      assertTrue( register.isEmpty() );
+      for ( int i = 0; i < length; i++ )
+      {
+        bits[i] = rnd.nextBoolean();
+        register.shift( bits[i] );
+      }
+
+      final BigInteger expected = toBigInteger( bits );
+      assertEquals( length, register.getBitCount() );
+      assertEquals( expected, register.toBigInteger() );
+      assertEquals( String.format( "0x%x", expected ), register.toHexString() );
+    }
+  }
+
+  /**
+   * Tests a few of the TAP controller transitions.
+   */
+  @Test
+  public void testStateTransitionsOk()
+  {
+    assertEquals( JTAGState.TEST_LOGIC_RESET, JTAGState.TEST_LOGIC_RESET.getNextState( true ) );
+    assertEquals( JTAGState.RUN_TEST_IDLE, JTAGState.TEST_LOGIC_RESET.getNextState( false ) );
+    assertEquals( JTAGState.SELECT_IR, JTAGState.SELECT_DR.getNextState( true ) );
+    assertEquals( JTAGState.TEST_LOGIC_RESET, JTAGState.SELECT_IR.getNextState( true ) );
+    assertEquals( JTAGState.SHIFT_DR, JTAGState.EXIT2_DR.getNextState( false ) );
+    assertEquals( JTAGState.UPDATE_IR, JTAGState.EXIT1_IR.getNextState( true ) );
+    assertEquals( JTAGState.SELECT_DR, JTAGState.UPDATE_IR.getNextState( true ) );
+  }
+
+  /**
+   * Adds a single TCK cycle to the given samples.
+   */
+  private static void clock( final List<Integer> aSamples, final boolean aTms, final boolean aTdi,
+      final boolean aTdo )
+  {
+    final int value = ( aTms ? ( 1 << TMS ) : 0 ) | ( aTdi ? ( 1 << TDI ) : 0 ) | ( aTdo ? ( 1 << TDO ) : 0 );
+    aSamples.add( Integer.valueOf( value ) );
+    aSamples.add( Integer.valueOf( value | ( 1 << TCK ) ) );
+  }
+
+  /**
+   * Converts the given bits, least significant bit first, to a value.
+   */
+  private static BigInteger toBigInteger( final boolean[] aBits )
+  {
+    final StringBuilder sb = new StringBuilder();
+    for ( int i = aBits.length - 1; i >= 0; i-- )
+    {
+      sb.append( aBits[i] ? '1' : '0' );
+    }
+    return new BigInteger( sb.toString(), 2 );
+  }
+}
@@ -21,8 +21,6 @@
 package nl.lxtreme.ols.tool.spi;
 
 
-import static nl.lxtreme.ols.util.NumberUtils.*;
-
 import java.beans.*;
 import java.util.logging.*;
 
@@ -31,6 +29,7 @@ import nl.lxtreme.ols.api.data.*;
 import nl.lxtreme.ols.api.data.annotation.AnnotationListener;
 import nl.lxtreme.ols.api.tools.*;
 import nl.lxtreme.ols.tool.base.annotation.*;
+import nl.lxtreme.ols.tool.base.scan.*;
 import nl.lxtreme.ols.util.*;
 import nl.lxtreme.ols.util.NumberUtils.BitOrder;
 import nl.lxtreme.ols.util.analysis.*;
@@ -39,8 +38,282 @@ import nl.lxtreme.ols.util.analysis.*;
 /**
  * Provides a task for analyzing SPI traces.
  */
-public class SPIAnalyserTask implements ToolTask<SPIDataSet>
+public class SPIAnalyserTask implements ToolTask<SPIDataSet>, ScanDecoderProvider<SPIDataSet>
 {
+  // INNER TYPES
+
+  /**
+   * Provides the actual SPI protocol decoder, driven by a {@link SampleScanner}.
+   * Only called for CS and SCK transitions, as the data lines are only sampled
+   * on clock edges.
+   */
+  final class SPIScanDecoder implements ScanDecoder<SPIDataSet>
+  {
+    // VARIABLES
+
+    private final SPIDataSet dataSet;
+    private final SPIMode mode;
+    private final int startOfDecode;
+    private final int mosiMask;
+    private final int misoMask;
+    private final int io2Mask;
+    private final int io3Mask;
+    private final int sckMask;
+    private final int csMask;
+    private final int clockEdgeCount;
+
+    private long[] timestamps;
+    private int oldSckValue;
+    private int oldCsValue;
+    private boolean slaveSelected;
+    private int dataStartIdx;
+    private int bitIdx;
+    private int clockEdgeIdx;
+    private int misovalue;
+    private int mosivalue;
+
+    // CONSTRUCTORS
+
+    /**
+     * Creates a new SPIScanDecoder instance.
+     */
+    SPIScanDecoder( final SPIDataSet aDataSet, final SPIMode aMode, final int aSlaveSelectedIdx )
+    {
+      this.dataSet = aDataSet;
+      this.mode = aMode;
+      this.startOfDecode = Math.max( aSlaveSelectedIdx, aDataSet.getStartOfDecode() );
+
+      this.mosiMask = ( 1 << SPIAnalyserTask.this.mosiIdx ); // IO0
+      this.misoMask = ( 1 << SPIAnalyserTask.this.misoIdx ); // IO1
+      this.io2Mask = ( 1 << SPIAnalyserTask.this.io2Idx );
+      this.io3Mask = ( 1 << SPIAnalyserTask.this.io3Idx );
+      this.sckMask = ( 1 << SPIAnalyserTask.this.sckIdx );
+      this.csMask = ( 1 << SPIAnalyserTask.this.csIdx );
+
+      this.clockEdgeCount = ( SPIAnalyserTask.this.bitCount + 1 ) * 2;
+    }
+
+    // METHODS
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getChannelMask()
+    {
+      return this.sckMask | this.csMask;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getEndSampleIndex()
+    {
+      return this.dataSet.getEndOfDecode();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public SPIDataSet getResult()
+    {
+      return this.dataSet;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getStartSampleIndex()
+    {
+      return this.startOfDecode;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void onTransition( final int aSampleIdx, final int aValue )
+    {
+      final int idx = aSampleIdx;
+      final int dataSample = aValue;
+      final int bitCount = SPIAnalyserTask.this.bitCount;
+      final SPIFIMode protocol = SPIAnalyserTask.this.protocol;
+
+      /* CLK edge detection */
+      final int sckValue = ( dataSample & this.sckMask );
+      /* CS edge detection */
+      final int csValue = ( dataSample & this.csMask );
+
+      final Edge slaveSelectEdge = Edge.toEdge( this.oldCsValue, csValue );
+      this.oldCsValue = csValue;
+
+      if ( slaveSelectEdge.isFalling() )
+      {
+        reportCsLow( this.dataSet, idx );
+
+        this.slaveSelected = !SPIAnalyserTask.this.invertCS;
+      }
+      else if ( slaveSelectEdge.isRising() )
+      {
+        reportCsHigh( this.dataSet, idx );
+
+        this.slaveSelected = SPIAnalyserTask.this.invertCS;
+        // it could be that we're waiting until a next clock cycle comes along;
+        // however, the /CS signal might be going up before that cycle actually
+        // comes...
+        if ( this.bitIdx <= 0 )
+        {
+          // Full datagram decoded...
+          reportData( this.dataSet, this.timestamps, this.dataStartIdx, idx, this.mosivalue, this.misovalue );
+
+          this.bitIdx = bitCount;
+          this.misovalue = 0;
+          this.mosivalue = 0;
+        }
+      }
+
+      if ( SPIAnalyserTask.this.honourCS && !this.slaveSelected )
+      {
+        // We should honour the slave-select, but the slave isn't
+        // currently selected...
+        return;
+      }
+
+      final Edge clockEdge = Edge.toEdge( this.oldSckValue, sckValue );
+      this.oldSckValue = sckValue;
+
+      final boolean sampleEdgeSeen;
+      if ( clockEdge.isRising() || clockEdge.isFalling() )
+      {
+        this.clockEdgeIdx = ( this.clockEdgeIdx + 1 ) % this.clockEdgeCount;
+        // When CPHA is '1', we should sample at the even numbered clock edges,
+        // when CPHA is '0' we should sample at the odd numbered clock edges...
+        sampleEdgeSeen = ( ( this.clockEdgeIdx + this.mode.getCPHA() ) % 2 ) != 0;
+
+        // First clock edge we've seen? If so, we should keep this index as our
+        // start of data index...
+        if ( sampleEdgeSeen && ( this.bitIdx == bitCount ) )
+        {
+          this.dataStartIdx = idx;
+        }
+
+        LOG.log( Level.FINE, "Clock edge: {0}, idx: {1}, sample? {2}", //
+            new Object[] { clockEdge, Integer.valueOf( this.clockEdgeIdx ), Boolean.valueOf( sampleEdgeSeen ) } );
+      }
+      else
+      {
+        // Only actual clock edges should be taken into account...
+        sampleEdgeSeen = false;
+      }
+
+      if ( sampleEdgeSeen )
+      {
+        if ( SPIFIMode.STANDARD.equals( protocol ) )
+        {
+          // sample MiSo here; always MSB first, perform conversion later on...
+          if ( ( SPIAnalyserTask.this.misoIdx >= 0 ) && ( ( dataSample & this.misoMask ) != 0 ) )
+          {
+            this.misovalue |= ( 1 << this.bitIdx );
+          }
+          // sample MoSi here; always MSB first, perform conversion later on...
+          if ( ( SPIAnalyserTask.this.mosiIdx >= 0 ) && ( ( dataSample & this.mosiMask ) != 0 ) )
+          {
+            this.mosivalue |= ( 1 << this.bitIdx );
+          }
+
+          if ( this.bitIdx >= 0 )
+          {
+            this.bitIdx--;
+          }
+        }
+        else if ( SPIFIMode.DUAL.equals( protocol ) )
+        {
+          // Sample both MOSI/IO0 & MISO/IO1 here; they form two bits of our
+          // symbol; we do MSB first, as the decoded symbol will be corrected
+          // later on...
+          if ( ( dataSample & this.misoMask ) != 0 )
+          {
+            this.mosivalue |= ( 1 << this.bitIdx );
+          }
+          this.bitIdx--;
+          if ( ( dataSample & this.mosiMask ) != 0 )
+          {
+            this.mosivalue |= ( 1 << this.bitIdx );
+          }
+          this.bitIdx--;
+        }
+        else if ( SPIFIMode.QUAD.equals( protocol ) )
+        {
+          // Sample both MOSI/IO0, MISO/IO1, IO2 & IO3 here; they form four bits
+          // of our symbol; we do MSB first, as the decoded symbol will be
+          // corrected later on...
+          if ( ( dataSample & this.io3Mask ) != 0 )
+          {
+            this.mosivalue |= ( 1 << this.bitIdx );
+          }
+          this.bitIdx--;
+          if ( ( dataSample & this.io2Mask ) != 0 )
+          {
+            this.mosivalue |= ( 1 << this.bitIdx );
+          }
+          this.bitIdx--;
+          if ( ( dataSample & this.misoMask ) != 0 )
+          {
+            this.mosivalue |= ( 1 << this.bitIdx );
+          }
+          this.bitIdx--;
+          if ( ( dataSample & this.mosiMask ) != 0 )
+          {
+            this.mosivalue |= ( 1 << this.bitIdx );
+          }
+          this.bitIdx--;
+        }
+
+        if ( this.bitIdx < 0 )
+        {
+          // Full datagram decoded...
+          reportData( this.dataSet, this.timestamps, this.dataStartIdx, idx, this.mosivalue, this.misovalue );
+
+          this.bitIdx = bitCount;
+          this.misovalue = 0;
+          this.mosivalue = 0;
+        }
+      }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void scanEnded()
+    {
+      this.timestamps = null;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void scanStarted( final AcquisitionResult aData )
+    {
+      final int startValue = aData.getValues()[this.startOfDecode];
+
+      this.timestamps = aData.getTimestamps();
+      // scanning for falling/rising clk edges
+      this.oldSckValue = ( startValue & this.sckMask );
+      this.oldCsValue = ( startValue & this.csMask );
+      this.slaveSelected = true;
+      this.dataStartIdx = this.startOfDecode;
+      this.bitIdx = SPIAnalyserTask.this.bitCount;
+      this.clockEdgeIdx = 0;
+      this.misovalue = 0;
+      this.mosivalue = 0;
+    }
+  }
+
   // CONSTANTS
 
   private static final Logger LOG = Logger.getLogger( SPIAnalyserTask.class.getName() );
@@ -114,6 +387,21 @@ public class SPIAnalyserTask implements ToolTask<SPIDataSet>
    */
   @Override
   public SPIDataSet call() throws Exception
+  {
+    final ScanDecoder<SPIDataSet> decoder = createScanDecoder();
+
+    final SampleScanner scanner = new SampleScanner( this.context.getData() );
+    scanner.addDecoder( decoder );
+    scanner.scan( this.progressListener );
+
+    return decoder.getResult();
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public ScanDecoder<SPIDataSet> createScanDecoder()
   {
     if ( LOG.isLoggable( Level.FINE ) )
     {
@@ -153,10 +441,8 @@ public class SPIAnalyserTask implements ToolTask<SPIDataSet>
       reportCsLow( decodedData, slaveSelected );
     }
 
-    // Perform the actual decoding of the data line(s)...
-    clockDataOnEdge( decodedData, this.spiMode, slaveSelected );
-
-    return decodedData;
+    // The actual decoding of the data line(s) is done on each clock edge...
+    return new SPIScanDecoder( decodedData, this.spiMode, slaveSelected );
   }
 
   /**
@@ -317,194 +603,6 @@ public class SPIAnalyserTask implements ToolTask<SPIDataSet>
     this.spiMode = aMode;
   }
 
-  /**
-   * Decodes the SPI-data on a given clock edge.
-   * 
-   * @param aDataSet
-   *          the decoded data to fill;
-   * @param aMode
-   *          the SPI mode defining the edges on which data can be sampled and
-   *          on which edges data can change.
-   */
-  private void clockDataOnEdge( final SPIDataSet aDataSet, final SPIMode aMode, final int aSlaveSelectedIdx )
-  {
-    final AcquisitionResult data = this.context.getData();
-
-    final int[] values = data.getValues();
-
-    final int startOfDecode = Math.max( aSlaveSelectedIdx, aDataSet.getStartOfDecode() );
-    final int endOfDecode = aDataSet.getEndOfDecode();
-
-    final int mosiMask = ( 1 << this.mosiIdx ); // IO0
-    final int misoMask = ( 1 << this.misoIdx ); // IO1
-    final int io2Mask = ( 1 << this.io2Idx );
-    final int io3Mask = ( 1 << this.io3Idx );
-    final int sckMask = ( 1 << this.sckIdx );
-    final int csMask = ( 1 << this.csIdx );
-
-    // scanning for falling/rising clk edges
-    int oldSckValue = ( values[startOfDecode] & sckMask );
-    int oldCsValue = ( values[startOfDecode] & csMask );
-
-    boolean slaveSelected = true;
-    int dataStartIdx = startOfDecode;
-
-    int bitIdx = this.bitCount;
-
-    final int clockEdgeCount = ( this.bitCount + 1 ) * 2;
-    int clockEdgeIdx = 0;
-
-    int misovalue = 0;
-    int mosivalue = 0;
-
-    for ( int idx = startOfDecode + 1; idx < endOfDecode; idx++ )
-    {
-      final int dataSample = values[idx];
-      /* CLK edge detection */
-      final int sckValue = ( dataSample & sckMask );
-      /* CS edge detection */
-      final int csValue = ( dataSample & csMask );
-
-      final Edge slaveSelectEdge = Edge.toEdge( oldCsValue, csValue );
-      oldCsValue = csValue;
-
-      if ( slaveSelectEdge.isFalling() )
-      {
-        reportCsLow( aDataSet, idx );
-
-        slaveSelected = !this.invertCS;
-      }
-      else if ( slaveSelectEdge.isRising() )
-      {
-        reportCsHigh( aDataSet, idx );
-
-        slaveSelected = this.invertCS;
-        // it could be that we're waiting until a next clock cycle comes along;
-        // however, the /CS signal might be going up before that cycle actually
-        // comes...
-        if ( bitIdx <= 0 )
-        {
-          // Full datagram decoded...
-          reportData( aDataSet, dataStartIdx, idx, mosivalue, misovalue );
-
-          bitIdx = this.bitCount;
-          misovalue = 0;
-          mosivalue = 0;
-        }
-      }
-
-      if ( this.honourCS && !slaveSelected )
-      {
-        // We should honour the slave-select, but the slave isn't
-        // currently selected...
-        continue;
-      }
-
-      final Edge clockEdge = Edge.toEdge( oldSckValue, sckValue );
-      oldSckValue = sckValue;
-
-      final boolean sampleEdgeSeen;
-      if ( clockEdge.isRising() || clockEdge.isFalling() )
-      {
-        clockEdgeIdx = ( clockEdgeIdx + 1 ) % clockEdgeCount;
-        // When CPHA is '1', we should sample at the even numbered clock edges,
-        // when CPHA is '0' we should sample at the odd numbered clock edges...
-        sampleEdgeSeen = ( ( clockEdgeIdx + aMode.getCPHA() ) % 2 ) != 0;
-
-        // First clock edge we've seen? If so, we should keep this index as our
-        // start of data index...
-        if ( sampleEdgeSeen && ( bitIdx == this.bitCount ) )
-        {
-          dataStartIdx = idx;
-        }
-
-        LOG.log( Level.FINE, "Clock edge: {0}, idx: {1}, sample? {2}", //
-            new Object[] { clockEdge, Integer.valueOf( clockEdgeIdx ), Boolean.valueOf( sampleEdgeSeen ) } );
-      }
-      else
-      {
-        // Only actual clock edges should be taken into account...
-        sampleEdgeSeen = false;
-      }
-
-      if ( sampleEdgeSeen )
-      {
-        if ( SPIFIMode.STANDARD.equals( this.protocol ) )
-        {
-          // sample MiSo here; always MSB first, perform conversion later on...
-          if ( ( this.misoIdx >= 0 ) && ( ( dataSample & misoMask ) != 0 ) )
-          {
-            misovalue |= ( 1 << bitIdx );
-          }
-          // sample MoSi here; always MSB first, perform conversion later on...
-          if ( ( this.mosiIdx >= 0 ) && ( ( dataSample & mosiMask ) != 0 ) )
-          {
-            mosivalue |= ( 1 << bitIdx );
-          }
-
-          if ( bitIdx >= 0 )
-          {
-            bitIdx--;
-          }
-        }
-        else if ( SPIFIMode.DUAL.equals( this.protocol ) )
-        {
-          // Sample both MOSI/IO0 & MISO/IO1 here; they form two bits of our
-          // symbol; we do MSB first, as the decoded symbol will be corrected
-          // later on...
-          if ( ( dataSample & misoMask ) != 0 )
-          {
-            mosivalue |= ( 1 << bitIdx );
-          }
-          bitIdx--;
-          if ( ( dataSample & mosiMask ) != 0 )
-          {
-            mosivalue |= ( 1 << bitIdx );
-          }
-          bitIdx--;
-        }
-        else if ( SPIFIMode.QUAD.equals( this.protocol ) )
-        {
-          // Sample both MOSI/IO0, MISO/IO1, IO2 & IO3 here; they form four bits
-          // of our symbol; we do MSB first, as the decoded symbol will be
-          // corrected later on...
-          if ( ( dataSample & io3Mask ) != 0 )
-          {
-            mosivalue |= ( 1 << bitIdx );
-          }
-          bitIdx--;
-          if ( ( dataSample & io2Mask ) != 0 )
-          {
-            mosivalue |= ( 1 << bitIdx );
-          }
-          bitIdx--;
-          if ( ( dataSample & misoMask ) != 0 )
-          {
-            mosivalue |= ( 1 << bitIdx );
-          }
-          bitIdx--;
-          if ( ( dataSample & mosiMask ) != 0 )
-          {
-            mosivalue |= ( 1 << bitIdx );
-          }
-          bitIdx--;
-        }
-
-        if ( bitIdx < 0 )
-        {
-          // Full datagram decoded...
-          reportData( aDataSet, dataStartIdx, idx, mosivalue, misovalue );
-
-          bitIdx = this.bitCount;
-          misovalue = 0;
-          mosivalue = 0;
-        }
-      }
-
-      this.progressListener.setProgress( getPercentage( idx, startOfDecode, endOfDecode ) );
-    }
-  }
-
   /**
    * Tries the detect what the clock polarity of the contained data values is.
    * Based on this we can make a "educated" guess what SPI mode should be used
@@ -634,6 +732,8 @@ public class SPIAnalyserTask implements ToolTask<SPIDataSet>
    * 
    * @param aDecodedData
    *          the data set to add the data event(s) to;
+   * @param aTimestamps
+   *          the timestamps of the samples;
    * @param aStartIdx
    *          the starting sample index on which the data started;
    * @param aEndIdx
@@ -643,11 +743,9 @@ public class SPIAnalyserTask implements ToolTask<SPIDataSet>
    * @param aMisoValue
    *          the MISO data value.
    */
-  private void reportData( final SPIDataSet aDecodedData, final int aStartIdx, final int aEndIdx, final int aMosiValue,
-      final int aMisoValue )
+  private void reportData( final SPIDataSet aDecodedData, final long[] aTimestamps, final int aStartIdx,
+      final int aEndIdx, final int aMosiValue, final int aMisoValue )
   {
-    long[] timestamps = this.context.getData().getTimestamps();
-
     if ( SPIFIMode.STANDARD.equals( this.protocol ) )
     {
       if ( this.mosiIdx >= 0 )
@@ -661,8 +759,8 @@ public class SPIAnalyserTask implements ToolTask<SPIDataSet>
           formatSpec = formatSpec.concat( " (%1$c)" );
         }
 
-        this.annotationListener.onAnnotation( new SampleDataAnnotation( this.mosiIdx, timestamps[aStartIdx],
-            timestamps[aEndIdx], String.format( formatSpec, Integer.valueOf( mosivalue ) ) ) );
+        this.annotationListener.onAnnotation( new SampleDataAnnotation( this.mosiIdx, aTimestamps[aStartIdx],
+            aTimestamps[aEndIdx], String.format( formatSpec, Integer.valueOf( mosivalue ) ) ) );
 
         aDecodedData.reportMosiData( this.mosiIdx, aStartIdx, aEndIdx, mosivalue );
       }
@@ -678,8 +776,8 @@ public class SPIAnalyserTask implements ToolTask<SPIDataSet>
           formatSpec = formatSpec.concat( " (%1$c)" );
         }
 
-        this.annotationListener.onAnnotation( new SampleDataAnnotation( this.misoIdx, timestamps[aStartIdx],
-            timestamps[aEndIdx], String.format( formatSpec, Integer.valueOf( misovalue ) ) ) );
+        this.annotationListener.onAnnotation( new SampleDataAnnotation( this.misoIdx, aTimestamps[aStartIdx],
+            aTimestamps[aEndIdx], String.format( formatSpec, Integer.valueOf( misovalue ) ) ) );
 
         aDecodedData.reportMisoData( this.misoIdx, aStartIdx, aEndIdx, misovalue );
       }
@@ -695,8 +793,8 @@ public class SPIAnalyserTask implements ToolTask<SPIDataSet>
         formatSpec = formatSpec.concat( " (%1$c)" );
       }
 
-      this.annotationListener.onAnnotation( new SampleDataAnnotation( this.mosiIdx, timestamps[aStartIdx],
-          timestamps[aEndIdx], String.format( formatSpec, Integer.valueOf( mosivalue ) ) ) );
+      this.annotationListener.onAnnotation( new SampleDataAnnotation( this.mosiIdx, aTimestamps[aStartIdx],
+          aTimestamps[aEndIdx], String.format( formatSpec, Integer.valueOf( mosivalue ) ) ) );
 
       aDecodedData.reportMosiData( this.mosiIdx, aStartIdx, aEndIdx, mosivalue );
     }
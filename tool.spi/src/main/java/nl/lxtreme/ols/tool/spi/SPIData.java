@@ -36,6 +36,10 @@ import nl.lxtreme.ols.api.data.*;
  */
 public final class SPIData extends BaseData<SPIData>
 {
+  // CONSTANTS
+
+  private static final long serialVersionUID = 1L;
+
   // VARIABLES
 
   private final int dataValue;
@@ -32,6 +32,8 @@ public final class SPIDataSet extends BaseDataSet<SPIData>
 {
   // CONSTANTS
 
+  private static final long serialVersionUID = 1L;
+
   public static final String SPI_CS_LOW = "CS_LOW";
   public static final String SPI_CS_HIGH = "CS_HIGH";
   public static final String SPI_MOSI = "MOSI";
@@ -23,7 +23,6 @@ package nl.lxtreme.ols.tool.state;
 
 import java.util.logging.*;
 
-import nl.lxtreme.ols.api.*;
 import nl.lxtreme.ols.api.acquisition.*;
 import nl.lxtreme.ols.api.data.*;
 import nl.lxtreme.ols.api.tools.*;
@@ -64,60 +63,21 @@ public class StateAnalysisTask implements ToolTask<AcquisitionResult>
    * @see javax.swing.SwingWorker#doInBackground()
    */
   @Override
-  public CapturedData call() throws Exception
+  public AcquisitionResult call() throws Exception
   {
     final AcquisitionResult data = this.context.getData();
 
-    // obtain data from captured data
-    final int[] values = data.getValues();
-    final long triggerPosition = data.getTriggerPosition();
-
-    final int maskValue = 1 << this.number;
-
-    int size = 0;
-    int last = ( values[0] & maskValue ) >> this.number;
-
-    // calculate new sample array size
-    for ( final int value : values )
-    {
-      final int current = ( value & maskValue ) >> this.number;
-      if ( ( last == this.level ) && ( current != this.level ) )
-      {
-        size++;
-      }
-      last = current;
-    }
-
-    if ( size <= 0 )
+    final ClockedStateView result = new ClockedStateView( data, this.number, this.level );
+    if ( result.getStateCount() <= 0 )
     {
       LOG.log( Level.WARNING, "No state changes found in data; aborting analysis..." );
       throw new IllegalStateException( "No state changes found!" );
     }
 
-    // convert captured data
-    last = values[0] & maskValue;
-    int pos = 0;
-    int newTrigger = -1;
-
-    final int[] newValues = new int[size];
-    for ( int i = 0; i < values.length; i++ )
-    {
-      final int current = ( values[i] & maskValue ) >> this.number;
-      if ( ( last == this.level ) && ( current != this.level ) )
-      {
-        newValues[pos++] = values[i - 1];
-      }
-      if ( triggerPosition == i )
-      {
-        newTrigger = pos;
-      }
-      last = current;
-    }
-
-    final CapturedData newCapturedData = new CapturedData( newValues, newTrigger, Ols.NOT_AVAILABLE,
-        data.getChannels(), data.getEnabledChannels() );
+    // Sample the states while we're still running in the background...
+    result.getValues();
 
-    return newCapturedData;
+    return result;
   }
 
   /**
@@ -518,6 +518,7 @@ public class AsyncSerialDataDecoder
 
   private SerialDecoderCallback callback;
   private ToolProgressListener progressListener;
+  private ChannelTransitions transitions;
 
   // CONSTRUCTORS
 
@@ -671,6 +672,30 @@ public class AsyncSerialDataDecoder
     return extractor.averageBitLength();
   }
 
+  /**
+   * Decodes a serial data line from its recorded transitions, rather than from
+   * the sample values of the data set.
+   * 
+   * @param aTransitions
+   *          the transitions of the channel to decode, recorded from (at
+   *          least) the sample before the start of decoding up to the last
+   *          sample, cannot be <code>null</code>.
+   * @return the bit length used in decoding, in number of samples, >= 0;
+   * @see #decodeDataLine(int)
+   */
+  public double decodeDataLine( final ChannelTransitions aTransitions )
+  {
+    this.transitions = aTransitions;
+    try
+    {
+      return decodeDataLine( aTransitions.getChannelIndex() );
+    }
+    finally
+    {
+      this.transitions = null;
+    }
+  }
+
   /**
    * Sets the decoder callback.
    * 
@@ -711,6 +736,11 @@ public class AsyncSerialDataDecoder
   protected final long findEdge( final int aChannelIndex, final Edge aSampleEdge, final long aStartOfDecode,
       final long aEndOfDecode )
   {
+    if ( ( this.transitions != null ) && ( this.transitions.getChannelIndex() == aChannelIndex ) )
+    {
+      return this.transitions.findEdge( aSampleEdge, aStartOfDecode, aEndOfDecode );
+    }
+
     final int mask = ( 1 << aChannelIndex );
     long result = -1;
 
@@ -776,6 +806,11 @@ public class AsyncSerialDataDecoder
    */
   protected final int getDataValue( final long aTimeValue, final int aMask )
   {
+    if ( ( this.transitions != null ) && ( this.transitions.getMask() == aMask ) )
+    {
+      return this.transitions.getDataValue( aTimeValue );
+    }
+
     final int[] values = this.dataSet.getValues();
     final long[] timestamps = this.dataSet.getTimestamps();
     int k = findSampleIndex( timestamps, aTimeValue );
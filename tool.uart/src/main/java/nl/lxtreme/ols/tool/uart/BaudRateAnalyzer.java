@@ -93,6 +93,32 @@ public final class BaudRateAnalyzer
     }
   }
 
+  /**
+   * Creates a new {@link BaudRateAnalyzer} instance.
+   * 
+   * @param aSampleRate
+   *          the sample rate at which the incoming data was sampled;
+   * @param aTransitions
+   *          the transitions to determine the baudrate for, recorded from the
+   *          first sample on.
+   */
+  public BaudRateAnalyzer( final int aSampleRate, final ChannelTransitions aTransitions )
+  {
+    this.sampleRate = aSampleRate;
+    this.statData = new Frequency<Integer>();
+
+    long lastTransition = 0;
+    for ( int i = 0; i < aTransitions.getCount(); i++ )
+    {
+      final long transition = aTransitions.getTime( i );
+
+      final int bitLength = ( int )( transition - lastTransition );
+      this.statData.addValue( Integer.valueOf( bitLength ) );
+
+      lastTransition = transition;
+    }
+  }
+
   // METHODS
 
   /**
@@ -0,0 +1,256 @@
+/*
+ * OpenBench LogicSniffer / SUMP project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ *
+ * Copyright (C) 2010-2011 - J.W. Janssen, http://www.lxtreme.nl
+ */
+package nl.lxtreme.ols.tool.uart;
+
+
+import nl.lxtreme.ols.api.data.*;
+
+
+/**
+ * Records the transitions of a single channel, as seen during a scan over the
+ * sample values.
+ * <p>
+ * The level of the channel is constant between two transitions, so all levels
+ * and edges of the channel can be derived from its transitions alone, without
+ * touching the (much larger) sample values again.
+ * </p>
+ */
+public final class ChannelTransitions
+{
+  // CONSTANTS
+
+  private static final int INITIAL_CAPACITY = 1024;
+
+  // VARIABLES
+
+  private final int channelIndex;
+  private final int mask;
+  private final int initialLevel;
+
+  private int[] sampleIndexes;
+  private long[] times;
+  private int count;
+
+  // CONSTRUCTORS
+
+  /**
+   * Creates a new {@link ChannelTransitions} instance.
+   *
+   * @param aChannelIndex
+   *          the index of the channel to record, >= 0 && < 32;
+   * @param aInitialValue
+   *          the sample value at which recording starts, that is, the value
+   *          of the channel in effect before the first recorded transition.
+   */
+  public ChannelTransitions( final int aChannelIndex, final int aInitialValue )
+  {
+    this.channelIndex = aChannelIndex;
+    this.mask = ( 1 << aChannelIndex );
+    this.initialLevel = aInitialValue & this.mask;
+
+    this.sampleIndexes = new int[INITIAL_CAPACITY];
+    this.times = new long[INITIAL_CAPACITY];
+    this.count = 0;
+  }
+
+  // METHODS
+
+  /**
+   * Records a transition of the channel, that is, the level of the channel at
+   * the given sample differs from the level of the sample before it.
+   *
+   * @param aSampleIndex
+   *          the index of the sample at which the channel changes;
+   * @param aTime
+   *          the timestamp of that sample.
+   */
+  public void add( final int aSampleIndex, final long aTime )
+  {
+    if ( this.count == this.times.length )
+    {
+      final int newCapacity = this.count * 2;
+
+      final int[] newSampleIndexes = new int[newCapacity];
+      System.arraycopy( this.sampleIndexes, 0, newSampleIndexes, 0, this.count );
+      this.sampleIndexes = newSampleIndexes;
+
+      final long[] newTimes = new long[newCapacity];
+      System.arraycopy( this.times, 0, newTimes, 0, this.count );
+      this.times = newTimes;
+    }
+
+    this.sampleIndexes[this.count] = aSampleIndex;
+    this.times[this.count] = aTime;
+    this.count++;
+  }
+
+  /**
+   * Finds a certain type of edge between the two given timestamps, in the same
+   * way as {@link AsyncSerialDataDecoder#findEdge(int, Edge, long, long)}.
+   *
+   * @param aEdge
+   *          the edge to find, Edge.NONE for any edge;
+   * @param aStartTime
+   *          the timestamp to start searching;
+   * @param aEndTime
+   *          the timestamp to end the search;
+   * @return the time at which the edge was found, -1 if it is not found.
+   */
+  public long findEdge( final Edge aEdge, final long aStartTime, final long aEndTime )
+  {
+    // The level changes right *after* the time of a transition, hence the
+    // offset of one time unit...
+    for ( int i = indexOf( aStartTime ); ( i < this.count ) && ( ( this.times[i] + 1 ) < aEndTime ); i++ )
+    {
+      final Edge edge = Edge.toEdge( getLevelBefore( i ), getLevel( i ) );
+      if ( aEdge.isNone() || ( aEdge == edge ) )
+      {
+        return this.times[i] + 1;
+      }
+    }
+
+    return -1L;
+  }
+
+  /**
+   * Returns the index of the recorded channel.
+   *
+   * @return a channel index, >= 0 && < 32.
+   */
+  public int getChannelIndex()
+  {
+    return this.channelIndex;
+  }
+
+  /**
+   * Returns the number of recorded transitions.
+   *
+   * @return a transition count, >= 0.
+   */
+  public int getCount()
+  {
+    return this.count;
+  }
+
+  /**
+   * Returns the value of the channel right before the given timestamp, in the
+   * same way as
+   * {@link AsyncSerialDataDecoder#getDataValue(long, int)}.
+   *
+   * @param aTime
+   *          the timestamp to return the value for.
+   * @return the (masked) value of the channel.
+   */
+  public int getDataValue( final long aTime )
+  {
+    return getLevelBefore( indexOf( aTime ) );
+  }
+
+  /**
+   * Returns the value of the channel after the last recorded transition.
+   *
+   * @return the (masked) value of the channel.
+   */
+  public int getLastValue()
+  {
+    return getLevelBefore( this.count );
+  }
+
+  /**
+   * Returns the value of the channel right after a given transition.
+   *
+   * @param aIndex
+   *          the index of the transition, >= 0 && < {@link #getCount()}.
+   * @return the (masked) value of the channel.
+   */
+  public int getLevel( final int aIndex )
+  {
+    // Each transition toggles the level of the channel...
+    return ( ( aIndex % 2 ) == 0 ) ? ( this.initialLevel ^ this.mask ) : this.initialLevel;
+  }
+
+  /**
+   * Returns the mask of the recorded channel.
+   *
+   * @return a channel mask.
+   */
+  public int getMask()
+  {
+    return this.mask;
+  }
+
+  /**
+   * Returns the sample index of a given transition.
+   *
+   * @param aIndex
+   *          the index of the transition, >= 0 && < {@link #getCount()}.
+   * @return a sample index, >= 0.
+   */
+  public int getSampleIndex( final int aIndex )
+  {
+    return this.sampleIndexes[aIndex];
+  }
+
+  /**
+   * Returns the timestamp of a given transition.
+   *
+   * @param aIndex
+   *          the index of the transition, >= 0 && < {@link #getCount()}.
+   * @return a timestamp, >= 0.
+   */
+  public long getTime( final int aIndex )
+  {
+    return this.times[aIndex];
+  }
+
+  /**
+   * Returns the value of the channel right before a given transition.
+   */
+  private int getLevelBefore( final int aIndex )
+  {
+    return ( aIndex == 0 ) ? this.initialLevel : getLevel( aIndex - 1 );
+  }
+
+  /**
+   * Returns the index of the first transition at or after the given
+   * timestamp.
+   */
+  private int indexOf( final long aTime )
+  {
+    int low = 0;
+    int high = this.count;
+    while ( low < high )
+    {
+      final int mid = ( low + high ) >>> 1;
+      if ( this.times[mid] < aTime )
+      {
+        low = mid + 1;
+      }
+      else
+      {
+        high = mid;
+      }
+    }
+    return low;
+  }
+}
+
+/* EOF */
@@ -21,8 +21,7 @@
 package nl.lxtreme.ols.tool.uart.impl;
 
 
-import static nl.lxtreme.ols.util.NumberUtils.*;
-
+import java.util.*;
 import java.util.logging.*;
 
 import nl.lxtreme.ols.api.acquisition.*;
@@ -30,6 +29,7 @@ import nl.lxtreme.ols.api.data.*;
 import nl.lxtreme.ols.api.data.annotation.AnnotationListener;
 import nl.lxtreme.ols.api.tools.*;
 import nl.lxtreme.ols.tool.base.annotation.*;
+import nl.lxtreme.ols.tool.base.scan.*;
 import nl.lxtreme.ols.tool.uart.*;
 import nl.lxtreme.ols.tool.uart.AsyncSerialDataDecoder.ErrorType;
 import nl.lxtreme.ols.tool.uart.AsyncSerialDataDecoder.Parity;
@@ -44,8 +44,132 @@ import nl.lxtreme.ols.tool.uart.AsyncSerialDataDecoder.StopBits;
 /**
  * @author jajans
  */
-public class UARTAnalyserTask implements ToolTask<UARTDataSet>
+public class UARTAnalyserTask implements ToolTask<UARTDataSet>, ScanDecoderProvider<UARTDataSet>
 {
+  // INNER TYPES
+
+  /**
+   * Provides the actual UART decoder, driven by a {@link SampleScanner}. It
+   * records the transitions of all decoded lines during the scan, and decodes
+   * these lines from their transitions once the scan has ended.
+   */
+  final class UARTScanDecoder implements ScanDecoder<UARTDataSet>
+  {
+    // VARIABLES
+
+    private final UARTDataSet dataSet;
+    private final int channelMask;
+    private final int startOfScan;
+    private final Map<Integer, ChannelTransitions> transitions;
+
+    private AcquisitionResult data;
+    private long[] timestamps;
+
+    // CONSTRUCTORS
+
+    /**
+     * Creates a new UARTScanDecoder instance.
+     */
+    UARTScanDecoder( final UARTDataSet aDataSet, final int aChannelMask, final int aStartOfScan )
+    {
+      this.dataSet = aDataSet;
+      this.channelMask = aChannelMask;
+      this.startOfScan = aStartOfScan;
+      this.transitions = new LinkedHashMap<Integer, ChannelTransitions>();
+    }
+
+    // METHODS
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getChannelMask()
+    {
+      return this.channelMask;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getEndSampleIndex()
+    {
+      // Decoding a symbol may look a few bits beyond the end of decoding...
+      return Integer.MAX_VALUE;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public UARTDataSet getResult()
+    {
+      return this.dataSet;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getStartSampleIndex()
+    {
+      return this.startOfScan;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void onTransition( final int aSampleIdx, final int aValue )
+    {
+      for ( ChannelTransitions channel : this.transitions.values() )
+      {
+        if ( ( aValue & channel.getMask() ) != channel.getLastValue() )
+        {
+          channel.add( aSampleIdx, this.timestamps[aSampleIdx] );
+        }
+      }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void scanEnded()
+    {
+      decodeTransitions( this.dataSet, this.data, this.transitions );
+
+      // sort the results by time
+      this.dataSet.sort();
+
+      this.transitions.clear();
+      this.timestamps = null;
+      this.data = null;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void scanStarted( final AcquisitionResult aData )
+    {
+      final int startValue = aData.getValues()[this.startOfScan];
+
+      this.data = aData;
+      this.timestamps = aData.getTimestamps();
+
+      this.transitions.clear();
+      for ( int i = 0; i < 32; i++ )
+      {
+        if ( ( this.channelMask & ( 1 << i ) ) != 0 )
+        {
+          this.transitions.put( Integer.valueOf( i ), new ChannelTransitions( i, startValue ) );
+        }
+      }
+    }
+  }
+
   // CONSTANTS
 
   private static final Logger LOG = Logger.getLogger( UARTAnalyserTask.class.getName() );
@@ -109,6 +233,21 @@ public class UARTAnalyserTask implements ToolTask<UARTDataSet>
    */
   @Override
   public UARTDataSet call() throws Exception
+  {
+    final ScanDecoder<UARTDataSet> decoder = createScanDecoder();
+
+    final SampleScanner scanner = new SampleScanner( this.context.getData() );
+    scanner.addDecoder( decoder );
+    scanner.scan( this.progressListener );
+
+    return decoder.getResult();
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public ScanDecoder<UARTDataSet> createScanDecoder()
   {
     final AcquisitionResult data = this.context.getData();
 
@@ -149,46 +288,15 @@ public class UARTAnalyserTask implements ToolTask<UARTDataSet>
 
     final UARTDataSet decodedData = new UARTDataSet( startOfDecode, endOfDecode, data );
 
-    // decode RxD/TxD data lines...
-    if ( this.rxdIndex >= 0 )
-    {
-      prepareAndDecodeData( decodedData, this.rxdIndex, UARTData.UART_TYPE_RXDATA, UARTDataSet.UART_RXD );
-    }
-    if ( this.txdIndex >= 0 )
-    {
-      prepareAndDecodeData( decodedData, this.txdIndex, UARTData.UART_TYPE_TXDATA, UARTDataSet.UART_TXD );
-    }
-
-    // decode control lines...
-    if ( this.ctsIndex >= 0 )
-    {
-      prepareAndDecodeControl( decodedData, this.ctsIndex, UARTDataSet.UART_CTS );
-    }
-    if ( this.rtsIndex >= 0 )
-    {
-      prepareAndDecodeControl( decodedData, this.rtsIndex, UARTDataSet.UART_RTS );
-    }
-    if ( this.dcdIndex >= 0 )
-    {
-      prepareAndDecodeControl( decodedData, this.dcdIndex, UARTDataSet.UART_DCD );
-    }
-    if ( this.riIndex >= 0 )
-    {
-      prepareAndDecodeControl( decodedData, this.riIndex, UARTDataSet.UART_RI );
-    }
-    if ( this.dsrIndex >= 0 )
-    {
-      prepareAndDecodeControl( decodedData, this.dsrIndex, UARTDataSet.UART_DSR );
-    }
-    if ( this.dtrIndex >= 0 )
+    // The data lines are decoded from the start of the context, and need the
+    // value right before it; determining the baud rate needs all data...
+    int startOfScan = Math.max( 0, Math.min( startOfDecode, this.context.getStartSampleIndex() ) - 1 );
+    if ( this.baudRate == AUTO_DETECT_BAUDRATE )
     {
-      prepareAndDecodeControl( decodedData, this.dtrIndex, UARTDataSet.UART_DTR );
+      startOfScan = 0;
     }
 
-    // sort the results by time
-    decodedData.sort();
-
-    return decodedData;
+    return new UARTScanDecoder( decodedData, mask, startOfScan );
   }
 
   /**
@@ -341,73 +449,122 @@ public class UARTAnalyserTask implements ToolTask<UARTDataSet>
         String.format( "0x%1$X (%1$c)", Integer.valueOf( aSymbol ) ) ) );
   }
 
+  /**
+   * Decodes all selected lines from their recorded transitions.
+   * 
+   * @param aDataSet
+   *          the data set to add the decoded data to;
+   * @param aData
+   *          the data to decode;
+   * @param aTransitions
+   *          the recorded transitions of all selected lines, by their channel
+   *          index.
+   */
+  final void decodeTransitions( final UARTDataSet aDataSet, final AcquisitionResult aData,
+      final Map<Integer, ChannelTransitions> aTransitions )
+  {
+    // decode RxD/TxD data lines...
+    if ( this.rxdIndex >= 0 )
+    {
+      prepareResult( this.rxdIndex, UARTDataSet.UART_RXD );
+      decodeData( aDataSet, aData, aTransitions.get( Integer.valueOf( this.rxdIndex ) ), UARTData.UART_TYPE_RXDATA );
+    }
+    if ( this.txdIndex >= 0 )
+    {
+      prepareResult( this.txdIndex, UARTDataSet.UART_TXD );
+      decodeData( aDataSet, aData, aTransitions.get( Integer.valueOf( this.txdIndex ) ), UARTData.UART_TYPE_TXDATA );
+    }
+
+    // decode control lines...
+    if ( this.ctsIndex >= 0 )
+    {
+      prepareAndDecodeControl( aDataSet, aTransitions.get( Integer.valueOf( this.ctsIndex ) ), UARTDataSet.UART_CTS );
+    }
+    if ( this.rtsIndex >= 0 )
+    {
+      prepareAndDecodeControl( aDataSet, aTransitions.get( Integer.valueOf( this.rtsIndex ) ), UARTDataSet.UART_RTS );
+    }
+    if ( this.dcdIndex >= 0 )
+    {
+      prepareAndDecodeControl( aDataSet, aTransitions.get( Integer.valueOf( this.dcdIndex ) ), UARTDataSet.UART_DCD );
+    }
+    if ( this.riIndex >= 0 )
+    {
+      prepareAndDecodeControl( aDataSet, aTransitions.get( Integer.valueOf( this.riIndex ) ), UARTDataSet.UART_RI );
+    }
+    if ( this.dsrIndex >= 0 )
+    {
+      prepareAndDecodeControl( aDataSet, aTransitions.get( Integer.valueOf( this.dsrIndex ) ), UARTDataSet.UART_DSR );
+    }
+    if ( this.dtrIndex >= 0 )
+    {
+      prepareAndDecodeControl( aDataSet, aTransitions.get( Integer.valueOf( this.dtrIndex ) ), UARTDataSet.UART_DTR );
+    }
+  }
+
   /**
    * Decodes a control line.
    * 
    * @param aDataSet
    *          the data set to add the decoded data to;
-   * @param aChannelIndex
-   *          the channel index of the control-line to decode;
+   * @param aTransitions
+   *          the transitions of the control-line to decode;
    * @param aName
    *          the name of the control line to decode.
    */
-  private void decodeControl( final UARTDataSet aDataSet, final int aChannelIndex, final String aName )
+  private void decodeControl( final UARTDataSet aDataSet, final ChannelTransitions aTransitions, final String aName )
   {
-    final AcquisitionResult data = this.context.getData();
-
     if ( LOG.isLoggable( Level.FINE ) )
     {
       LOG.log( Level.FINE, "Decoding control: {0} ...", aName );
     }
 
-    final int mask = ( 1 << aChannelIndex );
+    final int channelIndex = aTransitions.getChannelIndex();
 
     final int startSampleIdx = aDataSet.getStartOfDecode();
     final int endSampleIdx = aDataSet.getEndOfDecode();
 
-    final int[] values = data.getValues();
-    this.progressListener.setProgress( 0 );
-
-    int oldValue = values[startSampleIdx] & mask;
-    for ( int i = startSampleIdx + 1; i < endSampleIdx; i++ )
+    for ( int i = 0; i < aTransitions.getCount(); i++ )
     {
-      final int value = values[i] & mask;
+      final int sampleIdx = aTransitions.getSampleIndex( i );
+      if ( ( sampleIdx <= startSampleIdx ) || ( sampleIdx >= endSampleIdx ) )
+      {
+        continue;
+      }
 
-      final Edge edge = Edge.toEdge( oldValue, value );
+      final Edge edge = Edge.toEdge( aTransitions.getLevel( i ) ^ aTransitions.getMask(), aTransitions.getLevel( i ) );
       if ( edge.isRising() )
       {
-        aDataSet.reportControlHigh( aChannelIndex, i, aName );
+        aDataSet.reportControlHigh( channelIndex, sampleIdx, aName );
       }
       if ( edge.isFalling() )
       {
-        aDataSet.reportControlLow( aChannelIndex, i, aName );
+        aDataSet.reportControlLow( channelIndex, sampleIdx, aName );
       }
-      oldValue = value;
-
-      // update progress
-      this.progressListener.setProgress( getPercentage( i, startSampleIdx, endSampleIdx ) );
     }
   }
 
   /**
    * @param aDataSet
    *          the data set to add the decoded data to;
-   * @param aChannelIndex
-   *          the channel index to decode;
+   * @param aData
+   *          the data to decode;
+   * @param aTransitions
+   *          the transitions of the channel to decode;
    * @param aType
    *          type of the data (rx or tx)
    */
-  private void decodeData( final UARTDataSet aDataSet, final int aChannelIndex, final int aEventType )
+  private void decodeData( final UARTDataSet aDataSet, final AcquisitionResult aData,
+      final ChannelTransitions aTransitions, final int aEventType )
   {
-    final AcquisitionResult data = this.context.getData();
+    final int channelIndex = aTransitions.getChannelIndex();
 
     final int baudRate;
 
     if ( this.baudRate == AUTO_DETECT_BAUDRATE )
     {
       // Auto detect the baud rate...
-      final int mask = ( 1 << aChannelIndex );
-      final BaudRateAnalyzer baudRateAnalyzer = new BaudRateAnalyzer( data.getSampleRate(), data.getValues(), data.getTimestamps(), mask );
+      final BaudRateAnalyzer baudRateAnalyzer = new BaudRateAnalyzer( aData.getSampleRate(), aTransitions );
       baudRate = baudRateAnalyzer.getBaudRateExact();
       // Set nominal (normalized) baud rate
       aDataSet.setBaudRate( baudRateAnalyzer.getBaudRate() );
@@ -422,7 +579,7 @@ public class UARTAnalyserTask implements ToolTask<UARTDataSet>
     if ( baudRate <= 0 )
     {
       LOG.log( Level.INFO, "No (usable) {0}-data found for determining bitlength/baudrate ...",
-          aChannelIndex == this.rxdIndex ? UARTDataSet.UART_RXD : UARTDataSet.UART_TXD );
+          channelIndex == this.rxdIndex ? UARTDataSet.UART_RXD : UARTDataSet.UART_TXD );
     }
     else
     {
@@ -430,14 +587,14 @@ public class UARTAnalyserTask implements ToolTask<UARTDataSet>
       SerialConfiguration config = new SerialConfiguration( baudRate, this.bitCount,
           this.stopBits, this.parity, this.bitEncoding, this.bitOrder, this.idleLevel );
 
+      // Progress is reported by the scan over the sample values...
       AsyncSerialDataDecoder decoder = new AsyncSerialDataDecoder( config, this.context );
-      decoder.setProgressListener( this.progressListener );
       decoder.setCallback( new SerialDecoderCallback()
       {
         @Override
         public void onError( final int aChannelIdx, final ErrorType aType, final long aTime )
         {
-          final int sampleIdx = data.getSampleIndex( aTime );
+          final int sampleIdx = aData.getSampleIndex( aTime );
           final int eventType = ( aEventType == UARTData.UART_TYPE_RXDATA ) ? UARTData.UART_TYPE_RXEVENT
               : UARTData.UART_TYPE_TXEVENT;
 
@@ -453,16 +610,17 @@ public class UARTAnalyserTask implements ToolTask<UARTDataSet>
         @Override
         public void onSymbol( final int aChannelIdx, final int aSymbol, final long aStartTime, final long aEndTime )
         {
-          final int startSampleIdx = Math.max( data.getSampleIndex( aStartTime ), 0 );
-          final int endSampleIdx = Math.min( data.getSampleIndex( aEndTime ), data.getTimestamps().length - 1 );
+          final int startSampleIdx = Math.max( aData.getSampleIndex( aStartTime ), 0 );
+          final int endSampleIdx = Math.min( aData.getSampleIndex( aEndTime, startSampleIdx ),
+              aData.getTimestamps().length - 1 );
 
-          aDataSet.reportData( aChannelIndex, startSampleIdx, endSampleIdx, aSymbol, aEventType );
+          aDataSet.reportData( channelIndex, startSampleIdx, endSampleIdx, aSymbol, aEventType );
 
-          addSymbolAnnotation( aChannelIndex, aSymbol, aStartTime, aEndTime );
+          addSymbolAnnotation( channelIndex, aSymbol, aStartTime, aEndTime );
         }
       } );
 
-      final double sampledBitLength = decoder.decodeDataLine( aChannelIndex );
+      final double sampledBitLength = decoder.decodeDataLine( aTransitions );
       // Set the actual bit length used, so UARTDataSet can calculate
       // the actual baud rate used.
       aDataSet.setSampledBitLength( sampledBitLength );
@@ -530,38 +688,20 @@ public class UARTAnalyserTask implements ToolTask<UARTDataSet>
   }
 
   /**
-   * Prepares and decoded the control line indicated by the given channel index.
-   * 
-   * @param aDataSet
-   *          the dataset to add the decoding results to;
-   * @param aChannelIndex
-   *          the channel index of the channel to decode;
-   * @param aDefaultLabel
-   *          the default label to use for the decoded channel.
-   */
-  private void prepareAndDecodeControl( final UARTDataSet aDataSet, final int aChannelIndex, final String aDefaultLabel )
-  {
-    prepareResult( aChannelIndex, aDefaultLabel );
-    decodeControl( aDataSet, aChannelIndex, aDefaultLabel );
-  }
-
-  /**
-   * Prepares and decoded the data line indicated by the given channel index.
+   * Prepares and decoded the control line indicated by the given transitions.
    * 
    * @param aDataSet
    *          the dataset to add the decoding results to;
-   * @param aChannelIndex
-   *          the channel index of the channel to decode;
-   * @param aEventType
-   *          the event type to use for the decoded data;
+   * @param aTransitions
+   *          the transitions of the channel to decode;
    * @param aDefaultLabel
    *          the default label to use for the decoded channel.
    */
-  private void prepareAndDecodeData( final UARTDataSet aDataSet, final int aChannelIndex, final int aEventType,
+  private void prepareAndDecodeControl( final UARTDataSet aDataSet, final ChannelTransitions aTransitions,
       final String aDefaultLabel )
   {
-    prepareResult( aChannelIndex, aDefaultLabel );
-    decodeData( aDataSet, aChannelIndex, aEventType );
+    prepareResult( aTransitions.getChannelIndex(), aDefaultLabel );
+    decodeControl( aDataSet, aTransitions, aDefaultLabel );
   }
 
   /**
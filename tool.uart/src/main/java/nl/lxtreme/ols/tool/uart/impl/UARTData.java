@@ -33,6 +33,8 @@ public final class UARTData extends BaseData<UARTData>
 {
   // CONSTANTS
 
+  private static final long serialVersionUID = 1L;
+
   public static final int UART_TYPE_EVENT = 0;
   public static final int UART_TYPE_RXEVENT = 1;
   public static final int UART_TYPE_TXEVENT = 2;
@@ -35,6 +35,8 @@ public final class UARTDataSet extends BaseDataSet<UARTData>
 {
   // CONSTANTS
 
+  private static final long serialVersionUID = 1L;
+
   public static final String UART_RXD = "RxD";
   public static final String UART_TXD = "TxD";
   public static final String UART_CTS = "CTS";
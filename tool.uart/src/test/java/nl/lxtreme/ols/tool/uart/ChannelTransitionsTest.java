@@ -0,0 +1,171 @@
+/*
+ * OpenBench LogicSniffer / SUMP project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ *
+ * Copyright (C) 2010-2011 J.W. Janssen, www.lxtreme.nl
+ */
+package nl.lxtreme.ols.tool.uart;
+
+
+import static org.junit.Assert.*;
+
+import java.util.*;
+
+import nl.lxtreme.ols.api.acquisition.*;
+import nl.lxtreme.ols.api.tools.*;
+import nl.lxtreme.ols.test.*;
+import nl.lxtreme.ols.test.data.*;
+import nl.lxtreme.ols.tool.uart.AsyncSerialDataDecoder.BitEncoding;
+import nl.lxtreme.ols.tool.uart.AsyncSerialDataDecoder.BitLevel;
+import nl.lxtreme.ols.tool.uart.AsyncSerialDataDecoder.BitOrder;
+import nl.lxtreme.ols.tool.uart.AsyncSerialDataDecoder.ErrorType;
+import nl.lxtreme.ols.tool.uart.AsyncSerialDataDecoder.Parity;
+import nl.lxtreme.ols.tool.uart.AsyncSerialDataDecoder.SerialConfiguration;
+import nl.lxtreme.ols.tool.uart.AsyncSerialDataDecoder.SerialDecoderCallback;
+import nl.lxtreme.ols.tool.uart.AsyncSerialDataDecoder.StopBits;
+
+import org.junit.*;
+
+
+/**
+ * Tests that decoding from {@link ChannelTransitions} yields the same results
+ * as decoding from the sample values.
+ */
+public class ChannelTransitionsTest
+{
+  // METHODS
+
+  /**
+   * Records the transitions of a channel from the given sample index on.
+   */
+  private static ChannelTransitions record( final AcquisitionResult aData, final int aChannelIdx, final int aStartIdx )
+  {
+    final int[] values = aData.getValues();
+    final long[] timestamps = aData.getTimestamps();
+
+    final ChannelTransitions result = new ChannelTransitions( aChannelIdx, values[aStartIdx] );
+    for ( int i = aStartIdx + 1; i < values.length; i++ )
+    {
+      if ( ( values[i] & result.getMask() ) != result.getLastValue() )
+      {
+        result.add( i, timestamps[i] );
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Decodes a single channel, either from its sample values or from its
+   * transitions, and returns all reported symbols and errors.
+   */
+  private static List<String> decode( final ToolContext aContext, final int aBaudRate, final int aChannelIdx,
+      final ChannelTransitions aTransitions )
+  {
+    final List<String> result = new ArrayList<String>();
+
+    final SerialConfiguration config = new SerialConfiguration( aBaudRate, 8, StopBits.ONE, Parity.NONE,
+        BitEncoding.HIGH_IS_MARK, BitOrder.LSB_FIRST, BitLevel.HIGH );
+
+    final AsyncSerialDataDecoder decoder = new AsyncSerialDataDecoder( config, aContext );
+    decoder.setCallback( new SerialDecoderCallback()
+    {
+      @Override
+      public void onError( final int aChannelIndex, final ErrorType aType, final long aTime )
+      {
+        result.add( aType + "@" + aTime );
+      }
+
+      @Override
+      public void onEvent( final int aChannelIndex, final String aEvent, final long aStartTime, final long aEndTime )
+      {
+        // Nop
+      }
+
+      @Override
+      public void onSymbol( final int aChannelIndex, final int aSymbol, final long aStartTime, final long aEndTime )
+      {
+        result.add( aSymbol + "@" + aStartTime + "-" + aEndTime );
+      }
+    } );
+
+    final double bitLength;
+    if ( aTransitions == null )
+    {
+      bitLength = decoder.decodeDataLine( aChannelIdx );
+    }
+    else
+    {
+      bitLength = decoder.decodeDataLine( aTransitions );
+    }
+    result.add( "bitLength=" + bitLength );
+
+    return result;
+  }
+
+  /**
+   * Tests that the baud rate determined from the transitions of a channel
+   * equals the one determined from its sample values.
+   */
+  @Test
+  public void testBaudRateFromTransitionsOk() throws Exception
+  {
+    final AcquisitionResult data = DataTestUtils.getCapturedData( ResourceUtils.getResource( getClass(),
+        "uart_8bit_3.ols" ) );
+
+    for ( int channelIdx = 0; channelIdx < 3; channelIdx++ )
+    {
+      final BaudRateAnalyzer expected = new BaudRateAnalyzer( data.getSampleRate(), data.getValues(),
+          data.getTimestamps(), 1 << channelIdx );
+      final BaudRateAnalyzer actual = new BaudRateAnalyzer( data.getSampleRate(), record( data, channelIdx, 0 ) );
+
+      assertEquals( expected.getBaudRateExact(), actual.getBaudRateExact() );
+    }
+  }
+
+  /**
+   * Tests that decoding from the transitions of a channel yields exactly the
+   * same symbols, errors and bit length as decoding from its sample values,
+   * also when decoding does not start at the first sample.
+   */
+  @Test
+  public void testDecodeFromTransitionsOk() throws Exception
+  {
+    final AcquisitionResult data = DataTestUtils.getCapturedData( ResourceUtils.getResource( getClass(),
+        "uart_8bit_3.ols" ) );
+    final int last = data.getValues().length - 1;
+
+    for ( int channelIdx = 0; channelIdx < 2; channelIdx++ )
+    {
+      final int baudRate = new BaudRateAnalyzer( data.getSampleRate(), data.getValues(), data.getTimestamps(),
+          1 << channelIdx ).getBaudRateExact();
+
+      for ( int startIdx : new int[] { 0, 5, last / 3 } )
+      {
+        final ToolContext context = DataTestUtils.createToolContext( data, startIdx, last - 1 );
+
+        final List<String> expected = decode( context, baudRate, channelIdx, null );
+        final List<String> actual = decode( context, baudRate, channelIdx,
+            record( data, channelIdx, Math.max( 0, startIdx - 1 ) ) );
+
+        assertTrue( expected.size() > 1 );
+        assertEquals( expected, actual );
+      }
+    }
+  }
+}
+
+/* EOF */